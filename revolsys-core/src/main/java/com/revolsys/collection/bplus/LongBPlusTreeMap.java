@@ -0,0 +1,606 @@
+package com.revolsys.collection.bplus;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * A concurrent B+Tree map with primitive long keys. The key and value arrays of each node are
+ * never modified after the node is created. Writers hold a lock and copy the path from the root
+ * to the modified leaf, then publish the new root. Readers don't take any locks, they read the
+ * current root and see a consistent snapshot of the tree.
+ * <p>
+ * Int keys can use the long methods ({@link #get(long)}, {@link #putLong(long, Object)}) without
+ * boxing. Sorted data can be loaded with {@link #bulkLoad(long[], Object[], int)} which builds the
+ * tree bottom up with full nodes instead of splitting nodes as the keys are inserted.
+ * </p>
+ * <p>
+ * Nodes are not merged when entries are removed, empty nodes are removed from their parent.
+ * </p>
+ * <p>
+ * All nodes are held on the heap so the maximum entry count is limited by the heap size. Use
+ * {@link LongLongBPlusTreeMap} for long values stored in the pages of a memory mapped file.
+ * </p>
+ *
+ * @param <V> The type of value.
+ */
+public class LongBPlusTreeMap<V> extends AbstractMap<Long, V> {
+
+  private class EntryIterator implements Iterator<Map.Entry<Long, V>> {
+    private final Deque<Interior> interiors = new ArrayDeque<>();
+
+    private final Deque<Integer> interiorIndexes = new ArrayDeque<>();
+
+    private boolean hasLastKey = false;
+
+    private long lastKey;
+
+    private Leaf leaf;
+
+    private int leafIndex;
+
+    private EntryIterator(final Node root) {
+      descend(root);
+      advanceLeaf();
+    }
+
+    private void advanceLeaf() {
+      while (this.leaf == null || this.leafIndex >= this.leaf.keys.length) {
+        this.leaf = null;
+        if (this.interiors.isEmpty()) {
+          return;
+        } else {
+          final Interior interior = this.interiors.peek();
+          final int childIndex = this.interiorIndexes.pop() + 1;
+          if (childIndex < interior.children.length) {
+            this.interiorIndexes.push(childIndex);
+            descend(interior.children[childIndex]);
+          } else {
+            this.interiors.pop();
+          }
+        }
+      }
+    }
+
+    private void descend(Node node) {
+      while (node instanceof Interior) {
+        final Interior interior = (Interior)node;
+        if (interior.children.length == 0) {
+          return;
+        }
+        this.interiors.push(interior);
+        this.interiorIndexes.push(0);
+        node = interior.children[0];
+      }
+      this.leaf = (Leaf)node;
+      this.leafIndex = 0;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.leaf != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<Long, V> next() {
+      if (this.leaf == null) {
+        throw new NoSuchElementException();
+      } else {
+        final long key = this.leaf.keys[this.leafIndex];
+        final V value = (V)this.leaf.values[this.leafIndex];
+        this.leafIndex++;
+        this.lastKey = key;
+        this.hasLastKey = true;
+        advanceLeaf();
+        return new SimpleImmutableEntry<>(key, value);
+      }
+    }
+
+    @Override
+    public void remove() {
+      if (this.hasLastKey) {
+        this.hasLastKey = false;
+        LongBPlusTreeMap.this.remove(this.lastKey);
+      } else {
+        throw new IllegalStateException();
+      }
+    }
+  }
+
+  private static final class Interior extends Node {
+    private final Node[] children;
+
+    private Interior(final long[] keys, final Node[] children) {
+      super(keys);
+      this.children = children;
+    }
+
+    private int childIndex(final long key) {
+      final int index = Arrays.binarySearch(this.keys, key);
+      if (index >= 0) {
+        return index + 1;
+      } else {
+        return -index - 1;
+      }
+    }
+  }
+
+  private static final class Leaf extends Node {
+    private final Object[] values;
+
+    private Leaf(final long[] keys, final Object[] values) {
+      super(keys);
+      this.values = values;
+    }
+  }
+
+  private abstract static class Node {
+    protected final long[] keys;
+
+    private Node(final long[] keys) {
+      this.keys = keys;
+    }
+  }
+
+  private static final class Split {
+    private final Node left;
+
+    private final Node right;
+
+    private final long separator;
+
+    private Split(final Node left, final long separator, final Node right) {
+      this.left = left;
+      this.separator = separator;
+      this.right = right;
+    }
+  }
+
+  private static final long[] EMPTY_KEYS = new long[0];
+
+  private static final Object[] EMPTY_VALUES = new Object[0];
+
+  private static Long toKey(final Object key) {
+    if (key instanceof Long || key instanceof Integer || key instanceof Short
+      || key instanceof Byte) {
+      return ((Number)key).longValue();
+    } else {
+      return null;
+    }
+  }
+
+  private volatile long entryCount;
+
+  /** True if the last write replaced or removed a value, only accessed holding the lock. */
+  private boolean hasOldValue;
+
+  private final int nodeSize;
+
+  /** The value replaced or removed by the last write, only accessed holding the lock. */
+  private Object oldValue;
+
+  private volatile Node root;
+
+  public LongBPlusTreeMap() {
+    this(64);
+  }
+
+  /**
+   * @param nodeSize The maximum number of keys in a leaf node or children in an interior node.
+   */
+  public LongBPlusTreeMap(final int nodeSize) {
+    if (nodeSize < 4) {
+      throw new IllegalArgumentException("nodeSize must be >= 4 not " + nodeSize);
+    }
+    this.nodeSize = nodeSize;
+    this.root = new Leaf(EMPTY_KEYS, EMPTY_VALUES);
+  }
+
+  /**
+   * Replace the contents of the map with the sorted keys and values. The tree is built bottom up
+   * with full nodes.
+   *
+   * @param keys The keys in strictly increasing order.
+   * @param values The values for each key.
+   * @param count The number of entries to load from the arrays.
+   * @throws IllegalArgumentException If the keys are not strictly increasing.
+   */
+  public synchronized void bulkLoad(final long[] keys, final V[] values, final int count) {
+    for (int i = 1; i < count; i++) {
+      if (keys[i - 1] >= keys[i]) {
+        throw new IllegalArgumentException(
+          "Keys must be strictly increasing " + keys[i - 1] + " >= " + keys[i]);
+      }
+    }
+    if (count == 0) {
+      this.root = new Leaf(EMPTY_KEYS, EMPTY_VALUES);
+      this.entryCount = 0;
+      return;
+    }
+    final int nodeSize = this.nodeSize;
+    final int leafCount = (count + nodeSize - 1) / nodeSize;
+    Node[] level = new Node[leafCount];
+    long[] levelMinKeys = new long[leafCount];
+    for (int leafIndex = 0; leafIndex < leafCount; leafIndex++) {
+      final int start = leafIndex * nodeSize;
+      final int end = Math.min(count, start + nodeSize);
+      final long[] leafKeys = Arrays.copyOfRange(keys, start, end);
+      final Object[] leafValues = Arrays.copyOfRange(values, start, end, Object[].class);
+      level[leafIndex] = new Leaf(leafKeys, leafValues);
+      levelMinKeys[leafIndex] = leafKeys[0];
+    }
+    while (level.length > 1) {
+      final int parentCount = (level.length + nodeSize - 1) / nodeSize;
+      final Node[] parents = new Node[parentCount];
+      final long[] parentMinKeys = new long[parentCount];
+      for (int parentIndex = 0; parentIndex < parentCount; parentIndex++) {
+        final int start = parentIndex * nodeSize;
+        final int end = Math.min(level.length, start + nodeSize);
+        final Node[] children = Arrays.copyOfRange(level, start, end);
+        final long[] separators = Arrays.copyOfRange(levelMinKeys, start + 1, end);
+        parents[parentIndex] = new Interior(separators, children);
+        parentMinKeys[parentIndex] = levelMinKeys[start];
+      }
+      level = parents;
+      levelMinKeys = parentMinKeys;
+    }
+    this.root = level[0];
+    this.entryCount = count;
+  }
+
+  /**
+   * Replace the contents of the map with the entries from the sorted map.
+   *
+   * @param map The map to load.
+   */
+  @SuppressWarnings("unchecked")
+  public synchronized void bulkLoad(final SortedMap<Long, ? extends V> map) {
+    final int count = map.size();
+    final long[] keys = new long[count];
+    final Object[] values = new Object[count];
+    int i = 0;
+    for (final Entry<Long, ? extends V> entry : map.entrySet()) {
+      keys[i] = entry.getKey();
+      values[i] = entry.getValue();
+      i++;
+    }
+    bulkLoad(keys, (V[])values, count);
+  }
+
+  @Override
+  public synchronized void clear() {
+    this.root = new Leaf(EMPTY_KEYS, EMPTY_VALUES);
+    this.entryCount = 0;
+  }
+
+  public boolean containsKey(final long key) {
+    final Leaf leaf = getLeaf(this.root, key);
+    return Arrays.binarySearch(leaf.keys, key) >= 0;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    final Long longKey = toKey(key);
+    if (longKey == null) {
+      return false;
+    } else {
+      return containsKey(longKey.longValue());
+    }
+  }
+
+  @Override
+  public Set<Map.Entry<Long, V>> entrySet() {
+    return new AbstractSet<Map.Entry<Long, V>>() {
+      @Override
+      public void clear() {
+        LongBPlusTreeMap.this.clear();
+      }
+
+      @Override
+      public Iterator<Map.Entry<Long, V>> iterator() {
+        return new EntryIterator(LongBPlusTreeMap.this.root);
+      }
+
+      @Override
+      public int size() {
+        return LongBPlusTreeMap.this.size();
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final long key) {
+    final Leaf leaf = getLeaf(this.root, key);
+    final int index = Arrays.binarySearch(leaf.keys, key);
+    if (index >= 0) {
+      return (V)leaf.values[index];
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public V get(final Object key) {
+    final Long longKey = toKey(key);
+    if (longKey == null) {
+      return null;
+    } else {
+      return get(longKey.longValue());
+    }
+  }
+
+  /**
+   * @return The number of entries in the map, not limited to {@link Integer#MAX_VALUE}.
+   */
+  public long getEntryCount() {
+    return this.entryCount;
+  }
+
+  /**
+   * @return The number of levels in the tree including the leaf level.
+   */
+  public int getHeight() {
+    int height = 1;
+    Node node = this.root;
+    while (node instanceof Interior) {
+      final Interior interior = (Interior)node;
+      if (interior.children.length == 0) {
+        break;
+      }
+      node = interior.children[0];
+      height++;
+    }
+    return height;
+  }
+
+  private Leaf getLeaf(Node node, final long key) {
+    while (node instanceof Interior) {
+      final Interior interior = (Interior)node;
+      final Node[] children = interior.children;
+      if (children.length == 0) {
+        return new Leaf(EMPTY_KEYS, EMPTY_VALUES);
+      }
+      node = children[interior.childIndex(key)];
+    }
+    return (Leaf)node;
+  }
+
+  public int getNodeSize() {
+    return this.nodeSize;
+  }
+
+  private Object insert(final Node node, final long key, final Object value) {
+    if (node instanceof Leaf) {
+      return insertLeaf((Leaf)node, key, value);
+    } else {
+      final Interior interior = (Interior)node;
+      final Node[] children = interior.children;
+      if (children.length == 0) {
+        final Leaf leaf = new Leaf(new long[] {
+          key
+        }, new Object[] {
+          value
+        });
+        return new Interior(EMPTY_KEYS, new Node[] {
+          leaf
+        });
+      }
+      final int childIndex = interior.childIndex(key);
+      final Node child = children[childIndex];
+      final Object result = insert(child, key, value);
+      if (result == child) {
+        return interior;
+      } else if (result instanceof Split) {
+        final Split split = (Split)result;
+        final long[] keys = interior.keys;
+        final long[] newKeys = new long[keys.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, childIndex);
+        newKeys[childIndex] = split.separator;
+        System.arraycopy(keys, childIndex, newKeys, childIndex + 1, keys.length - childIndex);
+
+        final Node[] newChildren = new Node[children.length + 1];
+        System.arraycopy(children, 0, newChildren, 0, childIndex);
+        newChildren[childIndex] = split.left;
+        newChildren[childIndex + 1] = split.right;
+        System.arraycopy(children, childIndex + 1, newChildren, childIndex + 2,
+          children.length - childIndex - 1);
+        if (newChildren.length <= this.nodeSize) {
+          return new Interior(newKeys, newChildren);
+        } else {
+          final int middle = newChildren.length / 2;
+          final Interior left = new Interior(Arrays.copyOfRange(newKeys, 0, middle - 1),
+            Arrays.copyOfRange(newChildren, 0, middle));
+          final Interior right = new Interior(
+            Arrays.copyOfRange(newKeys, middle, newKeys.length),
+            Arrays.copyOfRange(newChildren, middle, newChildren.length));
+          return new Split(left, newKeys[middle - 1], right);
+        }
+      } else {
+        final Node[] newChildren = children.clone();
+        newChildren[childIndex] = (Node)result;
+        return new Interior(interior.keys, newChildren);
+      }
+    }
+  }
+
+  private Object insertLeaf(final Leaf leaf, final long key, final Object value) {
+    final long[] keys = leaf.keys;
+    final Object[] values = leaf.values;
+    final int index = Arrays.binarySearch(keys, key);
+    if (index >= 0) {
+      this.hasOldValue = true;
+      this.oldValue = values[index];
+      if (values[index] == value) {
+        return leaf;
+      } else {
+        final Object[] newValues = values.clone();
+        newValues[index] = value;
+        return new Leaf(keys, newValues);
+      }
+    } else {
+      final int insertIndex = -index - 1;
+      final int size = keys.length;
+      final long[] newKeys = new long[size + 1];
+      final Object[] newValues = new Object[size + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insertIndex);
+      System.arraycopy(values, 0, newValues, 0, insertIndex);
+      newKeys[insertIndex] = key;
+      newValues[insertIndex] = value;
+      System.arraycopy(keys, insertIndex, newKeys, insertIndex + 1, size - insertIndex);
+      System.arraycopy(values, insertIndex, newValues, insertIndex + 1, size - insertIndex);
+      if (newKeys.length <= this.nodeSize) {
+        return new Leaf(newKeys, newValues);
+      } else {
+        final int middle = newKeys.length / 2;
+        final Leaf left = new Leaf(Arrays.copyOfRange(newKeys, 0, middle),
+          Arrays.copyOfRange(newValues, 0, middle));
+        final Leaf right = new Leaf(Arrays.copyOfRange(newKeys, middle, newKeys.length),
+          Arrays.copyOfRange(newValues, middle, newValues.length));
+        return new Split(left, newKeys[middle], right);
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.entryCount == 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  public synchronized V putLong(final long key, final V value) {
+    this.hasOldValue = false;
+    this.oldValue = null;
+    final Node root = this.root;
+    final Object result = insert(root, key, value);
+    if (result instanceof Split) {
+      final Split split = (Split)result;
+      this.root = new Interior(new long[] {
+        split.separator
+      }, new Node[] {
+        split.left, split.right
+      });
+    } else if (result != root) {
+      this.root = (Node)result;
+    }
+    if (!this.hasOldValue) {
+      this.entryCount++;
+    }
+    final V oldValue = (V)this.oldValue;
+    this.oldValue = null;
+    return oldValue;
+  }
+
+  @Override
+  public V put(final Long key, final V value) {
+    if (key == null) {
+      throw new NullPointerException("Key must not be null");
+    }
+    return putLong(key.longValue(), value);
+  }
+
+  @SuppressWarnings("unchecked")
+  public synchronized V remove(final long key) {
+    this.hasOldValue = false;
+    this.oldValue = null;
+    final Node root = this.root;
+    Node newRoot = remove(root, key);
+    if (newRoot != root) {
+      while (newRoot instanceof Interior && ((Interior)newRoot).children.length == 1) {
+        newRoot = ((Interior)newRoot).children[0];
+      }
+      if (newRoot instanceof Interior && ((Interior)newRoot).children.length == 0) {
+        newRoot = new Leaf(EMPTY_KEYS, EMPTY_VALUES);
+      }
+      this.root = newRoot;
+    }
+    if (this.hasOldValue) {
+      this.entryCount--;
+    }
+    final V oldValue = (V)this.oldValue;
+    this.oldValue = null;
+    return oldValue;
+  }
+
+  private Node remove(final Node node, final long key) {
+    if (node instanceof Leaf) {
+      final Leaf leaf = (Leaf)node;
+      final long[] keys = leaf.keys;
+      final int index = Arrays.binarySearch(keys, key);
+      if (index < 0) {
+        return leaf;
+      } else {
+        this.hasOldValue = true;
+        this.oldValue = leaf.values[index];
+        final int size = keys.length - 1;
+        final long[] newKeys = new long[size];
+        final Object[] newValues = new Object[size];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(leaf.values, 0, newValues, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, size - index);
+        System.arraycopy(leaf.values, index + 1, newValues, index, size - index);
+        return new Leaf(newKeys, newValues);
+      }
+    } else {
+      final Interior interior = (Interior)node;
+      final Node[] children = interior.children;
+      if (children.length == 0) {
+        return interior;
+      }
+      final int childIndex = interior.childIndex(key);
+      final Node child = children[childIndex];
+      final Node newChild = remove(child, key);
+      if (newChild == child) {
+        return interior;
+      } else if (newChild.keys.length == 0
+        && (newChild instanceof Leaf || ((Interior)newChild).children.length == 0)) {
+        final long[] keys = interior.keys;
+        final Node[] newChildren = new Node[children.length - 1];
+        System.arraycopy(children, 0, newChildren, 0, childIndex);
+        System.arraycopy(children, childIndex + 1, newChildren, childIndex,
+          newChildren.length - childIndex);
+        final long[] newKeys;
+        if (keys.length == 0) {
+          newKeys = EMPTY_KEYS;
+        } else {
+          final int keyIndex = Math.max(0, childIndex - 1);
+          newKeys = new long[keys.length - 1];
+          System.arraycopy(keys, 0, newKeys, 0, keyIndex);
+          System.arraycopy(keys, keyIndex + 1, newKeys, keyIndex, newKeys.length - keyIndex);
+        }
+        return new Interior(newKeys, newChildren);
+      } else {
+        final Node[] newChildren = children.clone();
+        newChildren[childIndex] = newChild;
+        return new Interior(interior.keys, newChildren);
+      }
+    }
+  }
+
+  @Override
+  public V remove(final Object key) {
+    final Long longKey = toKey(key);
+    if (longKey == null) {
+      return null;
+    } else {
+      return remove(longKey.longValue());
+    }
+  }
+
+  @Override
+  public int size() {
+    final long count = this.entryCount;
+    if (count > Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int)count;
+    }
+  }
+}
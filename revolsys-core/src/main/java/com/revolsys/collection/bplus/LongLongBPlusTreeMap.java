@@ -0,0 +1,597 @@
+package com.revolsys.collection.bplus;
+
+import com.revolsys.collection.map.ConcurrentLongLongHashMap.LongLongConsumer;
+import com.revolsys.io.page.FileMappedPageManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.io.page.PageManager;
+
+/**
+ * A B+Tree map with primitive long keys and long values stored in the pages of a
+ * {@link PageManager}. With a {@link FileMappedPageManager} the entries are held in the memory
+ * mapped file instead of the heap, so the map can hold more entries than the heap based
+ * {@link LongBPlusTreeMap}, 1B entries use about 20GB of file.
+ * <p>
+ * Leaf pages hold the sorted keys and values, interior pages hold the separator keys and the child
+ * page indexes. A key larger than all the keys in the map is added to the last leaf page and the
+ * full pages on the right edge of the tree are not split in half, so sorted data is loaded into
+ * full pages in the same way as {@link LongBPlusTreeMap#bulkLoad(long[], Object[], int)}. Int keys
+ * can use the long methods.
+ * </p>
+ * <p>
+ * A page can only be used by one caller at a time so all the methods are synchronized. Pages are
+ * not merged when entries are removed. The root page index and entry count are stored in the first
+ * page so the map can be opened again from the same pages.
+ * </p>
+ * <p>
+ * Methods that return a value return the {@link #getNoEntryValue()} if the key isn't in the map.
+ * </p>
+ */
+public class LongLongBPlusTreeMap {
+  /** The page type, entry count and next leaf page index. */
+  private static final int HEADER_SIZE = 9;
+
+  private static final int LEAF_ENTRY_SIZE = 16;
+
+  private static final int META_PAGE_INDEX = 0;
+
+  private static void moveBytes(final Page page, final int fromOffset, final int toOffset,
+    final int count) {
+    if (count > 0) {
+      page.setOffset(fromOffset);
+      final byte[] bytes = page.readBytes(count);
+      page.setOffset(toOffset);
+      page.writeBytes(bytes);
+    }
+  }
+
+  private static long readLong(final Page page, final int offset) {
+    page.setOffset(offset);
+    return page.readLong();
+  }
+
+  private static int readNextPageIndex(final Page page) {
+    page.setOffset(5);
+    return page.readInt();
+  }
+
+  private static void writeCount(final Page page, final int count) {
+    page.setOffset(1);
+    page.writeInt(count);
+  }
+
+  private static void writeLong(final Page page, final int offset, final long value) {
+    page.setOffset(offset);
+    page.writeLong(value);
+  }
+
+  private long entryCount;
+
+  /** True if the last write replaced or removed a value, only accessed holding the lock. */
+  private boolean hasOldValue;
+
+  /** The offset of the child page indexes in an interior page. */
+  private final int interiorChildOffset;
+
+  /** The maximum number of keys in an interior page. */
+  private final int interiorCapacity;
+
+  /** The maximum number of entries in a leaf page. */
+  private final int leafCapacity;
+
+  private final long noEntryValue;
+
+  /** The value replaced or removed by the last write, only accessed holding the lock. */
+  private long oldValue;
+
+  private final PageManager pages;
+
+  private int rootPageIndex;
+
+  /** True if the last split moved the new last entry to the new page. */
+  private boolean splitAppend;
+
+  /** The first key of the page added by the last split. */
+  private long splitKey;
+
+  /** The page added by the last split, -1 if the last write didn't split a page. */
+  private int splitPageIndex = -1;
+
+  public LongLongBPlusTreeMap(final PageManager pages) {
+    this(pages, 0);
+  }
+
+  /**
+   * Construct a map using the pages, if the page manager has pages the map is read from the pages.
+   *
+   * @param pages The page manager to store the pages in.
+   * @param noEntryValue The value returned if there isn't an entry for a key.
+   */
+  public LongLongBPlusTreeMap(final PageManager pages, final long noEntryValue) {
+    this.pages = pages;
+    this.noEntryValue = noEntryValue;
+    final int pageSize = pages.getPageSize();
+    this.leafCapacity = (pageSize - HEADER_SIZE) / LEAF_ENTRY_SIZE;
+    this.interiorCapacity = (pageSize - HEADER_SIZE - 4) / 12;
+    this.interiorChildOffset = HEADER_SIZE + this.interiorCapacity * 8;
+    if (this.leafCapacity < 2 || this.interiorCapacity < 2) {
+      throw new IllegalArgumentException("pageSize must be >= 41 not " + pageSize);
+    }
+    if (pages.getNumPages() == 0) {
+      final Page metaPage = pages.newPage();
+      pages.releasePage(metaPage);
+      if (metaPage.getIndex() != META_PAGE_INDEX) {
+        throw new IllegalArgumentException("The first page must have index 0 not "
+          + metaPage.getIndex());
+      }
+      this.rootPageIndex = newLeafPage();
+      writeMeta();
+    } else {
+      final Page metaPage = pages.getPage(META_PAGE_INDEX);
+      try {
+        this.rootPageIndex = metaPage.readInt();
+        this.entryCount = metaPage.readLong();
+      } finally {
+        pages.releasePage(metaPage);
+      }
+    }
+  }
+
+  /**
+   * Remove all the entries from the map and return the pages to the page manager.
+   */
+  public synchronized void clear() {
+    removePages(this.rootPageIndex);
+    this.rootPageIndex = newLeafPage();
+    this.entryCount = 0;
+    writeMeta();
+  }
+
+  public synchronized boolean containsKey(final long key) {
+    final Page page = getLeafPage(key);
+    try {
+      final int count = page.readInt();
+      return searchLeaf(page, count, key) >= 0;
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+
+  /**
+   * Call the action for each entry in key order. The entries of each leaf page are copied before
+   * the action is called, the action must not modify this map.
+   *
+   * @param action The action.
+   */
+  public synchronized void forEach(final LongLongConsumer action) {
+    final long[] keys = new long[this.leafCapacity];
+    final long[] values = new long[this.leafCapacity];
+    int pageIndex = this.rootPageIndex;
+    while (true) {
+      final Page page = this.pages.getPage(pageIndex);
+      try {
+        if (page.readByte() == BPlusTreeMap.LEAF) {
+          break;
+        } else {
+          pageIndex = readChild(page, 0);
+        }
+      } finally {
+        this.pages.releasePage(page);
+      }
+    }
+    while (pageIndex != -1) {
+      final int count;
+      final Page page = this.pages.getPage(pageIndex);
+      try {
+        page.readByte();
+        count = page.readInt();
+        pageIndex = page.readInt();
+        for (int i = 0; i < count; i++) {
+          keys[i] = page.readLong();
+          values[i] = page.readLong();
+        }
+      } finally {
+        this.pages.releasePage(page);
+      }
+      for (int i = 0; i < count; i++) {
+        action.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  public long get(final long key) {
+    return get(key, this.noEntryValue);
+  }
+
+  public synchronized long get(final long key, final long defaultValue) {
+    final Page page = getLeafPage(key);
+    try {
+      final int count = page.readInt();
+      final int index = searchLeaf(page, count, key);
+      if (index >= 0) {
+        return readLong(page, leafOffset(index) + 8);
+      } else {
+        return defaultValue;
+      }
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+
+  private int getChildIndex(final Page page, final int count, final long key) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      final int middle = low + high >>> 1;
+      final long middleKey = readLong(page, HEADER_SIZE + middle * 8);
+      if (middleKey < key) {
+        low = middle + 1;
+      } else if (middleKey > key) {
+        high = middle - 1;
+      } else {
+        return middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return The number of entries in the map, not limited to {@link Integer#MAX_VALUE}.
+   */
+  public synchronized long getEntryCount() {
+    return this.entryCount;
+  }
+
+  /**
+   * @return The number of levels in the tree including the leaf level.
+   */
+  public synchronized int getHeight() {
+    int height = 1;
+    int pageIndex = this.rootPageIndex;
+    while (true) {
+      final Page page = this.pages.getPage(pageIndex);
+      try {
+        if (page.readByte() == BPlusTreeMap.LEAF) {
+          return height;
+        } else {
+          pageIndex = readChild(page, 0);
+          height++;
+        }
+      } finally {
+        this.pages.releasePage(page);
+      }
+    }
+  }
+
+  /**
+   * Get the leaf page that would contain the key, positioned after the page type.
+   */
+  private Page getLeafPage(final long key) {
+    int pageIndex = this.rootPageIndex;
+    while (true) {
+      final Page page = this.pages.getPage(pageIndex);
+      if (page.readByte() == BPlusTreeMap.LEAF) {
+        return page;
+      } else {
+        try {
+          final int count = page.readInt();
+          pageIndex = readChild(page, getChildIndex(page, count, key));
+        } finally {
+          this.pages.releasePage(page);
+        }
+      }
+    }
+  }
+
+  public long getNoEntryValue() {
+    return this.noEntryValue;
+  }
+
+  private void insert(final int pageIndex, final long key, final long value) {
+    final int childIndex;
+    final int childPageIndex;
+    final Page page = this.pages.getPage(pageIndex);
+    try {
+      final byte pageType = page.readByte();
+      final int count = page.readInt();
+      if (pageType == BPlusTreeMap.LEAF) {
+        insertLeaf(page, count, key, value);
+        return;
+      } else {
+        childIndex = getChildIndex(page, count, key);
+        childPageIndex = readChild(page, childIndex);
+      }
+    } finally {
+      this.pages.releasePage(page);
+    }
+    insert(childPageIndex, key, value);
+    if (this.splitPageIndex != -1) {
+      insertSplit(pageIndex, childIndex);
+    }
+  }
+
+  private void insertLeaf(final Page page, final int count, final long key, final long value) {
+    final int index = searchLeaf(page, count, key);
+    if (index >= 0) {
+      final int valueOffset = leafOffset(index) + 8;
+      this.hasOldValue = true;
+      this.oldValue = readLong(page, valueOffset);
+      writeLong(page, valueOffset, value);
+    } else {
+      final int insertIndex = -index - 1;
+      if (count < this.leafCapacity) {
+        moveBytes(page, leafOffset(insertIndex), leafOffset(insertIndex + 1),
+          (count - insertIndex) * LEAF_ENTRY_SIZE);
+        writeLong(page, leafOffset(insertIndex), key);
+        page.writeLong(value);
+        writeCount(page, count + 1);
+      } else {
+        final int totalCount = count + 1;
+        final long[] keys = new long[totalCount];
+        final long[] values = new long[totalCount];
+        page.setOffset(HEADER_SIZE);
+        for (int i = 0; i < totalCount; i++) {
+          if (i == insertIndex) {
+            keys[i] = key;
+            values[i] = value;
+          } else {
+            keys[i] = page.readLong();
+            values[i] = page.readLong();
+          }
+        }
+        final int nextPageIndex = readNextPageIndex(page);
+        final boolean append = insertIndex == count && nextPageIndex == -1;
+        final int leftCount;
+        if (append) {
+          leftCount = count;
+        } else {
+          leftCount = totalCount / 2;
+        }
+        final Page rightPage = this.pages.newPage();
+        try {
+          final int rightPageIndex = rightPage.getIndex();
+          writeLeaf(rightPage, keys, values, leftCount, totalCount, nextPageIndex);
+          writeLeaf(page, keys, values, 0, leftCount, rightPageIndex);
+          this.splitKey = keys[leftCount];
+          this.splitPageIndex = rightPageIndex;
+          this.splitAppend = append;
+        } finally {
+          this.pages.releasePage(rightPage);
+        }
+      }
+    }
+  }
+
+  /**
+   * Add the page from the child's split to the interior page after the child, splitting the
+   * interior page if it's full.
+   */
+  private void insertSplit(final int pageIndex, final int childIndex) {
+    final long newKey = this.splitKey;
+    final int newChild = this.splitPageIndex;
+    this.splitPageIndex = -1;
+    final Page page = this.pages.getPage(pageIndex);
+    try {
+      page.readByte();
+      final int count = page.readInt();
+      if (count < this.interiorCapacity) {
+        moveBytes(page, HEADER_SIZE + childIndex * 8, HEADER_SIZE + (childIndex + 1) * 8,
+          (count - childIndex) * 8);
+        writeLong(page, HEADER_SIZE + childIndex * 8, newKey);
+        moveBytes(page, this.interiorChildOffset + (childIndex + 1) * 4,
+          this.interiorChildOffset + (childIndex + 2) * 4, (count - childIndex) * 4);
+        page.setOffset(this.interiorChildOffset + (childIndex + 1) * 4);
+        page.writeInt(newChild);
+        writeCount(page, count + 1);
+      } else {
+        final int totalCount = count + 1;
+        final long[] keys = new long[totalCount];
+        final int[] children = new int[totalCount + 1];
+        page.setOffset(HEADER_SIZE);
+        for (int i = 0; i < totalCount; i++) {
+          if (i == childIndex) {
+            keys[i] = newKey;
+          } else {
+            keys[i] = page.readLong();
+          }
+        }
+        page.setOffset(this.interiorChildOffset);
+        for (int i = 0; i <= totalCount; i++) {
+          if (i == childIndex + 1) {
+            children[i] = newChild;
+          } else {
+            children[i] = page.readInt();
+          }
+        }
+        // Keep the full page if the split child was the last page in the tree
+        final boolean append = this.splitAppend && childIndex == count;
+        final int leftCount;
+        if (append) {
+          leftCount = count;
+        } else {
+          leftCount = totalCount / 2;
+        }
+        final Page rightPage = this.pages.newPage();
+        try {
+          writeInterior(rightPage, keys, children, leftCount + 1, totalCount);
+          writeInterior(page, keys, children, 0, leftCount);
+          this.splitKey = keys[leftCount];
+          this.splitPageIndex = rightPage.getIndex();
+          this.splitAppend = append;
+        } finally {
+          this.pages.releasePage(rightPage);
+        }
+      }
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+
+  public synchronized boolean isEmpty() {
+    return this.entryCount == 0;
+  }
+
+  private int leafOffset(final int index) {
+    return HEADER_SIZE + index * LEAF_ENTRY_SIZE;
+  }
+
+  private int newLeafPage() {
+    final Page page = this.pages.newPage();
+    try {
+      page.setOffset(0);
+      page.writeByte(BPlusTreeMap.LEAF);
+      page.writeInt(0);
+      page.writeInt(-1);
+      return page.getIndex();
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+
+  /**
+   * Set the value for the key.
+   *
+   * @param key The key.
+   * @param value The value.
+   * @return The previous value or {@link #getNoEntryValue()} if there wasn't an entry.
+   */
+  public synchronized long put(final long key, final long value) {
+    this.hasOldValue = false;
+    this.oldValue = this.noEntryValue;
+    this.splitPageIndex = -1;
+    insert(this.rootPageIndex, key, value);
+    if (this.splitPageIndex != -1) {
+      final Page rootPage = this.pages.newPage();
+      try {
+        writeInterior(rootPage, new long[] {
+          this.splitKey
+        }, new int[] {
+          this.rootPageIndex, this.splitPageIndex
+        }, 0, 1);
+        this.rootPageIndex = rootPage.getIndex();
+      } finally {
+        this.pages.releasePage(rootPage);
+      }
+      this.splitPageIndex = -1;
+    }
+    if (!this.hasOldValue) {
+      this.entryCount++;
+      writeMeta();
+    }
+    return this.oldValue;
+  }
+
+  private int readChild(final Page page, final int childIndex) {
+    page.setOffset(this.interiorChildOffset + childIndex * 4);
+    return page.readInt();
+  }
+
+  /**
+   * Remove the entry for the key.
+   *
+   * @param key The key.
+   * @return The removed value or {@link #getNoEntryValue()} if there wasn't an entry.
+   */
+  public synchronized long remove(final long key) {
+    final Page page = getLeafPage(key);
+    try {
+      final int count = page.readInt();
+      final int index = searchLeaf(page, count, key);
+      if (index < 0) {
+        return this.noEntryValue;
+      } else {
+        final long oldValue = readLong(page, leafOffset(index) + 8);
+        moveBytes(page, leafOffset(index + 1), leafOffset(index),
+          (count - index - 1) * LEAF_ENTRY_SIZE);
+        writeCount(page, count - 1);
+        this.entryCount--;
+        writeMeta();
+        return oldValue;
+      }
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+
+  private void removePages(final int pageIndex) {
+    int[] children = null;
+    final Page page = this.pages.getPage(pageIndex);
+    if (page.readByte() == BPlusTreeMap.INTERIOR) {
+      final int count = page.readInt();
+      children = new int[count + 1];
+      page.setOffset(this.interiorChildOffset);
+      for (int i = 0; i <= count; i++) {
+        children[i] = page.readInt();
+      }
+    }
+    this.pages.removePage(page);
+    if (children != null) {
+      for (final int childPageIndex : children) {
+        removePages(childPageIndex);
+      }
+    }
+  }
+
+  private int searchLeaf(final Page page, final int count, final long key) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      final int middle = low + high >>> 1;
+      final long middleKey = readLong(page, leafOffset(middle));
+      if (middleKey < key) {
+        low = middle + 1;
+      } else if (middleKey > key) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  public int size() {
+    final long count = getEntryCount();
+    if (count > Integer.MAX_VALUE) {
+      return Integer.MAX_VALUE;
+    } else {
+      return (int)count;
+    }
+  }
+
+  private void writeInterior(final Page page, final long[] keys, final int[] children,
+    final int startIndex, final int endIndex) {
+    page.setOffset(0);
+    page.writeByte(BPlusTreeMap.INTERIOR);
+    page.writeInt(endIndex - startIndex);
+    page.writeInt(-1);
+    for (int i = startIndex; i < endIndex; i++) {
+      page.writeLong(keys[i]);
+    }
+    page.setOffset(this.interiorChildOffset);
+    for (int i = startIndex; i <= endIndex; i++) {
+      page.writeInt(children[i]);
+    }
+  }
+
+  private void writeLeaf(final Page page, final long[] keys, final long[] values,
+    final int startIndex, final int endIndex, final int nextPageIndex) {
+    page.setOffset(0);
+    page.writeByte(BPlusTreeMap.LEAF);
+    page.writeInt(endIndex - startIndex);
+    page.writeInt(nextPageIndex);
+    for (int i = startIndex; i < endIndex; i++) {
+      page.writeLong(keys[i]);
+      page.writeLong(values[i]);
+    }
+  }
+
+  private void writeMeta() {
+    final Page page = this.pages.getPage(META_PAGE_INDEX);
+    try {
+      page.setOffset(0);
+      page.writeInt(this.rootPageIndex);
+      page.writeLong(this.entryCount);
+    } finally {
+      this.pages.releasePage(page);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package com.revolsys.collection.map;
+
+/**
+ * A concurrent hash map with primitive int keys and int values backed by a
+ * {@link ConcurrentLongLongHashMap}.
+ */
+public class ConcurrentIntIntHashMap {
+  @FunctionalInterface
+  public interface IntIntConsumer {
+    void accept(int key, int value);
+  }
+
+  private final ConcurrentLongLongHashMap map;
+
+  private final int noEntryValue;
+
+  public ConcurrentIntIntHashMap() {
+    this(16, 64, 0);
+  }
+
+  /**
+   * @param initialCapacity The initial number of entries the map can hold without resizing.
+   * @param concurrencyLevel The number of segments (rounded up to a power of 2).
+   * @param noEntryValue The value returned if there isn't an entry for a key.
+   */
+  public ConcurrentIntIntHashMap(final int initialCapacity, final int concurrencyLevel,
+    final int noEntryValue) {
+    this.noEntryValue = noEntryValue;
+    this.map = new ConcurrentLongLongHashMap(initialCapacity, concurrencyLevel, noEntryValue);
+  }
+
+  /**
+   * Add the delta to the value for the key, the value is set to the delta if there isn't an entry.
+   *
+   * @param key The key.
+   * @param delta The amount to add.
+   * @return The new value.
+   */
+  public int addTo(final int key, final int delta) {
+    return (int)this.map.merge(key, delta, (oldValue, value) -> (int)oldValue + (int)value);
+  }
+
+  public void clear() {
+    this.map.clear();
+  }
+
+  public boolean containsKey(final int key) {
+    return this.map.containsKey(key);
+  }
+
+  public void forEach(final IntIntConsumer action) {
+    this.map.forEach((key, value) -> action.accept((int)key, (int)value));
+  }
+
+  public int get(final int key) {
+    return (int)this.map.get(key);
+  }
+
+  public int get(final int key, final int defaultValue) {
+    return (int)this.map.get(key, defaultValue);
+  }
+
+  public int getNoEntryValue() {
+    return this.noEntryValue;
+  }
+
+  public boolean isEmpty() {
+    return this.map.isEmpty();
+  }
+
+  public int put(final int key, final int value) {
+    return (int)this.map.put(key, value);
+  }
+
+  public int putIfAbsent(final int key, final int value) {
+    return (int)this.map.putIfAbsent(key, value);
+  }
+
+  public int remove(final int key) {
+    return (int)this.map.remove(key);
+  }
+
+  public int size() {
+    return this.map.size();
+  }
+}
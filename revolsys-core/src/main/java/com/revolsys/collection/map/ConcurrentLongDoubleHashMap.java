@@ -0,0 +1,90 @@
+package com.revolsys.collection.map;
+
+/**
+ * A concurrent hash map with primitive long keys and double values. The values are stored as
+ * their raw long bits in a {@link ConcurrentLongLongHashMap}.
+ */
+public class ConcurrentLongDoubleHashMap {
+  @FunctionalInterface
+  public interface LongDoubleConsumer {
+    void accept(long key, double value);
+  }
+
+  private final ConcurrentLongLongHashMap map;
+
+  private final double noEntryValue;
+
+  public ConcurrentLongDoubleHashMap() {
+    this(16, 64, 0);
+  }
+
+  /**
+   * @param initialCapacity The initial number of entries the map can hold without resizing.
+   * @param concurrencyLevel The number of segments (rounded up to a power of 2).
+   * @param noEntryValue The value returned if there isn't an entry for a key.
+   */
+  public ConcurrentLongDoubleHashMap(final int initialCapacity, final int concurrencyLevel,
+    final double noEntryValue) {
+    this.noEntryValue = noEntryValue;
+    this.map = new ConcurrentLongLongHashMap(initialCapacity, concurrencyLevel,
+      Double.doubleToRawLongBits(noEntryValue));
+  }
+
+  /**
+   * Add the delta to the value for the key, the value is set to the delta if there isn't an entry.
+   *
+   * @param key The key.
+   * @param delta The amount to add.
+   * @return The new value.
+   */
+  public double addTo(final long key, final double delta) {
+    final long bits = this.map.merge(key, Double.doubleToRawLongBits(delta),
+      (oldBits, deltaBits) -> Double.doubleToRawLongBits(
+        Double.longBitsToDouble(oldBits) + Double.longBitsToDouble(deltaBits)));
+    return Double.longBitsToDouble(bits);
+  }
+
+  public void clear() {
+    this.map.clear();
+  }
+
+  public boolean containsKey(final long key) {
+    return this.map.containsKey(key);
+  }
+
+  public void forEach(final LongDoubleConsumer action) {
+    this.map.forEach((key, bits) -> action.accept(key, Double.longBitsToDouble(bits)));
+  }
+
+  public double get(final long key) {
+    return Double.longBitsToDouble(this.map.get(key));
+  }
+
+  public double get(final long key, final double defaultValue) {
+    return Double.longBitsToDouble(this.map.get(key, Double.doubleToRawLongBits(defaultValue)));
+  }
+
+  public double getNoEntryValue() {
+    return this.noEntryValue;
+  }
+
+  public boolean isEmpty() {
+    return this.map.isEmpty();
+  }
+
+  public double put(final long key, final double value) {
+    return Double.longBitsToDouble(this.map.put(key, Double.doubleToRawLongBits(value)));
+  }
+
+  public double putIfAbsent(final long key, final double value) {
+    return Double.longBitsToDouble(this.map.putIfAbsent(key, Double.doubleToRawLongBits(value)));
+  }
+
+  public double remove(final long key) {
+    return Double.longBitsToDouble(this.map.remove(key));
+  }
+
+  public int size() {
+    return this.map.size();
+  }
+}
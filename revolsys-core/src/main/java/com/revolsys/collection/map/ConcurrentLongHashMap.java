@@ -0,0 +1,376 @@
+package com.revolsys.collection.map;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+
+/**
+ * A concurrent hash map with primitive long keys and object values. The map is split into
+ * segments by the hash of the key, each segment is an open addressing hash table with linear
+ * probing guarded by a {@link StampedLock}. Reads use an optimistic read and only take the read
+ * lock if a write to the segment happened during the read. Writes lock a single segment.
+ * <p>
+ * Int keys can use the long methods without boxing. Null values are not supported.
+ * </p>
+ *
+ * @param <V> The type of value.
+ */
+public class ConcurrentLongHashMap<V> {
+  @FunctionalInterface
+  public interface LongObjectConsumer<V> {
+    void accept(long key, V value);
+  }
+
+  private static class Segment extends StampedLock {
+    private static final long serialVersionUID = 1L;
+
+    private long[] keys;
+
+    private volatile int size;
+
+    private Object[] values;
+
+    private Segment(final int capacity) {
+      this.keys = new long[capacity];
+      this.values = new Object[capacity];
+    }
+
+    private void deleteSlot(int slot) {
+      final long[] keys = this.keys;
+      final Object[] values = this.values;
+      final int mask = keys.length - 1;
+      int nextSlot = slot;
+      while (true) {
+        nextSlot = nextSlot + 1 & mask;
+        final Object nextValue = values[nextSlot];
+        if (nextValue == null) {
+          break;
+        }
+        final int idealSlot = slotIndex(keys[nextSlot], mask);
+        // Move the entry back if the deleted slot is between its ideal slot and its slot
+        if (slot <= nextSlot ? slot >= idealSlot || idealSlot > nextSlot
+          : slot >= idealSlot && idealSlot > nextSlot) {
+          keys[slot] = keys[nextSlot];
+          values[slot] = nextValue;
+          slot = nextSlot;
+        }
+      }
+      keys[slot] = 0;
+      values[slot] = null;
+      this.size--;
+    }
+
+    private int findSlot(final long key) {
+      final long[] keys = this.keys;
+      final Object[] values = this.values;
+      final int mask = keys.length - 1;
+      int slot = slotIndex(key, mask);
+      for (int i = 0; i <= mask; i++) {
+        if (values[slot] == null) {
+          return -slot - 1;
+        } else if (keys[slot] == key) {
+          return slot;
+        }
+        slot = slot + 1 & mask;
+      }
+      return Integer.MIN_VALUE;
+    }
+
+    private Object getUnlocked(final long key) {
+      final long[] keys = this.keys;
+      final Object[] values = this.values;
+      final int mask = Math.min(keys.length, values.length) - 1;
+      int slot = slotIndex(key, mask);
+      for (int i = 0; i <= mask; i++) {
+        final Object value = values[slot];
+        if (value == null) {
+          return null;
+        } else if (keys[slot] == key) {
+          return value;
+        }
+        slot = slot + 1 & mask;
+      }
+      return null;
+    }
+
+    private Object put(final long key, final Object value, final boolean onlyIfAbsent) {
+      int slot = findSlot(key);
+      if (slot >= 0) {
+        final Object oldValue = this.values[slot];
+        if (!onlyIfAbsent) {
+          this.values[slot] = value;
+        }
+        return oldValue;
+      } else {
+        if ((this.size + 1) * 4 > this.keys.length * 3) {
+          resize(this.keys.length * 2);
+          slot = findSlot(key);
+        }
+        slot = -slot - 1;
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        return null;
+      }
+    }
+
+    private void resize(final int capacity) {
+      final long[] oldKeys = this.keys;
+      final Object[] oldValues = this.values;
+      final long[] keys = new long[capacity];
+      final Object[] values = new Object[capacity];
+      final int mask = capacity - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        final Object value = oldValues[i];
+        if (value != null) {
+          final long key = oldKeys[i];
+          int slot = slotIndex(key, mask);
+          while (values[slot] != null) {
+            slot = slot + 1 & mask;
+          }
+          keys[slot] = key;
+          values[slot] = value;
+        }
+      }
+      this.keys = keys;
+      this.values = values;
+    }
+  }
+
+  private static int hash(final long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (int)hash;
+  }
+
+  private static int slotIndex(final long key, final int mask) {
+    return hash(key) & mask;
+  }
+
+  private final int segmentShift;
+
+  private final Segment[] segments;
+
+  public ConcurrentLongHashMap() {
+    this(16, 64);
+  }
+
+  /**
+   * @param initialCapacity The initial number of entries the map can hold without resizing.
+   * @param concurrencyLevel The number of segments (rounded up to a power of 2).
+   */
+  public ConcurrentLongHashMap(final int initialCapacity, final int concurrencyLevel) {
+    int segmentCount = 1;
+    while (segmentCount < concurrencyLevel) {
+      segmentCount <<= 1;
+    }
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    this.segments = new Segment[segmentCount];
+    int segmentCapacity = 4;
+    while (segmentCapacity * 3 / 4 < initialCapacity / segmentCount) {
+      segmentCapacity <<= 1;
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment(segmentCapacity);
+    }
+  }
+
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      final long stamp = segment.writeLock();
+      try {
+        segment.keys = new long[4];
+        segment.values = new Object[4];
+        segment.size = 0;
+      } finally {
+        segment.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Get the value for the key, or add the value returned from the function if there isn't one.
+   * The function is called holding the segment's lock so it must not access this map.
+   *
+   * @param key The key.
+   * @param mappingFunction The function to construct the value.
+   * @return The current value.
+   */
+  @SuppressWarnings("unchecked")
+  public V computeIfAbsent(final long key, final LongFunction<? extends V> mappingFunction) {
+    final V value = get(key);
+    if (value != null) {
+      return value;
+    }
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0) {
+        return (V)segment.values[slot];
+      } else {
+        final V newValue = mappingFunction.apply(key);
+        if (newValue != null) {
+          segment.put(key, newValue, false);
+        }
+        return newValue;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  public boolean containsKey(final long key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Call the action for each entry. Each segment is read locked while its entries are visited so
+   * the action must not modify this map.
+   *
+   * @param action The action.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(final LongObjectConsumer<? super V> action) {
+    for (final Segment segment : this.segments) {
+      final long stamp = segment.readLock();
+      try {
+        final long[] keys = segment.keys;
+        final Object[] values = segment.values;
+        for (int i = 0; i < keys.length; i++) {
+          final Object value = values[i];
+          if (value != null) {
+            action.accept(keys[i], (V)value);
+          }
+        }
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(final long key) {
+    final Segment segment = segment(key);
+    long stamp = segment.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        final Object value = segment.getUnlocked(key);
+        if (segment.validate(stamp)) {
+          return (V)value;
+        }
+      } catch (final ArrayIndexOutOfBoundsException e) {
+        // The table was resized during the read
+      }
+    }
+    stamp = segment.readLock();
+    try {
+      return (V)segment.getUnlocked(key);
+    } finally {
+      segment.unlockRead(stamp);
+    }
+  }
+
+  public V getOrDefault(final long key, final V defaultValue) {
+    final V value = get(key);
+    if (value == null) {
+      return defaultValue;
+    } else {
+      return value;
+    }
+  }
+
+  public boolean isEmpty() {
+    for (final Segment segment : this.segments) {
+      if (segment.size > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  public V put(final long key, final V value) {
+    if (value == null) {
+      throw new NullPointerException("Value must not be null");
+    }
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      return (V)segment.put(key, value, false);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V putIfAbsent(final long key, final V value) {
+    if (value == null) {
+      throw new NullPointerException("Value must not be null");
+    }
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      return (V)segment.put(key, value, true);
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  public V remove(final long key) {
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0) {
+        final Object oldValue = segment.values[slot];
+        segment.deleteSlot(slot);
+        return (V)oldValue;
+      } else {
+        return null;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Remove the entry for the key only if it is mapped to the value (using ==).
+   *
+   * @param key The key.
+   * @param value The value expected for the key.
+   * @return True if the entry was removed.
+   */
+  public boolean remove(final long key, final Object value) {
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0 && segment.values[slot] == value) {
+        segment.deleteSlot(slot);
+        return true;
+      } else {
+        return false;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  private Segment segment(final long key) {
+    final int hash = hash(key) * 0x9E3779B9;
+    return this.segments[this.segmentShift == 32 ? 0 : hash >>> this.segmentShift];
+  }
+
+  public int size() {
+    int size = 0;
+    for (final Segment segment : this.segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+}
@@ -0,0 +1,331 @@
+package com.revolsys.collection.map;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+import org.jeometry.common.exception.Exceptions;
+
+/**
+ * A concurrent cache with primitive long keys where the values are constructed by a loader
+ * function. Lookups of loaded values are lock free, they use an optimistic read of a
+ * {@link ConcurrentLongHashMap}. The first thread to request a missing key loads the value,
+ * other threads requesting the same key wait for that load to complete, so a value is never
+ * loaded twice concurrently.
+ * <p>
+ * The cache is limited by both the number of entries and the total weight of the entries (e.g.
+ * an estimate of the memory size). When either limit is exceeded entries are evicted using the
+ * CLOCK (second chance) algorithm, entries that were read since the last sweep are skipped once.
+ * Loaders that return null are not cached.
+ * </p>
+ *
+ * @param <V> The type of value.
+ */
+public class ConcurrentLongLoadingCache<V> {
+  /**
+   * A loaded cache entry. Callers can hold on to the entry (e.g. in a thread local) and use
+   * {@link #isEvicted()} to check if it is still in the cache.
+   *
+   * @param <V> The type of value.
+   */
+  public static final class Entry<V> {
+    private volatile boolean evicted;
+
+    private final CompletableFuture<V> future = new CompletableFuture<>();
+
+    private final long key;
+
+    private volatile boolean referenced = true;
+
+    private volatile V value;
+
+    private long weight;
+
+    private Entry(final long key) {
+      this.key = key;
+    }
+
+    public long getKey() {
+      return this.key;
+    }
+
+    public V getValue() {
+      return this.value;
+    }
+
+    public boolean isEvicted() {
+      return this.evicted;
+    }
+
+    private void markReferenced() {
+      if (!this.referenced) {
+        this.referenced = true;
+      }
+    }
+  }
+
+  private final ConcurrentLinkedQueue<Entry<V>> clock = new ConcurrentLinkedQueue<>();
+
+  private final ConcurrentLongHashMap<Entry<V>> entries = new ConcurrentLongHashMap<>(1024, 64);
+
+  private final ReentrantLock evictLock = new ReentrantLock();
+
+  private final LongAdder evictionCount = new LongAdder();
+
+  private final LongAdder hitCount = new LongAdder();
+
+  private final LongFunction<V> loader;
+
+  private volatile int maxSize;
+
+  private volatile long maxWeight;
+
+  private final LongAdder missCount = new LongAdder();
+
+  private final AtomicInteger size = new AtomicInteger();
+
+  private final AtomicLong weight = new AtomicLong();
+
+  private final ToLongFunction<? super V> weigher;
+
+  /**
+   * Construct a cache where each entry has a weight of 1.
+   *
+   * @param maxSize The maximum number of entries.
+   * @param loader The function to load the value for a key.
+   */
+  public ConcurrentLongLoadingCache(final int maxSize, final LongFunction<V> loader) {
+    this(maxSize, Long.MAX_VALUE, loader, value -> 1);
+  }
+
+  /**
+   * @param maxSize The maximum number of entries.
+   * @param maxWeight The maximum total weight of the entries.
+   * @param loader The function to load the value for a key.
+   * @param weigher The function to calculate the weight of a value.
+   */
+  public ConcurrentLongLoadingCache(final int maxSize, final long maxWeight,
+    final LongFunction<V> loader, final ToLongFunction<? super V> weigher) {
+    this.maxSize = maxSize;
+    this.maxWeight = maxWeight;
+    this.loader = loader;
+    this.weigher = weigher;
+  }
+
+  public void clear() {
+    this.evictLock.lock();
+    try {
+      for (Entry<V> entry = this.clock.poll(); entry != null; entry = this.clock.poll()) {
+        removeEntry(entry);
+      }
+      this.entries.clear();
+    } finally {
+      this.evictLock.unlock();
+    }
+  }
+
+  private void evict() {
+    if (isOverLimit() && this.evictLock.tryLock()) {
+      try {
+        // Each entry can be skipped at most once per sweep
+        int remainingCount = this.size.get() * 2 + 1;
+        while (isOverLimit() && remainingCount-- > 0) {
+          final Entry<V> entry = this.clock.poll();
+          if (entry == null) {
+            return;
+          } else if (entry.referenced) {
+            entry.referenced = false;
+            this.clock.add(entry);
+          } else {
+            removeEntry(entry);
+            this.evictionCount.increment();
+          }
+        }
+      } finally {
+        this.evictLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Get the value for the key, loading it if it isn't in the cache.
+   *
+   * @param key The key.
+   * @return The value or null if the loader returned null.
+   */
+  public V get(final long key) {
+    final Entry<V> entry = getEntry(key);
+    if (entry == null) {
+      return null;
+    } else {
+      return entry.value;
+    }
+  }
+
+  /**
+   * Get the entry for the key, loading the value if it isn't in the cache.
+   *
+   * @param key The key.
+   * @return The entry or null if the loader returned null.
+   */
+  public Entry<V> getEntry(final long key) {
+    Entry<V> entry = this.entries.get(key);
+    if (entry != null && entry.value != null) {
+      entry.markReferenced();
+      this.hitCount.increment();
+      return entry;
+    } else {
+      if (entry == null) {
+        final Entry<V> newEntry = new Entry<>(key);
+        entry = this.entries.putIfAbsent(key, newEntry);
+        if (entry == null) {
+          return load(newEntry);
+        }
+      }
+      this.hitCount.increment();
+      try {
+        if (entry.future.join() == null) {
+          return null;
+        } else {
+          return entry;
+        }
+      } catch (final CompletionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException)cause;
+        } else if (cause instanceof Error) {
+          throw (Error)cause;
+        } else {
+          throw Exceptions.wrap(cause);
+        }
+      }
+    }
+  }
+
+  public long getEvictionCount() {
+    return this.evictionCount.sum();
+  }
+
+  public long getHitCount() {
+    return this.hitCount.sum();
+  }
+
+  /**
+   * Get the value for the key if it is loaded, it is not loaded if it isn't in the cache.
+   *
+   * @param key The key.
+   * @return The value or null if it isn't loaded.
+   */
+  public V getIfPresent(final long key) {
+    final Entry<V> entry = this.entries.get(key);
+    if (entry == null) {
+      return null;
+    } else {
+      return entry.value;
+    }
+  }
+
+  public int getMaxSize() {
+    return this.maxSize;
+  }
+
+  public long getMaxWeight() {
+    return this.maxWeight;
+  }
+
+  public long getMissCount() {
+    return this.missCount.sum();
+  }
+
+  public int getSize() {
+    return this.size.get();
+  }
+
+  public long getWeight() {
+    return this.weight.get();
+  }
+
+  private boolean isOverLimit() {
+    return this.size.get() > this.maxSize || this.weight.get() > this.maxWeight;
+  }
+
+  private Entry<V> load(final Entry<V> entry) {
+    this.missCount.increment();
+    final V value;
+    try {
+      value = this.loader.apply(entry.key);
+    } catch (RuntimeException | Error e) {
+      this.entries.remove(entry.key, entry);
+      entry.future.completeExceptionally(e);
+      throw e;
+    }
+    if (value == null) {
+      this.entries.remove(entry.key, entry);
+      entry.future.complete(null);
+      return null;
+    } else {
+      entry.weight = Math.max(0, this.weigher.applyAsLong(value));
+      entry.value = value;
+      this.size.incrementAndGet();
+      this.weight.addAndGet(entry.weight);
+      this.clock.add(entry);
+      entry.future.complete(value);
+      evict();
+      return entry;
+    }
+  }
+
+  /**
+   * Remove the entry for the key from the cache.
+   *
+   * @param key The key.
+   * @return The value that was removed, or null if it wasn't loaded.
+   */
+  public V remove(final long key) {
+    final Entry<V> entry = this.entries.get(key);
+    if (entry == null || entry.value == null) {
+      return null;
+    } else {
+      this.evictLock.lock();
+      try {
+        if (this.clock.remove(entry)) {
+          removeEntry(entry);
+          return entry.value;
+        } else {
+          return null;
+        }
+      } finally {
+        this.evictLock.unlock();
+      }
+    }
+  }
+
+  private void removeEntry(final Entry<V> entry) {
+    entry.evicted = true;
+    this.entries.remove(entry.key, entry);
+    this.size.decrementAndGet();
+    this.weight.addAndGet(-entry.weight);
+  }
+
+  public void setMaxSize(final int maxSize) {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  public void setMaxWeight(final long maxWeight) {
+    this.maxWeight = maxWeight;
+    evict();
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + getSize() + ", weight=" + getWeight() + ", hits=" + getHitCount()
+      + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount();
+  }
+}
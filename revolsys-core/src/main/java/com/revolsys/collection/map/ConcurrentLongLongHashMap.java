@@ -0,0 +1,384 @@
+package com.revolsys.collection.map;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A concurrent hash map with primitive long keys and long values. The map uses the same striped
+ * open addressing tables as {@link ConcurrentLongHashMap}, reads are optimistic and writes lock a
+ * single segment.
+ * <p>
+ * Methods that return a value return the {@link #getNoEntryValue()} if the key isn't in the map.
+ * </p>
+ */
+public class ConcurrentLongLongHashMap {
+  @FunctionalInterface
+  public interface LongLongConsumer {
+    void accept(long key, long value);
+  }
+
+  private static class Segment extends StampedLock {
+    private static final long serialVersionUID = 1L;
+
+    private long[] keys;
+
+    private volatile int size;
+
+    private boolean[] used;
+
+    private long[] values;
+
+    private Segment(final int capacity) {
+      this.keys = new long[capacity];
+      this.values = new long[capacity];
+      this.used = new boolean[capacity];
+    }
+
+    private void deleteSlot(int slot) {
+      final long[] keys = this.keys;
+      final long[] values = this.values;
+      final boolean[] used = this.used;
+      final int mask = keys.length - 1;
+      int nextSlot = slot;
+      while (true) {
+        nextSlot = nextSlot + 1 & mask;
+        if (!used[nextSlot]) {
+          break;
+        }
+        final int idealSlot = slotIndex(keys[nextSlot], mask);
+        // Move the entry back if the deleted slot is between its ideal slot and its slot
+        if (slot <= nextSlot ? slot >= idealSlot || idealSlot > nextSlot
+          : slot >= idealSlot && idealSlot > nextSlot) {
+          keys[slot] = keys[nextSlot];
+          values[slot] = values[nextSlot];
+          slot = nextSlot;
+        }
+      }
+      keys[slot] = 0;
+      values[slot] = 0;
+      used[slot] = false;
+      this.size--;
+    }
+
+    private int findSlot(final long key) {
+      final long[] keys = this.keys;
+      final boolean[] used = this.used;
+      final int mask = keys.length - 1;
+      int slot = slotIndex(key, mask);
+      for (int i = 0; i <= mask; i++) {
+        if (!used[slot]) {
+          return -slot - 1;
+        } else if (keys[slot] == key) {
+          return slot;
+        }
+        slot = slot + 1 & mask;
+      }
+      return Integer.MIN_VALUE;
+    }
+
+    private int findSlotUnlocked(final long key, final long[] keys, final boolean[] used,
+      final int mask) {
+      int slot = slotIndex(key, mask);
+      for (int i = 0; i <= mask; i++) {
+        if (!used[slot]) {
+          return -1;
+        } else if (keys[slot] == key) {
+          return slot;
+        }
+        slot = slot + 1 & mask;
+      }
+      return -1;
+    }
+
+    private void insertSlot(int slot, final long key, final long value) {
+      if ((this.size + 1) * 4 > this.keys.length * 3) {
+        resize(this.keys.length * 2);
+        slot = findSlot(key);
+      }
+      slot = -slot - 1;
+      this.keys[slot] = key;
+      this.values[slot] = value;
+      this.used[slot] = true;
+      this.size++;
+    }
+
+    private void resize(final int capacity) {
+      final long[] oldKeys = this.keys;
+      final long[] oldValues = this.values;
+      final boolean[] oldUsed = this.used;
+      final long[] keys = new long[capacity];
+      final long[] values = new long[capacity];
+      final boolean[] used = new boolean[capacity];
+      final int mask = capacity - 1;
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldUsed[i]) {
+          final long key = oldKeys[i];
+          int slot = slotIndex(key, mask);
+          while (used[slot]) {
+            slot = slot + 1 & mask;
+          }
+          keys[slot] = key;
+          values[slot] = oldValues[i];
+          used[slot] = true;
+        }
+      }
+      this.keys = keys;
+      this.values = values;
+      this.used = used;
+    }
+  }
+
+  private static int hash(final long key) {
+    long hash = key;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return (int)hash;
+  }
+
+  private static int slotIndex(final long key, final int mask) {
+    return hash(key) & mask;
+  }
+
+  private final long noEntryValue;
+
+  private final int segmentShift;
+
+  private final Segment[] segments;
+
+  public ConcurrentLongLongHashMap() {
+    this(16, 64, 0);
+  }
+
+  /**
+   * @param initialCapacity The initial number of entries the map can hold without resizing.
+   * @param concurrencyLevel The number of segments (rounded up to a power of 2).
+   * @param noEntryValue The value returned if there isn't an entry for a key.
+   */
+  public ConcurrentLongLongHashMap(final int initialCapacity, final int concurrencyLevel,
+    final long noEntryValue) {
+    this.noEntryValue = noEntryValue;
+    int segmentCount = 1;
+    while (segmentCount < concurrencyLevel) {
+      segmentCount <<= 1;
+    }
+    this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    this.segments = new Segment[segmentCount];
+    int segmentCapacity = 4;
+    while (segmentCapacity * 3 / 4 < initialCapacity / segmentCount) {
+      segmentCapacity <<= 1;
+    }
+    for (int i = 0; i < segmentCount; i++) {
+      this.segments[i] = new Segment(segmentCapacity);
+    }
+  }
+
+  /**
+   * Add the delta to the value for the key, the value is set to the delta if there isn't an entry.
+   *
+   * @param key The key.
+   * @param delta The amount to add.
+   * @return The new value.
+   */
+  public long addTo(final long key, final long delta) {
+    return merge(key, delta, Long::sum);
+  }
+
+  public void clear() {
+    for (final Segment segment : this.segments) {
+      final long stamp = segment.writeLock();
+      try {
+        segment.keys = new long[4];
+        segment.values = new long[4];
+        segment.used = new boolean[4];
+        segment.size = 0;
+      } finally {
+        segment.unlockWrite(stamp);
+      }
+    }
+  }
+
+  public boolean containsKey(final long key) {
+    final Segment segment = segment(key);
+    long stamp = segment.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        final long[] keys = segment.keys;
+        final boolean[] used = segment.used;
+        final int mask = Math.min(keys.length, used.length) - 1;
+        final int slot = segment.findSlotUnlocked(key, keys, used, mask);
+        if (segment.validate(stamp)) {
+          return slot >= 0;
+        }
+      } catch (final ArrayIndexOutOfBoundsException e) {
+        // The table was resized during the read
+      }
+    }
+    stamp = segment.readLock();
+    try {
+      return segment.findSlot(key) >= 0;
+    } finally {
+      segment.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Call the action for each entry. Each segment is read locked while its entries are visited so
+   * the action must not modify this map.
+   *
+   * @param action The action.
+   */
+  public void forEach(final LongLongConsumer action) {
+    for (final Segment segment : this.segments) {
+      final long stamp = segment.readLock();
+      try {
+        final long[] keys = segment.keys;
+        final long[] values = segment.values;
+        final boolean[] used = segment.used;
+        for (int i = 0; i < keys.length; i++) {
+          if (used[i]) {
+            action.accept(keys[i], values[i]);
+          }
+        }
+      } finally {
+        segment.unlockRead(stamp);
+      }
+    }
+  }
+
+  public long get(final long key) {
+    return get(key, this.noEntryValue);
+  }
+
+  public long get(final long key, final long defaultValue) {
+    final Segment segment = segment(key);
+    long stamp = segment.tryOptimisticRead();
+    if (stamp != 0) {
+      try {
+        final long[] keys = segment.keys;
+        final long[] values = segment.values;
+        final boolean[] used = segment.used;
+        final int mask = Math.min(Math.min(keys.length, values.length), used.length) - 1;
+        final int slot = segment.findSlotUnlocked(key, keys, used, mask);
+        final long value = slot < 0 ? defaultValue : values[slot];
+        if (segment.validate(stamp)) {
+          return value;
+        }
+      } catch (final ArrayIndexOutOfBoundsException e) {
+        // The table was resized during the read
+      }
+    }
+    stamp = segment.readLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot < 0) {
+        return defaultValue;
+      } else {
+        return segment.values[slot];
+      }
+    } finally {
+      segment.unlockRead(stamp);
+    }
+  }
+
+  public long getNoEntryValue() {
+    return this.noEntryValue;
+  }
+
+  public boolean isEmpty() {
+    for (final Segment segment : this.segments) {
+      if (segment.size > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Set the value for the key to the result of the function applied to the current value and the
+   * value, or the value if there isn't an entry. The function is called holding the segment's
+   * lock.
+   *
+   * @param key The key.
+   * @param value The value.
+   * @param function The function to combine the current and new values.
+   * @return The new value.
+   */
+  public long merge(final long key, final long value, final LongBinaryOperator function) {
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0) {
+        final long newValue = function.applyAsLong(segment.values[slot], value);
+        segment.values[slot] = newValue;
+        return newValue;
+      } else {
+        segment.insertSlot(slot, key, value);
+        return value;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  public long put(final long key, final long value) {
+    return put(key, value, false);
+  }
+
+  private long put(final long key, final long value, final boolean onlyIfAbsent) {
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0) {
+        final long oldValue = segment.values[slot];
+        if (!onlyIfAbsent) {
+          segment.values[slot] = value;
+        }
+        return oldValue;
+      } else {
+        segment.insertSlot(slot, key, value);
+        return this.noEntryValue;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  public long putIfAbsent(final long key, final long value) {
+    return put(key, value, true);
+  }
+
+  public long remove(final long key) {
+    final Segment segment = segment(key);
+    final long stamp = segment.writeLock();
+    try {
+      final int slot = segment.findSlot(key);
+      if (slot >= 0) {
+        final long oldValue = segment.values[slot];
+        segment.deleteSlot(slot);
+        return oldValue;
+      } else {
+        return this.noEntryValue;
+      }
+    } finally {
+      segment.unlockWrite(stamp);
+    }
+  }
+
+  private Segment segment(final long key) {
+    final int hash = hash(key) * 0x9E3779B9;
+    return this.segments[this.segmentShift == 32 ? 0 : hash >>> this.segmentShift];
+  }
+
+  public int size() {
+    int size = 0;
+    for (final Segment segment : this.segments) {
+      size += segment.size;
+    }
+    return size;
+  }
+}
@@ -10,6 +10,8 @@ public class ThreadSharedProperties {
 
   private static ThreadLocal<Map<Object, Object>> threadProperties = new ThreadLocal<>();
 
+  private static ThreadLocal<ThreadGroup> taskThreadGroup = new ThreadLocal<>();
+
   private static Map<ThreadGroup, Map<Object, Object>> threadGroupProperties = new WeakHashMap<>();
 
   public static void clearProperties() {
@@ -42,6 +44,21 @@ public class ThreadSharedProperties {
     return properties;
   }
 
+  /**
+   * Get the thread group set using {@link #setTaskThreadGroup(ThreadGroup)} or the current thread's
+   * thread group.
+   *
+   * @return The thread group.
+   */
+  private static ThreadGroup getCurrentThreadGroup() {
+    final ThreadGroup threadGroup = taskThreadGroup.get();
+    if (threadGroup == null) {
+      return Thread.currentThread().getThreadGroup();
+    } else {
+      return threadGroup;
+    }
+  }
+
   public static Map<String, Object> getProperties() {
     final Map<Object, Object> properties = getLocalProperties();
     synchronized (properties) {
@@ -69,8 +86,7 @@ public class ThreadSharedProperties {
   public static Map<Object, Object> getThreadGroupProperties() {
     synchronized (threadGroupProperties) {
       Map<Object, Object> properties = null;
-      final Thread thread = Thread.currentThread();
-      final ThreadGroup threadGroup = thread.getThreadGroup();
+      final ThreadGroup threadGroup = getCurrentThreadGroup();
       if (threadGroup != null) {
         properties = threadGroupProperties.get(threadGroup);
       }
@@ -81,6 +97,19 @@ public class ThreadSharedProperties {
     }
   }
 
+  /**
+   * Get the properties registered for the thread group using
+   * {@link #initialiseThreadGroup(ThreadGroup)}.
+   *
+   * @param threadGroup The thread group.
+   * @return The properties or null if none were registered.
+   */
+  public static Map<Object, Object> getThreadGroupProperties(final ThreadGroup threadGroup) {
+    synchronized (threadGroupProperties) {
+      return threadGroupProperties.get(threadGroup);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static <T> T getThreadGroupProperty(final Object name) {
     final Map<Object, Object> properties = getThreadGroupProperties();
@@ -119,6 +148,41 @@ public class ThreadSharedProperties {
     }
   }
 
+  /**
+   * Set the thread group the current thread is running a task for. Used when a pooled or virtual
+   * thread runs a task on behalf of a thread group it isn't a member of so that
+   * {@link #getThreadGroupProperty(Object)} uses the properties of that thread group.
+   *
+   * @param threadGroup The thread group, null to revert to the thread's own thread group.
+   * @return The previous thread group set for the thread.
+   */
+  public static ThreadGroup setTaskThreadGroup(final ThreadGroup threadGroup) {
+    final ThreadGroup oldThreadGroup = taskThreadGroup.get();
+    if (threadGroup == null) {
+      taskThreadGroup.remove();
+    } else {
+      taskThreadGroup.set(threadGroup);
+    }
+    return oldThreadGroup;
+  }
+
+  /**
+   * Set the properties for the current thread. Used when a pooled or virtual thread runs a task on
+   * behalf of a thread group it isn't a member of.
+   *
+   * @param properties The properties, null to revert to the thread group properties.
+   * @return The previous properties for the thread.
+   */
+  public static Map<Object, Object> setThreadProperties(final Map<Object, Object> properties) {
+    final Map<Object, Object> oldProperties = threadProperties.get();
+    if (properties == null) {
+      threadProperties.remove();
+    } else {
+      threadProperties.set(properties);
+    }
+    return oldProperties;
+  }
+
   public static void setProperty(final Object name, final Object value) {
     final Map<Object, Object> properties = getLocalProperties();
     synchronized (properties) {
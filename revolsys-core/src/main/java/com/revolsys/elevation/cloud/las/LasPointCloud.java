@@ -17,8 +17,11 @@ import com.revolsys.collection.map.MapEx;
 import com.revolsys.elevation.cloud.PointCloud;
 import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
 import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipChunkTable;
 import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
 import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
+import com.revolsys.elevation.cloud.las.zip.LasZipParallelChunkedIterator;
 import com.revolsys.elevation.cloud.las.zip.LasZipPointCloudWriterFactory;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.quadedge.QuadEdgeDelaunayTinBuilder;
@@ -150,6 +153,39 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Call the action for each point, decoding the chunks of a chunked LasZip file in parallel
+   * using one thread per processor. See
+   * {@link #forEachPointParallel(int, int, Consumer)}.
+   *
+   * @param action The thread safe action to call for each point.
+   */
+  public void forEachPointParallel(final Consumer<? super LasPoint> action) {
+    final int threadCount = Runtime.getRuntime().availableProcessors();
+    forEachPointParallel(threadCount, LasZipDecompressSelective.ALL, action);
+  }
+
+  /**
+   * Call the action for each point, decoding the chunks of a chunked LasZip file in parallel. The
+   * action is called from the thread that decoded the point so it must be thread safe and the
+   * points are not in file order. Files that can't be decoded in parallel (uncompressed,
+   * pointwise compressed or without a chunk table) are read sequentially on the calling thread.
+   *
+   * @param threadCount The number of threads to decode the chunks with.
+   * @param decompressSelective The {@link LasZipDecompressSelective} bitmask of layers to decode.
+   * @param action The thread safe action to call for each point.
+   */
+  public void forEachPointParallel(final int threadCount, final int decompressSelective,
+    final Consumer<? super LasPoint> action) {
+    final LasZipParallelChunkedIterator iterator = newParallelIterator(threadCount, false,
+      decompressSelective);
+    if (iterator == null) {
+      forEachPoint(action);
+    } else {
+      iterator.forEachParallel(action);
+    }
+  }
+
   @Override
   public BoundingBox getBoundingBox() {
     if (this.header == null) {
@@ -252,6 +288,48 @@ public class LasPointCloud extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * Get an iterable for the points that decodes the chunks of a chunked LasZip file in parallel
+   * using one thread per processor. See {@link #iterableParallel(int, boolean, int)}.
+   *
+   * @param ordered Return the points in file order.
+   * @return The iterable.
+   */
+  public Iterable<LasPoint> iterableParallel(final boolean ordered) {
+    final int threadCount = Runtime.getRuntime().availableProcessors();
+    return iterableParallel(threadCount, ordered, LasZipDecompressSelective.ALL);
+  }
+
+  /**
+   * Get an iterable for the points that decodes the chunks of a chunked LasZip file in parallel.
+   * The iterator is used from a single thread, only the decoding is done on the thread pool. If
+   * ordered is false the chunks are returned in the order they finish decoding. Files that can't
+   * be decoded in parallel use the {@link #iterable()}.
+   * <p>
+   * Each call to {@link Iterable#iterator()} opens the file and starts a new thread pool. The
+   * iterator is closed after the last point is read. If the iteration is stopped before then the
+   * iterator must be closed (it is a {@link BaseCloseable}) to stop the threads and close the
+   * file.
+   * </p>
+   *
+   * @param threadCount The number of threads to decode the chunks with.
+   * @param ordered Return the points in file order.
+   * @param decompressSelective The {@link LasZipDecompressSelective} bitmask of layers to decode.
+   * @return The iterable.
+   */
+  public Iterable<LasPoint> iterableParallel(final int threadCount, final boolean ordered,
+    final int decompressSelective) {
+    return () -> {
+      final LasZipParallelChunkedIterator iterator = newParallelIterator(threadCount, ordered,
+        decompressSelective);
+      if (iterator == null) {
+        return iterable().iterator();
+      } else {
+        return iterator;
+      }
+    };
+  }
+
   @Override
   public Iterator<LasPoint> iterator() {
     return iterable().iterator();
@@ -281,6 +359,40 @@ public class LasPointCloud extends BaseObjectWithProperties
     return tin;
   }
 
+  private LasZipParallelChunkedIterator newParallelIterator(final int threadCount,
+    final boolean ordered, final int decompressSelective) {
+    if (this.allLoaded || !this.points.isEmpty()) {
+      return null;
+    } else {
+      ChannelReader reader = this.reader;
+      this.reader = null;
+      if (reader == null) {
+        reader = open();
+      }
+      if (reader == null) {
+        return null;
+      } else {
+        try {
+          final LasZipHeader lasZipHeader = LasZipHeader.getLasZipHeader(this);
+          if (lasZipHeader != null
+            && !lasZipHeader.isCompressor(LasZipCompressorType.POINTWISE)) {
+            final LasZipChunkTable chunkTable = LasZipChunkTable.read(lasZipHeader, reader,
+              getPointCount());
+            if (chunkTable != null) {
+              return new LasZipParallelChunkedIterator(this, reader, lasZipHeader, chunkTable,
+                threadCount, ordered, decompressSelective);
+            }
+          }
+          this.reader = reader;
+          return null;
+        } catch (RuntimeException | Error e) {
+          reader.close();
+          throw e;
+        }
+      }
+    }
+  }
+
   public LasPointCloudWriter newWriter(final Object target, final MapEx properties) {
     final Resource resource = Resource.getResource(target);
     return newWriter(resource, properties);
@@ -0,0 +1,125 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticCodingInteger;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * The table of chunk offsets and point counts for a chunked LasZip file. The chunks are
+ * compressed independently so the table allows each chunk to be decoded on its own.
+ */
+public class LasZipChunkTable {
+
+  /**
+   * Read the chunk table for the point data that starts at the reader's current position. The
+   * reader is left at the start of the point data.
+   *
+   * @param lasZipHeader The LasZip header.
+   * @param reader The reader positioned at the start of the point data.
+   * @param pointCount The number of points in the file.
+   * @return The chunk table or null if the reader is not seekable or the file does not have a
+   *         valid chunk table.
+   */
+  public static LasZipChunkTable read(final LasZipHeader lasZipHeader, final ChannelReader reader,
+    final long pointCount) {
+    if (!reader.isSeekable()) {
+      return null;
+    }
+    final long pointDataStart = reader.position();
+    try {
+      long chunkTableStart = reader.getLong();
+      final long chunksStart = reader.position();
+      if (chunkTableStart + 8 == chunksStart) {
+        // The compressor was interrupted before writing the chunk table
+        return null;
+      } else if (chunkTableStart == -1) {
+        // The chunk table start was written at the end of the file
+        reader.seekEnd(8);
+        chunkTableStart = reader.getLong();
+      }
+
+      reader.seek(chunkTableStart);
+      final int version = reader.getInt();
+      if (version != 0) {
+        return null;
+      }
+      final int chunkCount = reader.getInt();
+      if (chunkCount <= 0) {
+        return null;
+      }
+      final long chunkSize = lasZipHeader.getChunkSize();
+      final boolean variableChunkSize = chunkSize == Integer.MAX_VALUE;
+      final long[] chunkStarts = new long[chunkCount + 1];
+      final long[] chunkPointStarts = new long[chunkCount + 1];
+      chunkStarts[0] = chunksStart;
+
+      final ArithmeticDecoder decoder = new ArithmeticDecoder();
+      decoder.init(reader);
+      final ArithmeticCodingInteger integerDecoder = new ArithmeticCodingInteger(decoder, 32, 2);
+      integerDecoder.initDecompressor();
+      int previousPointCount = 0;
+      int previousByteCount = 0;
+      for (int i = 1; i <= chunkCount; i++) {
+        final int chunkPointCount;
+        if (variableChunkSize) {
+          chunkPointCount = integerDecoder.decompress(previousPointCount, 0);
+          previousPointCount = chunkPointCount;
+        } else {
+          chunkPointCount = (int)Math.min(chunkSize, pointCount - chunkPointStarts[i - 1]);
+        }
+        final int chunkByteCount = integerDecoder.decompress(previousByteCount, 1);
+        previousByteCount = chunkByteCount;
+        if (chunkByteCount <= 0 || chunkPointCount < 0) {
+          return null;
+        }
+        chunkPointStarts[i] = chunkPointStarts[i - 1] + chunkPointCount;
+        chunkStarts[i] = chunkStarts[i - 1] + chunkByteCount;
+      }
+      if (chunkPointStarts[chunkCount] != pointCount) {
+        return null;
+      }
+      return new LasZipChunkTable(chunkStarts, chunkPointStarts);
+    } catch (final RuntimeException e) {
+      return null;
+    } finally {
+      reader.seek(pointDataStart);
+    }
+  }
+
+  private final long[] chunkPointStarts;
+
+  private final long[] chunkStarts;
+
+  private LasZipChunkTable(final long[] chunkStarts, final long[] chunkPointStarts) {
+    this.chunkStarts = chunkStarts;
+    this.chunkPointStarts = chunkPointStarts;
+  }
+
+  public int getChunkByteCount(final int chunkIndex) {
+    return (int)(this.chunkStarts[chunkIndex + 1] - this.chunkStarts[chunkIndex]);
+  }
+
+  public int getChunkCount() {
+    return this.chunkStarts.length - 1;
+  }
+
+  public int getChunkPointCount(final int chunkIndex) {
+    return (int)(this.chunkPointStarts[chunkIndex + 1] - this.chunkPointStarts[chunkIndex]);
+  }
+
+  /**
+   * @param chunkIndex The chunk index.
+   * @return The index of the first point in the chunk.
+   */
+  public long getChunkPointStart(final int chunkIndex) {
+    return this.chunkPointStarts[chunkIndex];
+  }
+
+  /**
+   * @param chunkIndex The chunk index.
+   * @return The file offset of the start of the chunk.
+   */
+  public long getChunkStart(final int chunkIndex) {
+    return this.chunkStarts[chunkIndex];
+  }
+}
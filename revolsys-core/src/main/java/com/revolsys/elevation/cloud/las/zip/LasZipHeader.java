@@ -323,6 +323,23 @@ public class LasZipHeader implements MapSerializer {
     return itemCodecs;
   }
 
+  /**
+   * Construct the codecs for the items, only decompressing the layers enabled in the
+   * {@link LasZipDecompressSelective} bitmask.
+   *
+   * @param codec The arithmetic decoder.
+   * @param decompressSelective The bitmask of layers to decompress.
+   * @return The codecs.
+   */
+  public LasZipItemCodec[] newLazCodecs(final ArithmeticCodingCodec codec,
+    final int decompressSelective) {
+    final LasZipItemCodec[] itemCodecs = newLazCodecs(codec);
+    for (final LasZipItemCodec itemCodec : itemCodecs) {
+      itemCodec.setDecompressSelective(decompressSelective);
+    }
+    return itemCodecs;
+  }
+
   private void requestVersion(final int requested_version) {
     for (int i = 0; i < this.itemCount; i++) {
       switch (this.types[i]) {
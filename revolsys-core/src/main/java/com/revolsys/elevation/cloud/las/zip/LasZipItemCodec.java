@@ -46,6 +46,16 @@ public interface LasZipItemCodec {
   default void readChunkSizes() {
   }
 
+  /**
+   * Set the layers to decompress using the {@link LasZipDecompressSelective} flags. Layers that
+   * are not enabled are skipped over and not decoded. Only the layered (v3) codecs support
+   * skipping layers.
+   *
+   * @param decompressSelective The bitmask of layers to decompress.
+   */
+  default void setDecompressSelective(final int decompressSelective) {
+  }
+
   default int U32_ZERO_BIT_0(final int n) {
     return n & 0xFFFFFFFE;
   }
@@ -0,0 +1,254 @@
+package com.revolsys.elevation.cloud.las.zip;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloudIterator;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.io.channels.ChannelReader;
+import com.revolsys.math.arithmeticcoding.ArithmeticDecoder;
+
+/**
+ * Read the points from a chunked LasZip file by decoding the chunks on a fixed size thread pool.
+ * Each chunk is compressed independently so the bytes for a chunk are read using the offsets in
+ * the {@link LasZipChunkTable} and decoded with its own decoder and codecs. The points are
+ * returned in file order if ordered is true, otherwise in the order the chunks finish decoding.
+ * <p>
+ * The file reads are serialized, only the decoding runs in parallel.
+ * </p>
+ */
+public class LasZipParallelChunkedIterator extends LasPointCloudIterator {
+
+  private final LasZipChunkTable chunkTable;
+
+  private final CompletionService<List<LasPoint>> completionService;
+
+  private final LasZipCompressorType compressor;
+
+  private Iterator<LasPoint> currentPoints = Collections.emptyIterator();
+
+  private final int decompressSelective;
+
+  private final ExecutorService executor;
+
+  private final LasZipHeader lasZipHeader;
+
+  private final int maxPendingCount;
+
+  private int nextChunkIndex = 0;
+
+  private final boolean ordered;
+
+  private final Deque<Future<List<LasPoint>>> pending = new ArrayDeque<>();
+
+  private int pendingCount = 0;
+
+  private final Object readSync = new Object();
+
+  /**
+   * @param pointCloud The point cloud.
+   * @param reader The reader for the point cloud file.
+   * @param lasZipHeader The LasZip header.
+   * @param chunkTable The chunk table read from the file.
+   * @param threadCount The number of threads to decode the chunks with.
+   * @param ordered Return the points in file order.
+   * @param decompressSelective The {@link LasZipDecompressSelective} bitmask of layers to decode.
+   */
+  public LasZipParallelChunkedIterator(final LasPointCloud pointCloud, final ChannelReader reader,
+    final LasZipHeader lasZipHeader, final LasZipChunkTable chunkTable, final int threadCount,
+    final boolean ordered, final int decompressSelective) {
+    super(pointCloud, reader);
+    this.lasZipHeader = lasZipHeader;
+    this.compressor = lasZipHeader.getCompressor();
+    this.chunkTable = chunkTable;
+    this.ordered = ordered;
+    this.decompressSelective = decompressSelective;
+
+    final int poolSize = Math.max(1, threadCount);
+    this.maxPendingCount = poolSize * 2;
+    final String threadName = "LasZipReader " + pointCloud.getResource();
+    this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+      final Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.completionService = new ExecutorCompletionService<>(this.executor);
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdownNow();
+    this.pending.clear();
+    this.pendingCount = 0;
+    this.currentPoints = Collections.emptyIterator();
+    synchronized (this.readSync) {
+      super.close();
+    }
+  }
+
+  private void decodeChunk(final int chunkIndex, final Consumer<? super LasPoint> action) {
+    final int pointCount = this.chunkTable.getChunkPointCount(chunkIndex);
+    if (pointCount > 0) {
+      final byte[] bytes = new byte[this.chunkTable.getChunkByteCount(chunkIndex)];
+      synchronized (this.readSync) {
+        final ChannelReader reader = this.reader;
+        if (reader == null) {
+          throw new IllegalStateException("Reader closed");
+        }
+        reader.seek(this.chunkTable.getChunkStart(chunkIndex));
+        reader.getBytes(bytes);
+      }
+      final ChannelReader chunkReader = new ChannelReader(
+        Channels.newChannel(new ByteArrayInputStream(bytes)), ByteBuffer.allocate(8192));
+      chunkReader.setByteOrder(ByteOrder.LITTLE_ENDIAN);
+      final ArithmeticDecoder decoder = new ArithmeticDecoder();
+      final LasZipItemCodec[] codecs = this.lasZipHeader.newLazCodecs(decoder,
+        this.decompressSelective);
+
+      int context = 0;
+      final LasPoint firstPoint = this.pointFormat.readLasPoint(this.pointCloud, chunkReader);
+      if (this.compressor == LasZipCompressorType.LAYERED_CHUNKED) {
+        decoder.init(chunkReader, false);
+        chunkReader.getInt(); // point count
+        for (final LasZipItemCodec codec : codecs) {
+          codec.readChunkSizes();
+        }
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.init(firstPoint, context);
+        }
+      } else {
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.init(firstPoint, context);
+        }
+        decoder.init(chunkReader);
+      }
+      action.accept(firstPoint);
+
+      for (int i = 1; i < pointCount; i++) {
+        final LasPoint point = this.pointFormat.newLasPoint(this.pointCloud);
+        for (final LasZipItemCodec codec : codecs) {
+          context = codec.read(point, context);
+        }
+        action.accept(point);
+      }
+    }
+  }
+
+  private List<LasPoint> decodeChunk(final int chunkIndex) {
+    final List<LasPoint> points = new ArrayList<>(this.chunkTable.getChunkPointCount(chunkIndex));
+    decodeChunk(chunkIndex, points::add);
+    return points;
+  }
+
+  /**
+   * Decode all the chunks on the thread pool calling the action for each point from the thread
+   * that decoded it. The action must be thread safe and the points for different chunks are
+   * passed to the action in no particular order. The iterator is closed after all the points
+   * are processed.
+   *
+   * @param action The action to call for each point.
+   */
+  public void forEachParallel(final Consumer<? super LasPoint> action) {
+    if (this.index != 0) {
+      throw new IllegalStateException("Cannot use forEachParallel after next has been called");
+    }
+    try {
+      final int chunkCount = this.chunkTable.getChunkCount();
+      final List<Future<?>> futures = new ArrayList<>(chunkCount);
+      for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+        final int taskChunkIndex = chunkIndex;
+        futures.add(this.executor.submit(() -> decodeChunk(taskChunkIndex, action)));
+      }
+      this.nextChunkIndex = chunkCount;
+      for (final Future<?> future : futures) {
+        future.get();
+      }
+    } catch (final InterruptedException e) {
+      throw Exceptions.wrap(e);
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(), e.getCause());
+    } finally {
+      close();
+    }
+  }
+
+  @Override
+  public Iterator<LasPoint> iterator() {
+    return this;
+  }
+
+  private List<LasPoint> nextChunk() {
+    submitChunks();
+    if (this.pendingCount == 0) {
+      return null;
+    } else {
+      try {
+        final Future<List<LasPoint>> future;
+        if (this.ordered) {
+          future = this.pending.removeFirst();
+        } else {
+          future = this.completionService.take();
+        }
+        this.pendingCount--;
+        return future.get();
+      } catch (final InterruptedException e) {
+        throw Exceptions.wrap(e);
+      } catch (final ExecutionException e) {
+        throw Exceptions.wrap("Error decompressing: " + this.pointCloud.getResource(),
+          e.getCause());
+      }
+    }
+  }
+
+  @Override
+  protected LasPoint readNext() {
+    while (!this.currentPoints.hasNext()) {
+      final List<LasPoint> points;
+      try {
+        points = nextChunk();
+      } catch (RuntimeException | Error e) {
+        close();
+        throw e;
+      }
+      if (points == null) {
+        close();
+        throw new NoSuchElementException();
+      } else {
+        this.currentPoints = points.iterator();
+      }
+    }
+    return this.currentPoints.next();
+  }
+
+  private void submitChunks() {
+    final int chunkCount = this.chunkTable.getChunkCount();
+    while (this.pendingCount < this.maxPendingCount && this.nextChunkIndex < chunkCount) {
+      final int chunkIndex = this.nextChunkIndex++;
+      if (this.ordered) {
+        this.pending.addLast(this.executor.submit(() -> decodeChunk(chunkIndex)));
+      } else {
+        this.completionService.submit(() -> decodeChunk(chunkIndex));
+      }
+      this.pendingCount++;
+    }
+  }
+}
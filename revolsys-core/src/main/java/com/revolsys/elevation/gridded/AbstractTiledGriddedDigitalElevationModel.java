@@ -1,21 +1,30 @@
 package com.revolsys.elevation.gridded;
 
-import java.util.Map;
-
-import org.jeometry.common.collection.map.LruMap;
-
+import com.revolsys.collection.map.ConcurrentLongLoadingCache;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.grid.AbstractGrid;
-import com.revolsys.util.IntPair;
 
+/**
+ * A gridded elevation model split into tiles that are loaded on demand. The loaded tiles are
+ * stored in a {@link ConcurrentLongLoadingCache} so lookups from multiple threads don't block
+ * each other and a tile is only loaded once. The cache is limited by the number of tiles and by
+ * the estimated memory size of the tiles (see {@link #getModelMemorySize(GriddedElevationModel)}).
+ * Each thread also keeps a reference to the last tile it used to avoid the cache lookup for
+ * consecutive cells in the same tile.
+ */
 public abstract class AbstractTiledGriddedDigitalElevationModel extends AbstractGrid
   implements GriddedElevationModel {
 
+  private static long toKey(final int tileIndexX, final int tileIndexY) {
+    return (long)tileIndexX << 32 | tileIndexY & 0xFFFFFFFFL;
+  }
+
   protected int gridTileSize;
 
-  private final LruMap<IntPair, GriddedElevationModel> models = new LruMap<>(5000);
+  private final ThreadLocal<ConcurrentLongLoadingCache.Entry<GriddedElevationModel>> lastModel = new ThreadLocal<>();
 
-  private final IntPair getKey = new IntPair();
+  private final ConcurrentLongLoadingCache<GriddedElevationModel> models = new ConcurrentLongLoadingCache<>(
+    5000, Runtime.getRuntime().maxMemory() / 4, this::loadModel, this::getModelMemorySize);
 
   private final double tileWidth;
 
@@ -31,9 +40,8 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
 
   @Override
   public void clear() {
-    synchronized (this.models) {
-      this.models.clear();
-    }
+    this.models.clear();
+    this.lastModel.remove();
   }
 
   @Override
@@ -41,9 +49,7 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     try {
       closeDo();
     } finally {
-      synchronized (this.models) {
-        this.models.clear();
-      }
+      clear();
     }
   }
 
@@ -55,24 +61,39 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     return this.gridTileSize;
   }
 
+  /**
+   * Get the statistics and limits of the tile cache.
+   *
+   * @return The tile cache.
+   */
+  public ConcurrentLongLoadingCache<GriddedElevationModel> getCache() {
+    return this.models;
+  }
+
   protected GriddedElevationModel getModel(final int gridX, final int gridY) {
-    GriddedElevationModel model;
-    final Map<IntPair, GriddedElevationModel> models = this.models;
     final int tileIndexX = (int)Math.floor(gridX / this.tileWidth);
     final int tileIndexY = (int)Math.floor(gridY / this.tileHeight);
-    synchronized (models) {
-      final IntPair getKey = this.getKey;
-      getKey.setValues(tileIndexX, tileIndexY);
-
-      model = models.get(getKey);
-      if (model == null) {
-        final double tileX = tileIndexX * this.tileWidth;
-        final double tileY = tileIndexY * this.tileHeight;
-        model = newModel(tileX, tileY);
-        models.put(getKey.clone(), model);
+    final long key = toKey(tileIndexX, tileIndexY);
+    ConcurrentLongLoadingCache.Entry<GriddedElevationModel> entry = this.lastModel.get();
+    if (entry == null || entry.getKey() != key || entry.isEvicted()) {
+      entry = this.models.getEntry(key);
+      if (entry == null) {
+        return null;
       }
+      this.lastModel.set(entry);
     }
-    return model;
+    return entry.getValue();
+  }
+
+  /**
+   * Get the estimated memory size in bytes of a tile's model, used to limit the memory used by
+   * the cache. The default is 4 bytes per grid cell.
+   *
+   * @param model The model.
+   * @return The memory size in bytes.
+   */
+  protected long getModelMemorySize(final GriddedElevationModel model) {
+    return (long)model.getGridWidth() * model.getGridHeight() * Integer.BYTES;
   }
 
   @Override
@@ -104,8 +125,28 @@ public abstract class AbstractTiledGriddedDigitalElevationModel extends Abstract
     throw new UnsupportedOperationException();
   }
 
+  private GriddedElevationModel loadModel(final long key) {
+    final int tileIndexX = (int)(key >> 32);
+    final int tileIndexY = (int)key;
+    final double tileX = tileIndexX * this.tileWidth;
+    final double tileY = tileIndexY * this.tileHeight;
+    return newModel(tileX, tileY);
+  }
+
   protected abstract GriddedElevationModel newModel(double tileX, double tileY);
 
+  /**
+   * Set the maximum estimated memory size in bytes of the cached tiles. The default is 1/4 of the
+   * maximum heap size.
+   *
+   * @param cacheMemorySize The maximum memory size in bytes.
+   * @return this
+   */
+  public AbstractTiledGriddedDigitalElevationModel setCacheMemorySize(final long cacheMemorySize) {
+    this.models.setMaxWeight(cacheMemorySize);
+    return this;
+  }
+
   public AbstractTiledGriddedDigitalElevationModel setCacheSize(final int cacheSize) {
     this.models.setMaxSize(cacheSize);
     return this;
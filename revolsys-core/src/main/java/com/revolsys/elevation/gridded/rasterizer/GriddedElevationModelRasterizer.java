@@ -3,18 +3,28 @@ package com.revolsys.elevation.gridded.rasterizer;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBuffer;
 import java.awt.image.Raster;
+import java.util.stream.IntStream;
 
 import com.revolsys.beans.PropertyChangeSupportProxy;
 import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.BoundingBoxProxy;
+import com.revolsys.grid.Grid;
 import com.revolsys.io.map.MapSerializer;
 import com.revolsys.properties.ObjectWithProperties;
 import com.revolsys.raster.BufferedGeoreferencedImage;
 import com.revolsys.util.IconNameProxy;
 
+/**
+ * Convert the elevations of a {@link GriddedElevationModel} to ARGB colours. The rasterize methods
+ * split the image into bands of {@link #ROW_BAND_SIZE} rows that are rendered in parallel on the
+ * common fork-join pool, so {@link #getValue(int, int)} must be thread safe.
+ */
 public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Cloneable, IconNameProxy,
   MapSerializer, ObjectWithProperties, PropertyChangeSupportProxy {
 
+  int ROW_BAND_SIZE = 64;
+
   GriddedElevationModelRasterizer clone();
 
   GriddedElevationModel getElevationModel();
@@ -46,14 +56,110 @@ public interface GriddedElevationModelRasterizer extends BoundingBoxProxy, Clone
     rasterize(dataBuffer);
   }
 
+  /**
+   * Render the region of the elevation model within the bounding box to a new image with the
+   * size of the displayed area. See {@link #rasterize(BoundingBox, int, int, DataBuffer)}.
+   *
+   * @param boundingBox The bounding box in the elevation model's coordinate system.
+   * @param imageWidth The width of the image in pixels.
+   * @param imageHeight The height of the image in pixels.
+   * @return The image.
+   */
+  default BufferedImage rasterize(final BoundingBox boundingBox, final int imageWidth,
+    final int imageHeight) {
+    final BufferedImage image = new BufferedImage(imageWidth, imageHeight,
+      BufferedImage.TYPE_INT_ARGB);
+    final DataBuffer imageBuffer = image.getRaster().getDataBuffer();
+    rasterize(boundingBox, imageWidth, imageHeight, imageBuffer);
+    return image;
+  }
+
+  /**
+   * Render the region of the elevation model within the bounding box to an image of imageWidth x
+   * imageHeight pixels. Each pixel is the value of the grid cell at the centre of the pixel, so
+   * only the cells that are displayed are calculated. Pixels outside the elevation model are
+   * set to {@link Grid#NULL_COLOUR}.
+   *
+   * @param boundingBox The bounding box in the elevation model's coordinate system.
+   * @param imageWidth The width of the image in pixels.
+   * @param imageHeight The height of the image in pixels.
+   * @param imageBuffer The buffer to write the ARGB values to.
+   */
+  default void rasterize(final BoundingBox boundingBox, final int imageWidth,
+    final int imageHeight, final DataBuffer imageBuffer) {
+    final GriddedElevationModel elevationModel = getElevationModel();
+    final int width = getWidth();
+    final int height = getHeight();
+    final double minX = boundingBox.getMinX();
+    final double maxY = boundingBox.getMaxY();
+    final double pixelWidth = boundingBox.getWidth() / imageWidth;
+    final double pixelHeight = boundingBox.getHeight() / imageHeight;
+
+    final int[] gridXs = new int[imageWidth];
+    for (int imageX = 0; imageX < imageWidth; imageX++) {
+      final double x = minX + (imageX + 0.5) * pixelWidth;
+      final int gridX = elevationModel.getGridCellX(x);
+      if (gridX < 0 || gridX >= width) {
+        gridXs[imageX] = -1;
+      } else {
+        gridXs[imageX] = gridX;
+      }
+    }
+
+    final int bandCount = (imageHeight + ROW_BAND_SIZE - 1) / ROW_BAND_SIZE;
+    IntStream.range(0, bandCount).parallel().forEach(band -> {
+      final int startImageY = band * ROW_BAND_SIZE;
+      final int endImageY = Math.min(imageHeight, startImageY + ROW_BAND_SIZE);
+      for (int imageY = startImageY; imageY < endImageY; imageY++) {
+        final double y = maxY - (imageY + 0.5) * pixelHeight;
+        final int gridY = elevationModel.getGridCellY(y);
+        int index = imageY * imageWidth;
+        final boolean validY = gridY >= 0 && gridY < height;
+        for (int imageX = 0; imageX < imageWidth; imageX++) {
+          final int gridX = gridXs[imageX];
+          if (validY && gridX != -1) {
+            imageBuffer.setElem(index, getValue(gridX, gridY));
+          } else {
+            imageBuffer.setElem(index, Grid.NULL_COLOUR);
+          }
+          index++;
+        }
+      }
+    });
+  }
+
+  /**
+   * Render the whole elevation model to the image buffer, one pixel per grid cell with the first
+   * row of the image being the last row of the grid. The rows are rendered in parallel.
+   *
+   * @param imageBuffer The buffer to write the ARGB values to.
+   */
   default void rasterize(final DataBuffer imageBuffer) {
+    final int height = getHeight();
+    final int bandCount = (height + ROW_BAND_SIZE - 1) / ROW_BAND_SIZE;
+    IntStream.range(0, bandCount).parallel().forEach(band -> {
+      final int minGridY = band * ROW_BAND_SIZE;
+      final int maxGridY = Math.min(height, minGridY + ROW_BAND_SIZE) - 1;
+      rasterizeRows(imageBuffer, minGridY, maxGridY);
+    });
+  }
+
+  /**
+   * Render the grid rows from maxGridY down to minGridY to the image buffer. The rows of the
+   * image are in the reverse order of the rows in the grid.
+   *
+   * @param imageBuffer The buffer to write the ARGB values to.
+   * @param minGridY The first grid row to render.
+   * @param maxGridY The last grid row to render.
+   */
+  default void rasterizeRows(final DataBuffer imageBuffer, final int minGridY,
+    final int maxGridY) {
     final int width = getWidth();
     final int height = getHeight();
-    int index = 0;
-    for (int gridY = height - 1; gridY >= 0; gridY--) {
+    for (int gridY = maxGridY; gridY >= minGridY; gridY--) {
+      int index = (height - 1 - gridY) * width;
       for (int gridX = 0; gridX < width; gridX++) {
         final int value = getValue(gridX, gridY);
-
         imageBuffer.setElem(index, value);
         index++;
       }
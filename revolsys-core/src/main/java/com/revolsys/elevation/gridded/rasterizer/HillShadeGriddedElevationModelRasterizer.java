@@ -1,5 +1,7 @@
 package com.revolsys.elevation.gridded.rasterizer;
 
+import java.awt.image.DataBuffer;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.jeometry.common.awt.WebColors;
@@ -57,6 +59,55 @@ public class HillShadeGriddedElevationModelRasterizer
     return this.cosZenithRadians;
   }
 
+  /**
+   * Calculate the hillshade for the cell e from its 8 neighbours, replacing neighbours without
+   * an elevation by extrapolating from the opposite neighbour.
+   */
+  private int getHillShade(double a, double b, double c, double d, final double e, double f,
+    double g, double h, double i) {
+    if (!Double.isFinite(d)) {
+      if (Double.isFinite(f)) {
+        d = e - (f - e);
+      } else {
+        d = e;
+        f = e;
+      }
+    } else if (!Double.isFinite(f)) {
+      f = e;
+    }
+    if (!Double.isFinite(a)) {
+      if (Double.isFinite(g)) {
+        a = d - (g - d);
+      } else {
+        a = d;
+      }
+    }
+    if (!Double.isFinite(b)) {
+      if (Double.isFinite(h)) {
+        b = e - (h - e);
+      } else {
+        b = e;
+      }
+    }
+    if (!Double.isFinite(c)) {
+      if (Double.isFinite(i)) {
+        c = f - (i - f);
+      } else {
+        c = f;
+      }
+    }
+    if (!Double.isFinite(g)) {
+      g = d - (a - d);
+    }
+    if (!Double.isFinite(h)) {
+      h = e - (b - e);
+    }
+    if (!Double.isFinite(i)) {
+      i = f - (c - f);
+    }
+    return getHillShade(a, b, c, d, f, g, h, i);
+  }
+
   private int getHillShade(final double a, final double b, final double c, final double d,
     final double f, final double g, final double h, final double i) {
     final double oneDivCellSizeTimes8 = this.oneDivCellSizeTimes8;
@@ -153,47 +204,7 @@ public class HillShadeGriddedElevationModelRasterizer
         }
       }
 
-      if (!Double.isFinite(d)) {
-        if (Double.isFinite(f)) {
-          d = e - (f - e);
-        } else {
-          d = e;
-          f = e;
-        }
-      } else if (!Double.isFinite(f)) {
-        f = e;
-      }
-      if (!Double.isFinite(a)) {
-        if (Double.isFinite(g)) {
-          a = d - (g - d);
-        } else {
-          a = d;
-        }
-      }
-      if (!Double.isFinite(b)) {
-        if (Double.isFinite(h)) {
-          b = e - (h - e);
-        } else {
-          b = e;
-        }
-      }
-      if (!Double.isFinite(c)) {
-        if (Double.isFinite(i)) {
-          c = f - (i - f);
-        } else {
-          c = f;
-        }
-      }
-      if (!Double.isFinite(g)) {
-        g = d - (a - d);
-      }
-      if (!Double.isFinite(h)) {
-        h = e - (b - e);
-      }
-      if (!Double.isFinite(i)) {
-        i = f - (c - f);
-      }
-      return getHillShade(a, b, c, d, f, g, h, i);
+      return getHillShade(a, b, c, d, e, f, g, h, i);
     } else {
       return Grid.NULL_COLOUR;
     }
@@ -211,6 +222,56 @@ public class HillShadeGriddedElevationModelRasterizer
     return this.zFactor;
   }
 
+  /**
+   * Render the rows using a window of 3 rows of elevations so each elevation is only read once
+   * instead of once for each of its neighbours.
+   */
+  @Override
+  public void rasterizeRows(final DataBuffer imageBuffer, final int minGridY,
+    final int maxGridY) {
+    final int width = this.width;
+    final int height = this.height;
+    double[] rowAbove = readRow(new double[width + 2], maxGridY + 1);
+    double[] row = readRow(new double[width + 2], maxGridY);
+    double[] rowBelow = new double[width + 2];
+    for (int gridY = maxGridY; gridY >= minGridY; gridY--) {
+      readRow(rowBelow, gridY - 1);
+      int index = (height - 1 - gridY) * width;
+      for (int gridX = 0; gridX < width; gridX++) {
+        final double e = row[gridX + 1];
+        final int value;
+        if (Double.isFinite(e)) {
+          value = getHillShade(rowAbove[gridX], rowAbove[gridX + 1], rowAbove[gridX + 2],
+            row[gridX], e, row[gridX + 2], rowBelow[gridX], rowBelow[gridX + 1],
+            rowBelow[gridX + 2]);
+        } else {
+          value = Grid.NULL_COLOUR;
+        }
+        imageBuffer.setElem(index, value);
+        index++;
+      }
+      final double[] previousRowAbove = rowAbove;
+      rowAbove = row;
+      row = rowBelow;
+      rowBelow = previousRowAbove;
+    }
+  }
+
+  /**
+   * Read the elevations for the row into values[1..width], the first and last values and rows
+   * outside the grid are NaN.
+   */
+  private double[] readRow(final double[] values, final int gridY) {
+    Arrays.fill(values, Double.NaN);
+    if (gridY >= 0 && gridY < this.height) {
+      final GriddedElevationModel elevationModel = this.elevationModel;
+      for (int gridX = 0; gridX < this.width; gridX++) {
+        values[gridX + 1] = elevationModel.getValueFast(gridX, gridY);
+      }
+    }
+    return values;
+  }
+
   public void setAzimuthDegrees(final double azimuthDegrees) {
     final double oldValue = this.azimuthDegrees;
     this.azimuthDegrees = azimuthDegrees;
@@ -2,7 +2,9 @@ package com.revolsys.elevation.gridded.scaledint;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
@@ -10,6 +12,7 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileAttribute;
+import java.util.Arrays;
 import java.util.Set;
 
 import org.jeometry.common.exception.Exceptions;
@@ -24,9 +27,23 @@ import com.revolsys.io.channels.ChannelReader;
 import com.revolsys.io.channels.ChannelWriter;
 import com.revolsys.io.file.Paths;
 
+/**
+ * <p>A {@link DirectFileElevationModel} that reads and writes the cells of a .sigdem file
+ * directly from the file instead of loading the model into memory.</p>
+ *
+ * <p>If {@link #setMemoryMapped(boolean)} is enabled the cells are accessed through
+ * {@link IntBuffer} views of the memory mapped file. A cell read is then an index into the
+ * mapped buffer, and {@link #getElevationsInt(int, int, int[], int, int)} and
+ * {@link #getElevations(int, int, int, int, double[])} copy rows straight into the caller's
+ * array. The mapped pages are managed by the operating system so large files are not loaded
+ * into the heap.</p>
+ */
 public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileElevationModel {
   private static final int ELEVATION_BYTE_COUNT = 4;
 
+  /** The maximum size of a mapped region, larger files are mapped as multiple regions. */
+  private static final long MAX_MAPPED_BYTE_COUNT = 1L << 30;
+
   public static ScaledIntegerGriddedDigitalElevationModelFile newModel(final Path basePath,
     final GeometryFactory geometryFactory, final int minX, final int minY, final int gridWidth,
     final int gridHeight, final double gridCellSize) {
@@ -60,6 +77,14 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
 
   private boolean useLocks = false;
 
+  private boolean memoryMapped = false;
+
+  private volatile IntBuffer[] mappedRegions;
+
+  private int mappedRegionRowCount;
+
+  private long maxMappedByteCount = MAX_MAPPED_BYTE_COUNT;
+
   public ScaledIntegerGriddedDigitalElevationModelFile(final Path path) {
     super(ScaledIntegerGriddedDigitalElevation.HEADER_SIZE,
       ScaledIntegerGriddedDigitalElevation.RECORD_SIZE);
@@ -87,6 +112,7 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
   @Override
   public void close() {
     super.close();
+    this.mappedRegions = null;
     final FileChannel fileChannel = this.channel;
     this.channel = null;
     if (fileChannel != null) {
@@ -139,19 +165,234 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
     return this.channel;
   }
 
+  /**
+   * Copy the elevations for the grid cells in a window into the elevations array, in row order
+   * starting at gridX, gridY. Null cells are returned as {@link Double#NaN}.
+   *
+   * @param gridX The grid x of the first column.
+   * @param gridY The grid y of the first row.
+   * @param width The number of columns.
+   * @param height The number of rows.
+   * @param elevations The array to copy the elevations to.
+   */
+  public void getElevations(final int gridX, final int gridY, final int width, final int height,
+    final double[] elevations) {
+    final int[] rowElevations = new int[width];
+    final double scaleZ = this.scaleZ;
+    int index = 0;
+    for (int row = 0; row < height; row++) {
+      getElevationsInt(gridX, gridY + row, rowElevations, 0, width);
+      for (final int elevationInt : rowElevations) {
+        if (elevationInt == Integer.MIN_VALUE) {
+          elevations[index++] = Double.NaN;
+        } else {
+          elevations[index++] = elevationInt / scaleZ;
+        }
+      }
+    }
+  }
+
+  /**
+   * Copy the scaled integer elevations for count cells in the row gridY, starting at gridX, into
+   * the elevations array. Null cells are returned as {@link Integer#MIN_VALUE}.
+   *
+   * @param gridX The grid x of the first cell.
+   * @param gridY The grid y of the row.
+   * @param elevations The array to copy the elevations to.
+   * @param offset The offset in the elevations array of the first cell.
+   * @param count The number of cells to copy.
+   */
+  public void getElevationsInt(final int gridX, final int gridY, final int[] elevations,
+    final int offset, final int count) {
+    try {
+      final int gridWidth = getGridWidth();
+      if (this.memoryMapped) {
+        final IntBuffer[] regions = getMappedRegions();
+        if (regions != null) {
+          long cellIndex = (long)gridY * gridWidth + gridX;
+          int index = offset;
+          final int endIndex = offset + count;
+          while (index < endIndex) {
+            final IntBuffer cells = getMappedCells(regions, cellIndex);
+            if (cells == null) {
+              break;
+            }
+            final int cellCount = Math.min(endIndex - index, cells.remaining());
+            cells.get(elevations, index, cellCount);
+            index += cellCount;
+            cellIndex += cellCount;
+          }
+          Arrays.fill(elevations, index, endIndex, Integer.MIN_VALUE);
+          return;
+        }
+      } else {
+        final FileChannel fileChannel = getFileChannel();
+        if (fileChannel != null) {
+          final ByteBuffer buffer = ByteBuffer.allocate(count * ELEVATION_BYTE_COUNT);
+          final long position = this.headerSize
+            + ((long)gridY * gridWidth + gridX) * ELEVATION_BYTE_COUNT;
+          while (buffer.hasRemaining()) {
+            if (fileChannel.read(buffer, position + buffer.position()) == -1) {
+              break;
+            }
+          }
+          buffer.flip();
+          buffer.asIntBuffer().get(elevations, offset, buffer.remaining() / ELEVATION_BYTE_COUNT);
+          Arrays.fill(elevations, offset + buffer.remaining() / ELEVATION_BYTE_COUNT,
+            offset + count, Integer.MIN_VALUE);
+          return;
+        }
+      }
+    } catch (final NoSuchFileException e) {
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + this.path, e);
+    }
+    Arrays.fill(elevations, offset, offset + count, Integer.MIN_VALUE);
+  }
+
+  /**
+   * Copy the scaled integer elevations for the grid cells in a window into the elevations array,
+   * in row order starting at gridX, gridY. Null cells are returned as {@link Integer#MIN_VALUE}.
+   *
+   * @param gridX The grid x of the first column.
+   * @param gridY The grid y of the first row.
+   * @param width The number of columns.
+   * @param height The number of rows.
+   * @param elevations The array to copy the elevations to.
+   */
+  public void getElevationsInt(final int gridX, final int gridY, final int width,
+    final int height, final int[] elevations) {
+    for (int row = 0; row < height; row++) {
+      getElevationsInt(gridX, gridY + row, elevations, row * width, width);
+    }
+  }
+
+  /**
+   * Get a view of the mapped region containing the cell, positioned at the cell. The limit is the
+   * end of the region so a run of cells may continue in the next region.
+   *
+   * @return The cells or null if the cell is after the end of the file.
+   */
+  private IntBuffer getMappedCells(final IntBuffer[] regions, final long cellIndex) {
+    final long regionCellCount = (long)this.mappedRegionRowCount * getGridWidth();
+    final int regionIndex = (int)(cellIndex / regionCellCount);
+    final int cellOffset = (int)(cellIndex % regionCellCount);
+    if (regionIndex < regions.length && cellOffset < regions[regionIndex].limit()) {
+      final IntBuffer cells = regions[regionIndex].duplicate();
+      cells.position(cellOffset);
+      return cells;
+    } else {
+      return null;
+    }
+  }
+
+  private IntBuffer[] getMappedRegions() throws IOException {
+    final IntBuffer[] regions = this.mappedRegions;
+    if (regions == null) {
+      return mapRegions();
+    } else {
+      return regions;
+    }
+  }
+
+  /**
+   * Get the byte offset of the cell in the file, as a long so files over 2GB can be written.
+   */
+  private long getOffset(final int gridX, final int gridY) {
+    return this.headerSize + ((long)gridY * getGridWidth() + gridX) * ELEVATION_BYTE_COUNT;
+  }
+
   private ChannelReader getReader() throws IOException {
     getFileChannel();
     return this.reader;
   }
 
+  @Override
+  public double getValueFast(final int gridX, final int gridY) {
+    if (this.memoryMapped) {
+      try {
+        final IntBuffer[] regions = getMappedRegions();
+        if (regions != null) {
+          final int regionRowCount = this.mappedRegionRowCount;
+          final int index = gridY % regionRowCount * getGridWidth() + gridX;
+          final int elevationInt = regions[gridY / regionRowCount].get(index);
+          if (elevationInt != Integer.MIN_VALUE) {
+            return elevationInt / this.scaleZ;
+          }
+        }
+      } catch (final NoSuchFileException e) {
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to read: " + this.path, e);
+      }
+      return Double.NaN;
+    } else {
+      return super.getValueFast(gridX, gridY);
+    }
+  }
+
+  public long getMaxMappedByteCount() {
+    return this.maxMappedByteCount;
+  }
+
   public boolean isCreateMissing() {
     return this.createMissing;
   }
 
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
   public boolean isUseLocks() {
     return this.useLocks;
   }
 
+  /**
+   * Map the cells of the file as {@link IntBuffer} regions of whole rows, each region is at most
+   * {@link #getMaxMappedByteCount()} unless a single row is larger.
+   */
+  private synchronized IntBuffer[] mapRegions() throws IOException {
+    IntBuffer[] regions = this.mappedRegions;
+    if (regions == null) {
+      final FileChannel fileChannel = getFileChannel();
+      if (fileChannel != null) {
+        final MapMode mapMode;
+        if (this.openOptions.contains(StandardOpenOption.WRITE)) {
+          mapMode = MapMode.READ_WRITE;
+        } else {
+          mapMode = MapMode.READ_ONLY;
+        }
+        final int gridHeight = getGridHeight();
+        final long rowByteCount = (long)getGridWidth() * ELEVATION_BYTE_COUNT;
+        final int regionRowCount = (int)Math.max(1,
+          Math.min(gridHeight, this.maxMappedByteCount / rowByteCount));
+        final int regionCount = (gridHeight + regionRowCount - 1) / regionRowCount;
+        regions = new IntBuffer[regionCount];
+        for (int i = 0; i < regionCount; i++) {
+          final int rowCount = Math.min(regionRowCount, gridHeight - i * regionRowCount);
+          final long position = this.headerSize + i * regionRowCount * rowByteCount;
+          regions[i] = fileChannel.map(mapMode, position, rowCount * rowByteCount).asIntBuffer();
+        }
+        this.mappedRegionRowCount = regionRowCount;
+        this.mappedRegions = regions;
+      }
+    }
+    return regions;
+  }
+
+  /**
+   * Lock the bytes in the file if {@link #isUseLocks()} is true.
+   *
+   * @return The lock or null if locks aren't used.
+   */
+  private FileLock lock(final FileChannel fileChannel, final long offset, final long size)
+    throws IOException {
+    if (this.useLocks) {
+      return fileChannel.lock(offset, size, false);
+    } else {
+      return null;
+    }
+  }
+
   @Override
   protected synchronized double readElevation(final int offset) {
     try {
@@ -241,16 +482,46 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
 
   public void setElevations(final int gridX, final int gridY, final double[] elevations) {
     try {
+      final int gridWidth = getGridWidth();
+      final long offset = this.headerSize
+        + ((long)gridY * gridWidth + gridX) * ELEVATION_BYTE_COUNT;
+      final int byteCount = elevations.length * ELEVATION_BYTE_COUNT;
+      final double scale = this.scaleZ;
+      if (this.memoryMapped) {
+        final IntBuffer[] regions = getMappedRegions();
+        if (regions != null) {
+          try (
+            FileLock lock = lock(this.channel, offset, byteCount)) {
+            long cellIndex = (long)gridY * gridWidth + gridX;
+            int index = 0;
+            while (index < elevations.length) {
+              final IntBuffer cells = getMappedCells(regions, cellIndex);
+              if (cells == null) {
+                break;
+              }
+              final int cellCount = Math.min(elevations.length - index, cells.remaining());
+              for (final int endIndex = index + cellCount; index < endIndex; index++) {
+                final double elevation = elevations[index];
+                if (Double.isFinite(elevation)) {
+                  cells.put((int)Math.round(elevation * scale));
+                } else {
+                  cells.put(Integer.MIN_VALUE);
+                }
+              }
+              cellIndex += cellCount;
+            }
+          }
+          return;
+        }
+      }
       final FileChannel fileChannel = getFileChannel();
 
       if (fileChannel != null) {
         ByteBuffer buffer = this.rowBuffer;
-        final int gridWidth2 = getGridWidth();
-        if (buffer == null) {
-          buffer = ByteBuffer.allocateDirect(4 * gridWidth2);
+        if (buffer == null || buffer.capacity() < byteCount) {
+          buffer = ByteBuffer.allocateDirect(Math.max(byteCount, 4 * gridWidth));
           this.rowBuffer = buffer;
         }
-        final double scale = this.scaleZ;
         for (final double elevation : elevations) {
           final int elevationInt;
           if (Double.isFinite(elevation)) {
@@ -260,14 +531,8 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
           }
           buffer.putInt(elevationInt);
         }
-        final int offset = this.headerSize + (gridY * gridWidth2 + gridX) * ELEVATION_BYTE_COUNT;
-        if (this.useLocks) {
-          try (
-            FileLock lock = fileChannel.lock(offset, elevations.length * ELEVATION_BYTE_COUNT,
-              false)) {
-            Buffers.writeAll(fileChannel, buffer, offset);
-          }
-        } else {
+        try (
+          FileLock lock = lock(fileChannel, offset, byteCount)) {
           Buffers.writeAll(fileChannel, buffer, offset);
         }
       }
@@ -276,19 +541,46 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
     }
   }
 
+  /**
+   * Access the cells through memory mapped {@link IntBuffer} views of the file instead of
+   * reading them from the file channel.
+   *
+   * @param memoryMapped True if the file should be memory mapped.
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * Set the maximum size of a memory mapped region, files larger than this are mapped as multiple
+   * regions of whole rows. This must be set before the file is first accessed.
+   *
+   * @param maxMappedByteCount The maximum number of bytes in a region.
+   */
+  public void setMaxMappedByteCount(final long maxMappedByteCount) {
+    this.maxMappedByteCount = maxMappedByteCount;
+  }
+
   public void setUseLocks(final boolean useLocks) {
     this.useLocks = useLocks;
   }
 
+  @Override
+  public void setValue(final int gridX, final int gridY, final double elevation) {
+    writeElevation(getOffset(gridX, gridY), elevation);
+  }
+
   @Override
   public void setValueNull(final int gridX, final int gridY) {
-    final int gridWidth = getGridWidth();
-    final int offset = this.headerSize + (gridY * gridWidth + gridX) * this.elevationByteCount;
-    writeElevation(offset, Integer.MIN_VALUE);
+    writeElevation(getOffset(gridX, gridY), Integer.MIN_VALUE);
   }
 
   @Override
-  protected synchronized void writeElevation(final int offset, final double elevation) {
+  protected void writeElevation(final int offset, final double elevation) {
+    writeElevation((long)offset, elevation);
+  }
+
+  protected synchronized void writeElevation(final long offset, final double elevation) {
     int elevationInt;
     if (Double.isFinite(elevation)) {
       final double scale = this.scaleZ;
@@ -299,8 +591,22 @@ public class ScaledIntegerGriddedDigitalElevationModelFile extends DirectFileEle
     writeElevation(offset, elevationInt);
   }
 
-  protected void writeElevation(int offset, final int elevationInt) {
+  protected void writeElevation(long offset, final int elevationInt) {
     try {
+      if (this.memoryMapped) {
+        final IntBuffer[] regions = getMappedRegions();
+        if (regions != null) {
+          final long cellIndex = (offset - this.headerSize) / ELEVATION_BYTE_COUNT;
+          try (
+            FileLock lock = lock(this.channel, offset, ELEVATION_BYTE_COUNT)) {
+            final IntBuffer cells = getMappedCells(regions, cellIndex);
+            if (cells != null) {
+              cells.put(elevationInt);
+            }
+          }
+          return;
+        }
+      }
       final FileChannel fileChannel = getFileChannel();
       if (fileChannel != null) {
 
@@ -131,9 +131,7 @@ public class ScaledIntegerGriddedDigitalElevationModelReader extends BaseObjectW
             ScaledIntegerGriddedDigitalElevation.HEADER_SIZE,
             cellCount * ScaledIntegerGriddedDigitalElevation.RECORD_SIZE);
           final IntBuffer intBuffer = mappedBytes.asIntBuffer();
-          for (int index = 0; index < cellCount; index++) {
-            elevations[index] = intBuffer.get();
-          }
+          intBuffer.get(elevations);
         } else {
 
           for (int index = 0; index < cellCount; index++) {
@@ -19,6 +19,8 @@ public class TiledDirectFileScaledIntegerGriddedDigitalElevationModel
 
   private final String tileWidthString;
 
+  private boolean memoryMapped = false;
+
   public TiledDirectFileScaledIntegerGriddedDigitalElevationModel(final Path baseDirectory,
     final String filePrefix, final GeometryFactory geometryFactory, final double minX,
     final double minY, final int gridTileSize, final int gridCellSize) {
@@ -40,6 +42,19 @@ public class TiledDirectFileScaledIntegerGriddedDigitalElevationModel
       gridCellSize);
   }
 
+  /**
+   * The elevations are read directly from the file, or from memory mapped pages outside the
+   * heap, so only the file reader's buffer is in memory.
+   */
+  @Override
+  protected long getModelMemorySize(final GriddedElevationModel model) {
+    return 8192;
+  }
+
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
   @Override
   protected GriddedElevationModel newModel(final double tileX, final double tileY) {
     final int tileXInt = (int)tileX;
@@ -55,8 +70,21 @@ public class TiledDirectFileScaledIntegerGriddedDigitalElevationModel
       .resolve(Integer.toString(tileXInt)) //
       .resolve(fileName);
 
-    return new ScaledIntegerGriddedDigitalElevationModelFile(path, geometryFactory, tileXInt,
-      tileYInt, tileSize, tileSize, this.gridCellWidth);
+    final ScaledIntegerGriddedDigitalElevationModelFile model = new ScaledIntegerGriddedDigitalElevationModelFile(
+      path, geometryFactory, tileXInt, tileYInt, tileSize, tileSize, this.gridCellWidth);
+    model.setMemoryMapped(this.memoryMapped);
+    return model;
+  }
+
+  /**
+   * Access the tile files using memory mapped buffers instead of reading them through the file
+   * channel.
+   *
+   * @param memoryMapped True if the tile files should be memory mapped.
+   * @see ScaledIntegerGriddedDigitalElevationModelFile#setMemoryMapped(boolean)
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
   }
 
 }
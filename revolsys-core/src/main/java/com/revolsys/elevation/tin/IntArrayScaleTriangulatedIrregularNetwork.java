@@ -2,6 +2,7 @@ package com.revolsys.elevation.tin;
 
 import java.util.function.Consumer;
 
+import com.revolsys.elevation.tin.quadedge.intscale.TriangleConsumerInt;
 import com.revolsys.geometry.index.SpatialIndex;
 import com.revolsys.geometry.index.rstartree.RStarTree;
 import com.revolsys.geometry.model.BoundingBox;
@@ -180,6 +181,23 @@ public class IntArrayScaleTriangulatedIrregularNetwork extends BaseObjectWithPro
     }
   }
 
+  /**
+   * Perform the action on each triangle using the scaled integer coordinates.
+   *
+   * @param action The action to perform.
+   */
+  public void forEachTriangleInt(final TriangleConsumerInt action) {
+    final int[] triangleXCoordinates = this.triangleXCoordinates;
+    final int[] triangleYCoordinates = this.triangleYCoordinates;
+    final int[] triangleZCoordinates = this.triangleZCoordinates;
+    final int coordinateCount = this.triangleCount * 3;
+    for (int i = 0; i < coordinateCount; i += 3) {
+      action.accept(triangleXCoordinates[i], triangleYCoordinates[i], triangleZCoordinates[i],
+        triangleXCoordinates[i + 1], triangleYCoordinates[i + 1], triangleZCoordinates[i + 1],
+        triangleXCoordinates[i + 2], triangleYCoordinates[i + 2], triangleZCoordinates[i + 2]);
+    }
+  }
+
   @Override
   public void forEachTriangle(final double x, final double y,
     final Consumer<? super Triangle> action) {
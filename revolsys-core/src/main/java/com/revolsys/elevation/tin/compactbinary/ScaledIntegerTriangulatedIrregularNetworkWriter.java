@@ -2,6 +2,7 @@ package com.revolsys.elevation.tin.compactbinary;
 
 import org.jeometry.common.exception.Exceptions;
 
+import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetworkWriter;
 import com.revolsys.geometry.model.BoundingBox;
@@ -28,6 +29,24 @@ public class ScaledIntegerTriangulatedIrregularNetworkWriter extends BaseObjectW
   public void flush() {
   }
 
+  /**
+   * Check if the integer coordinates of the tin can be written without converting them to
+   * doubles and back.
+   */
+  private boolean isSameIntCoordinates(final TriangulatedIrregularNetwork tin,
+    final GeometryFactory geometryFactory) {
+    if (tin instanceof IntArrayScaleTriangulatedIrregularNetwork) {
+      final GeometryFactory tinGeometryFactory = tin.getGeometryFactory();
+      return geometryFactory.getScaleX() == tinGeometryFactory.getScaleX()
+        && geometryFactory.getScaleY() == tinGeometryFactory.getScaleY()
+        && geometryFactory.getScaleZ() == tinGeometryFactory.getScaleZ()
+        && geometryFactory.getOffsetX() == 0 && geometryFactory.getOffsetY() == 0
+        && geometryFactory.getOffsetZ() == 0;
+    } else {
+      return false;
+    }
+  }
+
   @Override
   public void open() {
   }
@@ -48,19 +67,34 @@ public class ScaledIntegerTriangulatedIrregularNetworkWriter extends BaseObjectW
       out.putDouble(tinBoundingBox.getMaxX()); // maxX
       out.putDouble(tinBoundingBox.getMaxY()); // maxY
 
-      tin.forEachTriangle(triangle -> {
-        for (int i = 0; i < 3; i++) {
-          final double x = triangle.getX(i);
-          final double y = triangle.getY(i);
-          final double z = triangle.getZ(i);
-          final int intX = geometryFactory.toIntX(x);
-          out.putInt(intX);
-          final int intY = geometryFactory.toIntY(y);
-          out.putInt(intY);
-          final int intZ = geometryFactory.toIntZ(z);
-          out.putInt(intZ);
-        }
-      });
+      if (isSameIntCoordinates(tin, geometryFactory)) {
+        ((IntArrayScaleTriangulatedIrregularNetwork)tin)
+          .forEachTriangleInt((x1, y1, z1, x2, y2, z2, x3, y3, z3) -> {
+            out.putInt(x1);
+            out.putInt(y1);
+            out.putInt(z1);
+            out.putInt(x2);
+            out.putInt(y2);
+            out.putInt(z2);
+            out.putInt(x3);
+            out.putInt(y3);
+            out.putInt(z3);
+          });
+      } else {
+        tin.forEachTriangle(triangle -> {
+          for (int i = 0; i < 3; i++) {
+            final double x = triangle.getX(i);
+            final double y = triangle.getY(i);
+            final double z = triangle.getZ(i);
+            final int intX = geometryFactory.toIntX(x);
+            out.putInt(intX);
+            final int intY = geometryFactory.toIntY(y);
+            out.putInt(intY);
+            final int intZ = geometryFactory.toIntZ(z);
+            out.putInt(intZ);
+          }
+        });
+      }
     } catch (final Exception e) {
       throw Exceptions.wrap("Unable to write: " + this.resource, e);
     }
@@ -43,6 +43,8 @@ import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
 import com.revolsys.elevation.tin.TinBuilder;
 import com.revolsys.elevation.tin.TriangleConsumer;
 import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.quadedge.intscale.IntParallelDelaunayTriangulator;
+import com.revolsys.elevation.tin.quadedge.intscale.PointIntXYZ;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
@@ -427,6 +429,32 @@ public class QuadEdgeDelaunayTinBuilder implements TinBuilder {
       triangleCount, triangleXCoordinates, triangleYCoordinates, triangleZCoordinates);
   }
 
+  /**
+   * Construct the triangulated irregular network using an {@link IntParallelDelaunayTriangulator}
+   * with up to threadCount threads. The vertices are converted to integers using the scales of
+   * the geometry factory.
+   *
+   * @param threadCount The maximum number of threads.
+   * @return The triangulated irregular network.
+   */
+  public final TriangulatedIrregularNetwork newTriangulatedIrregularNetwork(
+    final int threadCount) {
+    final double scaleX = this.scaleX;
+    final double scaleY = this.scaleY;
+    final double scaleZ = this.scaleZ;
+    final List<PointIntXYZ> vertices = new ArrayList<>(this.vertices.size());
+    for (final Point vertex : this.vertices) {
+      final int x = (int)Math.round(vertex.getX() * scaleX);
+      final int y = (int)Math.round(vertex.getY() * scaleY);
+      final int z = (int)Math.round(vertex.getZ() * scaleZ);
+      vertices.add(new PointIntXYZ(x, y, z));
+    }
+    final IntParallelDelaunayTriangulator triangulator = new IntParallelDelaunayTriangulator(
+      this.geometryFactory, vertices, threadCount);
+    final BoundingBox boundingBox = getBoundingBox();
+    return triangulator.newTriangulatedIrregularNetwork(boundingBox);
+  }
+
   protected PointDoubleXYZ newVertex(final double x, final double y, final double z) {
     return new PointDoubleXYZ(x, y, z);
   }
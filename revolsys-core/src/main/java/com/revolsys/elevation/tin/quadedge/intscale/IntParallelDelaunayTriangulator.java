@@ -0,0 +1,509 @@
+package com.revolsys.elevation.tin.quadedge.intscale;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.util.HilbertCurve;
+
+/**
+ * <p>Construct a Delaunay triangulation of {@link PointIntXYZ} vertices using multiple threads.</p>
+ *
+ * <p>The vertices are sorted by x and split into vertical strips with the same number of vertices.
+ * Each strip is triangulated concurrently in its own {@link QuadEdgeSubdivision}, inserting the
+ * vertices in Hilbert curve order so each insertion starts its walk next to the previous
+ * vertex. A triangle from a strip whose circumcircle is strictly inside the strip is a triangle of
+ * the full triangulation. The vertices of the remaining triangles along the strip edges (the seam)
+ * are triangulated again, and the seam triangles that are not covered by the strip triangles
+ * complete the triangulation.</p>
+ *
+ * <p>The result has the same triangles as the sequential {@link QuadEdgeSubdivision} except
+ * where four or more vertices are on the same circle, in which case either diagonal is a valid
+ * Delaunay triangulation.</p>
+ */
+public class IntParallelDelaunayTriangulator {
+
+  private static class IntList {
+    private int[] values = new int[90];
+
+    private int size = 0;
+
+    public void add(final PointIntXYZ point1, final PointIntXYZ point2,
+      final PointIntXYZ point3) {
+      if (this.size + 9 > this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.values.length * 2);
+      }
+      int index = this.size;
+      final int[] values = this.values;
+      for (final PointIntXYZ point : new PointIntXYZ[] {
+        point1, point2, point3
+      }) {
+        values[index++] = point.getX();
+        values[index++] = point.getY();
+        values[index++] = point.getZ();
+      }
+      this.size = index;
+    }
+
+    public void forEachTriangle(final TriangleConsumerInt action) {
+      final int[] values = this.values;
+      for (int i = 0; i < this.size; i += 9) {
+        action.accept(values[i], values[i + 1], values[i + 2], values[i + 3], values[i + 4],
+          values[i + 5], values[i + 6], values[i + 7], values[i + 8]);
+      }
+    }
+
+    public int getTriangleCount() {
+      return this.size / 9;
+    }
+  }
+
+  private class Strip {
+    private final double minX;
+
+    private final double maxX;
+
+    private final PointIntXYZ[] vertices;
+
+    private QuadEdgeSubdivision subdivision;
+
+    private final IntList triangles = new IntList();
+
+    private final Set<PointIntXYZ> seamVertices = Collections
+      .newSetFromMap(new IdentityHashMap<>());
+
+    private final List<PointIntXYZ[]> seamTriangles = new ArrayList<>();
+
+    private Strip(final PointIntXYZ[] vertices, final double minX, final double maxX) {
+      this.vertices = vertices;
+      this.minX = minX;
+      this.maxX = maxX;
+    }
+
+    /**
+     * Add the seam triangles whose centroid is not inside a triangle of this strip.
+     */
+    private void addSeamTriangles() {
+      final QuadEdgeSubdivision subdivision = this.subdivision;
+      for (final PointIntXYZ[] triangle : this.seamTriangles) {
+        final PointIntXYZ point1 = triangle[0];
+        final PointIntXYZ point2 = triangle[1];
+        final PointIntXYZ point3 = triangle[2];
+        final double x3 = (double)point1.getX() + point2.getX() + point3.getX();
+        final double y3 = (double)point1.getY() + point2.getY() + point3.getY();
+        QuadEdge edge = subdivision.findQuadEdge((int)Math.round(x3 / 3),
+          (int)Math.round(y3 / 3));
+        edge = findTriangleEdge(edge, x3, y3);
+        if (!isCovered(edge, x3, y3)) {
+          this.triangles.add(point1, point2, point3);
+        }
+      }
+    }
+
+    /**
+     * Walk from the edge to the triangle containing the centroid. The centroid coordinates are
+     * multiplied by 3 so they can be calculated exactly from the integer vertices.
+     */
+    private QuadEdge findTriangleEdge(QuadEdge edge, final double x3, final double y3) {
+      final int maxIterations = this.vertices.length * 6 + 10;
+      for (int interationCount = 0; interationCount < maxIterations; interationCount++) {
+        final PointIntXYZ fromPoint = edge.getFromPoint();
+        final PointIntXYZ toPoint = edge.getToPoint();
+        if (orientation(fromPoint, toPoint, x3, y3) < 0) {
+          edge = edge.sym();
+        } else {
+          final QuadEdge fromNextEdge = edge.getFromNextEdge();
+          if (orientation(fromPoint, fromNextEdge.getToPoint(), x3, y3) > 0) {
+            edge = fromNextEdge;
+          } else {
+            final QuadEdge toNextEdge = edge.getToNextEdge();
+            if (orientation(toNextEdge.getFromPoint(), toPoint, x3, y3) > 0) {
+              edge = toNextEdge;
+            } else {
+              return edge;
+            }
+          }
+        }
+      }
+      throw new LocateFailureException(edge);
+    }
+
+    /**
+     * Check if the centroid is inside or on the boundary of a triangle from this strip
+     * that is part of the triangulation.
+     */
+    private boolean isCovered(final QuadEdge edge, final double x3, final double y3) {
+      if (isStripTriangle(edge)) {
+        return true;
+      } else {
+        QuadEdge currentEdge = edge;
+        do {
+          if (orientation(currentEdge.getFromPoint(), currentEdge.getToPoint(), x3, y3) == 0) {
+            if (isStripTriangle(currentEdge.sym())) {
+              return true;
+            }
+          }
+          currentEdge = currentEdge.getLeftNext();
+        } while (currentEdge != edge);
+        return false;
+      }
+    }
+
+    private boolean isStripTriangle(final PointIntXYZ point1, final PointIntXYZ point2,
+      final PointIntXYZ point3) {
+      final double x1 = point1.getX();
+      final double y1 = point1.getY();
+      final double bx = point2.getX() - x1;
+      final double by = point2.getY() - y1;
+      final double cx = point3.getX() - x1;
+      final double cy = point3.getY() - y1;
+      final double d = 2 * (bx * cy - by * cx);
+      if (d == 0) {
+        return false;
+      } else {
+        final double b2 = bx * bx + by * by;
+        final double c2 = cx * cx + cy * cy;
+        final double ux = (cy * b2 - by * c2) / d;
+        final double uy = (bx * c2 - cx * b2) / d;
+        final double radius = Math.sqrt(ux * ux + uy * uy) + CIRCLE_TOLERANCE;
+        final double centreX = x1 + ux;
+        return centreX - radius > this.minX && centreX + radius < this.maxX;
+      }
+    }
+
+    private boolean isStripTriangle(final QuadEdge edge) {
+      final PointIntXYZ point1 = edge.getFromPoint();
+      final PointIntXYZ point2 = edge.getToPoint();
+      final PointIntXYZ point3 = edge.getLeftNext().getToPoint();
+      final QuadEdgeSubdivision subdivision = this.subdivision;
+      if (subdivision.isFrameVertex(point1) || subdivision.isFrameVertex(point2)
+        || subdivision.isFrameVertex(point3)) {
+        return false;
+      } else {
+        return isStripTriangle(point1, point2, point3);
+      }
+    }
+
+    /**
+     * Triangulate the vertices and split the triangles into the strip triangles and the seam
+     * vertices.
+     */
+    private void triangulate() {
+      final PointIntXYZ[] vertices = this.vertices;
+      final int[] bounds = getBounds(vertices);
+      this.subdivision = new QuadEdgeSubdivision(bounds,
+        IntParallelDelaunayTriangulator.this.geometryFactory);
+      this.subdivision.insertVertices(Arrays.asList(sortHilbert(vertices, bounds)));
+      this.subdivision.forEachTriangleEdge(edge -> {
+        final PointIntXYZ point1 = edge.getFromPoint();
+        final PointIntXYZ point2 = edge.getToPoint();
+        final PointIntXYZ point3 = edge.getLeftNext().getToPoint();
+        final boolean frame1 = this.subdivision.isFrameVertex(point1);
+        final boolean frame2 = this.subdivision.isFrameVertex(point2);
+        final boolean frame3 = this.subdivision.isFrameVertex(point3);
+        if (!frame1 && !frame2 && !frame3 && isStripTriangle(point1, point2, point3)) {
+          this.triangles.add(point1, point2, point3);
+        } else {
+          if (!frame1) {
+            this.seamVertices.add(point1);
+          }
+          if (!frame2) {
+            this.seamVertices.add(point2);
+          }
+          if (!frame3) {
+            this.seamVertices.add(point3);
+          }
+        }
+      });
+    }
+  }
+
+  /** The distance a strip triangle's circumcircle must be inside the strip. */
+  private static final double CIRCLE_TOLERANCE = 1;
+
+  private static final int HILBERT_ORDER = 16;
+
+  private static final int MIN_STRIP_VERTEX_COUNT = 10000;
+
+  private static int[] getBounds(final PointIntXYZ[] vertices) {
+    int minX = Integer.MAX_VALUE;
+    int minY = Integer.MAX_VALUE;
+    int maxX = Integer.MIN_VALUE;
+    int maxY = Integer.MIN_VALUE;
+    for (final PointIntXYZ vertex : vertices) {
+      final int x = vertex.getX();
+      final int y = vertex.getY();
+      if (x < minX) {
+        minX = x;
+      }
+      if (x > maxX) {
+        maxX = x;
+      }
+      if (y < minY) {
+        minY = y;
+      }
+      if (y > maxY) {
+        maxY = y;
+      }
+    }
+    return new int[] {
+      minX, minY, maxX, maxY
+    };
+  }
+
+  /**
+   * The orientation of the point (x3/3, y3/3) relative to the line from point1 to point2,
+   * positive for left, negative for right and 0 if on the line.
+   */
+  private static double orientation(final PointIntXYZ point1, final PointIntXYZ point2,
+    final double x3, final double y3) {
+    final double x1 = point1.getX();
+    final double y1 = point1.getY();
+    return ((double)point2.getX() - x1) * (y3 - 3 * y1)
+      - ((double)point2.getY() - y1) * (x3 - 3 * x1);
+  }
+
+  /**
+   * Sort the vertices by their position along a Hilbert curve over the bounds. Vertices in
+   * the same cell of the curve stay in their original order.
+   */
+  static PointIntXYZ[] sortHilbert(final PointIntXYZ[] vertices, final int[] bounds) {
+    final int count = vertices.length;
+    final double minX = bounds[0];
+    final double minY = bounds[1];
+    final double maxX = bounds[2];
+    final double maxY = bounds[3];
+    final long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      final PointIntXYZ vertex = vertices[i];
+      final long index = HilbertCurve.index(HILBERT_ORDER, minX, minY, maxX, maxY, vertex.getX(),
+        vertex.getY());
+      keys[i] = index << 32 | i;
+    }
+    Arrays.sort(keys);
+    final PointIntXYZ[] sortedVertices = new PointIntXYZ[count];
+    for (int i = 0; i < count; i++) {
+      sortedVertices[i] = vertices[(int)keys[i]];
+    }
+    return sortedVertices;
+  }
+
+  private final GeometryFactory geometryFactory;
+
+  private final List<PointIntXYZ> vertices;
+
+  private final int threadCount;
+
+  private List<Strip> strips;
+
+  private QuadEdgeSubdivision subdivision;
+
+  public IntParallelDelaunayTriangulator(final GeometryFactory geometryFactory,
+    final List<PointIntXYZ> vertices, final int threadCount) {
+    this.geometryFactory = geometryFactory;
+    this.vertices = vertices;
+    this.threadCount = Math.max(1, threadCount);
+  }
+
+  public void forEachTriangle(final TriangleConsumerInt action) {
+    triangulate();
+    if (this.subdivision == null) {
+      for (final Strip strip : this.strips) {
+        strip.triangles.forEachTriangle(action);
+      }
+    } else {
+      this.subdivision.forEachTriangle(action);
+    }
+  }
+
+  public int getTriangleCount() {
+    triangulate();
+    if (this.subdivision == null) {
+      int triangleCount = 0;
+      for (final Strip strip : this.strips) {
+        triangleCount += strip.triangles.getTriangleCount();
+      }
+      return triangleCount;
+    } else {
+      final int[] triangleCount = new int[1];
+      this.subdivision.forEachTriangle(
+        (TriangleConsumerInt)(x1, y1, z1, x2, y2, z2, x3, y3, z3) -> triangleCount[0]++);
+      return triangleCount[0];
+    }
+  }
+
+  private void invokeAll(final ExecutorService executor, final List<Callable<Void>> tasks) {
+    try {
+      for (final Future<Void> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap("Unable to triangulate vertices", e.getCause());
+    } catch (final InterruptedException e) {
+      throw Exceptions.wrap("Interrupted triangulating vertices", e);
+    }
+  }
+
+  public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork(
+    final BoundingBox boundingBox) {
+    final int triangleCount = getTriangleCount();
+    final int[] triangleXCoordinates = new int[triangleCount * 3];
+    final int[] triangleYCoordinates = new int[triangleCount * 3];
+    final int[] triangleZCoordinates = new int[triangleCount * 3];
+    forEachTriangle(new TriangleConsumerInt() {
+
+      private int coordinateIndex = 0;
+
+      @Override
+      public void accept(final int x1, final int y1, final int z1, final int x2, final int y2,
+        final int z2, final int x3, final int y3, final int z3) {
+        triangleXCoordinates[this.coordinateIndex] = x1;
+        triangleYCoordinates[this.coordinateIndex] = y1;
+        triangleZCoordinates[this.coordinateIndex++] = z1;
+        triangleXCoordinates[this.coordinateIndex] = x2;
+        triangleYCoordinates[this.coordinateIndex] = y2;
+        triangleZCoordinates[this.coordinateIndex++] = z2;
+        triangleXCoordinates[this.coordinateIndex] = x3;
+        triangleYCoordinates[this.coordinateIndex] = y3;
+        triangleZCoordinates[this.coordinateIndex++] = z3;
+      }
+    });
+    return new IntArrayScaleTriangulatedIrregularNetwork(this.geometryFactory, boundingBox,
+      triangleCount, triangleXCoordinates, triangleYCoordinates, triangleZCoordinates);
+  }
+
+  private List<Strip> newStrips(final PointIntXYZ[] vertices) {
+    final int vertexCount = vertices.length;
+    final int stripCount = Math.max(1,
+      Math.min(this.threadCount, vertexCount / MIN_STRIP_VERTEX_COUNT));
+    final List<Strip> strips = new ArrayList<>();
+    int startIndex = 0;
+    double minX = Double.NEGATIVE_INFINITY;
+    for (int i = 1; i <= stripCount && startIndex < vertexCount; i++) {
+      int endIndex = (int)((long)vertexCount * i / stripCount);
+      while (endIndex < vertexCount && endIndex > startIndex
+        && vertices[endIndex].getX() == vertices[endIndex - 1].getX()) {
+        endIndex++;
+      }
+      if (endIndex > startIndex) {
+        double maxX;
+        if (endIndex < vertexCount) {
+          maxX = vertices[endIndex].getX() - 0.5;
+        } else {
+          maxX = Double.POSITIVE_INFINITY;
+        }
+        final PointIntXYZ[] stripVertices = Arrays.copyOfRange(vertices, startIndex, endIndex);
+        strips.add(new Strip(stripVertices, minX, maxX));
+        minX = maxX;
+        startIndex = endIndex;
+      }
+    }
+    return strips;
+  }
+
+  /**
+   * Triangulate the seam vertices and give each triangle to the strip containing its centroid.
+   */
+  private void triangulateSeam() {
+    final List<Strip> strips = this.strips;
+    final List<PointIntXYZ> seamVertexList = new ArrayList<>();
+    for (final Strip strip : strips) {
+      seamVertexList.addAll(strip.seamVertices);
+    }
+    if (!seamVertexList.isEmpty()) {
+      final PointIntXYZ[] seamVertices = seamVertexList.toArray(new PointIntXYZ[0]);
+      Arrays.sort(seamVertices);
+      final int[] bounds = getBounds(seamVertices);
+      final QuadEdgeSubdivision subdivision = new QuadEdgeSubdivision(bounds,
+        this.geometryFactory);
+      subdivision.insertVertices(Arrays.asList(sortHilbert(seamVertices, bounds)));
+      final double[] stripMaxX = new double[strips.size()];
+      for (int i = 0; i < stripMaxX.length; i++) {
+        stripMaxX[i] = strips.get(i).maxX;
+      }
+      subdivision.forEachTriangleEdge(edge -> {
+        final PointIntXYZ point1 = edge.getFromPoint();
+        final PointIntXYZ point2 = edge.getToPoint();
+        final PointIntXYZ point3 = edge.getLeftNext().getToPoint();
+        if (!subdivision.isFrameVertex(point1) && !subdivision.isFrameVertex(point2)
+          && !subdivision.isFrameVertex(point3)) {
+          final double x = ((double)point1.getX() + point2.getX() + point3.getX()) / 3;
+          int stripIndex = Arrays.binarySearch(stripMaxX, x);
+          if (stripIndex < 0) {
+            stripIndex = -stripIndex - 1;
+          }
+          strips.get(stripIndex).seamTriangles.add(new PointIntXYZ[] {
+            point1, point2, point3
+          });
+        }
+      });
+    }
+  }
+
+  private synchronized void triangulate() {
+    if (this.strips == null) {
+      final PointIntXYZ[] vertices = this.vertices.toArray(new PointIntXYZ[0]);
+      if (vertices.length == 0) {
+        this.strips = Collections.emptyList();
+        return;
+      }
+      Arrays.parallelSort(vertices);
+      final List<Strip> strips = newStrips(vertices);
+      if (strips.size() == 1) {
+        final int[] bounds = getBounds(vertices);
+        final QuadEdgeSubdivision subdivision = new QuadEdgeSubdivision(bounds,
+          this.geometryFactory);
+        subdivision.insertVertices(Arrays.asList(sortHilbert(vertices, bounds)));
+        this.subdivision = subdivision;
+        this.strips = strips;
+        return;
+      }
+      final ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(this.threadCount, strips.size()), runnable -> {
+          final Thread thread = new Thread(runnable, "Delaunay Triangulation");
+          thread.setDaemon(true);
+          return thread;
+        });
+      try {
+        final List<Callable<Void>> triangulateTasks = new ArrayList<>();
+        for (final Strip strip : strips) {
+          triangulateTasks.add(() -> {
+            strip.triangulate();
+            return null;
+          });
+        }
+        invokeAll(executor, triangulateTasks);
+        this.strips = strips;
+
+        triangulateSeam();
+
+        final List<Callable<Void>> seamTasks = new ArrayList<>();
+        for (final Strip strip : strips) {
+          seamTasks.add(() -> {
+            strip.addSeamTriangles();
+            strip.subdivision = null;
+            strip.seamTriangles.clear();
+            return null;
+          });
+        }
+        invokeAll(executor, seamTasks);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+  }
+}
@@ -209,6 +209,20 @@ public class IntQuadEdgeDelaunayTinBuilder {
       triangleCount, triangleXCoordinates, triangleYCoordinates, triangleZCoordinates);
   }
 
+  /**
+   * Construct the triangulated irregular network using an {@link IntParallelDelaunayTriangulator}
+   * with up to threadCount threads.
+   *
+   * @param threadCount The maximum number of threads.
+   * @return The triangulated irregular network.
+   */
+  public TriangulatedIrregularNetwork newTriangulatedIrregularNetwork(final int threadCount) {
+    final IntParallelDelaunayTriangulator triangulator = new IntParallelDelaunayTriangulator(
+      this.geometryFactory, this.vertices, threadCount);
+    final BoundingBox boundingBox = getBoundingBox();
+    return triangulator.newTriangulatedIrregularNetwork(boundingBox);
+  }
+
   public void setSortVertices(final boolean sortVertices) {
     this.sortVertices = sortVertices;
   }
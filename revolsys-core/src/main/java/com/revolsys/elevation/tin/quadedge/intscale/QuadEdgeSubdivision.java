@@ -35,11 +35,11 @@ package com.revolsys.elevation.tin.quadedge.intscale;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.function.Consumer;
 
 import com.revolsys.elevation.tin.TriangleConsumer;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.Side;
-import com.revolsys.geometry.model.coordinates.LineSegmentUtil;
 
 /**
  * A class that contains the {@link QuadEdge}s representing a planar
@@ -381,6 +381,38 @@ public class QuadEdgeSubdivision {
     }
   }
 
+  /**
+   * Visit one {@link QuadEdge} for each face in the subdivision, including the frame triangles.
+   * The face is the left face of the edge and its vertices are the edge's from point, to point
+   * and the to point of {@link QuadEdge#getLeftNext()}.
+   *
+   * @param action The action to perform on the edge.
+   */
+  public void forEachTriangleEdge(final Consumer<QuadEdge> action) {
+    if (this.visitIndex == Short.MAX_VALUE) {
+      this.visitIndex = Short.MIN_VALUE;
+    }
+    final short visitIndex = ++this.visitIndex;
+    final Deque<QuadEdge> edgeStack = new LinkedList<>();
+    edgeStack.push(this.startingEdge);
+
+    while (!edgeStack.isEmpty()) {
+      final QuadEdge edge = edgeStack.pop();
+      if (!edge.isVisited(visitIndex)) {
+        QuadEdge currentEdge = edge;
+        do {
+          final QuadEdge sym = currentEdge.sym();
+          if (!sym.isVisited(visitIndex)) {
+            edgeStack.push(sym);
+          }
+          currentEdge.setVisited(visitIndex);
+          currentEdge = currentEdge.getLeftNext();
+        } while (currentEdge != edge);
+        action.accept(edge);
+      }
+    }
+  }
+
   public GeometryFactory getGeometryFactory() {
     return this.geometryFactory;
   }
@@ -405,31 +437,38 @@ public class QuadEdgeSubdivision {
      * to be created)
      */
     QuadEdge edge = findQuadEdge(x, y);
-
-    PointIntXYZ edgeFromPoint = edge.getFromPoint();
-    {
-      final int x1 = edgeFromPoint.getX();
-      final int y1 = edgeFromPoint.getY();
+    /*
+     * The vertex can be on any of the edges of the triangle (or a vertex of the
+     * triangle) as the locate only moves to a neighbour triangle if the vertex
+     * is strictly to the left of the edge. As the vertex is inside the
+     * triangle, a vertex on the line of an edge is on that edge.
+     */
+    final QuadEdge triangleEdge = edge;
+    boolean onEdge = false;
+    QuadEdge currentEdge = triangleEdge;
+    do {
+      final PointIntXYZ fromPoint = currentEdge.getFromPoint();
+      final int x1 = fromPoint.getX();
+      final int y1 = fromPoint.getY();
       if (x1 == x && y1 == y) {
         return;
-      } else {
-        final PointIntXYZ toPoint = edge.getToPoint();
+      } else if (!onEdge) {
+        final PointIntXYZ toPoint = currentEdge.getToPoint();
         final int x2 = toPoint.getX();
         final int y2 = toPoint.getY();
-
-        if (x2 == x && y2 == y) {
-          return;
-        } else {
-          final double distance = LineSegmentUtil.distanceLinePoint(x1, y1, x2, y2, x, y);
-          if (distance < 1) {
-            edge = edge.oPrev();
-            delete(edge.getFromNextEdge());
-            edgeFromPoint = edge.getFromPoint();
-          }
+        if (Side.getSide(x1, y1, x2, y2, x, y) == Side.ON) {
+          edge = currentEdge;
+          onEdge = true;
         }
       }
+      currentEdge = currentEdge.getLeftNext();
+    } while (currentEdge != triangleEdge);
+
+    if (onEdge) {
+      edge = edge.oPrev();
+      delete(edge.getFromNextEdge());
     }
-    final PointIntXYZ fromPoint = edgeFromPoint;
+    final PointIntXYZ fromPoint = edge.getFromPoint();
     /*
      * Connect the new point to the vertices of the containing triangle (or
      * quadrilateral, if the new point fell on an existing edge.)
@@ -479,6 +518,10 @@ public class QuadEdgeSubdivision {
     return false;
   }
 
+  public boolean isFrameVertex(final PointIntXYZ vertex) {
+    return isFrameCoordinate(vertex.getX(), vertex.getY());
+  }
+
   private void swapEdges(final QuadEdge startEdge, QuadEdge edge, final int x, final int y) {
     // Examine suspect edges to ensure that the Delaunay condition
     // is satisfied.
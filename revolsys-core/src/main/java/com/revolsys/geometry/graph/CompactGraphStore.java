@@ -0,0 +1,840 @@
+package com.revolsys.geometry.graph;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.revolsys.collection.map.IntHashMap;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.impl.PointDoubleXY;
+
+/**
+ * Struct of arrays storage for a compact {@link Graph}. The node coordinates, edge end node ids
+ * and the edge lines and objects are stored in arrays indexed by id. The in and out edges of a
+ * node are stored as linked lists through the edges (first edge id per node, next edge id per
+ * edge) so no per node arrays are kept. Nodes are found by their coordinates using an open
+ * addressing hash table of node ids.
+ * <p>
+ * The {@link Node} and {@link Edge} objects are flyweights created on demand from the arrays.
+ * They are cached using weak references so the same object is returned for an id while it is
+ * referenced, once it is garbage collected a new object will be created the next time it is
+ * requested. The changes to the edges of a node are written back to the arrays using
+ * {@link #setNodeEdgeIds(int, int[], int[])}.
+ * </p>
+ * <p>
+ * The storage is exposed to {@link Graph} using map views with the same keys and values as the
+ * maps used by a non compact graph.
+ * </p>
+ *
+ * @param <T> The type of object stored on the edges in the graph.
+ */
+class CompactGraphStore<T> {
+  private class EdgeMap extends IdMap<Edge<T>> {
+    @Override
+    public void clear() {
+      clearEdges();
+    }
+
+    @Override
+    protected Edge<T> getValue(final int edgeId) {
+      return getEdge(edgeId);
+    }
+
+    @Override
+    protected boolean isLive(final int edgeId) {
+      return isEdgeLive(edgeId);
+    }
+
+    @Override
+    protected int maxId() {
+      return CompactGraphStore.this.maxEdgeId;
+    }
+
+    @Override
+    protected Edge<T> removeValue(final int edgeId) {
+      return removeEdge(edgeId);
+    }
+
+    @Override
+    protected Edge<T> setValue(final int edgeId, final Edge<T> edge) {
+      setEdge(edge);
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return CompactGraphStore.this.edgeCount;
+    }
+  }
+
+  private class EdgeValueMap<V> extends IdMap<V> {
+    private final int valueIndex;
+
+    private EdgeValueMap(final int valueIndex) {
+      this.valueIndex = valueIndex;
+    }
+
+    @Override
+    public void clear() {
+      Arrays.fill(CompactGraphStore.this.edgeValues[this.valueIndex], null);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected V getValue(final int edgeId) {
+      final Object[] values = CompactGraphStore.this.edgeValues[this.valueIndex];
+      if (edgeId > 0 && edgeId < values.length) {
+        return (V)values[edgeId];
+      } else {
+        return null;
+      }
+    }
+
+    @Override
+    protected boolean isLive(final int edgeId) {
+      return isEdgeLive(edgeId);
+    }
+
+    @Override
+    protected int maxId() {
+      return CompactGraphStore.this.maxEdgeId;
+    }
+
+    @Override
+    protected V removeValue(final int edgeId) {
+      final V oldValue = getValue(edgeId);
+      if (oldValue != null) {
+        CompactGraphStore.this.edgeValues[this.valueIndex][edgeId] = null;
+      }
+      return oldValue;
+    }
+
+    @Override
+    protected V setValue(final int edgeId, final V value) {
+      ensureEdgeCapacity(edgeId);
+      final Object[] values = CompactGraphStore.this.edgeValues[this.valueIndex];
+      @SuppressWarnings("unchecked")
+      final V oldValue = (V)values[edgeId];
+      values[edgeId] = value;
+      return oldValue;
+    }
+
+    @Override
+    public int size() {
+      return CompactGraphStore.this.edgeCount;
+    }
+  }
+
+  /**
+   * A map view of values by their id, the ids are 1..maxId.
+   */
+  private abstract class IdMap<V> extends AbstractMap<Integer, V> {
+    private final Set<Integer> keySet = new AbstractSet<Integer>() {
+      @Override
+      public boolean contains(final Object key) {
+        return containsKey(key);
+      }
+
+      @Override
+      public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+          private int nextId = nextLiveId(0);
+
+          @Override
+          public boolean hasNext() {
+            return this.nextId > 0;
+          }
+
+          @Override
+          public Integer next() {
+            if (this.nextId > 0) {
+              final int id = this.nextId;
+              this.nextId = nextLiveId(id);
+              return id;
+            } else {
+              throw new NoSuchElementException();
+            }
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return IdMap.this.size();
+      }
+    };
+
+    private final Set<Map.Entry<Integer, V>> entrySet = new AbstractSet<Map.Entry<Integer, V>>() {
+      @Override
+      public Iterator<Map.Entry<Integer, V>> iterator() {
+        final Iterator<Integer> ids = IdMap.this.keySet.iterator();
+        return new Iterator<Map.Entry<Integer, V>>() {
+          @Override
+          public boolean hasNext() {
+            return ids.hasNext();
+          }
+
+          @Override
+          public Map.Entry<Integer, V> next() {
+            final Integer id = ids.next();
+            return new SimpleImmutableEntry<>(id, getValue(id));
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return IdMap.this.size();
+      }
+    };
+
+    @Override
+    public boolean containsKey(final Object key) {
+      if (key instanceof Integer) {
+        return isLive((Integer)key);
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, V>> entrySet() {
+      return this.entrySet;
+    }
+
+    @Override
+    public V get(final Object key) {
+      if (key instanceof Integer) {
+        return getValue((Integer)key);
+      } else {
+        return null;
+      }
+    }
+
+    protected abstract V getValue(int id);
+
+    protected abstract boolean isLive(int id);
+
+    @Override
+    public Set<Integer> keySet() {
+      return this.keySet;
+    }
+
+    protected abstract int maxId();
+
+    private int nextLiveId(final int id) {
+      final int maxId = maxId();
+      for (int nextId = id + 1; nextId <= maxId; nextId++) {
+        if (isLive(nextId)) {
+          return nextId;
+        }
+      }
+      return 0;
+    }
+
+    @Override
+    public V put(final Integer key, final V value) {
+      return setValue(key, value);
+    }
+
+    @Override
+    public V remove(final Object key) {
+      if (key instanceof Integer) {
+        return removeValue((Integer)key);
+      } else {
+        return null;
+      }
+    }
+
+    protected abstract V removeValue(int id);
+
+    protected abstract V setValue(int id, V value);
+  }
+
+  private static class IdReference<V> extends WeakReference<V> {
+    private final int id;
+
+    private IdReference(final int id, final V value, final ReferenceQueue<? super V> queue) {
+      super(value, queue);
+      this.id = id;
+    }
+  }
+
+  private class NodeIdByPointMap extends AbstractMap<Point, Integer> {
+    private final Set<Map.Entry<Point, Integer>> entrySet = new AbstractSet<Map.Entry<Point, Integer>>() {
+      @Override
+      public Iterator<Map.Entry<Point, Integer>> iterator() {
+        final Iterator<Integer> ids = CompactGraphStore.this.nodesById.keySet().iterator();
+        return new Iterator<Map.Entry<Point, Integer>>() {
+          @Override
+          public boolean hasNext() {
+            return ids.hasNext();
+          }
+
+          @Override
+          public Map.Entry<Point, Integer> next() {
+            final Integer nodeId = ids.next();
+            final Point point = new PointDoubleXY(CompactGraphStore.this.nodeXs[nodeId],
+              CompactGraphStore.this.nodeYs[nodeId]);
+            return new SimpleImmutableEntry<>(point, nodeId);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return CompactGraphStore.this.nodeCount;
+      }
+    };
+
+    private final Collection<Integer> values = new AbstractCollection<Integer>() {
+      @Override
+      public Iterator<Integer> iterator() {
+        return CompactGraphStore.this.nodesById.keySet().iterator();
+      }
+
+      @Override
+      public int size() {
+        return CompactGraphStore.this.nodeCount;
+      }
+    };
+
+    @Override
+    public void clear() {
+      clearNodes();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return get(key) != null;
+    }
+
+    @Override
+    public Set<Map.Entry<Point, Integer>> entrySet() {
+      return this.entrySet;
+    }
+
+    @Override
+    public Integer get(final Object key) {
+      if (key instanceof Point) {
+        final Point point = (Point)key;
+        final int nodeId = findNodeId(point.getX(), point.getY());
+        if (nodeId > 0) {
+          return nodeId;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Integer put(final Point point, final Integer nodeId) {
+      final Integer oldNodeId = get(point);
+      if (oldNodeId == null || oldNodeId.intValue() != nodeId) {
+        addNode(nodeId, point.getX(), point.getY());
+      }
+      return oldNodeId;
+    }
+
+    @Override
+    public Integer remove(final Object key) {
+      if (key instanceof Point) {
+        final Point point = (Point)key;
+        final int nodeId = findNodeId(point.getX(), point.getY());
+        if (nodeId > 0) {
+          removeNodeFromIndex(nodeId);
+          return nodeId;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return CompactGraphStore.this.nodeCount;
+    }
+
+    @Override
+    public Collection<Integer> values() {
+      return this.values;
+    }
+  }
+
+  private class NodeMap extends IdMap<Node<T>> {
+    @Override
+    public void clear() {
+      clearNodes();
+    }
+
+    @Override
+    protected Node<T> getValue(final int nodeId) {
+      return getNode(nodeId);
+    }
+
+    @Override
+    protected boolean isLive(final int nodeId) {
+      return isNodeLive(nodeId);
+    }
+
+    @Override
+    protected int maxId() {
+      return CompactGraphStore.this.maxNodeId;
+    }
+
+    @Override
+    protected Node<T> removeValue(final int nodeId) {
+      return removeNode(nodeId);
+    }
+
+    @Override
+    protected Node<T> setValue(final int nodeId, final Node<T> node) {
+      setNode(node);
+      return null;
+    }
+
+    @Override
+    public int size() {
+      return CompactGraphStore.this.nodeCount;
+    }
+  }
+
+  private static final int EDGE_LINE = 0;
+
+  private static final int EDGE_OBJECT = 1;
+
+  private static final int[] EMPTY_IDS = new int[0];
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private static int hash(final double x, final double y) {
+    // Adding 0.0 converts -0.0 to 0.0 so they hash the same as they are equal
+    long hash = Double.doubleToLongBits(x + 0.0) * 31 + Double.doubleToLongBits(y + 0.0);
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return (int)hash;
+  }
+
+  private static int newCapacity(final int capacity, final int id) {
+    return Math.max(id + 1, capacity + (capacity >> 1));
+  }
+
+  private int edgeCount;
+
+  private int[] edgeFromNodeIds = new int[INITIAL_CAPACITY];
+
+  private final EdgeValueMap<Object> edgeLinesById = new EdgeValueMap<>(EDGE_LINE);
+
+  private int[] edgeNextInEdgeIds = new int[INITIAL_CAPACITY];
+
+  private int[] edgeNextOutEdgeIds = new int[INITIAL_CAPACITY];
+
+  private final EdgeValueMap<Object> edgeObjectsById = new EdgeValueMap<>(EDGE_OBJECT);
+
+  private final ReferenceQueue<Edge<T>> edgeReferenceQueue = new ReferenceQueue<>();
+
+  private final IntHashMap<IdReference<Edge<T>>> edgeReferences = new IntHashMap<>();
+
+  private final EdgeMap edgesById = new EdgeMap();
+
+  private int[] edgeToNodeIds = new int[INITIAL_CAPACITY];
+
+  private final Object[][] edgeValues = {
+    new Object[INITIAL_CAPACITY], new Object[INITIAL_CAPACITY]
+  };
+
+  private final Graph<T> graph;
+
+  private int maxEdgeId;
+
+  private int maxNodeId;
+
+  private int nodeCount;
+
+  private int[] nodeFirstInEdgeIds = new int[INITIAL_CAPACITY];
+
+  private int[] nodeFirstOutEdgeIds = new int[INITIAL_CAPACITY];
+
+  private final NodeIdByPointMap nodeIdsByPoint = new NodeIdByPointMap();
+
+  /** Open addressing hash table of node ids by coordinates, 0 is an empty slot. */
+  private int[] nodeIndex = new int[INITIAL_CAPACITY];
+
+  private final ReferenceQueue<Node<T>> nodeReferenceQueue = new ReferenceQueue<>();
+
+  private final IntHashMap<IdReference<Node<T>>> nodeReferences = new IntHashMap<>();
+
+  private final NodeMap nodesById = new NodeMap();
+
+  private double[] nodeXs = newNodeCoordinates(INITIAL_CAPACITY);
+
+  private double[] nodeYs = newNodeCoordinates(INITIAL_CAPACITY);
+
+  CompactGraphStore(final Graph<T> graph) {
+    this.graph = graph;
+  }
+
+  private void addNode(final int nodeId, final double x, final double y) {
+    if (isNodeLive(nodeId)) {
+      removeNodeFromIndex(nodeId);
+    } else {
+      ensureNodeCapacity(nodeId);
+      this.nodeCount++;
+      if (nodeId > this.maxNodeId) {
+        this.maxNodeId = nodeId;
+      }
+    }
+    this.nodeXs[nodeId] = x;
+    this.nodeYs[nodeId] = y;
+    addNodeToIndex(nodeId);
+  }
+
+  private void addNodeToIndex(final int nodeId) {
+    if (this.nodeCount * 4 > this.nodeIndex.length * 3) {
+      resizeNodeIndex(this.nodeIndex.length * 2);
+    }
+    final int[] nodeIndex = this.nodeIndex;
+    final int mask = nodeIndex.length - 1;
+    int slot = hash(this.nodeXs[nodeId], this.nodeYs[nodeId]) & mask;
+    while (nodeIndex[slot] != 0) {
+      slot = slot + 1 & mask;
+    }
+    nodeIndex[slot] = nodeId;
+  }
+
+  private void clearEdges() {
+    this.edgeFromNodeIds = new int[INITIAL_CAPACITY];
+    this.edgeToNodeIds = new int[INITIAL_CAPACITY];
+    this.edgeNextInEdgeIds = new int[INITIAL_CAPACITY];
+    this.edgeNextOutEdgeIds = new int[INITIAL_CAPACITY];
+    this.edgeValues[EDGE_LINE] = new Object[INITIAL_CAPACITY];
+    this.edgeValues[EDGE_OBJECT] = new Object[INITIAL_CAPACITY];
+    this.edgeReferences.clear();
+    this.edgeCount = 0;
+    this.maxEdgeId = 0;
+  }
+
+  private void clearNodes() {
+    this.nodeXs = newNodeCoordinates(INITIAL_CAPACITY);
+    this.nodeYs = newNodeCoordinates(INITIAL_CAPACITY);
+    this.nodeFirstInEdgeIds = new int[INITIAL_CAPACITY];
+    this.nodeFirstOutEdgeIds = new int[INITIAL_CAPACITY];
+    this.nodeIndex = new int[INITIAL_CAPACITY];
+    this.nodeReferences.clear();
+    this.nodeCount = 0;
+    this.maxNodeId = 0;
+  }
+
+  private void ensureEdgeCapacity(final int edgeId) {
+    final int capacity = this.edgeFromNodeIds.length;
+    if (edgeId >= capacity) {
+      final int newCapacity = newCapacity(capacity, edgeId);
+      this.edgeFromNodeIds = Arrays.copyOf(this.edgeFromNodeIds, newCapacity);
+      this.edgeToNodeIds = Arrays.copyOf(this.edgeToNodeIds, newCapacity);
+      this.edgeNextInEdgeIds = Arrays.copyOf(this.edgeNextInEdgeIds, newCapacity);
+      this.edgeNextOutEdgeIds = Arrays.copyOf(this.edgeNextOutEdgeIds, newCapacity);
+      this.edgeValues[EDGE_LINE] = Arrays.copyOf(this.edgeValues[EDGE_LINE], newCapacity);
+      this.edgeValues[EDGE_OBJECT] = Arrays.copyOf(this.edgeValues[EDGE_OBJECT], newCapacity);
+    }
+  }
+
+  private void ensureNodeCapacity(final int nodeId) {
+    final int capacity = this.nodeXs.length;
+    if (nodeId >= capacity) {
+      final int newCapacity = newCapacity(capacity, nodeId);
+      final double[] nodeXs = newNodeCoordinates(newCapacity);
+      System.arraycopy(this.nodeXs, 0, nodeXs, 0, capacity);
+      this.nodeXs = nodeXs;
+      this.nodeYs = Arrays.copyOf(this.nodeYs, newCapacity);
+      this.nodeFirstInEdgeIds = Arrays.copyOf(this.nodeFirstInEdgeIds, newCapacity);
+      this.nodeFirstOutEdgeIds = Arrays.copyOf(this.nodeFirstOutEdgeIds, newCapacity);
+    }
+  }
+
+  /**
+   * Find the id of the node with the coordinates.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The node id or 0 if there is no node at the coordinates.
+   */
+  int findNodeId(final double x, final double y) {
+    final int[] nodeIndex = this.nodeIndex;
+    final double[] nodeXs = this.nodeXs;
+    final double[] nodeYs = this.nodeYs;
+    final int mask = nodeIndex.length - 1;
+    int slot = hash(x, y) & mask;
+    while (true) {
+      final int nodeId = nodeIndex[slot];
+      if (nodeId == 0) {
+        return 0;
+      } else if (nodeXs[nodeId] == x && nodeYs[nodeId] == y) {
+        return nodeId;
+      }
+      slot = slot + 1 & mask;
+    }
+  }
+
+  private int findNodeIndexSlot(final int nodeId) {
+    final int[] nodeIndex = this.nodeIndex;
+    final int mask = nodeIndex.length - 1;
+    int slot = hash(this.nodeXs[nodeId], this.nodeYs[nodeId]) & mask;
+    while (true) {
+      final int slotNodeId = nodeIndex[slot];
+      if (slotNodeId == 0) {
+        return -1;
+      } else if (slotNodeId == nodeId) {
+        return slot;
+      }
+      slot = slot + 1 & mask;
+    }
+  }
+
+  private Edge<T> getEdge(final int edgeId) {
+    if (isEdgeLive(edgeId)) {
+      processQueue(this.edgeReferenceQueue, this.edgeReferences);
+      final IdReference<Edge<T>> reference = this.edgeReferences.get(edgeId);
+      if (reference != null) {
+        final Edge<T> edge = reference.get();
+        if (edge != null) {
+          return edge;
+        }
+      }
+      final Edge<T> edge = new Edge<>(edgeId, this.graph, this.edgeFromNodeIds[edgeId],
+        this.edgeToNodeIds[edgeId]);
+      this.edgeReferences.put(edgeId, new IdReference<>(edgeId, edge, this.edgeReferenceQueue));
+      return edge;
+    } else {
+      return null;
+    }
+  }
+
+  private int[] getEdgeIds(final int firstEdgeId, final int[] nextEdgeIds) {
+    if (firstEdgeId == 0) {
+      return EMPTY_IDS;
+    } else {
+      int count = 0;
+      for (int edgeId = firstEdgeId; edgeId != 0; edgeId = nextEdgeIds[edgeId]) {
+        count++;
+      }
+      final int[] edgeIds = new int[count];
+      int i = 0;
+      for (int edgeId = firstEdgeId; edgeId != 0; edgeId = nextEdgeIds[edgeId]) {
+        edgeIds[i++] = edgeId;
+      }
+      return edgeIds;
+    }
+  }
+
+  Map<Integer, Edge<T>> getEdgesById() {
+    return this.edgesById;
+  }
+
+  @SuppressWarnings("unchecked")
+  <V> Map<Integer, V> getEdgeValuesById(final boolean lines) {
+    if (lines) {
+      return (Map<Integer, V>)this.edgeLinesById;
+    } else {
+      return (Map<Integer, V>)this.edgeObjectsById;
+    }
+  }
+
+  private Node<T> getNode(final int nodeId) {
+    if (isNodeLive(nodeId)) {
+      processQueue(this.nodeReferenceQueue, this.nodeReferences);
+      final IdReference<Node<T>> reference = this.nodeReferences.get(nodeId);
+      if (reference != null) {
+        final Node<T> node = reference.get();
+        if (node != null) {
+          return node;
+        }
+      }
+      final int[] inEdgeIds = getEdgeIds(this.nodeFirstInEdgeIds[nodeId],
+        this.edgeNextInEdgeIds);
+      final int[] outEdgeIds = getEdgeIds(this.nodeFirstOutEdgeIds[nodeId],
+        this.edgeNextOutEdgeIds);
+      final Node<T> node = new Node<>(nodeId, this.graph, this.nodeXs[nodeId],
+        this.nodeYs[nodeId], inEdgeIds, outEdgeIds);
+      this.nodeReferences.put(nodeId, new IdReference<>(nodeId, node, this.nodeReferenceQueue));
+      return node;
+    } else {
+      return null;
+    }
+  }
+
+  Map<Point, Integer> getNodeIdsByPoint() {
+    return this.nodeIdsByPoint;
+  }
+
+  Map<Integer, Node<T>> getNodesById() {
+    return this.nodesById;
+  }
+
+  private boolean isEdgeLive(final int edgeId) {
+    return edgeId > 0 && edgeId <= this.maxEdgeId && this.edgeFromNodeIds[edgeId] != 0;
+  }
+
+  private boolean isNodeLive(final int nodeId) {
+    return nodeId > 0 && nodeId <= this.maxNodeId && !Double.isNaN(this.nodeXs[nodeId]);
+  }
+
+  private static double[] newNodeCoordinates(final int capacity) {
+    final double[] coordinates = new double[capacity];
+    Arrays.fill(coordinates, Double.NaN);
+    return coordinates;
+  }
+
+  private <V> void processQueue(final ReferenceQueue<V> queue,
+    final IntHashMap<IdReference<V>> references) {
+    for (Object reference = queue.poll(); reference != null; reference = queue.poll()) {
+      final IdReference<?> idReference = (IdReference<?>)reference;
+      final int id = idReference.id;
+      if (references.get(id) == idReference) {
+        references.remove(id);
+      }
+    }
+  }
+
+  private Edge<T> removeEdge(final int edgeId) {
+    if (isEdgeLive(edgeId)) {
+      final Edge<T> edge = getEdge(edgeId);
+      // The next edge ids are kept as the nodes' edge lists are updated after the edge is removed
+      this.edgeFromNodeIds[edgeId] = 0;
+      this.edgeToNodeIds[edgeId] = 0;
+      this.edgeValues[EDGE_LINE][edgeId] = null;
+      this.edgeValues[EDGE_OBJECT][edgeId] = null;
+      this.edgeReferences.remove(edgeId);
+      this.edgeCount--;
+      return edge;
+    } else {
+      return null;
+    }
+  }
+
+  private Node<T> removeNode(final int nodeId) {
+    if (isNodeLive(nodeId)) {
+      final Node<T> node = getNode(nodeId);
+      removeNodeFromIndex(nodeId);
+      this.nodeXs[nodeId] = Double.NaN;
+      this.nodeYs[nodeId] = Double.NaN;
+      this.nodeFirstInEdgeIds[nodeId] = 0;
+      this.nodeFirstOutEdgeIds[nodeId] = 0;
+      this.nodeReferences.remove(nodeId);
+      this.nodeCount--;
+      return node;
+    } else {
+      return null;
+    }
+  }
+
+  private void removeNodeFromIndex(final int nodeId) {
+    int slot = findNodeIndexSlot(nodeId);
+    if (slot >= 0) {
+      final int[] nodeIndex = this.nodeIndex;
+      final int mask = nodeIndex.length - 1;
+      int nextSlot = slot;
+      while (true) {
+        nextSlot = nextSlot + 1 & mask;
+        final int nextNodeId = nodeIndex[nextSlot];
+        if (nextNodeId == 0) {
+          break;
+        }
+        final int idealSlot = hash(this.nodeXs[nextNodeId], this.nodeYs[nextNodeId]) & mask;
+        // Move the node id back if the deleted slot is between its ideal slot and its slot
+        if (slot <= nextSlot ? slot >= idealSlot || idealSlot > nextSlot
+          : slot >= idealSlot && idealSlot > nextSlot) {
+          nodeIndex[slot] = nextNodeId;
+          slot = nextSlot;
+        }
+      }
+      nodeIndex[slot] = 0;
+    }
+  }
+
+  private void resizeNodeIndex(final int capacity) {
+    final int[] oldNodeIndex = this.nodeIndex;
+    final int[] nodeIndex = new int[capacity];
+    final int mask = capacity - 1;
+    for (final int nodeId : oldNodeIndex) {
+      if (nodeId != 0) {
+        int slot = hash(this.nodeXs[nodeId], this.nodeYs[nodeId]) & mask;
+        while (nodeIndex[slot] != 0) {
+          slot = slot + 1 & mask;
+        }
+        nodeIndex[slot] = nodeId;
+      }
+    }
+    this.nodeIndex = nodeIndex;
+  }
+
+  private void setEdge(final Edge<T> edge) {
+    final int edgeId = edge.getId();
+    ensureEdgeCapacity(edgeId);
+    if (!isEdgeLive(edgeId)) {
+      this.edgeCount++;
+      if (edgeId > this.maxEdgeId) {
+        this.maxEdgeId = edgeId;
+      }
+    }
+    this.edgeFromNodeIds[edgeId] = edge.getFromNodeId();
+    this.edgeToNodeIds[edgeId] = edge.getToNodeId();
+    this.edgeReferences.put(edgeId, new IdReference<>(edgeId, edge, this.edgeReferenceQueue));
+  }
+
+  private void setEdgeIds(final int[] firstEdgeIds, final int nodeId, final int[] nextEdgeIds,
+    final int[] edgeIds) {
+    if (edgeIds.length == 0) {
+      firstEdgeIds[nodeId] = 0;
+    } else {
+      firstEdgeIds[nodeId] = edgeIds[0];
+      for (int i = 0; i < edgeIds.length; i++) {
+        final int edgeId = edgeIds[i];
+        if (i + 1 < edgeIds.length) {
+          nextEdgeIds[edgeId] = edgeIds[i + 1];
+        } else {
+          nextEdgeIds[edgeId] = 0;
+        }
+      }
+    }
+  }
+
+  private void setNode(final Node<T> node) {
+    final int nodeId = node.getId();
+    final double x = node.getX();
+    final double y = node.getY();
+    if (!isNodeLive(nodeId) || this.nodeXs[nodeId] != x || this.nodeYs[nodeId] != y) {
+      addNode(nodeId, x, y);
+    }
+    setNodeEdgeIds(nodeId, node.getInEdgeIds(), node.getOutEdgeIds());
+    this.nodeReferences.put(nodeId, new IdReference<>(nodeId, node, this.nodeReferenceQueue));
+  }
+
+  /**
+   * Write the ordered in and out edge ids of the node to the edge lists.
+   *
+   * @param nodeId The node id.
+   * @param inEdgeIds The ids of the edges that end at the node.
+   * @param outEdgeIds The ids of the edges that start at the node.
+   */
+  void setNodeEdgeIds(final int nodeId, final int[] inEdgeIds, final int[] outEdgeIds) {
+    if (isNodeLive(nodeId)) {
+      int maxEdgeId = 0;
+      for (final int edgeId : inEdgeIds) {
+        maxEdgeId = Math.max(maxEdgeId, edgeId);
+      }
+      for (final int edgeId : outEdgeIds) {
+        maxEdgeId = Math.max(maxEdgeId, edgeId);
+      }
+      ensureEdgeCapacity(maxEdgeId);
+      setEdgeIds(this.nodeFirstInEdgeIds, nodeId, this.edgeNextInEdgeIds, inEdgeIds);
+      setEdgeIds(this.nodeFirstOutEdgeIds, nodeId, this.edgeNextOutEdgeIds, outEdgeIds);
+    }
+  }
+}
@@ -211,6 +211,16 @@ public class Edge<T> implements DelegatingLineString, ObjectWithProperties, Exte
     toNode.addInEdge(this);
   }
 
+  /**
+   * Construct a flyweight edge for an edge already stored in a compact graph.
+   */
+  Edge(final int id, final Graph<T> graph, final int fromNodeId, final int toNodeId) {
+    this.id = id;
+    this.graph = graph;
+    this.fromNodeId = fromNodeId;
+    this.toNodeId = toNodeId;
+  }
+
   @Override
   public void clearProperties() {
     if (this.graph != null) {
@@ -299,14 +309,6 @@ public class Edge<T> implements DelegatingLineString, ObjectWithProperties, Exte
     }
   }
 
-  @Override
-  protected void finalize() throws Throwable {
-    if (this.graph != null) {
-      this.graph.evict(this);
-    }
-    super.finalize();
-  }
-
   public double getAngle(final Node<T> node) {
     if (node.getGraph() == this.graph) {
       final int nodeId = node.getId();
@@ -394,6 +396,10 @@ public class Edge<T> implements DelegatingLineString, ObjectWithProperties, Exte
     return this.graph.getNode(this.fromNodeId);
   }
 
+  public int getFromNodeId() {
+    return this.fromNodeId;
+  }
+
   public Graph<T> getGraph() {
     return this.graph;
   }
@@ -491,6 +497,10 @@ public class Edge<T> implements DelegatingLineString, ObjectWithProperties, Exte
     return this.graph.getNode(this.toNodeId);
   }
 
+  public int getToNodeId() {
+    return this.toNodeId;
+  }
+
   public String getTypeName() {
     return this.graph.getTypeName(this);
   }
@@ -81,7 +81,21 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     }
   }
 
-  private final Map<Edge<T>, Integer> edgeIds = new TreeMap<>();
+  /**
+   * Construct a new compact graph. A compact graph stores the node coordinates and edge end
+   * nodes in primitive arrays and finds nodes using a hash of their coordinates instead of a
+   * {@link TreeMap}. The {@link Node} and {@link Edge} objects are created on demand so a
+   * compact graph uses a fraction of the memory for graphs with millions of edges.
+   *
+   * @return The graph.
+   */
+  public static <V> Graph<V> newCompact() {
+    return new Graph<>(true, true);
+  }
+
+  private CompactGraphStore<T> compactStore;
+
+  private Map<Edge<T>, Integer> edgeIds = new TreeMap<>();
 
   private IdObjectIndex<Edge<T>> edgeIndex;
 
@@ -126,7 +140,25 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
   }
 
   protected Graph(final boolean storeLines) {
+    this(storeLines, false);
+  }
+
+  /**
+   * @param storeLines Store the line for each edge.
+   * @param compact Use the compact storage, see {@link #newCompact()}.
+   */
+  protected Graph(final boolean storeLines, final boolean compact) {
     graphs.put(this.id, new WeakReference<Graph<?>>(this));
+    if (compact) {
+      final CompactGraphStore<T> compactStore = new CompactGraphStore<>(this);
+      this.compactStore = compactStore;
+      this.edgeIds = null;
+      this.edgeLinesById = compactStore.getEdgeValuesById(true);
+      this.edgeObjectsById = compactStore.getEdgeValuesById(false);
+      this.edgesById = compactStore.getEdgesById();
+      this.nodesById = compactStore.getNodesById();
+      this.nodesIdsByPoint = compactStore.getNodeIdsByPoint();
+    }
     if (!storeLines) {
       this.edgeLinesById = null;
     }
@@ -161,7 +193,7 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
    */
   protected Edge<T> addEdge(final T object, final LineString line, final double fromX,
     final double fromY, final double toX, final double toY) {
-    if (this.inMemory && getEdgeCount() >= this.maxEdgesInMemory) {
+    if (this.compactStore == null && this.inMemory && getEdgeCount() >= this.maxEdgesInMemory) {
       this.edgePropertiesById = BPlusTreeMap.newIntSeralizableTempDisk(this.edgePropertiesById);
       // TODO edgIds
       // TODO edgeIndex
@@ -185,7 +217,9 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     }
     this.edgeObjectsById.put(edgeId, object);
     this.edgesById.put(edgeId, edge);
-    this.edgeIds.put(edge, edgeId);
+    if (this.edgeIds != null) {
+      this.edgeIds.put(edge, edgeId);
+    }
     if (this.edgeIndex != null) {
       this.edgeIndex.add(edge);
     }
@@ -212,7 +246,6 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     if (this.edgePropertiesById != null) {
       this.edgePropertiesById.clear();
     }
-    this.edgeIds.clear();
     // TODO edgeIndex
     if (this.edgeLinesById != null) {
       this.edgeLinesById.clear();
@@ -306,15 +339,15 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     return getEdges();
   }
 
-  protected void evict(final Edge<T> edge) {
-    // TODO
-  }
-
-  protected void evict(final Node<T> node) {
-    // TODO
-  }
-
   public Node<T> findNode(final double x, final double y) {
+    if (this.compactStore != null) {
+      final int nodeId = this.compactStore.findNodeId(x, y);
+      if (nodeId == 0) {
+        return null;
+      } else {
+        return getNode(nodeId);
+      }
+    }
     synchronized (this.findPoint) {
       this.findPoint.setX(x);
       this.findPoint.setY(y);
@@ -972,6 +1005,13 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     }
   }
 
+  /**
+   * @return True if the graph uses the compact storage, see {@link #newCompact()}.
+   */
+  public boolean isCompact() {
+    return this.compactStore != null;
+  }
+
   public boolean isEmpty() {
     return this.edgesById.isEmpty();
   }
@@ -1147,6 +1187,17 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     return newEdge;
   }
 
+  /**
+   * Called when the in or out edges of a node change to write them back to the compact storage.
+   *
+   * @param node The node.
+   */
+  void nodeEdgesChanged(final Node<T> node) {
+    if (this.compactStore != null) {
+      this.compactStore.setNodeEdgeIds(node.getId(), node.getInEdgeIds(), node.getOutEdgeIds());
+    }
+  }
+
   public void nodeMoved(final Node<T> node, final Node<T> newNode) {
   }
 
@@ -1169,7 +1220,9 @@ public class Graph<T> extends BaseObjectWithProperties implements GeometryFactor
     if (!edge.isRemoved()) {
       this.edgeListeners.edgeEvent(edge, null, EdgeEvent.EDGE_REMOVED, null);
       final int edgeId = edge.getId();
-      this.edgeIds.remove(edge);
+      if (this.edgeIds != null) {
+        this.edgeIds.remove(edge);
+      }
       this.edgesById.remove(edgeId);
       this.edgePropertiesById.remove(edgeId);
       if (this.edgeLinesById != null) {
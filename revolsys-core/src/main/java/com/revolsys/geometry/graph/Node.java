@@ -131,6 +131,16 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
     this.graph = graph;
   }
 
+  /**
+   * Construct a flyweight node for a node already stored in a compact graph.
+   */
+  Node(final int nodeId, final Graph<T> graph, final double x, final double y,
+    final int[] inEdgeIds, final int[] outEdgeIds) {
+    this(nodeId, graph, x, y);
+    this.inEdgeIds = inEdgeIds;
+    this.outEdgeIds = outEdgeIds;
+  }
+
   private int[] addEdge(final int[] oldEdgeIds, final Edge<T> edge) {
     final Graph<T> graph = getGraph();
     final List<Edge<T>> edges = graph.getEdges(oldEdgeIds);
@@ -142,11 +152,13 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
 
   protected void addInEdge(final Edge<T> edge) {
     this.inEdgeIds = addEdge(this.inEdgeIds, edge);
+    this.graph.nodeEdgesChanged(this);
     updateAttributes();
   }
 
   protected void addOutEdge(final Edge<T> edge) {
     this.outEdgeIds = addEdge(this.outEdgeIds, edge);
+    this.graph.nodeEdgesChanged(this);
     updateAttributes();
   }
 
@@ -197,14 +209,6 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
     return this.getX() == x && this.getY() == y;
   }
 
-  @Override
-  protected void finalize() throws Throwable {
-    if (this.graph != null) {
-      this.graph.evict(this);
-    }
-    super.finalize();
-  }
-
   public void forEachInEdge(final Consumer<Edge<T>> action) {
     final Graph<T> graph = this.graph;
     for (final int edgeId : this.inEdgeIds) {
@@ -393,6 +397,10 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
     return this.inEdgeIds.length;
   }
 
+  int[] getInEdgeIds() {
+    return this.inEdgeIds;
+  }
+
   public int getInEdgeIndex(final Edge<T> edge) {
     return getInEdges().indexOf(edge);
   }
@@ -453,6 +461,10 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
     return this.outEdgeIds.length;
   }
 
+  int[] getOutEdgeIds() {
+    return this.outEdgeIds;
+  }
+
   public int getOutEdgeIndex(final Edge<T> edge) {
     return getOutEdges().indexOf(edge);
   }
@@ -626,6 +638,7 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
     if (!isRemoved()) {
       this.outEdgeIds = removeEdge(this.outEdgeIds, edge);
       this.inEdgeIds = removeEdge(this.inEdgeIds, edge);
+      this.graph.nodeEdgesChanged(this);
       if (this.inEdgeIds.length == 0 && this.outEdgeIds.length == 0) {
         this.graph.remove(this);
       } else {
@@ -664,11 +677,15 @@ public class Node<T> extends PointDoubleXY implements ObjectWithProperties, Exte
   }
 
   private void updateAttributes() {
-    for (final Object attribute : getProperties().values()) {
-      if (attribute instanceof ObjectPropertyProxy) {
-        @SuppressWarnings("unchecked")
-        final ObjectPropertyProxy<Object, Node<T>> proxy = (ObjectPropertyProxy<Object, Node<T>>)attribute;
-        proxy.clearValue();
+    // Don't use getProperties() as it would create an empty properties map for every node
+    final MapEx properties = this.graph.getNodePropertiesById().get(this.id);
+    if (properties != null) {
+      for (final Object attribute : properties.values()) {
+        if (attribute instanceof ObjectPropertyProxy) {
+          @SuppressWarnings("unchecked")
+          final ObjectPropertyProxy<Object, Node<T>> proxy = (ObjectPropertyProxy<Object, Node<T>>)attribute;
+          proxy.clearValue();
+        }
       }
     }
   }
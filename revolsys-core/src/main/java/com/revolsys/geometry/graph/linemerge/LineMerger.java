@@ -51,7 +51,7 @@ public class LineMerger {
     }
   }
 
-  private final LineStringsGraph graph = new LineStringsGraph();
+  private final LineStringsGraph graph;
 
   private boolean merged = true;
 
@@ -62,17 +62,30 @@ public class LineMerger {
    *
    */
   public LineMerger() {
+    this(false);
+  }
+
+  /**
+   * Creates a new line merger.
+   *
+   * @param compact Use a compact graph, see {@link LineStringsGraph#LineStringsGraph(boolean)}.
+   */
+  public LineMerger(final boolean compact) {
+    this.graph = new LineStringsGraph(compact);
   }
 
   public LineMerger(final Geometry... geometries) {
+    this();
     addAll(geometries);
   }
 
   public LineMerger(final Iterable<? extends Geometry> lines) {
+    this();
     addAll(lines);
   }
 
   public LineMerger(final LineString line) {
+    this();
     add(line);
   }
 
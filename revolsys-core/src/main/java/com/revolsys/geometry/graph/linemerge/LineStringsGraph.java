@@ -9,6 +9,17 @@ import com.revolsys.geometry.model.Point;
 
 public class LineStringsGraph extends Graph<LineString> {
 
+  public LineStringsGraph() {
+    this(false);
+  }
+
+  /**
+   * @param compact Use the compact storage, see {@link Graph#newCompact()}.
+   */
+  public LineStringsGraph(final boolean compact) {
+    super(true, compact);
+  }
+
   public void addEdge(LineString line) {
     if (!line.isEmpty()) {
       line = line.removeDuplicatePoints();
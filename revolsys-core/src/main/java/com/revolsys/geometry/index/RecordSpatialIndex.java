@@ -7,8 +7,11 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
+import com.revolsys.geometry.index.hilbertrtree.HilbertRTree;
+import com.revolsys.geometry.index.quadtree.ConcurrentQuadTree;
 import com.revolsys.geometry.index.quadtree.QuadTree;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.BoundingBoxProxy;
@@ -21,6 +24,46 @@ import com.revolsys.visitor.CreateListVisitor;
 
 public class RecordSpatialIndex<R extends Record> implements SpatialIndex<R> {
 
+  /**
+   * Create an index using a {@link ConcurrentQuadTree}. Queries can be run concurrently with
+   * updates without locking the index.
+   *
+   * @param geometryFactory The geometry factory for the index.
+   * @return The index.
+   */
+  public static <R2 extends Record> RecordSpatialIndex<R2> concurrentQuadTree(
+    final GeometryFactory geometryFactory) {
+    final ConcurrentQuadTree<R2> spatialIndex = new ConcurrentQuadTree<>(geometryFactory);
+    return new RecordSpatialIndex<>(spatialIndex);
+  }
+
+  private static BoundingBox getRecordBoundingBox(final Record record) {
+    if (record != null) {
+      final Geometry geometry = record.getGeometry();
+      if (geometry != null && !geometry.isEmpty()) {
+        return geometry.getBoundingBox();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Create a read-only index using a {@link HilbertRTree}. The tree is built on the first query
+   * and records cannot be added or removed after that.
+   *
+   * @param geometryFactory The geometry factory for the index.
+   * @param records The records to add to the index.
+   * @return The index.
+   */
+  public static <R2 extends Record> RecordSpatialIndex<R2> hilbertRTree(
+    final GeometryFactory geometryFactory, final Iterable<? extends R2> records) {
+    final HilbertRTree<R2> spatialIndex = new HilbertRTree<>(geometryFactory);
+    final RecordSpatialIndex<R2> index = new RecordSpatialIndex<>(spatialIndex);
+    index.addRecords(records);
+    spatialIndex.build();
+    return index;
+  }
+
   public static <R2 extends Record> RecordSpatialIndex<R2> quadTree(
     final GeometryFactory geometryFactory) {
     final QuadTree<R2> spatialIndex = new QuadTree<>(geometryFactory);
@@ -34,21 +77,16 @@ public class RecordSpatialIndex<R extends Record> implements SpatialIndex<R> {
   }
 
   public RecordSpatialIndex<R> addRecord(final R record) {
-    if (record != null) {
-      final Geometry geometry = record.getGeometry();
-      if (geometry != null && !geometry.isEmpty()) {
-        final BoundingBox boundingBox = geometry.getBoundingBox();
-        insertItem(boundingBox, record);
-      }
+    final BoundingBox boundingBox = getRecordBoundingBox(record);
+    if (boundingBox != null) {
+      insertItem(boundingBox, record);
     }
     return this;
   }
 
   public RecordSpatialIndex<R> addRecords(final Iterable<? extends R> records) {
     if (records != null) {
-      for (final R record : records) {
-        addRecord(record);
-      }
+      insertItems(records, RecordSpatialIndex::getRecordBoundingBox);
     }
     return this;
   }
@@ -120,6 +158,12 @@ public class RecordSpatialIndex<R extends Record> implements SpatialIndex<R> {
     this.spatialIndex.insertItem(boundingBox, item);
   }
 
+  @Override
+  public void insertItems(final Iterable<? extends R> items,
+    final Function<? super R, BoundingBox> boundingBoxFunction) {
+    this.spatialIndex.insertItems(items, boundingBoxFunction);
+  }
+
   public void query(final Geometry geometry, final Consumer<R> visitor) {
     final BoundingBox boundingBox = geometry.getBoundingBox();
     forEach(boundingBox, visitor);
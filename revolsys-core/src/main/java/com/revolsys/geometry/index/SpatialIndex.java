@@ -34,6 +34,7 @@ package com.revolsys.geometry.index;
 
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.jeometry.common.function.Consumer3;
@@ -180,6 +181,20 @@ public interface SpatialIndex<T> extends GeometryFactoryProxy {
     insertItem(boundingBox, item);
   }
 
+  /**
+   * Adds the items to the index using the bounding box returned by the function. Items with a null
+   * bounding box are ignored.
+   */
+  default void insertItems(final Iterable<? extends T> items,
+    final Function<? super T, BoundingBox> boundingBoxFunction) {
+    for (final T item : items) {
+      final BoundingBox boundingBox = boundingBoxFunction.apply(item);
+      if (boundingBox != null) {
+        insertItem(boundingBox, item);
+      }
+    }
+  }
+
   /**
    * Removes a single item from the tree.
    *
@@ -0,0 +1,602 @@
+package com.revolsys.geometry.index.hilbertrtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.index.SpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.util.HilbertCurve;
+import com.revolsys.io.channels.ChannelWriter;
+import com.revolsys.util.ExitLoopException;
+
+/**
+ * <p>A query-only packed R-tree with the items ordered by the Hilbert curve value of the centre
+ * of their bounding boxes.</p>
+ *
+ * <p>Items are added using {@link #insertItem(BoundingBox, Object)} and the tree is built on
+ * the first query or call to {@link #build()}. After that no more items can be added. The
+ * Hilbert values are calculated and sorted in parallel and each level of the tree is computed
+ * in parallel.</p>
+ *
+ * <p>The tree does not have node objects. The item bounds and node bounds are stored as
+ * minX, minY, maxX, maxY in two {@link DoubleBuffer}s, with the nodes stored level by level
+ * from the leaves to the root. Node n at a level has the children n * nodeCapacity to
+ * (n + 1) * nodeCapacity - 1 in the level below. Queries walk these arrays without allocating
+ * any objects.</p>
+ *
+ * <p>The tree can be written to a file using {@link #writeIndex(Path, ToLongFunction)} with
+ * an id for each item. {@link #readIndex(Path, GeometryFactory, LongFunction)} memory maps the
+ * file so the bounds are not loaded onto the heap, and the item for an id is loaded when it
+ * is returned from a query.</p>
+ *
+ * @param <T> The type of item.
+ */
+public class HilbertRTree<T> implements SpatialIndex<T> {
+  private static final int DEFAULT_NODE_CAPACITY = 16;
+
+  public static final byte[] FILE_TYPE_BYTES = "HRTREE".getBytes(StandardCharsets.UTF_8);
+
+  private static final int HEADER_SIZE = 32;
+
+  private static final int HILBERT_ORDER = 16;
+
+  public static final short VERSION = 1;
+
+  private static void expand(final double[] bounds, final int index,
+    final DoubleBuffer childBounds, final int childIndex) {
+    int offset = index * 4;
+    final int childOffset = childIndex * 4;
+    final double minX = childBounds.get(childOffset);
+    final double minY = childBounds.get(childOffset + 1);
+    final double maxX = childBounds.get(childOffset + 2);
+    final double maxY = childBounds.get(childOffset + 3);
+    if (minX < bounds[offset]) {
+      bounds[offset] = minX;
+    }
+    offset++;
+    if (minY < bounds[offset]) {
+      bounds[offset] = minY;
+    }
+    offset++;
+    if (maxX > bounds[offset]) {
+      bounds[offset] = maxX;
+    }
+    offset++;
+    if (maxY > bounds[offset]) {
+      bounds[offset] = maxY;
+    }
+  }
+
+  private static double getDistanceSquared(final DoubleBuffer bounds, final int index,
+    final double x, final double y) {
+    final int offset = index * 4;
+    double dx = 0;
+    final double minX = bounds.get(offset);
+    if (x < minX) {
+      dx = minX - x;
+    } else {
+      final double maxX = bounds.get(offset + 2);
+      if (x > maxX) {
+        dx = x - maxX;
+      }
+    }
+    double dy = 0;
+    final double minY = bounds.get(offset + 1);
+    if (y < minY) {
+      dy = minY - y;
+    } else {
+      final double maxY = bounds.get(offset + 3);
+      if (y > maxY) {
+        dy = y - maxY;
+      }
+    }
+    return dx * dx + dy * dy;
+  }
+
+  private static int getLevelOffsetsSize(final int levelCount) {
+    final int size = (levelCount + 1) * 4;
+    return (size + 7) / 8 * 8;
+  }
+
+  private static boolean intersects(final DoubleBuffer bounds, final int index,
+    final double minX, final double minY, final double maxX, final double maxY) {
+    final int offset = index * 4;
+    return bounds.get(offset) <= maxX && bounds.get(offset + 1) <= maxY
+      && bounds.get(offset + 2) >= minX && bounds.get(offset + 3) >= minY;
+  }
+
+  private static DoubleBuffer mapDoubles(final FileChannel channel, final long position,
+    final int count) throws IOException {
+    return channel.map(MapMode.READ_ONLY, position, count * 8L)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .asDoubleBuffer();
+  }
+
+  private static void putDoubles(final ChannelWriter writer, final DoubleBuffer values,
+    final int count) {
+    if (values.hasArray()) {
+      writer.putDoubles(values.array(), values.arrayOffset(), count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        writer.putDouble(values.get(i));
+      }
+    }
+  }
+
+  /**
+   * Read a tree written using {@link #writeIndex(Path, ToLongFunction)}. The file is memory
+   * mapped and the items are loaded using the itemLoader when they are returned from a query.
+   *
+   * @param file The file to read.
+   * @param geometryFactory The geometry factory for the tree.
+   * @param itemLoader The function to get the item for an id.
+   * @return The tree.
+   */
+  public static <V> HilbertRTree<V> readIndex(final Path file,
+    final GeometryFactory geometryFactory, final LongFunction<? extends V> itemLoader) {
+    try (
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining()) {
+        if (channel.read(header) == -1) {
+          throw new IllegalArgumentException("Not a Hilbert R-tree file: " + file);
+        }
+      }
+      header.flip();
+      final byte[] fileTypeBytes = new byte[FILE_TYPE_BYTES.length];
+      header.get(fileTypeBytes);
+      if (!Arrays.equals(FILE_TYPE_BYTES, fileTypeBytes)) {
+        throw new IllegalArgumentException("Not a Hilbert R-tree file: " + file);
+      }
+      final short version = header.getShort();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Hilbert R-tree version " + version
+          + " not supported, expecting " + VERSION + ": " + file);
+      }
+      final int nodeCapacity = header.getInt();
+      final int itemCount = header.getInt();
+      final int levelCount = header.getInt();
+
+      final ByteBuffer levelBytes = ByteBuffer.allocate(getLevelOffsetsSize(levelCount))
+        .order(ByteOrder.LITTLE_ENDIAN);
+      while (levelBytes.hasRemaining()) {
+        if (channel.read(levelBytes) == -1) {
+          throw new IllegalArgumentException("Hilbert R-tree file truncated: " + file);
+        }
+      }
+      levelBytes.flip();
+      final int[] levelOffsets = new int[levelCount + 1];
+      levelBytes.asIntBuffer().get(levelOffsets);
+      final int nodeCount = levelOffsets[levelCount];
+
+      long position = HEADER_SIZE + levelBytes.capacity();
+      final DoubleBuffer nodeBounds = mapDoubles(channel, position, nodeCount * 4);
+      position += nodeCount * 32L;
+      final DoubleBuffer itemBounds = mapDoubles(channel, position, itemCount * 4);
+      position += itemCount * 32L;
+      final LongBuffer itemIds = channel.map(MapMode.READ_ONLY, position, itemCount * 8L)
+        .order(ByteOrder.LITTLE_ENDIAN)
+        .asLongBuffer();
+
+      final HilbertRTree<V> tree = new HilbertRTree<>(geometryFactory, nodeCapacity);
+      tree.itemCount = itemCount;
+      tree.levelOffsets = levelOffsets;
+      tree.nodeBounds = nodeBounds;
+      tree.itemBounds = itemBounds;
+      tree.itemIds = itemIds;
+      tree.itemLoader = itemLoader;
+      tree.insertBounds = null;
+      tree.built = true;
+      return tree;
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + file, e);
+    }
+  }
+
+  private final GeometryFactory geometryFactory;
+
+  private final int nodeCapacity;
+
+  private volatile boolean built = false;
+
+  private int itemCount = 0;
+
+  /** The bounds of the items added before the tree is built, in insert order. */
+  private double[] insertBounds = new double[64];
+
+  private Object[] items = new Object[16];
+
+  private LongBuffer itemIds;
+
+  private LongFunction<? extends T> itemLoader;
+
+  private DoubleBuffer itemBounds;
+
+  private DoubleBuffer nodeBounds;
+
+  /** The index of the first node of each level and the total node count. */
+  private int[] levelOffsets;
+
+  public HilbertRTree(final GeometryFactory geometryFactory) {
+    this(geometryFactory, DEFAULT_NODE_CAPACITY);
+  }
+
+  public HilbertRTree(final GeometryFactory geometryFactory, final int nodeCapacity) {
+    if (nodeCapacity < 2) {
+      throw new IllegalArgumentException("Node capacity must be greater than 1");
+    }
+    this.geometryFactory = geometryFactory;
+    this.nodeCapacity = nodeCapacity;
+  }
+
+  /**
+   * Sort the items by Hilbert value and build the levels of the tree. Called automatically on
+   * the first query, after which no more items can be added. Once built the queries only read the
+   * volatile built flag and don't take the lock.
+   */
+  public void build() {
+    if (!this.built) {
+      buildDo();
+    }
+  }
+
+  private synchronized void buildDo() {
+    if (!this.built) {
+      final int itemCount = this.itemCount;
+      final int nodeCapacity = this.nodeCapacity;
+      final double[] insertBounds = this.insertBounds;
+      final Object[] insertItems = this.items;
+
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < itemCount; i++) {
+        final int offset = i * 4;
+        minX = Math.min(minX, insertBounds[offset]);
+        minY = Math.min(minY, insertBounds[offset + 1]);
+        maxX = Math.max(maxX, insertBounds[offset + 2]);
+        maxY = Math.max(maxY, insertBounds[offset + 3]);
+      }
+      final double boundsMinX = minX;
+      final double boundsMinY = minY;
+      final double boundsMaxX = maxX;
+      final double boundsMaxY = maxY;
+
+      final long[] keys = new long[itemCount];
+      IntStream.range(0, itemCount).parallel().forEach(i -> {
+        final int offset = i * 4;
+        final double centreX = (insertBounds[offset] + insertBounds[offset + 2]) / 2;
+        final double centreY = (insertBounds[offset + 1] + insertBounds[offset + 3]) / 2;
+        final long index = HilbertCurve.index(HILBERT_ORDER, boundsMinX, boundsMinY, boundsMaxX,
+          boundsMaxY, centreX, centreY);
+        keys[i] = index << 32 | i;
+      });
+      Arrays.parallelSort(keys);
+
+      final double[] itemBounds = new double[itemCount * 4];
+      final Object[] items = new Object[itemCount];
+      IntStream.range(0, itemCount).parallel().forEach(i -> {
+        final int index = (int)keys[i];
+        System.arraycopy(insertBounds, index * 4, itemBounds, i * 4, 4);
+        items[i] = insertItems[index];
+      });
+
+      int levelCount = 0;
+      final int[] levelOffsets = new int[32];
+      int nodeCount = 0;
+      for (int levelSize = itemCount; levelSize > 1 || levelCount == 0;) {
+        levelSize = (levelSize + nodeCapacity - 1) / nodeCapacity;
+        if (levelSize == 0) {
+          break;
+        }
+        levelOffsets[levelCount++] = nodeCount;
+        nodeCount += levelSize;
+      }
+      levelOffsets[levelCount] = nodeCount;
+
+      final double[] nodeBounds = new double[nodeCount * 4];
+      final DoubleBuffer nodeBoundsBuffer = DoubleBuffer.wrap(nodeBounds);
+      final DoubleBuffer itemBoundsBuffer = DoubleBuffer.wrap(itemBounds);
+      for (int level = 0; level < levelCount; level++) {
+        final int levelOffset = levelOffsets[level];
+        final int childCount;
+        final int childOffset;
+        final DoubleBuffer childBounds;
+        if (level == 0) {
+          childCount = itemCount;
+          childOffset = 0;
+          childBounds = itemBoundsBuffer;
+        } else {
+          childOffset = levelOffsets[level - 1];
+          childCount = levelOffset - childOffset;
+          childBounds = nodeBoundsBuffer;
+        }
+        IntStream.range(0, levelOffsets[level + 1] - levelOffset).parallel().forEach(node -> {
+          final int nodeIndex = levelOffset + node;
+          final int offset = nodeIndex * 4;
+          nodeBounds[offset] = Double.POSITIVE_INFINITY;
+          nodeBounds[offset + 1] = Double.POSITIVE_INFINITY;
+          nodeBounds[offset + 2] = Double.NEGATIVE_INFINITY;
+          nodeBounds[offset + 3] = Double.NEGATIVE_INFINITY;
+          final int childStart = node * nodeCapacity;
+          final int childEnd = Math.min(childStart + nodeCapacity, childCount);
+          for (int child = childStart; child < childEnd; child++) {
+            expand(nodeBounds, nodeIndex, childBounds, childOffset + child);
+          }
+        });
+      }
+      this.items = items;
+      this.itemBounds = itemBoundsBuffer;
+      this.nodeBounds = nodeBoundsBuffer;
+      this.levelOffsets = Arrays.copyOf(levelOffsets, levelCount + 1);
+      this.insertBounds = null;
+      this.built = true;
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    this.itemCount = 0;
+    this.insertBounds = new double[64];
+    this.items = new Object[16];
+    this.itemIds = null;
+    this.itemLoader = null;
+    this.itemBounds = null;
+    this.nodeBounds = null;
+    this.levelOffsets = null;
+    this.built = false;
+  }
+
+  @Override
+  public boolean forEach(final Consumer<? super T> action) {
+    build();
+    try {
+      for (int i = 0; i < this.itemCount; i++) {
+        action.accept(getItem(i));
+      }
+      return true;
+    } catch (final ExitLoopException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean forEach(final double x, final double y, final Consumer<? super T> action) {
+    return forEach(x, y, x, y, action);
+  }
+
+  @Override
+  public boolean forEach(final double minX, final double minY, final double maxX,
+    final double maxY, final Consumer<? super T> action) {
+    build();
+    if (this.itemCount > 0) {
+      final int rootLevel = this.levelOffsets.length - 2;
+      final int rootIndex = this.levelOffsets[rootLevel];
+      if (intersects(this.nodeBounds, rootIndex, minX, minY, maxX, maxY)) {
+        try {
+          forEachNode(rootLevel, 0, minX, minY, maxX, maxY, action);
+        } catch (final ExitLoopException e) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private void forEachNode(final int level, final int node, final double minX, final double minY,
+    final double maxX, final double maxY, final Consumer<? super T> action) {
+    final int childStart = node * this.nodeCapacity;
+    if (level == 0) {
+      final DoubleBuffer itemBounds = this.itemBounds;
+      final int childEnd = Math.min(childStart + this.nodeCapacity, this.itemCount);
+      for (int item = childStart; item < childEnd; item++) {
+        if (intersects(itemBounds, item, minX, minY, maxX, maxY)) {
+          action.accept(getItem(item));
+        }
+      }
+    } else {
+      final DoubleBuffer nodeBounds = this.nodeBounds;
+      final int childOffset = this.levelOffsets[level - 1];
+      final int childEnd = Math.min(childStart + this.nodeCapacity,
+        this.levelOffsets[level] - childOffset);
+      for (int child = childStart; child < childEnd; child++) {
+        if (intersects(nodeBounds, childOffset + child, minX, minY, maxX, maxY)) {
+          forEachNode(level - 1, child, minX, minY, maxX, maxY, action);
+        }
+      }
+    }
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T getItem(final int index) {
+    if (this.itemIds == null) {
+      return (T)this.items[index];
+    } else {
+      final long id = this.itemIds.get(index);
+      return this.itemLoader.apply(id);
+    }
+  }
+
+  public int getNodeCapacity() {
+    return this.nodeCapacity;
+  }
+
+  @Override
+  public int getSize() {
+    return this.itemCount;
+  }
+
+  @Override
+  public synchronized void insertItem(final BoundingBox boundingBox, final T item) {
+    if (this.built) {
+      throw new IllegalStateException(
+        "Cannot insert items into a Hilbert R-tree after it has been built.");
+    }
+    if (!boundingBox.isEmpty()) {
+      final BoundingBox convertedBoundingBox = boundingBox.bboxToCs(this.geometryFactory);
+      final int index = this.itemCount++;
+      if (index == this.items.length) {
+        this.items = Arrays.copyOf(this.items, index * 2);
+        this.insertBounds = Arrays.copyOf(this.insertBounds, index * 8);
+      }
+      this.items[index] = item;
+      final int offset = index * 4;
+      this.insertBounds[offset] = convertedBoundingBox.getMinX();
+      this.insertBounds[offset + 1] = convertedBoundingBox.getMinY();
+      this.insertBounds[offset + 2] = convertedBoundingBox.getMaxX();
+      this.insertBounds[offset + 3] = convertedBoundingBox.getMaxY();
+    }
+  }
+
+  public boolean isBuilt() {
+    return this.built;
+  }
+
+  /**
+   * Get the item whose bounding box is nearest to the point x, y.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The nearest item or null if the tree is empty.
+   */
+  public T nearestNeighbour(final double x, final double y) {
+    return nearestNeighbour(x, y, Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Get the item whose bounding box is nearest to the point x, y and within maxDistance of the
+   * point.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @param maxDistance The maximum distance to the item's bounding box.
+   * @return The nearest item or null if there are no items within maxDistance.
+   */
+  public T nearestNeighbour(final double x, final double y, final double maxDistance) {
+    build();
+    if (this.itemCount > 0) {
+      final int rootLevel = this.levelOffsets.length - 2;
+      final double maxDistanceSquared = maxDistance * maxDistance;
+      final int item = nearestNeighbourNode(rootLevel, 0, x, y, -1, maxDistanceSquared);
+      if (item >= 0) {
+        return getItem(item);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Find the nearest item in the node that is closer than the current nearest item. Nodes
+   * further away than the current nearest item are skipped.
+   *
+   * @return The index of the nearest item, or nearestItem if none of the items in the node are
+   * closer.
+   */
+  private int nearestNeighbourNode(final int level, final int node, final double x,
+    final double y, int nearestItem, double nearestDistanceSquared) {
+    final int childStart = node * this.nodeCapacity;
+    if (level == 0) {
+      final DoubleBuffer itemBounds = this.itemBounds;
+      final int childEnd = Math.min(childStart + this.nodeCapacity, this.itemCount);
+      for (int item = childStart; item < childEnd; item++) {
+        final double distanceSquared = getDistanceSquared(itemBounds, item, x, y);
+        if (distanceSquared < nearestDistanceSquared
+          || nearestItem < 0 && distanceSquared <= nearestDistanceSquared) {
+          nearestItem = item;
+          nearestDistanceSquared = distanceSquared;
+        }
+      }
+    } else {
+      final DoubleBuffer nodeBounds = this.nodeBounds;
+      final int childOffset = this.levelOffsets[level - 1];
+      final int childEnd = Math.min(childStart + this.nodeCapacity,
+        this.levelOffsets[level] - childOffset);
+      for (int child = childStart; child < childEnd; child++) {
+        final double distanceSquared = getDistanceSquared(nodeBounds, childOffset + child, x, y);
+        if (distanceSquared <= nearestDistanceSquared) {
+          final int childNearestItem = nearestNeighbourNode(level - 1, child, x, y, nearestItem,
+            nearestDistanceSquared);
+          if (childNearestItem != nearestItem) {
+            nearestItem = childNearestItem;
+            nearestDistanceSquared = getDistanceSquared(this.itemBounds, nearestItem, x, y);
+          }
+        }
+      }
+    }
+    return nearestItem;
+  }
+
+  @Override
+  public boolean removeItem(final BoundingBox boundingBox, final T item) {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * Write the tree to a file that can be read using
+   * {@link #readIndex(Path, GeometryFactory, LongFunction)}. The items are not written, instead
+   * the id of each item from the itemIdFunction is written.
+   *
+   * @param file The file to write to.
+   * @param itemIdFunction The function to get the id of an item.
+   */
+  public void writeIndex(final Path file, final ToLongFunction<? super T> itemIdFunction) {
+    build();
+    final int levelCount = this.levelOffsets.length - 1;
+    final int nodeCount = this.levelOffsets[levelCount];
+    final int itemCount = this.itemCount;
+    try (
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+      ChannelWriter writer = new ChannelWriter(channel, false, 65536, ByteOrder.LITTLE_ENDIAN)) {
+      writer.putBytes(FILE_TYPE_BYTES);
+      writer.putShort(VERSION);
+      writer.putInt(this.nodeCapacity);
+      writer.putInt(itemCount);
+      writer.putInt(levelCount);
+      for (int i = FILE_TYPE_BYTES.length + 14; i < HEADER_SIZE; i++) {
+        writer.putByte((byte)0);
+      }
+      for (final int levelOffset : this.levelOffsets) {
+        writer.putInt(levelOffset);
+      }
+      if (this.levelOffsets.length % 2 == 1) {
+        writer.putInt(0);
+      }
+      putDoubles(writer, this.nodeBounds, nodeCount * 4);
+      putDoubles(writer, this.itemBounds, itemCount * 4);
+      for (int i = 0; i < itemCount; i++) {
+        final long id;
+        if (this.itemIds == null) {
+          id = itemIdFunction.applyAsLong(getItem(i));
+        } else {
+          id = this.itemIds.get(i);
+        }
+        writer.putLong(id);
+      }
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to write: " + file, e);
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package com.revolsys.geometry.index.quadtree;
+
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.revolsys.geometry.index.SpatialIndex;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.util.ExitLoopException;
+
+/**
+ * <p>A {@link QuadTree} for many concurrent readers and occasional writers.</p>
+ *
+ * <p>The nodes are copy-on-write. An update copies the nodes on the path to the modified node
+ * and then publishes the new root. Readers use the root at the start of the query and never
+ * block or lock, they see the tree as it was before or after each update. Updates are
+ * serialized.</p>
+ *
+ * <p>Use {@link #insertItems(Iterable, Function)} to load many items, the nodes are only
+ * copied once for the batch.</p>
+ */
+public class ConcurrentQuadTree<T> implements SpatialIndex<T> {
+  private double absoluteMinExtent;
+
+  private GeometryFactory geometryFactory = GeometryFactory.DEFAULT_3D;
+
+  private double minExtent = 1;
+
+  private volatile ConcurrentQuadTreeNode<T> root = new ConcurrentQuadTreeNode<>(null);
+
+  private volatile int size = 0;
+
+  private boolean useEquals = false;
+
+  private final Object writeSync = new Object();
+
+  public ConcurrentQuadTree(final GeometryFactory geometryFactory) {
+    setGeometryFactory(geometryFactory);
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this.writeSync) {
+      this.root = new ConcurrentQuadTreeNode<>(null);
+      this.minExtent = 1.0;
+      if (this.minExtent < this.absoluteMinExtent) {
+        this.minExtent = this.absoluteMinExtent;
+      }
+      this.size = 0;
+    }
+  }
+
+  public int depth() {
+    return this.root.depth();
+  }
+
+  protected boolean equalsItem(final T item1, final T item2) {
+    if (item1 == item2) {
+      return true;
+    } else if (this.useEquals) {
+      return item1.equals(item2);
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean forEach(final Consumer<? super T> action) {
+    try {
+      this.root.forEach(action);
+      return true;
+    } catch (final ExitLoopException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public boolean forEach(final double x, final double y, final Consumer<? super T> action) {
+    return forEach(x, y, x, y, action);
+  }
+
+  @Override
+  public boolean forEach(final double minX, final double minY, final double maxX, final double maxY,
+    final Consumer<? super T> action) {
+    try {
+      this.root.forEach(minX, minY, maxX, maxY, action);
+      return true;
+    } catch (final ExitLoopException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  public int getSize() {
+    return this.size;
+  }
+
+  private boolean insert(final ConcurrentQuadTreeNode<T> root, final Object edit,
+    final BoundingBox boundingBox, final T item) {
+    final BoundingBox convertedBoundingBox = convertBoundingBox(boundingBox);
+    if (convertedBoundingBox == null || convertedBoundingBox.isEmpty()) {
+      throw new IllegalArgumentException("Item bounding box " + boundingBox
+        + " must not be null or empty in coordinate system: " + getHorizontalCoordinateSystemId());
+    } else {
+      final double minX = convertedBoundingBox.getMinX();
+      final double minY = convertedBoundingBox.getMinY();
+      final double maxX = convertedBoundingBox.getMaxX();
+      final double maxY = convertedBoundingBox.getMaxY();
+      return insert(root, edit, minX, minY, maxX, maxY, item);
+    }
+  }
+
+  private boolean insert(final ConcurrentQuadTreeNode<T> root, final Object edit, double minX,
+    double minY, double maxX, double maxY, final T item) {
+    final double deltaX = maxX - minX;
+    if (deltaX == 0) {
+      minX = minX - this.minExtent / 2.0;
+      maxX = minX + this.minExtent / 2.0;
+    } else if (deltaX < this.minExtent) {
+      this.minExtent = deltaX;
+    }
+
+    final double deltaY = maxY - minY;
+    if (deltaY == 0) {
+      minY = minY - this.minExtent / 2.0;
+      maxY = minY + this.minExtent / 2.0;
+    } else if (deltaY < this.minExtent) {
+      this.minExtent = deltaY;
+    }
+
+    return root.insertRoot(this, edit, minX, minY, maxX, maxY, item);
+  }
+
+  @Override
+  public void insertItem(final BoundingBox boundingBox, final T item) {
+    synchronized (this.writeSync) {
+      final Object edit = new Object();
+      final ConcurrentQuadTreeNode<T> root = this.root.editable(edit);
+      if (insert(root, edit, boundingBox, item)) {
+        this.size++;
+      }
+      this.root = root;
+    }
+  }
+
+  public final void insertItem(final double minX, final double minY, final double maxX,
+    final double maxY, final T item) {
+    synchronized (this.writeSync) {
+      final Object edit = new Object();
+      final ConcurrentQuadTreeNode<T> root = this.root.editable(edit);
+      if (insert(root, edit, minX, minY, maxX, maxY, item)) {
+        this.size++;
+      }
+      this.root = root;
+    }
+  }
+
+  public final void insertItem(final double x, final double y, final T item) {
+    insertItem(x, y, x, y, item);
+  }
+
+  /**
+   * Insert the items as one update. Readers will not see any of the items until all of them have
+   * been inserted. Items with a null bounding box are ignored.
+   */
+  @Override
+  public void insertItems(final Iterable<? extends T> items,
+    final Function<? super T, BoundingBox> boundingBoxFunction) {
+    synchronized (this.writeSync) {
+      final Object edit = new Object();
+      final ConcurrentQuadTreeNode<T> root = this.root.editable(edit);
+      int size = this.size;
+      try {
+        for (final T item : items) {
+          final BoundingBox boundingBox = boundingBoxFunction.apply(item);
+          if (boundingBox != null && insert(root, edit, boundingBox, item)) {
+            size++;
+          }
+        }
+      } finally {
+        this.size = size;
+        this.root = root;
+      }
+    }
+  }
+
+  @Override
+  public boolean removeItem(BoundingBox boundingBox, final T item) {
+    boundingBox = convertBoundingBox(boundingBox);
+    if (boundingBox != null && !boundingBox.isEmpty()) {
+      final double minX = boundingBox.getMinX();
+      final double minY = boundingBox.getMinY();
+      final double maxX = boundingBox.getMaxX();
+      final double maxY = boundingBox.getMaxY();
+
+      return removeItem(minX, minY, maxX, maxY, item);
+    } else {
+      return false;
+    }
+  }
+
+  public boolean removeItem(final double minX, final double minY, final double maxX,
+    final double maxY, final T item) {
+    synchronized (this.writeSync) {
+      final Object edit = new Object();
+      final int[] removeCount = new int[1];
+      final ConcurrentQuadTreeNode<T> root = this.root.removeItem(this, edit, minX, minY, maxX,
+        maxY, item, removeCount);
+      if (removeCount[0] > 0) {
+        this.root = root;
+        this.size--;
+        return true;
+      } else {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public void setGeometryFactory(final GeometryFactory geometryFactory) {
+    synchronized (this.writeSync) {
+      if (geometryFactory == null) {
+        this.geometryFactory = GeometryFactory.DEFAULT_2D;
+      } else {
+        this.geometryFactory = geometryFactory;
+      }
+      if (this.geometryFactory.isFloating()) {
+        this.absoluteMinExtent = 0.00000001;
+      } else {
+        this.absoluteMinExtent = this.geometryFactory.getResolutionX();
+        if (this.absoluteMinExtent < 0) {
+          this.absoluteMinExtent = 0.00000001;
+        }
+      }
+      if (this.minExtent < this.absoluteMinExtent) {
+        this.minExtent = this.absoluteMinExtent;
+      }
+    }
+  }
+
+  public void setUseEquals(final boolean useEquals) {
+    this.useEquals = useEquals;
+  }
+
+  public int size() {
+    return getSize();
+  }
+}
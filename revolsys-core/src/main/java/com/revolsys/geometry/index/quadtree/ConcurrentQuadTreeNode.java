@@ -0,0 +1,436 @@
+package com.revolsys.geometry.index.quadtree;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import com.revolsys.geometry.index.DoubleBits;
+import com.revolsys.geometry.index.IntervalSize;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.util.RectangleUtil;
+
+/**
+ * A node in a {@link ConcurrentQuadTree}. The nodes use the same quadrants as
+ * {@link AbstractQuadTreeNode}.
+ * <p>
+ * Each update to the tree has a new edit object. An update can modify the nodes it created (the
+ * nodes with the update's edit object) in place. Any other node is copied before it is modified,
+ * so a node is never modified after the update that created it has been published.
+ * </p>
+ */
+final class ConcurrentQuadTreeNode<T> {
+  private static final double[] EMPTY_BOUNDING_BOXES = new double[0];
+
+  private static final Object[] EMPTY_ITEMS = new Object[0];
+
+  private double[] boundingBoxes;
+
+  private final double centreX;
+
+  private final double centreY;
+
+  private final Object edit;
+
+  private int itemCount;
+
+  private Object[] items;
+
+  private final int level;
+
+  private final double maxX;
+
+  private final double maxY;
+
+  private final double minX;
+
+  private final double minY;
+
+  private final ConcurrentQuadTreeNode<T>[] nodes;
+
+  ConcurrentQuadTreeNode(final Object edit) {
+    this(edit, Integer.MIN_VALUE, 0, 0, 0, 0);
+  }
+
+  private ConcurrentQuadTreeNode(final Object edit, final ConcurrentQuadTreeNode<T> node) {
+    this.edit = edit;
+    this.level = node.level;
+    this.minX = node.minX;
+    this.minY = node.minY;
+    this.maxX = node.maxX;
+    this.maxY = node.maxY;
+    this.centreX = node.centreX;
+    this.centreY = node.centreY;
+    this.nodes = node.nodes.clone();
+    final int itemCount = node.itemCount;
+    this.itemCount = itemCount;
+    if (itemCount == 0) {
+      this.items = EMPTY_ITEMS;
+      this.boundingBoxes = EMPTY_BOUNDING_BOXES;
+    } else {
+      this.items = Arrays.copyOf(node.items, itemCount);
+      this.boundingBoxes = Arrays.copyOf(node.boundingBoxes, itemCount * 4);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConcurrentQuadTreeNode(final Object edit, final int level, final double minX,
+    final double minY, final double maxX, final double maxY) {
+    this.edit = edit;
+    this.level = level;
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.centreX = (minX + maxX) / 2;
+    this.centreY = (minY + maxY) / 2;
+    this.nodes = new ConcurrentQuadTreeNode[4];
+    this.items = EMPTY_ITEMS;
+    this.boundingBoxes = EMPTY_BOUNDING_BOXES;
+  }
+
+  private boolean add(final ConcurrentQuadTree<T> tree, final double minX, final double minY,
+    final double maxX, final double maxY, final T item) {
+    final int itemIndex = indexOf(tree, item);
+    if (itemIndex == -1) {
+      final int itemCount = this.itemCount;
+      if (itemCount == this.items.length) {
+        final int capacity = Math.max(4, itemCount * 2);
+        this.items = Arrays.copyOf(this.items, capacity);
+        this.boundingBoxes = Arrays.copyOf(this.boundingBoxes, capacity * 4);
+      }
+      setItem(itemCount, minX, minY, maxX, maxY, item);
+      this.itemCount++;
+      return true;
+    } else {
+      setItem(itemIndex, minX, minY, maxX, maxY, item);
+      return false;
+    }
+  }
+
+  private boolean coversBoundingBox(final double minX, final double minY, final double maxX,
+    final double maxY) {
+    return this.minX <= minX && maxX <= this.maxX && this.minY <= minY && maxY <= this.maxY;
+  }
+
+  int depth() {
+    int depth = 0;
+    for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+      if (node != null) {
+        final int nodeDepth = node.depth();
+        if (nodeDepth > depth) {
+          depth = nodeDepth;
+        }
+      }
+    }
+    return depth + 1;
+  }
+
+  /**
+   * Get a node that can be modified by the update.
+   */
+  ConcurrentQuadTreeNode<T> editable(final Object edit) {
+    if (this.edit == edit) {
+      return this;
+    } else {
+      return new ConcurrentQuadTreeNode<>(edit, this);
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> find(final Object edit, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    final int subnodeIndex = getSubnodeIndex(minX, minY, maxX, maxY);
+    if (subnodeIndex != -1) {
+      ConcurrentQuadTreeNode<T> node = this.nodes[subnodeIndex];
+      if (node != null) {
+        node = node.editable(edit);
+        this.nodes[subnodeIndex] = node;
+        return node.find(edit, minX, minY, maxX, maxY);
+      }
+    }
+    return this;
+  }
+
+  @SuppressWarnings("unchecked")
+  void forEach(final Consumer<? super T> action) {
+    final Object[] items = this.items;
+    for (int i = 0; i < this.itemCount; i++) {
+      action.accept((T)items[i]);
+    }
+    for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+      if (node != null) {
+        node.forEach(action);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  void forEach(final double minX, final double minY, final double maxX, final double maxY,
+    final Consumer<? super T> action) {
+    if (isSearchMatch(minX, minY, maxX, maxY)) {
+      final Object[] items = this.items;
+      final double[] boundingBoxes = this.boundingBoxes;
+      for (int i = 0; i < this.itemCount; i++) {
+        final int offset = i * 4;
+        if (RectangleUtil.intersects(boundingBoxes[offset], boundingBoxes[offset + 1],
+          boundingBoxes[offset + 2], boundingBoxes[offset + 3], minX, minY, maxX, maxY)) {
+          action.accept((T)items[i]);
+        }
+      }
+      for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+        if (node != null) {
+          node.forEach(minX, minY, maxX, maxY, action);
+        }
+      }
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> getNode(final Object edit, final double minX,
+    final double minY, final double maxX, final double maxY) {
+    final int subnodeIndex = getSubnodeIndex(minX, minY, maxX, maxY);
+    if (subnodeIndex == -1) {
+      return this;
+    } else {
+      ConcurrentQuadTreeNode<T> node = this.nodes[subnodeIndex];
+      if (node == null) {
+        node = newSubnode(edit, subnodeIndex);
+      } else {
+        node = node.editable(edit);
+      }
+      this.nodes[subnodeIndex] = node;
+      return node.getNode(edit, minX, minY, maxX, maxY);
+    }
+  }
+
+  private int getSubnodeIndex(final double minX, final double minY, final double maxX,
+    final double maxY) {
+    int subnodeIndex = -1;
+    if (minX >= this.centreX) {
+      if (minY >= this.centreY) {
+        subnodeIndex = 3;
+      }
+      if (maxY <= this.centreY) {
+        subnodeIndex = 1;
+      }
+    }
+    if (maxX <= this.centreX) {
+      if (minY >= this.centreY) {
+        subnodeIndex = 2;
+      }
+      if (maxY <= this.centreY) {
+        subnodeIndex = 0;
+      }
+    }
+    return subnodeIndex;
+  }
+
+  @SuppressWarnings("unchecked")
+  private int indexOf(final ConcurrentQuadTree<T> tree, final T item) {
+    final Object[] items = this.items;
+    for (int i = 0; i < this.itemCount; i++) {
+      if (tree.equalsItem(item, (T)items[i])) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean insertContained(final ConcurrentQuadTree<T> tree, final Object edit,
+    final double minX, final double minY, final double maxX, final double maxY, final T item) {
+    final boolean isZeroX = IntervalSize.isZeroWidth(maxX, minX);
+    final boolean isZeroY = IntervalSize.isZeroWidth(maxY, minY);
+    ConcurrentQuadTreeNode<T> node;
+    if (isZeroX || isZeroY) {
+      node = find(edit, minX, minY, maxX, maxY);
+    } else {
+      node = getNode(edit, minX, minY, maxX, maxY);
+    }
+    return node.add(tree, minX, minY, maxX, maxY, item);
+  }
+
+  private void insertNode(final Object edit, final ConcurrentQuadTreeNode<T> node) {
+    final int index = getSubnodeIndex(node.minX, node.minY, node.maxX, node.maxY);
+    if (node.level == this.level - 1) {
+      this.nodes[index] = node;
+    } else {
+      final ConcurrentQuadTreeNode<T> childNode = newSubnode(edit, index);
+      childNode.insertNode(edit, node);
+      this.nodes[index] = childNode;
+    }
+  }
+
+  /**
+   * Insert the item into the root node. The root node must be editable by the update.
+   */
+  boolean insertRoot(final ConcurrentQuadTree<T> tree, final Object edit, final double minX,
+    final double minY, final double maxX, final double maxY, final T item) {
+    final int index = getSubnodeIndex(minX, minY, maxX, maxY);
+    if (index == -1) {
+      return add(tree, minX, minY, maxX, maxY, item);
+    } else {
+      ConcurrentQuadTreeNode<T> node = this.nodes[index];
+      if (node == null) {
+        node = newNode(edit, minX, minY, maxX, maxY);
+      } else if (!node.coversBoundingBox(minX, minY, maxX, maxY)) {
+        node = node.newNodeExpanded(edit, minX, minY, maxX, maxY);
+      } else {
+        node = node.editable(edit);
+      }
+      this.nodes[index] = node;
+      return node.insertContained(tree, edit, minX, minY, maxX, maxY, item);
+    }
+  }
+
+  private boolean isPrunable() {
+    if (this.itemCount > 0) {
+      return false;
+    } else {
+      for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+        if (node != null) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private boolean isSearchMatch(final double minX, final double minY, final double maxX,
+    final double maxY) {
+    if (this.level == Integer.MIN_VALUE) {
+      return true;
+    } else {
+      return !(minX > this.maxX || maxX < this.minX || minY > this.maxY || maxY < this.minY);
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> newNode(final Object edit, final double minX,
+    final double minY, final double maxX, final double maxY) {
+    final double dx = maxX - minX;
+    final double dy = maxY - minY;
+    final double dMax = dx > dy ? dx : dy;
+    int level = DoubleBits.exponent(dMax) + 1;
+
+    double quadSize = DoubleBits.powerOf2(level);
+    double newMinX = Math.floor(minX / quadSize) * quadSize;
+    double newMinY = Math.floor(minY / quadSize) * quadSize;
+    double newMaxX = newMinX + quadSize;
+    double newMaxY = newMinY + quadSize;
+
+    while (!RectangleUtil.covers(newMinX, newMinY, newMaxX, newMaxY, minX, minY, maxX, maxY)) {
+      level++;
+      quadSize = DoubleBits.powerOf2(level);
+      newMinX = Math.floor(minX / quadSize) * quadSize;
+      newMinY = Math.floor(minY / quadSize) * quadSize;
+      newMaxX = newMinX + quadSize;
+      newMaxY = newMinY + quadSize;
+    }
+
+    return new ConcurrentQuadTreeNode<>(edit, level, newMinX, newMinY, newMaxX, newMaxY);
+  }
+
+  private ConcurrentQuadTreeNode<T> newNodeExpanded(final Object edit, double minX, double minY,
+    double maxX, double maxY) {
+    if (this.minX < minX) {
+      minX = this.minX;
+    }
+    if (this.maxX > maxX) {
+      maxX = this.maxX;
+    }
+    if (this.minY < minY) {
+      minY = this.minY;
+    }
+    if (this.maxY > maxY) {
+      maxY = this.maxY;
+    }
+    final ConcurrentQuadTreeNode<T> newNode = newNode(edit, minX, minY, maxX, maxY);
+    newNode.insertNode(edit, this);
+    return newNode;
+  }
+
+  private ConcurrentQuadTreeNode<T> newSubnode(final Object edit, final int index) {
+    double minX;
+    double maxX;
+    double minY;
+    double maxY;
+    if (index == 0 || index == 2) {
+      minX = this.minX;
+      maxX = this.centreX;
+    } else {
+      minX = this.centreX;
+      maxX = this.maxX;
+    }
+    if (index < 2) {
+      minY = this.minY;
+      maxY = this.centreY;
+    } else {
+      minY = this.centreY;
+      maxY = this.maxY;
+    }
+    return new ConcurrentQuadTreeNode<>(edit, this.level - 1, minX, minY, maxX, maxY);
+  }
+
+  /**
+   * Remove the item from this node and the child nodes that intersect the bounding box.
+   *
+   * @param removeCount The number of nodes the item was removed from is added to removeCount[0].
+   * @return This node if it was not modified, otherwise the editable node.
+   */
+  ConcurrentQuadTreeNode<T> removeItem(final ConcurrentQuadTree<T> tree, final Object edit,
+    final double minX, final double minY, final double maxX, final double maxY, final T item,
+    final int[] removeCount) {
+    ConcurrentQuadTreeNode<T> result = this;
+    if (isSearchMatch(minX, minY, maxX, maxY)) {
+      for (int i = 0; i < 4; i++) {
+        final ConcurrentQuadTreeNode<T> node = this.nodes[i];
+        if (node != null) {
+          final int previousRemoveCount = removeCount[0];
+          ConcurrentQuadTreeNode<T> newNode = node.removeItem(tree, edit, minX, minY, maxX, maxY,
+            item, removeCount);
+          if (removeCount[0] != previousRemoveCount) {
+            if (newNode.isPrunable()) {
+              newNode = null;
+            }
+            if (newNode != node) {
+              result = result.editable(edit);
+              result.nodes[i] = newNode;
+            }
+          }
+        }
+      }
+      final int itemIndex = indexOf(tree, item);
+      if (itemIndex != -1) {
+        result = result.editable(edit);
+        result.removeItem(itemIndex);
+        removeCount[0]++;
+      }
+    }
+    return result;
+  }
+
+  private void removeItem(final int itemIndex) {
+    final int itemCount = this.itemCount - 1;
+    final int moveCount = itemCount - itemIndex;
+    if (moveCount > 0) {
+      System.arraycopy(this.items, itemIndex + 1, this.items, itemIndex, moveCount);
+      System.arraycopy(this.boundingBoxes, (itemIndex + 1) * 4, this.boundingBoxes, itemIndex * 4,
+        moveCount * 4);
+    }
+    this.items[itemCount] = null;
+    this.itemCount = itemCount;
+  }
+
+  private void setItem(final int itemIndex, final double minX, final double minY,
+    final double maxX, final double maxY, final T item) {
+    final int offset = itemIndex * 4;
+    final double[] boundingBoxes = this.boundingBoxes;
+    boundingBoxes[offset] = minX;
+    boundingBoxes[offset + 1] = minY;
+    boundingBoxes[offset + 2] = maxX;
+    boundingBoxes[offset + 3] = maxY;
+    this.items[itemIndex] = item;
+  }
+
+  @Override
+  public String toString() {
+    return this.level + " " + BoundingBox.bboxToWkt(this.minX, this.minY, this.maxX, this.maxY)
+      + " " + this.itemCount;
+  }
+}
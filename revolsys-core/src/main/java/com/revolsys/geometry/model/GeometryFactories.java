@@ -1,22 +1,47 @@
 package com.revolsys.geometry.model;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jeometry.coordinatesystem.model.CoordinateSystem;
 import org.jeometry.coordinatesystem.model.systems.EpsgCoordinateSystems;
 import org.jeometry.coordinatesystem.model.systems.EsriCoordinateSystems;
 
+/**
+ * The geometry factories for a coordinate system. A reader that creates geometries with different
+ * axis counts or scales can hold the instances (see {@link GeometryFactory#getInstances()}) and
+ * use {@link #floating(int)} or {@link #fixed(int, double...)} instead of looking up the
+ * coordinate system for each geometry. Lookups don't lock once the factory has been created.
+ * <p>
+ * {@link GeometryFactory#convertAxisCount(int)}, {@link GeometryFactory#convertScales(double...)}
+ * and {@link GeometryFactory#convertAxisCountAndScales(int, double...)} use the instances of the
+ * factory, so readers that convert the factory for each geometry (e.g. the shapefile and JDBC
+ * geometry readers) don't look up the coordinate system. Only converting to another coordinate
+ * system looks up the instances for that coordinate system.
+ * </p>
+ */
 public class GeometryFactories {
+  public static GeometryFactories forCoordinateSystem(final CoordinateSystem coordinateSystem) {
+    return GeometryFactory.instances(coordinateSystem);
+  }
+
+  public static GeometryFactories forCoordinateSystemId(final int coordinateSystemId) {
+    return GeometryFactory.instances(coordinateSystemId);
+  }
 
   private final CoordinateSystem coordinateSystem;
 
   private final int coordinateSystemId;
 
-  private final GeometryFactory[] floatingByAxisCount = new GeometryFactory[3];
+  /**
+   * The fixed geometry factories for each axis count. The arrays are replaced (copy on write) when
+   * a new factory is added so lookups don't need to lock.
+   */
+  private final AtomicReferenceArray<GeometryFactory[]> fixedByAxisCount = new AtomicReferenceArray<>(
+    3);
 
-  @SuppressWarnings("unchecked")
-  private final List<GeometryFactory>[] fixedByAxisCount = new List[3];
+  private final AtomicReferenceArray<GeometryFactory> floatingByAxisCount = new AtomicReferenceArray<>(
+    3);
 
   public GeometryFactories(final CoordinateSystem coordinateSystem) {
     this.coordinateSystem = coordinateSystem;
@@ -35,7 +60,7 @@ public class GeometryFactories {
     this.coordinateSystem = coordinateSystem;
   }
 
-  public synchronized GeometryFactory fixed(final int axisCount, final double... scales) {
+  public GeometryFactory fixed(final int axisCount, final double... scales) {
     if (axisCount < 2 || axisCount > 4) {
       throw new IllegalArgumentException("AxisCount must be in the range 2..4 not " + axisCount);
     } else {
@@ -53,27 +78,28 @@ public class GeometryFactories {
         }
       }
       final int index = axisCount - 2;
-      List<GeometryFactory> geometryFactories;
-      synchronized (this.fixedByAxisCount) {
-
-        geometryFactories = this.fixedByAxisCount[index];
-        if (geometryFactories == null) {
-          synchronized (this.fixedByAxisCount) {
-            if (geometryFactories == null) {
-              geometryFactories = new ArrayList<>();
-              this.fixedByAxisCount[index] = geometryFactories;
-            }
-          }
-        }
+      final GeometryFactory matchFactory = getFixed(this.fixedByAxisCount.get(index), scales);
+      if (matchFactory != null) {
+        return matchFactory;
       }
-      synchronized (geometryFactories) {
-        for (final GeometryFactory matchFactory : geometryFactories) {
-          if (matchFactory.equalsScales(scales)) {
-            return matchFactory;
-          }
+      synchronized (this.fixedByAxisCount) {
+        final GeometryFactory[] geometryFactories = this.fixedByAxisCount.get(index);
+        final GeometryFactory existingFactory = getFixed(geometryFactories, scales);
+        if (existingFactory != null) {
+          return existingFactory;
         }
         final GeometryFactory geometryFactory = new GeometryFactoryFixed(this, axisCount, scales);
-        geometryFactories.add(geometryFactory);
+        final GeometryFactory[] newGeometryFactories;
+        if (geometryFactories == null) {
+          newGeometryFactories = new GeometryFactory[] {
+            geometryFactory
+          };
+        } else {
+          final int count = geometryFactories.length;
+          newGeometryFactories = Arrays.copyOf(geometryFactories, count + 1);
+          newGeometryFactories[count] = geometryFactory;
+        }
+        this.fixedByAxisCount.set(index, newGeometryFactories);
         return geometryFactory;
       }
     }
@@ -90,17 +116,20 @@ public class GeometryFactories {
     }
   }
 
-  public synchronized GeometryFactory floating(final int axisCount) {
+  public GeometryFactory floating(final int axisCount) {
     if (axisCount < 2 || axisCount > 4) {
       throw new IllegalArgumentException("AxisCount must be in the range 2..4 not " + axisCount);
     } else {
       final int index = axisCount - 2;
-      synchronized (this.floatingByAxisCount) {
-        GeometryFactory geometryFactory = this.floatingByAxisCount[index];
-        if (geometryFactory == null) {
-          geometryFactory = new GeometryFactoryFloating(this, axisCount);
-          this.floatingByAxisCount[index] = geometryFactory;
+      final GeometryFactory geometryFactory = this.floatingByAxisCount.get(index);
+      if (geometryFactory == null) {
+        final GeometryFactory newGeometryFactory = new GeometryFactoryFloating(this, axisCount);
+        if (this.floatingByAxisCount.compareAndSet(index, null, newGeometryFactory)) {
+          return newGeometryFactory;
+        } else {
+          return this.floatingByAxisCount.get(index);
         }
+      } else {
         return geometryFactory;
       }
     }
@@ -114,6 +143,18 @@ public class GeometryFactories {
     return this.coordinateSystemId;
   }
 
+  private GeometryFactory getFixed(final GeometryFactory[] geometryFactories,
+    final double[] scales) {
+    if (geometryFactories != null) {
+      for (final GeometryFactory matchFactory : geometryFactories) {
+        if (matchFactory.equalsScales(scales)) {
+          return matchFactory;
+        }
+      }
+    }
+    return null;
+  }
+
   @Override
   public String toString() {
     if (this.coordinateSystem == null) {
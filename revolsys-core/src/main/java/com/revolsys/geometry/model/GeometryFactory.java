@@ -40,11 +40,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -75,7 +75,6 @@ import org.jeometry.coordinatesystem.operation.CoordinatesOperation;
 import org.jeometry.coordinatesystem.operation.CoordinatesOperationPoint;
 
 import com.revolsys.collection.CollectionUtil;
-import com.revolsys.collection.map.IntHashMap;
 import com.revolsys.collection.map.Maps;
 import com.revolsys.geometry.graph.linemerge.LineMerger;
 import com.revolsys.geometry.model.editor.BoundingBoxEditor;
@@ -452,9 +451,24 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
 
   public static final double[] SCALES_FLOATING_3 = new double[3];
 
-  private static final IntHashMap<GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM_ID = new IntHashMap<>();
+  /**
+   * The last {@link GeometryFactories} returned by {@link #instances(int)} for the thread. Readers
+   * normally use the same coordinate system for every record so this avoids the map lookup.
+   */
+  private static class LastInstances {
+    private int clearCount = -1;
+
+    private GeometryFactories instances;
+  }
 
-  private static final HashMap<CoordinateSystem, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM = new HashMap<>();
+  private static final Map<Integer, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM_ID = new ConcurrentHashMap<>();
+
+  private static final Map<CoordinateSystem, GeometryFactories> INSTANCES_BY_COORDINATE_SYSTEM = new ConcurrentHashMap<>();
+
+  private static final ThreadLocal<LastInstances> LAST_INSTANCES = ThreadLocal
+    .withInitial(LastInstances::new);
+
+  private static volatile int clearCount = 0;
 
   public static final GeometryFactory DEFAULT_2D = floating(0, 2);
 
@@ -465,6 +479,8 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
 
   public static void clear() {
     INSTANCES_BY_COORDINATE_SYSTEM_ID.clear();
+    clearCount++;
+    LAST_INSTANCES.remove();
   }
 
   public static GeometryFactory fixed(final CoordinateSystem coordinateSystem, final int axisCount,
@@ -715,12 +731,17 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
           return instances(coordinateSystemId);
         }
       }
-      synchronized (INSTANCES_BY_COORDINATE_SYSTEM) {
-        GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM.get(coordinateSystem);
-        if (instances == null) {
-          instances = new GeometryFactories(coordinateSystem);
-          INSTANCES_BY_COORDINATE_SYSTEM.put(coordinateSystem, instances);
+      final GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM.get(coordinateSystem);
+      if (instances == null) {
+        final GeometryFactories newInstances = new GeometryFactories(coordinateSystem);
+        final GeometryFactories existingInstances = INSTANCES_BY_COORDINATE_SYSTEM
+          .putIfAbsent(coordinateSystem, newInstances);
+        if (existingInstances == null) {
+          return newInstances;
+        } else {
+          return existingInstances;
         }
+      } else {
         return instances;
       }
     }
@@ -730,14 +751,26 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
     if (coordinateSystemId < 0) {
       coordinateSystemId = 0;
     }
-    synchronized (INSTANCES_BY_COORDINATE_SYSTEM_ID) {
-      GeometryFactories instances = INSTANCES_BY_COORDINATE_SYSTEM_ID.get(coordinateSystemId);
+    final LastInstances lastInstances = LAST_INSTANCES.get();
+    GeometryFactories instances = lastInstances.instances;
+    final int clearCount = GeometryFactory.clearCount;
+    if (instances != null && instances.getCoordinateSystemId() == coordinateSystemId
+      && lastInstances.clearCount == clearCount) {
+      return instances;
+    }
+    instances = INSTANCES_BY_COORDINATE_SYSTEM_ID.get(coordinateSystemId);
+    if (instances == null) {
+      // Not created using computeIfAbsent as loading the coordinate system can create other
+      // geometry factories
+      final GeometryFactories newInstances = new GeometryFactories(coordinateSystemId);
+      instances = INSTANCES_BY_COORDINATE_SYSTEM_ID.putIfAbsent(coordinateSystemId, newInstances);
       if (instances == null) {
-        instances = new GeometryFactories(coordinateSystemId);
-        INSTANCES_BY_COORDINATE_SYSTEM_ID.put(coordinateSystemId, instances);
+        instances = newInstances;
       }
-      return instances;
     }
+    lastInstances.instances = instances;
+    lastInstances.clearCount = clearCount;
+    return instances;
   }
 
   public static GeometryFactory nad83() {
@@ -1484,6 +1517,10 @@ public abstract class GeometryFactory implements GeometryFactoryProxy, MapSerial
     }
   }
 
+  public GeometryFactories getInstances() {
+    return this.instances;
+  }
+
   /**
    * Returns the maximum number of significant digits provided by this
    * precision model.
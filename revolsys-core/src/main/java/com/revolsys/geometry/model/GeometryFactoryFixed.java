@@ -30,7 +30,12 @@ public class GeometryFactoryFixed extends GeometryFactory {
 
   @Override
   public GeometryFactory convertAxisCount(final int axisCount) {
-    return this.instances.fixed(axisCount, this.scales);
+    if (axisCount == this.axisCount) {
+      // Readers convert every geometry to the axis count of the data, usually the same axis count
+      return this;
+    } else {
+      return this.instances.fixed(axisCount, this.scales);
+    }
   }
 
   @Override
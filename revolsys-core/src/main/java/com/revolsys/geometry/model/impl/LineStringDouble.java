@@ -160,6 +160,21 @@ public class LineStringDouble extends AbstractLineString {
     }
   }
 
+  @Override
+  public int copyCoordinates(final int axisCount, final int vertexCount, final double nanValue,
+    final double[] destCoordinates, final int destOffset) {
+    if (vertexCount == 0) {
+      return destOffset;
+    } else if (axisCount == this.axisCount && Double.isNaN(nanValue)
+      && vertexCount <= this.vertexCount) {
+      final int coordinateCount = vertexCount * axisCount;
+      System.arraycopy(this.coordinates, 0, destCoordinates, destOffset, coordinateCount);
+      return destOffset + coordinateCount;
+    } else {
+      return super.copyCoordinates(axisCount, vertexCount, nanValue, destCoordinates, destOffset);
+    }
+  }
+
   @Override
   public void copyPoint(final int vertexIndex, final int axisCount, final double[] coordinates) {
     if (vertexIndex < this.vertexCount) {
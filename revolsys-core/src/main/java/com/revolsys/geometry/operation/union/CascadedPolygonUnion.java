@@ -35,6 +35,8 @@ package com.revolsys.geometry.operation.union;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import com.revolsys.collection.list.Lists;
 import com.revolsys.geometry.index.strtree.StrTree;
@@ -70,6 +72,11 @@ import com.revolsys.util.Property;
  * The best situation for using <tt>buffer(0)</tt> is the trivial case
  * where there is <i>no</i> overlap between the input geometries.
  * However, this case is likely rare in practice.
+ * <p>
+ * If a {@link ForkJoinPool} is provided the subtrees of the index and the halves of each
+ * binary union are unioned as separate tasks on the pool. The geometries are merged in the
+ * same index order as the single threaded union, so the result is the same irrespective of
+ * the number of threads or the order the tasks complete in.
  *
  * @author Martin Davis
  *
@@ -138,6 +145,19 @@ public class CascadedPolygonUnion {
     return op.union();
   }
 
+  /**
+   * Computes the union of
+   * a collection of {@link Polygonal} {@link Polygonal}s using the threads from the pool.
+   *
+   * @param polygons a collection of {@link Polygonal} {@link Polygonal}s
+   * @param pool The pool to run the union tasks on.
+   */
+  public static Polygonal union(final Iterable<? extends Polygonal> polygons,
+    final ForkJoinPool pool) {
+    final CascadedPolygonUnion op = new CascadedPolygonUnion(polygons);
+    return op.union(pool);
+  }
+
   public static Polygonal union(final Polygonal... polygons) {
     return union(Arrays.asList(polygons));
   }
@@ -146,6 +166,8 @@ public class CascadedPolygonUnion {
 
   private List<Polygon> polygons = new ArrayList<>();
 
+  private ForkJoinPool pool;
+
   /**
    * Creates a new instance to union
    * the given collection of {@link Polygonal}s.
@@ -197,9 +219,18 @@ public class CascadedPolygonUnion {
 
       // recurse on both halves of the list
       final int mid = (end + start) / 2;
-      final Polygonal polygon1 = binaryUnion(polygons, start, mid);
-      final Polygonal polygon2 = binaryUnion(polygons, mid, end);
-      return unionSafe(polygon1, polygon2);
+      if (this.pool == null) {
+        final Polygonal polygon1 = binaryUnion(polygons, start, mid);
+        final Polygonal polygon2 = binaryUnion(polygons, mid, end);
+        return unionSafe(polygon1, polygon2);
+      } else {
+        final ForkJoinTask<Polygonal> task1 = ForkJoinTask
+          .adapt(() -> binaryUnion(polygons, start, mid))
+          .fork();
+        final Polygonal polygon2 = binaryUnion(polygons, mid, end);
+        final Polygonal polygon1 = task1.join();
+        return unionSafe(polygon1, polygon2);
+      }
     }
   }
 
@@ -231,6 +262,9 @@ public class CascadedPolygonUnion {
    * @return a list of Geometrys
    */
   private List<Polygonal> reduceToGeometries(final List<?> items) {
+    if (this.pool != null) {
+      return reduceToGeometriesParallel(items);
+    }
     final List<Polygonal> geoms = new ArrayList<>();
     for (final Object item : items) {
       Polygonal polygon = null;
@@ -245,6 +279,38 @@ public class CascadedPolygonUnion {
     return geoms;
   }
 
+  /**
+   * Reduces a tree of geometries to a list of geometries
+   * by unioning each subtree as a separate task. The result is in the same
+   * order as the items.
+   *
+   * @param items a tree-structured list of geometries
+   * @return a list of Geometrys
+   */
+  @SuppressWarnings("unchecked")
+  private List<Polygonal> reduceToGeometriesParallel(final List<?> items) {
+    final int itemCount = items.size();
+    final Object[] results = new Object[itemCount];
+    for (int i = 0; i < itemCount; i++) {
+      final Object item = items.get(i);
+      if (item instanceof List) {
+        final List<?> childItems = (List<?>)item;
+        results[i] = ForkJoinTask.adapt(() -> unionTree(childItems)).fork();
+      } else if (item instanceof Polygonal) {
+        results[i] = item;
+      }
+    }
+    final List<Polygonal> geoms = new ArrayList<>(itemCount);
+    for (final Object result : results) {
+      if (result instanceof ForkJoinTask) {
+        geoms.add(((ForkJoinTask<Polygonal>)result).join());
+      } else {
+        geoms.add((Polygonal)result);
+      }
+    }
+    return geoms;
+  }
+
   /**
    * Computes the union of the input geometries.
    * <p>
@@ -260,6 +326,19 @@ public class CascadedPolygonUnion {
    * @throws IllegalStateException if this method is called more than once
    */
   public Polygonal union() {
+    return union((ForkJoinPool)null);
+  }
+
+  /**
+   * Computes the union of the input geometries using the threads from the pool. If the pool is
+   * null the union is computed on the current thread.
+   *
+   * @param pool The pool to run the union tasks on.
+   * @return the union of the input geometries
+   * @throws IllegalStateException if this method is called more than once
+   * @see #union()
+   */
+  public Polygonal union(final ForkJoinPool pool) {
     if (this.polygons == null) {
       throw new IllegalStateException("union() method cannot be called twice");
     } else if (this.polygons.isEmpty()) {
@@ -281,8 +360,17 @@ public class CascadedPolygonUnion {
       this.polygons = null;
 
       final List<?> itemTree = index.itemsTree();
-      final Polygonal unionAll = unionTree(itemTree);
-      return unionAll;
+      if (pool == null) {
+        final Polygonal unionAll = unionTree(itemTree);
+        return unionAll;
+      } else {
+        this.pool = pool;
+        try {
+          return pool.invoke(ForkJoinTask.adapt(() -> unionTree(itemTree)));
+        } finally {
+          this.pool = null;
+        }
+      }
     }
   }
 
@@ -38,6 +38,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import com.revolsys.geometry.algorithm.PointLocator;
 import com.revolsys.geometry.graph.linemerge.LineMerger;
@@ -113,7 +114,26 @@ public class UnaryUnionOp {
    * or an empty GEOMETRYCOLLECTION
    */
   public static Geometry union(final Collection<? extends Geometry> geometries,
-    GeometryFactory geometryFactory) {
+    final GeometryFactory geometryFactory) {
+    return union(geometries, geometryFactory, null);
+  }
+
+  /**
+   * Computes the geometric union of a {@link Collection}
+   * of {@link Geometry}s. The polygons are unioned using the threads from the pool.
+   *
+   * If no input geometries were provided but a {@link GeometryFactory} was provided,
+   * an empty {@link Geometry} is returned.
+   *
+   * @param geoms a collection of geometries
+   * @param geometryFactory the geometry factory to use if the collection is empty
+   * @param pool The pool to run the polygon union tasks on, or null to use the current thread.
+   * @return the union of the geometries,
+   * or an empty GEOMETRYCOLLECTION
+   * @see CascadedPolygonUnion#union(Iterable, ForkJoinPool)
+   */
+  public static Geometry union(final Collection<? extends Geometry> geometries,
+    GeometryFactory geometryFactory, final ForkJoinPool pool) {
 
     final List<Point> points = new ArrayList<>();
     final List<LineString> lines = new ArrayList<>();
@@ -126,7 +146,7 @@ public class UnaryUnionOp {
       lines.addAll(geometry.getGeometries(LineString.class));
       polygons.addAll(geometry.getGeometries(Polygon.class));
     }
-    return union(geometryFactory, points, lines, polygons);
+    return union(geometryFactory, points, lines, polygons, pool);
   }
 
   /**
@@ -152,7 +172,7 @@ public class UnaryUnionOp {
    * or <code>null</code> if no GeometryFactory was provided
    */
   private static Geometry union(final GeometryFactory geometryFactory, final List<Point> points,
-    final List<LineString> lines, final List<Polygon> polygons) {
+    final List<LineString> lines, final List<Polygon> polygons, final ForkJoinPool pool) {
     if (geometryFactory == null) {
       return null;
     } else {
@@ -177,7 +197,7 @@ public class UnaryUnionOp {
 
       Geometry unionPolygons = null;
       if (polygons.size() > 0) {
-        unionPolygons = CascadedPolygonUnion.union(polygons);
+        unionPolygons = CascadedPolygonUnion.union(polygons, pool);
       }
 
       /**
@@ -0,0 +1,73 @@
+package com.revolsys.geometry.util;
+
+/**
+ * Calculate the distance along a Hilbert space filling curve. Values that are close on the curve
+ * are close in space, so sorting by the curve distance gives good spatial locality.
+ */
+public class HilbertCurve {
+
+  /**
+   * Get the distance along a Hilbert curve of the given order for the cell x, y. The curve
+   * covers a grid of 2<sup>order</sup> x 2<sup>order</sup> cells.
+   *
+   * @param order The order of the curve (1-31).
+   * @param x The cell x (0 to 2<sup>order</sup> - 1).
+   * @param y The cell y (0 to 2<sup>order</sup> - 1).
+   * @return The distance along the curve.
+   * @throws IllegalArgumentException If the order isn't 1-31.
+   */
+  public static long index(final int order, int x, int y) {
+    final int maxCell = maxCell(order);
+    long index = 0;
+    for (long s = (maxCell >> 1) + 1L; s > 0; s >>= 1) {
+      final int rx = (x & s) > 0 ? 1 : 0;
+      final int ry = (y & s) > 0 ? 1 : 0;
+      index += s * s * (3 * rx ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = maxCell - x;
+          y = maxCell - y;
+        }
+        final int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Get the distance along a Hilbert curve of the given order for the point x, y scaled to the
+   * grid of cells covering the bounds minX, minY, maxX, maxY.
+   *
+   * @param order The order of the curve (1-31).
+   * @param minX The minimum x of the bounds.
+   * @param minY The minimum y of the bounds.
+   * @param maxX The maximum x of the bounds.
+   * @param maxY The maximum y of the bounds.
+   * @param x The point x.
+   * @param y The point y.
+   * @return The distance along the curve.
+   * @throws IllegalArgumentException If the order isn't 1-31.
+   */
+  public static long index(final int order, final double minX, final double minY,
+    final double maxX, final double maxY, final double x, final double y) {
+    final double cellCount = maxCell(order);
+    final double width = Math.max(maxX - minX, Double.MIN_NORMAL);
+    final double height = Math.max(maxY - minY, Double.MIN_NORMAL);
+    final int cellX = (int)((x - minX) / width * cellCount);
+    final int cellY = (int)((y - minY) / height * cellCount);
+    return index(order, cellX, cellY);
+  }
+
+  /**
+   * Get the maximum cell x or y (2<sup>order</sup> - 1) for a curve of the given order. The
+   * calculations use long as 2<sup>31</sup> doesn't fit in an int.
+   */
+  private static int maxCell(final int order) {
+    if (order < 1 || order > 31) {
+      throw new IllegalArgumentException("Hilbert curve order must be 1-31 not " + order);
+    }
+    return (int)((1L << order) - 1);
+  }
+}
@@ -33,6 +33,8 @@
 package com.revolsys.geometry.wkb;
 
 import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -102,16 +104,25 @@ public class WKBReader {
     return nib;
   }
 
+  private final WkbByteBufferReader byteBufferReader;
+
   private final ByteOrderDataInStream dis = new ByteOrderDataInStream();
 
   private final GeometryFactory geometryFactory;
 
+  private int sridCoordinateSystemId = -1;
+
+  private GeometryFactory sridGeometryFactory;
+
+  private GeometryFactory sridSourceGeometryFactory;
+
   public WKBReader() {
     this(GeometryFactory.DEFAULT_3D);
   }
 
   public WKBReader(final GeometryFactory geometryFactory) {
     this.geometryFactory = geometryFactory;
+    this.byteBufferReader = new WkbByteBufferReader(geometryFactory);
   }
 
   /**
@@ -122,12 +133,12 @@ public class WKBReader {
    * @throws ParseException if the WKB is ill-formed
    */
   public Geometry read(final byte[] bytes) throws ParseException {
-    // possibly reuse the ByteArrayInStream?
-    // don't throw IOExceptions, since we are not doing any I/O
+    // Decode directly from the bytes using bulk coordinate reads
     try {
-      return read(new ByteArrayInStream(bytes));
-    } catch (final IOException ex) {
-      throw new RuntimeException("Unexpected IOException caught: " + ex.getMessage());
+      final ByteBuffer data = ByteBuffer.wrap(bytes);
+      return this.byteBufferReader.read(data);
+    } catch (final IllegalArgumentException | BufferUnderflowException e) {
+      throw new ParseException(e);
     }
   }
 
@@ -190,7 +201,14 @@ public class WKBReader {
     if (hasSRID) {
       coordinateSystemId = this.dis.readInt();
       if (coordinateSystemId != geometryFactory.getHorizontalCoordinateSystemId()) {
-        geometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+        // Reuse the converted factory as all geometries in a column normally have the same SRID
+        if (coordinateSystemId != this.sridCoordinateSystemId
+          || geometryFactory != this.sridSourceGeometryFactory) {
+          this.sridSourceGeometryFactory = geometryFactory;
+          this.sridCoordinateSystemId = coordinateSystemId;
+          this.sridGeometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+        }
+        geometryFactory = this.sridGeometryFactory;
       }
     }
 
@@ -1,10 +1,10 @@
 package com.revolsys.geometry.wkb;
 
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.function.BiFunction;
+import java.nio.DoubleBuffer;
 
-import com.revolsys.collection.map.IntHashMap;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.LineString;
@@ -14,232 +14,333 @@ import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
 import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.model.Punctual;
-
+import com.revolsys.geometry.model.impl.LineStringDoubleGf;
+import com.revolsys.geometry.model.impl.LinearRingDoubleGf;
+
+/**
+ * Read WKB from a {@link ByteBuffer}. The ISO (e.g. 1002 for LINESTRING Z) and the PostGIS
+ * extended WKB (Z, M and SRID flags) geometry types are supported.
+ * <p>
+ * The coordinates of each line or ring are copied in bulk from a {@link DoubleBuffer} view of the
+ * data with the byte order of the geometry, into the coordinates array used by the new geometry.
+ * </p>
+ * <p>
+ * The static methods create geometries using the geometry factory's axis count. A reader
+ * instance created with convertAxisCount=true uses the axis count of the WKB and can be reused to
+ * read multiple geometries. A reader instance is not thread-safe.
+ * </p>
+ */
 public class WkbByteBufferReader {
-  private static final IntHashMap<BiFunction<GeometryFactory, ByteBuffer, Geometry>> READERS = new IntHashMap<>();
-
-  static {
-    READERS.put(1, WkbByteBufferReader::readPoint);
-    READERS.put(1001, WkbByteBufferReader::readPointZ);
-    READERS.put(2001, WkbByteBufferReader::readPointM);
-    READERS.put(3001, WkbByteBufferReader::readPointZM);
-
-    READERS.put(2, WkbByteBufferReader::readLineString);
-    READERS.put(1002, WkbByteBufferReader::readLineStringZ);
-    READERS.put(2002, WkbByteBufferReader::readLineStringM);
-    READERS.put(3002, WkbByteBufferReader::readLineStringZM);
-
-    READERS.put(3, WkbByteBufferReader::readPolygon);
-    READERS.put(1003, WkbByteBufferReader::readPolygonZ);
-    READERS.put(2003, WkbByteBufferReader::readPolygonM);
-    READERS.put(3003, WkbByteBufferReader::readPolygonZM);
-
-    READERS.put(4, WkbByteBufferReader::readMultiPoint);
-    READERS.put(1004, WkbByteBufferReader::readMultiPoint);
-    READERS.put(2004, WkbByteBufferReader::readMultiPoint);
-    READERS.put(3004, WkbByteBufferReader::readMultiPoint);
-
-    READERS.put(5, WkbByteBufferReader::readMultiLineString);
-    READERS.put(1005, WkbByteBufferReader::readMultiLineString);
-    READERS.put(2005, WkbByteBufferReader::readMultiLineString);
-    READERS.put(3005, WkbByteBufferReader::readMultiLineString);
-
-    READERS.put(6, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(1006, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(2006, WkbByteBufferReader::readMultiPolygon);
-    READERS.put(3006, WkbByteBufferReader::readMultiPolygon);
-
-    READERS.put(7, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(1007, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(2007, WkbByteBufferReader::readGeometryCollection);
-    READERS.put(3007, WkbByteBufferReader::readGeometryCollection);
-  }
-
-  private static double[] readCoordinates(final ByteBuffer data, final int axisCount) {
-    final int vertexCount = data.getInt();
-    final int coordinateCount = axisCount * vertexCount;
-    final double[] coordinates = new double[coordinateCount];
-
-    for (int i = 0; i < coordinateCount; i++) {
-      final double coordinate = data.getDouble();
-      coordinates[i] = coordinate;
-    }
-    return coordinates;
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_Z = 0x80000000;
+
+  /** The marker Spatialite uses instead of the byte order for the parts of a multi geometry. */
+  private static final byte SPATIALITE_PART = 0x69;
+
+  public static <G extends Geometry> G readGeometry(final GeometryFactory geometryFactory,
+    final byte[] bytes) {
+    final ByteBuffer data = ByteBuffer.wrap(bytes);
+    return readGeometry(geometryFactory, data);
+  }
+
+  public static <G extends Geometry> G readGeometry(final GeometryFactory geometryFactory,
+    final ByteBuffer data) {
+    final WkbByteBufferReader reader = new WkbByteBufferReader(geometryFactory, false);
+    return reader.read(data);
   }
 
-  private static double[] readCoordinatesM(final ByteBuffer data) {
-    final int vertexCount = data.getInt();
-    final int coordinateCount = 4 * vertexCount;
-    final double[] coordinates = new double[coordinateCount];
+  private final boolean convertAxisCount;
 
-    for (int coordinateIndex = 0; coordinateIndex < coordinateCount;) {
-      final double x = data.getDouble();
-      coordinates[coordinateIndex++] = x;
+  private final GeometryFactory geometryFactory;
 
-      final double y = data.getDouble();
-      coordinates[coordinateIndex++] = y;
+  private int sridCoordinateSystemId = -1;
 
-      final double z = Double.NaN;
-      coordinates[coordinateIndex++] = z;
+  private GeometryFactory sridGeometryFactory;
+
+  private GeometryFactory sridSourceGeometryFactory;
+
+  public WkbByteBufferReader(final GeometryFactory geometryFactory) {
+    this(geometryFactory, true);
+  }
 
-      final double m = data.getDouble();
-      coordinates[coordinateIndex++] = m;
+  /**
+   * @param geometryFactory The geometry factory to create the geometries with.
+   * @param convertAxisCount If true the geometry factory is converted to the axis count of each
+   * geometry, otherwise the geometry factory's axis count is used.
+   */
+  public WkbByteBufferReader(final GeometryFactory geometryFactory,
+    final boolean convertAxisCount) {
+    this.geometryFactory = geometryFactory;
+    this.convertAxisCount = convertAxisCount;
+  }
+
+  private GeometryFactory getSridGeometryFactory(final GeometryFactory geometryFactory,
+    final int coordinateSystemId) {
+    if (coordinateSystemId == geometryFactory.getHorizontalCoordinateSystemId()) {
+      return geometryFactory;
+    } else {
+      // Reuse the converted factory as all geometries in a column normally have the same SRID
+      if (coordinateSystemId != this.sridCoordinateSystemId
+        || geometryFactory != this.sridSourceGeometryFactory) {
+        this.sridSourceGeometryFactory = geometryFactory;
+        this.sridCoordinateSystemId = coordinateSystemId;
+        this.sridGeometryFactory = geometryFactory.convertSrid(coordinateSystemId);
+      }
+      return this.sridGeometryFactory;
     }
-    return coordinates;
   }
 
-  @SuppressWarnings("unchecked")
-  public static <G extends Geometry> G readGeometry(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    ByteOrder byteOrder;
-    if (data.get() == 0) {
-      byteOrder = ByteOrder.BIG_ENDIAN;
+  private LineString newLineString(final GeometryFactory geometryFactory, final int axisCount,
+    final int vertexCount, final double[] coordinates) {
+    if (vertexCount == 0) {
+      return geometryFactory.lineString();
+    } else if (axisCount == geometryFactory.getAxisCount()) {
+      makePrecise(geometryFactory, axisCount, coordinates);
+      return new LineStringDoubleGf(geometryFactory, axisCount, vertexCount, coordinates);
     } else {
-      byteOrder = ByteOrder.LITTLE_ENDIAN;
+      return geometryFactory.lineString(axisCount, vertexCount, coordinates);
     }
-    data.order(byteOrder);
+  }
 
-    final int geometryType = data.getInt();
-    final BiFunction<GeometryFactory, ByteBuffer, Geometry> reader = READERS.get(geometryType);
-    if (reader == null) {
-      throw new IllegalArgumentException("Unsupported WKB geometryType=" + geometryType);
+  private LinearRing newLinearRing(final GeometryFactory geometryFactory, final int axisCount,
+    int vertexCount, double[] coordinates) {
+    if (vertexCount == 0) {
+      return geometryFactory.linearRing();
     } else {
-      return (G)reader.apply(geometryFactory, data);
+      final int lastIndex = (vertexCount - 1) * axisCount;
+      if (coordinates[0] != coordinates[lastIndex]
+        || coordinates[1] != coordinates[lastIndex + 1]) {
+        // Close the ring
+        final double[] newCoordinates = new double[coordinates.length + axisCount];
+        System.arraycopy(coordinates, 0, newCoordinates, 0, coordinates.length);
+        System.arraycopy(coordinates, 0, newCoordinates, coordinates.length, axisCount);
+        coordinates = newCoordinates;
+        vertexCount++;
+      }
+      if (axisCount == geometryFactory.getAxisCount()) {
+        makePrecise(geometryFactory, axisCount, coordinates);
+        return new LinearRingDoubleGf(geometryFactory, axisCount, vertexCount, coordinates);
+      } else {
+        return geometryFactory.linearRing(axisCount, vertexCount, coordinates);
+      }
     }
   }
 
-  private static Geometry readGeometryCollection(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int geometryCount = data.getInt();
-    final Geometry[] geometries = new Geometry[geometryCount];
-    for (int i = 0; i < geometryCount; i++) {
-      geometries[i] = readGeometry(geometryFactory, data);
+  private void makePrecise(final GeometryFactory geometryFactory, final int axisCount,
+    final double[] coordinates) {
+    if (!geometryFactory.isFloating()) {
+      for (int i = 0; i < coordinates.length; i++) {
+        final int axisIndex = i % axisCount;
+        coordinates[i] = geometryFactory.makePrecise(axisIndex, coordinates[i]);
+      }
     }
-    return geometryFactory.geometry(geometries);
   }
 
-  private static LineString readLineString(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 2;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
+  /**
+   * Read a geometry from the current position of the buffer. The position of the buffer will be
+   * set to the end of the geometry.
+   *
+   * @param data The buffer to read from.
+   * @return The geometry.
+   * @throws IllegalArgumentException If the WKB is invalid.
+   * @throws BufferUnderflowException If the WKB is truncated.
+   */
+  @SuppressWarnings("unchecked")
+  public <G extends Geometry> G read(final ByteBuffer data) {
+    return (G)readGeometry(data, this.geometryFactory, false);
   }
 
-  private static LineString readLineStringM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 4;
-    final double[] coordinates = readCoordinatesM(data);
-    return geometryFactory.lineString(axisCount, coordinates);
+  /**
+   * Read the coordinates into a new array. XYM coordinates are converted to XYZM with a NaN z.
+   */
+  private double[] readCoordinates(final ByteBuffer data, final int vertexCount,
+    final int axisCount, final int dataAxisCount) {
+    if (vertexCount > data.remaining() / (dataAxisCount * 8)) {
+      throw new BufferUnderflowException();
+    }
+    final double[] coordinates = new double[vertexCount * axisCount];
+    final int position = data.position();
+    final DoubleBuffer doubles = data.asDoubleBuffer();
+    if (axisCount == dataAxisCount) {
+      doubles.get(coordinates);
+    } else {
+      for (int coordinateIndex = 0; coordinateIndex < coordinates.length;) {
+        coordinates[coordinateIndex++] = doubles.get();
+        coordinates[coordinateIndex++] = doubles.get();
+        coordinates[coordinateIndex++] = Double.NaN;
+        coordinates[coordinateIndex++] = doubles.get();
+      }
+    }
+    data.position(position + vertexCount * dataAxisCount * 8);
+    return coordinates;
   }
 
-  private static LineString readLineStringZ(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 3;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
+  /**
+   * Read a count of vertices, rings or parts. Each of these uses at least 4 bytes so larger
+   * counts are rejected before the arrays are created.
+   */
+  private int readCount(final ByteBuffer data, final String name) {
+    final int count = data.getInt();
+    if (count < 0) {
+      throw new IllegalArgumentException("Invalid WKB " + name + "=" + count);
+    } else if (count > data.remaining() / 4) {
+      throw new BufferUnderflowException();
+    } else {
+      return count;
+    }
   }
 
-  private static LineString readLineStringZM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int axisCount = 4;
-    final double[] coordinates = readCoordinates(data, axisCount);
-    return geometryFactory.lineString(axisCount, coordinates);
+  private Geometry readGeometry(final ByteBuffer data, GeometryFactory geometryFactory,
+    final boolean part) {
+    final byte byteOrder = data.get();
+    if (byteOrder == WKBConstants.wkbXDR) {
+      data.order(ByteOrder.BIG_ENDIAN);
+    } else if (byteOrder == WKBConstants.wkbNDR) {
+      data.order(ByteOrder.LITTLE_ENDIAN);
+    } else if (byteOrder == SPATIALITE_PART && part) {
+      // Spatialite uses 0x69 for the parts of a multi geometry, these use the parent byte order
+    } else {
+      throw new IllegalArgumentException(
+        "Unknown geometry byte order (not NDR or XDR): " + byteOrder);
+    }
+
+    final int typeInt = data.getInt();
+    final int typeCode = typeInt & 0x0FFFFFFF;
+    final int geometryType = typeCode % 1000;
+    final int dimensionType = typeCode / 1000;
+    final boolean hasZ = (typeInt & EWKB_Z) != 0 || dimensionType == 1 || dimensionType == 3;
+    final boolean hasM = (typeInt & EWKB_M) != 0 || dimensionType == 2 || dimensionType == 3;
+    if ((typeInt & EWKB_SRID) != 0) {
+      final int coordinateSystemId = data.getInt();
+      geometryFactory = getSridGeometryFactory(geometryFactory, coordinateSystemId);
+    }
+    int dataAxisCount = 2;
+    if (hasZ) {
+      dataAxisCount++;
+    }
+    if (hasM) {
+      dataAxisCount++;
+    }
+    final int axisCount;
+    if (hasM) {
+      axisCount = 4;
+    } else {
+      axisCount = dataAxisCount;
+    }
+    if (this.convertAxisCount) {
+      geometryFactory = geometryFactory.convertAxisCount(axisCount);
+    }
+
+    switch (geometryType) {
+      case WKBConstants.wkbPoint:
+        return readPoint(data, geometryFactory, axisCount, dataAxisCount);
+      case WKBConstants.wkbLineString:
+        return readLineString(data, geometryFactory, axisCount, dataAxisCount);
+      case WKBConstants.wkbPolygon:
+        return readPolygon(data, geometryFactory, axisCount, dataAxisCount);
+      case WKBConstants.wkbMultiPoint:
+        return readMultiPoint(data, geometryFactory);
+      case WKBConstants.wkbMultiLineString:
+        return readMultiLineString(data, geometryFactory);
+      case WKBConstants.wkbMultiPolygon:
+        return readMultiPolygon(data, geometryFactory);
+      case WKBConstants.wkbGeometryCollection:
+        return readGeometryCollection(data, geometryFactory);
+      default:
+        throw new IllegalArgumentException("Unsupported WKB geometryType=" + typeInt);
+    }
   }
 
-  private static Lineal readMultiLineString(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int lineCount = data.getInt();
+  private Geometry readGeometryCollection(final ByteBuffer data,
+    final GeometryFactory geometryFactory) {
+    final int geometryCount = readCount(data, "geometryCount");
+    final Geometry[] geometries = new Geometry[geometryCount];
+    for (int i = 0; i < geometryCount; i++) {
+      geometries[i] = readGeometry(data, geometryFactory, true);
+    }
+    return geometryFactory.geometry(geometries);
+  }
+
+  private LineString readLineString(final ByteBuffer data, final GeometryFactory geometryFactory,
+    final int axisCount, final int dataAxisCount) {
+    final int vertexCount = readCount(data, "vertexCount");
+    final double[] coordinates = readCoordinates(data, vertexCount, axisCount, dataAxisCount);
+    return newLineString(geometryFactory, axisCount, vertexCount, coordinates);
+  }
+
+  private Lineal readMultiLineString(final ByteBuffer data, final GeometryFactory geometryFactory) {
+    final int lineCount = readCount(data, "lineCount");
     final LineString[] lines = new LineString[lineCount];
     for (int i = 0; i < lineCount; i++) {
-      lines[i] = readGeometry(geometryFactory, data);
+      lines[i] = readPart(data, geometryFactory, LineString.class, "MultiLineString");
     }
     return geometryFactory.lineal(lines);
   }
 
-  private static Punctual readMultiPoint(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int pointCount = data.getInt();
+  private Punctual readMultiPoint(final ByteBuffer data, final GeometryFactory geometryFactory) {
+    final int pointCount = readCount(data, "pointCount");
     final Point[] points = new Point[pointCount];
     for (int i = 0; i < pointCount; i++) {
-      points[i] = readGeometry(geometryFactory, data);
+      points[i] = readPart(data, geometryFactory, Point.class, "MultiPoint");
     }
     return geometryFactory.punctual(points);
   }
 
-  private static Polygonal readMultiPolygon(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int polygonCount = data.getInt();
+  private Polygonal readMultiPolygon(final ByteBuffer data, final GeometryFactory geometryFactory) {
+    final int polygonCount = readCount(data, "polygonCount");
     final Polygon[] polygons = new Polygon[polygonCount];
     for (int i = 0; i < polygonCount; i++) {
-      polygons[i] = readGeometry(geometryFactory, data);
+      polygons[i] = readPart(data, geometryFactory, Polygon.class, "MultiPolygon");
     }
     return geometryFactory.polygonal(polygons);
   }
 
-  private static Point readPoint(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    return geometryFactory.point(x, y);
-  }
-
-  private static Point readPointM(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = Double.NaN;
-    final double m = data.getDouble();
-    return geometryFactory.point(x, y, z, m);
-  }
-
-  private static Point readPointZ(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = data.getDouble();
-    return geometryFactory.point(x, y, z);
-  }
-
-  private static Point readPointZM(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    final double x = data.getDouble();
-    final double y = data.getDouble();
-    final double z = data.getDouble();
-    final double m = data.getDouble();
-    return geometryFactory.point(x, y, z, m);
-  }
-
-  private static Polygon readPolygon(final GeometryFactory geometryFactory, final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 2);
+  @SuppressWarnings("unchecked")
+  private <G extends Geometry> G readPart(final ByteBuffer data,
+    final GeometryFactory geometryFactory, final Class<G> partClass, final String typeName) {
+    final Geometry geometry = readGeometry(data, geometryFactory, true);
+    if (partClass.isInstance(geometry)) {
+      return (G)geometry;
+    } else {
+      throw new IllegalArgumentException(
+        "Invalid geometry type " + geometry.getGeometryType() + " in " + typeName);
+    }
   }
 
-  private static Polygon readPolygon(final GeometryFactory geometryFactory, final ByteBuffer data,
-    final int axisCount) {
-    final int ringCount = data.getInt();
-    final LinearRing[] rings = new LinearRing[ringCount];
-    for (int i = 0; i < ringCount; i++) {
-      final double[] coordinates = readCoordinates(data, axisCount);
-      final LinearRing ring = geometryFactory.linearRing(axisCount, coordinates);
-      rings[i] = ring;
+  private Point readPoint(final ByteBuffer data, final GeometryFactory geometryFactory,
+    final int axisCount, final int dataAxisCount) {
+    if (axisCount == 2) {
+      final double x = data.getDouble();
+      final double y = data.getDouble();
+      if (Double.isNaN(x) && Double.isNaN(y)) {
+        return geometryFactory.point();
+      } else {
+        return geometryFactory.point(geometryFactory.makePrecise(0, x),
+          geometryFactory.makePrecise(1, y));
+      }
+    } else {
+      final double[] coordinates = readCoordinates(data, 1, axisCount, dataAxisCount);
+      if (Double.isNaN(coordinates[0]) && Double.isNaN(coordinates[1])) {
+        return geometryFactory.point();
+      } else {
+        makePrecise(geometryFactory, axisCount, coordinates);
+        return geometryFactory.point(coordinates);
+      }
     }
-    return geometryFactory.polygon(rings);
   }
 
-  private static Polygon readPolygonM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    final int ringCount = data.getInt();
+  private Polygon readPolygon(final ByteBuffer data, final GeometryFactory geometryFactory,
+    final int axisCount, final int dataAxisCount) {
+    final int ringCount = readCount(data, "ringCount");
     final LinearRing[] rings = new LinearRing[ringCount];
     for (int i = 0; i < ringCount; i++) {
-      final double[] coordinates = readCoordinatesM(data);
-      final LinearRing ring = geometryFactory.linearRing(4, coordinates);
-      rings[i] = ring;
+      final int vertexCount = readCount(data, "vertexCount");
+      final double[] coordinates = readCoordinates(data, vertexCount, axisCount, dataAxisCount);
+      rings[i] = newLinearRing(geometryFactory, axisCount, vertexCount, coordinates);
     }
     return geometryFactory.polygon(rings);
   }
-
-  private static Polygon readPolygonZ(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 3);
-  }
-
-  private static Polygon readPolygonZM(final GeometryFactory geometryFactory,
-    final ByteBuffer data) {
-    return readPolygon(geometryFactory, data, 4);
-  }
 }
@@ -1,6 +1,9 @@
 package com.revolsys.geometry.wkb;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
 
 import org.jeometry.common.function.BiConsumerDouble;
 import org.jeometry.common.function.Consumer3Double;
@@ -18,8 +21,14 @@ import com.revolsys.geometry.model.Point;
 import com.revolsys.geometry.model.Polygon;
 import com.revolsys.io.channels.ChannelWriter;
 
+/**
+ * Write geometries as WKB using the byte order of the {@link ChannelWriter}'s buffer. The
+ * coordinates of each line are copied into a reusable array and written to the buffer in bulk.
+ */
 public class WkbChannelWriter extends ChannelWriter {
 
+  private double[] coordinates = new double[0];
+
   private final BiConsumerDouble writeVertex = (x, y) -> {
     putDouble(x);
     putDouble(y);
@@ -42,8 +51,37 @@ public class WkbChannelWriter extends ChannelWriter {
     super(out);
   }
 
+  /**
+   * <p>Create a new WkbChannelWriter. The buffer can be reused for multiple writers.<p>
+   *
+   * <p><b>NOTE: The underlying channel will not be automatically closed.</p>
+   *
+   * @param channel The channel.
+   * @param buffer The temporary buffer used to write to the channel.
+   */
+  public WkbChannelWriter(final WritableByteChannel channel, final ByteBuffer buffer) {
+    super(channel, buffer);
+  }
+
+  private double[] getCoordinates(final int coordinateCount) {
+    double[] coordinates = this.coordinates;
+    if (coordinates.length < coordinateCount) {
+      coordinates = new double[Math.max(coordinateCount, coordinates.length * 2)];
+      this.coordinates = coordinates;
+    }
+    return coordinates;
+  }
+
+  public void writeByteOrder() {
+    if (getByteOrder() == ByteOrder.LITTLE_ENDIAN) {
+      putByte((byte)WKBConstants.wkbNDR);
+    } else {
+      putByte((byte)WKBConstants.wkbXDR);
+    }
+  }
+
   public void writeGeometry(final Geometry geometry) {
-    putByte((byte)0);
+    writeByteOrder();
     if (geometry instanceof Point) {
       writePoint((Point)geometry);
     } else if (geometry instanceof LineString) {
@@ -98,25 +136,18 @@ public class WkbChannelWriter extends ChannelWriter {
   public void writeLineCoordinates(final LineString line, final int axisCount) {
     final int vertexCount = line.getVertexCount();
     putInt(vertexCount);
-    if (axisCount == 4) {
-      line.forEachVertex(this.writeVertexZM);
-    } else if (axisCount == 3) {
-      line.forEachVertex(this.writeVertexZ);
-    } else {
-      line.forEachVertex(this.writeVertex);
-    }
+    final double[] coordinates = getCoordinates(vertexCount * axisCount);
+    final int coordinateCount = line.copyCoordinates(axisCount, Double.NaN, coordinates, 0);
+    putDoubles(coordinates, 0, coordinateCount);
   }
 
   public void writeLineCoordinatesReverse(final LineString line, final int axisCount) {
     final int vertexCount = line.getVertexCount();
     putInt(vertexCount);
-    if (axisCount == 4) {
-      line.forEachVertexReverse(this.writeVertexZM);
-    } else if (axisCount == 3) {
-      line.forEachVertexReverse(this.writeVertexZ);
-    } else {
-      line.forEachVertexReverse(this.writeVertex);
-    }
+    final double[] coordinates = getCoordinates(vertexCount * axisCount);
+    final int coordinateCount = line.copyCoordinatesReverse(axisCount, Double.NaN, coordinates,
+      0);
+    putDoubles(coordinates, 0, coordinateCount);
   }
 
   public void writeLineString(final LineString line) {
@@ -129,7 +160,7 @@ public class WkbChannelWriter extends ChannelWriter {
     final int lineCount = multiLineString.getGeometryCount();
     putInt(lineCount);
     for (int lineIndex = 0; lineIndex < lineCount; lineIndex++) {
-      putByte((byte)0);
+      writeByteOrder();
       final LineString line = multiLineString.getLineString(lineIndex);
       writeLineString(line);
     }
@@ -140,7 +171,7 @@ public class WkbChannelWriter extends ChannelWriter {
     final int pointCount = multiPoint.getGeometryCount();
     putInt(pointCount);
     for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
-      putByte((byte)0);
+      writeByteOrder();
       final Point point = multiPoint.getPoint(pointIndex);
       writePoint(point);
     }
@@ -151,7 +182,7 @@ public class WkbChannelWriter extends ChannelWriter {
     final int polygonCount = multiPolygon.getGeometryCount();
     putInt(polygonCount);
     for (int polygonIndex = 0; polygonIndex < polygonCount; polygonIndex++) {
-      putByte((byte)0);
+      writeByteOrder();
       final Polygon polygon = multiPolygon.getPolygon(polygonIndex);
       writePolygon(polygon);
     }
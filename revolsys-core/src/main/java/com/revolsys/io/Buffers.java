@@ -120,7 +120,7 @@ public interface Buffers {
     return position;
   }
 
-  static void writeAll(final FileChannel out, final ByteBuffer buffer, int offset)
+  static void writeAll(final FileChannel out, final ByteBuffer buffer, long offset)
     throws IOException {
     buffer.flip();
 
@@ -116,6 +116,30 @@ public class AbstractChannelWriter implements BaseCloseable {
     this.buffer.putDouble(d);
   }
 
+  /**
+   * Write count doubles from the values starting at offset. The doubles are copied in bulk into
+   * the buffer.
+   *
+   * @param values The values to write.
+   * @param offset The index of the first value to write.
+   * @param count The number of values to write.
+   */
+  public void putDoubles(final double[] values, int offset, final int count) {
+    final int end = offset + count;
+    while (offset < end) {
+      if (this.available < 8) {
+        write();
+      }
+      final int writeCount = Math.min(end - offset, this.available / 8);
+      final ByteBuffer buffer = this.buffer;
+      final int position = buffer.position();
+      buffer.asDoubleBuffer().put(values, offset, writeCount);
+      buffer.position(position + writeCount * 8);
+      this.available -= writeCount * 8;
+      offset += writeCount;
+    }
+  }
+
   public void putFloat(final float f) {
     if (this.available < 4) {
       write();
@@ -0,0 +1,119 @@
+package com.revolsys.io.endian;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.revolsys.io.EndOfFileException;
+
+/**
+ * {@link EndianInput} over a (possibly memory mapped) {@link ByteBuffer}. The buffer is read in
+ * big endian order and the little endian methods swap the bytes so the buffer's order is never
+ * changed. Each instance must only be used by one thread; use {@link ByteBuffer#duplicate()} to
+ * create independent views of a shared buffer.
+ */
+public class EndianByteBuffer implements EndianInput {
+  private final ByteBuffer buffer;
+
+  public EndianByteBuffer(final ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.buffer.order(ByteOrder.BIG_ENDIAN);
+  }
+
+  @Override
+  public void close() {
+  }
+
+  public ByteBuffer getBuffer() {
+    return this.buffer;
+  }
+
+  public int getPosition() {
+    return this.buffer.position();
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (this.buffer.hasRemaining()) {
+      return this.buffer.get() & 0xFF;
+    } else {
+      return -1;
+    }
+  }
+
+  @Override
+  public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+    final int remaining = this.buffer.remaining();
+    if (remaining == 0) {
+      return -1;
+    } else {
+      final int count = Math.min(length, remaining);
+      this.buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+
+  @Override
+  public double readDouble() throws IOException {
+    requireBytes(8);
+    return this.buffer.getDouble();
+  }
+
+  @Override
+  public int readInt() throws IOException {
+    requireBytes(4);
+    return this.buffer.getInt();
+  }
+
+  @Override
+  public double readLEDouble() throws IOException {
+    return Double.longBitsToDouble(readLELong());
+  }
+
+  @Override
+  public int readLEInt() throws IOException {
+    requireBytes(4);
+    return Integer.reverseBytes(this.buffer.getInt());
+  }
+
+  @Override
+  public long readLELong() throws IOException {
+    requireBytes(8);
+    return Long.reverseBytes(this.buffer.getLong());
+  }
+
+  @Override
+  public short readLEShort() throws IOException {
+    requireBytes(2);
+    return Short.reverseBytes(this.buffer.getShort());
+  }
+
+  @Override
+  public long readLong() throws IOException {
+    requireBytes(8);
+    return this.buffer.getLong();
+  }
+
+  @Override
+  public short readShort() throws IOException {
+    requireBytes(2);
+    return this.buffer.getShort();
+  }
+
+  private void requireBytes(final int byteCount) throws EndOfFileException {
+    if (this.buffer.remaining() < byteCount) {
+      throw new EndOfFileException();
+    }
+  }
+
+  public void seek(final int position) {
+    this.buffer.position(position);
+  }
+
+  @Override
+  public int skipBytes(final int byteCount) throws IOException {
+    final int count = Math.min(byteCount, this.buffer.remaining());
+    this.buffer.position(this.buffer.position() + count);
+    return count;
+  }
+}
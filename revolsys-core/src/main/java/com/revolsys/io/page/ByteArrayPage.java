@@ -3,6 +3,8 @@ package com.revolsys.io.page;
 public class ByteArrayPage extends AbstractPage {
   private final byte[] content;
 
+  private boolean modified = false;
+
   private int offset = 0;
 
   public ByteArrayPage(final PageManager pageManager, final int index, final int size) {
@@ -25,6 +27,13 @@ public class ByteArrayPage extends AbstractPage {
     return this.content.length;
   }
 
+  /**
+   * @return True if the content was written to since the page was loaded or last saved.
+   */
+  public boolean isModified() {
+    return this.modified;
+  }
+
   @Override
   protected int readNextByte() {
     final byte b = this.content[this.offset];
@@ -36,6 +45,11 @@ public class ByteArrayPage extends AbstractPage {
   public void setContent(final Page page) {
     final byte[] copyContent = page.getContent();
     System.arraycopy(copyContent, 0, this.content, 0, copyContent.length);
+    this.modified = true;
+  }
+
+  public void setModified(final boolean modified) {
+    this.modified = modified;
   }
 
   @Override
@@ -50,5 +64,6 @@ public class ByteArrayPage extends AbstractPage {
   @Override
   protected void writeByte(final int b) {
     this.content[this.offset++] = (byte)b;
+    this.modified = true;
   }
 }
@@ -4,11 +4,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -17,7 +20,16 @@ import org.jeometry.common.collection.map.LruMap;
 
 import com.revolsys.io.FileUtil;
 
+/**
+ * A {@link PageManager} that stores the pages in a memory mapped file. The file is mapped in
+ * regions of {@link #REGION_PAGE_COUNT} pages and the pages are views of the region, so large
+ * files don't need a mapping for each page. Pages after the last whole region are mapped
+ * individually until the file has grown to include the whole region.
+ */
 public class FileMappedPageManager implements PageManager {
+  /** The number of pages in each memory mapped region of the file. */
+  private static final int REGION_PAGE_COUNT = 2048;
+
   private FileChannel fileChannel;
 
   private final Set<Integer> freePageIndexes = new TreeSet<>();
@@ -31,6 +43,9 @@ public class FileMappedPageManager implements PageManager {
 
   private RandomAccessFile randomAccessFile;
 
+  /** The mapped regions of the file, null if the region hasn't been mapped. */
+  private final List<MappedByteBuffer> regions = new ArrayList<>();
+
   public FileMappedPageManager() {
     this(FileUtil.newTempFile("pages", ".pf"));
   }
@@ -45,8 +60,12 @@ public class FileMappedPageManager implements PageManager {
   }
 
   @Override
-  public int getNumPages() {
-    return this.pages.size();
+  public synchronized int getNumPages() {
+    try {
+      return (int)(this.randomAccessFile.length() / this.pageSize) - this.freePageIndexes.size();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
   }
 
   @Override
@@ -77,8 +96,28 @@ public class FileMappedPageManager implements PageManager {
 
   private Page loadPage(final int index) {
     try {
-      final MappedByteBuffer buffer = this.fileChannel.map(MapMode.READ_WRITE,
-        (long)index * this.pageSize, this.pageSize);
+      final int regionIndex = index / REGION_PAGE_COUNT;
+      final long regionSize = (long)REGION_PAGE_COUNT * this.pageSize;
+      final long regionOffset = regionIndex * regionSize;
+      final ByteBuffer buffer;
+      if (regionOffset + regionSize <= this.randomAccessFile.length()) {
+        while (this.regions.size() <= regionIndex) {
+          this.regions.add(null);
+        }
+        MappedByteBuffer region = this.regions.get(regionIndex);
+        if (region == null) {
+          region = this.fileChannel.map(MapMode.READ_WRITE, regionOffset, regionSize);
+          this.regions.set(regionIndex, region);
+        }
+        final int pageOffset = index % REGION_PAGE_COUNT * this.pageSize;
+        final ByteBuffer view = region.duplicate();
+        view.position(pageOffset);
+        view.limit(pageOffset + this.pageSize);
+        buffer = view.slice();
+      } else {
+        buffer = this.fileChannel.map(MapMode.READ_WRITE, (long)index * this.pageSize,
+          this.pageSize);
+      }
       final Page page = new FileMappedPage(this, index, buffer);
       this.pages.put(index, page);
       return page;
@@ -96,11 +135,7 @@ public class FileMappedPageManager implements PageManager {
           final int index = (int)(this.randomAccessFile.length() / this.pageSize);
           final long offset = (long)index * this.pageSize;
           this.randomAccessFile.setLength(offset + this.pageSize);
-          final FileChannel channel = this.randomAccessFile.getChannel();
-          final MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, offset, this.pageSize);
-          page = new FileMappedPage(this, index, buffer);
-
-          this.pages.put(page.getIndex(), page);
+          page = loadPage(index);
         } catch (final IOException e) {
           throw new RuntimeException(e);
         }
@@ -131,6 +166,7 @@ public class FileMappedPageManager implements PageManager {
     synchronized (this.pages) {
       page.clear();
       write(page);
+      this.pagesInUse.remove(page);
       this.freePageIndexes.add(page.getIndex());
     }
   }
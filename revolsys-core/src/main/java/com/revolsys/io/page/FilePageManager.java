@@ -4,61 +4,230 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
-import com.revolsys.collection.map.WeakKeyValueMap;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.collection.map.IntHashMap;
+import com.revolsys.io.BaseCloseable;
 import com.revolsys.io.FileUtil;
 
-public class FilePageManager implements PageManager {
+/**
+ * A {@link PageManager} that stores pages in a file with a bounded buffer pool of cached pages.
+ * <p>
+ * {@link #getPage(int)} and {@link #newPage()} pin the page in the pool until
+ * {@link #releasePage(Page)} unpins it. When the pool is full an unpinned page is evicted using
+ * the CLOCK algorithm, each page has a reference bit that is set when the page is used and cleared
+ * as the clock hand passes, pages are evicted when the hand reaches a page with a cleared bit. If
+ * all the pages are pinned the pool grows to hold the new page.
+ * </p>
+ * <p>
+ * Modified pages are written to the file when they are evicted, on {@link #flush()},
+ * {@link #close()} or by the background write-back thread if
+ * {@link #setWriteBackInterval(long)} is set. The hit, miss, eviction and write counts can be used
+ * to size the pool.
+ * </p>
+ */
+public class FilePageManager implements PageManager, BaseCloseable {
+  private static class CachedPage extends ByteArrayPage {
+    private boolean pinned;
+
+    private boolean referenced;
+
+    private CachedPage(final PageManager pageManager, final int index, final int size) {
+      super(pageManager, index, size);
+    }
+  }
+
+  private int clockHand;
+
+  private long evictionCount;
+
+  private CachedPage[] frames;
+
   private final Set<Integer> freePageIndexes = new TreeSet<>();
 
-  // TODO
-  private final Map<Integer, Page> pages = new WeakKeyValueMap<>();
+  private long hitCount;
+
+  private long missCount;
+
+  private int numPages;
 
-  private final Set<Page> pagesInUse = new HashSet<>();
+  private final int pageSize;
 
-  int pageSize = 64;
+  private final IntHashMap<CachedPage> pages = new IntHashMap<>();
 
   private RandomAccessFile randomAccessFile;
 
+  private long writeBackInterval;
+
+  private Thread writeBackThread;
+
+  private long writeCount;
+
   public FilePageManager() {
     this(FileUtil.newTempFile("pages", ".pf"));
   }
 
   public FilePageManager(final File file) {
+    this(file, 64, 1024);
+  }
+
+  /**
+   * @param file The file to store the pages in.
+   * @param pageSize The size of each page in bytes.
+   * @param maxCachedPages The number of pages to keep in the buffer pool.
+   */
+  public FilePageManager(final File file, final int pageSize, final int maxCachedPages) {
+    this.pageSize = pageSize;
+    this.frames = new CachedPage[Math.max(1, maxCachedPages)];
     try {
       this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.numPages = (int)(this.randomAccessFile.length() / pageSize);
     } catch (final FileNotFoundException e) {
       throw new IllegalArgumentException("Unable to open file " + file.getAbsolutePath(), e);
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to open file " + file.getAbsolutePath(), e);
+    }
+  }
+
+  /**
+   * Add the page to the pool, evicting the page if the pool is full.
+   */
+  private void addPage(final CachedPage page) {
+    final CachedPage[] frames = this.frames;
+    final int frameCount = frames.length;
+    if (this.pages.size() >= frameCount) {
+      for (int i = 0; i < frameCount * 2; i++) {
+        final int frameIndex = this.clockHand;
+        this.clockHand = (this.clockHand + 1) % frameCount;
+        final CachedPage frame = frames[frameIndex];
+        if (!frame.pinned) {
+          if (frame.referenced) {
+            frame.referenced = false;
+          } else {
+            if (frame.isModified()) {
+              writePage(frame);
+            }
+            this.pages.remove(frame.getIndex());
+            this.evictionCount++;
+            frames[frameIndex] = page;
+            this.pages.put(page.getIndex(), page);
+            return;
+          }
+        }
+      }
+      final CachedPage[] newFrames = new CachedPage[frameCount * 2];
+      System.arraycopy(frames, 0, newFrames, 0, frameCount);
+      this.frames = newFrames;
+      this.clockHand = frameCount;
+    }
+    for (int i = 0; i < this.frames.length; i++) {
+      final int frameIndex = (this.clockHand + i) % this.frames.length;
+      if (this.frames[frameIndex] == null) {
+        this.frames[frameIndex] = page;
+        break;
+      }
     }
+    this.pages.put(page.getIndex(), page);
   }
 
+  /**
+   * Write the modified pages and close the file.
+   */
   @Override
-  public int getNumPages() {
+  public synchronized void close() {
+    this.writeBackInterval = 0;
+    final Thread writeBackThread = this.writeBackThread;
+    this.writeBackThread = null;
+    if (writeBackThread != null) {
+      writeBackThread.interrupt();
+    }
+    if (this.randomAccessFile != null) {
+      try {
+        flush();
+      } finally {
+        try {
+          this.randomAccessFile.close();
+        } catch (final IOException e) {
+          Logs.error(this, "Unable to close file", e);
+        }
+        this.randomAccessFile = null;
+        this.pages.clear();
+        this.frames = new CachedPage[this.frames.length];
+      }
+    }
+  }
+
+  /**
+   * Write all the modified pages in the pool to the file.
+   */
+  public synchronized void flush() {
+    for (final CachedPage page : this.frames) {
+      if (page != null && page.isModified()) {
+        writePage(page);
+      }
+    }
+  }
+
+  /**
+   * @return The number of pages in the buffer pool.
+   */
+  public synchronized int getCachedPageCount() {
     return this.pages.size();
   }
 
+  public synchronized long getEvictionCount() {
+    return this.evictionCount;
+  }
+
+  /**
+   * @return The number of page requests that were found in the buffer pool.
+   */
+  public synchronized long getHitCount() {
+    return this.hitCount;
+  }
+
+  /**
+   * @return The current maximum number of pages in the buffer pool.
+   */
+  public synchronized int getMaxCachedPages() {
+    return this.frames.length;
+  }
+
+  /**
+   * @return The number of page requests that were read from the file.
+   */
+  public synchronized long getMissCount() {
+    return this.missCount;
+  }
+
+  @Override
+  public synchronized int getNumPages() {
+    return this.numPages - this.freePageIndexes.size();
+  }
+
   @Override
   public synchronized Page getPage(final int index) {
-    synchronized (this.pages) {
-      if (this.freePageIndexes.contains(index)) {
-        throw new IllegalArgumentException("Page does not exist " + index);
+    if (this.freePageIndexes.contains(index) || index < 0 || index >= this.numPages) {
+      throw new IllegalArgumentException("Page does not exist " + index);
+    } else {
+      CachedPage page = this.pages.get(index);
+      if (page == null) {
+        this.missCount++;
+        page = loadPage(index);
       } else {
-        Page page = this.pages.get(index);
-        if (page == null) {
-          page = loadPage(index);
-        }
-        if (this.pagesInUse.contains(page)) {
-          throw new IllegalArgumentException("Page is currently being used " + index);
-        } else {
-          this.pagesInUse.add(page);
-          page.setOffset(0);
-          return page;
-        }
+        this.hitCount++;
+      }
+      if (page.pinned) {
+        throw new IllegalArgumentException("Page is currently being used " + index);
+      } else {
+        page.pinned = true;
+        page.referenced = true;
+        page.setOffset(0);
+        return page;
       }
     }
   }
@@ -68,13 +237,27 @@ public class FilePageManager implements PageManager {
     return this.pageSize;
   }
 
-  private Page loadPage(final int index) {
+  public synchronized long getWriteBackInterval() {
+    return this.writeBackInterval;
+  }
+
+  /**
+   * @return The number of pages written to the file.
+   */
+  public synchronized long getWriteCount() {
+    return this.writeCount;
+  }
+
+  private CachedPage loadPage(final int index) {
     try {
-      final Page page = new ByteArrayPage(this, index, this.pageSize);
-      this.randomAccessFile.seek((long)index * this.pageSize);
-      final byte[] content = page.getContent();
-      this.randomAccessFile.read(content);
-      this.pages.put(index, page);
+      final CachedPage page = new CachedPage(this, index, this.pageSize);
+      final long offset = (long)index * this.pageSize;
+      if (offset < this.randomAccessFile.length()) {
+        this.randomAccessFile.seek(offset);
+        final byte[] content = page.getContent();
+        this.randomAccessFile.read(content);
+      }
+      addPage(page);
       return page;
     } catch (final IOException e) {
       throw new RuntimeException(e);
@@ -83,26 +266,25 @@ public class FilePageManager implements PageManager {
 
   @Override
   public synchronized Page newPage() {
-    synchronized (this.pages) {
-      Page page;
-      if (this.freePageIndexes.isEmpty()) {
-        try {
-          final int index = (int)(this.randomAccessFile.length() / this.pageSize);
-          page = new ByteArrayPage(this, index, this.pageSize);
-          this.pages.put(page.getIndex(), page);
-          write(page);
-        } catch (final IOException e) {
-          throw new RuntimeException(e);
-        }
-      } else {
-        final Iterator<Integer> iterator = this.freePageIndexes.iterator();
-        final Integer pageIndex = iterator.next();
-        iterator.remove();
+    CachedPage page;
+    if (this.freePageIndexes.isEmpty()) {
+      final int index = this.numPages++;
+      page = new CachedPage(this, index, this.pageSize);
+      page.setModified(true);
+      addPage(page);
+    } else {
+      final Iterator<Integer> iterator = this.freePageIndexes.iterator();
+      final Integer pageIndex = iterator.next();
+      iterator.remove();
+      page = this.pages.get(pageIndex);
+      if (page == null) {
         page = loadPage(pageIndex);
       }
-      this.pagesInUse.add(page);
-      return page;
     }
+    page.pinned = true;
+    page.referenced = true;
+    page.setOffset(0);
+    return page;
   }
 
   @Override
@@ -112,35 +294,90 @@ public class FilePageManager implements PageManager {
 
   @Override
   public synchronized void releasePage(final Page page) {
-    write(page);
-    this.pagesInUse.remove(page);
+    if (page instanceof CachedPage && page.getPageManager() == this) {
+      ((CachedPage)page).pinned = false;
+    }
   }
 
   @Override
   public synchronized void removePage(final Page page) {
-    synchronized (this.pages) {
-      page.clear();
-      write(page);
-      this.freePageIndexes.add(page.getIndex());
+    page.clear();
+    if (page instanceof CachedPage && page.getPageManager() == this) {
+      ((CachedPage)page).pinned = false;
+    }
+    this.freePageIndexes.add(page.getIndex());
+  }
+
+  /**
+   * Set the interval to write modified pages that aren't pinned to the file in a background
+   * thread.
+   *
+   * @param writeBackInterval The interval in milliseconds, 0 to disable the background write-back.
+   */
+  public synchronized void setWriteBackInterval(final long writeBackInterval) {
+    this.writeBackInterval = Math.max(0, writeBackInterval);
+    if (this.writeBackInterval > 0 && this.writeBackThread == null) {
+      final Thread thread = new Thread(this::writeBackRun, "FilePageManager-writeBack");
+      thread.setDaemon(true);
+      this.writeBackThread = thread;
+      thread.start();
     }
   }
 
   @Override
   public synchronized void write(final Page page) {
-    if (page.getPageManager() == this) {
-      synchronized (this.randomAccessFile) {
-        try {
-          final long index = page.getIndex();
-          if (index >= 0) {
-            this.randomAccessFile.seek(index * this.pageSize);
-            final byte[] content = page.getContent();
-            this.randomAccessFile.write(content);
+    if (page.getPageManager() == this && page.getIndex() >= 0) {
+      writePage(page);
+    }
+  }
+
+  private void writeBackRun() {
+    final Thread thread = Thread.currentThread();
+    while (true) {
+      final long interval;
+      synchronized (this) {
+        interval = this.writeBackInterval;
+        if (interval <= 0 || this.writeBackThread != thread) {
+          if (this.writeBackThread == thread) {
+            this.writeBackThread = null;
+          }
+          return;
+        }
+      }
+      try {
+        Thread.sleep(interval);
+      } catch (final InterruptedException e) {
+        return;
+      }
+      synchronized (this) {
+        if (this.randomAccessFile == null) {
+          return;
+        }
+        for (final CachedPage page : this.frames) {
+          if (page != null && !page.pinned && page.isModified()) {
+            try {
+              writePage(page);
+            } catch (final RuntimeException e) {
+              Logs.error(this, "Unable to write page " + page.getIndex(), e);
+            }
           }
-        } catch (final IOException e) {
-          throw new RuntimeException(e);
         }
       }
     }
   }
 
+  private void writePage(final Page page) {
+    try {
+      final long index = page.getIndex();
+      this.randomAccessFile.seek(index * this.pageSize);
+      final byte[] content = page.getContent();
+      this.randomAccessFile.write(content);
+      if (page instanceof ByteArrayPage) {
+        ((ByteArrayPage)page).setModified(false);
+      }
+      this.writeCount++;
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
 }
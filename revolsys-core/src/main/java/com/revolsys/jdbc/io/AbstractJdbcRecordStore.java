@@ -81,6 +81,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   private boolean blobAsString = false;
 
+  private boolean bulkInsert = false;
+
+  private int bulkInsertBatchSize = 10000;
+
   private boolean clobAsString = false;
 
   private JdbcDatabaseFactory databaseFactory;
@@ -93,12 +97,18 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
 
   private List<String> excludeTablePatterns = new ArrayList<>();
 
+  private int fetchSize = 10;
+
+  private boolean fetchSizeAdaptive = false;
+
   private final Map<String, JdbcFieldAdder> fieldDefinitionAdders = new HashMap<>();
 
   private boolean flushBetweenTypes;
 
   private boolean lobAsString = false;
 
+  private int maxFetchSize = 10000;
+
   private String primaryKeySql;
 
   private String primaryKeyTableCondition;
@@ -287,6 +297,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return this.batchSize;
   }
 
+  public int getBulkInsertBatchSize() {
+    return this.bulkInsertBatchSize;
+  }
+
   public List<String> getColumnNames(final String typePath) {
     final RecordDefinition recordDefinition = getRecordDefinition(typePath);
     return recordDefinition.getFieldNames();
@@ -341,6 +355,11 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return fieldAdder;
   }
 
+  @Override
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   @Override
   public String getGeneratePrimaryKeySql(final JdbcRecordDefinition recordDefinition) {
     throw new UnsupportedOperationException(
@@ -366,6 +385,11 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return new JdbcConnection(this.dataSource, autoCommit);
   }
 
+  @Override
+  public int getMaxFetchSize() {
+    return this.maxFetchSize;
+  }
+
   protected Identifier getNextPrimaryKey(final String typePath) {
     return null;
   }
@@ -533,6 +557,15 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return false;
   }
 
+  public boolean isBulkInsert() {
+    return this.bulkInsert;
+  }
+
+  @Override
+  public boolean isFetchSizeAdaptive() {
+    return this.fetchSizeAdaptive;
+  }
+
   public boolean isFlushBetweenTypes() {
     return this.flushBetweenTypes;
   }
@@ -701,6 +734,19 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     return reader;
   }
 
+  /**
+   * Construct a new bulk insert for the writer and record definition. Record stores should
+   * override this method to use the fastest bulk load mechanism supported by the database.
+   *
+   * @param writer The writer.
+   * @param recordDefinition The record definition.
+   * @return The bulk insert.
+   */
+  public JdbcBulkInsert newBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    return new JdbcMultiValuesBulkInsert(writer, recordDefinition);
+  }
+
   @Override
   public RecordWriter newRecordWriter(final boolean throwExceptions) {
     if (TransactionSynchronizationManager.isSynchronizationActive()) {
@@ -749,6 +795,8 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     writer.setSqlSuffix(this.sqlSuffix);
     writer.setLabel(getLabel());
     writer.setFlushBetweenTypes(this.flushBetweenTypes);
+    writer.setBulkInsert(this.bulkInsert);
+    writer.setBulkInsertBatchSize(this.bulkInsertBatchSize);
     writer.setQuoteColumnNames(false);
     return writer;
   }
@@ -890,6 +938,20 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.blobAsString = blobAsString;
   }
 
+  /**
+   * Set if writers use bulk inserts (see {@link #newBulkInsert(JdbcRecordWriter, JdbcRecordDefinition)})
+   * for records with id values.
+   *
+   * @param bulkInsert True if bulk inserts are used.
+   */
+  public void setBulkInsert(final boolean bulkInsert) {
+    this.bulkInsert = bulkInsert;
+  }
+
+  public void setBulkInsertBatchSize(final int bulkInsertBatchSize) {
+    this.bulkInsertBatchSize = bulkInsertBatchSize;
+  }
+
   public void setClobAsString(final boolean clobAsString) {
     this.clobAsString = clobAsString;
   }
@@ -916,6 +978,14 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.excludeTablePatterns = new ArrayList<>(Arrays.asList(excludeTablePatterns));
   }
 
+  public void setFetchSize(final int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
+  public void setFetchSizeAdaptive(final boolean fetchSizeAdaptive) {
+    this.fetchSizeAdaptive = fetchSizeAdaptive;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
@@ -924,6 +994,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore
     this.lobAsString = lobAsString;
   }
 
+  public void setMaxFetchSize(final int maxFetchSize) {
+    this.maxFetchSize = maxFetchSize;
+  }
+
   public void setPrimaryKeySql(final String primaryKeySql) {
     this.primaryKeySql = primaryKeySql;
   }
@@ -0,0 +1,80 @@
+package com.revolsys.jdbc.io;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * Bulk insert records using a single row insert statement and JDBC batch updates with the bulk
+ * insert batch size. Drivers such as Oracle's send the batch as a single array bound execution of
+ * the statement. Generated keys are not returned.
+ */
+public class JdbcBatchBulkInsert extends JdbcBulkInsert {
+  private final String sql;
+
+  private PreparedStatement statement;
+
+  public JdbcBatchBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    super(writer, recordDefinition);
+    final JdbcRecordWriter recordWriter = getWriter();
+    final StringBuilder sql = new StringBuilder();
+    final String sqlPrefix = recordWriter.getSqlPrefix();
+    if (sqlPrefix != null) {
+      sql.append(sqlPrefix);
+    }
+    sql.append("insert into ");
+    sql.append(recordDefinition.getDbTableQualifiedName());
+    sql.append(" (");
+    appendColumnNames(sql);
+    sql.append(") VALUES (");
+    boolean first = true;
+    for (final FieldDefinition fieldDefinition : getFields()) {
+      if (first) {
+        first = false;
+      } else {
+        sql.append(',');
+      }
+      ((JdbcFieldDefinition)fieldDefinition).addInsertStatementPlaceHolder(sql, false);
+    }
+    sql.append(")");
+    final String sqlSuffix = recordWriter.getSqlSuffix();
+    if (sqlSuffix != null) {
+      sql.append(sqlSuffix);
+    }
+    this.sql = sql.toString();
+  }
+
+  @Override
+  protected void closeDo() throws SQLException {
+    JdbcUtils.close(this.statement);
+    this.statement = null;
+  }
+
+  @Override
+  protected void flushDo() throws SQLException {
+    getRecordStore().execteBatch(this.statement);
+  }
+
+  @Override
+  public String getSql() {
+    return this.sql;
+  }
+
+  @Override
+  protected void insertRecordDo(final Record record) throws SQLException {
+    if (this.statement == null) {
+      this.statement = this.connection.prepareStatement(this.sql);
+    }
+    int parameterIndex = 1;
+    for (final FieldDefinition fieldDefinition : getFields()) {
+      parameterIndex = ((JdbcFieldDefinition)fieldDefinition)
+        .setInsertPreparedStatementValue(this.statement, parameterIndex, record);
+    }
+    this.statement.addBatch();
+  }
+}
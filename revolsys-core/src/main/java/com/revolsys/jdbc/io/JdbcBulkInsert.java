@@ -0,0 +1,148 @@
+package com.revolsys.jdbc.io;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.util.LongCounter;
+
+/**
+ * Insert the records for a {@link JdbcRecordDefinition} using a bulk load mechanism instead of a
+ * single row insert statement per record. The records are buffered until the writer's bulk insert
+ * batch size is reached or the writer is flushed. Record stores return the best mechanism for the
+ * database from {@link AbstractJdbcRecordStore#newBulkInsert(JdbcRecordWriter, JdbcRecordDefinition)}.
+ * <p>
+ * Bulk inserts don't return generated keys so they are only used for records with id values or
+ * tables without a primary key.
+ * </p>
+ */
+public abstract class JdbcBulkInsert {
+  private final int batchSize;
+
+  private int batchCount = 0;
+
+  private boolean closed = false;
+
+  protected final JdbcConnection connection;
+
+  private final LongCounter counter;
+
+  private final JdbcRecordDefinition recordDefinition;
+
+  private final AbstractJdbcRecordStore recordStore;
+
+  private final JdbcRecordWriter writer;
+
+  public JdbcBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    this.writer = writer;
+    this.connection = writer.connection;
+    this.recordStore = writer.getRecordStore();
+    this.recordDefinition = recordDefinition;
+    this.batchSize = Math.max(1, writer.getBulkInsertBatchSize());
+    this.counter = writer.getCounter(recordDefinition);
+  }
+
+  protected void appendColumnNames(final StringBuilder sql) {
+    final boolean quoteColumnNames = this.writer.isQuoteColumnNames();
+    boolean first = true;
+    for (final FieldDefinition fieldDefinition : getFields()) {
+      if (first) {
+        first = false;
+      } else {
+        sql.append(',');
+      }
+      fieldDefinition.appendColumnName(sql, quoteColumnNames);
+    }
+  }
+
+  public synchronized void close() {
+    if (!this.closed) {
+      this.closed = true;
+      try {
+        flush();
+      } finally {
+        try {
+          closeDo();
+        } catch (final SQLException e) {
+          throw this.connection.getException("Bulk Insert", getSql(), e);
+        }
+      }
+    }
+  }
+
+  protected void closeDo() throws SQLException {
+  }
+
+  public synchronized void flush() {
+    if (this.batchCount > 0) {
+      try {
+        flushDo();
+        this.counter.add(this.batchCount);
+      } catch (final SQLException e) {
+        throw this.connection.getException("Bulk Insert", getSql(), e);
+      } finally {
+        this.batchCount = 0;
+      }
+    }
+  }
+
+  /**
+   * Write the records buffered since the last flush to the database.
+   *
+   * @throws SQLException If the records could not be written.
+   */
+  protected abstract void flushDo() throws SQLException;
+
+  public int getBatchCount() {
+    return this.batchCount;
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  public List<FieldDefinition> getFields() {
+    return this.recordDefinition.getFields();
+  }
+
+  public JdbcRecordDefinition getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  public AbstractJdbcRecordStore getRecordStore() {
+    return this.recordStore;
+  }
+
+  /**
+   * @return The SQL statement used to load the records (used in error messages).
+   */
+  public abstract String getSql();
+
+  public JdbcRecordWriter getWriter() {
+    return this.writer;
+  }
+
+  public synchronized void insertRecord(final Record record) throws SQLException {
+    insertRecordDo(record);
+    this.batchCount++;
+    if (this.batchCount >= this.batchSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Add the record to the current batch.
+   *
+   * @param record The record.
+   * @throws SQLException If the record could not be added.
+   */
+  protected abstract void insertRecordDo(Record record) throws SQLException;
+
+  @Override
+  public String toString() {
+    return getSql();
+  }
+}
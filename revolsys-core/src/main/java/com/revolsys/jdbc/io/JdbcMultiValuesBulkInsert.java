@@ -0,0 +1,153 @@
+package com.revolsys.jdbc.io;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.field.JdbcFieldDefinition;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * Bulk insert records using an insert statement with multiple rows in the VALUES clause
+ * (<code>insert into t (a, b) values (?, ?), (?, ?), ...</code>). The number of rows per statement
+ * is limited so the statement has at most {@link #getMaxParameterCount()} parameters.
+ */
+public class JdbcMultiValuesBulkInsert extends JdbcBulkInsert {
+  private final int fieldCount;
+
+  private final int maxParameterCount;
+
+  /** The values of the records, copied when the record is inserted. */
+  private final List<Object[]> rows = new ArrayList<>();
+
+  private final int rowsPerStatement;
+
+  private final String sql;
+
+  private PreparedStatement statement;
+
+  public JdbcMultiValuesBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    this(writer, recordDefinition, 32767);
+  }
+
+  public JdbcMultiValuesBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition, final int maxParameterCount) {
+    super(writer, recordDefinition);
+    this.maxParameterCount = maxParameterCount;
+    this.fieldCount = Math.max(1, getFields().size());
+    this.rowsPerStatement = Math.max(1,
+      Math.min(getBatchSize(), maxParameterCount / this.fieldCount));
+    this.sql = getInsertSql(this.rowsPerStatement);
+  }
+
+  @Override
+  protected void closeDo() throws SQLException {
+    JdbcUtils.close(this.statement);
+    this.statement = null;
+  }
+
+  @Override
+  protected void flushDo() throws SQLException {
+    try {
+      final int recordCount = this.rows.size();
+      int recordIndex = 0;
+      while (recordIndex < recordCount) {
+        final int rowCount = Math.min(this.rowsPerStatement, recordCount - recordIndex);
+        if (rowCount == this.rowsPerStatement) {
+          if (this.statement == null) {
+            this.statement = this.connection.prepareStatement(this.sql);
+          }
+          insertRows(this.statement, recordIndex, rowCount);
+        } else {
+          final String sql = getInsertSql(rowCount);
+          try (
+            PreparedStatement statement = this.connection.prepareStatement(sql)) {
+            insertRows(statement, recordIndex, rowCount);
+          }
+        }
+        recordIndex += rowCount;
+      }
+    } finally {
+      this.rows.clear();
+    }
+  }
+
+  private String getInsertSql(final int rowCount) {
+    final JdbcRecordWriter writer = getWriter();
+    final JdbcRecordDefinition recordDefinition = getRecordDefinition();
+    final StringBuilder sql = new StringBuilder();
+    final String sqlPrefix = writer.getSqlPrefix();
+    if (sqlPrefix != null) {
+      sql.append(sqlPrefix);
+    }
+    sql.append("insert into ");
+    sql.append(recordDefinition.getDbTableQualifiedName());
+    sql.append(" (");
+    appendColumnNames(sql);
+    sql.append(") VALUES ");
+    for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+      if (rowIndex > 0) {
+        sql.append(',');
+      }
+      sql.append('(');
+      boolean first = true;
+      for (final FieldDefinition fieldDefinition : getFields()) {
+        if (first) {
+          first = false;
+        } else {
+          sql.append(',');
+        }
+        ((JdbcFieldDefinition)fieldDefinition).addInsertStatementPlaceHolder(sql, false);
+      }
+      sql.append(')');
+    }
+    final String sqlSuffix = writer.getSqlSuffix();
+    if (sqlSuffix != null) {
+      sql.append(sqlSuffix);
+    }
+    return sql.toString();
+  }
+
+  public int getMaxParameterCount() {
+    return this.maxParameterCount;
+  }
+
+  public int getRowsPerStatement() {
+    return this.rowsPerStatement;
+  }
+
+  @Override
+  public String getSql() {
+    return this.sql;
+  }
+
+  private void insertRows(final PreparedStatement statement, final int recordIndex,
+    final int rowCount) throws SQLException {
+    int parameterIndex = 1;
+    for (int i = 0; i < rowCount; i++) {
+      final Object[] values = this.rows.get(recordIndex + i);
+      int fieldIndex = 0;
+      for (final FieldDefinition fieldDefinition : getFields()) {
+        final Object value = values[fieldIndex++];
+        parameterIndex = ((JdbcFieldDefinition)fieldDefinition)
+          .setInsertPreparedStatementValue(statement, parameterIndex, value);
+      }
+    }
+    getRecordStore().executeUpdate(statement);
+  }
+
+  @Override
+  protected void insertRecordDo(final Record record) {
+    final List<FieldDefinition> fields = getFields();
+    final Object[] values = new Object[fields.size()];
+    for (int i = 0; i < values.length; i++) {
+      final String name = fields.get(i).getName();
+      values[i] = record.getValue(name);
+    }
+    this.rows.add(values);
+  }
+}
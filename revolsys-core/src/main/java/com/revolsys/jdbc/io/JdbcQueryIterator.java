@@ -29,7 +29,24 @@ import com.revolsys.util.Booleans;
 import com.revolsys.util.count.LabelCountMap;
 import com.revolsys.util.count.LabelCounters;
 
+/**
+ * Iterate over the records returned from a {@link Query}. The rows are fetched from the server in
+ * batches of {@link Query#getFetchSize()} (or {@link JdbcRecordStore#getFetchSize()}) rows. If
+ * {@link JdbcRecordStore#isFetchSizeAdaptive()} the fetch size is doubled after each round trip
+ * that completes within {@link #ADAPTIVE_FETCH_MAX_NANOS}, up to the smaller of
+ * {@link JdbcRecordStore#getMaxFetchSize()} and the number of rows (estimated from the column
+ * widths) that fit in {@link #ADAPTIVE_FETCH_MAX_BYTES}.
+ * <p>
+ * The query streams the results if the query sets {@link Query#setFetchSize(int)} or the fetch
+ * size is adaptive. For record stores where {@link JdbcRecordStore#isFetchSizeRequiresTransaction()}
+ * auto commit is turned off for streaming queries. Other queries use the autoCommit property.
+ * </p>
+ */
 public class JdbcQueryIterator extends AbstractIterator<Record> implements RecordReader {
+  private static final int ADAPTIVE_FETCH_MAX_BYTES = 16 * 1024 * 1024;
+
+  private static final long ADAPTIVE_FETCH_MAX_NANOS = 1000000000L;
+
   public static Record getNextRecord(final JdbcRecordStore recordStore,
     final RecordDefinition recordDefinition, final List<FieldDefinition> fields,
     final RecordFactory<Record> recordFactory, final ResultSet resultSet,
@@ -60,7 +77,23 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   private final int currentQueryIndex = -1;
 
-  private final int fetchSize = 10;
+  private int fetchSize;
+
+  private final boolean fetchSizeAdaptive;
+
+  private int fetchBatchSize;
+
+  private int fetchRowCount;
+
+  private int maxFetchSize;
+
+  private long roundTripCount;
+
+  private long rowCount;
+
+  private long startTime;
+
+  private long endTime;
 
   private List<FieldDefinition> fields = new ArrayList<>();
 
@@ -84,7 +117,16 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     final Map<String, Object> properties) {
     super();
 
-    final boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
+    this.fetchSize = query.getFetchSize();
+    final boolean streaming = this.fetchSize > 0 || recordStore.isFetchSizeAdaptive();
+    if (this.fetchSize <= 0) {
+      this.fetchSize = recordStore.getFetchSize();
+    }
+    this.fetchSizeAdaptive = recordStore.isFetchSizeAdaptive();
+    boolean autoCommit = Booleans.getBoolean(properties.get("autoCommit"));
+    if (autoCommit && streaming && recordStore.isFetchSizeRequiresTransaction()) {
+      autoCommit = false;
+    }
     this.internStrings = Booleans.getBoolean(properties.get("internStrings"));
     this.connection = recordStore.getJdbcConnection(autoCommit);
     this.recordFactory = query.getRecordFactory();
@@ -101,6 +143,18 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
 
   @Override
   public synchronized void closeDo() {
+    if (this.endTime == 0) {
+      this.endTime = System.nanoTime();
+    }
+    if (this.labelCountMap != null && this.query != null && this.roundTripCount > 0) {
+      String label = this.query.getTypeName();
+      if (label == null) {
+        label = "query";
+      }
+      this.labelCountMap.addCount(label + " fetch round trips", this.roundTripCount);
+      this.labelCountMap.addCount(label + " fetch rows", this.rowCount);
+      this.labelCountMap.addCount(label + " fetch ms", getElapsedMillis());
+    }
     JdbcUtils.close(this.statement, this.resultSet);
     FileUtil.closeSilent(this.connection);
     this.fields = null;
@@ -115,6 +169,28 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     this.labelCountMap = null;
   }
 
+  /**
+   * Get the time in milliseconds from the start of the query until the iterator was closed (or now
+   * if it's still open).
+   *
+   * @return The elapsed time.
+   */
+  public long getElapsedMillis() {
+    return getElapsedNanos() / 1000000;
+  }
+
+  private long getElapsedNanos() {
+    if (this.startTime == 0) {
+      return 0;
+    } else {
+      long endTime = this.endTime;
+      if (endTime == 0) {
+        endTime = System.nanoTime();
+      }
+      return Math.max(endTime - this.startTime, 0);
+    }
+  }
+
   protected String getErrorMessage() {
     if (this.queries == null) {
       return null;
@@ -126,7 +202,7 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
   @Override
   protected Record getNext() throws NoSuchElementException {
     try {
-      if (this.resultSet != null && !this.query.isCancelled() && this.resultSet.next()) {
+      if (this.resultSet != null && !this.query.isCancelled() && nextRow()) {
         final Record record = getNextRecord(this.recordStore, this.recordDefinition, this.fields,
           this.recordFactory, this.resultSet, this.internStrings);
         if (this.labelCountMap != null) {
@@ -166,6 +242,10 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     }
   }
 
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     if (this.recordDefinition == null) {
@@ -179,6 +259,35 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     return this.recordStore;
   }
 
+  /**
+   * Get the estimated number of round trips to the server to fetch the rows. The first round trip
+   * is the execution of the query.
+   *
+   * @return The number of round trips.
+   */
+  public long getRoundTripCount() {
+    return this.roundTripCount;
+  }
+
+  public long getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Get the number of rows per second read from the start of the query until the iterator was
+   * closed (or now if it's still open).
+   *
+   * @return The rows per second.
+   */
+  public long getRowsPerSecond() {
+    final long elapsedTime = getElapsedNanos();
+    if (elapsedTime <= 0) {
+      return 0;
+    } else {
+      return (long)(this.rowCount * 1000000000.0 / elapsedTime);
+    }
+  }
+
   protected ResultSet getResultSet() {
     final String tableName = this.query.getTypeName();
     final RecordDefinition queryRecordDefinition = this.query.getRecordDefinition();
@@ -211,8 +320,15 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
       this.statement = this.connection.prepareStatement(sql);
       this.statement.setFetchSize(this.fetchSize);
 
+      this.startTime = System.nanoTime();
       this.resultSet = this.recordStore.getResultSet(this.statement, this.query);
+      this.roundTripCount = 1;
+      this.fetchRowCount = 0;
+      this.fetchBatchSize = this.fetchSize;
       final ResultSetMetaData resultSetMetaData = this.resultSet.getMetaData();
+      if (this.fetchSizeAdaptive) {
+        initMaxFetchSize(resultSetMetaData);
+      }
 
       if (this.recordDefinition == null) {
         this.recordDefinition = this.recordStore.getRecordDefinition(tableName, resultSetMetaData,
@@ -241,10 +357,62 @@ public class JdbcQueryIterator extends AbstractIterator<Record> implements Recor
     this.resultSet = getResultSet();
   }
 
+  /**
+   * Limit the adaptive fetch size to the number of rows that will fit in
+   * {@link #ADAPTIVE_FETCH_MAX_BYTES} using the column display size as an estimate of the width of
+   * each column.
+   */
+  private void initMaxFetchSize(final ResultSetMetaData resultSetMetaData) throws SQLException {
+    long rowWidth = 0;
+    final int columnCount = resultSetMetaData.getColumnCount();
+    for (int i = 1; i <= columnCount; i++) {
+      final int columnWidth = resultSetMetaData.getColumnDisplaySize(i);
+      rowWidth += Math.min(Math.max(columnWidth, 8), 1024);
+    }
+    rowWidth = Math.max(rowWidth, 1);
+    final long maxFetchSize = Math.min(this.recordStore.getMaxFetchSize(),
+      ADAPTIVE_FETCH_MAX_BYTES / rowWidth);
+    this.maxFetchSize = (int)Math.max(this.fetchSize, maxFetchSize);
+  }
+
   public boolean isInternStrings() {
     return this.internStrings;
   }
 
+  /**
+   * Move to the next row in the result set. The round trips are estimated from the number of rows
+   * read since the last fetch, the time for the call to {@link ResultSet#next()} that performs the
+   * fetch is used to grow the fetch size in the adaptive mode.
+   *
+   * @return True if there was another row.
+   * @throws SQLException If there was an error reading the row.
+   */
+  private boolean nextRow() throws SQLException {
+    final boolean hasNext;
+    if (this.fetchBatchSize <= 0 || this.fetchRowCount < this.fetchBatchSize) {
+      hasNext = this.resultSet.next();
+      this.fetchRowCount++;
+    } else {
+      final long fetchStartTime = System.nanoTime();
+      hasNext = this.resultSet.next();
+      final long fetchTime = System.nanoTime() - fetchStartTime;
+      this.roundTripCount++;
+      this.fetchBatchSize = this.fetchSize;
+      this.fetchRowCount = 1;
+      if (hasNext && this.fetchSizeAdaptive && this.fetchSize < this.maxFetchSize
+        && fetchTime < ADAPTIVE_FETCH_MAX_NANOS) {
+        this.fetchSize = Math.min(this.fetchSize * 2, this.maxFetchSize);
+        this.resultSet.setFetchSize(this.fetchSize);
+      }
+    }
+    if (hasNext) {
+      this.rowCount++;
+    } else {
+      this.endTime = System.nanoTime();
+    }
+    return hasNext;
+  }
+
   public void setInternStrings(final boolean internStrings) {
     this.internStrings = internStrings;
   }
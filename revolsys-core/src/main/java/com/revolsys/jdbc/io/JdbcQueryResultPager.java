@@ -4,8 +4,11 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import javax.annotation.PreDestroy;
 
@@ -15,14 +18,30 @@ import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
+import com.revolsys.record.query.Condition;
+import com.revolsys.record.query.Q;
 import com.revolsys.record.query.Query;
 import com.revolsys.record.schema.FieldDefinition;
 import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.util.Booleans;
 
+/**
+ * Page through the results of a query.
+ * <p>
+ * If the keysetPaging property is true and the query is ordered by non-null fields plus the id
+ * fields (which are added to the order by if required), the subclasses that query each page use
+ * keyset (seek) paging. The key of the last record of each page is saved and the next page is
+ * queried using a WHERE condition for the records after that key, so the database can use an
+ * index to find the start of the page instead of skipping all the earlier rows. Offset paging is
+ * used for the first page read after a jump to a page whose previous page has not been read.
+ * </p>
+ */
 public class JdbcQueryResultPager implements ResultPager<Record> {
   private JdbcConnection connection;
 
+  /** The fields and sort direction used for keyset paging, null if keyset paging is disabled. */
+  private Map<FieldDefinition, Boolean> keyOrderBy;
+
   /** The number of pages. */
   private int numPages;
 
@@ -32,6 +51,9 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
   /** The current page number. */
   private int pageNumber = -1;
 
+  /** The key of the last record of each page read, used to query the following page. */
+  private final Map<Integer, Object[]> pageLastKeys = new HashMap<>();
+
   /** The number of objects in a page. */
   private int pageSize = 10;
 
@@ -63,8 +85,6 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     this.recordFactory = recordStore.getRecordFactory();
     this.recordStore = recordStore;
 
-    this.query = query;
-
     final String tableName = query.getTypeName();
     this.recordDefinition = query.getRecordDefinition();
     if (this.recordDefinition == null) {
@@ -72,9 +92,18 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
       query.setRecordDefinition(this.recordDefinition);
     }
 
-    this.sql = JdbcUtils.getSelectSql(query);
     this.internStrings = (Boolean)properties.getOrDefault(properties, false);
     this.fields = query.getFields(this.recordDefinition);
+    if (Booleans.getBoolean(properties.get("keysetPaging"))) {
+      this.keyOrderBy = newKeyOrderBy(query);
+    }
+    if (this.keyOrderBy == null || this.keyOrderBy.size() == query.getOrderBy().size()) {
+      this.query = query;
+    } else {
+      this.query = query.clone();
+      this.query.setOrderBy(this.keyOrderBy);
+    }
+    this.sql = JdbcUtils.getSelectSql(this.query);
   }
 
   @Override
@@ -111,6 +140,26 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     }
   }
 
+  /**
+   * Get the query for the current page using keyset paging. The query selects the records after
+   * the key of the last record on the previous page. The caller must limit the number of records
+   * read to the page size.
+   *
+   * @return The query, or null if offset paging must be used as keyset paging is disabled or the
+   * previous page has not been read.
+   */
+  protected Query getKeysetQuery() {
+    if (this.keyOrderBy != null && this.pageNumber > 0) {
+      final Object[] lastKey = this.pageLastKeys.get(this.pageNumber - 1);
+      if (lastKey != null) {
+        final Query query = this.query.clone();
+        query.and(newKeysetCondition(lastKey));
+        return query;
+      }
+    }
+    return null;
+  }
+
   /**
    * Get the list of objects in the current page.
    *
@@ -269,6 +318,15 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageNumber == 0;
   }
 
+  /**
+   * Check to see if keyset paging is used if the previous page has been read.
+   *
+   * @return True if keyset paging is enabled.
+   */
+  public boolean isKeysetPaging() {
+    return this.keyOrderBy != null;
+  }
+
   /**
    * Check to see if this is the last page.
    *
@@ -279,6 +337,79 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageNumber == getNumPages();
   }
 
+  /**
+   * Get the order by to use for keyset paging. The query must be ordered by non-null fields that
+   * are selected by the query. The id fields are added to the end of the order by to make the key
+   * unique.
+   *
+   * @param query The query.
+   * @return The order by, or null if keyset paging cannot be used for the query.
+   */
+  private Map<FieldDefinition, Boolean> newKeyOrderBy(final Query query) {
+    final RecordDefinition recordDefinition = this.recordDefinition;
+    if (recordDefinition == null || query.getSql() != null) {
+      return null;
+    }
+    final List<FieldDefinition> idFields = recordDefinition.getIdFields();
+    if (idFields.isEmpty()) {
+      return null;
+    }
+    final Map<FieldDefinition, Boolean> keyOrderBy = new LinkedHashMap<>();
+    for (final Entry<CharSequence, Boolean> entry : query.getOrderBy().entrySet()) {
+      final String fieldName = entry.getKey().toString();
+      final FieldDefinition field = recordDefinition.getField(fieldName);
+      if (field == null || !field.isRequired() && !idFields.contains(field)) {
+        // Expressions and nullable fields cannot be compared with the last key
+        return null;
+      }
+      keyOrderBy.put(field, entry.getValue());
+    }
+    for (final FieldDefinition idField : idFields) {
+      if (!keyOrderBy.containsKey(idField)) {
+        keyOrderBy.put(idField, true);
+      }
+    }
+    for (final FieldDefinition keyField : keyOrderBy.keySet()) {
+      if (!this.fields.contains(keyField)) {
+        return null;
+      }
+    }
+    return keyOrderBy;
+  }
+
+  /**
+   * Create the condition for the records after the key in the order by. For a key (a, b) with
+   * a ascending and b descending the condition is a > ? OR (a = ? AND b < ?).
+   */
+  private Condition newKeysetCondition(final Object[] lastKey) {
+    final List<Condition> conditions = new ArrayList<>();
+    final List<Condition> equalConditions = new ArrayList<>();
+    int keyIndex = 0;
+    for (final Entry<FieldDefinition, Boolean> entry : this.keyOrderBy.entrySet()) {
+      final FieldDefinition field = entry.getKey();
+      final Object value = lastKey[keyIndex++];
+      Condition afterCondition;
+      if (entry.getValue()) {
+        afterCondition = Q.greaterThan(field, value);
+      } else {
+        afterCondition = Q.lessThan(field, value);
+      }
+      if (equalConditions.isEmpty()) {
+        conditions.add(afterCondition);
+      } else {
+        final List<Condition> andConditions = new ArrayList<>(equalConditions);
+        andConditions.add(afterCondition);
+        conditions.add(Q.and(andConditions));
+      }
+      equalConditions.add(Q.equal(field, value));
+    }
+    if (conditions.size() == 1) {
+      return conditions.get(0);
+    } else {
+      return Q.or(conditions);
+    }
+  }
+
   protected void setNumResults(final int numResults) {
     this.numResults = numResults;
   }
@@ -300,6 +431,24 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     updateResults();
   }
 
+  /**
+   * Save the key of the last record of the current page so the next page can be read using
+   * keyset paging.
+   *
+   * @param results The records in the current page.
+   */
+  protected void setPageLastKey(final List<Record> results) {
+    if (this.keyOrderBy != null && this.pageNumber >= 0 && !results.isEmpty()) {
+      final Record record = results.get(results.size() - 1);
+      final Object[] lastKey = new Object[this.keyOrderBy.size()];
+      int keyIndex = 0;
+      for (final FieldDefinition field : this.keyOrderBy.keySet()) {
+        lastKey[keyIndex++] = record.getValue(field.getName());
+      }
+      this.pageLastKeys.put(this.pageNumber, lastKey);
+    }
+  }
+
   @Override
   public void setPageNumberAndSize(final int pageSize, final int pageNumber) {
     if (pageNumber <= 0) {
@@ -307,6 +456,9 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     } else {
       this.pageNumber = pageNumber - 1;
     }
+    if (pageSize != this.pageSize) {
+      this.pageLastKeys.clear();
+    }
     this.pageSize = pageSize;
     updateNumPages();
     updateResults();
@@ -319,6 +471,9 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
    */
   @Override
   public void setPageSize(final int pageSize) {
+    if (pageSize != this.pageSize) {
+      this.pageLastKeys.clear();
+    }
     this.pageSize = pageSize;
     updateNumPages();
     updateResults();
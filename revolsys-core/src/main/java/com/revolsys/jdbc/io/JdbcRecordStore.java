@@ -36,6 +36,16 @@ public interface JdbcRecordStore extends RecordStore {
     }
   }
 
+  /**
+   * The default number of rows fetched in each round trip for queries that don't set
+   * {@link Query#setFetchSize(int)}.
+   *
+   * @return The fetch size.
+   */
+  default int getFetchSize() {
+    return 10;
+  }
+
   String getGeneratePrimaryKeySql(JdbcRecordDefinition recordDefinition);
 
   JdbcConnection getJdbcConnection();
@@ -54,8 +64,37 @@ public interface JdbcRecordStore extends RecordStore {
   PreparedStatement insertStatementPrepareRowId(JdbcConnection connection,
     RecordDefinition recordDefinition, String sql) throws SQLException;
 
+  /**
+   * Grow the fetch size of queries based on the row width and the time taken for each round
+   * trip. See {@link JdbcQueryIterator}.
+   *
+   * @return True if the fetch size is adaptive.
+   */
+  default boolean isFetchSizeAdaptive() {
+    return false;
+  }
+
+  /**
+   * Some drivers (e.g. PostgreSQL) only use a server side cursor that honours the fetch size if
+   * auto commit is off, otherwise the whole result set is loaded into memory.
+   *
+   * @return True if auto commit must be off to stream the results.
+   */
+  default boolean isFetchSizeRequiresTransaction() {
+    return false;
+  }
+
   boolean isIdFieldRowid(RecordDefinition recordDefinition);
 
+  /**
+   * The maximum fetch size used by the adaptive fetch mode.
+   *
+   * @return The maximum fetch size.
+   */
+  default int getMaxFetchSize() {
+    return 10000;
+  }
+
   default void lockTable(final String typePath) {
     try (
       final JdbcConnection connection = getJdbcConnection()) {
@@ -31,6 +31,10 @@ import com.revolsys.util.count.CategoryLabelCountMap;
 
 public class JdbcRecordWriter extends AbstractRecordWriter {
 
+  private boolean bulkInsert = false;
+
+  private int bulkInsertBatchSize = 10000;
+
   protected JdbcConnection connection;
 
   private boolean flushBetweenTypes = false;
@@ -53,6 +57,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   private boolean throwExceptions = false;
 
+  private Map<JdbcRecordDefinition, JdbcBulkInsert> typeBulkInsertData = new HashMap<>();
+
   private Map<JdbcRecordDefinition, JdbcRecordWriterTypeData> typeDeleteData = new HashMap<>();
 
   private Map<JdbcRecordDefinition, JdbcRecordWriterTypeData> typeInsertData = new HashMap<>();
@@ -136,9 +142,25 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     }
   }
 
+  private void closeBulkInsert() {
+    for (final JdbcBulkInsert bulkInsert : this.typeBulkInsertData.values()) {
+      try {
+        bulkInsert.close();
+      } catch (final DataAccessException e) {
+        if (this.throwExceptions) {
+          throw e;
+        } else {
+          Logs.error(this, "Error commiting records", e);
+        }
+      }
+    }
+  }
+
   protected synchronized void closeDo() {
     if (this.recordStore != null) {
       try {
+        closeBulkInsert();
+
         close(this.typeInsertData);
 
         close(this.typeInsertData);
@@ -154,6 +176,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
           this.statistics = null;
         }
       } finally {
+        this.typeBulkInsertData = null;
         this.typeInsertData = null;
         this.typeInsertSequenceData = null;
         this.typeInsertRowIdData = null;
@@ -204,6 +227,8 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
 
   @Override
   public synchronized void flush() {
+    flushBulkInsert();
+
     flush(this.typeInsertData);
 
     flush(this.typeInsertSequenceData);
@@ -231,6 +256,22 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     }
   }
 
+  private void flushBulkInsert() {
+    if (this.typeBulkInsertData != null) {
+      for (final JdbcBulkInsert bulkInsert : this.typeBulkInsertData.values()) {
+        try {
+          bulkInsert.flush();
+        } catch (final DataAccessException e) {
+          if (this.throwExceptions) {
+            throw e;
+          } else {
+            Logs.error(this, "Error writing to database", e);
+          }
+        }
+      }
+    }
+  }
+
   private void flushIfRequired(final JdbcRecordDefinition recordDefinition) {
     if (this.flushBetweenTypes && recordDefinition != this.lastRecordDefinition) {
       flush();
@@ -242,6 +283,10 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     return this.batchSize;
   }
 
+  public int getBulkInsertBatchSize() {
+    return this.bulkInsertBatchSize;
+  }
+
   protected synchronized LongCounter getCounter(final JdbcRecordDefinition recordDefinition) {
     LongCounter counter = this.typeCountMap.get(recordDefinition);
     if (counter == null) {
@@ -407,7 +452,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     if (this.recordStore.isIdFieldRowid(recordDefinition)) {
       insertRowId(record, recordDefinition);
     } else if (!hasId) {
-      insert(record, recordDefinition);
+      insertOrBulkInsert(record, recordDefinition);
     } else {
       boolean hasIdValue = true;
       for (final String idFieldName : recordDefinition.getIdFieldNames()) {
@@ -416,7 +461,7 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
         }
       }
       if (hasIdValue) {
-        insert(record, recordDefinition);
+        insertOrBulkInsert(record, recordDefinition);
       } else {
         insertRecordSequence(record, recordDefinition);
       }
@@ -440,6 +485,20 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     }
   }
 
+  private void insertOrBulkInsert(final Record record,
+    final JdbcRecordDefinition recordDefinition) throws SQLException {
+    if (this.bulkInsert) {
+      JdbcBulkInsert bulkInsert = this.typeBulkInsertData.get(recordDefinition);
+      if (bulkInsert == null) {
+        bulkInsert = this.recordStore.newBulkInsert(this, recordDefinition);
+        this.typeBulkInsertData.put(recordDefinition, bulkInsert);
+      }
+      bulkInsert.insertRecord(record);
+    } else {
+      insert(record, recordDefinition);
+    }
+  }
+
   private void insertRecordSequence(final Record record,
     final JdbcRecordDefinition recordDefinition) throws SQLException {
     final JdbcRecordWriterTypeData data = insertStatementGet(recordDefinition,
@@ -499,6 +558,16 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     return data;
   }
 
+  /**
+   * Check if records with id values (or tables without a primary key) are inserted using the record
+   * store's {@link JdbcBulkInsert} (e.g. PostgreSQL COPY) instead of single row insert statements.
+   *
+   * @return True if bulk insert is enabled.
+   */
+  public boolean isBulkInsert() {
+    return this.bulkInsert;
+  }
+
   public boolean isFlushBetweenTypes() {
     return this.flushBetweenTypes;
   }
@@ -511,6 +580,14 @@ public class JdbcRecordWriter extends AbstractRecordWriter {
     return this.throwExceptions;
   }
 
+  public void setBulkInsert(final boolean bulkInsert) {
+    this.bulkInsert = bulkInsert;
+  }
+
+  public void setBulkInsertBatchSize(final int bulkInsertBatchSize) {
+    this.bulkInsertBatchSize = bulkInsertBatchSize;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
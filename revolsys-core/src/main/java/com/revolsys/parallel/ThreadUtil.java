@@ -1,11 +1,106 @@
 package com.revolsys.parallel;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
 public class ThreadUtil {
+  private static final ThreadLocal<LongConsumer> BLOCKED_TIME_CONSUMER = new ThreadLocal<>();
+
+  /**
+   * Call {@link ManagedBlocker#block()} using {@link ForkJoinPool#managedBlock(ManagedBlocker)} if
+   * the current thread is in a {@link ForkJoinPool} so the pool can start a spare thread while this
+   * one is blocked. The pool won't start more threads than its maximum pool size, so if all of
+   * them are blocked the pool can't run any other tasks (see
+   * {@link com.revolsys.parallel.process.ForkJoinProcessScheduler}). The time spent blocked is
+   * passed to the current thread's blocked time consumer.
+   */
+  private static void block(final ManagedBlocker blocker) throws InterruptedException {
+    final long startTime = System.nanoTime();
+    try {
+      if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+        ForkJoinPool.managedBlock(blocker);
+      } else {
+        blocker.block();
+      }
+    } finally {
+      final LongConsumer blockedTimeConsumer = BLOCKED_TIME_CONSUMER.get();
+      if (blockedTimeConsumer != null) {
+        blockedTimeConsumer.accept(System.nanoTime() - startTime);
+      }
+    }
+  }
 
   public static boolean isInterrupted() {
     return Thread.currentThread().isInterrupted();
   }
 
+  /**
+   * Acquire the lock, allowing a {@link ForkJoinPool} to compensate for the blocked thread if the
+   * lock is held by another thread.
+   *
+   * @param lock The lock.
+   * @throws ThreadInterruptedException If the thread was interrupted while waiting for the lock.
+   */
+  public static void lock(final ReentrantLock lock) {
+    if (!lock.tryLock()) {
+      try {
+        block(new ManagedBlocker() {
+          private boolean locked = false;
+
+          @Override
+          public boolean block() throws InterruptedException {
+            if (!this.locked) {
+              lock.lockInterruptibly();
+              this.locked = true;
+            }
+            return true;
+          }
+
+          @Override
+          public boolean isReleasable() {
+            if (!this.locked) {
+              this.locked = lock.tryLock();
+            }
+            return this.locked;
+          }
+        });
+      } catch (final InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      }
+    }
+  }
+
+  /**
+   * Park the current thread, allowing a {@link ForkJoinPool} to compensate for the blocked thread.
+   *
+   * @param nanoSeconds The maximum time to park.
+   */
+  public static void parkNanos(final long nanoSeconds) {
+    try {
+      block(new ManagedBlocker() {
+        private boolean released = false;
+
+        @Override
+        public boolean block() {
+          LockSupport.parkNanos(nanoSeconds);
+          this.released = true;
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return this.released;
+        }
+      });
+    } catch (final InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+  }
+
   public static void pause(final long milliSeconds) {
     pause(new Object(), milliSeconds);
   }
@@ -39,4 +134,48 @@ public class ThreadUtil {
       }
     }
   }
+
+  /**
+   * Set the consumer for the time in nanoseconds the current thread spends blocked in
+   * {@link #parkNanos(long)} and {@link #wait(Object, long)}.
+   *
+   * @param blockedTimeConsumer The consumer, null to stop recording the blocked time.
+   * @return The previous consumer.
+   */
+  public static LongConsumer setBlockedTimeConsumer(final LongConsumer blockedTimeConsumer) {
+    final LongConsumer previousConsumer = BLOCKED_TIME_CONSUMER.get();
+    if (blockedTimeConsumer == null) {
+      BLOCKED_TIME_CONSUMER.remove();
+    } else {
+      BLOCKED_TIME_CONSUMER.set(blockedTimeConsumer);
+    }
+    return previousConsumer;
+  }
+
+  /**
+   * Wait on the monitor, allowing a {@link ForkJoinPool} to compensate for the blocked thread. The
+   * caller must hold the monitor.
+   *
+   * @param monitor The monitor to wait on.
+   * @param milliSeconds The maximum time to wait, 0 to wait until notified.
+   * @throws InterruptedException If the thread was interrupted.
+   */
+  public static void wait(final Object monitor, final long milliSeconds)
+    throws InterruptedException {
+    block(new ManagedBlocker() {
+      private boolean released = false;
+
+      @Override
+      public boolean block() throws InterruptedException {
+        monitor.wait(milliSeconds);
+        this.released = true;
+        return true;
+      }
+
+      @Override
+      public boolean isReleasable() {
+        return this.released;
+      }
+    });
+  }
 }
@@ -1,8 +1,10 @@
 package com.revolsys.parallel.channel;
 
 import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.revolsys.parallel.ThreadInterruptedException;
+import com.revolsys.parallel.ThreadUtil;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
@@ -27,14 +29,17 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** Number of writers connected to the channel. */
   private int numWriters = 0;
 
-  /** The monitor reads must synchronize on */
-  protected Object readMonitor = new Object();
+  /**
+   * The lock readers must hold. A lock is used instead of a monitor so that a
+   * {@link java.util.concurrent.ForkJoinPool} can compensate for readers waiting for the lock.
+   */
+  protected final ReentrantLock readLock = new ReentrantLock();
 
   /** Flag indicating if the channel is closed for writing. */
   private boolean writeClosed;
 
-  /** The monitor writes must synchronize on */
-  protected Object writeMonitor = new Object();
+  /** The lock writers must hold. */
+  protected final ReentrantLock writeLock = new ReentrantLock();
 
   /**
    * Constructs a new Channel<T> with a ZeroBuffer ChannelValueStore.
@@ -88,6 +93,16 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     return this.name;
   }
 
+  /**
+   * The number of values waiting to be read from the channel. As other threads can be reading or
+   * writing concurrently the value is only a snapshot.
+   *
+   * @return The number of values waiting to be read.
+   */
+  public int getQueueDepth() {
+    return this.data.size();
+  }
+
   @Override
   public boolean isClosed() {
     if (!this.closed) {
@@ -106,6 +121,14 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     return new ChannelInputIterator<>(this);
   }
 
+  private void lock(final ReentrantLock lock) {
+    try {
+      ThreadUtil.lock(lock);
+    } catch (final ThreadInterruptedException e) {
+      throw new ClosedException(e);
+    }
+  }
+
   /**
    * Reads an Object from the Channel. This method also ensures only one of the
    * readers can actually be reading at any time. All other readers are blocked
@@ -129,7 +152,8 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public T read(final long timeout) {
-    synchronized (this.readMonitor) {
+    lock(this.readLock);
+    try {
       synchronized (this.monitor) {
         if (isClosed()) {
           throw new ClosedException();
@@ -137,7 +161,7 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (this.data.getState() == ChannelValueStore.EMPTY) {
           try {
             try {
-              this.monitor.wait(timeout);
+              ThreadUtil.wait(this.monitor, timeout);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
@@ -158,6 +182,8 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           return value;
         }
       }
+    } finally {
+      this.readLock.unlock();
     }
   }
 
@@ -205,7 +231,8 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public void write(final T value) {
-    synchronized (this.writeMonitor) {
+    lock(this.writeLock);
+    try {
       synchronized (this.monitor) {
         if (this.closed) {
           throw new ClosedException();
@@ -220,7 +247,7 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
         if (this.data.getState() == ChannelValueStore.FULL) {
           try {
             try {
-              this.monitor.wait();
+              ThreadUtil.wait(this.monitor, 0);
             } catch (final InterruptedException e) {
               throw new ThreadInterruptedException(e);
             }
@@ -234,6 +261,8 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           }
         }
       }
+    } finally {
+      this.writeLock.unlock();
     }
   }
 
@@ -58,4 +58,18 @@ public abstract class ChannelValueStore<T> implements Cloneable {
    * @param value The object to put in the ChannelValueStore
    */
   protected abstract void put(T value);
+
+  /**
+   * The number of values in the store. Stores that can contain more than one value should
+   * override this method.
+   *
+   * @return The number of values in the store.
+   */
+  public int size() {
+    if (getState() == EMPTY) {
+      return 0;
+    } else {
+      return 1;
+    }
+  }
 }
@@ -0,0 +1,273 @@
+package com.revolsys.parallel.channel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.revolsys.parallel.ThreadUtil;
+import com.revolsys.parallel.channel.store.RingBuffer;
+
+/**
+ * A bounded {@link Channel} backed by a lock-free {@link RingBuffer}. Unlike {@link Channel} the
+ * read and write methods don't synchronize on a monitor or use wait/notifyAll. A reader or writer
+ * that can't proceed spins briefly, then yields and finally parks for increasing periods (up to
+ * {@link #MAX_PARK_NANOS}) until the buffer changes.
+ * <p>
+ * The {@link #read(Collection, int)} and {@link #write(Collection)} methods transfer batches of
+ * values to reduce the per value overhead further.
+ * </p>
+ */
+public class RingBufferChannel<T> extends Channel<T> {
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private static final int SPIN_COUNT = 64;
+
+  private static final int YIELD_COUNT = 128;
+
+  /**
+   * Wait before retrying a read or write that could not proceed.
+   *
+   * @param idleCount The number of times the caller has already waited.
+   */
+  private static void idle(final int idleCount) {
+    if (idleCount < SPIN_COUNT) {
+      Thread.onSpinWait();
+    } else if (idleCount < YIELD_COUNT) {
+      Thread.yield();
+    } else {
+      final long parkNanos = Math.min(MAX_PARK_NANOS, 1000L << Math.min(idleCount - YIELD_COUNT, 10));
+      ThreadUtil.parkNanos(parkNanos);
+    }
+  }
+
+  private final RingBuffer<T> buffer;
+
+  private volatile boolean closed = false;
+
+  private final AtomicInteger readerCount = new AtomicInteger();
+
+  private volatile MultiInputSelector selector;
+
+  private volatile boolean writeClosed = false;
+
+  private final AtomicInteger writerCount = new AtomicInteger();
+
+  public RingBufferChannel(final int maxSize) {
+    this(new RingBuffer<>(maxSize));
+  }
+
+  public RingBufferChannel(final RingBuffer<T> buffer) {
+    super(buffer);
+    this.buffer = buffer;
+  }
+
+  public RingBufferChannel(final String name, final int maxSize) {
+    this(name, new RingBuffer<>(maxSize));
+  }
+
+  public RingBufferChannel(final String name, final RingBuffer<T> buffer) {
+    super(name, buffer);
+    this.buffer = buffer;
+  }
+
+  private void checkInterrupted() {
+    if (Thread.interrupted()) {
+      close();
+      Thread.currentThread().interrupt();
+      throw new ClosedException();
+    }
+  }
+
+  @Override
+  public void close() {
+    this.closed = true;
+  }
+
+  @Override
+  public boolean disable() {
+    this.selector = null;
+    return !this.buffer.isEmpty();
+  }
+
+  @Override
+  public boolean enable(final MultiInputSelector selector) {
+    // The selector must be visible before checking the buffer so a concurrent write either sees
+    // the selector or this method sees the value.
+    this.selector = selector;
+    if (this.buffer.isEmpty()) {
+      return false;
+    } else {
+      this.selector = null;
+      return true;
+    }
+  }
+
+  public RingBuffer<T> getBuffer() {
+    return this.buffer;
+  }
+
+  @Override
+  public boolean isClosed() {
+    if (!this.closed) {
+      if (this.writeClosed) {
+        if (this.buffer.isEmpty()) {
+          close();
+        }
+      }
+    }
+    return this.closed;
+  }
+
+  /**
+   * Read up to maxCount values from the channel, waiting until at least one value is available.
+   *
+   * @param values The collection to add the values to.
+   * @param maxCount The maximum number of values to read.
+   * @return The number of values read.
+   * @throws ClosedException If the channel is closed.
+   */
+  public int read(final Collection<? super T> values, final int maxCount) {
+    int idleCount = 0;
+    while (true) {
+      final int count = this.buffer.drainTo(values, maxCount);
+      if (count > 0) {
+        return count;
+      } else if (isClosed()) {
+        throw new ClosedException();
+      } else {
+        checkInterrupted();
+        idle(idleCount++);
+      }
+    }
+  }
+
+  /**
+   * Reads an Object from the Channel. If no data is available to be read after
+   * the timeout the method will return null.
+   *
+   * @param timeout The maximum time to wait in milliseconds, 0 to wait until a value is available.
+   * @return The object returned from the Channel.
+   */
+  @Override
+  public T read(final long timeout) {
+    long endTime = Long.MAX_VALUE;
+    if (timeout > 0) {
+      endTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+    int idleCount = 0;
+    while (true) {
+      final T value = this.buffer.poll();
+      if (value != null) {
+        return value;
+      } else if (isClosed()) {
+        throw new ClosedException();
+      } else if (System.nanoTime() >= endTime) {
+        return null;
+      } else {
+        checkInterrupted();
+        idle(idleCount++);
+      }
+    }
+  }
+
+  @Override
+  public void readConnect() {
+    if (isClosed()) {
+      throw new IllegalStateException("Cannot connect to a closed channel");
+    } else {
+      this.readerCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void readDisconnect() {
+    if (!this.closed) {
+      if (this.readerCount.decrementAndGet() <= 0) {
+        close();
+      }
+    }
+  }
+
+  private void scheduleSelector() {
+    final MultiInputSelector selector = this.selector;
+    if (selector != null) {
+      selector.schedule();
+    }
+  }
+
+  /**
+   * Write all the values to the channel, waiting for space in the buffer as required.
+   *
+   * @param values The values to write.
+   * @throws ClosedException If the channel is closed.
+   */
+  public void write(final Collection<? extends T> values) {
+    final List<? extends T> list;
+    if (values instanceof List) {
+      list = (List<? extends T>)values;
+    } else {
+      list = new ArrayList<>(values);
+    }
+    int offset = 0;
+    int idleCount = 0;
+    while (offset < list.size()) {
+      if (this.closed) {
+        throw new ClosedException();
+      }
+      final int count = this.buffer.offerAll(list, offset);
+      if (count > 0) {
+        offset += count;
+        idleCount = 0;
+        scheduleSelector();
+      } else {
+        checkInterrupted();
+        idle(idleCount++);
+      }
+    }
+  }
+
+  /**
+   * Writes an Object to the Channel, waiting for space in the buffer if it is full.
+   *
+   * @param value The object to write to the Channel.
+   */
+  @Override
+  public void write(final T value) {
+    int idleCount = 0;
+    while (true) {
+      if (this.closed) {
+        throw new ClosedException();
+      } else if (this.buffer.offer(value)) {
+        scheduleSelector();
+        return;
+      } else {
+        checkInterrupted();
+        idle(idleCount++);
+      }
+    }
+  }
+
+  @Override
+  public void writeConnect() {
+    if (this.writeClosed) {
+      throw new IllegalStateException("Cannot connect to a closed channel");
+    } else {
+      this.writerCount.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void writeDisconnect() {
+    if (!this.writeClosed) {
+      if (this.writerCount.decrementAndGet() <= 0) {
+        this.writeClosed = true;
+        final MultiInputSelector selector = this.selector;
+        if (selector != null) {
+          selector.closeChannel();
+        }
+      }
+    }
+  }
+}
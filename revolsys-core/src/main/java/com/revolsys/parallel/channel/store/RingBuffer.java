@@ -0,0 +1,252 @@
+package com.revolsys.parallel.channel.store;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.revolsys.parallel.channel.ChannelValueStore;
+
+/**
+ * <h2>Description</h2>
+ * <p>
+ * The RingBuffer class is a bounded, lock-free implementation of ChannelValueStore
+ * which can be used in place of a {@link Buffer} with a maximum size. The values
+ * are stored in a fixed size array (rounded up to a power of 2) and each slot has
+ * a sequence number so multiple readers and writers can claim slots using compare
+ * and set instead of a monitor.
+ * </p>
+ * <p>
+ * The getState method will return EMPTY if the buffer does not contain any
+ * Objects, FULL if it cannot accept more data and NONEMPTYFULL otherwise. Null
+ * values cannot be stored in the buffer.
+ * </p>
+ * <p>
+ * Use with a {@link com.revolsys.parallel.channel.RingBufferChannel} to avoid the
+ * monitors in {@link com.revolsys.parallel.channel.Channel}.
+ * </p>
+ */
+public class RingBuffer<T> extends ChannelValueStore<T> {
+  private static int toPowerOf2(final int size) {
+    final int capacity = Math.max(2, size);
+    return Integer.highestOneBit(capacity - 1) << 1;
+  }
+
+  private final int capacity;
+
+  /** The position of the next value to read. */
+  private final AtomicLong head = new AtomicLong();
+
+  private final int mask;
+
+  /** The position each slot is ready to be read (position + 1) or written (position). */
+  private final AtomicLongArray sequences;
+
+  /** The position of the next value to write. */
+  private final AtomicLong tail = new AtomicLong();
+
+  private final AtomicReferenceArray<T> values;
+
+  /**
+   * Construct a new RingBuffer with the specified maximum size.
+   *
+   * @param maxSize The maximum number of Objects the RingBuffer can store (rounded up to a power of 2).
+   */
+  public RingBuffer(final int maxSize) {
+    this.capacity = toPowerOf2(maxSize);
+    this.mask = this.capacity - 1;
+    this.values = new AtomicReferenceArray<>(this.capacity);
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      this.sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Returns a new Object with the same creation parameters as this Object.
+   * <I>NOTE: Only the sizes of the data should be cloned not the stored
+   * data.</I>
+   *
+   * @return The cloned instance of this Object.
+   */
+  @Override
+  protected Object clone() {
+    return new RingBuffer<T>(this.capacity);
+  }
+
+  /**
+   * Remove up to maxCount values from the buffer and add them to the collection.
+   *
+   * @param values The collection to add the values to.
+   * @param maxCount The maximum number of values to remove.
+   * @return The number of values removed.
+   */
+  public int drainTo(final Collection<? super T> values, final int maxCount) {
+    int count = 0;
+    while (count < maxCount) {
+      final T value = poll();
+      if (value == null) {
+        return count;
+      } else {
+        values.add(value);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the first Object from the RingBuffer and removes the Object from the
+   * RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be EMPTY
+   *
+   * @return The next available Object from the RingBuffer
+   */
+  @Override
+  protected T get() {
+    return poll();
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Returns the current state of the RingBuffer. As other threads can be reading
+   * or writing concurrently the state is only a snapshot.
+   *
+   * @return The current state of the RingBuffer (EMPTY, NONEMPTYFULL or FULL)
+   */
+  @Override
+  protected int getState() {
+    final int size = size();
+    if (size == 0) {
+      return EMPTY;
+    } else if (size >= this.capacity) {
+      return FULL;
+    } else {
+      return NONEMPTYFULL;
+    }
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   * Add the value to the buffer if there is space.
+   *
+   * @param value The value to add.
+   * @return True if the value was added, false if the buffer was full.
+   */
+  public boolean offer(final T value) {
+    if (value == null) {
+      throw new NullPointerException("RingBuffer cannot store null values");
+    }
+    long position = this.tail.get();
+    while (true) {
+      final int index = (int)(position & this.mask);
+      final long sequence = this.sequences.get(index);
+      final long difference = sequence - position;
+      if (difference == 0) {
+        if (this.tail.compareAndSet(position, position + 1)) {
+          this.values.lazySet(index, value);
+          this.sequences.set(index, position + 1);
+          return true;
+        } else {
+          position = this.tail.get();
+        }
+      } else if (difference < 0) {
+        return false;
+      } else {
+        position = this.tail.get();
+      }
+    }
+  }
+
+  /**
+   * Add values from the list, starting at offset, until the buffer is full.
+   *
+   * @param values The values to add.
+   * @param offset The index of the first value in the list to add.
+   * @return The number of values added.
+   */
+  public int offerAll(final List<? extends T> values, final int offset) {
+    int count = 0;
+    for (int i = offset; i < values.size(); i++) {
+      if (offer(values.get(i))) {
+        count++;
+      } else {
+        return count;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Remove the next value from the buffer.
+   *
+   * @return The value or null if the buffer was empty.
+   */
+  public T poll() {
+    long position = this.head.get();
+    while (true) {
+      final int index = (int)(position & this.mask);
+      final long sequence = this.sequences.get(index);
+      final long difference = sequence - (position + 1);
+      if (difference == 0) {
+        if (this.head.compareAndSet(position, position + 1)) {
+          final T value = this.values.get(index);
+          this.values.lazySet(index, null);
+          this.sequences.set(index, position + this.capacity);
+          return value;
+        } else {
+          position = this.head.get();
+        }
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = this.head.get();
+      }
+    }
+  }
+
+  /**
+   * Puts a new Object into the RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be FULL
+   *
+   * @param value The object to put in the RingBuffer
+   * @throws IllegalStateException If the buffer was full.
+   */
+  @Override
+  protected void put(final T value) {
+    if (!offer(value)) {
+      throw new IllegalStateException("Cannot put a value into a full " + this);
+    }
+  }
+
+  /**
+   * The number of items in the buffer.
+   *
+   * @return The number of items in the buffer.
+   */
+  @Override
+  public int size() {
+    final long size = this.tail.get() - this.head.get();
+    if (size < 0) {
+      return 0;
+    } else if (size > this.capacity) {
+      return this.capacity;
+    } else {
+      return (int)size;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RingBuffer[" + size() + "/" + this.capacity + "]";
+  }
+}
@@ -0,0 +1,132 @@
+package com.revolsys.parallel.process;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jeometry.common.logging.Logs;
+
+/**
+ * Run the processes on a bounded work-stealing {@link ForkJoinPool}.
+ * <p>
+ * Processes in a network normally block reading or writing channels.
+ * {@link com.revolsys.parallel.channel.Channel}s use
+ * {@link ForkJoinPool#managedBlock(java.util.concurrent.ForkJoinPool.ManagedBlocker)} when waiting
+ * so the pool starts a spare thread (up to maxPoolSize) while a process is blocked. If more
+ * processes are blocked than the maxPoolSize the remaining processes would not be run and the
+ * network would deadlock. As every running process can be blocked at the same time,
+ * {@link #execute(ProcessNetwork, ProcessTask)} throws a {@link RejectedExecutionException} if
+ * more than maxPoolSize (default 256) processes would be running. Use a larger maxPoolSize or
+ * another {@link ProcessScheduler} for networks with more processes.
+ * </p>
+ * <p>
+ * Processes that block other than on a channel (e.g. waiting on a lock, latch or I/O) should use
+ * {@link ForkJoinPool#managedBlock(java.util.concurrent.ForkJoinPool.ManagedBlocker)}, otherwise
+ * the pool counts the blocked thread as running and may not start a thread for another process.
+ * </p>
+ */
+public class ForkJoinProcessScheduler implements ProcessScheduler {
+  private final int maxPoolSize;
+
+  private final ForkJoinPool pool;
+
+  /** The number of processes that have been scheduled and not finished. */
+  private final AtomicInteger processCount = new AtomicInteger();
+
+  public ForkJoinProcessScheduler() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  public ForkJoinProcessScheduler(final int parallelism) {
+    this(parallelism, 256);
+  }
+
+  /**
+   * @param parallelism The target number of active threads.
+   * @param maxPoolSize The maximum number of threads including spare threads started while
+   * processes are blocked. At most maxPoolSize processes can be running.
+   */
+  public ForkJoinProcessScheduler(final int parallelism, final int maxPoolSize) {
+    final int poolParallelism = Math.max(1, parallelism);
+    this.maxPoolSize = Math.max(poolParallelism, maxPoolSize);
+    final ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+      final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+        .newThread(pool);
+      thread.setDaemon(true);
+      return thread;
+    };
+    // minimumRunnable=parallelism so a spare thread is started for each blocked process. At
+    // maxPoolSize threads block without a spare thread, as the process count limit ensures there
+    // is an idle thread if a process is waiting to run.
+    this.pool = new ForkJoinPool(poolParallelism, threadFactory,
+      (thread, e) -> Logs.error(this, e), true, poolParallelism, this.maxPoolSize,
+      poolParallelism, forkJoinPool -> true, 60, TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void execute(final ProcessNetwork processNetwork, final ProcessTask task) {
+    if (this.processCount.incrementAndGet() > this.maxPoolSize) {
+      this.processCount.decrementAndGet();
+      throw new RejectedExecutionException("Cannot run process " + task
+        + " as more than maxPoolSize=" + this.maxPoolSize
+        + " processes would be running and could all be blocked on channels");
+    }
+    try {
+      this.pool.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          this.processCount.decrementAndGet();
+        }
+      });
+    } catch (final RuntimeException e) {
+      this.processCount.decrementAndGet();
+      throw e;
+    }
+  }
+
+  public int getActiveThreadCount() {
+    return this.pool.getActiveThreadCount();
+  }
+
+  public int getMaxPoolSize() {
+    return this.maxPoolSize;
+  }
+
+  public int getParallelism() {
+    return this.pool.getParallelism();
+  }
+
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+
+  public int getPoolSize() {
+    return this.pool.getPoolSize();
+  }
+
+  /**
+   * The number of processes that have been scheduled and not finished.
+   *
+   * @return The number of processes.
+   */
+  public int getProcessCount() {
+    return this.processCount.get();
+  }
+
+  public long getQueuedTaskCount() {
+    return this.pool.getQueuedTaskCount();
+  }
+
+  @Override
+  public void shutdown() {
+    this.pool.shutdown();
+  }
+
+  @Override
+  public String toString() {
+    return "forkJoin(" + this.pool.getParallelism() + ")";
+  }
+}
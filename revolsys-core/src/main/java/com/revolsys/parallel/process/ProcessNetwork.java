@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -73,10 +74,15 @@ public class ProcessNetwork {
 
   private ProcessNetwork parent;
 
-  private final Map<Process, Thread> processes = new HashMap<>();
+  private final Map<Process, ProcessTask> processes = new HashMap<>();
 
   private boolean running = false;
 
+  private ProcessScheduler scheduler = new ThreadProcessScheduler();
+
+  /** True if the scheduler was created by the network and can be shut down when it stops. */
+  private boolean schedulerOwned = true;
+
   private boolean stopping = false;
 
   private final Object sync = new Object();
@@ -183,10 +189,32 @@ public class ProcessNetwork {
     }
   }
 
-  protected Map<Process, Thread> getProcessMap() {
+  protected Map<Process, ProcessTask> getProcessMap() {
     return this.processes;
   }
 
+  /**
+   * Get the tasks for the processes that have been started. The tasks can be used to monitor the
+   * busy time, blocked time and queue depth for each process.
+   *
+   * @return The process tasks.
+   */
+  public List<ProcessTask> getProcessTasks() {
+    final List<ProcessTask> tasks = new ArrayList<>();
+    synchronized (this.sync) {
+      for (final ProcessTask task : this.processes.values()) {
+        if (task != null) {
+          tasks.add(task);
+        }
+      }
+    }
+    return tasks;
+  }
+
+  public ProcessScheduler getScheduler() {
+    return this.scheduler;
+  }
+
   protected Object getSync() {
     return this.sync;
   }
@@ -250,6 +278,23 @@ public class ProcessNetwork {
     }
   }
 
+  /**
+   * Set the scheduler used to run the processes. Must be set before the network is started. The
+   * network does not shut down the scheduler, the caller must shut it down when it is no longer
+   * used.
+   *
+   * @param scheduler The scheduler, null to use a thread per process.
+   */
+  public void setScheduler(final ProcessScheduler scheduler) {
+    if (scheduler == null) {
+      this.scheduler = new ThreadProcessScheduler();
+      this.schedulerOwned = true;
+    } else {
+      this.scheduler = scheduler;
+      this.schedulerOwned = false;
+    }
+  }
+
   public void start() {
     if (this.parent == null) {
       synchronized (this.sync) {
@@ -267,8 +312,8 @@ public class ProcessNetwork {
   private synchronized void start(final Process process) {
     if (this.parent == null) {
       if (this.processes != null) {
-        Thread thread = this.processes.get(process);
-        if (thread == null) {
+        final ProcessTask existingTask = this.processes.get(process);
+        if (existingTask == null) {
           final Process runProcess;
           if (process instanceof TargetBeanProcess) {
             final TargetBeanProcess targetBeanProcess = (TargetBeanProcess)process;
@@ -277,7 +322,6 @@ public class ProcessNetwork {
           } else {
             runProcess = process;
           }
-          final String name = runProcess.toString();
           final Runnable runnable = () -> {
             try {
               runProcess.run();
@@ -291,64 +335,74 @@ public class ProcessNetwork {
               }
             }
           };
-          if (name == null) {
-            thread = new Thread(this.threadGroup, runnable);
-          } else {
-            thread = new Thread(this.threadGroup, runnable, name);
-          }
-          this.processes.put(runProcess, thread);
-          if (!thread.isAlive()) {
-            thread.start();
-            this.count++;
+          final ProcessTask task = new ProcessTask(this, runProcess, runnable);
+          this.processes.put(runProcess, task);
+          this.count++;
+          try {
+            this.scheduler.execute(this, task);
+          } catch (final RuntimeException e) {
+            this.processes.remove(runProcess);
+            this.count--;
+            runProcess.close();
+            throw e;
           }
         }
       }
     }
   }
 
+  /**
+   * Start the processes and wait for them to finish. If the scheduler rejects a process the
+   * processes that were started are stopped and the exception rethrown.
+   */
   public void startAndWait() {
-    synchronized (this.sync) {
-      start();
-      waitTillFinished();
+    try {
+      synchronized (this.sync) {
+        start();
+        waitTillFinished();
+      }
+    } catch (final RejectedExecutionException e) {
+      stop();
+      throw e;
     }
   }
 
-  @SuppressWarnings("deprecation")
   @PreDestroy
   public void stop() {
-    final List<Thread> threads;
+    final List<ProcessTask> tasks;
     synchronized (this.sync) {
       this.stopping = true;
       this.sync.notifyAll();
-      threads = new ArrayList<>(this.processes.values());
+      tasks = getProcessTasks();
     }
+    final boolean pooled = !this.scheduler.isThreadPerProcess();
     boolean interrupted = false;
     try {
       final long maxWait = System.currentTimeMillis() + 10000;
-      while (!threads.isEmpty() && System.currentTimeMillis() < maxWait) {
-        for (final Iterator<Thread> threadIter = threads.iterator(); threadIter.hasNext();) {
-          final Thread thread = threadIter.next();
-          if (thread == null || !thread.isAlive() || Thread.currentThread() == thread) {
-            threadIter.remove();
+      while (!tasks.isEmpty() && System.currentTimeMillis() < maxWait) {
+        for (final Iterator<ProcessTask> taskIter = tasks.iterator(); taskIter.hasNext();) {
+          final ProcessTask task = taskIter.next();
+          if (task.isFinished() || task.isCurrentThread()) {
+            taskIter.remove();
           } else {
             try {
-              thread.interrupt();
+              task.interrupt();
             } catch (final Exception e) {
               if (e instanceof InterruptedException) {
                 interrupted = true;
               }
             }
-            if (!thread.isAlive()) {
-              threadIter.remove();
+            if (task.isFinished()) {
+              taskIter.remove();
             }
           }
         }
       }
 
-      for (final Thread thread : threads) {
-        if (thread.isAlive()) {
+      for (final ProcessTask task : tasks) {
+        if (!task.isFinished()) {
           try {
-            thread.stop();
+            task.stop(pooled);
           } catch (final Exception e) {
             if (e instanceof InterruptedException) {
               interrupted = true;
@@ -361,6 +415,9 @@ public class ProcessNetwork {
       }
     } finally {
       finishRunning();
+      if (this.schedulerOwned) {
+        this.scheduler.shutdown();
+      }
     }
   }
 
@@ -0,0 +1,49 @@
+package com.revolsys.parallel.process;
+
+/**
+ * Runs the {@link ProcessTask}s for the processes in a {@link ProcessNetwork}. The default
+ * {@link ThreadProcessScheduler} starts a new platform thread for each process. The
+ * {@link ForkJoinProcessScheduler} and {@link VirtualThreadProcessScheduler} allow networks with
+ * many processes to run without a platform thread per process.
+ */
+public interface ProcessScheduler {
+  /**
+   * Construct a scheduler that doesn't use a platform thread per process. Virtual threads are used
+   * if supported by the runtime and a channel's monitor doesn't pin the carrier thread, otherwise a
+   * {@link ForkJoinProcessScheduler}.
+   *
+   * @return The scheduler.
+   */
+  static ProcessScheduler newLightweight() {
+    if (VirtualThreadProcessScheduler.isSupported()
+      && !VirtualThreadProcessScheduler.isPinnedByMonitors()) {
+      return new VirtualThreadProcessScheduler();
+    } else {
+      return new ForkJoinProcessScheduler();
+    }
+  }
+
+  /**
+   * Schedule the task to run.
+   *
+   * @param processNetwork The network the process is in.
+   * @param task The task to run.
+   */
+  void execute(ProcessNetwork processNetwork, ProcessTask task);
+
+  /**
+   * Check if each process is run on its own platform thread which can be stopped if the process
+   * does not respond to an interrupt.
+   *
+   * @return True if each process has its own thread.
+   */
+  default boolean isThreadPerProcess() {
+    return false;
+  }
+
+  /**
+   * Release any threads held by the scheduler once the network has finished.
+   */
+  default void shutdown() {
+  }
+}
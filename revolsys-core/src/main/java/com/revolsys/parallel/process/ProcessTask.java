@@ -0,0 +1,216 @@
+package com.revolsys.parallel.process;
+
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import com.revolsys.collection.map.ThreadSharedProperties;
+import com.revolsys.parallel.ThreadUtil;
+import com.revolsys.parallel.channel.Channel;
+
+/**
+ * A {@link Process} from a {@link ProcessNetwork} scheduled to run on a {@link ProcessScheduler}.
+ * The task records when it was queued, started and finished along with the time the process spent
+ * blocked reading or writing channels so the busy time and queue depth of each process can be
+ * monitored.
+ * <p>
+ * The process may run on a pooled or virtual thread that is not in the network's
+ * {@link ThreadGroup}. The {@link ThreadSharedProperties} and thread group for the network are set
+ * for the current thread while the process runs and the previous values restored afterwards.
+ * </p>
+ */
+public class ProcessTask implements Runnable {
+  private static final ThreadLocal<ProcessTask> CURRENT = new ThreadLocal<>();
+
+  /**
+   * Add the time the current thread was blocked to the task running on the thread (if any).
+   *
+   * @param nanoSeconds The time blocked.
+   */
+  public static void addBlockedTime(final long nanoSeconds) {
+    final ProcessTask task = CURRENT.get();
+    if (task != null) {
+      task.blockedTime += nanoSeconds;
+    }
+  }
+
+  public static ProcessTask forThread() {
+    return CURRENT.get();
+  }
+
+  private volatile long blockedTime;
+
+  private volatile long endTime;
+
+  private final String name;
+
+  private final Process process;
+
+  private final Map<Object, Object> properties;
+
+  private final long queuedTime = System.nanoTime();
+
+  private final Runnable runnable;
+
+  private volatile long startTime;
+
+  private volatile Thread thread;
+
+  private final ThreadGroup threadGroup;
+
+  public ProcessTask(final ProcessNetwork processNetwork, final Process process,
+    final Runnable runnable) {
+    this.process = process;
+    this.runnable = runnable;
+    this.name = process.toString();
+    this.threadGroup = processNetwork.getThreadGroup();
+    this.properties = ThreadSharedProperties
+      .getThreadGroupProperties(processNetwork.getThreadGroup());
+  }
+
+  /**
+   * The time the process spent blocked waiting to read or write a channel.
+   *
+   * @return The blocked time in nanoseconds.
+   */
+  public long getBlockedTime() {
+    return this.blockedTime;
+  }
+
+  /**
+   * The time the process has been running excluding the time it was blocked.
+   *
+   * @return The busy time in nanoseconds.
+   */
+  public long getBusyTime() {
+    final long startTime = this.startTime;
+    if (startTime == 0) {
+      return 0;
+    } else {
+      long endTime = this.endTime;
+      if (endTime == 0) {
+        endTime = System.nanoTime();
+      }
+      return Math.max(0, endTime - startTime - this.blockedTime);
+    }
+  }
+
+  public String getName() {
+    return this.name;
+  }
+
+  public Process getProcess() {
+    return this.process;
+  }
+
+  /**
+   * The number of values waiting to be read from the process's input channel.
+   *
+   * @return The queue depth, 0 if the process is not an {@link InProcess}.
+   */
+  public int getQueueDepth() {
+    if (this.process instanceof InProcess && this.startTime != 0) {
+      final Channel<?> in = ((InProcess<?>)this.process).getIn();
+      if (in != null) {
+        return in.getQueueDepth();
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * The time between the task being created and it starting to run on the scheduler.
+   *
+   * @return The queue time in nanoseconds.
+   */
+  public long getQueueTime() {
+    long startTime = this.startTime;
+    if (startTime == 0) {
+      startTime = System.nanoTime();
+    }
+    return startTime - this.queuedTime;
+  }
+
+  public Thread getThread() {
+    return this.thread;
+  }
+
+  public void interrupt() {
+    final Thread thread = this.thread;
+    if (thread != null && !isFinished()) {
+      thread.interrupt();
+    }
+  }
+
+  public boolean isCurrentThread() {
+    return this.thread == Thread.currentThread();
+  }
+
+  public boolean isFinished() {
+    return this.endTime != 0;
+  }
+
+  public boolean isRunning() {
+    return this.startTime != 0 && this.endTime == 0;
+  }
+
+  @Override
+  public void run() {
+    final Thread thread = Thread.currentThread();
+    final String threadName = thread.getName();
+    final ProcessTask savedTask = CURRENT.get();
+    final ThreadGroup savedThreadGroup = ThreadSharedProperties
+      .setTaskThreadGroup(this.threadGroup);
+    Map<Object, Object> savedProperties = null;
+    CURRENT.set(this);
+    final LongConsumer savedBlockedTimeConsumer = ThreadUtil
+      .setBlockedTimeConsumer(ProcessTask::addBlockedTime);
+    if (this.properties != null) {
+      savedProperties = ThreadSharedProperties.setThreadProperties(this.properties);
+    }
+    if (this.name != null) {
+      thread.setName(this.name);
+    }
+    this.thread = thread;
+    this.startTime = System.nanoTime();
+    try {
+      this.runnable.run();
+    } finally {
+      this.endTime = System.nanoTime();
+      this.thread = null;
+      thread.setName(threadName);
+      if (this.properties != null) {
+        ThreadSharedProperties.setThreadProperties(savedProperties);
+      }
+      ThreadUtil.setBlockedTimeConsumer(savedBlockedTimeConsumer);
+      ThreadSharedProperties.setTaskThreadGroup(savedThreadGroup);
+      if (savedTask == null) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(savedTask);
+      }
+    }
+  }
+
+  /**
+   * Forcibly stop the thread running the process. Only platform threads not shared with other
+   * processes are stopped, pooled threads are only interrupted.
+   *
+   * @param pooled True if the thread is from a pool.
+   */
+  @SuppressWarnings("deprecation")
+  void stop(final boolean pooled) {
+    final Thread thread = this.thread;
+    if (thread != null && !isFinished()) {
+      if (pooled) {
+        thread.interrupt();
+      } else {
+        thread.stop();
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
+}
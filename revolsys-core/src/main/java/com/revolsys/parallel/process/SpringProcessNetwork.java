@@ -40,12 +40,12 @@ public class SpringProcessNetwork extends ProcessNetwork
 
         }
       } else if (bean instanceof Process) {
-        final Map<Process, Thread> processes = getProcessMap();
+        final Map<Process, ProcessTask> processes = getProcessMap();
         final Process process = (Process)bean;
         // Check to see if this was a target bean, if so make sure duplicate
         // threads aren't created
         if (processes != null) {
-          for (final Entry<Process, Thread> entry : processes.entrySet()) {
+          for (final Entry<Process, ProcessTask> entry : processes.entrySet()) {
             final Process otherProcess = entry.getKey();
             if (otherProcess instanceof TargetBeanProcess) {
               final TargetBeanProcess targetProcessBean = (TargetBeanProcess)otherProcess;
@@ -53,8 +53,8 @@ public class SpringProcessNetwork extends ProcessNetwork
                 final Process targetProcess = targetProcessBean.getProcess();
                 if (targetProcess == process) {
                   synchronized (getSync()) {
-                    final Thread thread = entry.getValue();
-                    processes.put(targetProcess, thread);
+                    final ProcessTask task = entry.getValue();
+                    processes.put(targetProcess, task);
                     processes.remove(otherProcess);
                     return bean;
                   }
@@ -0,0 +1,29 @@
+package com.revolsys.parallel.process;
+
+/**
+ * Run each process on a new platform thread in the {@link ProcessNetwork}'s {@link ThreadGroup}.
+ */
+public class ThreadProcessScheduler implements ProcessScheduler {
+  @Override
+  public void execute(final ProcessNetwork processNetwork, final ProcessTask task) {
+    final ThreadGroup threadGroup = processNetwork.getThreadGroup();
+    final String name = task.getName();
+    final Thread thread;
+    if (name == null) {
+      thread = new Thread(threadGroup, task);
+    } else {
+      thread = new Thread(threadGroup, task, name);
+    }
+    thread.start();
+  }
+
+  @Override
+  public boolean isThreadPerProcess() {
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "thread";
+  }
+}
@@ -0,0 +1,64 @@
+package com.revolsys.parallel.process;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+import org.jeometry.common.exception.Exceptions;
+
+/**
+ * Run each process on a new virtual thread. Virtual threads were added in Java 21 so the methods
+ * are located using reflection and {@link #isSupported()} returns false on older runtimes. On
+ * runtimes before Java 24 a virtual thread waiting on a channel's monitor pins its carrier thread
+ * (see {@link #isPinnedByMonitors()}), so a network can only have as many blocked processes as
+ * there are carrier threads.
+ */
+public class VirtualThreadProcessScheduler implements ProcessScheduler {
+  private static final MethodHandle START_VIRTUAL_THREAD;
+
+  static {
+    MethodHandle startVirtualThread = null;
+    try {
+      startVirtualThread = MethodHandles.publicLookup()
+        .findStatic(Thread.class, "startVirtualThread",
+          MethodType.methodType(Thread.class, Runnable.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+    }
+    START_VIRTUAL_THREAD = startVirtualThread;
+  }
+
+  /**
+   * Check if a virtual thread waiting in a synchronized block or {@link Object#wait()} pins its
+   * carrier thread. The pinning was removed in Java 24.
+   *
+   * @return True if monitors pin the carrier thread.
+   */
+  public static boolean isPinnedByMonitors() {
+    return Runtime.version().feature() < 24;
+  }
+
+  public static boolean isSupported() {
+    return START_VIRTUAL_THREAD != null;
+  }
+
+  public VirtualThreadProcessScheduler() {
+    if (!isSupported()) {
+      throw new IllegalStateException("Virtual threads are not supported by Java "
+        + System.getProperty("java.version"));
+    }
+  }
+
+  @Override
+  public void execute(final ProcessNetwork processNetwork, final ProcessTask task) {
+    try {
+      START_VIRTUAL_THREAD.invoke(task);
+    } catch (final Throwable e) {
+      throw Exceptions.wrap("Unable to start virtual thread for " + task, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "virtual";
+  }
+}
@@ -0,0 +1,501 @@
+package com.revolsys.raster.tile;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.raster.BufferedImages;
+import com.revolsys.util.OS;
+
+/**
+ * A two level cache for the tile images of tiled map layers (e.g. Bing, OpenStreetMap, ArcGIS
+ * REST and web mercator tile caches). The first level is an in-memory LRU cache of the decoded
+ * images limited by the size of the decoded pixels. The second level is an on disk store of the
+ * encoded image bytes, as returned by the server, in the layerKey/zoomLevel/tileX/tileY layout.
+ * The disk store is limited by size, when it is full the least recently used tiles are deleted.
+ * <p>
+ * The tiles not in either level are read from the {@link TileSource}. Concurrent requests for the
+ * same tile wait for the first request to load it so a tile is only read once. The cache is
+ * thread safe and can be shared by multiple layers, the layer key must uniquely identify the
+ * tiles for a layer (e.g. the server URL).
+ * </p>
+ */
+public class TileCache {
+  private static TileCache defaultCache;
+
+  /**
+   * Get the default tile cache. The tiles are stored in the "com.revolsys.gis/Tile Cache"
+   * application data directory.
+   *
+   * @return The tile cache.
+   */
+  public static synchronized TileCache getDefault() {
+    if (defaultCache == null) {
+      final File directory = OS.getApplicationDataDirectory("com.revolsys.gis/Tile Cache");
+      final long maxMemorySize = Math.min(256L * 1024 * 1024,
+        Runtime.getRuntime().maxMemory() / 8);
+      defaultCache = new TileCache(directory.toPath(), maxMemorySize, 1024L * 1024 * 1024);
+    }
+    return defaultCache;
+  }
+
+  private static long getImageSize(final BufferedImage image) {
+    final DataBuffer dataBuffer = image.getRaster().getDataBuffer();
+    final int dataTypeSize = DataBuffer.getDataTypeSize(dataBuffer.getDataType());
+    return (long)dataBuffer.getSize() * dataBuffer.getNumBanks() * dataTypeSize / 8;
+  }
+
+  public static synchronized void setDefault(final TileCache tileCache) {
+    defaultCache = tileCache;
+  }
+
+  private static String toDirectoryName(final String layerKey) {
+    String name = layerKey.replaceAll("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9._-]+", "_");
+    if (name.length() > 64) {
+      name = name.substring(0, 64);
+    }
+    return name + "_" + Integer.toHexString(layerKey.hashCode());
+  }
+
+  private final Path directory;
+
+  private final ReentrantLock diskEvictLock = new ReentrantLock();
+
+  private final LongAdder diskHitCount = new LongAdder();
+
+  /** The size of the files in the directory, -1 if it hasn't been calculated. */
+  private final AtomicLong diskSize = new AtomicLong(-1);
+
+  private final Map<String, BufferedImage> images = new LinkedHashMap<>(256, 0.75f, true);
+
+  private final Map<String, CompletableFuture<BufferedImage>> loading = new ConcurrentHashMap<>();
+
+  private final LongAdder loadWaitCount = new LongAdder();
+
+  private volatile long maxDiskSize;
+
+  private volatile long maxMemorySize;
+
+  private final LongAdder memoryHitCount = new LongAdder();
+
+  private long memorySize;
+
+  private final LongAdder missCount = new LongAdder();
+
+  /**
+   * Construct a tile cache that only caches the images in memory.
+   *
+   * @param maxMemorySize The maximum size in bytes of the decoded images in memory.
+   */
+  public TileCache(final long maxMemorySize) {
+    this(null, maxMemorySize, 0);
+  }
+
+  /**
+   * @param directory The directory to store the tiles in, null to only cache in memory.
+   * @param maxMemorySize The maximum size in bytes of the decoded images in memory.
+   * @param maxDiskSize The maximum size in bytes of the tiles stored in the directory.
+   */
+  public TileCache(final Path directory, final long maxMemorySize, final long maxDiskSize) {
+    this.directory = directory;
+    this.maxMemorySize = maxMemorySize;
+    this.maxDiskSize = maxDiskSize;
+  }
+
+  private void addImage(final String key, final BufferedImage image) {
+    final long imageSize = getImageSize(image);
+    if (imageSize <= this.maxMemorySize) {
+      synchronized (this.images) {
+        final BufferedImage oldImage = this.images.put(key, image);
+        if (oldImage != null) {
+          this.memorySize -= getImageSize(oldImage);
+        }
+        this.memorySize += imageSize;
+        evictMemory();
+      }
+    }
+  }
+
+  private long calculateDiskSize() {
+    if (Files.isDirectory(this.directory)) {
+      try (
+        Stream<Path> paths = Files.walk(this.directory)) {
+        return paths.filter(Files::isRegularFile).mapToLong(path -> {
+          try {
+            return Files.size(path);
+          } catch (final IOException e) {
+            return 0;
+          }
+        }).sum();
+      } catch (final IOException e) {
+        Logs.debug(this, "Unable to calculate size of: " + this.directory, e);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Delete all the tiles from the disk store.
+   */
+  public void clearDisk() {
+    if (this.directory != null) {
+      this.diskEvictLock.lock();
+      try {
+        for (final Path file : getFiles()) {
+          deleteFile(file);
+        }
+        this.diskSize.set(calculateDiskSize());
+      } finally {
+        this.diskEvictLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Remove all the decoded images from memory.
+   */
+  public void clearMemory() {
+    synchronized (this.images) {
+      this.images.clear();
+      this.memorySize = 0;
+    }
+  }
+
+  private BufferedImage decodeImage(final byte[] bytes) {
+    try {
+      return BufferedImages.readImageIo(new ByteArrayInputStream(bytes));
+    } catch (final RuntimeException e) {
+      return null;
+    }
+  }
+
+  private void deleteFile(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (final IOException e) {
+      Logs.debug(this, "Unable to delete: " + file, e);
+    }
+  }
+
+  private void evictDisk() {
+    if (this.diskSize.get() > this.maxDiskSize && this.diskEvictLock.tryLock()) {
+      try {
+        final List<Path> files = getFiles();
+        final Map<Path, FileTime> lastModifiedTimes = new LinkedHashMap<>();
+        for (final Path file : files) {
+          try {
+            final BasicFileAttributes attributes = Files.readAttributes(file,
+              BasicFileAttributes.class);
+            lastModifiedTimes.put(file, attributes.lastModifiedTime());
+          } catch (final IOException e) {
+          }
+        }
+        files.removeIf(file -> !lastModifiedTimes.containsKey(file));
+        files.sort(Comparator.comparing(lastModifiedTimes::get));
+
+        // Delete down to 90% so the eviction isn't run for every tile written
+        final long targetSize = this.maxDiskSize / 10 * 9;
+        for (final Path file : files) {
+          if (this.diskSize.get() <= targetSize) {
+            break;
+          }
+          try {
+            final long fileSize = Files.size(file);
+            Files.delete(file);
+            this.diskSize.addAndGet(-fileSize);
+          } catch (final IOException e) {
+          }
+        }
+      } finally {
+        this.diskEvictLock.unlock();
+      }
+    }
+  }
+
+  private void evictMemory() {
+    final Iterator<BufferedImage> iterator = this.images.values().iterator();
+    while (this.memorySize > this.maxMemorySize && iterator.hasNext()) {
+      final BufferedImage image = iterator.next();
+      iterator.remove();
+      this.memorySize -= getImageSize(image);
+    }
+  }
+
+  public Path getDirectory() {
+    return this.directory;
+  }
+
+  public long getDiskHitCount() {
+    return this.diskHitCount.sum();
+  }
+
+  /**
+   * @return The size in bytes of the tiles in the disk store.
+   */
+  public long getDiskSize() {
+    return getOrCalculateDiskSize();
+  }
+
+  private Path getFile(final String layerKey, final int zoomLevel, final int tileX,
+    final int tileY) {
+    if (this.directory == null) {
+      return null;
+    } else {
+      return this.directory.resolve(toDirectoryName(layerKey))
+        .resolve(Integer.toString(zoomLevel))
+        .resolve(Integer.toString(tileX))
+        .resolve(tileY + ".tile");
+    }
+  }
+
+  private List<Path> getFiles() {
+    final List<Path> files = new ArrayList<>();
+    if (Files.isDirectory(this.directory)) {
+      try (
+        Stream<Path> paths = Files.walk(this.directory)) {
+        paths.filter(Files::isRegularFile).forEach(files::add);
+      } catch (final IOException e) {
+        Logs.debug(this, "Unable to list: " + this.directory, e);
+      }
+    }
+    return files;
+  }
+
+  /**
+   * @return The ratio of requests that were found in memory or on disk. Requests that waited for
+   *         another request to load the tile are not hits.
+   */
+  public double getHitRate() {
+    final long requestCount = getRequestCount();
+    if (requestCount == 0) {
+      return 0;
+    } else {
+      return (getMemoryHitCount() + getDiskHitCount()) / (double)requestCount;
+    }
+  }
+
+  /**
+   * Get the image for a tile, loading it from the disk store or the source if it isn't in
+   * memory.
+   *
+   * @param layerKey The key that uniquely identifies the layer's tiles.
+   * @param zoomLevel The zoom level.
+   * @param tileX The tile x index.
+   * @param tileY The tile y index.
+   * @param source The source to read the tile from if it isn't cached.
+   * @return The image or null if the tile does not exist.
+   */
+  public BufferedImage getImage(final String layerKey, final int zoomLevel, final int tileX,
+    final int tileY, final TileSource source) {
+    final String key = layerKey + "/" + zoomLevel + "/" + tileX + "/" + tileY;
+    synchronized (this.images) {
+      final BufferedImage image = this.images.get(key);
+      if (image != null) {
+        this.memoryHitCount.increment();
+        return image;
+      }
+    }
+    final CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+    final CompletableFuture<BufferedImage> loadingFuture = this.loading.putIfAbsent(key, future);
+    if (loadingFuture == null) {
+      try {
+        final BufferedImage image = loadImage(key, layerKey, zoomLevel, tileX, tileY, source);
+        future.complete(image);
+        return image;
+      } catch (RuntimeException | Error e) {
+        future.completeExceptionally(e);
+        throw e;
+      } finally {
+        this.loading.remove(key, future);
+      }
+    } else {
+      this.loadWaitCount.increment();
+      try {
+        return loadingFuture.join();
+      } catch (final CompletionException e) {
+        throw Exceptions.wrap(e.getCause());
+      }
+    }
+  }
+
+  /**
+   * @return The number of requests that waited for another request to load the same tile.
+   */
+  public long getLoadWaitCount() {
+    return this.loadWaitCount.sum();
+  }
+
+  public long getMaxDiskSize() {
+    return this.maxDiskSize;
+  }
+
+  public long getMaxMemorySize() {
+    return this.maxMemorySize;
+  }
+
+  public long getMemoryHitCount() {
+    return this.memoryHitCount.sum();
+  }
+
+  /**
+   * @return The size in bytes of the decoded images in memory.
+   */
+  public long getMemorySize() {
+    synchronized (this.images) {
+      return this.memorySize;
+    }
+  }
+
+  /**
+   * @return The number of requests that were read from the source.
+   */
+  public long getMissCount() {
+    return this.missCount.sum();
+  }
+
+  private long getOrCalculateDiskSize() {
+    if (this.directory == null) {
+      return 0;
+    } else {
+      long diskSize = this.diskSize.get();
+      if (diskSize < 0) {
+        diskSize = calculateDiskSize();
+        if (!this.diskSize.compareAndSet(-1, diskSize)) {
+          diskSize = this.diskSize.get();
+        }
+      }
+      return diskSize;
+    }
+  }
+
+  public long getRequestCount() {
+    return getMemoryHitCount() + getDiskHitCount() + getLoadWaitCount() + getMissCount();
+  }
+
+  private BufferedImage loadImage(final String key, final String layerKey, final int zoomLevel,
+    final int tileX, final int tileY, final TileSource source) {
+    final Path file = getFile(layerKey, zoomLevel, tileX, tileY);
+    if (file != null) {
+      final byte[] bytes = readFile(file);
+      if (bytes != null) {
+        final BufferedImage image = decodeImage(bytes);
+        if (image == null) {
+          getOrCalculateDiskSize();
+          deleteFile(file);
+          this.diskSize.addAndGet(-bytes.length);
+        } else {
+          this.diskHitCount.increment();
+          touchFile(file);
+          addImage(key, image);
+          return image;
+        }
+      }
+    }
+    this.missCount.increment();
+    final byte[] bytes = source.getTileBytes(zoomLevel, tileX, tileY);
+    if (bytes == null) {
+      return null;
+    } else {
+      final BufferedImage image = decodeImage(bytes);
+      if (image != null) {
+        if (file != null) {
+          writeFile(file, bytes);
+        }
+        addImage(key, image);
+      }
+      return image;
+    }
+  }
+
+  private byte[] readFile(final Path file) {
+    try {
+      return Files.readAllBytes(file);
+    } catch (final NoSuchFileException e) {
+      return null;
+    } catch (final IOException e) {
+      Logs.debug(this, "Unable to read: " + file, e);
+      return null;
+    }
+  }
+
+  public void setMaxDiskSize(final long maxDiskSize) {
+    this.maxDiskSize = maxDiskSize;
+    evictDisk();
+  }
+
+  public void setMaxMemorySize(final long maxMemorySize) {
+    this.maxMemorySize = maxMemorySize;
+    synchronized (this.images) {
+      evictMemory();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "memoryHits=" + getMemoryHitCount() + ", diskHits=" + getDiskHitCount()
+      + ", loadWaits=" + getLoadWaitCount() + ", misses=" + getMissCount() + ", hitRate="
+      + Math.round(getHitRate() * 100) + "%, memorySize=" + getMemorySize() + ", diskSize="
+      + getDiskSize();
+  }
+
+  private void touchFile(final Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (final IOException e) {
+    }
+  }
+
+  private void writeFile(final Path file, final byte[] bytes) {
+    final Path directory = file.getParent();
+    Path tempFile = null;
+    try {
+      Files.createDirectories(directory);
+      // Calculate the size before writing so the new file isn't counted twice
+      getOrCalculateDiskSize();
+      tempFile = Files.createTempFile(directory, "tile", ".tmp");
+      Files.write(tempFile, bytes);
+      long oldSize = 0;
+      try {
+        oldSize = Files.size(file);
+      } catch (final NoSuchFileException e) {
+        // New tile
+      }
+      // Move so other processes sharing the directory never read a partial tile
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+      tempFile = null;
+      this.diskSize.addAndGet(bytes.length - oldSize);
+      evictDisk();
+    } catch (final IOException e) {
+      Logs.debug(this, "Unable to write: " + file, e);
+    } finally {
+      if (tempFile != null) {
+        deleteFile(tempFile);
+      }
+    }
+  }
+}
@@ -0,0 +1,77 @@
+package com.revolsys.raster.tile;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.exception.WrappedException;
+
+import com.revolsys.spring.resource.Resource;
+
+/**
+ * The source of the encoded image (e.g. PNG or JPEG) bytes for the tiles of a tiled map layer.
+ * Tile sources are wrapped by a {@link TileCache} so each tile is only read once.
+ */
+@FunctionalInterface
+public interface TileSource {
+  /**
+   * Construct an offline tile source that reads the tiles from a directory with the
+   * zoomLevel/tileX/tileY.extension layout used by the web mercator tile caches.
+   *
+   * @param directory The directory.
+   * @param fileExtension The file extension of the tile images (e.g. png).
+   * @return The tile source.
+   */
+  static TileSource directory(final Path directory, final String fileExtension) {
+    return (zoomLevel, tileX, tileY) -> {
+      final Path file = directory.resolve(Integer.toString(zoomLevel))
+        .resolve(Integer.toString(tileX))
+        .resolve(tileY + "." + fileExtension);
+      try {
+        return Files.readAllBytes(file);
+      } catch (final NoSuchFileException e) {
+        return null;
+      } catch (final IOException e) {
+        throw Exceptions.wrap("Unable to read tile: " + file, e);
+      }
+    };
+  }
+
+  /**
+   * Read the bytes from the URL.
+   *
+   * @param url The URL.
+   * @return The bytes or null if the URL was not found.
+   */
+  static byte[] readUrl(final String url) {
+    final Resource resource = Resource.getResource(url);
+    try (
+      InputStream in = resource.getInputStream()) {
+      return in.readAllBytes();
+    } catch (final FileNotFoundException e) {
+      return null;
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read: " + url, e);
+    } catch (final WrappedException e) {
+      if (Exceptions.isException(e, FileNotFoundException.class)) {
+        return null;
+      } else {
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Get the encoded image bytes for a tile.
+   *
+   * @param zoomLevel The zoom level.
+   * @param tileX The tile x index.
+   * @param tileY The tile y index.
+   * @return The bytes or null if the tile does not exist.
+   */
+  byte[] getTileBytes(int zoomLevel, int tileX, int tileY);
+}
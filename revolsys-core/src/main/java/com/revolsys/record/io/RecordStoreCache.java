@@ -1,58 +1,567 @@
 package com.revolsys.record.io;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
 import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordStore;
+import com.revolsys.util.Cancellable;
 
+/**
+ * A cache of the records in a record store type, loaded in the background by bounding box.
+ * <p>
+ * The loaded area is tracked as a grid of square tiles in the record definition's coordinate
+ * system. A request for a bounding box only queries the record store for the rows of tiles that
+ * haven't been loaded, so panning a map issues small queries for the newly visible area. A record
+ * that overlaps more than one tile is only stored once, using the record's identifier. Records
+ * without a geometry that are returned by a query are included in all the tiles of that query.
+ * </p>
+ * <p>
+ * When the cache has more than the maximum number of records or the estimated size of the
+ * records is more than the maximum size, the least recently used tiles and the records that are
+ * only in those tiles are removed. The queries are run on the executor passed to the
+ * constructor, which is owned by the caller.
+ * </p>
+ */
 public class RecordStoreCache {
-  public static RecordStoreCache getCache(final RecordStore recordStore) {
-    return new RecordStoreCache(recordStore);
+  private static class CachedRecord {
+    private final Record record;
+
+    private final long size;
+
+    private int tileCount;
+
+    public CachedRecord(final Record record, final long size) {
+      this.record = record;
+      this.size = size;
+    }
+  }
+
+  private class TileLoad implements Runnable {
+    private final BoundingBox boundingBox;
+
+    private final Cancellable cancellable;
+
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private final int maxTileX;
+
+    private final int minTileX;
+
+    private final RecordDefinition recordDefinition;
+
+    private final int tileY;
+
+    private TileLoad(final RecordDefinition recordDefinition, final Cancellable cancellable,
+      final int minTileX, final int maxTileX, final int tileY) {
+      this.recordDefinition = recordDefinition;
+      this.cancellable = cancellable;
+      this.minTileX = minTileX;
+      this.maxTileX = maxTileX;
+      this.tileY = tileY;
+      final double tileSize = RecordStoreCache.this.tileSize;
+      this.boundingBox = recordDefinition.getGeometryFactory()
+        .newBoundingBox(minTileX * tileSize, tileY * tileSize, (maxTileX + 1) * tileSize,
+          (tileY + 1) * tileSize);
+    }
+
+    private void failed(final Throwable e) {
+      synchronized (RecordStoreCache.this) {
+        for (int tileX = this.minTileX; tileX <= this.maxTileX; tileX++) {
+          RecordStoreCache.this.loadingTiles.remove(getTileKey(tileX, this.tileY), this.future);
+        }
+      }
+      this.future.completeExceptionally(e);
+    }
+
+    @Override
+    public void run() {
+      try {
+        final List<Record> records = new ArrayList<>();
+        final Query query = newQuery(this.recordDefinition, this.boundingBox);
+        if (query != null) {
+          if (this.cancellable != null) {
+            query.setCancellable(this.cancellable);
+          }
+          try (
+            RecordReader reader = RecordStoreCache.this.recordStore.getRecords(query)) {
+            for (final Record record : reader) {
+              records.add(record);
+            }
+          }
+          // Don't mark the tiles as loaded if the query stopped early
+          if (query.isCancelled()) {
+            throw new CancellationException();
+          }
+        }
+        addRecords(this.future, this.minTileX, this.maxTileX, this.tileY, records);
+        this.future.complete(null);
+      } catch (final Throwable e) {
+        failed(e);
+      }
+    }
+  }
+
+  public static RecordStoreCache getCache(final RecordStore recordStore,
+    final Executor executor) {
+    return new RecordStoreCache(recordStore, executor);
+  }
+
+  public static RecordStoreCache getCache(final RecordStore recordStore, final String typePath,
+    final Executor executor) {
+    return new RecordStoreCache(recordStore, typePath, executor);
+  }
+
+  private static long getRecordSize(final Record record) {
+    long size = 64 + record.getRecordDefinition().getFieldCount() * 16L;
+    final Geometry geometry = record.getGeometry();
+    if (geometry != null) {
+      size += (long)geometry.getVertexCount() * geometry.getAxisCount() * 8;
+    }
+    return size;
   }
 
-  private final Map<BoundingBox, List> cachedObejcts = Collections
-    .synchronizedMap(new HashMap<BoundingBox, List>());
+  private static long getTileKey(final int tileX, final int tileY) {
+    return (long)tileX << 32 | tileY & 0xFFFFFFFFL;
+  }
+
+  private static boolean hasGeometry(final Record record) {
+    final Geometry geometry = record.getGeometry();
+    return geometry != null && !geometry.isEmpty();
+  }
+
+  private final Executor executor;
+
+  private final Map<Long, CompletableFuture<Void>> loadingTiles = new HashMap<>();
+
+  private int maxRecordCount = 100000;
+
+  private long maxSize = 64 * 1024 * 1024;
 
-  private final Map<BoundingBox, RecordStoreQueryTask> loadTasks = new LinkedHashMap<>();
+  private Function<BoundingBox, Query> queryFactory;
+
+  private RecordDefinition recordDefinition;
+
+  /** The records by identifier, or the record itself if it doesn't have an identifier. */
+  private final Map<Object, CachedRecord> records = new HashMap<>();
 
   private final RecordStore recordStore;
 
+  private long size;
+
+  /** The loaded tiles, in least recently used order, with the keys of the records in the tile. */
+  private final Map<Long, Set<Object>> tiles = new LinkedHashMap<>(16, 0.75f, true);
+
+  private double tileSize;
+
   private String typePath;
 
-  public RecordStoreCache(final RecordStore recordStore) {
+  public RecordStoreCache(final RecordStore recordStore, final Executor executor) {
     this.recordStore = recordStore;
+    this.executor = executor;
+  }
+
+  /**
+   * Construct a cache for a record definition that may not be the one the record store returns
+   * for the type path, for example one with a different geometry factory.
+   *
+   * @param recordStore The record store to query.
+   * @param recordDefinition The record definition used for the queries and the tile grid.
+   * @param executor The executor the queries are run on.
+   */
+  public RecordStoreCache(final RecordStore recordStore, final RecordDefinition recordDefinition,
+    final Executor executor) {
+    this(recordStore, recordDefinition.getPath(), executor);
+    this.recordDefinition = recordDefinition;
+    initTileSize();
+  }
+
+  public RecordStoreCache(final RecordStore recordStore, final String typePath,
+    final Executor executor) {
+    this(recordStore, executor);
+    this.typePath = typePath;
+  }
+
+  private synchronized void addRecords(final CompletableFuture<Void> future, final int minTileX,
+    final int maxTileX, final int tileY, final List<Record> records) {
+    // Only add the tiles still being loaded by this query, they may have been removed since
+    final List<Set<Object>> tileRecordKeys = new ArrayList<>();
+    for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+      final long tileKey = getTileKey(tileX, tileY);
+      if (this.loadingTiles.remove(tileKey, future)) {
+        final Set<Object> recordKeys = new HashSet<>();
+        this.tiles.put(tileKey, recordKeys);
+        tileRecordKeys.add(recordKeys);
+      } else {
+        tileRecordKeys.add(null);
+      }
+    }
+    for (final Record record : records) {
+      int recordMinTileX = minTileX;
+      int recordMaxTileX = maxTileX;
+      if (hasGeometry(record)) {
+        final BoundingBox boundingBox = record.getGeometry().getBoundingBox();
+        recordMinTileX = Math.max(minTileX, getTileIndex(boundingBox.getMinX()));
+        recordMaxTileX = Math.min(maxTileX, getTileIndex(boundingBox.getMaxX()));
+      }
+      Object recordKey = record.getIdentifier();
+      if (recordKey == null) {
+        recordKey = record;
+      }
+      for (int tileX = recordMinTileX; tileX <= recordMaxTileX; tileX++) {
+        final Set<Object> recordKeys = tileRecordKeys.get(tileX - minTileX);
+        if (recordKeys != null && recordKeys.add(recordKey)) {
+          CachedRecord cachedRecord = this.records.get(recordKey);
+          if (cachedRecord == null) {
+            cachedRecord = new CachedRecord(record, getRecordSize(record));
+            this.records.put(recordKey, cachedRecord);
+            this.size += cachedRecord.size;
+          }
+          cachedRecord.tileCount++;
+        }
+      }
+    }
+    evict();
+  }
+
+  /**
+   * Remove all the records from the cache and stop adding the records from running queries.
+   */
+  public synchronized void clear() {
+    this.loadingTiles.clear();
+    this.tiles.clear();
+    this.records.clear();
+    this.size = 0;
+  }
+
+  private void evict() {
+    final Iterator<Set<Object>> iterator = this.tiles.values().iterator();
+    while ((this.records.size() > this.maxRecordCount || this.size > this.maxSize)
+      && this.tiles.size() > 1 && iterator.hasNext()) {
+      final Set<Object> recordKeys = iterator.next();
+      iterator.remove();
+      removeRecords(recordKeys);
+    }
   }
 
-  private void addBoundingBox(final BoundingBox boundingBox) {
-    synchronized (this.loadTasks) {
-      if (!this.loadTasks.containsKey(boundingBox)) {
-        this.loadTasks.put(boundingBox,
-          new RecordStoreQueryTask(this.recordStore, this.typePath, boundingBox));
+  private BoundingBox getCacheBoundingBox(final RecordDefinition recordDefinition,
+    final BoundingBox boundingBox) {
+    if (recordDefinition == null || boundingBox == null || boundingBox.isEmpty()) {
+      return null;
+    } else {
+      final BoundingBox cacheBoundingBox = boundingBox.bboxToCs(recordDefinition);
+      if (cacheBoundingBox.isEmpty()) {
+        return null;
+      } else {
+        return cacheBoundingBox;
       }
     }
   }
 
+  /**
+   * Get the records in the bounding box that have been loaded, without loading the missing
+   * tiles.
+   *
+   * @param boundingBox The bounding box.
+   * @return The records.
+   */
+  public List<Record> getCachedRecords(final BoundingBox boundingBox) {
+    final RecordDefinition recordDefinition = getRecordDefinition();
+    final BoundingBox cacheBoundingBox = getCacheBoundingBox(recordDefinition, boundingBox);
+    if (cacheBoundingBox == null) {
+      return Collections.emptyList();
+    } else {
+      final List<Record> records = new ArrayList<>();
+      synchronized (this) {
+        final int minTileX = getTileIndex(cacheBoundingBox.getMinX());
+        final int minTileY = getTileIndex(cacheBoundingBox.getMinY());
+        final int maxTileX = getTileIndex(cacheBoundingBox.getMaxX());
+        final int maxTileY = getTileIndex(cacheBoundingBox.getMaxY());
+        final Set<Object> recordKeys = new LinkedHashSet<>();
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+          for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            final Set<Object> tileRecordKeys = this.tiles.get(getTileKey(tileX, tileY));
+            if (tileRecordKeys != null) {
+              recordKeys.addAll(tileRecordKeys);
+            }
+          }
+        }
+        for (final Object recordKey : recordKeys) {
+          final Record record = this.records.get(recordKey).record;
+          if (!hasGeometry(record)
+            || cacheBoundingBox.bboxIntersects(record.getGeometry().getBoundingBox())) {
+            records.add(record);
+          }
+        }
+      }
+      return records;
+    }
+  }
+
+  public int getMaxRecordCount() {
+    return this.maxRecordCount;
+  }
+
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  /**
+   * Get the records in the bounding box if all of the bounding box has been loaded. Otherwise
+   * start loading the missing tiles in the background and return null. Null is also returned if
+   * there isn't a record definition for the type path.
+   *
+   * @param boundingBox The bounding box.
+   * @return The records or null if they haven't been loaded.
+   */
+  @SuppressWarnings("rawtypes")
   public List getObjects(final BoundingBox boundingBox) {
-    final List objects = this.cachedObejcts.get(boundingBox);
-    if (objects == null) {
-      addBoundingBox(boundingBox);
+    if (getRecordDefinition() == null) {
+      return null;
+    } else {
+      return getRecords(boundingBox).getNow(null);
+    }
+  }
+
+  public synchronized int getRecordCount() {
+    return this.records.size();
+  }
+
+  public synchronized RecordDefinition getRecordDefinition() {
+    if (this.recordDefinition == null && this.typePath != null) {
+      this.recordDefinition = this.recordStore.getRecordDefinition(this.typePath);
+      initTileSize();
+    }
+    return this.recordDefinition;
+  }
+
+  /**
+   * Get the records in the bounding box, loading the tiles that haven't been loaded in the
+   * background. Only the rows of tiles that aren't loaded or being loaded by another request are
+   * queried.
+   *
+   * @param boundingBox The bounding box.
+   * @return The future that completes when all the tiles are loaded. The future completes with
+   *         an {@link IllegalStateException} if there isn't a record definition for the type
+   *         path.
+   */
+  public CompletableFuture<List<Record>> getRecords(final BoundingBox boundingBox) {
+    return getRecords(boundingBox, null);
+  }
+
+  /**
+   * Get the records in the bounding box, loading the tiles that haven't been loaded in the
+   * background. The queries started by this request stop when the cancellable is cancelled and
+   * the future completes with a {@link CancellationException}. The future also completes with a
+   * {@link CancellationException} if another request that was loading some of the tiles is
+   * cancelled, those tiles are no longer loading so calling this method again loads them.
+   *
+   * @param boundingBox The bounding box.
+   * @param cancellable The cancellable for the queries started by this request, or null.
+   * @return The future that completes when all the tiles are loaded.
+   */
+  public CompletableFuture<List<Record>> getRecords(final BoundingBox boundingBox,
+    final Cancellable cancellable) {
+    final RecordDefinition recordDefinition = getRecordDefinition();
+    if (recordDefinition == null) {
+      return CompletableFuture.failedFuture(
+        new IllegalStateException("No record definition for typePath=" + this.typePath));
+    }
+    final BoundingBox cacheBoundingBox = getCacheBoundingBox(recordDefinition, boundingBox);
+    if (cacheBoundingBox == null) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    } else {
+      final Set<CompletableFuture<Void>> futures = new LinkedHashSet<>();
+      final List<TileLoad> loads = new ArrayList<>();
+      synchronized (this) {
+        final int minTileX = getTileIndex(cacheBoundingBox.getMinX());
+        final int minTileY = getTileIndex(cacheBoundingBox.getMinY());
+        final int maxTileX = getTileIndex(cacheBoundingBox.getMaxX());
+        final int maxTileY = getTileIndex(cacheBoundingBox.getMaxY());
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+          int firstMissingTileX = Integer.MIN_VALUE;
+          for (int tileX = minTileX; tileX <= maxTileX + 1; tileX++) {
+            boolean missing = false;
+            if (tileX <= maxTileX) {
+              final long tileKey = getTileKey(tileX, tileY);
+              final CompletableFuture<Void> loadingFuture = this.loadingTiles.get(tileKey);
+              if (loadingFuture != null) {
+                futures.add(loadingFuture);
+              } else if (!this.tiles.containsKey(tileKey)) {
+                missing = true;
+              }
+            }
+            if (missing) {
+              if (firstMissingTileX == Integer.MIN_VALUE) {
+                firstMissingTileX = tileX;
+              }
+            } else if (firstMissingTileX != Integer.MIN_VALUE) {
+              final TileLoad load = new TileLoad(recordDefinition, cancellable, firstMissingTileX,
+                tileX - 1, tileY);
+              for (int loadTileX = firstMissingTileX; loadTileX < tileX; loadTileX++) {
+                this.loadingTiles.put(getTileKey(loadTileX, tileY), load.future);
+              }
+              futures.add(load.future);
+              loads.add(load);
+              firstMissingTileX = Integer.MIN_VALUE;
+            }
+          }
+        }
+      }
+      // Start the queries outside the lock, the executor may run them on this thread
+      for (final TileLoad load : loads) {
+        try {
+          this.executor.execute(load);
+        } catch (final RejectedExecutionException e) {
+          load.failed(e);
+        }
+      }
+      return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
+        .thenApply(v -> getCachedRecords(boundingBox));
+    }
+  }
+
+  public synchronized long getSize() {
+    return this.size;
+  }
+
+  private int getTileIndex(final double coordinate) {
+    return (int)Math.floor(coordinate / this.tileSize);
+  }
+
+  public synchronized double getTileSize() {
+    return this.tileSize;
+  }
+
+  public String getTypePath() {
+    return this.typePath;
+  }
+
+  private void initTileSize() {
+    if (this.recordDefinition != null && this.tileSize <= 0) {
+      final GeometryFactory geometryFactory = this.recordDefinition.getGeometryFactory();
+      if (geometryFactory.isProjected()) {
+        this.tileSize = 1000;
+      } else {
+        this.tileSize = 0.01;
+      }
+    }
+  }
+
+  private Query newQuery(final RecordDefinition recordDefinition,
+    final BoundingBox boundingBox) {
+    final Function<BoundingBox, Query> queryFactory = this.queryFactory;
+    if (queryFactory == null) {
+      return Query.intersects(recordDefinition, boundingBox);
+    } else {
+      return queryFactory.apply(boundingBox);
     }
-    return objects;
   }
 
+  private void removeRecords(final Set<Object> recordKeys) {
+    for (final Object recordKey : recordKeys) {
+      final CachedRecord cachedRecord = this.records.get(recordKey);
+      if (--cachedRecord.tileCount == 0) {
+        this.records.remove(recordKey);
+        this.size -= cachedRecord.size;
+      }
+    }
+  }
+
+  /**
+   * Remove the tiles that intersect the bounding box and the records that are only in those
+   * tiles. Running queries for those tiles are ignored.
+   *
+   * @param boundingBox The bounding box.
+   */
   public void removeObjects(final BoundingBox boundingBox) {
-    synchronized (this.loadTasks) {
-      final RecordStoreQueryTask task = this.loadTasks.get(boundingBox);
-      if (task != null) {
-        task.cancel();
-        this.loadTasks.remove(task);
+    final BoundingBox cacheBoundingBox = getCacheBoundingBox(getRecordDefinition(), boundingBox);
+    if (cacheBoundingBox != null) {
+      synchronized (this) {
+        final int minTileX = getTileIndex(cacheBoundingBox.getMinX());
+        final int minTileY = getTileIndex(cacheBoundingBox.getMinY());
+        final int maxTileX = getTileIndex(cacheBoundingBox.getMaxX());
+        final int maxTileY = getTileIndex(cacheBoundingBox.getMaxY());
+        for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+          for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            final long tileKey = getTileKey(tileX, tileY);
+            this.loadingTiles.remove(tileKey);
+            final Set<Object> recordKeys = this.tiles.remove(tileKey);
+            if (recordKeys != null) {
+              removeRecords(recordKeys);
+            }
+          }
+        }
       }
     }
-    this.cachedObejcts.remove(boundingBox);
   }
 
+  public synchronized void setMaxRecordCount(final int maxRecordCount) {
+    this.maxRecordCount = maxRecordCount;
+    evict();
+  }
+
+  public synchronized void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  /**
+   * Set the function used to construct the query for the records in a bounding box, in the
+   * record definition's coordinate system. The default is {@link Query#intersects(RecordDefinition,
+   * BoundingBox)}. The query can set a record factory, filter or {@link Query#setCancellable}, the
+   * cancellable passed to {@link #getRecords(BoundingBox, Cancellable)} replaces the query's.
+   * If the query is cancelled the tiles aren't marked as loaded. Changing the query factory
+   * clears the cache.
+   *
+   * @param queryFactory The query factory.
+   */
+  public synchronized void setQueryFactory(final Function<BoundingBox, Query> queryFactory) {
+    this.queryFactory = queryFactory;
+    clear();
+  }
+
+  /**
+   * Set the size of the tiles in the units of the record definition's coordinate system. The
+   * default is 1000 for projected and 0.01 for geographic coordinate systems. Changing the tile
+   * size clears the cache.
+   *
+   * @param tileSize The tile size.
+   */
+  public synchronized void setTileSize(final double tileSize) {
+    if (tileSize <= 0) {
+      throw new IllegalArgumentException("tileSize must be > 0: " + tileSize);
+    }
+    this.tileSize = tileSize;
+    clear();
+  }
+
+  public synchronized void setTypePath(final String typePath) {
+    this.typePath = typePath;
+    this.recordDefinition = null;
+    clear();
+  }
+
+  @Override
+  public String toString() {
+    return this.typePath + " records=" + getRecordCount() + " size=" + getSize();
+  }
 }
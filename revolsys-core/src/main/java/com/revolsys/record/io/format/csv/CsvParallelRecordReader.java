@@ -0,0 +1,734 @@
+package com.revolsys.record.io.format.csv;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.exception.Exceptions;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.impl.PointDoubleXYZGeometryFactory;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.AbstractRecordReader;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.spring.resource.Resource;
+import com.revolsys.util.DoubleParser;
+import com.revolsys.util.Property;
+
+/**
+ * A CSV record reader for large files that splits the file into blocks of bytes that end on a
+ * new line and parses the blocks in parallel. The records are returned in the order they are in
+ * the file.
+ * <p>
+ * The UTF-8 bytes are parsed directly. The values for DOUBLE, FLOAT, LONG, INT, SHORT and BYTE
+ * fields are decoded from the bytes without creating a String. If the pointXFieldName,
+ * pointYFieldName (and optionally pointZFieldName) properties are set the point geometry is
+ * created directly from the decoded coordinates.
+ * </p>
+ * <p>
+ * Blocks can only be parsed in parallel if the quoted values don't contain new lines. If a
+ * record is found that crosses the end of a block, the rest of the file is parsed sequentially.
+ * Only '\n' and "\r\n" line endings are supported.
+ * </p>
+ * <p>
+ * The thread pool is shut down when the last block has been submitted, the rest of the file is
+ * parsed sequentially or the reader is closed.
+ * </p>
+ */
+public class CsvParallelRecordReader extends AbstractRecordReader {
+  private static class Block {
+    private final long end;
+
+    private final long nextStart;
+
+    private final List<Record> records;
+
+    private Block(final List<Record> records, final long end, final long nextStart) {
+      this.records = records;
+      this.end = end;
+      this.nextStart = nextStart;
+    }
+  }
+
+  /**
+   * The parser for a block of bytes. Each block is parsed by a separate instance so parsers can
+   * run in parallel.
+   */
+  private class BlockParser {
+    private final byte[] bytes;
+
+    private boolean escaped;
+
+    private int fieldEnd;
+
+    private int fieldStart;
+
+    private final int length;
+
+    private boolean numberValid;
+
+    private boolean quoted;
+
+    private BlockParser(final byte[] bytes, final int length) {
+      this.bytes = bytes;
+      this.length = length;
+    }
+
+    private String getString() {
+      final byte[] bytes = this.bytes;
+      final int fieldStart = this.fieldStart;
+      final int fieldLength = this.fieldEnd - fieldStart;
+      if (this.escaped) {
+        final byte[] valueBytes = new byte[fieldLength];
+        int valueLength = 0;
+        for (int i = fieldStart; i < this.fieldEnd; i++) {
+          final byte character = bytes[i];
+          valueBytes[valueLength++] = character;
+          if (character == '"') {
+            i++;
+          }
+        }
+        return new String(valueBytes, 0, valueLength, StandardCharsets.UTF_8);
+      } else {
+        return new String(bytes, fieldStart, fieldLength, StandardCharsets.UTF_8);
+      }
+    }
+
+    private boolean isNull() {
+      return !this.quoted && this.fieldStart == this.fieldEnd;
+    }
+
+    private Block parse(final long start, final long end, final boolean lastBlock) {
+      final RecordDefinition recordDefinition = getRecordDefinition();
+      final RecordFactory<Record> recordFactory = getRecordFactory();
+      final int columnCount = CsvParallelRecordReader.this.columnFieldIndexes.length;
+      final List<Record> records = new ArrayList<>();
+      int position = 0;
+      while (position < this.length) {
+        final int rowStart = position;
+        final Record record = recordFactory.newRecord(recordDefinition);
+        double x = Double.NaN;
+        double y = Double.NaN;
+        double z = Double.NaN;
+        int columnIndex = 0;
+        boolean empty = true;
+        while (true) {
+          final int terminator = scanField(position);
+          if (terminator == -1) {
+            if (lastBlock) {
+              // Unterminated quote at the end of the file
+              this.fieldEnd = this.length;
+              position = this.length;
+            } else {
+              return new Block(records, end, start + rowStart);
+            }
+          } else {
+            position = terminator;
+          }
+          if (!isNull()) {
+            empty = false;
+            if (columnIndex < columnCount) {
+              if (columnIndex == CsvParallelRecordReader.this.pointXColumnIndex) {
+                x = parseDouble();
+                setDoubleValue(record, columnIndex, x);
+              } else if (columnIndex == CsvParallelRecordReader.this.pointYColumnIndex) {
+                y = parseDouble();
+                setDoubleValue(record, columnIndex, y);
+              } else if (columnIndex == CsvParallelRecordReader.this.pointZColumnIndex) {
+                z = parseDouble();
+                setDoubleValue(record, columnIndex, z);
+              } else {
+                setValue(record, columnIndex);
+              }
+            }
+          }
+          columnIndex++;
+          if (position < this.length
+            && this.bytes[position] == CsvParallelRecordReader.this.fieldSeparator) {
+            position++;
+          } else {
+            break;
+          }
+        }
+        if (position < this.length) {
+          // Skip the '\n'
+          position++;
+        } else if (!lastBlock) {
+          return new Block(records, end, start + rowStart);
+        }
+        if (!empty) {
+          final int geometryFieldIndex = CsvParallelRecordReader.this.geometryFieldIndex;
+          if (geometryFieldIndex != -1 && Double.isFinite(x) && Double.isFinite(y)) {
+            final GeometryFactory geometryFactory = getGeometryFactory();
+            if (Double.isFinite(z)) {
+              record.setValue(geometryFieldIndex,
+                new PointDoubleXYZGeometryFactory(geometryFactory, x, y, z));
+            } else {
+              record.setValue(geometryFieldIndex, geometryFactory.point(x, y));
+            }
+          }
+          records.add(record);
+        }
+      }
+      return new Block(records, end, end);
+    }
+
+    /**
+     * Parse the field as a double using {@link DoubleParser}.
+     *
+     * @return The value, or NaN if the field isn't a valid number.
+     */
+    private double parseDouble() {
+      try {
+        final double value = DoubleParser.parseDouble(this.bytes, this.fieldStart, this.fieldEnd);
+        this.numberValid = true;
+        return value;
+      } catch (final NumberFormatException e) {
+        this.numberValid = false;
+        return Double.NaN;
+      }
+    }
+
+    /**
+     * Parse the field as a long. The field is only valid if the value is in the range of the
+     * field's data type, so values are never truncated.
+     *
+     * @param minValue The minimum valid value.
+     * @param maxValue The maximum valid value.
+     * @return The value.
+     */
+    private long parseLong(final long minValue, final long maxValue) {
+      final byte[] bytes = this.bytes;
+      int index = this.fieldStart;
+      final int end = this.fieldEnd;
+      while (index < end && bytes[index] == ' ') {
+        index++;
+      }
+      boolean negative = false;
+      if (index < end && (bytes[index] == '-' || bytes[index] == '+')) {
+        negative = bytes[index] == '-';
+        index++;
+      }
+      long value = 0;
+      int digitCount = 0;
+      while (index < end && bytes[index] >= '0' && bytes[index] <= '9') {
+        value = value * 10 + bytes[index] - '0';
+        digitCount++;
+        index++;
+      }
+      while (index < end && bytes[index] == ' ') {
+        index++;
+      }
+      if (negative) {
+        value = -value;
+      }
+      this.numberValid = index == end && digitCount > 0 && digitCount < 19 && value >= minValue
+        && value <= maxValue;
+      return value;
+    }
+
+    /**
+     * Find the end of the field starting at position.
+     *
+     * @return The index of the separator, '\n' or the end of the block. -1 if the end of the block
+     *         is in a quoted value.
+     */
+    private int scanField(final int position) {
+      final byte[] bytes = this.bytes;
+      final int length = this.length;
+      final byte fieldSeparator = CsvParallelRecordReader.this.fieldSeparator;
+      this.escaped = false;
+      if (position < length && bytes[position] == '"') {
+        this.quoted = true;
+        this.fieldStart = position + 1;
+        int index = position + 1;
+        while (true) {
+          if (index >= length) {
+            return -1;
+          } else if (bytes[index] == '"') {
+            if (index + 1 < length && bytes[index + 1] == '"') {
+              this.escaped = true;
+              index += 2;
+            } else {
+              this.fieldEnd = index;
+              index++;
+              break;
+            }
+          } else {
+            index++;
+          }
+        }
+        // Ignore any characters after the closing quote
+        while (index < length && bytes[index] != fieldSeparator && bytes[index] != '\n') {
+          index++;
+        }
+        return index;
+      } else {
+        this.quoted = false;
+        this.fieldStart = position;
+        int index = position;
+        while (index < length && bytes[index] != fieldSeparator && bytes[index] != '\n') {
+          index++;
+        }
+        int fieldEnd = index;
+        if (fieldEnd > position && bytes[fieldEnd - 1] == '\r'
+          && (index == length || bytes[index] == '\n')) {
+          fieldEnd--;
+        }
+        this.fieldEnd = fieldEnd;
+        return index;
+      }
+    }
+
+    /**
+     * Set the value of a point coordinate column that has already been parsed as a double.
+     */
+    private void setDoubleValue(final Record record, final int columnIndex, final double value) {
+      final int fieldIndex = CsvParallelRecordReader.this.columnFieldIndexes[columnIndex];
+      if (fieldIndex != -1) {
+        switch (CsvParallelRecordReader.this.columnTypes[columnIndex]) {
+          case TYPE_DOUBLE:
+            if (this.numberValid) {
+              record.setValue(fieldIndex, value);
+            } else {
+              record.setValue(fieldIndex, getString());
+            }
+          break;
+          case TYPE_FLOAT:
+            if (this.numberValid) {
+              record.setValue(fieldIndex, (float)value);
+            } else {
+              record.setValue(fieldIndex, getString());
+            }
+          break;
+          default:
+            setValue(record, columnIndex);
+          break;
+        }
+      }
+    }
+
+    private void setValue(final Record record, final int columnIndex) {
+      final int fieldIndex = CsvParallelRecordReader.this.columnFieldIndexes[columnIndex];
+      if (fieldIndex != -1) {
+        final Object value;
+        switch (CsvParallelRecordReader.this.columnTypes[columnIndex]) {
+          case TYPE_DOUBLE:
+            value = parseDouble();
+          break;
+          case TYPE_FLOAT:
+            value = (float)parseDouble();
+          break;
+          case TYPE_LONG:
+            value = parseLong(Long.MIN_VALUE, Long.MAX_VALUE);
+          break;
+          case TYPE_INT:
+            value = (int)parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE);
+          break;
+          case TYPE_SHORT:
+            value = (short)parseLong(Short.MIN_VALUE, Short.MAX_VALUE);
+          break;
+          case TYPE_BYTE:
+            value = (byte)parseLong(Byte.MIN_VALUE, Byte.MAX_VALUE);
+          break;
+          default:
+            this.numberValid = false;
+            value = null;
+          break;
+        }
+        if (this.numberValid) {
+          record.setValue(fieldIndex, value);
+        } else {
+          // Let the field convert the string (e.g. invalid or out of range numbers or other data
+          // types)
+          record.setValue(fieldIndex, getString());
+        }
+      }
+    }
+  }
+
+  private static final int TYPE_BYTE = 6;
+
+  private static final int TYPE_DOUBLE = 1;
+
+  private static final int TYPE_FLOAT = 2;
+
+  private static final int TYPE_INT = 4;
+
+  private static final int TYPE_LONG = 3;
+
+  private static final int TYPE_SHORT = 5;
+
+  private static final int TYPE_STRING = 0;
+
+  private int blockSize = 4 * 1024 * 1024;
+
+  private FileChannel channel;
+
+  private int[] columnFieldIndexes = new int[0];
+
+  private int[] columnTypes = new int[0];
+
+  private ExecutorService executor;
+
+  private final byte fieldSeparator;
+
+  private long fileSize;
+
+  private final Deque<Future<Block>> futures = new ArrayDeque<>();
+
+  private int geometryFieldIndex = -1;
+
+  private long nextBlockStart;
+
+  private int pointXColumnIndex = -1;
+
+  private int pointYColumnIndex = -1;
+
+  private int pointZColumnIndex = -1;
+
+  private String pointZFieldName;
+
+  private int recordIndex;
+
+  private List<Record> records = Collections.emptyList();
+
+  private Resource resource;
+
+  private boolean sequential;
+
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
+  public CsvParallelRecordReader(final Resource resource) {
+    this(resource, ArrayRecord.FACTORY, Csv.FIELD_SEPARATOR);
+  }
+
+  public CsvParallelRecordReader(final Resource resource, final char fieldSeparator) {
+    this(resource, ArrayRecord.FACTORY, fieldSeparator);
+  }
+
+  public CsvParallelRecordReader(final Resource resource,
+    final RecordFactory<? extends Record> recordFactory, final char fieldSeparator) {
+    super(recordFactory);
+    if (fieldSeparator > 127) {
+      throw new IllegalArgumentException("Field separator must be an ASCII character");
+    }
+    this.resource = resource;
+    this.fieldSeparator = (byte)fieldSeparator;
+  }
+
+  @Override
+  protected void closeDo() {
+    super.closeDo();
+    if (this.executor != null) {
+      this.executor.shutdownNow();
+      this.executor = null;
+    }
+    this.futures.clear();
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      } catch (final IOException e) {
+      }
+      this.channel = null;
+    }
+    this.records = Collections.emptyList();
+    this.resource = null;
+  }
+
+  /**
+   * Get the end of the block starting at start, the byte after the first new line at or after
+   * start + blockSize.
+   */
+  private long findBlockEnd(final long start) throws IOException {
+    long position = start + this.blockSize;
+    if (position >= this.fileSize) {
+      return this.fileSize;
+    } else {
+      final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+      while (position < this.fileSize) {
+        buffer.clear();
+        final int count = this.channel.read(buffer, position);
+        if (count <= 0) {
+          break;
+        }
+        final byte[] bytes = buffer.array();
+        for (int i = 0; i < count; i++) {
+          if (bytes[i] == '\n') {
+            return position + i + 1;
+          }
+        }
+        position += count;
+      }
+      return this.fileSize;
+    }
+  }
+
+  public int getBlockSize() {
+    return this.blockSize;
+  }
+
+  @Override
+  protected Record getNext() {
+    while (this.recordIndex >= this.records.size()) {
+      final Block block = nextBlock();
+      if (block == null) {
+        throw new NoSuchElementException();
+      } else {
+        this.records = block.records;
+        this.recordIndex = 0;
+      }
+    }
+    return this.records.get(this.recordIndex++);
+  }
+
+  public String getPointZFieldName() {
+    return this.pointZFieldName;
+  }
+
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
+  private int getType(final FieldDefinition field) {
+    final DataType dataType = field.getDataType();
+    if (dataType == DataTypes.DOUBLE) {
+      return TYPE_DOUBLE;
+    } else if (dataType == DataTypes.FLOAT) {
+      return TYPE_FLOAT;
+    } else if (dataType == DataTypes.LONG) {
+      return TYPE_LONG;
+    } else if (dataType == DataTypes.INT) {
+      return TYPE_INT;
+    } else if (dataType == DataTypes.SHORT) {
+      return TYPE_SHORT;
+    } else if (dataType == DataTypes.BYTE) {
+      return TYPE_BYTE;
+    } else {
+      return TYPE_STRING;
+    }
+  }
+
+  @Override
+  protected void initDo() {
+    super.initDo();
+    if (this.pointZFieldName == null) {
+      this.pointZFieldName = getProperty("pointZFieldName");
+    }
+    try {
+      final Path path = this.resource.getPath();
+      if (path == null) {
+        throw new IllegalArgumentException("Parallel CSV reader requires a file: " + this.resource);
+      }
+      this.channel = FileChannel.open(path, StandardOpenOption.READ);
+      this.fileSize = this.channel.size();
+      final List<String> fieldNames = readHeader();
+      if (getRecordDefinition() == null) {
+        newRecordDefinition(this.resource.getBaseName(), fieldNames);
+      }
+      final RecordDefinition recordDefinition = getRecordDefinition();
+      final int columnCount = fieldNames.size();
+      this.columnFieldIndexes = new int[columnCount];
+      this.columnTypes = new int[columnCount];
+      for (int columnIndex = 0; columnIndex < columnCount; columnIndex++) {
+        final String fieldName = fieldNames.get(columnIndex);
+        int fieldIndex = -1;
+        if (fieldName != null) {
+          fieldIndex = recordDefinition.getFieldIndex(fieldName);
+          if (fieldName.equalsIgnoreCase(getPointXFieldName())) {
+            this.pointXColumnIndex = columnIndex;
+          } else if (fieldName.equalsIgnoreCase(getPointYFieldName())) {
+            this.pointYColumnIndex = columnIndex;
+          } else if (fieldName.equalsIgnoreCase(this.pointZFieldName)) {
+            this.pointZColumnIndex = columnIndex;
+          }
+        }
+        this.columnFieldIndexes[columnIndex] = fieldIndex;
+        if (fieldIndex != -1) {
+          this.columnTypes[columnIndex] = getType(recordDefinition.getField(fieldIndex));
+        }
+      }
+      if (this.pointXColumnIndex != -1 && this.pointYColumnIndex != -1) {
+        this.geometryFieldIndex = recordDefinition.getGeometryFieldIndex();
+      }
+      final int threadCount = Math.max(1, this.threadCount);
+      this.executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+        final Thread thread = new Thread(runnable, "CsvParallelRecordReader");
+        thread.setDaemon(true);
+        return thread;
+      });
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to open " + this.resource, e);
+    }
+  }
+
+  @Override
+  protected GeometryFactory loadGeometryFactory() {
+    return GeometryFactory.floating2d(this.resource);
+  }
+
+  private Block nextBlock() {
+    try {
+      if (this.sequential) {
+        int blockSize = this.blockSize;
+        while (this.nextBlockStart < this.fileSize) {
+          final long start = this.nextBlockStart;
+          final long end = Math.min(start + blockSize, this.fileSize);
+          final Block block = parseBlock(start, end);
+          if (block.nextStart == start) {
+            // A record larger than the block
+            blockSize *= 2;
+          } else {
+            this.nextBlockStart = block.nextStart;
+            return block;
+          }
+        }
+        return null;
+      } else {
+        final int maxBlockCount = this.threadCount * 2;
+        while (this.futures.size() < maxBlockCount && this.nextBlockStart < this.fileSize) {
+          final long start = this.nextBlockStart;
+          final long end = findBlockEnd(start);
+          this.futures.add(this.executor.submit(() -> parseBlock(start, end)));
+          this.nextBlockStart = end;
+          if (end >= this.fileSize) {
+            // The threads exit once the last block is parsed, even if close isn't called
+            this.executor.shutdown();
+          }
+        }
+        final Future<Block> future = this.futures.pollFirst();
+        if (future == null) {
+          return null;
+        } else {
+          final Block block = future.get();
+          if (block.nextStart < block.end) {
+            // A quoted value with a new line crosses the end of the block
+            for (final Future<Block> pendingFuture : this.futures) {
+              pendingFuture.cancel(true);
+            }
+            this.futures.clear();
+            this.executor.shutdownNow();
+            this.sequential = true;
+            this.nextBlockStart = block.nextStart;
+          }
+          return block;
+        }
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Exceptions.wrap(e);
+    } catch (final ExecutionException e) {
+      throw Exceptions.wrap(e.getCause());
+    } catch (final IOException e) {
+      throw Exceptions.wrap("Unable to read " + this.resource, e);
+    }
+  }
+
+  private Block parseBlock(final long start, final long end) throws IOException {
+    final int length = (int)(end - start);
+    final byte[] bytes = new byte[length];
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      final int count = this.channel.read(buffer, start + buffer.position());
+      if (count < 0) {
+        break;
+      }
+    }
+    final BlockParser parser = new BlockParser(bytes, buffer.position());
+    return parser.parse(start, end, end == this.fileSize);
+  }
+
+  /**
+   * Read the field names from the first line and set the start of the first block to the next
+   * line.
+   */
+  private List<String> readHeader() throws IOException {
+    final long headerEnd = findBlockEnd(-this.blockSize);
+    final int length = (int)headerEnd;
+    final byte[] bytes = new byte[length];
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining() && this.channel.read(buffer, buffer.position()) >= 0) {
+    }
+    int start = 0;
+    // Byte Order Mark
+    if (length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB
+      && (bytes[2] & 0xFF) == 0xBF) {
+      start = 3;
+    }
+    final BlockParser parser = new BlockParser(bytes, length);
+    final List<String> fieldNames = new ArrayList<>();
+    int position = start;
+    while (position < length) {
+      int terminator = parser.scanField(position);
+      if (terminator == -1) {
+        parser.fieldEnd = length;
+        terminator = length;
+      }
+      if (parser.isNull()) {
+        fieldNames.add(null);
+      } else {
+        fieldNames.add(parser.getString());
+      }
+      position = terminator;
+      if (position < length && bytes[position] == this.fieldSeparator) {
+        position++;
+      } else {
+        break;
+      }
+    }
+    this.nextBlockStart = headerEnd;
+    return fieldNames;
+  }
+
+  /**
+   * Set the approximate size of the blocks of bytes that are parsed in parallel. The default is
+   * 4MB.
+   *
+   * @param blockSize The block size in bytes.
+   */
+  public void setBlockSize(final int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  public void setPointZFieldName(final String pointZFieldName) {
+    if (Property.hasValue(pointZFieldName)) {
+      this.pointZFieldName = pointZFieldName;
+    } else {
+      this.pointZFieldName = null;
+    }
+  }
+
+  /**
+   * @param threadCount The number of threads to parse blocks with.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  @Override
+  public String toString() {
+    if (this.resource == null) {
+      return super.toString();
+    } else {
+      return this.resource.toString();
+    }
+  }
+}
@@ -14,6 +14,8 @@ import com.revolsys.collection.map.MapEx;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.raster.BufferedImages;
+import com.revolsys.raster.tile.TileCache;
+import com.revolsys.raster.tile.TileSource;
 import com.revolsys.record.io.format.esri.rest.ArcGisResponse;
 import com.revolsys.record.io.format.esri.rest.ArcGisRestCatalog;
 import com.revolsys.record.io.format.esri.rest.ArcGisRestServiceContainer;
@@ -31,6 +33,8 @@ public class MapService extends ArcGisRestAbstractLayerService {
     return service;
   }
 
+  private TileCache tileCache;
+
   private TileInfo tileInfo;
 
   private String mapName;
@@ -153,23 +157,42 @@ public class MapService extends ArcGisRestAbstractLayerService {
     return this.supportedImageFormatTypes;
   }
 
-  public BufferedImage getTileImage(final int zoomLevel, final int tileX, final int tileY) {
+  /**
+   * Read the encoded image bytes for a tile from the server, retrying once on error.
+   *
+   * @param zoomLevel The zoom level.
+   * @param tileX The tile x index.
+   * @param tileY The tile y index.
+   * @return The bytes or null if the tile does not exist.
+   */
+  public byte[] getTileBytes(final int zoomLevel, final int tileX, final int tileY) {
     final String url = getTileUrl(zoomLevel, tileX, tileY);
     boolean retry = true;
     while (true) {
       try {
-        return BufferedImages.readImageIo(url);
+        return TileSource.readUrl(url);
       } catch (final WrappedException e) {
-        if (Exceptions.isException(e, FileNotFoundException.class)) {
-          return null;
-        } else if (!retry) {
-          throw Exceptions.wrap(e);
+        if (!retry) {
+          throw e;
         }
       }
       retry = false;
     }
   }
 
+  public TileCache getTileCache() {
+    if (this.tileCache == null) {
+      return TileCache.getDefault();
+    } else {
+      return this.tileCache;
+    }
+  }
+
+  public BufferedImage getTileImage(final int zoomLevel, final int tileX, final int tileY) {
+    final String layerKey = getServiceUrl().toString();
+    return getTileCache().getImage(layerKey, zoomLevel, tileX, tileY, this::getTileBytes);
+  }
+
   public TileInfo getTileInfo() {
     refreshIfNeeded();
     return this.tileInfo;
@@ -284,4 +307,8 @@ public class MapService extends ArcGisRestAbstractLayerService {
   public void setSupportsDynamicLayers(final boolean supportsDynamicLayers) {
     this.supportsDynamicLayers = supportsDynamicLayers;
   }
+
+  public void setTileCache(final TileCache tileCache) {
+    this.tileCache = tileCache;
+  }
 }
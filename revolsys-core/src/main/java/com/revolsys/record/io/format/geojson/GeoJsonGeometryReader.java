@@ -1,6 +1,7 @@
 package com.revolsys.record.io.format.geojson;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -25,6 +26,9 @@ import com.revolsys.spring.resource.Resource;
 
 public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements GeometryReader {
 
+  /** The buffer the coordinates of each line string are read into. */
+  private double[] coordinates = new double[1024];
+
   private GeometryFactory geometryFactory;
 
   private JsonParser in;
@@ -88,63 +92,70 @@ public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements
     }
   }
 
-  private LineString readCoordinatesList(final boolean ring) {
-    final List<Double> coordinates = new ArrayList<>();
-    final int axisCount = readCoordinatesList(coordinates);
-    return new LineStringDouble(axisCount, coordinates);
-  }
-
-  private int readCoordinatesList(final List<Double> coordinates) {
-    int axisCount = 0;
-    if (this.in.getEvent() == EventType.startArray
-      || this.in.hasNext() && this.in.next() == EventType.startArray) {
-      EventType event = this.in.next();
-      if (event != EventType.endArray) {
-        do {
-          axisCount = Math.max(axisCount, readCoordinatesListCoordinates(coordinates));
-          event = this.in.next();
-        } while (event == EventType.comma);
-      }
-      if (event != EventType.endArray) {
-        throw new IllegalStateException("Exepecting end array, not: " + event);
-      }
-    } else {
-      throw new IllegalStateException("Exepecting start array, not: " + this.in.getEvent());
-    }
-    return axisCount;
-  }
-
   /**
-   * Read one points coordinates and add them to the list of coordinate values.
+   * Read an array of points into a line string. The coordinate values are read directly into
+   * the coordinates buffer. If a point has more axes than the previous points the previous points
+   * are copied to the new axis count with NaN for the missing values.
    *
-   * @param values The list to add the points coordinates to.
-   * @return The dimension of the coordinate read.
+   * @param ring True if the points are a polygon ring.
+   * @return The line string.
    */
-  private int readCoordinatesListCoordinates(final List<Double> values) {
-    int numAxis = 0;
-    if (this.in.getEvent() == EventType.startArray
-      || this.in.hasNext() && this.in.next() == EventType.startArray) {
-      EventType event = this.in.getEvent();
-      do {
-        final JsonParser parser = this.in;
-        final Object value = parser.getValue();
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          values.add(((Number)value).doubleValue());
-          numAxis++;
-          event = this.in.next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
+  private LineString readCoordinatesList(final boolean ring) {
+    final JsonParser parser = this.in;
+    if (parser.getEvent() == EventType.startArray
+      || parser.hasNext() && parser.next() == EventType.startArray) {
+      double[] coordinates = this.coordinates;
+      int axisCount = 0;
+      int vertexCount = 0;
+      EventType event = parser.next();
+      while (event == EventType.startArray) {
+        int vertexAxisCount = 0;
+        event = parser.next();
+        while (event == EventType.number) {
+          if (vertexAxisCount == axisCount) {
+            if (vertexCount > 0) {
+              coordinates = setAxisCount(coordinates, vertexCount + 1, axisCount, axisCount + 1);
+            }
+            axisCount++;
+          }
+          final int index = vertexCount * axisCount + vertexAxisCount;
+          if (index >= coordinates.length) {
+            coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+          }
+          coordinates[index] = parser.getCurrentDouble();
+          vertexAxisCount++;
+          event = parser.next();
+          if (event == EventType.comma) {
+            event = parser.next();
+          }
+        }
+        if (event != EventType.endArray) {
+          throw new IllegalArgumentException("Expecting number, not: " + event);
+        }
+        final int vertexEnd = (vertexCount + 1) * axisCount;
+        if (vertexEnd > coordinates.length) {
+          coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
         }
-      } while (event == EventType.comma);
+        Arrays.fill(coordinates, vertexCount * axisCount + vertexAxisCount, vertexEnd,
+          Double.NaN);
+        vertexCount++;
+        event = parser.next();
+        if (event == EventType.comma) {
+          event = parser.next();
+        }
+      }
       if (event != EventType.endArray) {
         throw new IllegalStateException("Exepecting end array, not: " + event);
       }
-
-      return numAxis;
+      this.coordinates = coordinates;
+      if (axisCount < 2) {
+        coordinates = setAxisCount(coordinates, vertexCount, axisCount, 2);
+        axisCount = 2;
+      }
+      final double[] lineCoordinates = Arrays.copyOf(coordinates, vertexCount * axisCount);
+      return new LineStringDouble(axisCount, vertexCount, lineCoordinates);
     } else {
-      throw new IllegalStateException("Exepecting start array, not: " + this.in.getEvent());
+      throw new IllegalStateException("Exepecting start array, not: " + parser.getEvent());
     }
   }
 
@@ -438,4 +449,19 @@ public class GeoJsonGeometryReader extends AbstractIterator<Geometry> implements
     factory = factory.convertAxisCount(axisCount);
     return factory.polygon(rings);
   }
+
+  /**
+   * Copy the coordinates to a new array with the new axis count, with NaN for the new axes.
+   */
+  private double[] setAxisCount(final double[] coordinates, final int vertexCount,
+    final int axisCount, final int newAxisCount) {
+    final int length = Math.max(coordinates.length, vertexCount * newAxisCount * 2);
+    final double[] newCoordinates = new double[length];
+    Arrays.fill(newCoordinates, Double.NaN);
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      System.arraycopy(coordinates, vertexIndex * axisCount, newCoordinates,
+        vertexIndex * newAxisCount, axisCount);
+    }
+    return newCoordinates;
+  }
 }
@@ -1,34 +1,51 @@
 package com.revolsys.record.io.format.json;
 
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.sql.Clob;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.jeometry.common.exception.WrappedException;
 import org.jeometry.common.logging.Logs;
-import org.jeometry.common.number.Doubles;
-import org.jeometry.common.number.Integers;
 
 import com.revolsys.io.FileUtil;
 import com.revolsys.spring.resource.Resource;
-
+import com.revolsys.util.DoubleParser;
+
+/**
+ * A pull parser for JSON documents.
+ * <p>
+ * The parser reads blocks of characters into its own buffer. When constructed from an
+ * {@link InputStream}, {@link ReadableByteChannel} or {@link Resource} the UTF-8 bytes are read
+ * through an NIO {@link ByteBuffer} and decoded a block at a time. Numbers are parsed directly
+ * to a double, use {@link #getCurrentDouble()} to get the value without creating the
+ * {@link BigDecimal} returned by {@link #getCurrentValue()}.
+ * </p>
+ */
 public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
   public enum EventType {
     booleanValue, colon, comma, endArray, endDocument, endObject, nullValue, number, startArray, startDocument, startObject, string, unknown
   }
 
+  private static final int BUFFER_SIZE = 8192;
+
   public static Map<String, Object> getMap(final InputStream in) {
     if (in == null) {
       return null;
@@ -94,7 +111,10 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   @SuppressWarnings("unchecked")
   public static <V> V read(final InputStream in) {
-    return (V)read(FileUtil.newUtf8Reader(in));
+    try (
+      final JsonParser parser = new JsonParser(in)) {
+      return (V)read(parser);
+    }
   }
 
   @SuppressWarnings("unchecked")
@@ -144,47 +164,122 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     return (V)read(new StringReader(in));
   }
 
+  private final char[] buffer = new char[BUFFER_SIZE];
+
+  private int bufferIndex;
+
+  private int bufferLength;
+
+  private final ByteBuffer byteBuffer;
+
+  private final ReadableByteChannel channel;
+
+  private final CharBuffer charBuffer;
+
+  private Runnable closeAction;
+
   private int currentCharacter;
 
+  private double currentDouble;
+
   private EventType currentEvent = EventType.startDocument;
 
+  private char[] currentNumberChars = new char[32];
+
+  private int currentNumberLength;
+
   private Object currentValue;
 
+  private final CharsetDecoder decoder;
+
   private int depth;
 
+  private boolean endOfInput;
+
+  private double nextDouble;
+
   private EventType nextEvent = EventType.startDocument;
 
+  private char[] nextNumberChars = new char[32];
+
+  private int nextNumberLength;
+
   private Object nextValue;
 
   private final Reader reader;
 
-  private Runnable closeAction;
+  private final StringBuilder text = new StringBuilder();
 
   public JsonParser(final InputStream in) {
-    this(FileUtil.newUtf8Reader(in));
+    this(Channels.newChannel(in));
+  }
+
+  public JsonParser(final ReadableByteChannel channel) {
+    this.reader = null;
+    this.channel = channel;
+    this.byteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.charBuffer = CharBuffer.wrap(this.buffer);
+    this.decoder = StandardCharsets.UTF_8.newDecoder()
+      .onMalformedInput(CodingErrorAction.REPLACE)
+      .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    readFirstCharacter();
   }
 
   public JsonParser(final Reader reader) {
-    this.reader = new BufferedReader(reader, 10000);
-    try {
-      this.currentCharacter = this.reader.read();
-    } catch (final IOException e) {
-      throw new RuntimeException(e);
-    }
+    this.reader = reader;
+    this.channel = null;
+    this.byteBuffer = null;
+    this.charBuffer = null;
+    this.decoder = null;
+    readFirstCharacter();
   }
 
   public JsonParser(final Resource resource) {
-    this(resource.newBufferedReader());
+    this(resource.newReadableByteChannel());
   }
 
   @Override
   public void close() {
     FileUtil.closeSilent(this.reader);
+    FileUtil.closeSilent(this.channel);
     if (this.closeAction != null) {
       this.closeAction.run();
     }
   }
 
+  /**
+   * Read the next block of characters into the buffer.
+   *
+   * @return False if there are no more characters.
+   */
+  private boolean fillBuffer() throws IOException {
+    this.bufferIndex = 0;
+    this.bufferLength = 0;
+    if (this.channel == null) {
+      final int count = this.reader.read(this.buffer, 0, BUFFER_SIZE);
+      if (count > 0) {
+        this.bufferLength = count;
+      }
+    } else {
+      this.charBuffer.clear();
+      while (this.charBuffer.position() == 0 && !this.endOfInput) {
+        final boolean endOfInput = this.channel.read(this.byteBuffer) < 0;
+        this.byteBuffer.flip();
+        final CoderResult result = this.decoder.decode(this.byteBuffer, this.charBuffer,
+          endOfInput);
+        this.byteBuffer.compact();
+        if (result.isError()) {
+          result.throwException();
+        } else if (endOfInput && result.isUnderflow()) {
+          this.decoder.flush(this.charBuffer);
+          this.endOfInput = true;
+        }
+      }
+      this.bufferLength = this.charBuffer.position();
+    }
+    return this.bufferLength > 0;
+  }
+
   public JsonList getArray() {
     if (getEvent() == EventType.startArray || hasNext() && next() == EventType.startArray) {
       EventType event = getEvent();
@@ -194,12 +289,11 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
         if (value instanceof EventType) {
           event = (EventType)value;
           if (event == EventType.comma) {
-            throw new IllegalStateException(
-              "Missing value before ',' " + FileUtil.getString(this.reader, 80));
+            throw new IllegalStateException("Missing value before ',' " + getBufferText());
           } else if (event == EventType.endArray) {
             if (!list.isEmpty()) {
               throw new IllegalStateException(
-                "Missing value after ',' and before ']' " + FileUtil.getString(this.reader, 80));
+                "Missing value after ',' and before ']' " + getBufferText());
             }
           }
         } else {
@@ -217,8 +311,30 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   }
 
+  /**
+   * Get the next characters in the buffer for error messages, without consuming them.
+   *
+   * @return The text.
+   */
+  private String getBufferText() {
+    final int length = Math.min(80, this.bufferLength - this.bufferIndex);
+    return new String(this.buffer, this.bufferIndex, length);
+  }
+
+  /**
+   * Get the value of the current {@link EventType#number} event as a double.
+   *
+   * @return The value.
+   */
+  public double getCurrentDouble() {
+    return this.currentDouble;
+  }
+
   @SuppressWarnings("unchecked")
   public <T> T getCurrentValue() {
+    if (this.currentValue == null && this.currentEvent == EventType.number) {
+      this.currentValue = new BigDecimal(this.currentNumberChars, 0, this.currentNumberLength);
+    }
     return (T)this.currentValue;
   }
 
@@ -228,24 +344,30 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   public double[] getDoubleArray() {
     if (getEvent() == EventType.startArray || hasNext() && next() == EventType.startArray) {
-      EventType event = getEvent();
-      final List<Number> list = new ArrayList<>();
-      do {
-        final Object value = getValue();
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          list.add((Number)value);
+      double[] values = new double[4];
+      int count = 0;
+      EventType event = next();
+      while (event == EventType.number) {
+        if (count == values.length) {
+          values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = this.currentDouble;
+        event = next();
+        if (event == EventType.comma) {
           event = next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
+          if (event != EventType.number) {
+            throw new IllegalArgumentException("Expecting number, not: " + event);
+          }
         }
-      } while (event == EventType.comma);
+      }
       if (event != EventType.endArray) {
         throw new IllegalStateException("Exepecting end array, not: " + event);
       }
-
-      return Doubles.toDoubleArray(list);
+      if (count == values.length) {
+        return values;
+      } else {
+        return Arrays.copyOf(values, count);
+      }
     } else if (getEvent() == EventType.nullValue) {
       return null;
     } else {
@@ -258,29 +380,15 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
   }
 
   public int[] getIntArray() {
-    if (getEvent() == EventType.startArray || hasNext() && next() == EventType.startArray) {
-      EventType event = getEvent();
-      final List<Number> list = new ArrayList<>();
-      do {
-        final Object value = getValue();
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          list.add((Number)value);
-          event = next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
-        }
-      } while (event == EventType.comma);
-      if (event != EventType.endArray) {
-        throw new IllegalStateException("Exepecting end array, not: " + event);
-      }
-
-      return Integers.toIntArray(list);
-    } else if (getEvent() == EventType.nullValue) {
+    final double[] values = getDoubleArray();
+    if (values == null) {
       return null;
     } else {
-      throw new IllegalStateException("Exepecting start array, not: " + getEvent());
+      final int[] intValues = new int[values.length];
+      for (int i = 0; i < values.length; i++) {
+        intValues[i] = (int)values[i];
+      }
+      return intValues;
     }
   }
 
@@ -390,59 +498,59 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
       switch (this.currentCharacter) {
         case ',':
           this.nextEvent = EventType.comma;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case ':':
           this.nextEvent = EventType.colon;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '{':
           this.nextEvent = EventType.startObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth++;
         break;
         case '}':
           this.nextEvent = EventType.endObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth--;
         break;
         case '[':
           this.nextEvent = EventType.startArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case ']':
           this.nextEvent = EventType.endArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 't':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.TRUE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 'f':
           for (int i = 0; i < 4; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.FALSE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case 'n':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.nullValue;
           this.nextValue = null;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '"':
           this.nextEvent = EventType.string;
 
           processString();
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
         break;
         case '-':
           this.nextEvent = EventType.number;
@@ -471,6 +579,13 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     if (hasNext()) {
       this.currentValue = this.nextValue;
       this.currentEvent = this.nextEvent;
+      if (this.currentEvent == EventType.number) {
+        this.currentDouble = this.nextDouble;
+        final char[] numberChars = this.currentNumberChars;
+        this.currentNumberChars = this.nextNumberChars;
+        this.currentNumberLength = this.nextNumberLength;
+        this.nextNumberChars = numberChars;
+      }
       moveNext();
       return this.currentEvent;
     } else {
@@ -478,52 +593,111 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
     }
   }
 
+  private void appendNumberCharacter() {
+    if (this.nextNumberLength == this.nextNumberChars.length) {
+      this.nextNumberChars = Arrays.copyOf(this.nextNumberChars, this.nextNumberLength * 2);
+    }
+    this.nextNumberChars[this.nextNumberLength++] = (char)this.currentCharacter;
+  }
+
+  /**
+   * Parse the number to a double using {@link DoubleParser}, falling back to
+   * {@link Double#parseDouble(String)}. The text is saved to create a {@link BigDecimal} if it
+   * is requested.
+   */
   private void processNumber() throws IOException {
-    final StringBuilder text = new StringBuilder();
+    this.nextNumberLength = 0;
+    long mantissa = 0;
+    int exponent = 0;
+    boolean exact = true;
+    boolean negative = false;
     if (this.currentCharacter == '-') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      negative = true;
+      appendNumberCharacter();
+      this.currentCharacter = read();
     }
     while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      appendNumberCharacter();
+      if (mantissa < DoubleParser.MAX_EXACT_MANTISSA) {
+        mantissa = mantissa * 10 + this.currentCharacter - '0';
+      } else {
+        exact = false;
+      }
+      this.currentCharacter = read();
     }
 
     if (this.currentCharacter == '.') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      appendNumberCharacter();
+      this.currentCharacter = read();
       while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        appendNumberCharacter();
+        if (mantissa < DoubleParser.MAX_EXACT_MANTISSA) {
+          mantissa = mantissa * 10 + this.currentCharacter - '0';
+          exponent--;
+        } else {
+          exact = false;
+        }
+        this.currentCharacter = read();
       }
     }
 
     if (this.currentCharacter == 'e' || this.currentCharacter == 'E') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
+      appendNumberCharacter();
+      this.currentCharacter = read();
+      boolean negativeExponent = false;
       if (this.currentCharacter == '-' || this.currentCharacter == '+') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        negativeExponent = this.currentCharacter == '-';
+        appendNumberCharacter();
+        this.currentCharacter = read();
       }
+      int exponentValue = 0;
       while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+        appendNumberCharacter();
+        if (exponentValue < 10000) {
+          exponentValue = exponentValue * 10 + this.currentCharacter - '0';
+        }
+        this.currentCharacter = read();
       }
+      if (negativeExponent) {
+        exponent -= exponentValue;
+      } else {
+        exponent += exponentValue;
+      }
+    }
+    if (exact && DoubleParser.isExact(mantissa, exponent)) {
+      this.nextDouble = DoubleParser.toDouble(negative, mantissa, exponent);
+    } else {
+      final String text = new String(this.nextNumberChars, 0, this.nextNumberLength);
+      this.nextDouble = Double.parseDouble(text);
     }
-    this.nextValue = new BigDecimal(text.toString());
+    this.nextValue = null;
   }
 
   private void processString() throws IOException {
-    final StringBuilder text = new StringBuilder();
-    this.currentCharacter = this.reader.read();
+    // Fast path for strings without escapes that are fully in the buffer
+    final int startIndex = this.bufferIndex;
+    for (int i = startIndex; i < this.bufferLength; i++) {
+      final char character = this.buffer[i];
+      if (character == '"') {
+        this.nextValue = new String(this.buffer, startIndex, i - startIndex);
+        this.bufferIndex = i + 1;
+        return;
+      } else if (character == '\\') {
+        break;
+      }
+    }
+
+    final StringBuilder text = this.text;
+    text.setLength(0);
+    this.currentCharacter = read();
     while (this.currentCharacter != '"' && this.currentCharacter != -1) {
       if (this.currentCharacter == '\\') {
-        this.currentCharacter = this.reader.read();
+        this.currentCharacter = read();
         switch (this.currentCharacter) {
           case -1:
           break;
           case 'b':
-            text.setLength(text.length() - 1);
+            text.append('\b');
           break;
           case '"':
             text.append('"');
@@ -536,6 +710,7 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
           break;
           case 'f':
             text.append('\f');
+          break;
           case 'n':
             text.append('\n');
           break;
@@ -546,19 +721,15 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
             text.append('\t');
           break;
           case 'u':
-            final char[] buf = new char[4];
-            final int readCount = this.reader.read(buf);
-            final String unicodeText = String.valueOf(buf, 0, readCount);
-            if (readCount == 4) {
-              try {
-                final int unicode = Integer.parseInt(unicodeText, 16);
-                text.append((char)unicode);
-              } catch (final NumberFormatException e) {
-                throw e;
+            int unicode = 0;
+            for (int i = 0; i < 4; i++) {
+              final int digit = Character.digit(read(), 16);
+              if (digit == -1) {
+                throw new IllegalStateException("Unicode escape not correct");
               }
-            } else {
-              throw new IllegalStateException("Unicode escape not correct " + unicodeText);
+              unicode = unicode * 16 + digit;
             }
+            text.append((char)unicode);
           break;
           default:
             throw new IllegalStateException(
@@ -567,11 +738,27 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
       } else {
         text.append((char)this.currentCharacter);
       }
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     }
     this.nextValue = text.toString();
   }
 
+  private int read() throws IOException {
+    if (this.bufferIndex < this.bufferLength || fillBuffer()) {
+      return this.buffer[this.bufferIndex++];
+    } else {
+      return -1;
+    }
+  }
+
+  private void readFirstCharacter() {
+    try {
+      this.currentCharacter = read();
+    } catch (final IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   @Override
   public void remove() {
   }
@@ -660,13 +847,13 @@ public class JsonParser implements Iterator<JsonParser.EventType>, Closeable {
 
   private void skipWhitespace() throws IOException {
     while (Character.isWhitespace(this.currentCharacter)) {
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     }
   }
 
   @Override
   public String toString() {
-    return this.currentEvent + " : " + this.currentValue + " "
-      + Character.toString((char)this.currentCharacter) + FileUtil.getString(this.reader, 80);
+    return this.currentEvent + " : " + getCurrentValue() + " "
+      + Character.toString((char)this.currentCharacter) + getBufferText();
   }
 }
@@ -0,0 +1,256 @@
+package com.revolsys.record.io.format.shp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.jeometry.common.exception.Exceptions;
+import org.jeometry.common.logging.Logs;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.endian.EndianByteBuffer;
+import com.revolsys.record.Record;
+import com.revolsys.record.RecordFactory;
+import com.revolsys.record.io.format.xbase.XbaseRecordReader;
+import com.revolsys.record.schema.RecordDefinition;
+
+/**
+ * Read the records from a shapefile by memory mapping the .shp, .shx and .dbf files. The record
+ * range is split into chunks using the offsets in the .shx file and the chunks are decoded on a
+ * fixed size thread pool. The chunks are returned in file order if ordered is true, otherwise in
+ * the order they finish decoding. The thread pool is shut down when the last chunk has been
+ * submitted or the iterator is closed.
+ */
+class ShapefileMappedRecordIterator implements Iterator<Record>, Closeable {
+  private static final int SHX_HEADER_SIZE = 100;
+
+  private static final int SHX_RECORD_SIZE = 8;
+
+  private final int chunkCount;
+
+  private final int chunkRecordCount;
+
+  private final CompletionService<List<Record>> completionService;
+
+  private Iterator<Record> currentRecords = Collections.emptyIterator();
+
+  private FileChannel dbfChannel;
+
+  private final ExecutorService executor;
+
+  private final int[] fieldIndexes;
+
+  private final int maxPendingCount;
+
+  private int nextChunkIndex = 0;
+
+  private final boolean ordered;
+
+  private final Deque<Future<List<Record>>> pending = new ArrayDeque<>();
+
+  private int pendingCount = 0;
+
+  private final ShapefileRecordReader reader;
+
+  private final RecordDefinition recordDefinition;
+
+  private final RecordFactory recordFactory;
+
+  private final int recordCount;
+
+  private FileChannel shpChannel;
+
+  private final ByteBuffer shxBuffer;
+
+  private final XbaseRecordReader xbaseReader;
+
+  ShapefileMappedRecordIterator(final ShapefileRecordReader reader, final Path shpPath,
+    final Path shxPath, final XbaseRecordReader xbaseReader, final Path dbfPath,
+    final RecordFactory recordFactory, final RecordDefinition sourceRecordDefinition,
+    final RecordDefinition recordDefinition, final int threadCount, final boolean ordered,
+    final int chunkRecordCount) throws IOException {
+    this.reader = reader;
+    this.xbaseReader = xbaseReader;
+    this.recordFactory = recordFactory;
+    this.recordDefinition = recordDefinition;
+    this.ordered = ordered;
+    this.chunkRecordCount = Math.max(1, chunkRecordCount);
+
+    final int fieldCount = recordDefinition.getFieldCount();
+    this.fieldIndexes = new int[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      final String fieldName = recordDefinition.getFieldName(i);
+      this.fieldIndexes[i] = sourceRecordDefinition.getFieldIndex(fieldName);
+    }
+
+    try (
+      FileChannel shxChannel = FileChannel.open(shxPath, StandardOpenOption.READ)) {
+      this.shxBuffer = shxChannel.map(MapMode.READ_ONLY, 0, shxChannel.size());
+    }
+    this.recordCount = (this.shxBuffer.capacity() - SHX_HEADER_SIZE) / SHX_RECORD_SIZE;
+    this.chunkCount = (this.recordCount + this.chunkRecordCount - 1) / this.chunkRecordCount;
+    this.shpChannel = FileChannel.open(shpPath, StandardOpenOption.READ);
+    if (xbaseReader != null) {
+      this.dbfChannel = FileChannel.open(dbfPath, StandardOpenOption.READ);
+    }
+
+    final int poolSize = Math.max(1, threadCount);
+    this.maxPendingCount = poolSize * 2;
+    final String threadName = "ShapefileReader " + shpPath.getFileName();
+    this.executor = Executors.newFixedThreadPool(poolSize, runnable -> {
+      final Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.completionService = new ExecutorCompletionService<>(this.executor);
+  }
+
+  @Override
+  public void close() {
+    this.executor.shutdownNow();
+    this.pending.clear();
+    this.currentRecords = Collections.emptyIterator();
+    FileUtil.closeSilent(this.shpChannel, this.dbfChannel);
+    this.shpChannel = null;
+    this.dbfChannel = null;
+  }
+
+  private int getContentLength(final int recordIndex) {
+    final int offset = SHX_HEADER_SIZE + recordIndex * SHX_RECORD_SIZE + 4;
+    return this.shxBuffer.getInt(offset) * 2;
+  }
+
+  public int getRecordCount() {
+    return this.recordCount;
+  }
+
+  private long getShpOffset(final int recordIndex) {
+    final int offset = SHX_HEADER_SIZE + recordIndex * SHX_RECORD_SIZE;
+    return Integer.toUnsignedLong(this.shxBuffer.getInt(offset)) * 2;
+  }
+
+  @Override
+  public boolean hasNext() {
+    while (!this.currentRecords.hasNext()) {
+      final List<Record> records = nextChunk();
+      if (records == null) {
+        return false;
+      } else {
+        this.currentRecords = records.iterator();
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Record next() {
+    if (hasNext()) {
+      return this.currentRecords.next();
+    } else {
+      throw new NoSuchElementException();
+    }
+  }
+
+  private List<Record> nextChunk() {
+    submitChunks();
+    if (this.pendingCount == 0) {
+      return null;
+    } else {
+      try {
+        final Future<List<Record>> future;
+        if (this.ordered) {
+          future = this.pending.removeFirst();
+        } else {
+          future = this.completionService.take();
+        }
+        this.pendingCount--;
+        return future.get();
+      } catch (final InterruptedException e) {
+        throw Exceptions.wrap(e);
+      } catch (final ExecutionException e) {
+        throw Exceptions.wrap("Error reading " + this.reader, e.getCause());
+      }
+    }
+  }
+
+  private List<Record> readChunk(final int chunkIndex) throws IOException {
+    final int startIndex = chunkIndex * this.chunkRecordCount;
+    final int endIndex = Math.min(startIndex + this.chunkRecordCount, this.recordCount);
+    final List<Record> records = new ArrayList<>(endIndex - startIndex);
+
+    final long shpStart = getShpOffset(startIndex);
+    final long shpEnd = getShpOffset(endIndex - 1) + 8 + getContentLength(endIndex - 1);
+    final EndianByteBuffer shpIn = new EndianByteBuffer(
+      this.shpChannel.map(MapMode.READ_ONLY, shpStart, shpEnd - shpStart));
+
+    ByteBuffer dbfBuffer = null;
+    int recordSize = 0;
+    if (this.xbaseReader != null) {
+      recordSize = this.xbaseReader.getRecordSize();
+      final long dbfStart = this.xbaseReader.getHeaderSize() + (long)startIndex * recordSize;
+      final long dbfLength = Math.min((long)(endIndex - startIndex) * recordSize,
+        this.dbfChannel.size() - dbfStart);
+      dbfBuffer = this.dbfChannel.map(MapMode.READ_ONLY, dbfStart, Math.max(0, dbfLength));
+    }
+
+    for (int recordIndex = startIndex; recordIndex < endIndex; recordIndex++) {
+      Record record;
+      if (dbfBuffer == null) {
+        record = this.recordFactory.newRecord(this.recordDefinition);
+      } else {
+        final int dbfOffset = (recordIndex - startIndex) * recordSize;
+        if (dbfOffset + recordSize > dbfBuffer.limit()) {
+          break;
+        }
+        dbfBuffer.position(dbfOffset);
+        record = this.xbaseReader.readRecord(dbfBuffer, this.recordFactory, this.recordDefinition,
+          this.fieldIndexes);
+      }
+      if (record != null) {
+        shpIn.seek((int)(getShpOffset(recordIndex) - shpStart));
+        try {
+          final Geometry geometry = this.reader.readGeometry(shpIn);
+          record.setGeometryValue(geometry);
+        } catch (final IllegalArgumentException e) {
+          Logs.error(this, "Error reading geometry from:" + this.reader + "\n" + record, e);
+        }
+        records.add(record);
+      }
+    }
+    return records;
+  }
+
+  private void submitChunks() {
+    while (this.pendingCount < this.maxPendingCount && this.nextChunkIndex < this.chunkCount) {
+      final int chunkIndex = this.nextChunkIndex++;
+      if (this.ordered) {
+        this.pending.addLast(this.executor.submit(() -> readChunk(chunkIndex)));
+      } else {
+        this.completionService.submit(() -> readChunk(chunkIndex));
+      }
+      this.pendingCount++;
+    }
+    if (this.nextChunkIndex >= this.chunkCount) {
+      // The threads exit once the submitted chunks are decoded, even if close isn't called
+      this.executor.shutdown();
+    }
+  }
+}
@@ -2,6 +2,7 @@ package com.revolsys.record.io.format.shp;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.NoSuchElementException;
 
 import org.jeometry.common.data.type.DataType;
@@ -31,6 +32,8 @@ import com.revolsys.spring.resource.Resource;
 import com.revolsys.util.Property;
 
 public class ShapefileRecordReader extends AbstractIterator<Record> implements RecordReader {
+  private int chunkRecordCount = 10000;
+
   private boolean closeFile = true;
 
   private GeometryFactory geometryFactory;
@@ -39,8 +42,14 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   private EndianMappedByteBuffer indexIn;
 
+  private ShapefileMappedRecordIterator mappedIterator;
+
+  private boolean memoryMapped = false;
+
   private final String name;
 
+  private boolean ordered = true;
+
   private int position;
 
   private RecordDefinition recordDefinition;
@@ -53,6 +62,8 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   private int shapeType;
 
+  private int threadCount = 1;
+
   private PathName typeName;
 
   private XbaseRecordReader xbaseRecordReader;
@@ -74,7 +85,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
   }
 
   public void forceClose() {
-    FileUtil.closeSilent(this.in, this.indexIn);
+    FileUtil.closeSilent(this.in, this.indexIn, this.mappedIterator);
     if (this.xbaseRecordReader != null) {
       this.xbaseRecordReader.forceClose();
     }
@@ -82,6 +93,7 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     this.geometryFactory = null;
     this.in = null;
     this.indexIn = null;
+    this.mappedIterator = null;
     this.recordDefinition = null;
     this.resource = null;
     this.xbaseRecordReader = null;
@@ -89,6 +101,13 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
 
   @Override
   protected Record getNext() {
+    if (this.mappedIterator != null) {
+      if (this.mappedIterator.hasNext()) {
+        return this.mappedIterator.next();
+      } else {
+        throw new NoSuchElementException();
+      }
+    }
     Record record;
     try {
       if (this.xbaseRecordReader != null) {
@@ -125,6 +144,10 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  public int getChunkRecordCount() {
+    return this.chunkRecordCount;
+  }
+
   @Override
   public ClockDirection getPolygonRingDirection() {
     return ClockDirection.CLOCKWISE;
@@ -145,6 +168,10 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     return this.recordFactory;
   }
 
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
   public PathName getTypeName() {
     return this.typeName;
   }
@@ -215,16 +242,56 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
           this.recordDefinition = Records.newGeometryRecordDefinition();
         }
         this.recordDefinition.setGeometryFactory(this.geometryFactory);
+        if (this.memoryMapped) {
+          initMapped();
+        }
       } catch (final IOException e) {
         throw new RuntimeException("Error initializing mappedFile " + this.resource, e);
       }
     }
   }
 
+  /**
+   * Open the memory mapped reader if the .shp, .shx and .dbf files are all local files, otherwise
+   * the records are read sequentially from the input stream.
+   */
+  private void initMapped() throws IOException {
+    if (this.resource.isFile()) {
+      final Resource indexResource = this.resource.newResourceChangeExtension("shx");
+      if (indexResource != null && indexResource.isFile() && indexResource.exists()) {
+        Path dbfPath = null;
+        if (this.xbaseRecordReader != null) {
+          final Resource xbaseResource = this.resource.newResourceChangeExtension("dbf");
+          if (xbaseResource.isFile()) {
+            dbfPath = xbaseResource.getPath();
+          } else {
+            return;
+          }
+        }
+        RecordDefinition recordDefinition = this.returnRecordDefinition;
+        if (recordDefinition == null) {
+          recordDefinition = this.recordDefinition;
+        }
+        this.mappedIterator = new ShapefileMappedRecordIterator(this, this.resource.getPath(),
+          indexResource.getPath(), this.xbaseRecordReader, dbfPath, this.recordFactory,
+          this.recordDefinition, recordDefinition, this.threadCount, this.ordered,
+          this.chunkRecordCount);
+      }
+    }
+  }
+
   public boolean isCloseFile() {
     return this.closeFile;
   }
 
+  public boolean isMemoryMapped() {
+    return this.memoryMapped;
+  }
+
+  public boolean isOrdered() {
+    return this.ordered;
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -247,11 +314,19 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     final double maxM = this.in.readLEDouble();
   }
 
-  @SuppressWarnings("unused")
   private Geometry readGeometry() throws IOException {
-    final int recordNumber = this.in.readInt();
-    final int recordLength = this.in.readInt();
-    final int shapeType = this.in.readLEInt();
+    return readGeometry(this.in);
+  }
+
+  /**
+   * Read the geometry for the record at the current position of the input. Only the immutable
+   * state of the reader is used so this can be called concurrently with different inputs.
+   */
+  @SuppressWarnings("unused")
+  Geometry readGeometry(final EndianInput in) throws IOException {
+    final int recordNumber = in.readInt();
+    final int recordLength = in.readInt();
+    final int shapeType = in.readLEInt();
     final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
     switch (shapeType) {
       case ShapefileConstants.NULL_SHAPE:
@@ -281,45 +356,54 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
             throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
         }
       case ShapefileConstants.POINT_SHAPE:
-        return util.readPoint(this.geometryFactory, this.in, recordLength);
+        return util.readPoint(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POINT_M_SHAPE:
-        return util.readPointM(this.geometryFactory, this.in, recordLength);
+        return util.readPointM(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POINT_Z_SHAPE:
-        return util.readPointZ(this.geometryFactory, this.in, recordLength);
+        return util.readPointZ(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POINT_ZM_SHAPE:
-        return util.readPointZM(this.geometryFactory, this.in, recordLength);
+        return util.readPointZM(this.geometryFactory, in, recordLength);
 
       case ShapefileConstants.MULTI_POINT_SHAPE:
-        return util.readMultipoint(this.geometryFactory, this.in, recordLength);
+        return util.readMultipoint(this.geometryFactory, in, recordLength);
       case ShapefileConstants.MULTI_POINT_M_SHAPE:
-        return util.readMultipointM(this.geometryFactory, this.in, recordLength);
+        return util.readMultipointM(this.geometryFactory, in, recordLength);
       case ShapefileConstants.MULTI_POINT_Z_SHAPE:
-        return util.readMultipointZ(this.geometryFactory, this.in, recordLength);
+        return util.readMultipointZ(this.geometryFactory, in, recordLength);
       case ShapefileConstants.MULTI_POINT_ZM_SHAPE:
-        return util.readMultipointZM(this.geometryFactory, this.in, recordLength);
+        return util.readMultipointZM(this.geometryFactory, in, recordLength);
 
       case ShapefileConstants.POLYLINE_SHAPE:
-        return util.readPolyline(this.geometryFactory, this.in, recordLength);
+        return util.readPolyline(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYLINE_M_SHAPE:
-        return util.readPolylineM(this.geometryFactory, this.in, recordLength);
+        return util.readPolylineM(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYLINE_Z_SHAPE:
-        return util.readPolylineZ(this.geometryFactory, this.in, recordLength);
+        return util.readPolylineZ(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYLINE_ZM_SHAPE:
-        return util.readPolylineZM(this.geometryFactory, this.in, recordLength);
+        return util.readPolylineZM(this.geometryFactory, in, recordLength);
 
       case ShapefileConstants.POLYGON_SHAPE:
-        return util.readPolygon(this.geometryFactory, this.in, recordLength);
+        return util.readPolygon(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYGON_M_SHAPE:
-        return util.readPolygonM(this.geometryFactory, this.in, recordLength);
+        return util.readPolygonM(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYGON_Z_SHAPE:
-        return util.readPolygonZ(this.geometryFactory, this.in, recordLength);
+        return util.readPolygonZ(this.geometryFactory, in, recordLength);
       case ShapefileConstants.POLYGON_ZM_SHAPE:
-        return util.readPolygonZM(this.geometryFactory, this.in, recordLength);
+        return util.readPolygonZM(this.geometryFactory, in, recordLength);
       default:
         throw new IllegalArgumentException("Shapefile shape type not supported: " + shapeType);
     }
   }
 
+  /**
+   * Set the number of records in each chunk decoded by a thread in {@link #setMemoryMapped(boolean)} mode.
+   *
+   * @param chunkRecordCount The number of records per chunk.
+   */
+  public void setChunkRecordCount(final int chunkRecordCount) {
+    this.chunkRecordCount = chunkRecordCount;
+  }
+
   public void setCloseFile(final boolean closeFile) {
     this.closeFile = closeFile;
     if (this.xbaseRecordReader != null) {
@@ -327,11 +411,36 @@ public class ShapefileRecordReader extends AbstractIterator<Record> implements R
     }
   }
 
+  /**
+   * Memory map the .shp, .shx and .dbf files and decode chunks of records using
+   * {@link #setThreadCount(int)} threads. Must be set before the reader is opened. If the files
+   * are not local files or the .shx file doesn't exist the records are read sequentially.
+   *
+   * @param memoryMapped True if the memory mapped reader should be used.
+   */
+  public void setMemoryMapped(final boolean memoryMapped) {
+    this.memoryMapped = memoryMapped;
+  }
+
+  /**
+   * Return the records in file order in {@link #setMemoryMapped(boolean)} mode. If false the
+   * records from each chunk are returned as soon as the chunk is decoded.
+   *
+   * @param ordered True if the records must be returned in file order.
+   */
+  public void setOrdered(final boolean ordered) {
+    this.ordered = ordered;
+  }
+
   public void setRecordDefinition(final RecordDefinition recordDefinition) {
     this.returnRecordDefinition = recordDefinition;
     ((RecordDefinitionImpl)recordDefinition).setPolygonRingDirection(ClockDirection.CLOCKWISE);
   }
 
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
   public void setTypeName(final PathName typeName) {
     if (Property.hasValue(typeName)) {
       this.typeName = typeName;
@@ -21,6 +21,7 @@ import com.revolsys.record.io.RecordWriter;
 import com.revolsys.record.io.RecordWriterFactory;
 import com.revolsys.record.io.format.csv.CsvMapIterator;
 import com.revolsys.record.io.format.csv.CsvMapWriter;
+import com.revolsys.record.io.format.csv.CsvParallelRecordReader;
 import com.revolsys.record.io.format.csv.CsvRecordReader;
 import com.revolsys.record.io.format.csv.CsvRecordWriter;
 import com.revolsys.record.schema.RecordDefinition;
@@ -95,10 +96,17 @@ public class Tsv extends AbstractRecordIoFactory implements RecordWriterFactory,
   @Override
   public RecordReader newRecordReader(final Resource resource,
     final RecordFactory<? extends Record> recordFactory, final MapEx properties) {
-    final CsvRecordReader reader = new CsvRecordReader(resource, recordFactory,
-      Tsv.FIELD_SEPARATOR);
-    reader.setProperties(properties);
-    return reader;
+    if (properties != null && properties.getBoolean("parallel", false) && resource.isFile()) {
+      final CsvParallelRecordReader reader = new CsvParallelRecordReader(resource, recordFactory,
+        Tsv.FIELD_SEPARATOR);
+      reader.setProperties(properties);
+      return reader;
+    } else {
+      final CsvRecordReader reader = new CsvRecordReader(resource, recordFactory,
+        Tsv.FIELD_SEPARATOR);
+      reader.setProperties(properties);
+      return reader;
+    }
   }
 
   @Override
@@ -24,6 +24,7 @@ import com.revolsys.io.FileUtil;
 import com.revolsys.record.Record;
 import com.revolsys.record.RecordFactory;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.schema.RecordDefinition;
 import com.revolsys.record.schema.RecordDefinitionImpl;
 import com.revolsys.spring.resource.Resource;
 
@@ -79,6 +80,10 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
 
   private short recordSize;
 
+  private int headerSize;
+
+  private int[] fieldOffsets = new int[0];
+
   private Resource resource;
 
   private PathName typeName;
@@ -128,8 +133,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     this.resource = null;
   }
 
-  private Boolean getBoolean() {
-    final char c = (char)this.recordBuffer.get();
+  private Boolean getBoolean(final ByteBuffer recordBuffer) {
+    final char c = (char)recordBuffer.get();
     switch (c) {
       case 't':
       case 'T':
@@ -147,8 +152,8 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private Date getDate(final int len) {
-    final String dateString = getString(len);
+  private Date getDate(final ByteBuffer recordBuffer, final int len) {
+    final String dateString = getString(recordBuffer, len);
     if (dateString.trim().length() == 0 || dateString.equals("0")) {
       return null;
     } else {
@@ -215,9 +220,9 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     }
   }
 
-  private BigDecimal getNumber(final int len) {
+  private BigDecimal getNumber(final ByteBuffer recordBuffer, final int len) {
     BigDecimal number = null;
-    final String string = getString(len);
+    final String string = getString(recordBuffer, len);
     final String numberString = string.replace('*', ' ');
     if (numberString.trim().length() != 0) {
       try {
@@ -229,6 +234,10 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return number;
   }
 
+  public int getHeaderSize() {
+    return this.headerSize;
+  }
+
   public int getPosition() {
     return this.position;
   }
@@ -237,15 +246,19 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
     return this.recordCount;
   }
 
+  public int getRecordSize() {
+    return this.recordSize;
+  }
+
   @Override
   public RecordDefinitionImpl getRecordDefinition() {
     open();
     return this.recordDefinition;
   }
 
-  private String getString(final int len) {
+  private String getString(final ByteBuffer recordBuffer, final int len) {
     final byte[] bytes = new byte[len];
-    this.recordBuffer.get(bytes, 0, len);
+    recordBuffer.get(bytes, 0, len);
     final String text = new String(bytes, this.charset);
     return text.trim();
   }
@@ -297,7 +310,7 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
       final int d = header.get();
       // properties.put(new QName("date"), new Date(y, m - 1, d));
       this.recordCount = header.getInt();
-      final short headerSize = header.getShort();
+      this.headerSize = header.getShort() & 0xFFFF;
 
       this.recordSize = header.getShort();
     } else {
@@ -308,27 +321,43 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
   protected Record loadRecord() throws IOException {
     final Record record = this.recordFactory.newRecord(this.recordDefinition);
     for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
-      int length = this.recordDefinition.getFieldLength(i);
-      final DataType type = this.recordDefinition.getFieldType(i);
-      Object value = null;
+      final Object value = readValue(this.recordBuffer, i);
+      record.setValue(i, value);
+    }
+    return record;
+  }
 
-      if (type == DataTypes.STRING) {
-        if (length < 255) {
-          value = getString(length);
-        } else {
-          value = getMemo(length);
-          length = 10;
+  /**
+   * Read the record in the buffer into a new record. Only the fields in fieldIndexes are decoded,
+   * the remaining fields are skipped using their fixed offsets. The buffer is not modified so
+   * multiple threads can read different records from views of the same mapped buffer.
+   *
+   * @param recordBuffer The buffer positioned at the start of the record (deleted flag).
+   * @param recordFactory The factory used to construct the record.
+   * @param recordDefinition The definition of the record to return.
+   * @param fieldIndexes The index of the source field for each field in the recordDefinition, -1 if the field doesn't exist in the file.
+   * @return The record or null if the record was marked as deleted.
+   */
+  public Record readRecord(final ByteBuffer recordBuffer, final RecordFactory recordFactory,
+    final RecordDefinition recordDefinition, final int[] fieldIndexes) throws IOException {
+    final int recordStart = recordBuffer.position();
+    final int deleteFlag = recordBuffer.get(recordStart);
+    if (deleteFlag == ' ') {
+      final Record record = recordFactory.newRecord(recordDefinition);
+      for (int i = 0; i < fieldIndexes.length; i++) {
+        final int fieldIndex = fieldIndexes[i];
+        if (fieldIndex != -1) {
+          recordBuffer.position(recordStart + this.fieldOffsets[fieldIndex]);
+          final Object value = readValue(recordBuffer, fieldIndex);
+          record.setValue(i, value);
         }
-      } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
-        value = getNumber(length);
-      } else if (type == DataTypes.BOOLEAN) {
-        value = getBoolean();
-      } else if (type == DataTypes.DATE_TIME) {
-        value = getDate(length);
       }
-      record.setValue(i, value);
+      recordBuffer.position(recordStart + this.recordSize);
+      return record;
+    } else {
+      recordBuffer.position(recordStart + this.recordSize);
+      return null;
     }
-    return record;
   }
 
   private void readRecordDefinition() throws IOException {
@@ -375,6 +404,41 @@ public class XbaseRecordReader extends AbstractIterator<Record> implements Recor
         }
         this.recordDefinition.addField(fieldName.toString(), dataType, length, decimalCount, false);
       }
+      final int fieldCount = this.recordDefinition.getFieldCount();
+      this.fieldOffsets = new int[fieldCount];
+      int offset = 1;
+      for (int i = 0; i < fieldCount; i++) {
+        this.fieldOffsets[i] = offset;
+        final int length = this.recordDefinition.getFieldLength(i);
+        if (length == Integer.MAX_VALUE) {
+          offset += 10;
+        } else {
+          offset += length;
+        }
+      }
+    }
+  }
+
+  private Object readValue(final ByteBuffer recordBuffer, final int fieldIndex)
+    throws IOException {
+    final int length = this.recordDefinition.getFieldLength(fieldIndex);
+    final DataType type = this.recordDefinition.getFieldType(fieldIndex);
+    if (type == DataTypes.STRING) {
+      if (length < 255) {
+        return getString(recordBuffer, length);
+      } else {
+        recordBuffer.position(recordBuffer.position() + 10);
+        return getMemo(length);
+      }
+    } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
+      return getNumber(recordBuffer, length);
+    } else if (type == DataTypes.BOOLEAN) {
+      return getBoolean(recordBuffer);
+    } else if (type == DataTypes.DATE_TIME) {
+      return getDate(recordBuffer, length);
+    } else {
+      recordBuffer.position(recordBuffer.position() + length);
+      return null;
     }
   }
 
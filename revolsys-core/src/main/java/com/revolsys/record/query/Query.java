@@ -5,7 +5,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -155,6 +154,8 @@ public class Query extends BaseObjectWithProperties
 
   private Cancellable cancellable;
 
+  private int fetchSize = 0;
+
   private RecordFactory<Record> recordFactory;
 
   private List<String> fieldNames = new ArrayList<>();
@@ -305,7 +306,7 @@ public class Query extends BaseObjectWithProperties
     final Query clone = (Query)super.clone();
     clone.fieldNames = new ArrayList<>(clone.fieldNames);
     clone.parameters = new ArrayList<>(this.parameters);
-    clone.orderBy = new HashMap<>(this.orderBy);
+    clone.orderBy = new LinkedHashMap<>(this.orderBy);
     if (this.whereCondition != null) {
       clone.whereCondition = this.whereCondition.clone();
     }
@@ -377,6 +378,16 @@ public class Query extends BaseObjectWithProperties
     }
   }
 
+  /**
+   * The number of rows to fetch from the server in each round trip. If 0 the default for the
+   * record store is used.
+   *
+   * @return The fetch size.
+   */
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public String getFromClause() {
     return this.fromClause;
   }
@@ -490,6 +501,15 @@ public class Query extends BaseObjectWithProperties
     return this;
   }
 
+  public Query setFetchSize(final int fetchSize) {
+    if (fetchSize < 0) {
+      this.fetchSize = 0;
+    } else {
+      this.fetchSize = fetchSize;
+    }
+    return this;
+  }
+
   public Query setFromClause(final String fromClause) {
     this.fromClause = fromClause;
     return this;
@@ -0,0 +1,137 @@
+package com.revolsys.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Convert decimal numbers to doubles without creating a String. The digits are accumulated in a
+ * long mantissa with a decimal exponent. If the mantissa and the power of 10 can be exactly
+ * represented as doubles the result of the multiplication or division is correctly rounded,
+ * otherwise the text must be parsed with {@link Double#parseDouble(String)}.
+ */
+public class DoubleParser {
+  /** The largest mantissa that can be exactly represented by a double. */
+  public static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  /** The powers of 10 that can be exactly represented by a double. */
+  private static final double[] POWERS_OF_10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  /**
+   * Check if {@link #toDouble(boolean, long, int)} returns the correctly rounded value of
+   * mantissa * 10^exponent.
+   *
+   * @param mantissa The mantissa, the digits must not have been truncated.
+   * @param exponent The decimal exponent.
+   * @return True if the value can be calculated exactly.
+   */
+  public static boolean isExact(final long mantissa, final int exponent) {
+    return mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22;
+  }
+
+  /**
+   * Parse the ASCII decimal number in bytes from start to end. Leading and trailing spaces are
+   * ignored. Numbers that can't be calculated exactly, or that aren't simple decimal numbers
+   * (e.g. NaN), are parsed with {@link Double#parseDouble(String)}.
+   *
+   * @param bytes The bytes.
+   * @param start The index of the first byte.
+   * @param end The index after the last byte.
+   * @return The double value.
+   * @throws NumberFormatException If the bytes aren't a valid number.
+   */
+  public static double parseDouble(final byte[] bytes, final int start, final int end) {
+    int index = start;
+    while (index < end && bytes[index] == ' ') {
+      index++;
+    }
+    boolean negative = false;
+    if (index < end && (bytes[index] == '-' || bytes[index] == '+')) {
+      negative = bytes[index] == '-';
+      index++;
+    }
+    long mantissa = 0;
+    int exponent = 0;
+    int digitCount = 0;
+    boolean exact = true;
+    while (index < end && bytes[index] >= '0' && bytes[index] <= '9') {
+      if (mantissa < MAX_EXACT_MANTISSA) {
+        mantissa = mantissa * 10 + bytes[index] - '0';
+      } else {
+        exact = false;
+      }
+      digitCount++;
+      index++;
+    }
+    if (index < end && bytes[index] == '.') {
+      index++;
+      while (index < end && bytes[index] >= '0' && bytes[index] <= '9') {
+        if (mantissa < MAX_EXACT_MANTISSA) {
+          mantissa = mantissa * 10 + bytes[index] - '0';
+          exponent--;
+        } else {
+          exact = false;
+        }
+        digitCount++;
+        index++;
+      }
+    }
+    if (index < end && (bytes[index] == 'e' || bytes[index] == 'E')) {
+      index++;
+      boolean negativeExponent = false;
+      if (index < end && (bytes[index] == '-' || bytes[index] == '+')) {
+        negativeExponent = bytes[index] == '-';
+        index++;
+      }
+      int exponentValue = 0;
+      int exponentDigitCount = 0;
+      while (index < end && bytes[index] >= '0' && bytes[index] <= '9') {
+        if (exponentValue < 10000) {
+          exponentValue = exponentValue * 10 + bytes[index] - '0';
+        }
+        exponentDigitCount++;
+        index++;
+      }
+      if (exponentDigitCount == 0) {
+        exact = false;
+      } else if (negativeExponent) {
+        exponent -= exponentValue;
+      } else {
+        exponent += exponentValue;
+      }
+    }
+    while (index < end && bytes[index] == ' ') {
+      index++;
+    }
+    if (exact && digitCount > 0 && index == end && isExact(mantissa, exponent)) {
+      return toDouble(negative, mantissa, exponent);
+    } else {
+      final String text = new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+      return Double.parseDouble(text);
+    }
+  }
+
+  /**
+   * Get the correctly rounded value of mantissa * 10^exponent. {@link #isExact(long, int)} must
+   * be true for the mantissa and exponent.
+   *
+   * @param negative True if the value is negative.
+   * @param mantissa The mantissa.
+   * @param exponent The decimal exponent.
+   * @return The double value.
+   */
+  public static double toDouble(final boolean negative, final long mantissa, final int exponent) {
+    double value;
+    if (exponent < 0) {
+      value = mantissa / POWERS_OF_10[-exponent];
+    } else {
+      value = mantissa * POWERS_OF_10[exponent];
+    }
+    if (negative) {
+      return -value;
+    } else {
+      return value;
+    }
+  }
+}
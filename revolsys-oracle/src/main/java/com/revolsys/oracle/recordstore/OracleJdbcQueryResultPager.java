@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Map;
 
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -37,12 +38,20 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
       final int pageSize = getPageSize();
       final int pageNumber = getPageNumber();
       if (pageNumber != -1) {
-        String sql = getSql();
-
-        final int startRowNum = (pageNumber - 1) * pageSize + 1;
-        final int endRowNum = startRowNum + pageSize - 1;
-        sql = "SELECT * FROM ( SELECT  T2.*, ROWNUM TROWNUM FROM ( " + sql
-          + ") T2 ) WHERE TROWNUM BETWEEN " + startRowNum + " AND " + endRowNum;
+        final Query keysetQuery = getKeysetQuery();
+        final Query pageQuery;
+        String sql;
+        if (keysetQuery == null) {
+          pageQuery = query;
+          final int startRowNum = (pageNumber - 1) * pageSize + 1;
+          final int endRowNum = startRowNum + pageSize - 1;
+          sql = "SELECT * FROM ( SELECT  T2.*, ROWNUM TROWNUM FROM ( " + getSql()
+            + ") T2 ) WHERE TROWNUM BETWEEN " + startRowNum + " AND " + endRowNum;
+        } else {
+          pageQuery = keysetQuery;
+          sql = "SELECT * FROM ( " + JdbcUtils.getSelectSql(keysetQuery) + ") WHERE ROWNUM <= "
+            + pageSize;
+        }
 
         try (
           final JdbcConnection connection = getRecordStore().getJdbcConnection()) {
@@ -51,7 +60,7 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
 
           try (
             final PreparedStatement statement = connection.prepareStatement(sql);
-            final ResultSet resultSet = recordStore.getResultSet(statement, getQuery());) {
+            final ResultSet resultSet = recordStore.getResultSet(statement, pageQuery);) {
             if (resultSet.next()) {
               int i = 0;
               do {
@@ -65,6 +74,7 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
             throw connection.getException("updateResults", sql, e);
           }
         }
+        setPageLastKey(results);
         setResults(results);
       }
     }
@@ -26,7 +26,10 @@ import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.field.JdbcFieldAdder;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
+import com.revolsys.jdbc.io.JdbcBatchBulkInsert;
+import com.revolsys.jdbc.io.JdbcBulkInsert;
 import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
 import com.revolsys.jdbc.io.RecordStoreIteratorFactory;
 import com.revolsys.oracle.recordstore.esri.ArcSdeStGeometryFieldDefinition;
 import com.revolsys.oracle.recordstore.esri.ArcSdeStGeometryRecordStoreExtension;
@@ -413,6 +416,16 @@ public class OracleRecordStore extends AbstractJdbcRecordStore {
     return new OracleJdbcQueryIterator((OracleRecordStore)recordStore, query, properties);
   }
 
+  /**
+   * The Oracle driver sends a JDBC batch as a single array DML call so a batched single row insert
+   * is used instead of a multiple row VALUES clause.
+   */
+  @Override
+  public JdbcBulkInsert newBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    return new JdbcBatchBulkInsert(writer, recordDefinition);
+  }
+
   @Override
   protected JdbcFieldDefinition newRowIdFieldDefinition() {
     return new OracleJdbcRowIdFieldDefinition();
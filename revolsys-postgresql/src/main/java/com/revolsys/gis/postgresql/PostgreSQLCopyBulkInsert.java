@@ -0,0 +1,395 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+import org.jeometry.common.date.Dates;
+import org.jeometry.common.exception.Exceptions;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.jdbc.PgConnection;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.io.JdbcBulkInsert;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
+import com.revolsys.record.Record;
+import com.revolsys.record.schema.FieldDefinition;
+
+/**
+ * Bulk insert records using <code>COPY table (columns) FROM STDIN (FORMAT BINARY)</code>. The
+ * records are encoded in the PostgreSQL binary copy format in memory and sent to the server in a
+ * single COPY on each flush.
+ * <p>
+ * The binary format requires the exact column type so the column types are read from the table.
+ * {@link #newBulkInsert(JdbcRecordWriter, JdbcRecordDefinition)} returns null if any column has a
+ * type that isn't supported.
+ * </p>
+ */
+public class PostgreSQLCopyBulkInsert extends JdbcBulkInsert {
+  private static final byte[] HEADER = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xff, '\r', '\n', 0
+  };
+
+  /** Days between 1970-01-01 and the PostgreSQL epoch 2000-01-01. */
+  private static final long POSTGRES_EPOCH_DAYS = 10957;
+
+  /** Microseconds between 1970-01-01 and the PostgreSQL epoch 2000-01-01. */
+  private static final long POSTGRES_EPOCH_MICROS = POSTGRES_EPOCH_DAYS * 86400L * 1000000L;
+
+  private static final BigInteger TEN_THOUSAND = BigInteger.valueOf(10000);
+
+  private static String[] getColumnTypes(final JdbcConnection connection,
+    final JdbcRecordDefinition recordDefinition, final String columnNames) throws SQLException {
+    final String sql = "select " + columnNames + " from "
+      + recordDefinition.getDbTableQualifiedName() + " where 1 = 0";
+    try (
+      PreparedStatement statement = connection.prepareStatement(sql);
+      ResultSet resultSet = statement.executeQuery()) {
+      final ResultSetMetaData metaData = resultSet.getMetaData();
+      final int columnCount = metaData.getColumnCount();
+      final String[] columnTypes = new String[columnCount];
+      for (int i = 0; i < columnCount; i++) {
+        columnTypes[i] = metaData.getColumnTypeName(i + 1).toLowerCase();
+      }
+      return columnTypes;
+    }
+  }
+
+  private static boolean isSupported(final String columnType) {
+    switch (columnType) {
+      case "int2":
+      case "int4":
+      case "int8":
+      case "float4":
+      case "float8":
+      case "numeric":
+      case "bool":
+      case "text":
+      case "varchar":
+      case "bpchar":
+      case "name":
+      case "date":
+      case "timestamp":
+      case "timestamptz":
+      case "bytea":
+      case "uuid":
+      case "geometry":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Construct a new COPY bulk insert for the table.
+   *
+   * @param writer The writer.
+   * @param recordDefinition The table to insert into.
+   * @return The bulk insert or null if the table has a column type not supported by COPY BINARY.
+   */
+  public static PostgreSQLCopyBulkInsert newBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    final PostgreSQLCopyBulkInsert bulkInsert = new PostgreSQLCopyBulkInsert(writer,
+      recordDefinition);
+    final List<FieldDefinition> fields = bulkInsert.getFields();
+    try {
+      final String[] columnTypes = getColumnTypes(bulkInsert.connection, recordDefinition,
+        bulkInsert.columnNames);
+      if (columnTypes.length != fields.size()) {
+        return null;
+      }
+      for (final String columnType : columnTypes) {
+        if (!isSupported(columnType)) {
+          return null;
+        }
+      }
+      bulkInsert.columnTypes = columnTypes;
+      return bulkInsert;
+    } catch (final SQLException e) {
+      throw bulkInsert.connection.getException("Bulk Insert", bulkInsert.getSql(), e);
+    }
+  }
+
+  private static void writeBytes(final DataOutputStream out, final byte[] bytes)
+    throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Write the geometry as a length prefixed EWKB value. Empty geometries are written as empty EWKB
+   * as for the non-COPY insert.
+   *
+   * @param out The output to write to.
+   * @param field The geometry field.
+   * @param value The geometry.
+   * @throws IOException If the value could not be written.
+   */
+  public static void writeGeometry(final DataOutputStream out, final FieldDefinition field,
+    final Geometry value) throws IOException {
+    final GeometryFactory geometryFactory = field.getGeometryFactory();
+    Geometry geometry = value;
+    if (geometryFactory != null) {
+      geometry = geometry.convertGeometry(geometryFactory);
+    }
+    final int axisCount = geometry.getAxisCount();
+    final int srid = geometry.getHorizontalCoordinateSystemId();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream geometryOut = new DataOutputStream(bytes);
+    PostgreSQLEwkbWriter.write(geometryOut, field.getDataType(), geometry, axisCount, srid);
+    geometryOut.flush();
+    writeBytes(out, bytes.toByteArray());
+  }
+
+  /**
+   * Write a numeric in the binary format: ndigits, weight, sign, dscale followed by the base 10000
+   * digits.
+   */
+  private static void writeNumeric(final DataOutputStream out, final BigDecimal value)
+    throws IOException {
+    final BigDecimal number = value.scale() < 0 ? value.setScale(0) : value;
+    final int scale = number.scale();
+    final int sign = number.signum() < 0 ? 0x4000 : 0x0000;
+    BigInteger unscaled = number.unscaledValue().abs();
+    // Align the fractional digits to a multiple of 4 so the base 10000 digits split on the point
+    final int fractionGroups = (scale + 3) / 4;
+    unscaled = unscaled.multiply(BigInteger.TEN.pow(fractionGroups * 4 - scale));
+    final short[] digits = new short[unscaled.bitLength() / 13 + 2];
+    int digitCount = 0;
+    while (unscaled.signum() != 0) {
+      final BigInteger[] divRem = unscaled.divideAndRemainder(TEN_THOUSAND);
+      digits[digitCount++] = divRem[1].shortValue();
+      unscaled = divRem[0];
+    }
+    int weight = digitCount - fractionGroups - 1;
+    int start = 0;
+    while (start < digitCount && digits[start] == 0) {
+      start++;
+    }
+    int end = digitCount;
+    while (end > start && digits[end - 1] == 0) {
+      end--;
+      weight--;
+    }
+    final int ndigits = end - start;
+    if (ndigits == 0) {
+      weight = 0;
+    }
+    out.writeInt(8 + ndigits * 2);
+    out.writeShort(ndigits);
+    out.writeShort(weight);
+    out.writeShort(sign);
+    out.writeShort(scale);
+    for (int i = end - 1; i >= start; i--) {
+      out.writeShort(digits[i]);
+    }
+  }
+
+  /**
+   * Write the value in the binary COPY format for the column type, a length followed by the
+   * bytes or a length of -1 for null. The value is converted to the field's data type first.
+   *
+   * @param out The output to write to.
+   * @param field The field.
+   * @param columnType The PostgreSQL type name of the column.
+   * @param fieldValue The value to write.
+   * @throws IOException If the value could not be written.
+   * @throws IllegalArgumentException If the value for a geometry column is not a geometry.
+   */
+  public static void writeValue(final DataOutputStream out, final FieldDefinition field,
+    final String columnType, final Object fieldValue) throws IOException {
+    final Object value = field.toFieldValue(fieldValue);
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      switch (columnType) {
+        case "int2":
+          out.writeInt(2);
+          out.writeShort(((Number)value).shortValue());
+        break;
+        case "int4":
+          out.writeInt(4);
+          out.writeInt(((Number)value).intValue());
+        break;
+        case "int8":
+          out.writeInt(8);
+          out.writeLong(((Number)value).longValue());
+        break;
+        case "float4":
+          out.writeInt(4);
+          out.writeFloat(((Number)value).floatValue());
+        break;
+        case "float8":
+          out.writeInt(8);
+          out.writeDouble(((Number)value).doubleValue());
+        break;
+        case "numeric":
+          if (value instanceof BigDecimal) {
+            writeNumeric(out, (BigDecimal)value);
+          } else {
+            writeNumeric(out, new BigDecimal(value.toString()));
+          }
+        break;
+        case "bool":
+          out.writeInt(1);
+          if (value instanceof Boolean) {
+            out.writeByte((Boolean)value ? 1 : 0);
+          } else {
+            out.writeByte(Boolean.parseBoolean(value.toString()) ? 1 : 0);
+          }
+        break;
+        case "date": {
+          final LocalDate date = Dates.getSqlDate(value).toLocalDate();
+          out.writeInt(4);
+          out.writeInt((int)(date.toEpochDay() - POSTGRES_EPOCH_DAYS));
+        }
+        break;
+        case "timestamp": {
+          final LocalDateTime dateTime = Dates.getTimestamp(value).toLocalDateTime();
+          final Instant instant = dateTime.toInstant(ZoneOffset.UTC);
+          writeTimestamp(out, instant);
+        }
+        break;
+        case "timestamptz": {
+          final Instant instant = Dates.getTimestamp(value).toInstant();
+          writeTimestamp(out, instant);
+        }
+        break;
+        case "bytea":
+          if (value instanceof byte[]) {
+            writeBytes(out, (byte[])value);
+          } else {
+            writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+          }
+        break;
+        case "uuid": {
+          final UUID uuid;
+          if (value instanceof UUID) {
+            uuid = (UUID)value;
+          } else {
+            uuid = UUID.fromString(value.toString());
+          }
+          out.writeInt(16);
+          out.writeLong(uuid.getMostSignificantBits());
+          out.writeLong(uuid.getLeastSignificantBits());
+        }
+        break;
+        case "geometry":
+          if (value instanceof Geometry) {
+            writeGeometry(out, field, (Geometry)value);
+          } else {
+            final Object geometry = field.toFieldValueException(value);
+            if (geometry instanceof Geometry) {
+              writeGeometry(out, field, (Geometry)geometry);
+            } else {
+              throw new IllegalArgumentException(
+                field.getName() + "=" + value + " cannot be converted to a geometry");
+            }
+          }
+        break;
+        default:
+          writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+        break;
+      }
+    }
+  }
+
+  private static void writeTimestamp(final DataOutputStream out, final Instant instant)
+    throws IOException {
+    final long micros = instant.getEpochSecond() * 1000000L + instant.getNano() / 1000;
+    out.writeInt(8);
+    out.writeLong(micros - POSTGRES_EPOCH_MICROS);
+  }
+
+  /** The encoded rows of the complete records inserted since the last flush. */
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+  private final String columnNames;
+
+  private String[] columnTypes;
+
+  private final DataOutputStream out = new DataOutputStream(this.buffer);
+
+  /** The row being encoded, only appended to the buffer once all the values are written. */
+  private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+
+  private final DataOutputStream rowOut = new DataOutputStream(this.rowBuffer);
+
+  private final String sql;
+
+  private PostgreSQLCopyBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    super(writer, recordDefinition);
+    final StringBuilder columnNames = new StringBuilder();
+    appendColumnNames(columnNames);
+    this.columnNames = columnNames.toString();
+    this.sql = "COPY " + recordDefinition.getDbTableQualifiedName() + " (" + this.columnNames
+      + ") FROM STDIN (FORMAT BINARY)";
+  }
+
+  @Override
+  protected void flushDo() throws SQLException {
+    try {
+      this.out.writeShort(-1);
+      this.out.flush();
+      final PgConnection pgConnection = this.connection.unwrap(PgConnection.class);
+      final CopyManager copyManager = pgConnection.getCopyAPI();
+      copyManager.copyIn(this.sql, new ByteArrayInputStream(this.buffer.toByteArray()));
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    } finally {
+      this.buffer.reset();
+    }
+  }
+
+  @Override
+  public String getSql() {
+    return this.sql;
+  }
+
+  @Override
+  protected void insertRecordDo(final Record record) throws SQLException {
+    try {
+      final DataOutputStream rowOut = this.rowOut;
+      final List<FieldDefinition> fields = getFields();
+      final int fieldCount = fields.size();
+      rowOut.writeShort(fieldCount);
+      for (int i = 0; i < fieldCount; i++) {
+        final FieldDefinition field = fields.get(i);
+        final Object value = record.getValue(field.getIndex());
+        writeValue(rowOut, field, this.columnTypes[i], value);
+      }
+      rowOut.flush();
+
+      final DataOutputStream out = this.out;
+      if (this.buffer.size() == 0) {
+        out.write(HEADER);
+        out.writeInt(0);
+        out.writeInt(0);
+      }
+      this.rowBuffer.writeTo(out);
+    } catch (final IOException e) {
+      throw Exceptions.wrap(e);
+    } finally {
+      this.rowBuffer.reset();
+    }
+  }
+}
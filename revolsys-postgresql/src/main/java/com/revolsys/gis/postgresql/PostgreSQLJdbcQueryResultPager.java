@@ -8,6 +8,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -35,10 +36,17 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
         final int pageSize = getPageSize();
         final int pageNumber = getPageNumber();
         if (pageNumber != -1) {
-          String sql = getSql();
-
-          final int startRowNum = (pageNumber - 1) * pageSize;
-          sql = getSql() + " OFFSET " + startRowNum + " LIMIT " + pageSize;
+          final Query keysetQuery = getKeysetQuery();
+          Query query;
+          String sql;
+          if (keysetQuery == null) {
+            query = getQuery();
+            final int startRowNum = (pageNumber - 1) * pageSize;
+            sql = getSql() + " OFFSET " + startRowNum + " LIMIT " + pageSize;
+          } else {
+            query = keysetQuery;
+            sql = JdbcUtils.getSelectSql(keysetQuery) + " LIMIT " + pageSize;
+          }
 
           final RecordDefinition recordDefinition = getRecordDefinition();
           if (recordDefinition != null) {
@@ -49,7 +57,7 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
 
               try (
                 final PreparedStatement statement = connection.prepareStatement(sql);
-                final ResultSet resultSet = recordStore.getResultSet(statement, getQuery());) {
+                final ResultSet resultSet = recordStore.getResultSet(statement, query);) {
                 if (resultSet.next()) {
                   int i = 0;
                   do {
@@ -64,6 +72,7 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
               }
             }
           }
+          setPageLastKey(results);
         }
         this.results = results;
       }
@@ -13,6 +13,8 @@ import org.jeometry.common.data.identifier.Identifier;
 import org.jeometry.common.data.type.CollectionDataType;
 import org.jeometry.common.data.type.DataType;
 import org.jeometry.common.data.type.DataTypes;
+import org.postgresql.core.Oid;
+import org.postgresql.core.QueryExecutor;
 import org.postgresql.jdbc.PgConnection;
 
 import com.revolsys.collection.ResultPager;
@@ -30,8 +32,10 @@ import com.revolsys.jdbc.field.JdbcFieldAdder;
 import com.revolsys.jdbc.field.JdbcFieldDefinition;
 import com.revolsys.jdbc.io.AbstractJdbcDatabaseFactory;
 import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
+import com.revolsys.jdbc.io.JdbcBulkInsert;
 import com.revolsys.jdbc.io.JdbcRecordDefinition;
 import com.revolsys.jdbc.io.JdbcRecordStoreSchema;
+import com.revolsys.jdbc.io.JdbcRecordWriter;
 import com.revolsys.jdbc.io.RecordStoreIteratorFactory;
 import com.revolsys.record.ArrayRecord;
 import com.revolsys.record.Record;
@@ -56,6 +60,8 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryIterator((PostgreSQLRecordStore)recordStore, query, properties);
   }
 
+  private boolean useBinaryGeometry = true;
+
   private boolean useSchemaSequencePrefix = true;
 
   public PostgreSQLRecordStore() {
@@ -167,6 +173,14 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
       pgConnection.addDataType("box2d", PostgreSQLBoundingBoxWrapper.class);
       pgConnection.addDataType("box3d", PostgreSQLBoundingBoxWrapper.class);
       pgConnection.addDataType("tid", PostgreSQLTidWrapper.class);
+      if (this.useBinaryGeometry) {
+        final int geometryOid = pgConnection.getTypeInfo().getPGType("geometry");
+        if (geometryOid != Oid.UNSPECIFIED) {
+          final QueryExecutor queryExecutor = pgConnection.getQueryExecutor();
+          queryExecutor.addBinarySendOid(geometryOid);
+          queryExecutor.addBinaryReceiveOid(geometryOid);
+        }
+      }
     } catch (final SQLException e) {
       // TODO Auto-generated catch block
       e.printStackTrace();
@@ -303,6 +317,14 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return connection.prepareStatement(sql, idColumnNames);
   }
 
+  /**
+   * The PostgreSQL driver only uses a cursor to fetch rows in batches if auto commit is off.
+   */
+  @Override
+  public boolean isFetchSizeRequiresTransaction() {
+    return true;
+  }
+
   @Override
   public boolean isIdFieldRowid(final RecordDefinition recordDefinition) {
     final List<FieldDefinition> idFields = recordDefinition.getIdFields();
@@ -320,10 +342,37 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return POSTGRESQL_INTERNAL_SCHEMAS.contains(schemaName);
   }
 
+  /**
+   * Check if geometry values are sent and received as binary EWKB. The driver only receives
+   * binary values for server prepared statements (see the prepareThreshold connection
+   * property), other results are received as hex EWKB text.
+   *
+   * @return True if binary EWKB is used.
+   */
+  public boolean isUseBinaryGeometry() {
+    return this.useBinaryGeometry;
+  }
+
   public boolean isUseSchemaSequencePrefix() {
     return this.useSchemaSequencePrefix;
   }
 
+  /**
+   * Use COPY FROM STDIN in the binary format if all the column types are supported, otherwise a
+   * multiple row insert.
+   */
+  @Override
+  public JdbcBulkInsert newBulkInsert(final JdbcRecordWriter writer,
+    final JdbcRecordDefinition recordDefinition) {
+    final JdbcBulkInsert bulkInsert = PostgreSQLCopyBulkInsert.newBulkInsert(writer,
+      recordDefinition);
+    if (bulkInsert == null) {
+      return super.newBulkInsert(writer, recordDefinition);
+    } else {
+      return bulkInsert;
+    }
+  }
+
   @Override
   protected JdbcFieldDefinition newRowIdFieldDefinition() {
     return new PostgreSQLOidFieldDefinition();
@@ -334,6 +383,10 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryResultPager(this, getProperties(), query);
   }
 
+  public void setUseBinaryGeometry(final boolean useBinaryGeometry) {
+    this.useBinaryGeometry = useBinaryGeometry;
+  }
+
   public void setUseSchemaSequencePrefix(final boolean useSchemaSequencePrefix) {
     this.useSchemaSequencePrefix = useSchemaSequencePrefix;
   }
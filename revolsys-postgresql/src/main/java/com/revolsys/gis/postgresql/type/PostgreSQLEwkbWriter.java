@@ -0,0 +1,176 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.jeometry.common.data.type.DataType;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Lineal;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.model.Punctual;
+
+/**
+ * Write geometries in the big endian PostGIS Extended Well-Known Binary (EWKB) format. This is
+ * the binary send/receive format for the geometry type so it can be used for COPY BINARY and
+ * binary parameters. Single part geometries are written as a multi part geometry with one part if
+ * the column's data type is a multi part type. Polygon shells are written counter-clockwise and
+ * holes clockwise.
+ */
+public class PostgreSQLEwkbWriter {
+  private static final int FLAG_M = 0x40000000;
+
+  private static final int FLAG_SRID = 0x20000000;
+
+  private static final int FLAG_Z = 0x80000000;
+
+  private static final int GEOMETRY_COLLECTION = 7;
+
+  private static final int LINE_STRING = 2;
+
+  private static final int MULTI_LINE_STRING = 5;
+
+  private static final int MULTI_POINT = 4;
+
+  private static final int MULTI_POLYGON = 6;
+
+  private static final int POINT = 1;
+
+  private static final int POLYGON = 3;
+
+  /**
+   * Write the geometry as EWKB.
+   *
+   * @param out The output to write to.
+   * @param dataType The data type of the column.
+   * @param geometry The geometry (already converted to the column's geometry factory).
+   * @param axisCount The number of axis to write 2 (x,y), 3 (x,y,z) or 4 (x,y,z,m).
+   * @param srid The coordinate system id to include, 0 to exclude the SRID.
+   * @throws IOException If the geometry could not be written.
+   */
+  public static void write(final DataOutput out, final DataType dataType, final Geometry geometry,
+    final int axisCount, final int srid) throws IOException {
+    int sridFlag = 0;
+    if (srid > 0) {
+      sridFlag = FLAG_SRID;
+    }
+    if (dataType == GeometryDataTypes.MULTI_POINT && geometry instanceof Point) {
+      writeHeader(out, MULTI_POINT, axisCount, sridFlag, srid);
+      writeMultiPart(out, geometry, axisCount);
+    } else if (dataType == GeometryDataTypes.MULTI_LINE_STRING && geometry instanceof LineString) {
+      writeHeader(out, MULTI_LINE_STRING, axisCount, sridFlag, srid);
+      writeMultiPart(out, geometry, axisCount);
+    } else if (dataType == GeometryDataTypes.MULTI_POLYGON && geometry instanceof Polygon) {
+      writeHeader(out, MULTI_POLYGON, axisCount, sridFlag, srid);
+      writeMultiPart(out, geometry, axisCount);
+    } else {
+      writeGeometry(out, geometry, axisCount, sridFlag, srid);
+    }
+  }
+
+  private static void writeCoordinates(final DataOutput out, final LineString line,
+    final int axisCount) throws IOException {
+    final int vertexCount = line.getVertexCount();
+    out.writeInt(vertexCount);
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        out.writeDouble(line.getCoordinate(vertexIndex, axisIndex));
+      }
+    }
+  }
+
+  private static void writeCoordinatesReverse(final DataOutput out, final LineString line,
+    final int axisCount) throws IOException {
+    final int vertexCount = line.getVertexCount();
+    out.writeInt(vertexCount);
+    for (int vertexIndex = vertexCount - 1; vertexIndex >= 0; vertexIndex--) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        out.writeDouble(line.getCoordinate(vertexIndex, axisIndex));
+      }
+    }
+  }
+
+  private static void writeGeometry(final DataOutput out, final Geometry geometry,
+    final int axisCount, final int sridFlag, final int srid) throws IOException {
+    if (geometry instanceof Point) {
+      final Point point = (Point)geometry;
+      writeHeader(out, POINT, axisCount, sridFlag, srid);
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        if (point.isEmpty()) {
+          out.writeDouble(Double.NaN);
+        } else {
+          out.writeDouble(point.getCoordinate(axisIndex));
+        }
+      }
+    } else if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      writeHeader(out, LINE_STRING, axisCount, sridFlag, srid);
+      writeCoordinates(out, line, axisCount);
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      writeHeader(out, POLYGON, axisCount, sridFlag, srid);
+      final int ringCount = polygon.getRingCount();
+      out.writeInt(ringCount);
+      for (int ringIndex = 0; ringIndex < ringCount; ringIndex++) {
+        final LineString ring = polygon.getRing(ringIndex);
+        // The shell must be counter-clockwise and the holes clockwise
+        if (ring.isClockwise() == (ringIndex == 0)) {
+          writeCoordinatesReverse(out, ring, axisCount);
+        } else {
+          writeCoordinates(out, ring, axisCount);
+        }
+      }
+    } else {
+      final int geometryType;
+      if (geometry instanceof Punctual) {
+        geometryType = MULTI_POINT;
+      } else if (geometry instanceof Lineal) {
+        geometryType = MULTI_LINE_STRING;
+      } else if (geometry instanceof Polygonal) {
+        geometryType = MULTI_POLYGON;
+      } else {
+        geometryType = GEOMETRY_COLLECTION;
+      }
+      writeHeader(out, geometryType, axisCount, sridFlag, srid);
+      final int geometryCount = geometry.getGeometryCount();
+      out.writeInt(geometryCount);
+      for (int partIndex = 0; partIndex < geometryCount; partIndex++) {
+        final Geometry part = geometry.getGeometry(partIndex);
+        writeGeometry(out, part, axisCount, 0, 0);
+      }
+    }
+  }
+
+  private static void writeHeader(final DataOutput out, final int geometryType,
+    final int axisCount, final int sridFlag, final int srid) throws IOException {
+    int typeInt = geometryType | sridFlag;
+    if (axisCount > 2) {
+      typeInt |= FLAG_Z;
+    }
+    if (axisCount > 3) {
+      typeInt |= FLAG_M;
+    }
+    out.writeByte(0);
+    out.writeInt(typeInt);
+    if (sridFlag != 0) {
+      out.writeInt(srid);
+    }
+  }
+
+  /**
+   * Write a single geometry as the only part of a multi geometry, an empty geometry has no parts.
+   */
+  private static void writeMultiPart(final DataOutput out, final Geometry geometry,
+    final int axisCount) throws IOException {
+    if (geometry.isEmpty()) {
+      out.writeInt(0);
+    } else {
+      out.writeInt(1);
+      writeGeometry(out, geometry, axisCount, 0, 0);
+    }
+  }
+}
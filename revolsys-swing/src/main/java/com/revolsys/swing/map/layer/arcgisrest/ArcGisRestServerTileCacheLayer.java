@@ -111,9 +111,8 @@ public class ArcGisRestServerTileCacheLayer
     return this.mapService;
   }
 
-  @Override
-  public List<ArcGisRestServerTileCacheMapTile> getOverlappingMapTiles(
-    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+  private List<ArcGisRestServerTileCacheMapTile> getMapTiles(final ViewRenderer view,
+    final int ring) {
     final List<ArcGisRestServerTileCacheMapTile> tiles = new ArrayList<>();
     final MapService mapService = getMapService();
     if (mapService != null) {
@@ -137,11 +136,23 @@ public class ArcGisRestServerTileCacheLayer
           final int maxTileX = mapService.getTileX(zoomLevel, maxX);
           final int maxTileY = mapService.getTileY(zoomLevel, minY);
 
-          for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-              final ArcGisRestServerTileCacheMapTile tile = new ArcGisRestServerTileCacheMapTile(
-                this, mapService, zoomLevel, resolution, tileX, tileY);
-              tiles.add(tile);
+          // Limit the ring of tiles around the view to the tiles in the layer's bounding box
+          final int firstTileX = Math.max(minTileX - ring,
+            mapService.getTileX(zoomLevel, maxBoundingBox.getMinX()));
+          final int firstTileY = Math.max(minTileY - ring,
+            mapService.getTileY(zoomLevel, maxBoundingBox.getMaxY()));
+          final int lastTileX = Math.min(maxTileX + ring,
+            mapService.getTileX(zoomLevel, maxBoundingBox.getMaxX()));
+          final int lastTileY = Math.min(maxTileY + ring,
+            mapService.getTileY(zoomLevel, maxBoundingBox.getMinY()));
+          for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+            for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+              if (ring == 0 || tileX < minTileX || tileX > maxTileX || tileY < minTileY
+                || tileY > maxTileY) {
+                final ArcGisRestServerTileCacheMapTile tile = new ArcGisRestServerTileCacheMapTile(
+                  this, mapService, zoomLevel, resolution, tileX, tileY);
+                tiles.add(tile);
+              }
             }
           }
         }
@@ -152,6 +163,18 @@ public class ArcGisRestServerTileCacheLayer
     return tiles;
   }
 
+  @Override
+  public List<ArcGisRestServerTileCacheMapTile> getOverlappingMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    return getMapTiles(view, 0);
+  }
+
+  @Override
+  public List<ArcGisRestServerTileCacheMapTile> getPrefetchMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    return getMapTiles(view, 1);
+  }
+
   @Override
   public double getResolution(final ViewRenderer view) {
     final MapService mapService = getMapService();
@@ -18,6 +18,8 @@ import com.revolsys.geometry.model.Point;
 import com.revolsys.raster.BufferedGeoreferencedImage;
 import com.revolsys.raster.BufferedImages;
 import com.revolsys.raster.GeoreferencedImage;
+import com.revolsys.raster.tile.TileCache;
+import com.revolsys.raster.tile.TileSource;
 import com.revolsys.record.io.format.json.Json;
 import com.revolsys.spring.resource.UrlResource;
 import com.revolsys.util.Property;
@@ -42,6 +44,10 @@ public class BingClient {
 
   private final Map<ImagerySet, Map<String, Object>> recordDefinitionCache = new HashMap<>();
 
+  private TileCache tileCache;
+
+  private TileSource tileSource;
+
   public BingClient() {
     this(null);
   }
@@ -146,14 +152,33 @@ public class BingClient {
     return newBufferedImage(bufferedImage, minX, minY, imageWidth, imageHeight, resolution);
   }
 
-  public BufferedImage getMapImage(final ImagerySet imagerySet, final MapLayer mapLayer,
+  public BufferedImage getMapImage(ImagerySet imagerySet, final MapLayer mapLayer,
     final String quadKey) {
-    final String url = getMapUrl(imagerySet, mapLayer, quadKey);
-    if (url == null) {
-      return null;
-    } else {
-      return BufferedImages.readImageIo(url);
+    if (imagerySet == null) {
+      imagerySet = ImagerySet.Aerial;
+    }
+    final int zoomLevel = quadKey.length();
+    int tileX = 0;
+    int tileY = 0;
+    for (int i = 0; i < zoomLevel; i++) {
+      final int digit = quadKey.charAt(i) - '0';
+      tileX = tileX << 1 | digit & 1;
+      tileY = tileY << 1 | digit >> 1;
+    }
+    final String layerKey = "bing/" + imagerySet + "/" + mapLayer;
+    TileSource tileSource = this.tileSource;
+    if (tileSource == null) {
+      final ImagerySet tileImagerySet = imagerySet;
+      tileSource = (tileZoomLevel, tileXIndex, tileYIndex) -> {
+        final String url = getMapUrl(tileImagerySet, mapLayer, quadKey);
+        if (url == null) {
+          return null;
+        } else {
+          return TileSource.readUrl(url);
+        }
+      };
     }
+    return getTileCache().getImage(layerKey, zoomLevel, tileX, tileY, tileSource);
   }
 
   public BufferedImage getMapImage(final ImagerySet imagerySet, final MapLayer mapLayer,
@@ -279,6 +304,18 @@ public class BingClient {
     return METRES_PER_PIXEL[zoomIndex];
   }
 
+  public TileCache getTileCache() {
+    if (this.tileCache == null) {
+      return TileCache.getDefault();
+    } else {
+      return this.tileCache;
+    }
+  }
+
+  public TileSource getTileSource() {
+    return this.tileSource;
+  }
+
   public int getTileX(final int zoomLevel, final double longitude) {
     final double ratio = (longitude + 180) / 360;
     int tileX = (int)Math.floor(ratio * (1 << zoomLevel));
@@ -327,4 +364,18 @@ public class BingClient {
   private MapEx newParameterMap() {
     return new LinkedHashMapEx("key", this.bingMapsKey);
   }
+
+  public void setTileCache(final TileCache tileCache) {
+    this.tileCache = tileCache;
+  }
+
+  /**
+   * Set the source the tiles are read from instead of the Bing servers (e.g. an offline
+   * {@link TileSource#directory(java.nio.file.Path, String)}).
+   *
+   * @param tileSource The tile source, null to read from the Bing servers.
+   */
+  public void setTileSource(final TileSource tileSource) {
+    this.tileSource = tileSource;
+  }
 }
@@ -71,9 +71,7 @@ public class BingTiledLayer extends AbstractTiledGeoreferencedImageLayer<BingMap
     return this.mapLayer;
   }
 
-  @Override
-  public List<BingMapTile> getOverlappingMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
-    final ViewRenderer view) {
+  private List<BingMapTile> getMapTiles(final ViewRenderer view, final int ring) {
     final List<BingMapTile> tiles = new ArrayList<>();
     try {
       final double metresPerPixel = view.getMetresPerPixel();
@@ -94,12 +92,18 @@ public class BingTiledLayer extends AbstractTiledGeoreferencedImageLayer<BingMap
       final int maxTileX = client.getTileX(zoomLevel, maxX);
       final int maxTileY = client.getTileY(zoomLevel, minY);
 
-      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-          final String quadKey = client.getQuadKey(zoomLevel, tileX, tileY);
-          final BoundingBox boundingBox = client.getBoundingBox(zoomLevel, tileX, tileY);
-          final BingMapTile tile = new BingMapTile(this, boundingBox, quadKey, resolution);
-          tiles.add(tile);
+      final int maxTileIndex = (1 << zoomLevel) - 1;
+      for (int tileY = Math.max(0, minTileY - ring); tileY <= Math.min(maxTileIndex,
+        maxTileY + ring); tileY++) {
+        for (int tileX = Math.max(0, minTileX - ring); tileX <= Math.min(maxTileIndex,
+          maxTileX + ring); tileX++) {
+          if (ring == 0 || tileX < minTileX || tileX > maxTileX || tileY < minTileY
+            || tileY > maxTileY) {
+            final String quadKey = client.getQuadKey(zoomLevel, tileX, tileY);
+            final BoundingBox boundingBox = client.getBoundingBox(zoomLevel, tileX, tileY);
+            final BingMapTile tile = new BingMapTile(this, boundingBox, quadKey, resolution);
+            tiles.add(tile);
+          }
         }
       }
 
@@ -109,6 +113,18 @@ public class BingTiledLayer extends AbstractTiledGeoreferencedImageLayer<BingMap
     return tiles;
   }
 
+  @Override
+  public List<BingMapTile> getOverlappingMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
+    final ViewRenderer view) {
+    return getMapTiles(view, 0);
+  }
+
+  @Override
+  public List<BingMapTile> getPrefetchMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
+    final ViewRenderer view) {
+    return getMapTiles(view, 1);
+  }
+
   @Override
   public double getResolution(final ViewRenderer view) {
     final double metresPerPixel = view.getMetresPerPixel();
@@ -211,8 +211,7 @@ public class RasterizerGriddedElevationModelLayerRenderer
             }
             view.drawImage(image, true, this.opacity, null);
           } else if (!this.redrawInBackground || !view.isBackgroundDrawingEnabled()) {
-            this.rasterizer.rasterize(image);
-            view.drawImage(image, true, this.opacity, null);
+            renderVisible(view, elevationModel);
           } else if (this.image.hasImage() && !(this.image.isCached() && this.redraw)) {
             view.drawImage(this.image, true, this.opacity, null);
           } else {
@@ -239,6 +238,32 @@ public class RasterizerGriddedElevationModelLayerRenderer
     }
   }
 
+  /**
+   * Render only the part of the elevation model that is visible in the view, at the view's
+   * resolution or at the grid resolution if that is coarser.
+   */
+  private void renderVisible(final ViewRenderer view, final GriddedElevationModel elevationModel) {
+    final BoundingBox viewBoundingBox = view.getBoundingBox().bboxToCs(elevationModel);
+    final BoundingBox visibleBoundingBox = viewBoundingBox.bboxIntersection(elevationModel);
+    if (!visibleBoundingBox.isEmpty()) {
+      final double visibleWidth = visibleBoundingBox.getWidth();
+      final double visibleHeight = visibleBoundingBox.getHeight();
+      final int imageWidth = (int)Math.min(
+        Math.ceil(view.getViewWidthPixels() * visibleWidth / viewBoundingBox.getWidth()),
+        Math.ceil(visibleWidth / elevationModel.getGridCellWidth()));
+      final int imageHeight = (int)Math.min(
+        Math.ceil(view.getViewHeightPixels() * visibleHeight / viewBoundingBox.getHeight()),
+        Math.ceil(visibleHeight / elevationModel.getGridCellHeight()));
+      if (imageWidth > 0 && imageHeight > 0) {
+        final BufferedImage bufferedImage = this.rasterizer.rasterize(visibleBoundingBox,
+          imageWidth, imageHeight);
+        final BufferedGeoreferencedImage visibleImage = new BufferedGeoreferencedImage(
+          visibleBoundingBox, bufferedImage);
+        view.drawImage(visibleImage, true, this.opacity, null);
+      }
+    }
+  }
+
   @Override
   public void setElevationModel(final GriddedElevationModel elevationModel) {
     super.setElevationModel(elevationModel);
@@ -27,7 +27,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CancellationException;
-import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -53,8 +52,6 @@ import com.revolsys.collection.map.MapEx;
 import com.revolsys.collection.map.Maps;
 import com.revolsys.collection.set.Sets;
 import com.revolsys.geometry.index.RecordSpatialIndex;
-import com.revolsys.geometry.index.SpatialIndex;
-import com.revolsys.geometry.index.rstartree.RStarTree;
 import com.revolsys.geometry.io.GeometryReader;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.Geometry;
@@ -150,7 +147,7 @@ import com.revolsys.util.Property;
 public abstract class AbstractRecordLayer extends AbstractLayer
   implements AddGeometryCompleteAction, RecordLayerProxy, RecordLayerFieldUiFactory {
   private class RecordCacheIndex extends RecordCacheDelegating {
-    private RecordSpatialIndex<LayerRecord> index;
+    private volatile RecordSpatialIndex<LayerRecord> index;
 
     public RecordCacheIndex(final String cacheId) {
       super(newRecordCacheDo(cacheId));
@@ -200,20 +197,25 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     }
 
     private RecordSpatialIndex<LayerRecord> getIndex() {
-      synchronized (getRecordCacheSync()) {
-        RecordSpatialIndex<LayerRecord> index = this.index;
-        if (index == null) {
-          final RecordSpatialIndex<LayerRecord> newIndex = newSpatialIndex();
-          this.index = index = newIndex;
-          final Consumer<LayerRecord> action = record -> {
-            if (!isDeleted(record)) {
-              newIndex.addRecord(record);
-            }
-          };
-          forEachRecord(action);
+      RecordSpatialIndex<LayerRecord> index = this.index;
+      if (index == null) {
+        synchronized (getRecordCacheSync()) {
+          index = this.index;
+          if (index == null) {
+            final List<LayerRecord> records = new ArrayList<>();
+            final Consumer<LayerRecord> action = record -> {
+              if (!isDeleted(record)) {
+                records.add(record);
+              }
+            };
+            forEachRecord(action);
+            index = newSpatialIndex();
+            index.addRecords(records);
+            this.index = index;
+          }
         }
-        return index;
       }
+      return index;
     }
 
     @SuppressWarnings({
@@ -222,9 +224,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
     public <R extends LayerRecord> List<R> getRecords(final BoundingBox boundingBox) {
       final RecordSpatialIndex<LayerRecord> index = getIndex();
       if (index != null) {
-        synchronized (index) {
-          return (List)index.queryIntersects(boundingBox);
-        }
+        return (List)index.queryIntersects(boundingBox);
       }
       return Collections.emptyList();
     }
@@ -236,9 +236,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
       final double distance) {
       final RecordSpatialIndex<LayerRecord> index = getIndex();
       if (index != null) {
-        synchronized (index) {
-          return (List)index.getRecordsDistance(geometry, distance);
-        }
+        return (List)index.getRecordsDistance(geometry, distance);
       }
       return Collections.emptyList();
     }
@@ -2386,11 +2384,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer
   }
 
   protected RecordSpatialIndex<LayerRecord> newSpatialIndex(final AbstractRecordLayer layer) {
-    final GeometryFactory geometryFactory = layer.getGeometryFactory();
-    final BiPredicate<LayerRecord, LayerRecord> equalsItemFunction = LayerRecord::isSame;
-    final SpatialIndex<LayerRecord> spatialIndex = new RStarTree<LayerRecord>(geometryFactory)
-      .setEqualsItemFunction(equalsItemFunction);
-    return new RecordSpatialIndex<>(spatialIndex);
+    return LayerRecordQuadTree.newIndex(layer);
   }
 
   protected Map<String, Object> newSplitValues(final LayerRecord oldRecord,
@@ -5,7 +5,6 @@ import java.util.List;
 import org.jeometry.common.io.PathName;
 
 import com.revolsys.geometry.model.BoundingBox;
-import com.revolsys.record.query.Query;
 import com.revolsys.swing.map.ViewportCacheBoundingBox;
 import com.revolsys.swing.map.layer.AbstractLayer;
 import com.revolsys.swing.parallel.AbstractSwingWorker;
@@ -32,10 +31,7 @@ public class LoadingWorker extends AbstractSwingWorker<List<LayerRecord>, Void>
   @Override
   protected List<LayerRecord> handleBackground() {
     try {
-      final BoundingBox boundingBox = getBoundingBox();
-      final Query query = this.layer.newBoundingBoxQuery(boundingBox);
-      query.setCancellable(this);
-      final List<LayerRecord> records = this.layer.getRecords(query);
+      final List<LayerRecord> records = this.layer.getRecordsIndexLoad(this);
       this.layer.setIndexRecords(this, records);
       return records;
     } catch (final Exception e) {
@@ -9,12 +9,14 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import javax.swing.SwingWorker;
 
 import org.jeometry.common.data.identifier.Identifier;
+import org.jeometry.common.exception.Exceptions;
 import org.jeometry.common.io.PathName;
 import org.jeometry.common.logging.Logs;
 
@@ -31,6 +33,7 @@ import com.revolsys.record.RecordState;
 import com.revolsys.record.Records;
 import com.revolsys.record.code.CodeTable;
 import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordStoreCache;
 import com.revolsys.record.io.RecordStoreConnectionManager;
 import com.revolsys.record.io.format.json.JsonObject;
 import com.revolsys.record.query.Condition;
@@ -56,6 +59,12 @@ import com.revolsys.util.count.LabelCountMap;
 
 public class RecordStoreLayer extends AbstractRecordLayer {
 
+  /**
+   * The maximum number of rows of {@link RecordStoreCache} tiles in a loaded area, taller areas
+   * are queried directly to limit the number of queries.
+   */
+  private static final int RECORD_STORE_CACHE_MAX_ROW_COUNT = 16;
+
   private final Object loadingSync = new Object();
 
   private SwingWorker<List<LayerRecord>, Void> loadingWorker;
@@ -72,6 +81,10 @@ public class RecordStoreLayer extends AbstractRecordLayer {
 
   private List<RecordCacheRecordStoreLayer> recordStoreLayerCaches;
 
+  private RecordStoreCache recordStoreCache;
+
+  private Condition recordStoreCacheFilter;
+
   public RecordStoreLayer() {
     this("recordStoreLayer");
   }
@@ -473,6 +486,78 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     return Collections.emptyList();
   }
 
+  /**
+   * Get the records in the loading worker's bounding box for the index. The persisted records
+   * are read through a {@link RecordStoreCache} so panning the map only queries the record store
+   * for the area that hasn't been loaded.
+   *
+   * @param loadingWorker The loading worker.
+   * @return The records.
+   */
+  protected List<LayerRecord> getRecordsIndexLoad(final LoadingWorker loadingWorker) {
+    final BoundingBox boundingBox = convertBoundingBox(loadingWorker.getBoundingBox());
+    final Query query = newBoundingBoxQuery(boundingBox);
+    if (query == null) {
+      return Collections.emptyList();
+    }
+    query.setCancellable(loadingWorker);
+    final RecordStoreCache recordStoreCache = getRecordStoreCache();
+    if (recordStoreCache == null || boundingBox.getHeight()
+      / recordStoreCache.getTileSize() > RECORD_STORE_CACHE_MAX_ROW_COUNT) {
+      return getRecords(query);
+    }
+
+    List<Record> persistedRecords = null;
+    final RecordStore recordStore = getRecordStore();
+    try (
+      Transaction transaction = recordStore.newTransaction(Propagation.REQUIRES_NEW)) {
+      transaction.setRollbackOnly();
+      while (persistedRecords == null) {
+        try {
+          persistedRecords = recordStoreCache.getRecords(boundingBox, loadingWorker).get();
+        } catch (final ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (!(cause instanceof CancellationException)) {
+            throw Exceptions.wrap(cause);
+          } else if (loadingWorker.isCancelled()) {
+            throw (CancellationException)cause;
+          }
+          // Tiles loaded by a cancelled worker are no longer loading, request them again
+        }
+      }
+    } catch (final InterruptedException e) {
+      throw new CancellationException();
+    }
+
+    final List<LayerRecord> records = new ArrayList<>();
+    records.addAll(getRecordsNew());
+    records.addAll(getRecordsModified());
+    Records.filterAndSort(records, query.getWhereCondition(), null);
+    try (
+      final BaseCloseable booleanValueCloseable = eventsDisabled()) {
+      for (final Record persistedRecord : persistedRecords) {
+        LayerRecord record = (LayerRecord)persistedRecord;
+        boolean add = true;
+        final Identifier identifier = record.getIdentifier();
+        if (identifier == null) {
+          record = newProxyLayerRecordNoId(record);
+        } else {
+          final LayerRecord cachedRecord = findCachedRecord(record);
+          if (cachedRecord != null) {
+            record = cachedRecord;
+            if (record.isChanged() || isDeleted(record) || isModified(record)) {
+              add = false;
+            }
+          }
+        }
+        if (!isDeleted(record) && add) {
+          records.add(record);
+        }
+      }
+    }
+    return records;
+  }
+
   protected List<LayerRecord> getRecordsPersisted(final BoundingBox boundingBox) {
     final RecordDefinition recordDefinition = getInternalRecordDefinition();
     final Query query = Query.intersects(recordDefinition, boundingBox);
@@ -493,6 +578,29 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     return (RS)this.recordStore;
   }
 
+  private RecordStoreCache getRecordStoreCache() {
+    synchronized (this.loadingSync) {
+      if (this.recordStoreCache == null) {
+        final RecordStore recordStore = getRecordStore();
+        final RecordDefinition recordDefinition = getInternalRecordDefinition();
+        if (recordStore != null && recordDefinition != null) {
+          // The queries are run on the loading worker's thread
+          this.recordStoreCache = new RecordStoreCache(recordStore, recordDefinition,
+            Runnable::run);
+          this.recordStoreCache.setQueryFactory(this::newRecordStoreCacheQuery);
+          this.recordStoreCacheFilter = getFilter();
+        }
+      } else {
+        final Condition filter = getFilter();
+        if (filter != this.recordStoreCacheFilter) {
+          this.recordStoreCache.clear();
+          this.recordStoreCacheFilter = filter;
+        }
+      }
+      return this.recordStoreCache;
+    }
+  }
+
   @Override
   protected List<LayerRecord> getRecordsVisibleDo(BoundingBox boundingBox) {
     if (hasGeometryField()) {
@@ -604,6 +712,15 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     }
   }
 
+  private Query newRecordStoreCacheQuery(final BoundingBox boundingBox) {
+    final Query query = newBoundingBoxQuery(boundingBox);
+    if (query != null) {
+      final RecordFactory<LayerRecord> recordFactory = getRecordFactory();
+      query.setRecordFactory(recordFactory);
+    }
+    return query;
+  }
+
   private RecordStoreLayerRecord newLayerRecord() {
     if (this.hasIdField) {
       return new RecordStoreLayerRecordWithId(this);
@@ -735,6 +852,17 @@ public class RecordStoreLayer extends AbstractRecordLayer {
     return deleted;
   }
 
+  @Override
+  protected void postSaveChanges(final RecordState originalState, final LayerRecord record) {
+    super.postSaveChanges(originalState, record);
+    // The cached copy of the record may have changed or been deleted
+    synchronized (this.loadingSync) {
+      if (this.recordStoreCache != null) {
+        this.recordStoreCache.clear();
+      }
+    }
+  }
+
   protected void preDeleteRecord(final LayerRecord record) {
   }
 
@@ -751,6 +879,7 @@ public class RecordStoreLayer extends AbstractRecordLayer {
         loadingWorker.cancel(true);
       }
       this.loadedBoundingBox = BoundingBox.empty();
+      this.recordStoreCache = null;
       super.refreshDo();
     }
     final RecordStore recordStore = getRecordStore();
@@ -1,6 +1,7 @@
 package com.revolsys.swing.map.layer.tile;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import com.revolsys.record.io.format.json.JsonObject;
@@ -23,6 +24,21 @@ public abstract class AbstractTiledLayer<D, T extends AbstractMapTile<D>> extend
   public abstract List<T> getOverlappingMapTiles(AbstractTiledLayerRenderer<?, ?> renderer,
     final ViewRenderer view);
 
+  /**
+   * Get the tiles in the ring around the tiles returned by
+   * {@link #getOverlappingMapTiles(AbstractTiledLayerRenderer, ViewRenderer)}. The tiles are
+   * loaded in the background after the visible tiles so they are in the tile cache when the map
+   * is panned.
+   *
+   * @param renderer The renderer.
+   * @param view The view.
+   * @return The tiles to prefetch.
+   */
+  public List<T> getPrefetchMapTiles(final AbstractTiledLayerRenderer<?, ?> renderer,
+    final ViewRenderer view) {
+    return Collections.emptyList();
+  }
+
   public abstract double getResolution(final ViewRenderer view);
 
   protected abstract AbstractTiledLayerRenderer<D, T> newRenderer();
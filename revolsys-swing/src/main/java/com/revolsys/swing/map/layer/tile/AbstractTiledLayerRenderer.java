@@ -4,9 +4,11 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import javax.swing.Icon;
 
@@ -41,6 +43,12 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
 
   private double layerResolution;
 
+  /**
+   * The bounding boxes of the prefetched tiles. Only the keys are kept, the tile data is in the
+   * tile cache.
+   */
+  private final Set<BoundingBox> prefetchedTiles = new HashSet<>();
+
   private double viewResolution;
 
   private boolean hasError = false;
@@ -54,6 +62,7 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
   protected void clearCachedTiles() {
     synchronized (this.cachedTiles) {
       this.cachedTiles.clear();
+      this.prefetchedTiles.clear();
       tileLoaderManager.removeTasks(this.loadingTasks);
       this.loadingTasks.clear();
       this.cancellable.cancel();
@@ -85,6 +94,11 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
             this.cachedTiles.remove(mapTile);
           }
         }
+        this.prefetchedTiles.removeIf(boundingBox -> {
+          final GeometryFactory geometryFactory = boundingBox.getGeometryFactory();
+          return !geometryFactory.equals(newGeometryFactory)
+            || !newBoundingBox.bboxIntersects(boundingBox);
+        });
       }
     } else if (!TILES_LOADED.equals(event.getPropertyName())) {
       clearCachedTiles();
@@ -126,6 +140,17 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
           iterator.set(cachedTile);
         }
       }
+      // Load the ring of tiles around the view after the visible tiles into the tile cache
+      final List<T> prefetchMapTiles = layer.getPrefetchMapTiles(this, view);
+      synchronized (this.cachedTiles) {
+        for (final T mapTile : prefetchMapTiles) {
+          if (!this.cachedTiles.containsKey(mapTile)
+            && this.prefetchedTiles.add(mapTile.getBoundingBox())) {
+            final Runnable task = new TileLoadTask<>(this, cancellable, mapTile, true);
+            tasks.add(task);
+          }
+        }
+      }
       if (!mapTiles.isEmpty()) {
         renderTiles(view, cancellable, mapTiles);
       }
@@ -172,7 +197,7 @@ public abstract class AbstractTiledLayerRenderer<D, T extends AbstractMapTile<D>
   public void setLoaded(final TileLoadTask<D, T> tileLoadTask) {
     this.loadingTasks.remove(tileLoadTask);
     final AbstractTiledLayer<D, T> layer = getLayer();
-    if (layer != null) {
+    if (layer != null && !tileLoadTask.isPrefetch()) {
       layer.firePropertyChange(TILES_LOADED, false, true);
     }
   }
@@ -12,11 +12,25 @@ public class TileLoadTask<D, T extends AbstractMapTile<D>> implements Runnable {
 
   private final Cancellable cancellable;
 
+  private final boolean prefetch;
+
   public TileLoadTask(final AbstractTiledLayerRenderer<D, T> renderer,
     final Cancellable cancellable, final T mapTile) {
+    this(renderer, cancellable, mapTile, false);
+  }
+
+  /**
+   * @param renderer The renderer.
+   * @param cancellable The cancellable to stop loading the tile.
+   * @param mapTile The tile to load.
+   * @param prefetch True if the tile is outside the view and is only loaded into the tile cache.
+   */
+  public TileLoadTask(final AbstractTiledLayerRenderer<D, T> renderer,
+    final Cancellable cancellable, final T mapTile, final boolean prefetch) {
     this.renderer = renderer;
     this.cancellable = cancellable;
     this.mapTile = mapTile;
+    this.prefetch = prefetch;
   }
 
   public T getMapTile() {
@@ -27,6 +41,10 @@ public class TileLoadTask<D, T extends AbstractMapTile<D>> implements Runnable {
     return this.renderer;
   }
 
+  public boolean isPrefetch() {
+    return this.prefetch;
+  }
+
   @Override
   public void run() {
     try {
@@ -37,7 +55,7 @@ public class TileLoadTask<D, T extends AbstractMapTile<D>> implements Runnable {
         this.renderer.setLoaded(this);
       }
     } catch (final RuntimeException e) {
-      if (!this.cancellable.isCancelled()) {
+      if (!this.cancellable.isCancelled() && !this.prefetch) {
         Logs.error(this, "Unable to load " + this.mapTile, e);
       }
     }
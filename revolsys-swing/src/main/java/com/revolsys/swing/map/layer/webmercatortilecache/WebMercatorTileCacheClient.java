@@ -5,6 +5,8 @@ import java.awt.image.BufferedImage;
 import com.revolsys.geometry.model.BoundingBox;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.raster.BufferedImages;
+import com.revolsys.raster.tile.TileCache;
+import com.revolsys.raster.tile.TileSource;
 import com.revolsys.util.Property;
 
 public class WebMercatorTileCacheClient {
@@ -16,6 +18,11 @@ public class WebMercatorTileCacheClient {
 
   private final String serverUrl;
 
+  private TileCache tileCache;
+
+  private TileSource tileSource = (zoomLevel, tileX, tileY) -> TileSource
+    .readUrl(getMapUrl(zoomLevel, tileX, tileY));
+
   public WebMercatorTileCacheClient(final String serverUrl) {
     if (Property.hasValue(serverUrl)) {
       this.serverUrl = serverUrl;
@@ -50,8 +57,8 @@ public class WebMercatorTileCacheClient {
   }
 
   public BufferedImage getMapImage(final int zoomLevel, final int tileX, final int tileY) {
-    final String url = getMapUrl(zoomLevel, tileX, tileY);
-    return BufferedImages.readImageIo(url);
+    final TileCache tileCache = getTileCache();
+    return tileCache.getImage(this.serverUrl, zoomLevel, tileX, tileY, this.tileSource);
   }
 
   public String getMapUrl(final int zoomLevel, final double longitude, final double latitude) {
@@ -72,6 +79,18 @@ public class WebMercatorTileCacheClient {
     return this.serverUrl;
   }
 
+  public TileCache getTileCache() {
+    if (this.tileCache == null) {
+      return TileCache.getDefault();
+    } else {
+      return this.tileCache;
+    }
+  }
+
+  public TileSource getTileSource() {
+    return this.tileSource;
+  }
+
   public int getTileX(final int zoomLevel, final double longitude) {
     final double ratio = (longitude + 180) / 360;
     int tileX = (int)Math.floor(ratio * (1 << zoomLevel));
@@ -108,4 +127,18 @@ public class WebMercatorTileCacheClient {
     return METRES_PER_PIXEL.length - 1;
   }
 
+  public void setTileCache(final TileCache tileCache) {
+    this.tileCache = tileCache;
+  }
+
+  /**
+   * Set the source the tiles are read from when they aren't in the tile cache (e.g. an offline
+   * {@link TileSource#directory(java.nio.file.Path, String)}).
+   *
+   * @param tileSource The tile source.
+   */
+  public void setTileSource(final TileSource tileSource) {
+    this.tileSource = tileSource;
+  }
+
 }
@@ -57,9 +57,8 @@ public class WebMercatorTileCacheLayer
     return this.client;
   }
 
-  @Override
-  public List<WebMercatorTileCacheMapTile> getOverlappingMapTiles(
-    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+  private List<WebMercatorTileCacheMapTile> getMapTiles(final ViewRenderer view,
+    final int ring) {
     final List<WebMercatorTileCacheMapTile> tiles = new ArrayList<>();
     try {
       final double metresPerPixel = view.getMetresPerPixel();
@@ -79,11 +78,17 @@ public class WebMercatorTileCacheLayer
       final int minTileX = this.client.getTileX(zoomLevel, minX);
       final int maxTileX = this.client.getTileX(zoomLevel, maxX);
 
-      for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
-        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
-          final WebMercatorTileCacheMapTile tile = new WebMercatorTileCacheMapTile(this, zoomLevel,
-            resolution, tileX, tileY);
-          tiles.add(tile);
+      final int maxTileIndex = (1 << zoomLevel) - 1;
+      for (int tileY = Math.max(0, minTileY - ring); tileY <= Math.min(maxTileIndex,
+        maxTileY + ring); tileY++) {
+        for (int tileX = Math.max(0, minTileX - ring); tileX <= Math.min(maxTileIndex,
+          maxTileX + ring); tileX++) {
+          if (ring == 0 || tileX < minTileX || tileX > maxTileX || tileY < minTileY
+            || tileY > maxTileY) {
+            final WebMercatorTileCacheMapTile tile = new WebMercatorTileCacheMapTile(this,
+              zoomLevel, resolution, tileX, tileY);
+            tiles.add(tile);
+          }
         }
       }
 
@@ -93,6 +98,18 @@ public class WebMercatorTileCacheLayer
     return tiles;
   }
 
+  @Override
+  public List<WebMercatorTileCacheMapTile> getOverlappingMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    return getMapTiles(view, 0);
+  }
+
+  @Override
+  public List<WebMercatorTileCacheMapTile> getPrefetchMapTiles(
+    final AbstractTiledLayerRenderer<?, ?> renderer, final ViewRenderer view) {
+    return getMapTiles(view, 1);
+  }
+
   @Override
   public double getResolution(final ViewRenderer view) {
     final double metresPerPixel = view.getMetresPerPixel();
@@ -0,0 +1,222 @@
+package com.revolsys.core.test.collection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import com.revolsys.collection.bplus.BPlusTreeMap;
+import com.revolsys.collection.bplus.LongBPlusTreeMap;
+import com.revolsys.collection.bplus.LongLongBPlusTreeMap;
+import com.revolsys.io.page.FileMappedPageManager;
+import com.revolsys.io.page.PageValueManager;
+
+/**
+ * Compare the {@link LongBPlusTreeMap} with a {@link TreeMap} and the page based
+ * {@link BPlusTreeMap}. The entry counts can be passed as arguments, the default is 10M entries.
+ * These maps are held on the heap so counts that would need more than {@link #BYTES_PER_ENTRY}
+ * bytes per entry of the maximum heap size (-Xmx) are skipped; e.g. 100M entries needs a heap of
+ * 16GB. The page based map is limited to 1M entries as it is orders of magnitude slower.
+ * <p>
+ * The {@link LongLongBPlusTreeMap} is stored in a memory mapped temporary file and is run for all
+ * the counts, including 1B entries which need about 20GB of disk.
+ * </p>
+ */
+public class BPlusTreeMapPerfTest {
+  private interface Lookup {
+    Object get(long key);
+  }
+
+  /**
+   * The approximate peak heap use per entry of the key and value arrays and the largest map
+   * (TreeMap) with a safety margin.
+   */
+  private static final int BYTES_PER_ENTRY = 160;
+
+  private static final int PAGE_MAP_MAX_COUNT = 1000000;
+
+  private static long[] keys(final int count) {
+    final long[] keys = new long[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = i * 3L;
+    }
+    return keys;
+  }
+
+  private static long lookup(final String name, final int count, final int threadCount,
+    final Lookup lookup) throws InterruptedException {
+    final int lookupsPerThread = 10000000 / threadCount;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    final long[] found = new long[threadCount];
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      final int index = threadIndex;
+      final Thread thread = new Thread(() -> {
+        final Random random = new Random(index);
+        try {
+          startLatch.await();
+        } catch (final InterruptedException e) {
+          return;
+        }
+        long foundCount = 0;
+        for (int i = 0; i < lookupsPerThread; i++) {
+          final long key = random.nextInt(count) * 3L;
+          if (lookup.get(key) != null) {
+            foundCount++;
+          }
+        }
+        found[index] = foundCount;
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    final long startTime = System.nanoTime();
+    startLatch.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long lookupsPerSecond = Math.round(lookupsPerThread * threadCount / seconds);
+    System.out.println(
+      name + "\tget\tcount=" + count + "\tthreads=" + threadCount + "\t" + lookupsPerSecond + "/s");
+    long total = 0;
+    for (final long foundCount : found) {
+      total += foundCount;
+    }
+    return total;
+  }
+
+  public static void main(final String[] args) throws InterruptedException, IOException {
+    final List<Integer> counts = new ArrayList<>();
+    if (args.length == 0) {
+      counts.add(10000000);
+    } else {
+      for (final String arg : args) {
+        counts.add((int)Math.min(Integer.MAX_VALUE - 8, Long.parseLong(arg)));
+      }
+    }
+    final long maxCount = Runtime.getRuntime().maxMemory() / BYTES_PER_ENTRY;
+    for (final int count : counts) {
+      runFileMapped(count);
+      if (count > maxCount) {
+        System.out.println("Skipping count=" + count + ", the maximum heap size supports "
+          + maxCount + " entries");
+      } else {
+        run(count);
+      }
+    }
+  }
+
+  private static void put(final String name, final int count, final Map<Long, Long> map,
+    final long[] keys) {
+    final long startTime = System.nanoTime();
+    final Random random = new Random(0);
+    for (int i = 0; i < count; i++) {
+      final long key = keys[random.nextInt(count)];
+      map.put(key, key);
+    }
+    print(name, "put random", count, startTime);
+  }
+
+  private static void print(final String name, final String operation, final int count,
+    final long startTime) {
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.out.println(
+      name + "\t" + operation + "\tcount=" + count + "\t" + Math.round(count / seconds) + "/s");
+  }
+
+  private static void run(final int count) throws InterruptedException {
+    final long[] keys = keys(count);
+    final Long[] values = new Long[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = keys[i];
+    }
+
+    {
+      final TreeMap<Long, Long> map = new TreeMap<>();
+      put("TreeMap", count, map, keys);
+      long startTime = System.nanoTime();
+      map.clear();
+      for (int i = 0; i < count; i++) {
+        map.put(keys[i], values[i]);
+      }
+      print("TreeMap", "put sorted", count, startTime);
+      for (final int threadCount : new int[] {
+        1, 4, 16
+      }) {
+        lookup("TreeMap", count, threadCount, map::get);
+      }
+      startTime = System.nanoTime();
+      long sum = 0;
+      for (final Long value : map.values()) {
+        sum += value;
+      }
+      print("TreeMap", "iterate " + sum, count, startTime);
+    }
+
+    {
+      final LongBPlusTreeMap<Long> map = new LongBPlusTreeMap<>();
+      put("LongBPlusTreeMap", count, map, keys);
+      long startTime = System.nanoTime();
+      map.bulkLoad(keys, values, count);
+      print("LongBPlusTreeMap", "bulkLoad", count, startTime);
+      for (final int threadCount : new int[] {
+        1, 4, 16
+      }) {
+        lookup("LongBPlusTreeMap", count, threadCount, map::get);
+      }
+      startTime = System.nanoTime();
+      long sum = 0;
+      for (final Long value : map.values()) {
+        sum += value;
+      }
+      print("LongBPlusTreeMap", "iterate " + sum, count, startTime);
+    }
+
+    if (count <= PAGE_MAP_MAX_COUNT) {
+      final Map<Long, Long> map = BPlusTreeMap.newInMemory(PageValueManager.LONG,
+        PageValueManager.LONG);
+      put("BPlusTreeMap", count, map, keys);
+      lookup("BPlusTreeMap", count, 1, map::get);
+    }
+  }
+
+  /**
+   * Load the keys in order into a {@link LongLongBPlusTreeMap} in a memory mapped file, without
+   * any arrays on the heap.
+   */
+  private static void runFileMapped(final int count) throws InterruptedException, IOException {
+    final String name = "LongLongBPlusTreeMap";
+    final File file = File.createTempFile("BPlusTreeMapPerfTest", ".pf");
+    try {
+      final LongLongBPlusTreeMap map = new LongLongBPlusTreeMap(new FileMappedPageManager(file),
+        -1);
+      long startTime = System.nanoTime();
+      for (int i = 0; i < count; i++) {
+        final long key = i * 3L;
+        map.put(key, key);
+      }
+      print(name, "put sorted", count, startTime);
+      for (final int threadCount : new int[] {
+        1, 4
+      }) {
+        lookup(name, count, threadCount, key -> {
+          final long value = map.get(key);
+          return value == -1 ? null : value;
+        });
+      }
+      startTime = System.nanoTime();
+      final long[] sum = new long[1];
+      map.forEach((key, value) -> sum[0] += value);
+      print(name, "iterate " + sum[0], count, startTime);
+      System.out.println(name + "	file	count=" + count + "	" + file.length() / 1024 / 1024
+        + "MB");
+    } finally {
+      file.delete();
+    }
+  }
+}
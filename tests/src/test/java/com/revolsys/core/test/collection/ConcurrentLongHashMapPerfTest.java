@@ -0,0 +1,94 @@
+package com.revolsys.core.test.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.revolsys.collection.map.ConcurrentLongHashMap;
+import com.revolsys.collection.map.ConcurrentLongLongHashMap;
+
+/**
+ * Compare the throughput of {@link ConcurrentLongHashMap} and {@link ConcurrentLongLongHashMap}
+ * with {@link ConcurrentHashMap} for a mix of 90% get and 10% put operations.
+ */
+public class ConcurrentLongHashMapPerfTest {
+  private interface Operation {
+    void run(long key, boolean write);
+  }
+
+  private static final int KEY_COUNT = 1000000;
+
+  private static final int OPERATION_COUNT = 20000000;
+
+  public static void main(final String[] args) throws InterruptedException {
+    for (int run = 0; run < 2; run++) {
+      for (final int threadCount : new int[] {
+        1, 4, 16, 32
+      }) {
+        final Map<Long, Long> concurrentHashMap = new ConcurrentHashMap<>();
+        run("ConcurrentHashMap<Long,Long>", threadCount, (key, write) -> {
+          if (write) {
+            concurrentHashMap.put(key, key);
+          } else {
+            concurrentHashMap.get(key);
+          }
+        });
+
+        final ConcurrentLongHashMap<Long> longMap = new ConcurrentLongHashMap<>();
+        run("ConcurrentLongHashMap<Long>", threadCount, (key, write) -> {
+          if (write) {
+            longMap.put(key, key);
+          } else {
+            longMap.get(key);
+          }
+        });
+
+        final ConcurrentLongLongHashMap longLongMap = new ConcurrentLongLongHashMap();
+        run("ConcurrentLongLongHashMap", threadCount, (key, write) -> {
+          if (write) {
+            longLongMap.put(key, key);
+          } else {
+            longLongMap.get(key);
+          }
+        });
+      }
+    }
+  }
+
+  private static void run(final String name, final int threadCount, final Operation operation)
+    throws InterruptedException {
+    for (long key = 0; key < KEY_COUNT; key += 2) {
+      operation.run(key, true);
+    }
+    final int operationsPerThread = OPERATION_COUNT / threadCount;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      final Thread thread = new Thread(() -> {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+          startLatch.await();
+        } catch (final InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < operationsPerThread; i++) {
+          final long key = random.nextInt(KEY_COUNT);
+          operation.run(key, random.nextInt(10) == 0);
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    final long startTime = System.nanoTime();
+    startLatch.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long operationsPerSecond = Math.round(operationsPerThread * threadCount / seconds);
+    System.out.println(name + "\tthreads=" + threadCount + "\t" + operationsPerSecond + " ops/s");
+  }
+}
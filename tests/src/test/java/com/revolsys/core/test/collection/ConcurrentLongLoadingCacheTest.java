@@ -0,0 +1,197 @@
+package com.revolsys.core.test.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ConcurrentLongLoadingCache;
+import com.revolsys.collection.map.ConcurrentLongLoadingCache.Entry;
+
+public class ConcurrentLongLoadingCacheTest {
+
+  @Test
+  public void testClear() {
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10,
+      key -> "v" + key);
+    final Entry<String> entry = cache.getEntry(1);
+    cache.get(2);
+    cache.clear();
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getWeight());
+    Assert.assertTrue(entry.isEvicted());
+    Assert.assertNull(cache.getIfPresent(1));
+    Assert.assertEquals("v1", cache.get(1));
+  }
+
+  @Test
+  public void testConcurrentLoad() throws InterruptedException {
+    final AtomicInteger loadCount = new AtomicInteger();
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10, key -> {
+      loadCount.incrementAndGet();
+      loading.countDown();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return "v" + key;
+    });
+    final int threadCount = 8;
+    final List<Thread> threads = new ArrayList<>();
+    final List<String> values = new ArrayList<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    for (int i = 0; i < threadCount; i++) {
+      final Thread thread = new Thread(() -> {
+        final String value = cache.get(5);
+        synchronized (values) {
+          values.add(value);
+        }
+      });
+      thread.setUncaughtExceptionHandler((t, e) -> error.set(e));
+      thread.start();
+      threads.add(thread);
+    }
+    loading.await();
+    // Give the other threads time to join the load in progress
+    Thread.sleep(100);
+    release.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertNull(error.get());
+    Assert.assertEquals(1, loadCount.get());
+    Assert.assertEquals(threadCount, values.size());
+    for (final String value : values) {
+      Assert.assertEquals("v5", value);
+    }
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void testEvictionClock() {
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(3,
+      key -> "v" + key);
+    final Entry<String> entry1 = cache.getEntry(1);
+    cache.get(2);
+    cache.get(3);
+    Assert.assertEquals(0, cache.getEvictionCount());
+
+    // All entries are referenced so the sweep clears the flags and evicts the oldest
+    cache.get(4);
+    Assert.assertEquals(3, cache.getSize());
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertTrue(entry1.isEvicted());
+    Assert.assertNull(cache.getIfPresent(1));
+
+    // 2 was read since the last sweep so it gets a second chance, 3 is evicted
+    Assert.assertEquals("v2", cache.get(2));
+    cache.get(5);
+    Assert.assertEquals(3, cache.getSize());
+    Assert.assertEquals(2, cache.getEvictionCount());
+    Assert.assertEquals("v2", cache.getIfPresent(2));
+    Assert.assertNull(cache.getIfPresent(3));
+    Assert.assertEquals("v4", cache.getIfPresent(4));
+    Assert.assertEquals("v5", cache.getIfPresent(5));
+
+    cache.setMaxSize(1);
+    Assert.assertEquals(1, cache.getSize());
+    Assert.assertEquals(4, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testEvictionWeight() {
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(100, 10,
+      key -> "x".repeat((int)key), String::length);
+    cache.get(4);
+    cache.get(5);
+    Assert.assertEquals(9, cache.getWeight());
+    Assert.assertEquals(0, cache.getEvictionCount());
+    cache.get(3);
+    Assert.assertEquals(1, cache.getEvictionCount());
+    Assert.assertTrue(cache.getWeight() <= 10);
+    Assert.assertNull(cache.getIfPresent(4));
+
+    cache.setMaxWeight(3);
+    Assert.assertEquals(3, cache.getWeight());
+    Assert.assertEquals("xxx", cache.getIfPresent(3));
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    final AtomicInteger loadCount = new AtomicInteger();
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10, key -> {
+      loadCount.incrementAndGet();
+      return "v" + key;
+    });
+    Assert.assertNull(cache.getIfPresent(1));
+    Assert.assertEquals(0, loadCount.get());
+    Assert.assertEquals("v1", cache.get(1));
+    Assert.assertEquals("v1", cache.get(1));
+    final Entry<String> entry = cache.getEntry(1);
+    Assert.assertEquals(1, entry.getKey());
+    Assert.assertEquals("v1", entry.getValue());
+    Assert.assertFalse(entry.isEvicted());
+    Assert.assertEquals("v1", cache.getIfPresent(1));
+    Assert.assertEquals(1, loadCount.get());
+    Assert.assertEquals(1, cache.getMissCount());
+    Assert.assertEquals(2, cache.getHitCount());
+    Assert.assertEquals(1, cache.getSize());
+    Assert.assertEquals(1, cache.getWeight());
+  }
+
+  @Test
+  public void testLoaderException() {
+    final AtomicInteger loadCount = new AtomicInteger();
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10, key -> {
+      if (loadCount.incrementAndGet() == 1) {
+        throw new IllegalStateException("load failed");
+      }
+      return "v" + key;
+    });
+    try {
+      cache.get(1);
+      Assert.fail("Loader exception not thrown");
+    } catch (final IllegalStateException e) {
+      Assert.assertEquals("load failed", e.getMessage());
+    }
+    Assert.assertEquals(0, cache.getSize());
+    // The failed load is not cached
+    Assert.assertEquals("v1", cache.get(1));
+    Assert.assertEquals(2, loadCount.get());
+  }
+
+  @Test
+  public void testNullNotCached() {
+    final AtomicInteger loadCount = new AtomicInteger();
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10, key -> {
+      loadCount.incrementAndGet();
+      return null;
+    });
+    Assert.assertNull(cache.get(1));
+    Assert.assertNull(cache.getEntry(1));
+    Assert.assertEquals(2, loadCount.get());
+    Assert.assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void testRemove() {
+    final ConcurrentLongLoadingCache<String> cache = new ConcurrentLongLoadingCache<>(10,
+      key -> "v" + key);
+    final Entry<String> entry = cache.getEntry(1);
+    Assert.assertNull(cache.remove(2));
+    Assert.assertEquals("v1", cache.remove(1));
+    Assert.assertNull(cache.remove(1));
+    Assert.assertTrue(entry.isEvicted());
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getWeight());
+    Assert.assertEquals(0, cache.getEvictionCount());
+  }
+}
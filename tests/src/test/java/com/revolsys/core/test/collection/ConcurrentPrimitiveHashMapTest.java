@@ -0,0 +1,269 @@
+package com.revolsys.core.test.collection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ConcurrentIntIntHashMap;
+import com.revolsys.collection.map.ConcurrentLongDoubleHashMap;
+import com.revolsys.collection.map.ConcurrentLongHashMap;
+import com.revolsys.collection.map.ConcurrentLongLongHashMap;
+
+public class ConcurrentPrimitiveHashMapTest {
+
+  private static final long[] SPECIAL_KEYS = {
+    0, -1, 1, Long.MIN_VALUE, Long.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE
+  };
+
+  private static void assertEntries(final Map<Long, Long> expected,
+    final ConcurrentLongLongHashMap map) {
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+    final Map<Long, Long> actual = new HashMap<>();
+    map.forEach((key, value) -> Assert.assertNull(actual.put(key, value)));
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static void assertEntries(final Map<Long, String> expected,
+    final ConcurrentLongHashMap<String> map) {
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+    final Map<Long, String> actual = new HashMap<>();
+    map.forEach((key, value) -> Assert.assertNull(actual.put(key, value)));
+    Assert.assertEquals(expected, actual);
+  }
+
+  private static void runThreads(final int threadCount, final Runnable runnable)
+    throws InterruptedException {
+    final List<Thread> threads = new ArrayList<>();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    for (int i = 0; i < threadCount; i++) {
+      final Thread thread = new Thread(runnable);
+      thread.setUncaughtExceptionHandler((t, e) -> error.compareAndSet(null, e));
+      thread.start();
+      threads.add(thread);
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    if (error.get() != null) {
+      throw new AssertionError(error.get());
+    }
+  }
+
+  @Test
+  public void testIntInt() {
+    final ConcurrentIntIntHashMap map = new ConcurrentIntIntHashMap(16, 4, -1);
+    Assert.assertEquals(-1, map.getNoEntryValue());
+    Assert.assertEquals(-1, map.get(5));
+    Assert.assertEquals(7, map.get(5, 7));
+    Assert.assertEquals(-1, map.put(5, 10));
+    Assert.assertEquals(10, map.put(5, 11));
+    Assert.assertEquals(11, map.putIfAbsent(5, 12));
+    Assert.assertEquals(-1, map.putIfAbsent(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    Assert.assertEquals(Integer.MAX_VALUE, map.get(Integer.MIN_VALUE));
+    Assert.assertEquals(3, map.addTo(6, 3));
+    Assert.assertEquals(1, map.addTo(6, -2));
+    // Int overflow wraps as for an int counter
+    Assert.assertEquals(Integer.MIN_VALUE, map.addTo(Integer.MIN_VALUE, 1));
+    Assert.assertTrue(map.containsKey(6));
+    Assert.assertFalse(map.containsKey(-6));
+    Assert.assertEquals(3, map.size());
+
+    final Map<Integer, Integer> actual = new HashMap<>();
+    map.forEach(actual::put);
+    final Map<Integer, Integer> expected = new HashMap<>();
+    expected.put(5, 11);
+    expected.put(6, 1);
+    expected.put(Integer.MIN_VALUE, Integer.MIN_VALUE);
+    Assert.assertEquals(expected, actual);
+
+    Assert.assertEquals(11, map.remove(5));
+    Assert.assertEquals(-1, map.remove(5));
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+    Assert.assertEquals(-1, map.get(6));
+  }
+
+  @Test
+  public void testLongDouble() {
+    final ConcurrentLongDoubleHashMap map = new ConcurrentLongDoubleHashMap(16, 4, Double.NaN);
+    Assert.assertTrue(Double.isNaN(map.getNoEntryValue()));
+    Assert.assertTrue(Double.isNaN(map.get(1)));
+    Assert.assertEquals(2.5, map.get(1, 2.5), 0);
+    Assert.assertTrue(Double.isNaN(map.put(1, 0.1)));
+    Assert.assertEquals(0.1, map.put(1, -0.0), 0);
+    Assert.assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(map.get(1)));
+    Assert.assertEquals(-0.0, map.putIfAbsent(1, 3), 0);
+    Assert.assertEquals(0.1, map.addTo(2, 0.1), 0);
+    Assert.assertEquals(0.1 + 0.2, map.addTo(2, 0.2), 0);
+    Assert.assertEquals(Double.MIN_VALUE, map.addTo(Long.MIN_VALUE, Double.MIN_VALUE), 0);
+    Assert.assertTrue(map.containsKey(Long.MIN_VALUE));
+    Assert.assertEquals(3, map.size());
+
+    final Map<Long, Double> actual = new HashMap<>();
+    map.forEach(actual::put);
+    Assert.assertEquals(3, actual.size());
+    Assert.assertEquals(0.1 + 0.2, actual.get(2L), 0);
+
+    Assert.assertEquals(0.1 + 0.2, map.remove(2), 0);
+    Assert.assertTrue(Double.isNaN(map.remove(2)));
+    map.clear();
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testLongDoubleConcurrentAddTo() throws InterruptedException {
+    final ConcurrentLongDoubleHashMap map = new ConcurrentLongDoubleHashMap();
+    runThreads(8, () -> {
+      for (int i = 0; i < 10000; i++) {
+        map.addTo(i % 100, 0.5);
+      }
+    });
+    Assert.assertEquals(100, map.size());
+    map.forEach((key, value) -> Assert.assertEquals(400, value, 0));
+  }
+
+  @Test
+  public void testLongLongConcurrent() throws InterruptedException {
+    final ConcurrentLongLongHashMap map = new ConcurrentLongLongHashMap(16, 16, 0);
+    runThreads(8, () -> {
+      for (int i = 0; i < 100000; i++) {
+        map.addTo(i % 1000 * 7919L, 1);
+      }
+    });
+    Assert.assertEquals(1000, map.size());
+    map.forEach((key, value) -> Assert.assertEquals(800, value));
+
+    // Disjoint writers and removers in each thread resize and shift entries while others read
+    final int threadCount = 8;
+    final int[] threadIndex = new int[1];
+    runThreads(threadCount, () -> {
+      final int index;
+      synchronized (threadIndex) {
+        index = threadIndex[0]++;
+      }
+      final long base = -(index + 1) * 1000000L;
+      for (int i = 0; i < 20000; i++) {
+        map.put(base + i, i);
+      }
+      for (int i = 0; i < 20000; i += 2) {
+        Assert.assertEquals(i, map.remove(base + i));
+      }
+      for (int i = 0; i < 20000; i++) {
+        final long expected = i % 2 == 0 ? 0 : i;
+        Assert.assertEquals(expected, map.get(base + i));
+      }
+    });
+    Assert.assertEquals(1000 + threadCount * 10000, map.size());
+  }
+
+  @Test
+  public void testLongLongRandom() {
+    for (final int concurrencyLevel : new int[] {
+      1, 3, 64
+    }) {
+      final Random random = new Random(concurrencyLevel);
+      final Map<Long, Long> expected = new HashMap<>();
+      final ConcurrentLongLongHashMap map = new ConcurrentLongLongHashMap(4, concurrencyLevel,
+        Long.MIN_VALUE);
+      for (int i = 0; i < 100000; i++) {
+        // Keys that collide in the low bits exercise probing and backward-shift deletion
+        final long key = (random.nextInt(2000) - 1000) * 1024L;
+        final int operation = random.nextInt(10);
+        if (operation < 4) {
+          final Long oldValue = expected.put(key, (long)i);
+          Assert.assertEquals(oldValue == null ? Long.MIN_VALUE : oldValue, map.put(key, i));
+        } else if (operation < 5) {
+          final Long oldValue = expected.putIfAbsent(key, (long)i);
+          Assert.assertEquals(oldValue == null ? Long.MIN_VALUE : oldValue,
+            map.putIfAbsent(key, i));
+        } else if (operation < 6) {
+          final long value = expected.merge(key, 3L, Long::sum);
+          Assert.assertEquals(value, map.addTo(key, 3));
+        } else if (operation < 8) {
+          final Long oldValue = expected.remove(key);
+          Assert.assertEquals(oldValue == null ? Long.MIN_VALUE : oldValue, map.remove(key));
+        } else {
+          final Long value = expected.get(key);
+          Assert.assertEquals(value == null ? Long.MIN_VALUE : value, map.get(key));
+          Assert.assertEquals(value != null, map.containsKey(key));
+        }
+      }
+      assertEntries(expected, map);
+      for (final long key : SPECIAL_KEYS) {
+        expected.put(key, key);
+        map.put(key, key);
+      }
+      assertEntries(expected, map);
+      map.clear();
+      expected.clear();
+      assertEntries(expected, map);
+    }
+  }
+
+  @Test
+  public void testObjectValueRandom() {
+    for (final int concurrencyLevel : new int[] {
+      1, 3, 64
+    }) {
+      final Random random = new Random(concurrencyLevel);
+      final Map<Long, String> expected = new HashMap<>();
+      final ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>(4, concurrencyLevel);
+      for (int i = 0; i < 100000; i++) {
+        final long key = (random.nextInt(2000) - 1000) * 1024L;
+        final int operation = random.nextInt(10);
+        if (operation < 4) {
+          final String value = "v" + i;
+          Assert.assertEquals(expected.put(key, value), map.put(key, value));
+        } else if (operation < 5) {
+          final String value = "a" + i;
+          Assert.assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+        } else if (operation < 6) {
+          final String value = "c" + i;
+          Assert.assertEquals(expected.computeIfAbsent(key, k -> value),
+            map.computeIfAbsent(key, k -> value));
+        } else if (operation < 8) {
+          Assert.assertEquals(expected.remove(key), map.remove(key));
+        } else {
+          Assert.assertEquals(expected.get(key), map.get(key));
+          Assert.assertEquals(expected.getOrDefault(key, "d"), map.getOrDefault(key, "d"));
+          Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+      }
+      assertEntries(expected, map);
+      for (final long key : SPECIAL_KEYS) {
+        expected.put(key, Long.toString(key));
+        map.put(key, Long.toString(key));
+      }
+      assertEntries(expected, map);
+      map.clear();
+      expected.clear();
+      assertEntries(expected, map);
+    }
+  }
+
+  @Test
+  public void testObjectValueRemoveIdentity() {
+    final ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>();
+    final String value = new String("a");
+    map.put(1, value);
+    Assert.assertFalse(map.remove(1, new String("a")));
+    Assert.assertTrue(map.remove(1, value));
+    Assert.assertFalse(map.remove(1, value));
+    Assert.assertNull(map.computeIfAbsent(2, key -> null));
+    Assert.assertFalse(map.containsKey(2));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test(expected = NullPointerException.class)
+  public void testObjectValuePutNull() {
+    new ConcurrentLongHashMap<String>().put(1, null);
+  }
+}
@@ -0,0 +1,192 @@
+package com.revolsys.core.test.collection;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.bplus.LongBPlusTreeMap;
+
+public class LongBPlusTreeMapTest {
+
+  private static void assertEntries(final TreeMap<Long, String> expected,
+    final LongBPlusTreeMap<String> map) {
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(expected.size(), map.getEntryCount());
+    Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+    final List<Entry<Long, String>> expectedEntries = new ArrayList<>(expected.entrySet());
+    final List<Entry<Long, String>> actualEntries = new ArrayList<>(map.entrySet());
+    Assert.assertEquals(expectedEntries, actualEntries);
+  }
+
+  @Test
+  public void testBulkLoad() {
+    for (final int count : new int[] {
+      0, 1, 4, 5, 16, 17, 63, 64, 65, 1000
+    }) {
+      final long[] keys = new long[count];
+      final String[] values = new String[count];
+      final TreeMap<Long, String> expected = new TreeMap<>();
+      for (int i = 0; i < count; i++) {
+        keys[i] = i * 3L - 500;
+        values[i] = "v" + i;
+        expected.put(keys[i], values[i]);
+      }
+      final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(4);
+      map.putLong(-10000, "replaced");
+      map.bulkLoad(keys, values, count);
+      assertEntries(expected, map);
+      for (int i = 0; i < count; i++) {
+        Assert.assertEquals(values[i], map.get(keys[i]));
+        Assert.assertNull(map.get(keys[i] + 1));
+      }
+
+      // Modify the bulk loaded tree
+      for (int i = 0; i < count; i += 2) {
+        Assert.assertEquals(expected.remove(keys[i]), map.remove(keys[i]));
+      }
+      for (int i = 0; i < count; i += 3) {
+        final long key = keys[i] + 1;
+        Assert.assertEquals(expected.put(key, "n" + i), map.putLong(key, "n" + i));
+      }
+      assertEntries(expected, map);
+    }
+  }
+
+  @Test
+  public void testBulkLoadMap() {
+    final TreeMap<Long, String> expected = new TreeMap<>();
+    for (int i = 0; i < 500; i++) {
+      expected.put(i * 7L, "v" + i);
+    }
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(5);
+    map.bulkLoad(expected);
+    assertEntries(expected, map);
+    Assert.assertTrue(map.getHeight() > 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBulkLoadUnsorted() {
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(4);
+    map.bulkLoad(new long[] {
+      1, 3, 2
+    }, new String[] {
+      "a", "b", "c"
+    }, 3);
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    final TreeMap<Long, String> expected = new TreeMap<>();
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(4);
+    for (long key = 0; key < 100; key++) {
+      expected.put(key, "v" + key);
+      map.putLong(key, "v" + key);
+    }
+    for (final Iterator<Entry<Long, String>> iterator = map.entrySet().iterator(); iterator
+      .hasNext();) {
+      final Entry<Long, String> entry = iterator.next();
+      if (entry.getKey() % 3 != 0) {
+        iterator.remove();
+        expected.remove(entry.getKey());
+      }
+    }
+    assertEntries(expected, map);
+  }
+
+  @Test
+  public void testIteratorSnapshot() {
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(4);
+    for (long key = 0; key < 100; key++) {
+      map.putLong(key, "v" + key);
+    }
+    final Iterator<Entry<Long, String>> iterator = map.entrySet().iterator();
+    for (long key = 0; key < 100; key += 2) {
+      map.remove(key);
+    }
+    map.putLong(1000, "new");
+    long expectedKey = 0;
+    while (iterator.hasNext()) {
+      final Entry<Long, String> entry = iterator.next();
+      Assert.assertEquals(expectedKey, entry.getKey().longValue());
+      Assert.assertEquals("v" + expectedKey, entry.getValue());
+      expectedKey++;
+    }
+    Assert.assertEquals(100, expectedKey);
+    Assert.assertEquals(51, map.size());
+  }
+
+  @Test
+  public void testObjectKeys() {
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>();
+    map.put(10L, "a");
+    Assert.assertEquals("a", map.get(10));
+    Assert.assertEquals("a", map.get((short)10));
+    Assert.assertTrue(map.containsKey(10));
+    Assert.assertFalse(map.containsKey("10"));
+    Assert.assertNull(map.get("10"));
+    Assert.assertNull(map.remove("10"));
+    Assert.assertEquals("a", map.remove(Integer.valueOf(10)));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testRandomPutRemove() {
+    for (final int nodeSize : new int[] {
+      4, 5, 64
+    }) {
+      final Random random = new Random(nodeSize);
+      final TreeMap<Long, String> expected = new TreeMap<>();
+      final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(nodeSize);
+      for (int i = 0; i < 50000; i++) {
+        final long key = random.nextInt(5000) - 2500;
+        final int operation = random.nextInt(10);
+        if (operation < 6) {
+          final String value = "v" + i;
+          Assert.assertEquals(expected.put(key, value), map.putLong(key, value));
+        } else if (operation < 9) {
+          Assert.assertEquals(expected.remove(key), map.remove(key));
+        } else {
+          Assert.assertEquals(expected.get(key), map.get(key));
+          Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+        }
+        if (i % 5000 == 0) {
+          assertEntries(expected, map);
+        }
+      }
+      assertEntries(expected, map);
+
+      for (final Long key : new ArrayList<>(expected.keySet())) {
+        Assert.assertEquals(expected.remove(key), map.remove(key.longValue()));
+      }
+      assertEntries(expected, map);
+      Assert.assertEquals(1, map.getHeight());
+
+      map.putLong(1, "a");
+      Assert.assertEquals("a", map.get(1));
+    }
+  }
+
+  @Test
+  public void testSequentialPut() {
+    final TreeMap<Long, String> expected = new TreeMap<>();
+    final LongBPlusTreeMap<String> map = new LongBPlusTreeMap<>(4);
+    for (long key = 1000; key >= 0; key--) {
+      expected.put(key, "d" + key);
+      map.putLong(key, "d" + key);
+    }
+    for (long key = 1001; key < 2000; key++) {
+      expected.put(key, "a" + key);
+      map.putLong(key, "a" + key);
+    }
+    assertEntries(expected, map);
+    final Map<Long, String> copy = new TreeMap<>(map);
+    Assert.assertEquals(expected, copy);
+  }
+}
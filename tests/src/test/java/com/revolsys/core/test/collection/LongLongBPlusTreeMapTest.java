@@ -0,0 +1,164 @@
+package com.revolsys.core.test.collection;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.bplus.LongLongBPlusTreeMap;
+import com.revolsys.io.page.FileMappedPageManager;
+import com.revolsys.io.page.FilePageManager;
+import com.revolsys.io.page.MemoryPageManager;
+import com.revolsys.io.page.PageManager;
+
+public class LongLongBPlusTreeMapTest {
+
+  private static void assertEntries(final TreeMap<Long, Long> expected,
+    final LongLongBPlusTreeMap map) {
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(expected.size(), map.getEntryCount());
+    Assert.assertEquals(expected.isEmpty(), map.isEmpty());
+    final List<Long> actualEntries = new ArrayList<>();
+    map.forEach((key, value) -> {
+      actualEntries.add(key);
+      actualEntries.add(value);
+    });
+    final List<Long> expectedEntries = new ArrayList<>();
+    for (final Entry<Long, Long> entry : expected.entrySet()) {
+      expectedEntries.add(entry.getKey());
+      expectedEntries.add(entry.getValue());
+    }
+    Assert.assertEquals(expectedEntries, actualEntries);
+    for (final Entry<Long, Long> entry : expected.entrySet()) {
+      final long key = entry.getKey();
+      Assert.assertTrue(map.containsKey(key));
+      Assert.assertEquals(entry.getValue().longValue(), map.get(key));
+    }
+  }
+
+  @Test
+  public void testClear() {
+    final PageManager pages = new MemoryPageManager();
+    final LongLongBPlusTreeMap map = new LongLongBPlusTreeMap(pages);
+    for (int i = 0; i < 1000; i++) {
+      map.put(i, i);
+    }
+    Assert.assertTrue(map.getHeight() > 1);
+    map.clear();
+    assertEntries(new TreeMap<>(), map);
+    Assert.assertEquals("height", 1, map.getHeight());
+    // The meta page and the empty root page
+    Assert.assertEquals("numPages", 2, pages.getNumPages());
+    map.put(5, 6);
+    Assert.assertEquals(6, map.get(5));
+  }
+
+  @Test
+  public void testNoEntryValue() {
+    final LongLongBPlusTreeMap map = new LongLongBPlusTreeMap(new MemoryPageManager(), -1);
+    Assert.assertEquals(-1, map.getNoEntryValue());
+    Assert.assertEquals(-1, map.get(1));
+    Assert.assertEquals(7, map.get(1, 7));
+    Assert.assertFalse(map.containsKey(1));
+    Assert.assertEquals(-1, map.put(1, 0));
+    Assert.assertEquals(0, map.put(1, 2));
+    Assert.assertEquals(2, map.remove(1));
+    Assert.assertEquals(-1, map.remove(1));
+    Assert.assertTrue(map.isEmpty());
+  }
+
+  @Test
+  public void testRandomPutRemove() {
+    final Random random = new Random(0);
+    final TreeMap<Long, Long> expected = new TreeMap<>();
+    final LongLongBPlusTreeMap map = new LongLongBPlusTreeMap(new MemoryPageManager(), -1);
+    for (int i = 0; i < 20000; i++) {
+      final long key = random.nextInt(2000) - 1000L;
+      if (random.nextInt(3) == 0) {
+        final Long oldValue = expected.remove(key);
+        Assert.assertEquals(oldValue == null ? -1 : oldValue, map.remove(key));
+      } else {
+        final long value = random.nextLong();
+        final Long oldValue = expected.put(key, value);
+        Assert.assertEquals(oldValue == null ? -1 : oldValue, map.put(key, value));
+      }
+    }
+    assertEntries(expected, map);
+    Assert.assertFalse(map.containsKey(5000));
+    Assert.assertEquals(-1, map.get(Long.MIN_VALUE));
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    final File file = File.createTempFile("LongLongBPlusTreeMapTest", ".pf");
+    try {
+      final TreeMap<Long, Long> expected = new TreeMap<>();
+      final LongLongBPlusTreeMap map = new LongLongBPlusTreeMap(new FileMappedPageManager(file));
+      for (long i = 0; i < 10000; i++) {
+        final long key = i * 7919 % 10007;
+        map.put(key, -key);
+        expected.put(key, -key);
+      }
+      map.remove(7919);
+      expected.remove(7919L);
+      assertEntries(expected, map);
+
+      final LongLongBPlusTreeMap reopenedMap = new LongLongBPlusTreeMap(
+        new FileMappedPageManager(file));
+      Assert.assertEquals("height", map.getHeight(), reopenedMap.getHeight());
+      assertEntries(expected, reopenedMap);
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSequentialPut() {
+    final int count = 10000;
+    final TreeMap<Long, Long> expected = new TreeMap<>();
+    final PageManager sortedPages = new MemoryPageManager();
+    final LongLongBPlusTreeMap sortedMap = new LongLongBPlusTreeMap(sortedPages);
+    for (long i = 0; i < count; i++) {
+      final long key = i * 3;
+      sortedMap.put(key, i);
+      expected.put(key, i);
+    }
+    assertEntries(expected, sortedMap);
+
+    final PageManager randomPages = new MemoryPageManager();
+    final LongLongBPlusTreeMap randomMap = new LongLongBPlusTreeMap(randomPages);
+    final List<Long> keys = new ArrayList<>(expected.keySet());
+    Collections.shuffle(keys, new Random(0));
+    for (final long key : keys) {
+      randomMap.put(key, expected.get(key));
+    }
+    assertEntries(expected, randomMap);
+
+    // Sorted keys fill the pages instead of splitting them in half
+    Assert.assertTrue(sortedPages.getNumPages() + " < " + randomPages.getNumPages(),
+      sortedPages.getNumPages() * 4 < randomPages.getNumPages() * 3);
+    Assert.assertTrue(sortedMap.getHeight() <= randomMap.getHeight());
+
+    // Keys between the sorted keys split the full pages
+    for (long i = 0; i < count; i += 2) {
+      final long key = i * 3 + 1;
+      sortedMap.put(key, -i);
+      expected.put(key, -i);
+    }
+    assertEntries(expected, sortedMap);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSmallPageSize() throws IOException {
+    final File file = File.createTempFile("LongLongBPlusTreeMapTest", ".pf");
+    file.deleteOnExit();
+    new LongLongBPlusTreeMap(new FilePageManager(file, 40, 16));
+  }
+}
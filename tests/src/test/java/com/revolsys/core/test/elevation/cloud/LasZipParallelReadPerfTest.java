@@ -0,0 +1,87 @@
+package com.revolsys.core.test.elevation.cloud;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.revolsys.elevation.cloud.PointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
+
+/**
+ * Compare the throughput of the sequential LasZip iterator with the parallel chunk decoding in
+ * {@link LasPointCloud#forEachPointParallel(int, int, java.util.function.Consumer)} and
+ * {@link LasPointCloud#iterableParallel(int, boolean, int)}. The path to a chunked .laz file
+ * must be passed as the first argument. The results are printed as points/s and points/s per
+ * thread.
+ */
+public class LasZipParallelReadPerfTest {
+
+  private static void print(final String name, final int threadCount, final long pointCount,
+    final long startTime) {
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long pointsPerSecond = Math.round(pointCount / seconds);
+    System.out.println(name + "\tthreads=" + threadCount + "\t" + pointsPerSecond + " points/s\t"
+      + pointsPerSecond / threadCount + " points/s/thread");
+  }
+
+  public static void main(final String[] args) {
+    if (args.length == 0) {
+      System.err.println("Usage: LasZipParallelReadPerfTest file.laz");
+      return;
+    }
+    final String file = args[0];
+    final int processorCount = Runtime.getRuntime().availableProcessors();
+    for (int run = 0; run < 2; run++) {
+      runSequential(file);
+      for (int threadCount = 1; threadCount <= processorCount; threadCount *= 2) {
+        runForEachParallel(file, threadCount, LasZipDecompressSelective.ALL, "forEachParallel");
+        runForEachParallel(file, threadCount, LasZipDecompressSelective.CHANNEL_RETURNS_XY,
+          "forEachParallel XY");
+        runIterableParallel(file, threadCount, true);
+        runIterableParallel(file, threadCount, false);
+      }
+    }
+  }
+
+  private static void runForEachParallel(final String file, final int threadCount,
+    final int decompressSelective, final String name) {
+    final LongAdder count = new LongAdder();
+    try (
+      LasPointCloud pointCloud = PointCloud.newPointCloud(file)) {
+      final long startTime = System.nanoTime();
+      pointCloud.forEachPointParallel(threadCount, decompressSelective, point -> count.increment());
+      print(name, threadCount, count.sum(), startTime);
+    }
+  }
+
+  private static void runIterableParallel(final String file, final int threadCount,
+    final boolean ordered) {
+    long count = 0;
+    try (
+      LasPointCloud pointCloud = PointCloud.newPointCloud(file)) {
+      final long startTime = System.nanoTime();
+      for (final LasPoint point : pointCloud.iterableParallel(threadCount, ordered,
+        LasZipDecompressSelective.ALL)) {
+        if (point != null) {
+          count++;
+        }
+      }
+      final String name = ordered ? "iterableParallel ordered" : "iterableParallel unordered";
+      print(name, threadCount, count, startTime);
+    }
+  }
+
+  private static void runSequential(final String file) {
+    long count = 0;
+    try (
+      LasPointCloud pointCloud = PointCloud.newPointCloud(file)) {
+      final long startTime = System.nanoTime();
+      for (final LasPoint point : pointCloud.iterable()) {
+        if (point != null) {
+          count++;
+        }
+      }
+      print("iterable", 1, count, startTime);
+    }
+  }
+}
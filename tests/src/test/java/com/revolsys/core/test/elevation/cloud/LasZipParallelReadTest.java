@@ -0,0 +1,136 @@
+package com.revolsys.core.test.elevation.cloud;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.jeometry.coordinatesystem.model.systems.EpsgId;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.revolsys.collection.map.LinkedHashMapEx;
+import com.revolsys.collection.map.MapEx;
+import com.revolsys.elevation.cloud.PointCloud;
+import com.revolsys.elevation.cloud.las.LasPointCloud;
+import com.revolsys.elevation.cloud.las.pointformat.LasPoint;
+import com.revolsys.elevation.cloud.las.pointformat.LasPointFormat;
+import com.revolsys.elevation.cloud.las.zip.LasZipCompressorType;
+import com.revolsys.elevation.cloud.las.zip.LasZipDecompressSelective;
+import com.revolsys.elevation.cloud.las.zip.LasZipHeader;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.BaseCloseable;
+import com.revolsys.util.ServiceInitializer;
+
+/**
+ * Check that the parallel chunk decoding returns the same points as the sequential iterator for
+ * small chunked .laz files with a partial last chunk.
+ */
+public class LasZipParallelReadTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory
+    .fixed3d(EpsgId.nad83Utm(10), 1000.0, 1000.0, 1000.0);
+
+  private static final int POINT_COUNT = LasZipHeader.LASZIP_CHUNK_SIZE_DEFAULT * 2 + 1234;
+
+  @BeforeClass
+  public static void init() {
+    ServiceInitializer.initializeServices();
+  }
+
+  private static List<String> pointKeys(final Iterable<LasPoint> points) {
+    final List<String> keys = new ArrayList<>();
+    for (final LasPoint point : points) {
+      keys.add(toKey(point));
+    }
+    return keys;
+  }
+
+  private static String toKey(final LasPoint point) {
+    return point.getXInt() + "," + point.getYInt() + "," + point.getZInt() + ","
+      + point.getIntensity() + "," + point.getReturnNumber() + "," + point.getNumberOfReturns()
+      + "," + point.getClassification() + "," + point.getPointSourceID() + ","
+      + point.getGpsTime();
+  }
+
+  private void assertParallelRead(final LasPointFormat pointFormat, final MapEx writeProperties)
+    throws Exception {
+    final Path file = Files.createTempFile("parallel", ".laz");
+    try {
+      final Random random = new Random(pointFormat.getId());
+      try (
+        LasPointCloud cloud = new LasPointCloud(pointFormat, GEOMETRY_FACTORY)) {
+        for (int i = 0; i < POINT_COUNT; i++) {
+          final double x = 500000 + random.nextInt(10000000) / 1000.0;
+          final double y = 5500000 + random.nextInt(10000000) / 1000.0;
+          final double z = random.nextInt(3500000) / 1000.0;
+          final byte numberOfReturns = (byte)(1 + random.nextInt(5));
+          cloud.addPoint(x, y, z)
+            .setIntensity(random.nextInt(65536))
+            .setNumberOfReturns(numberOfReturns)
+            .setReturnNumber((byte)(1 + random.nextInt(numberOfReturns)))
+            .setClassification((short)random.nextInt(20))
+            .setPointSourceID(random.nextInt(65536))
+            .setGpsTime(random.nextInt(100000000) / 1000.0);
+        }
+        cloud.writePointCloud(file, writeProperties);
+      }
+
+      final List<String> expected;
+      try (
+        LasPointCloud cloud = PointCloud.newPointCloud(file)) {
+        expected = pointKeys(cloud.iterable());
+      }
+      Assert.assertEquals(POINT_COUNT, expected.size());
+
+      try (
+        LasPointCloud cloud = PointCloud.newPointCloud(file)) {
+        final Iterable<LasPoint> ordered = cloud.iterableParallel(4, true,
+          LasZipDecompressSelective.ALL);
+        // Each iterator is independent of the previous one
+        Assert.assertEquals(expected, pointKeys(ordered));
+        Assert.assertEquals(expected, pointKeys(ordered));
+
+        final List<String> unordered = pointKeys(
+          cloud.iterableParallel(3, false, LasZipDecompressSelective.ALL));
+        final List<String> sortedExpected = new ArrayList<>(expected);
+        Collections.sort(sortedExpected);
+        Collections.sort(unordered);
+        Assert.assertEquals(sortedExpected, unordered);
+
+        final List<String> forEach = Collections.synchronizedList(new ArrayList<>());
+        cloud.forEachPointParallel(4, LasZipDecompressSelective.ALL,
+          point -> forEach.add(toKey(point)));
+        Collections.sort(forEach);
+        Assert.assertEquals(sortedExpected, forEach);
+
+        // Stop part way through the file and close the iterator
+        final Iterator<LasPoint> iterator = ordered.iterator();
+        for (int i = 0; i < 10; i++) {
+          Assert.assertEquals(expected.get(i), toKey(iterator.next()));
+        }
+        ((BaseCloseable)iterator).close();
+        Assert.assertFalse(iterator.hasNext());
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testLayeredChunked() throws Exception {
+    assertParallelRead(LasPointFormat.ExtendedGpsTime,
+      new LinkedHashMapEx("lasZipVersion", 3));
+  }
+
+  @Test
+  public void testPointwiseChunked() throws Exception {
+    final MapEx writeProperties = new LinkedHashMapEx("lasZipVersion", 2) //
+      .add("compressor", LasZipCompressorType.POINTWISE_CHUNKED);
+    assertParallelRead(LasPointFormat.GpsTime, writeProperties);
+  }
+}
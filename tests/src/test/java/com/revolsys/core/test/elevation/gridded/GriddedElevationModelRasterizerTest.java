@@ -0,0 +1,192 @@
+package com.revolsys.core.test.elevation.gridded;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.gridded.DoubleArrayGriddedElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.rasterizer.ColorGriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.GriddedElevationModelRasterizer;
+import com.revolsys.elevation.gridded.rasterizer.HillShadeGriddedElevationModelRasterizer;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.grid.Grid;
+
+/**
+ * Test that the parallel row band rendering of the {@link GriddedElevationModelRasterizer}s
+ * creates the same image as calling {@link GriddedElevationModelRasterizer#getValue(int, int)} for
+ * each cell. The grid height isn't a multiple of the row band size and the grid has cells without
+ * an elevation, including on the edge rows and columns.
+ */
+public class GriddedElevationModelRasterizerTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating3d(26910);
+
+  private static final int GRID_HEIGHT = GriddedElevationModelRasterizer.ROW_BAND_SIZE * 3 + 5;
+
+  private static final int GRID_WIDTH = 150;
+
+  private static void assertImage(final String message,
+    final GriddedElevationModelRasterizer rasterizer, final DataBufferInt imageBuffer) {
+    final int[] expected = getExpected(rasterizer);
+    final int[] actual = imageBuffer.getData();
+    for (int i = 0; i < expected.length; i++) {
+      if (expected[i] != actual[i]) {
+        final int gridX = i % GRID_WIDTH;
+        final int gridY = GRID_HEIGHT - 1 - i / GRID_WIDTH;
+        Assert.assertEquals(message + " " + rasterizer.getName() + " gridX=" + gridX + ", gridY="
+          + gridY, Integer.toHexString(expected[i]), Integer.toHexString(actual[i]));
+      }
+    }
+  }
+
+  /**
+   * Get the image with the first row being the last row of the grid using getValue for each cell.
+   */
+  private static int[] getExpected(final GriddedElevationModelRasterizer rasterizer) {
+    final int[] values = new int[GRID_WIDTH * GRID_HEIGHT];
+    int index = 0;
+    for (int gridY = GRID_HEIGHT - 1; gridY >= 0; gridY--) {
+      for (int gridX = 0; gridX < GRID_WIDTH; gridX++) {
+        values[index++] = rasterizer.getValue(gridX, gridY);
+      }
+    }
+    return values;
+  }
+
+  private static GriddedElevationModel newElevationModel() {
+    final DoubleArrayGriddedElevationModel elevationModel = new DoubleArrayGriddedElevationModel(
+      GEOMETRY_FACTORY, 1000, 2000, GRID_WIDTH, GRID_HEIGHT, 1);
+    for (int gridY = 0; gridY < GRID_HEIGHT; gridY++) {
+      for (int gridX = 0; gridX < GRID_WIDTH; gridX++) {
+        final double elevation = 100 + 50 * Math.sin(gridX / 10.0) * Math.cos(gridY / 15.0)
+          + gridX * 0.5;
+        elevationModel.setValue(gridX, gridY, elevation);
+      }
+    }
+    // Cells without an elevation in the corners, on the edges, next to and on the band boundaries
+    final int bandSize = GriddedElevationModelRasterizer.ROW_BAND_SIZE;
+    final int[][] nullCells = {
+      {
+        0, 0
+      }, {
+        GRID_WIDTH - 1, GRID_HEIGHT - 1
+      }, {
+        10, 0
+      }, {
+        20, GRID_HEIGHT - 1
+      }, {
+        0, 30
+      }, {
+        GRID_WIDTH - 1, 40
+      }, {
+        50, bandSize - 1
+      }, {
+        51, bandSize
+      }, {
+        60, bandSize * 2
+      }, {
+        61, bandSize * 2 + 1
+      }, {
+        70, bandSize * 3
+      }
+    };
+    for (final int[] cell : nullCells) {
+      elevationModel.setValueNull(cell[0], cell[1]);
+    }
+    // A block of cells without an elevation so some neighbours of a cell are all missing
+    for (int gridY = 100; gridY < 104; gridY++) {
+      for (int gridX = 80; gridX < 84; gridX++) {
+        elevationModel.setValueNull(gridX, gridY);
+      }
+    }
+    return elevationModel;
+  }
+
+  private static List<GriddedElevationModelRasterizer> newRasterizers() {
+    final GriddedElevationModel elevationModel = newElevationModel();
+    return Arrays.asList(new ColorGriddedElevationModelRasterizer(elevationModel),
+      new HillShadeGriddedElevationModelRasterizer(elevationModel));
+  }
+
+  @Test
+  public void testRasterize() {
+    for (final GriddedElevationModelRasterizer rasterizer : newRasterizers()) {
+      final DataBufferInt imageBuffer = new DataBufferInt(GRID_WIDTH * GRID_HEIGHT);
+      rasterizer.rasterize(imageBuffer);
+      assertImage("rasterize", rasterizer, imageBuffer);
+    }
+  }
+
+  @Test
+  public void testRasterizeBoundingBox() {
+    for (final GriddedElevationModelRasterizer rasterizer : newRasterizers()) {
+      final GriddedElevationModel elevationModel = rasterizer.getElevationModel();
+      final BoundingBox boundingBox = elevationModel.getBoundingBox();
+      final BufferedImage image = rasterizer.rasterize(boundingBox, GRID_WIDTH, GRID_HEIGHT);
+      assertImage("rasterize boundingBox", rasterizer,
+        (DataBufferInt)image.getRaster().getDataBuffer());
+
+      // Pixels outside the elevation model are transparent
+      final int offset = 10;
+      final BoundingBox largerBoundingBox = GEOMETRY_FACTORY.newBoundingBox(
+        boundingBox.getMinX() - offset, boundingBox.getMinY(), boundingBox.getMaxX(),
+        boundingBox.getMaxY() + offset);
+      final int imageWidth = GRID_WIDTH + offset;
+      final BufferedImage largerImage = rasterizer.rasterize(largerBoundingBox, imageWidth,
+        GRID_HEIGHT + offset);
+      final int[] pixels = ((DataBufferInt)largerImage.getRaster().getDataBuffer()).getData();
+      for (int imageY = 0; imageY < GRID_HEIGHT + offset; imageY++) {
+        for (int imageX = 0; imageX < imageWidth; imageX++) {
+          final int expected;
+          if (imageX < offset || imageY < offset) {
+            expected = Grid.NULL_COLOUR;
+          } else {
+            expected = rasterizer.getValue(imageX - offset, GRID_HEIGHT - 1 - (imageY - offset));
+          }
+          Assert.assertEquals(rasterizer.getName() + " imageX=" + imageX + ", imageY=" + imageY,
+            expected, pixels[imageY * imageWidth + imageX]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRasterizeRows() {
+    final int bandSize = GriddedElevationModelRasterizer.ROW_BAND_SIZE;
+    // Row ranges including single edge rows, band boundaries and the partial last band
+    final int[][] rowRanges = {
+      {
+        0, 0
+      }, {
+        1, bandSize - 1
+      }, {
+        bandSize, bandSize
+      }, {
+        bandSize + 1, bandSize * 2 + 1
+      }, {
+        bandSize * 2 + 2, GRID_HEIGHT - 2
+      }, {
+        GRID_HEIGHT - 1, GRID_HEIGHT - 1
+      }
+    };
+    for (final GriddedElevationModelRasterizer rasterizer : newRasterizers()) {
+      final DataBufferInt imageBuffer = new DataBufferInt(GRID_WIDTH * GRID_HEIGHT);
+      for (final int[] rowRange : rowRanges) {
+        rasterizer.rasterizeRows(imageBuffer, rowRange[0], rowRange[1]);
+      }
+      assertImage("rasterizeRows", rasterizer, imageBuffer);
+
+      // Each row on its own
+      final DataBufferInt rowImageBuffer = new DataBufferInt(GRID_WIDTH * GRID_HEIGHT);
+      for (int gridY = 0; gridY < GRID_HEIGHT; gridY++) {
+        rasterizer.rasterizeRows(rowImageBuffer, gridY, gridY);
+      }
+      assertImage("rasterizeRows single row", rasterizer, rowImageBuffer);
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package com.revolsys.core.test.elevation.gridded;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import com.revolsys.elevation.gridded.AbstractTiledGriddedDigitalElevationModel;
+import com.revolsys.elevation.gridded.GriddedElevationModel;
+import com.revolsys.elevation.gridded.IntArrayScaleGriddedElevationModel;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Measure the getValue throughput of {@link AbstractTiledGriddedDigitalElevationModel} from
+ * multiple threads. The random test reads cells from random tiles, the walk test reads runs of
+ * consecutive cells like draping the vertices of a line. The tiles are in memory so the test
+ * measures the tile cache and not the tile loading.
+ */
+public class TiledGriddedElevationModelPerfTest {
+  private static class MemoryTiledElevationModel extends AbstractTiledGriddedDigitalElevationModel {
+
+    public MemoryTiledElevationModel() {
+      super(UTM_GEOMETRY_FACTORY, 0, 0, TILE_SIZE, 1);
+    }
+
+    @Override
+    protected GriddedElevationModel newModel(final double tileX, final double tileY) {
+      final IntArrayScaleGriddedElevationModel model = new IntArrayScaleGriddedElevationModel(
+        UTM_GEOMETRY_FACTORY, tileX, tileY, TILE_SIZE, TILE_SIZE, 1);
+      for (int gridY = 0; gridY < TILE_SIZE; gridY++) {
+        for (int gridX = 0; gridX < TILE_SIZE; gridX++) {
+          model.setValue(gridX, gridY, gridX + gridY);
+        }
+      }
+      return model;
+    }
+  }
+
+  private static final GeometryFactory UTM_GEOMETRY_FACTORY = GeometryFactory.fixed3d(26910,
+    1000.0, 1000.0, 1000.0);
+
+  private static final int OPERATION_COUNT = 50000000;
+
+  private static final int TILE_COUNT = 16;
+
+  private static final int TILE_SIZE = 500;
+
+  public static void main(final String[] args) throws InterruptedException {
+    final MemoryTiledElevationModel model = new MemoryTiledElevationModel();
+    final int size = TILE_COUNT * TILE_SIZE;
+    for (int run = 0; run < 2; run++) {
+      for (final int threadCount : new int[] {
+        1, 4, 16, 32
+      }) {
+        run("random", threadCount, () -> () -> {
+          final ThreadLocalRandom random = ThreadLocalRandom.current();
+          model.getValueFast(random.nextInt(size), random.nextInt(size));
+        });
+        run("walk", threadCount, () -> new Runnable() {
+          private int gridX = ThreadLocalRandom.current().nextInt(size);
+
+          private final int gridY = ThreadLocalRandom.current().nextInt(size);
+
+          @Override
+          public void run() {
+            this.gridX = (this.gridX + 1) % size;
+            model.getValueFast(this.gridX, this.gridY);
+          }
+        });
+      }
+    }
+    System.out.println(model.getCache());
+  }
+
+  private static void run(final String name, final int threadCount,
+    final Supplier<Runnable> operationFactory) throws InterruptedException {
+    final int operationsPerThread = OPERATION_COUNT / threadCount;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      final Runnable operation = operationFactory.get();
+      final Thread thread = new Thread(() -> {
+        try {
+          startLatch.await();
+        } catch (final InterruptedException e) {
+          return;
+        }
+        for (int i = 0; i < operationsPerThread; i++) {
+          operation.run();
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    final long startTime = System.nanoTime();
+    startLatch.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long operationsPerSecond = Math.round(operationsPerThread * threadCount / seconds);
+    System.out.println(name + "\tthreads=" + threadCount + "\t" + operationsPerSecond + " ops/s");
+  }
+}
@@ -100,4 +100,142 @@ public class ScaledIntegerGriddedDigitalElevationModelTest extends GriddedElevat
     assertModelEquals(expectedModel, actualModel);
   }
 
+  @Test
+  public void test300MemoryMappedRead() {
+    final GriddedElevationModel model = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    final Path path = writeModel(model, "target/test/elevation/memoryMapped.sigdem");
+    try (
+      final ScaledIntegerGriddedDigitalElevationModelFile mappedModel = new ScaledIntegerGriddedDigitalElevationModelFile(
+        path);
+      final ScaledIntegerGriddedDigitalElevationModelFile fileModel = new ScaledIntegerGriddedDigitalElevationModelFile(
+        path)) {
+      mappedModel.setMemoryMapped(true);
+      Assert.assertTrue(mappedModel.isMemoryMapped());
+      assertModelEquals(model, mappedModel);
+
+      final int gridX = 10;
+      final int gridY = 20;
+      final int width = 50;
+      final int height = 30;
+      final int[] expectedInts = new int[width * height];
+      fileModel.getElevationsInt(gridX, gridY, width, height, expectedInts);
+      final int[] actualInts = new int[width * height];
+      mappedModel.getElevationsInt(gridX, gridY, width, height, actualInts);
+      Assert.assertArrayEquals(expectedInts, actualInts);
+
+      final double[] elevations = new double[width * height];
+      mappedModel.getElevations(gridX, gridY, width, height, elevations);
+      for (int row = 0; row < height; row++) {
+        for (int column = 0; column < width; column++) {
+          final double expectedElevation = model.getValue(gridX + column, gridY + row);
+          Assert.assertEquals(expectedElevation, elevations[row * width + column], 0);
+        }
+      }
+
+      // Cells after the end of the file are null
+      final int[] rowInts = new int[300];
+      mappedModel.getElevationsInt(0, 254, rowInts, 0, rowInts.length);
+      Assert.assertEquals(Integer.MIN_VALUE, rowInts[299]);
+    }
+  }
+
+  @Test
+  public void test301MemoryMappedWrite() throws IOException {
+    final Path path = Paths.get("target/test/elevation/memoryMappedWrite.sigdem");
+    Files.deleteIfExists(path);
+    final GeometryFactory geometryFactory = GeometryFactory.fixed3d(3005, 1000.0, 1000.0, 1000.0);
+    final GriddedElevationModel expectedModel = GriddedElevationModelTest
+      .newIntArrayModelNaNOnDiagonal(3005);
+    try (
+      final ScaledIntegerGriddedDigitalElevationModelFile actualModel = new ScaledIntegerGriddedDigitalElevationModelFile(
+        path, geometryFactory, 0, 0, 255, 255, 1)) {
+      actualModel.setCreateMissing(true);
+      actualModel.setMemoryMapped(true);
+      actualModel.setUseLocks(true);
+      actualModel.setValues(expectedModel);
+      actualModel.setValue(3, 4, 12.5);
+      expectedModel.setValue(3, 4, 12.5);
+      actualModel.setValueNull(5, 6);
+      expectedModel.setValueNull(5, 6);
+      assertModelEquals(expectedModel, actualModel);
+    }
+
+    final GriddedElevationModel actualModel = GriddedElevationModel.newGriddedElevationModel(path);
+    assertModelEquals(expectedModel, actualModel);
+  }
+
+  @Test
+  public void test302MemoryMappedRegions() throws IOException {
+    // Map 4 rows per region so the elevations written and read span multiple regions
+    final int gridWidth = 255;
+    final long maxMappedByteCount = 4 * gridWidth * 4;
+    final Path directory = Files.createTempDirectory("sigdem");
+    final Path path = directory.resolve("regions.sigdem");
+    try {
+      final GeometryFactory geometryFactory = GeometryFactory.fixed3d(3005, 1000.0, 1000.0,
+        1000.0);
+      final double[] elevations = new double[gridWidth * 5 + 7];
+      final int[] expectedInts = new int[elevations.length];
+      for (int i = 0; i < elevations.length; i++) {
+        if (i % 17 == 0) {
+          elevations[i] = Double.NaN;
+          expectedInts[i] = Integer.MIN_VALUE;
+        } else {
+          elevations[i] = (i - 500) / 4.0;
+          expectedInts[i] = (i - 500) * 250;
+        }
+      }
+      final int gridX = 10;
+      final int gridY = 2;
+      try (
+        final ScaledIntegerGriddedDigitalElevationModelFile model = new ScaledIntegerGriddedDigitalElevationModelFile(
+          path, geometryFactory, 0, 0, gridWidth, gridWidth, 1)) {
+        model.setCreateMissing(true);
+        model.setMemoryMapped(true);
+        model.setMaxMappedByteCount(maxMappedByteCount);
+        model.setUseLocks(true);
+        model.setElevations(gridX, gridY, elevations);
+        // The last cell of the first region and first cell of the second region
+        model.setValue(gridWidth - 1, 3, 1.5);
+        model.setValue(0, 4, 2.5);
+        expectedInts[gridWidth * 2 - 1 - gridX] = 1500;
+        expectedInts[gridWidth * 2 - gridX] = 2500;
+
+        final int[] actualInts = new int[elevations.length];
+        model.getElevationsInt(gridX, gridY, actualInts, 0, actualInts.length);
+        Assert.assertArrayEquals(expectedInts, actualInts);
+        Assert.assertTrue(Double.isNaN(model.getValue(gridX - 1, gridY)));
+      }
+
+      for (final boolean memoryMapped : new boolean[] {
+        false, true
+      }) {
+        try (
+          final ScaledIntegerGriddedDigitalElevationModelFile model = new ScaledIntegerGriddedDigitalElevationModelFile(
+            path)) {
+          model.setMemoryMapped(memoryMapped);
+          model.setMaxMappedByteCount(maxMappedByteCount);
+          final int[] actualInts = new int[elevations.length];
+          model.getElevationsInt(gridX, gridY, actualInts, 0, actualInts.length);
+          Assert.assertArrayEquals("memoryMapped=" + memoryMapped, expectedInts, actualInts);
+          for (int i = 0; i < elevations.length; i++) {
+            final int cellIndex = gridY * gridWidth + gridX + i;
+            final double expectedElevation;
+            if (expectedInts[i] == Integer.MIN_VALUE) {
+              expectedElevation = Double.NaN;
+            } else {
+              expectedElevation = expectedInts[i] / 1000.0;
+            }
+            Assert.assertEquals("memoryMapped=" + memoryMapped, expectedElevation,
+              model.getValue(cellIndex % gridWidth, cellIndex / gridWidth), 0);
+          }
+        }
+      }
+    } finally {
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(directory);
+    }
+  }
+
 }
@@ -0,0 +1,77 @@
+package com.revolsys.core.test.elevation.tin;
+
+import java.util.Random;
+
+import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.quadedge.intscale.IntParallelDelaunayTriangulator;
+import com.revolsys.elevation.tin.quadedge.intscale.IntQuadEdgeDelaunayTinBuilder;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Compare the time to construct a TIN using the sequential
+ * {@link IntQuadEdgeDelaunayTinBuilder#newTriangulatedIrregularNetwork()} with the
+ * {@link IntParallelDelaunayTriangulator} using 1 to 32 threads. The vertex count can be passed as
+ * the first argument, the default is 1,000,000 vertices. The results are printed as vertices/s
+ * and the speedup relative to 1 thread.
+ */
+public class DelaunayTinPerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  private static IntQuadEdgeDelaunayTinBuilder newBuilder(final int vertexCount) {
+    final IntQuadEdgeDelaunayTinBuilder builder = new IntQuadEdgeDelaunayTinBuilder(
+      GEOMETRY_FACTORY);
+    final Random random = new Random(0);
+    for (int i = 0; i < vertexCount; i++) {
+      final int x = 1000000000 + random.nextInt(100000000);
+      final int y = 400000000 + random.nextInt(100000000);
+      final int z = random.nextInt(1000000);
+      builder.insertVertex(x, y, z);
+    }
+    return builder;
+  }
+
+  public static void main(final String[] args) {
+    int vertexCount = 1000000;
+    if (args.length > 0) {
+      vertexCount = Integer.parseInt(args[0]);
+    }
+    for (int run = 0; run < 2; run++) {
+      final IntQuadEdgeDelaunayTinBuilder sortedBuilder = newBuilder(vertexCount);
+      sortedBuilder.setSortVertices(true);
+      long startTime = System.nanoTime();
+      final TriangulatedIrregularNetwork sequentialTin = sortedBuilder
+        .newTriangulatedIrregularNetwork();
+      print("sequential", 1, vertexCount, startTime, 0);
+      final int triangleCount = sequentialTin.getTriangleCount();
+
+      double singleThreadSeconds = 0;
+      for (int threadCount = 1; threadCount <= 32; threadCount *= 2) {
+        final IntQuadEdgeDelaunayTinBuilder builder = newBuilder(vertexCount);
+        startTime = System.nanoTime();
+        final TriangulatedIrregularNetwork tin = builder
+          .newTriangulatedIrregularNetwork(threadCount);
+        final double seconds = print("parallel", threadCount, vertexCount, startTime,
+          singleThreadSeconds);
+        if (threadCount == 1) {
+          singleThreadSeconds = seconds;
+        }
+        if (tin.getTriangleCount() != triangleCount) {
+          System.err.println("Triangle count " + tin.getTriangleCount() + " != " + triangleCount);
+        }
+      }
+    }
+  }
+
+  private static double print(final String name, final int threadCount, final int vertexCount,
+    final long startTime, final double singleThreadSeconds) {
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    String speedup = "";
+    if (singleThreadSeconds > 0) {
+      speedup = "\t" + Math.round(singleThreadSeconds / seconds * 100) / 100.0 + "x";
+    }
+    System.out.println(name + "\tthreads=" + threadCount + "\t"
+      + Math.round(vertexCount / seconds) + " vertices/s" + speedup);
+    return seconds;
+  }
+}
@@ -0,0 +1,188 @@
+package com.revolsys.core.test.elevation.tin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.elevation.tin.IntArrayScaleTriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.TriangulatedIrregularNetwork;
+import com.revolsys.elevation.tin.quadedge.intscale.IntParallelDelaunayTriangulator;
+import com.revolsys.elevation.tin.quadedge.intscale.IntQuadEdgeDelaunayTinBuilder;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Test that the {@link IntParallelDelaunayTriangulator} creates the same triangles as the
+ * sequential {@link IntQuadEdgeDelaunayTinBuilder#newTriangulatedIrregularNetwork()}.
+ */
+public class IntParallelDelaunayTriangulatorTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  private static final int[] THREAD_COUNTS = {
+    1, 2, 3, 4, 8
+  };
+
+  private static void addPoint(final List<int[]> points, final Set<Long> vertices, final int x,
+    final int y) {
+    if (vertices.add(toLong(x, y))) {
+      points.add(new int[] {
+        x, y, points.size()
+      });
+    }
+  }
+
+  private static void assertSameTriangles(final List<int[]> points) {
+    final IntQuadEdgeDelaunayTinBuilder builder = newBuilder(points);
+    final Set<List<Long>> expected = getTriangles(builder.newTriangulatedIrregularNetwork());
+    for (final int threadCount : THREAD_COUNTS) {
+      final Set<List<Long>> actual = getTriangles(
+        newBuilder(points).newTriangulatedIrregularNetwork(threadCount));
+      Assert.assertEquals("threadCount=" + threadCount, expected, actual);
+    }
+  }
+
+  private static long getArea2(final List<Long> triangle) {
+    final long x1 = getX(triangle.get(0));
+    final long y1 = getY(triangle.get(0));
+    final long x2 = getX(triangle.get(1));
+    final long y2 = getY(triangle.get(1));
+    final long x3 = getX(triangle.get(2));
+    final long y3 = getY(triangle.get(2));
+    return Math.abs((x2 - x1) * (y3 - y1) - (y2 - y1) * (x3 - x1));
+  }
+
+  /**
+   * Get the triangles as the sorted list of the vertices' x, y coordinates packed in a long.
+   */
+  private static Set<List<Long>> getTriangles(final TriangulatedIrregularNetwork tin) {
+    final Set<List<Long>> triangles = new HashSet<>();
+    final IntArrayScaleTriangulatedIrregularNetwork intTin = //
+      (IntArrayScaleTriangulatedIrregularNetwork)tin;
+    intTin.forEachTriangleInt((x1, y1, z1, x2, y2, z2, x3, y3, z3) -> {
+      final Long[] vertices = {
+        toLong(x1, y1), toLong(x2, y2), toLong(x3, y3)
+      };
+      Arrays.sort(vertices);
+      Assert.assertTrue("Duplicate triangle", triangles.add(Arrays.asList(vertices)));
+    });
+    Assert.assertEquals("triangleCount", intTin.getTriangleCount(), triangles.size());
+    return triangles;
+  }
+
+  private static long getX(final long vertex) {
+    return vertex >> 32;
+  }
+
+  private static long getY(final long vertex) {
+    return (int)vertex;
+  }
+
+  private static IntQuadEdgeDelaunayTinBuilder newBuilder(final List<int[]> points) {
+    final IntQuadEdgeDelaunayTinBuilder builder = new IntQuadEdgeDelaunayTinBuilder(
+      GEOMETRY_FACTORY);
+    for (final int[] point : points) {
+      builder.insertVertex(point[0], point[1], point[2]);
+    }
+    return builder;
+  }
+
+  private static long toLong(final int x, final int y) {
+    return (long)x << 32 | y & 0xFFFFFFFFL;
+  }
+
+  @Test
+  public void testDuplicateX() {
+    // Many vertices with the same x, the strips are extended to include all of them
+    final Random random = new Random(0);
+    final List<int[]> points = new ArrayList<>();
+    final Set<Long> vertices = new HashSet<>();
+    while (points.size() < 50000) {
+      addPoint(points, vertices, random.nextInt(100) * 1000, random.nextInt(100000000));
+    }
+    assertSameTriangles(points);
+  }
+
+  @Test
+  public void testGrid() {
+    // The cells of a grid are cocircular so the diagonals can be in either direction
+    final int size = 250;
+    final int spacing = 1000;
+    final List<int[]> points = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      for (int j = 0; j < size; j++) {
+        points.add(new int[] {
+          i * spacing, j * spacing, i + j
+        });
+      }
+    }
+    Collections.shuffle(points, new Random(0));
+    final IntQuadEdgeDelaunayTinBuilder builder = newBuilder(points);
+    final Set<List<Long>> expected = getTriangles(builder.newTriangulatedIrregularNetwork());
+    final int triangleCount = 2 * (size - 1) * (size - 1);
+    Assert.assertEquals("triangleCount", triangleCount, expected.size());
+    for (final int threadCount : THREAD_COUNTS) {
+      final String message = "threadCount=" + threadCount;
+      final Set<List<Long>> actual = getTriangles(
+        newBuilder(points).newTriangulatedIrregularNetwork(threadCount));
+      Assert.assertEquals(message, triangleCount, actual.size());
+      final Map<List<Long>, Integer> edgeCounts = new HashMap<>();
+      for (final List<Long> triangle : actual) {
+        Assert.assertEquals(message + " area", (long)spacing * spacing, getArea2(triangle));
+        for (int i = 0; i < 3; i++) {
+          final long vertex1 = triangle.get(i);
+          final long vertex2 = triangle.get((i + 1) % 3);
+          final List<Long> edge = Arrays.asList(Math.min(vertex1, vertex2),
+            Math.max(vertex1, vertex2));
+          edgeCounts.merge(edge, 1, Integer::sum);
+        }
+      }
+      for (final Integer edgeCount : edgeCounts.values()) {
+        Assert.assertTrue(message + " edge in > 2 triangles", edgeCount <= 2);
+      }
+    }
+  }
+
+  @Test
+  public void testRandom() {
+    final Random random = new Random(0);
+    final List<int[]> points = new ArrayList<>();
+    final Set<Long> vertices = new HashSet<>();
+    while (points.size() < 50000) {
+      addPoint(points, vertices, 1000000000 + random.nextInt(100000000),
+        400000000 + random.nextInt(100000000));
+    }
+    assertSameTriangles(points);
+
+    // Fewer vertices than needed for more than one strip
+    assertSameTriangles(points.subList(0, 500));
+  }
+
+  @Test
+  public void testSmallStrip() {
+    // The first strip is extended over the vertices with the same x, leaving the second strip
+    // with fewer than the minimum vertices for a strip
+    final Random random = new Random(0);
+    final List<int[]> points = new ArrayList<>();
+    final Set<Long> vertices = new HashSet<>();
+    while (points.size() < 9000) {
+      addPoint(points, vertices, random.nextInt(10000000), random.nextInt(100000000));
+    }
+    while (points.size() < 10500) {
+      addPoint(points, vertices, 10000000, random.nextInt(100000000));
+    }
+    while (points.size() < 30000) {
+      addPoint(points, vertices, 10000001 + random.nextInt(10000000), random.nextInt(100000000));
+    }
+    Collections.shuffle(points, random);
+    assertSameTriangles(points);
+  }
+}
@@ -0,0 +1,89 @@
+package com.revolsys.core.test.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.geometry.operation.union.CascadedPolygonUnion;
+
+/**
+ * Compare the time to union overlapping polygons using the single threaded
+ * {@link CascadedPolygonUnion#union(Iterable)} with
+ * {@link CascadedPolygonUnion#union(Iterable, ForkJoinPool)} using 1 to 32 threads. The polygon
+ * count can be passed as the first argument, the default is 100,000 polygons. The results are
+ * printed as polygons/s and the speedup relative to the single threaded union. Each parallel
+ * result is checked to be the same as the single threaded result.
+ */
+public class CascadedPolygonUnionPerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  public static void main(final String[] args) {
+    int polygonCount = 100000;
+    if (args.length > 0) {
+      polygonCount = Integer.parseInt(args[0]);
+    }
+    final List<Polygon> polygons = newPolygons(polygonCount);
+    for (int run = 0; run < 2; run++) {
+      long startTime = System.nanoTime();
+      final Polygonal expected = CascadedPolygonUnion.union(polygons);
+      final double sequentialSeconds = print("sequential", 1, polygonCount, startTime, 0);
+
+      for (int threadCount = 1; threadCount <= 32; threadCount *= 2) {
+        final ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+          startTime = System.nanoTime();
+          final Polygonal union = CascadedPolygonUnion.union(polygons, pool);
+          print("parallel", threadCount, polygonCount, startTime, sequentialSeconds);
+          if (!union.equals(2, expected)) {
+            System.err.println("Parallel union not equal to sequential threads=" + threadCount);
+          }
+        } finally {
+          pool.shutdown();
+        }
+      }
+    }
+  }
+
+  /**
+   * Create regular 32 sided polygons with random centres and radii so that each polygon
+   * overlaps a few of its neighbours.
+   */
+  private static List<Polygon> newPolygons(final int polygonCount) {
+    final Random random = new Random(0);
+    final double size = Math.sqrt(polygonCount) * 100;
+    final List<Polygon> polygons = new ArrayList<>(polygonCount);
+    for (int i = 0; i < polygonCount; i++) {
+      final double centreX = 1000000 + random.nextDouble() * size;
+      final double centreY = 500000 + random.nextDouble() * size;
+      final double radius = 20 + random.nextDouble() * 60;
+      final int vertexCount = 32;
+      final double[] coordinates = new double[(vertexCount + 1) * 2];
+      for (int j = 0; j < vertexCount; j++) {
+        final double angle = Math.PI * 2 * j / vertexCount;
+        coordinates[j * 2] = centreX + Math.cos(angle) * radius;
+        coordinates[j * 2 + 1] = centreY + Math.sin(angle) * radius;
+      }
+      coordinates[vertexCount * 2] = coordinates[0];
+      coordinates[vertexCount * 2 + 1] = coordinates[1];
+      polygons.add(GEOMETRY_FACTORY.polygon(2, coordinates));
+    }
+    return polygons;
+  }
+
+  private static double print(final String name, final int threadCount, final int polygonCount,
+    final long startTime, final double sequentialSeconds) {
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    String speedup = "";
+    if (sequentialSeconds > 0) {
+      speedup = "\t" + Math.round(sequentialSeconds / seconds * 100) / 100.0 + "x";
+    }
+    System.out.println(name + "\tthreads=" + threadCount + "\t"
+      + Math.round(polygonCount / seconds) + " polygons/s" + speedup);
+    return seconds;
+  }
+}
@@ -0,0 +1,138 @@
+package com.revolsys.core.test.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.revolsys.geometry.index.SpatialIndex;
+import com.revolsys.geometry.index.quadtree.ConcurrentQuadTree;
+import com.revolsys.geometry.index.quadtree.QuadTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.impl.BoundingBoxDoubleXY;
+
+/**
+ * Measure the throughput of concurrent window queries on a {@link QuadTree} guarded by a
+ * {@link ReentrantReadWriteLock} and on a {@link ConcurrentQuadTree} without a lock. One writer
+ * thread continuously removes and inserts items while 1 to 16 reader threads run random window
+ * queries. The item count can be passed as the first argument, the default is 100,000 items. The
+ * results are printed as reads/s and writes/s.
+ */
+public class ConcurrentQuadTreePerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static final long RUN_NANOS = 3000000000L;
+
+  private static final double SIZE = 100000;
+
+  private static List<BoundingBox> newBoundingBoxes(final int itemCount) {
+    final Random random = new Random(0);
+    final List<BoundingBox> boundingBoxes = new ArrayList<>(itemCount);
+    for (int i = 0; i < itemCount; i++) {
+      final double x = 1000000 + random.nextDouble() * SIZE;
+      final double y = 400000 + random.nextDouble() * SIZE;
+      final double width = random.nextDouble() * 50;
+      final double height = random.nextDouble() * 50;
+      boundingBoxes.add(new BoundingBoxDoubleXY(x, y, x + width, y + height));
+    }
+    return boundingBoxes;
+  }
+
+  public static void main(final String[] args) throws InterruptedException {
+    int itemCount = 100000;
+    if (args.length > 0) {
+      itemCount = Integer.parseInt(args[0]);
+    }
+    final List<BoundingBox> boundingBoxes = newBoundingBoxes(itemCount);
+    for (int run = 0; run < 2; run++) {
+      for (int readerCount = 1; readerCount <= 16; readerCount *= 2) {
+        final QuadTree<BoundingBox> quadTree = new QuadTree<>(GEOMETRY_FACTORY);
+        quadTree.insertItems(boundingBoxes, boundingBox -> boundingBox);
+        run("locked", quadTree, new ReentrantReadWriteLock(), boundingBoxes, readerCount);
+
+        final ConcurrentQuadTree<BoundingBox> concurrentQuadTree = new ConcurrentQuadTree<>(
+          GEOMETRY_FACTORY);
+        concurrentQuadTree.insertItems(boundingBoxes, boundingBox -> boundingBox);
+        run("concurrent", concurrentQuadTree, null, boundingBoxes, readerCount);
+      }
+    }
+  }
+
+  private static void run(final String name, final SpatialIndex<BoundingBox> index,
+    final ReadWriteLock lock, final List<BoundingBox> boundingBoxes, final int readerCount)
+    throws InterruptedException {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicLong readCount = new AtomicLong();
+    final AtomicLong resultCount = new AtomicLong();
+    final AtomicLong writeCount = new AtomicLong();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      final int seed = i + 1;
+      threads.add(new Thread(() -> {
+        final Random random = new Random(seed);
+        final long[] count = new long[1];
+        final Consumer<BoundingBox> action = boundingBox -> count[0]++;
+        long reads = 0;
+        while (running.get()) {
+          final double x = 1000000 + random.nextDouble() * SIZE;
+          final double y = 400000 + random.nextDouble() * SIZE;
+          if (lock == null) {
+            index.forEach(x, y, x + 1000, y + 1000, action);
+          } else {
+            lock.readLock().lock();
+            try {
+              index.forEach(x, y, x + 1000, y + 1000, action);
+            } finally {
+              lock.readLock().unlock();
+            }
+          }
+          reads++;
+        }
+        readCount.addAndGet(reads);
+        resultCount.addAndGet(count[0]);
+      }));
+    }
+    threads.add(new Thread(() -> {
+      final Random random = new Random(0);
+      long writes = 0;
+      while (running.get()) {
+        final BoundingBox boundingBox = boundingBoxes.get(random.nextInt(boundingBoxes.size()));
+        if (lock == null) {
+          index.removeItem(boundingBox, boundingBox);
+          index.insertItem(boundingBox, boundingBox);
+        } else {
+          lock.writeLock().lock();
+          try {
+            index.removeItem(boundingBox, boundingBox);
+            index.insertItem(boundingBox, boundingBox);
+          } finally {
+            lock.writeLock().unlock();
+          }
+        }
+        writes += 2;
+      }
+      writeCount.addAndGet(writes);
+    }));
+    final long startTime = System.nanoTime();
+    for (final Thread thread : threads) {
+      thread.start();
+    }
+    Thread.sleep(RUN_NANOS / 1000000);
+    running.set(false);
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    if (resultCount.get() == 0) {
+      System.out.println();
+    }
+    System.out.println(name + "\treaders=" + readerCount + "\t"
+      + Math.round(readCount.get() / seconds) + " reads/s\t"
+      + Math.round(writeCount.get() / seconds) + " writes/s");
+  }
+}
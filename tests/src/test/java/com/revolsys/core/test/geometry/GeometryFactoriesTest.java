@@ -0,0 +1,135 @@
+package com.revolsys.core.test.geometry;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactories;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WKBReader;
+
+/**
+ * Test that the {@link GeometryFactories} for a coordinate system return the same geometry
+ * factory instances as the {@link GeometryFactory} static methods and conversions.
+ */
+public class GeometryFactoriesTest {
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int[] COORDINATE_SYSTEM_IDS = {
+    3005, 4326, 26910
+  };
+
+  private static List<GeometryFactory> getGeometryFactories() {
+    final List<GeometryFactory> geometryFactories = new ArrayList<>();
+    for (final int coordinateSystemId : COORDINATE_SYSTEM_IDS) {
+      final GeometryFactories instances = GeometryFactories
+        .forCoordinateSystemId(coordinateSystemId);
+      for (int axisCount = 2; axisCount <= 4; axisCount++) {
+        geometryFactories.add(instances.floating(axisCount));
+        geometryFactories.add(instances.fixed(axisCount, 1000.0, 1000.0, 1.0));
+      }
+    }
+    return geometryFactories;
+  }
+
+  private static byte[] newEwkbPoint(final int coordinateSystemId, final double x,
+    final double y) {
+    final ByteBuffer data = ByteBuffer.allocate(25);
+    data.put((byte)0);
+    data.putInt(1 | EWKB_SRID);
+    data.putInt(coordinateSystemId);
+    data.putDouble(x);
+    data.putDouble(y);
+    return data.array();
+  }
+
+  @Test
+  public void testConcurrentInstances() throws Exception {
+    final int threadCount = 8;
+    final CountDownLatch start = new CountDownLatch(1);
+    final List<List<GeometryFactory>> results = new ArrayList<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < threadCount; i++) {
+      final Thread thread = new Thread(() -> {
+        try {
+          start.await();
+          List<GeometryFactory> geometryFactories = null;
+          for (int j = 0; j < 1000; j++) {
+            geometryFactories = getGeometryFactories();
+          }
+          synchronized (results) {
+            results.add(geometryFactories);
+          }
+        } catch (final InterruptedException e) {
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals("threadCount", threadCount, results.size());
+    final List<GeometryFactory> expected = getGeometryFactories();
+    for (final List<GeometryFactory> geometryFactories : results) {
+      for (int i = 0; i < expected.size(); i++) {
+        Assert.assertSame(expected.get(i).toString(), expected.get(i), geometryFactories.get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testFixedInstances() {
+    final GeometryFactory geometryFactory = GeometryFactory.fixed2d(3005, 1000.0, 1000.0);
+    final GeometryFactories instances = geometryFactory.getInstances();
+    Assert.assertSame("instances", GeometryFactories.forCoordinateSystemId(3005), instances);
+    Assert.assertSame("fixed", geometryFactory, instances.fixed(2, 1000.0, 1000.0));
+    Assert.assertSame("convertAxisCount", geometryFactory, geometryFactory.convertAxisCount(2));
+
+    final GeometryFactory geometryFactory3d = geometryFactory.convertAxisCount(3);
+    Assert.assertEquals("axisCount", 3, geometryFactory3d.getAxisCount());
+    Assert.assertSame("convertAxisCount", geometryFactory3d, geometryFactory.convertAxisCount(3));
+    Assert.assertSame("convertAxisCount", geometryFactory, geometryFactory3d.convertAxisCount(2));
+
+    final GeometryFactory scaledFactory = geometryFactory.convertScales(100.0, 100.0);
+    Assert.assertNotSame("convertScales", geometryFactory, scaledFactory);
+    Assert.assertSame("convertScales", scaledFactory, geometryFactory.convertScales(100.0, 100.0));
+    Assert.assertSame("fixed2d", scaledFactory, GeometryFactory.fixed2d(3005, 100.0, 100.0));
+  }
+
+  @Test
+  public void testFloatingInstances() {
+    final GeometryFactory geometryFactory = GeometryFactory.floating2d(3005);
+    final GeometryFactories instances = geometryFactory.getInstances();
+    Assert.assertSame("instances", GeometryFactories.forCoordinateSystemId(3005), instances);
+    Assert.assertEquals("coordinateSystemId", 3005, instances.getCoordinateSystemId());
+    Assert.assertSame("floating", geometryFactory, instances.floating(2));
+    Assert.assertSame("convertAxisCount", geometryFactory, geometryFactory.convertAxisCount(2));
+    Assert.assertSame("convertAxisCount", GeometryFactory.floating3d(3005),
+      geometryFactory.convertAxisCount(3));
+    Assert.assertSame("fixed with zero scales", geometryFactory, instances.fixed(2, 0.0, 0.0));
+    Assert.assertSame("convertSrid", GeometryFactory.floating2d(4326),
+      geometryFactory.convertSrid(4326));
+  }
+
+  @Test
+  public void testWkbSrid() throws Exception {
+    final WKBReader reader = new WKBReader(GeometryFactory.floating2d(0));
+    final Geometry point1 = reader.read(newEwkbPoint(3005, 1, 2));
+    final Geometry point2 = reader.read(newEwkbPoint(3005, 3, 4));
+    Assert.assertSame("geometryFactory", GeometryFactory.floating2d(3005),
+      point1.getGeometryFactory());
+    Assert.assertSame("geometryFactory", point1.getGeometryFactory(),
+      point2.getGeometryFactory());
+
+    final Geometry point3 = reader.read(newEwkbPoint(4326, 5, 6));
+    Assert.assertSame("geometryFactory", GeometryFactory.floating2d(4326),
+      point3.getGeometryFactory());
+  }
+}
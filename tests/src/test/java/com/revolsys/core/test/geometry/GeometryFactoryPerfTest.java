@@ -0,0 +1,76 @@
+package com.revolsys.core.test.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.revolsys.geometry.model.GeometryFactories;
+import com.revolsys.geometry.model.GeometryFactory;
+
+/**
+ * Measure the throughput of resolving {@link GeometryFactory} instances from many concurrent
+ * readers, using the static lookup methods and a pre-resolved {@link GeometryFactories}.
+ */
+public class GeometryFactoryPerfTest {
+  private static final int LOOKUP_COUNT = 10000000;
+
+  private static final int[] COORDINATE_SYSTEM_IDS = {
+    3005, 26910, 4326
+  };
+
+  private interface Lookup {
+    GeometryFactory lookup(int index);
+  }
+
+  public static void main(final String[] args) throws InterruptedException {
+    final GeometryFactories instances = GeometryFactories.forCoordinateSystemId(3005);
+    for (int run = 0; run < 2; run++) {
+      for (final int threadCount : new int[] {
+        1, 4, 16, 32
+      }) {
+        run("floating(srid)", threadCount,
+          i -> GeometryFactory.floating(3005, 2 + (i & 1)));
+        run("fixed(srid)", threadCount,
+          i -> GeometryFactory.fixed(3005, 2 + (i & 1), 1000.0, 1000.0, 1000.0));
+        run("floating(mixed srid)", threadCount,
+          i -> GeometryFactory.floating(COORDINATE_SYSTEM_IDS[(i >> 10) % 3], 3));
+        run("convertAxisCount", threadCount,
+          i -> GeometryFactory.DEFAULT_3D.convertAxisCount(2 + (i & 1)));
+        run("pre-resolved", threadCount, i -> instances.floating(2 + (i & 1)));
+      }
+    }
+  }
+
+  private static void run(final String name, final int threadCount, final Lookup lookup)
+    throws InterruptedException {
+    final int lookupsPerThread = LOOKUP_COUNT / threadCount;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final List<Thread> threads = new ArrayList<>();
+    final int[] hashes = new int[threadCount];
+    for (int threadIndex = 0; threadIndex < threadCount; threadIndex++) {
+      final int index = threadIndex;
+      final Thread thread = new Thread(() -> {
+        try {
+          startLatch.await();
+        } catch (final InterruptedException e) {
+          return;
+        }
+        int hash = 0;
+        for (int i = 0; i < lookupsPerThread; i++) {
+          hash += System.identityHashCode(lookup.lookup(i));
+        }
+        hashes[index] = hash;
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    final long startTime = System.nanoTime();
+    startLatch.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long lookupsPerSecond = Math.round(lookupsPerThread * threadCount / seconds);
+    System.out.println(name + "\tthreads=" + threadCount + "\t" + lookupsPerSecond + " lookups/s");
+  }
+}
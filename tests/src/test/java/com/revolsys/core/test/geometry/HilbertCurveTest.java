@@ -0,0 +1,62 @@
+package com.revolsys.core.test.geometry;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.util.HilbertCurve;
+
+/**
+ * Test the {@link HilbertCurve} distances for all the orders, including order 31 where the grid
+ * size 2<sup>31</sup> doesn't fit in an int.
+ */
+public class HilbertCurveTest {
+
+  @Test
+  public void testCorners() {
+    for (int order = 1; order <= 31; order++) {
+      final int maxCell = (int)((1L << order) - 1);
+      final long cellCount = 1L << 2 * order;
+      final String message = "order=" + order;
+      Assert.assertEquals(message, 0, HilbertCurve.index(order, 0, 0));
+      Assert.assertEquals(message, cellCount - 1, HilbertCurve.index(order, maxCell, 0));
+      // The top right cell is in the third quadrant of the curve
+      final long topRightIndex = HilbertCurve.index(order, maxCell, maxCell);
+      Assert.assertTrue(message, topRightIndex >= cellCount / 2);
+      Assert.assertTrue(message, topRightIndex < cellCount / 4 * 3);
+      Assert.assertEquals(message, cellCount - 1,
+        HilbertCurve.index(order, 0, 0, 10, 10, 10, 0));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidOrder() {
+    HilbertCurve.index(32, 0, 0);
+  }
+
+  @Test
+  public void testSmallOrders() {
+    // Each cell has a unique distance and consecutive distances are adjacent cells
+    for (int order = 1; order <= 5; order++) {
+      final int size = 1 << order;
+      final int[] cellXs = new int[size * size];
+      final int[] cellYs = new int[size * size];
+      final Set<Long> indexes = new HashSet<>();
+      for (int x = 0; x < size; x++) {
+        for (int y = 0; y < size; y++) {
+          final long index = HilbertCurve.index(order, x, y);
+          Assert.assertTrue("unique", indexes.add(index));
+          cellXs[(int)index] = x;
+          cellYs[(int)index] = y;
+        }
+      }
+      for (int i = 1; i < size * size; i++) {
+        final int distance = Math.abs(cellXs[i] - cellXs[i - 1])
+          + Math.abs(cellYs[i] - cellYs[i - 1]);
+        Assert.assertEquals("adjacent", 1, distance);
+      }
+    }
+  }
+}
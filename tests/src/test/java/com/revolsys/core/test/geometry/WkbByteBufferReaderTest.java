@@ -0,0 +1,226 @@
+package com.revolsys.core.test.geometry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.wkb.ParseException;
+import com.revolsys.geometry.wkb.WKBReader;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+
+/**
+ * Test the ISO and EWKB type codes, byte orders and invalid WKB read by the
+ * {@link WkbByteBufferReader} using {@link WKBReader#read(byte[])}.
+ */
+public class WkbByteBufferReaderTest {
+  private static final int EWKB_M = 0x40000000;
+
+  private static final int EWKB_SRID = 0x20000000;
+
+  private static final int EWKB_Z = 0x80000000;
+
+  private static void assertVertex(final LineString line, final int vertexIndex,
+    final double... coordinates) {
+    Assert.assertEquals("x", coordinates[0], line.getX(vertexIndex), 0);
+    Assert.assertEquals("y", coordinates[1], line.getY(vertexIndex), 0);
+    Assert.assertEquals("z", coordinates[2], line.getZ(vertexIndex), 0);
+    Assert.assertEquals("m", coordinates[3], line.getM(vertexIndex), 0);
+  }
+
+  private static ByteBuffer newBuffer() {
+    return ByteBuffer.allocate(1024);
+  }
+
+  private static void putHeader(final ByteBuffer data, final ByteOrder byteOrder,
+    final int type) {
+    data.order(byteOrder);
+    if (byteOrder == ByteOrder.BIG_ENDIAN) {
+      data.put((byte)0);
+    } else {
+      data.put((byte)1);
+    }
+    data.putInt(type);
+  }
+
+  private static void putLine(final ByteBuffer data, final double[]... vertices) {
+    data.putInt(vertices.length);
+    for (final double[] vertex : vertices) {
+      for (final double coordinate : vertex) {
+        data.putDouble(coordinate);
+      }
+    }
+  }
+
+  private static <G extends Geometry> G read(final ByteBuffer data) throws ParseException {
+    final byte[] bytes = Arrays.copyOf(data.array(), data.position());
+    final WKBReader reader = new WKBReader(GeometryFactory.DEFAULT_3D);
+    @SuppressWarnings("unchecked")
+    final G geometry = (G)reader.read(bytes);
+    return geometry;
+  }
+
+  private static void readInvalid(final ByteBuffer data) {
+    try {
+      read(data);
+      Assert.fail("Expected ParseException");
+    } catch (final ParseException e) {
+    }
+  }
+
+  @Test
+  public void testEwkb() throws ParseException {
+    for (final ByteOrder byteOrder : Arrays.asList(ByteOrder.BIG_ENDIAN,
+      ByteOrder.LITTLE_ENDIAN)) {
+      final ByteBuffer data = newBuffer();
+      putHeader(data, byteOrder, EWKB_SRID | EWKB_Z | 2);
+      data.putInt(3005);
+      putLine(data, new double[] {
+        1, 2, 3
+      }, new double[] {
+        4, 5, 6
+      });
+      final LineString line = read(data);
+      Assert.assertEquals("srid", 3005, line.getHorizontalCoordinateSystemId());
+      Assert.assertEquals("axisCount", 3, line.getAxisCount());
+      assertVertex(line, 1, 4, 5, 6, Double.NaN);
+
+      final ByteBuffer pointData = newBuffer();
+      putHeader(pointData, byteOrder, EWKB_SRID | EWKB_Z | EWKB_M | 1);
+      pointData.putInt(4326);
+      pointData.putDouble(-123.5).putDouble(49.25).putDouble(10).putDouble(20);
+      final Point point = read(pointData);
+      Assert.assertEquals("srid", 4326, point.getHorizontalCoordinateSystemId());
+      Assert.assertEquals("axisCount", 4, point.getAxisCount());
+      Assert.assertEquals("x", -123.5, point.getX(), 0);
+      Assert.assertEquals("y", 49.25, point.getY(), 0);
+      Assert.assertEquals("z", 10, point.getZ(), 0);
+      Assert.assertEquals("m", 20, point.getM(), 0);
+    }
+  }
+
+  @Test
+  public void testInvalidByteOrder() {
+    final ByteBuffer data = newBuffer();
+    putHeader(data, ByteOrder.LITTLE_ENDIAN, 1);
+    data.putDouble(1).putDouble(2);
+    data.put(0, (byte)2);
+    readInvalid(data);
+
+    // The Spatialite part marker is only valid for the parts of a multi geometry
+    data.put(0, (byte)0x69);
+    readInvalid(data);
+  }
+
+  @Test
+  public void testInvalidCount() {
+    for (final int count : new int[] {
+      -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 1000
+    }) {
+      final ByteBuffer lineData = newBuffer();
+      putHeader(lineData, ByteOrder.BIG_ENDIAN, 2);
+      lineData.putInt(count);
+      lineData.putDouble(1).putDouble(2);
+      readInvalid(lineData);
+
+      final ByteBuffer polygonData = newBuffer();
+      putHeader(polygonData, ByteOrder.LITTLE_ENDIAN, 3);
+      polygonData.putInt(1);
+      polygonData.putInt(count);
+      readInvalid(polygonData);
+
+      final ByteBuffer multiData = newBuffer();
+      putHeader(multiData, ByteOrder.LITTLE_ENDIAN, 7);
+      multiData.putInt(count);
+      readInvalid(multiData);
+    }
+  }
+
+  @Test
+  public void testIsoTypeCodes() throws ParseException {
+    final ByteBuffer zData = newBuffer();
+    putHeader(zData, ByteOrder.LITTLE_ENDIAN, 1002);
+    putLine(zData, new double[] {
+      1, 2, 3
+    }, new double[] {
+      4, 5, 6
+    });
+    final LineString zLine = read(zData);
+    Assert.assertEquals("axisCount", 3, zLine.getAxisCount());
+    assertVertex(zLine, 0, 1, 2, 3, Double.NaN);
+    assertVertex(zLine, 1, 4, 5, 6, Double.NaN);
+
+    // XYM is converted to XYZM with a NaN z
+    final ByteBuffer mData = newBuffer();
+    putHeader(mData, ByteOrder.BIG_ENDIAN, 2002);
+    putLine(mData, new double[] {
+      1, 2, 7
+    }, new double[] {
+      4, 5, 8
+    });
+    final LineString mLine = read(mData);
+    Assert.assertEquals("axisCount", 4, mLine.getAxisCount());
+    assertVertex(mLine, 0, 1, 2, Double.NaN, 7);
+    assertVertex(mLine, 1, 4, 5, Double.NaN, 8);
+
+    final ByteBuffer zmData = newBuffer();
+    putHeader(zmData, ByteOrder.LITTLE_ENDIAN, 3003);
+    zmData.putInt(1);
+    putLine(zmData, new double[] {
+      0, 0, 1, 10
+    }, new double[] {
+      10, 0, 2, 11
+    }, new double[] {
+      10, 10, 3, 12
+    }, new double[] {
+      0, 0, 1, 10
+    });
+    final Polygon polygon = read(zmData);
+    Assert.assertEquals("axisCount", 4, polygon.getAxisCount());
+    final LineString ring = polygon.getShell();
+    Assert.assertEquals("vertexCount", 4, ring.getVertexCount());
+    assertVertex(ring, 2, 10, 10, 3, 12);
+  }
+
+  @Test
+  public void testMixedByteOrders() throws ParseException {
+    final ByteBuffer data = newBuffer();
+    putHeader(data, ByteOrder.BIG_ENDIAN, 5);
+    data.putInt(3);
+    putHeader(data, ByteOrder.LITTLE_ENDIAN, 2);
+    putLine(data, new double[] {
+      1, 2
+    }, new double[] {
+      3, 4
+    });
+    putHeader(data, ByteOrder.BIG_ENDIAN, 2);
+    putLine(data, new double[] {
+      5, 6
+    }, new double[] {
+      7, 8
+    });
+    // Spatialite part marker uses the byte order of the previous geometry
+    data.put((byte)0x69);
+    data.putInt(2);
+    putLine(data, new double[] {
+      9, 10
+    }, new double[] {
+      11, 12
+    });
+    final Geometry multiLine = read(data);
+    Assert.assertEquals("partCount", 3, multiLine.getGeometryCount());
+    for (int partIndex = 0; partIndex < 3; partIndex++) {
+      final LineString line = multiLine.getGeometry(partIndex);
+      final double offset = partIndex * 4;
+      assertVertex(line, 0, offset + 1, offset + 2, Double.NaN, Double.NaN);
+      assertVertex(line, 1, offset + 3, offset + 4, Double.NaN, Double.NaN);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package com.revolsys.core.test.geometry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.ToIntFunction;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.geometry.wkb.ByteArrayInStream;
+import com.revolsys.geometry.wkb.ByteOrderValues;
+import com.revolsys.geometry.wkb.WKBReader;
+import com.revolsys.geometry.wkb.WKBWriter;
+import com.revolsys.geometry.wkb.WkbByteBufferReader;
+import com.revolsys.geometry.wkb.WkbChannelWriter;
+
+/**
+ * Measure the throughput of decoding and encoding WKB for a point, a 100 vertex line and a
+ * polygon with a 20,000 vertex shell and 10 holes. The tests are:
+ * <dl>
+ * <dt>read-stream</dt>
+ * <dd>{@link WKBReader#read(com.revolsys.geometry.wkb.InStream)} reading one value at a time.</dd>
+ * <dt>read-buffer</dt>
+ * <dd>{@link WKBReader#read(byte[])} using the bulk {@link WkbByteBufferReader}.</dd>
+ * <dt>write-stream</dt>
+ * <dd>{@link WKBWriter#write(Geometry)}.</dd>
+ * <dt>write-channel</dt>
+ * <dd>{@link WkbChannelWriter} reusing the buffer and output stream.</dd>
+ * </dl>
+ * Each test is run for big endian and little endian WKB.
+ */
+public class WkbPerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static final long RUN_NANOS = 2000000000L;
+
+  private interface Test {
+    int run() throws Exception;
+  }
+
+  public static void main(final String[] args) throws IOException {
+    final Geometry point = GEOMETRY_FACTORY.point(1200000.123, 450000.456);
+    final Geometry line = GEOMETRY_FACTORY.lineString(2, newCircle(1200000, 450000, 1000, 100));
+    final LinearRing[] rings = new LinearRing[11];
+    rings[0] = GEOMETRY_FACTORY.linearRing(2, newCircle(1200000, 450000, 10000, 20000));
+    for (int i = 1; i < rings.length; i++) {
+      final double[] coordinates = newCircle(1200000 + (i - 5.5) * 1500, 450000, 500, 200);
+      final LinearRing hole = GEOMETRY_FACTORY.linearRing(2, coordinates);
+      rings[i] = hole.reverse();
+    }
+    final Geometry polygon = GEOMETRY_FACTORY.polygon(rings);
+    for (int run = 0; run < 2; run++) {
+      for (final ByteOrder byteOrder : new ByteOrder[] {
+        ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN
+      }) {
+        perf("point", point, byteOrder);
+        perf("line", line, byteOrder);
+        perf("polygon", polygon, byteOrder);
+      }
+    }
+  }
+
+  private static double[] newCircle(final double centreX, final double centreY,
+    final double radius, final int vertexCount) {
+    final double[] coordinates = new double[(vertexCount + 1) * 2];
+    for (int i = 0; i < vertexCount; i++) {
+      final double angle = Math.PI * 2 * i / vertexCount;
+      coordinates[i * 2] = centreX + Math.cos(angle) * radius;
+      coordinates[i * 2 + 1] = centreY + Math.sin(angle) * radius;
+    }
+    coordinates[vertexCount * 2] = coordinates[0];
+    coordinates[vertexCount * 2 + 1] = coordinates[1];
+    return coordinates;
+  }
+
+  private static void perf(final String name, final Geometry geometry, final ByteOrder byteOrder)
+    throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final WritableByteChannel channel = Channels.newChannel(out);
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+    buffer.order(byteOrder);
+    final ToIntFunction<Geometry> writeChannel = g -> {
+      out.reset();
+      try (
+        WkbChannelWriter writer = new WkbChannelWriter(channel, buffer)) {
+        writer.writeGeometry(g);
+      }
+      return out.size();
+    };
+    writeChannel.applyAsInt(geometry);
+    final byte[] wkb = out.toByteArray();
+
+    final String prefix = name + "\t" + byteOrder + "\t";
+    final WKBReader reader = new WKBReader(GEOMETRY_FACTORY);
+    final ByteArrayInStream in = new ByteArrayInStream(wkb);
+    if (!reader.read(in).equals(2, geometry) || !reader.read(wkb).equals(2, geometry)) {
+      throw new IllegalStateException("Geometries not equal " + name);
+    }
+    run(prefix + "read-stream", wkb.length, () -> {
+      in.setBytes(wkb);
+      return reader.read(in).getVertexCount();
+    });
+    run(prefix + "read-buffer", wkb.length, () -> reader.read(wkb).getVertexCount());
+
+    int wkbByteOrder;
+    if (byteOrder == ByteOrder.LITTLE_ENDIAN) {
+      wkbByteOrder = ByteOrderValues.LITTLE_ENDIAN;
+    } else {
+      wkbByteOrder = ByteOrderValues.BIG_ENDIAN;
+    }
+    final WKBWriter wkbWriter = new WKBWriter(2, wkbByteOrder);
+    run(prefix + "write-stream", wkb.length, () -> wkbWriter.write(geometry).length);
+    run(prefix + "write-channel", wkb.length, () -> writeChannel.applyAsInt(geometry));
+  }
+
+  private static void run(final String name, final int size, final Test test) {
+    long count = 0;
+    long total = 0;
+    final long startTime = System.nanoTime();
+    long time;
+    do {
+      for (int i = 0; i < 100; i++) {
+        try {
+          total += test.run();
+        } catch (final Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+      count += 100;
+      time = System.nanoTime() - startTime;
+    } while (time < RUN_NANOS);
+    if (total == 0) {
+      System.out.println();
+    }
+    final double seconds = time / 1e9;
+    System.out.println(name + "\t" + Math.round(count / seconds) + " ops/s\t"
+      + Math.round(count * size / seconds / 1024 / 1024) + " MB/s");
+  }
+}
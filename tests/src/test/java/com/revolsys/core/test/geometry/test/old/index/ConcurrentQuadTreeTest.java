@@ -0,0 +1,63 @@
+package com.revolsys.core.test.geometry.test.old.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.quadtree.ConcurrentQuadTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.impl.BoundingBoxDoubleXY;
+
+public class ConcurrentQuadTreeTest {
+
+  @Test
+  public void testInsertItems() {
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      boundingBoxes.add(new BoundingBoxDoubleXY(i * 10, i * 5, i * 10 + 8, i * 5 + 4));
+    }
+    final ConcurrentQuadTree<BoundingBox> tree = new ConcurrentQuadTree<>(
+      GeometryFactory.DEFAULT_3D);
+    tree.insertItems(boundingBoxes, boundingBox -> boundingBox);
+    Assert.assertEquals(100, tree.getSize());
+    Assert.assertEquals(22, tree.getItems(95, 45, 302, 152).size());
+  }
+
+  @Test
+  public void testRemoveSnapshot() {
+    final ConcurrentQuadTree<BoundingBox> tree = new ConcurrentQuadTree<>(
+      GeometryFactory.DEFAULT_3D);
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final BoundingBox boundingBox = new BoundingBoxDoubleXY(i * 10, i * 5, i * 10 + 8,
+        i * 5 + 4);
+      boundingBoxes.add(boundingBox);
+      tree.insertItem(boundingBox, boundingBox);
+    }
+    final List<BoundingBox> items = new ArrayList<>();
+    tree.forEach(item -> {
+      if (items.isEmpty()) {
+        for (final BoundingBox boundingBox : boundingBoxes) {
+          Assert.assertTrue(tree.removeItem(boundingBox, boundingBox));
+        }
+      }
+      items.add(item);
+    });
+    Assert.assertEquals(100, items.size());
+    Assert.assertEquals(0, tree.getSize());
+    Assert.assertTrue(tree.getItems().isEmpty());
+  }
+
+  @Test
+  public void testSpatialIndex() throws Exception {
+    final SpatialIndexTester tester = new SpatialIndexTester();
+    tester.setSpatialIndex(new ConcurrentQuadTree<>(GeometryFactory.DEFAULT_3D));
+    tester.init();
+    tester.run();
+    Assert.assertTrue(tester.isSuccess());
+  }
+
+}
@@ -0,0 +1,87 @@
+package com.revolsys.core.test.geometry.test.old.index;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.index.hilbertrtree.HilbertRTree;
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.impl.BoundingBoxDoubleXY;
+
+public class HilbertRTreeTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(0);
+
+  private static double distance(final BoundingBox boundingBox, final double x, final double y) {
+    final double dx = Math.max(0,
+      Math.max(boundingBox.getMinX() - x, x - boundingBox.getMaxX()));
+    final double dy = Math.max(0,
+      Math.max(boundingBox.getMinY() - y, y - boundingBox.getMaxY()));
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  @Test
+  public void testNearestNeighbour() {
+    final Random random = new Random(1);
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    final HilbertRTree<BoundingBox> tree = new HilbertRTree<>(GEOMETRY_FACTORY);
+    for (int i = 0; i < 1000; i++) {
+      final double x = random.nextDouble() * 1000;
+      final double y = random.nextDouble() * 1000;
+      final BoundingBox boundingBox = new BoundingBoxDoubleXY(x, y, x + 2, y + 2);
+      boundingBoxes.add(boundingBox);
+      tree.insertItem(boundingBox, boundingBox);
+    }
+    for (int i = 0; i < 100; i++) {
+      final double x = random.nextDouble() * 1000;
+      final double y = random.nextDouble() * 1000;
+      double minDistance = Double.POSITIVE_INFINITY;
+      for (final BoundingBox boundingBox : boundingBoxes) {
+        minDistance = Math.min(minDistance, distance(boundingBox, x, y));
+      }
+      final BoundingBox nearest = tree.nearestNeighbour(x, y);
+      Assert.assertEquals(minDistance, distance(nearest, x, y), 0);
+    }
+  }
+
+  @Test
+  public void testReadWriteIndex() throws Exception {
+    final HilbertRTree<BoundingBox> tree = new HilbertRTree<>(GEOMETRY_FACTORY);
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final BoundingBox boundingBox = new BoundingBoxDoubleXY(i * 10, i * 5, i * 10 + 8,
+        i * 5 + 4);
+      boundingBoxes.add(boundingBox);
+      tree.insertItem(boundingBox, boundingBox);
+    }
+    final Path file = Files.createTempFile("index", ".hrtree");
+    try {
+      tree.writeIndex(file, boundingBoxes::indexOf);
+      final HilbertRTree<BoundingBox> mappedTree = HilbertRTree.readIndex(file, GEOMETRY_FACTORY,
+        id -> boundingBoxes.get((int)id));
+      Assert.assertEquals(tree.getSize(), mappedTree.getSize());
+      final List<BoundingBox> expected = tree.getItems(95, 45, 302, 152);
+      final List<BoundingBox> actual = mappedTree.getItems(95, 45, 302, 152);
+      Assert.assertEquals(22, actual.size());
+      Assert.assertTrue(actual.containsAll(expected));
+      Assert.assertSame(boundingBoxes.get(50), mappedTree.nearestNeighbour(503, 252));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testSpatialIndex() throws Exception {
+    final SpatialIndexTester tester = new SpatialIndexTester();
+    tester.setSpatialIndex(new HilbertRTree<>(GEOMETRY_FACTORY));
+    tester.init();
+    tester.run();
+    Assert.assertTrue(tester.isSuccess());
+  }
+}
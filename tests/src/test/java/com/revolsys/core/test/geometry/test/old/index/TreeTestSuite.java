@@ -6,6 +6,8 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({
+  ConcurrentQuadTreeTest.class, //
+  HilbertRTreeTest.class, //
   KdTreeTest.class, //
   QuadtreeTest.class, //
   STRtreeTest.class
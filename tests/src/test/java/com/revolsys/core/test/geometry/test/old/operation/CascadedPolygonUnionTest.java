@@ -3,11 +3,13 @@ package com.revolsys.core.test.geometry.test.old.operation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import com.revolsys.core.test.geometry.test.old.junit.GeometryUtils;
 import com.revolsys.geometry.model.Geometry;
 import com.revolsys.geometry.model.GeometryFactory;
 import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
 import com.revolsys.geometry.operation.union.CascadedPolygonUnion;
 
 import junit.framework.TestCase;
@@ -77,4 +79,18 @@ public class CascadedPolygonUnionTest extends TestCase {
 
     runTest(geoms, CascadedPolygonUnionTester.MIN_SIMILARITY_MEAURE);
   }
+
+  public void testDiscsParallel() throws Exception {
+    final Collection<Polygon> geoms = newDiscs(20, 0.7);
+    final Polygonal expected = CascadedPolygonUnion.union(geoms);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int i = 0; i < 5; i++) {
+        final Polygonal actual = CascadedPolygonUnion.union(geoms, pool);
+        assertTrue(expected.equals(3, actual));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
 }
@@ -0,0 +1,126 @@
+package com.revolsys.core.test.gis.graph;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+
+import com.revolsys.geometry.graph.Edge;
+import com.revolsys.geometry.graph.Graph;
+import com.revolsys.geometry.graph.Node;
+
+/**
+ * Compare the memory use and throughput of the default {@link Graph} with a compact graph (see
+ * {@link Graph#newCompact()}). A grid road network with the requested number of edges is built,
+ * the heap used by the graph, the edges/s to build it and the nodes/s to do a breadth first
+ * traversal using the {@link Node} and {@link Edge} API are printed. The edge counts can be
+ * passed as arguments, the default is 1M, 5M and 20M edges. The edge lines are not stored so
+ * the results only include the graph structure. Run with a large -Xmx.
+ */
+public class CompactGraphPerfTest {
+  private static class SegmentGraph extends Graph<Object> {
+    public SegmentGraph(final boolean compact) {
+      super(false, compact);
+    }
+
+    public void addSegment(final double fromX, final double fromY, final double toX,
+      final double toY) {
+      addEdge(null, fromX, fromY, toX, toY);
+    }
+  }
+
+  private static final int TRAVERSE_NODE_COUNT = 1000000;
+
+  private static void build(final SegmentGraph graph, final int edgeCount) {
+    final int size = (int)Math.ceil(Math.sqrt(edgeCount / 2.0)) + 1;
+    int count = 0;
+    for (int row = 0; row < size && count < edgeCount; row++) {
+      for (int column = 0; column < size && count < edgeCount; column++) {
+        final double x = column * 10;
+        final double y = row * 10;
+        graph.addSegment(x, y, x + 10, y);
+        count++;
+        if (count < edgeCount) {
+          graph.addSegment(x, y, x, y + 10);
+          count++;
+        }
+      }
+    }
+  }
+
+  public static void main(final String[] args) {
+    int[] edgeCounts = {
+      1000000, 5000000, 20000000
+    };
+    if (args.length > 0) {
+      edgeCounts = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        edgeCounts[i] = Integer.parseInt(args[i]);
+      }
+    }
+    for (final int edgeCount : edgeCounts) {
+      run(edgeCount, false);
+      run(edgeCount, true);
+    }
+  }
+
+  private static void run(final int edgeCount, final boolean compact) {
+    final String name = (compact ? "compact" : "default") + "\tedges=" + edgeCount;
+    final long startMemory = usedMemory();
+    final SegmentGraph graph = new SegmentGraph(compact);
+    try {
+      final long startTime = System.nanoTime();
+      build(graph, edgeCount);
+      final double buildSeconds = (System.nanoTime() - startTime) / 1e9;
+      final long memory = usedMemory() - startMemory;
+
+      final long traverseStartTime = System.nanoTime();
+      final int visitedCount = traverse(graph);
+      final double traverseSeconds = (System.nanoTime() - traverseStartTime) / 1e9;
+
+      System.out.println(name + "\tnodes=" + graph.getNodeCount() + "\t"
+        + memory / (1024 * 1024) + " MB\t" + memory / edgeCount + " bytes/edge\t"
+        + Math.round(edgeCount / buildSeconds) + " edges/s\t"
+        + Math.round(visitedCount / traverseSeconds) + " traversed nodes/s");
+    } catch (final OutOfMemoryError e) {
+      System.out.println(name + "\tout of memory");
+    }
+  }
+
+  private static int traverse(final Graph<Object> graph) {
+    final BitSet visited = new BitSet();
+    final Deque<Node<Object>> queue = new ArrayDeque<>();
+    final Node<Object> start = graph.findNode(0, 0);
+    visited.set(start.getId());
+    queue.add(start);
+    int visitedCount = 0;
+    while (!queue.isEmpty() && visitedCount < TRAVERSE_NODE_COUNT) {
+      final Node<Object> node = queue.removeFirst();
+      visitedCount++;
+      // The lines aren't stored so use the in and out edges as getEdges sorts them by angle
+      for (final Edge<Object> edge : node.getOutEdges()) {
+        visit(visited, queue, edge.getToNode());
+      }
+      for (final Edge<Object> edge : node.getInEdges()) {
+        visit(visited, queue, edge.getFromNode());
+      }
+    }
+    return visitedCount;
+  }
+
+  private static long usedMemory() {
+    final Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void visit(final BitSet visited, final Deque<Node<Object>> queue,
+    final Node<Object> node) {
+    final int nodeId = node.getId();
+    if (!visited.get(nodeId)) {
+      visited.set(nodeId);
+      queue.add(node);
+    }
+  }
+}
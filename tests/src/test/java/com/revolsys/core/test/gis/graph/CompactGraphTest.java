@@ -0,0 +1,285 @@
+package com.revolsys.core.test.gis.graph;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.graph.Edge;
+import com.revolsys.geometry.graph.Graph;
+import com.revolsys.geometry.graph.Node;
+import com.revolsys.geometry.graph.algorithm.ShortestPath;
+import com.revolsys.geometry.graph.linemerge.LineMerger;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LineString;
+
+/**
+ * Check that a compact graph (see {@link Graph#newCompact()}) has the same nodes, edges and
+ * algorithm results as the default graph for the same network.
+ */
+public class CompactGraphTest {
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final int GRID_SIZE = 12;
+
+  private static void assertGraphEquals(final Graph<String> expected,
+    final Graph<String> actual) {
+    Assert.assertEquals("nodeCount", expected.getNodeCount(), actual.getNodeCount());
+    Assert.assertEquals("edgeCount", expected.getEdgeCount(), actual.getEdgeCount());
+    Assert.assertEquals("nodeIds", sortedIds(expected.getNodeIds()),
+      sortedIds(actual.getNodeIds()));
+    Assert.assertEquals("edgeIds", sortedIds(expected.getEdgeIds()),
+      sortedIds(actual.getEdgeIds()));
+    for (final Node<String> expectedNode : expected.getNodes()) {
+      final int nodeId = expectedNode.getId();
+      final Node<String> node = actual.getNode(nodeId);
+      Assert.assertNotNull("node " + nodeId, node);
+      Assert.assertEquals("x", expectedNode.getX(), node.getX(), 0);
+      Assert.assertEquals("y", expectedNode.getY(), node.getY(), 0);
+      Assert.assertEquals("findNode", nodeId,
+        actual.findNode(expectedNode.getX(), expectedNode.getY()).getId());
+      Assert.assertEquals("inEdges", edgeIds(expectedNode.getInEdges()),
+        edgeIds(node.getInEdges()));
+      Assert.assertEquals("outEdges", edgeIds(expectedNode.getOutEdges()),
+        edgeIds(node.getOutEdges()));
+      Assert.assertEquals("edges", edgeIds(expectedNode.getEdges()), edgeIds(node.getEdges()));
+    }
+    for (final Edge<String> expectedEdge : expected.getEdges()) {
+      final int edgeId = expectedEdge.getId();
+      final Edge<String> edge = actual.getEdge(edgeId);
+      Assert.assertNotNull("edge " + edgeId, edge);
+      Assert.assertEquals("fromNode", expectedEdge.getFromNodeId(), edge.getFromNodeId());
+      Assert.assertEquals("toNode", expectedEdge.getToNodeId(), edge.getToNodeId());
+      Assert.assertEquals("object", expectedEdge.getObject(), edge.getObject());
+      Assert.assertEquals("line", expectedEdge.getLineString(), edge.getLineString());
+    }
+  }
+
+  private static void assertShortestPathEquals(final Graph<String> expected,
+    final Graph<String> actual) {
+    final Node<String> expectedSource = expected.findNode(0, 0);
+    final ShortestPath<String> expectedPath = new ShortestPath<>(expected, expectedSource);
+    final ShortestPath<String> path = new ShortestPath<>(actual, actual.findNode(0, 0));
+    for (final Node<String> node : expected.getNodes()) {
+      final List<Integer> expectedEdgeIds = edgeIds(expectedPath.getPath(node));
+      final List<Integer> edgeIds = edgeIds(path.getPath(actual.getNode(node.getId())));
+      Assert.assertEquals("path to " + node.getId(), expectedEdgeIds, edgeIds);
+    }
+  }
+
+  private static List<Integer> edgeIds(final List<Edge<String>> edges) {
+    final List<Integer> ids = new ArrayList<>();
+    for (final Edge<String> edge : edges) {
+      ids.add(edge.getId());
+    }
+    return ids;
+  }
+
+  private static List<LineString> newLines() {
+    final Random random = new Random(0);
+    final List<LineString> lines = new ArrayList<>();
+    for (int row = 0; row < GRID_SIZE; row++) {
+      for (int column = 0; column < GRID_SIZE; column++) {
+        final double x = column * 10;
+        final double y = row * 10;
+        if (column < GRID_SIZE - 1) {
+          // Bend some lines so the lengths and shortest paths differ
+          final double midY = y + random.nextInt(3);
+          lines.add(GEOMETRY_FACTORY.lineString(2, x, y, x + 5, midY, x + 10, y));
+        }
+        if (row < GRID_SIZE - 1) {
+          lines.add(GEOMETRY_FACTORY.lineString(2, x, y, x, y + 10));
+        }
+        if (random.nextInt(4) == 0 && row < GRID_SIZE - 1 && column < GRID_SIZE - 1) {
+          lines.add(GEOMETRY_FACTORY.lineString(2, x + 10, y + 10, x, y));
+        }
+      }
+    }
+    // A chain of degree 2 nodes for the line merger
+    for (int i = 0; i < 5; i++) {
+      final double x = -100 + i * 10;
+      lines.add(GEOMETRY_FACTORY.lineString(2, x, -50, x + 10, -50));
+    }
+    return lines;
+  }
+
+  private static Graph<String> newGraph(final boolean compact, final List<LineString> lines) {
+    final Graph<String> graph;
+    if (compact) {
+      graph = Graph.newCompact();
+      Assert.assertTrue(graph.isCompact());
+    } else {
+      graph = new Graph<>();
+    }
+    graph.setGeometryFactory(GEOMETRY_FACTORY);
+    int i = 0;
+    for (final LineString line : lines) {
+      graph.addEdge("edge" + i++, line);
+    }
+    return graph;
+  }
+
+  private static List<Integer> sortedIds(final Iterable<Integer> ids) {
+    final List<Integer> list = new ArrayList<>();
+    for (final Integer id : ids) {
+      list.add(id);
+    }
+    list.sort(null);
+    return list;
+  }
+
+  private static List<String> toSortedWkt(final List<LineString> lines) {
+    final List<String> wkts = new ArrayList<>();
+    for (final LineString line : lines) {
+      wkts.add(line.toEwkt());
+    }
+    wkts.sort(null);
+    return wkts;
+  }
+
+  @Test
+  public void testBuild() {
+    final List<LineString> lines = newLines();
+    final Graph<String> graph = newGraph(false, lines);
+    final Graph<String> compactGraph = newGraph(true, lines);
+    assertGraphEquals(graph, compactGraph);
+    Assert.assertNull(compactGraph.findNode(1, 1));
+    Assert.assertNull(compactGraph.getNode(graph.getNodeCount() + 100));
+  }
+
+  @Test
+  public void testFlyweightRelease() throws InterruptedException {
+    final List<LineString> lines = newLines();
+    final Graph<String> graph = newGraph(false, lines);
+    final Graph<String> compactGraph = newGraph(true, lines);
+
+    Node<String> node = compactGraph.findNode(10, 10);
+    Edge<String> edge = node.getOutEdges().get(0);
+    final int nodeId = node.getId();
+    final int edgeId = edge.getId();
+    // The same instance is returned while it is referenced
+    Assert.assertSame(node, compactGraph.getNode(nodeId));
+    Assert.assertSame(edge, compactGraph.getEdge(edgeId));
+
+    final WeakReference<Node<String>> nodeReference = new WeakReference<>(node);
+    final WeakReference<Edge<String>> edgeReference = new WeakReference<>(edge);
+    node = null;
+    edge = null;
+    for (int i = 0; i < 50 && (nodeReference.get() != null || edgeReference.get() != null); i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertNull("node released", nodeReference.get());
+    Assert.assertNull("edge released", edgeReference.get());
+
+    // New flyweights are created from the store, including edge changes made while released
+    compactGraph.getNode(nodeId)
+      .getOutEdges()
+      .get(0)
+      .getToNode()
+      .getInEdges()
+      .forEach(inEdge -> {
+        if (inEdge.getFromNodeId() != nodeId) {
+          compactGraph.remove(inEdge);
+        }
+      });
+    graph.getNode(nodeId)
+      .getOutEdges()
+      .get(0)
+      .getToNode()
+      .getInEdges()
+      .forEach(inEdge -> {
+        if (inEdge.getFromNodeId() != nodeId) {
+          graph.remove(inEdge);
+        }
+      });
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+    }
+    assertGraphEquals(graph, compactGraph);
+    Assert.assertEquals(nodeId, compactGraph.getNode(nodeId).getId());
+    Assert.assertEquals(edgeId, compactGraph.getEdge(edgeId).getId());
+  }
+
+  @Test
+  public void testLineMerger() {
+    final List<LineString> lines = newLines();
+    final LineMerger merger = new LineMerger(false);
+    merger.addAll(lines);
+    final LineMerger compactMerger = new LineMerger(true);
+    compactMerger.addAll(lines);
+    Assert.assertTrue(compactMerger.getGraph().isCompact());
+    final List<String> mergedLines = toSortedWkt(merger.getLineStrings());
+    Assert.assertEquals(mergedLines, toSortedWkt(compactMerger.getLineStrings()));
+    Assert.assertTrue(mergedLines.size() < lines.size());
+  }
+
+  @Test
+  public void testRemove() {
+    final List<LineString> lines = newLines();
+    final Graph<String> graph = newGraph(false, lines);
+    final Graph<String> compactGraph = newGraph(true, lines);
+
+    final Random random = new Random(1);
+    final List<Integer> edgeIds = sortedIds(graph.getEdgeIds());
+    for (int i = 0; i < edgeIds.size() / 4; i++) {
+      final int edgeId = edgeIds.get(random.nextInt(edgeIds.size()));
+      final Edge<String> edge = graph.getEdge(edgeId);
+      if (edge != null) {
+        graph.remove(edge);
+        final Edge<String> compactEdge = compactGraph.getEdge(edgeId);
+        compactGraph.remove(compactEdge);
+        Assert.assertTrue(compactEdge.isRemoved());
+        Assert.assertNull(compactGraph.getEdge(edgeId));
+      }
+    }
+    assertGraphEquals(graph, compactGraph);
+
+    for (final double[] point : Arrays.asList(new double[] {
+      50, 50
+    }, new double[] {
+      0, 0
+    }, new double[] {
+      110, 110
+    })) {
+      final Node<String> node = graph.findNode(point[0], point[1]);
+      final Node<String> compactNode = compactGraph.findNode(point[0], point[1]);
+      if (node != null) {
+        final int nodeId = node.getId();
+        graph.remove(node);
+        compactGraph.remove(compactNode);
+        Assert.assertTrue(compactNode.isRemoved());
+        Assert.assertNull(compactGraph.getNode(nodeId));
+        Assert.assertNull(compactGraph.findNode(point[0], point[1]));
+      } else {
+        Assert.assertNull(compactNode);
+      }
+    }
+    assertGraphEquals(graph, compactGraph);
+
+    // Nodes can be added back at the same location with a new id
+    graph.addEdge("new", GEOMETRY_FACTORY.lineString(2, 50.0, 50, 200, 200));
+    compactGraph.addEdge("new", GEOMETRY_FACTORY.lineString(2, 50.0, 50, 200, 200));
+    assertGraphEquals(graph, compactGraph);
+  }
+
+  @Test
+  public void testShortestPath() {
+    final List<LineString> lines = newLines();
+    final Graph<String> graph = newGraph(false, lines);
+    final Graph<String> compactGraph = newGraph(true, lines);
+    assertShortestPathEquals(graph, compactGraph);
+
+    final Node<String> node = graph.findNode(30, 30);
+    final int nodeId = node.getId();
+    graph.remove(node);
+    compactGraph.remove(compactGraph.getNode(nodeId));
+    assertShortestPathEquals(graph, compactGraph);
+  }
+}
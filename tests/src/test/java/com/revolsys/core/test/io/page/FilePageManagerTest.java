@@ -0,0 +1,181 @@
+package com.revolsys.core.test.io.page;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.page.FilePageManager;
+import com.revolsys.io.page.Page;
+
+public class FilePageManagerTest {
+  private static final int PAGE_SIZE = 64;
+
+  private static void assertFileValue(final File file, final int index, final int expected)
+    throws IOException {
+    try (
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      randomAccessFile.seek((long)index * PAGE_SIZE);
+      Assert.assertEquals("file page " + index, expected, randomAccessFile.readInt());
+    }
+  }
+
+  private static void assertPageValue(final FilePageManager pages, final int index,
+    final int expected) {
+    final Page page = pages.getPage(index);
+    try {
+      Assert.assertEquals("page " + index, expected, page.readInt());
+    } finally {
+      pages.releasePage(page);
+    }
+  }
+
+  private static File newFile() throws IOException {
+    final File file = File.createTempFile("FilePageManagerTest", ".pf");
+    file.deleteOnExit();
+    return file;
+  }
+
+  private static Page newPage(final FilePageManager pages, final int value) {
+    final Page page = pages.newPage();
+    page.writeInt(value);
+    return page;
+  }
+
+  @Test
+  public void testEvictUnpinnedPages() throws IOException {
+    final File file = newFile();
+    final FilePageManager pages = new FilePageManager(file, PAGE_SIZE, 4);
+    try {
+      final Page pinnedPage = newPage(pages, 100);
+      for (int i = 1; i < 10; i++) {
+        pages.releasePage(newPage(pages, 100 + i));
+      }
+      Assert.assertEquals("numPages", 10, pages.getNumPages());
+      Assert.assertEquals("maxCachedPages", 4, pages.getMaxCachedPages());
+      Assert.assertEquals("cachedPageCount", 4, pages.getCachedPageCount());
+      Assert.assertEquals("evictionCount", 6, pages.getEvictionCount());
+
+      // The pinned page is never evicted
+      pages.releasePage(pinnedPage);
+      final long hitCount = pages.getHitCount();
+      assertPageValue(pages, 0, 100);
+      Assert.assertEquals("hitCount", hitCount + 1, pages.getHitCount());
+
+      // An evicted page is read from the file
+      final long missCount = pages.getMissCount();
+      assertPageValue(pages, 1, 101);
+      Assert.assertEquals("missCount", missCount + 1, pages.getMissCount());
+      Assert.assertEquals("cachedPageCount", 4, pages.getCachedPageCount());
+    } finally {
+      pages.close();
+    }
+  }
+
+  @Test
+  public void testFlush() throws IOException {
+    final File file = newFile();
+    final FilePageManager pages = new FilePageManager(file, PAGE_SIZE, 16);
+    try {
+      for (int i = 0; i < 3; i++) {
+        pages.releasePage(newPage(pages, 200 + i));
+      }
+      Assert.assertEquals("writeCount", 0, pages.getWriteCount());
+      Assert.assertEquals("file length", 0, file.length());
+
+      pages.flush();
+      Assert.assertEquals("writeCount", 3, pages.getWriteCount());
+      Assert.assertEquals("file length", 3 * PAGE_SIZE, file.length());
+      for (int i = 0; i < 3; i++) {
+        assertFileValue(file, i, 200 + i);
+      }
+
+      // Only modified pages are written
+      pages.flush();
+      Assert.assertEquals("writeCount", 3, pages.getWriteCount());
+      final Page page = pages.getPage(1);
+      page.setOffset(0);
+      page.writeInt(300);
+      pages.releasePage(page);
+      pages.flush();
+      Assert.assertEquals("writeCount", 4, pages.getWriteCount());
+      assertFileValue(file, 1, 300);
+    } finally {
+      pages.close();
+    }
+  }
+
+  @Test
+  public void testGrowWhenAllPinned() throws IOException {
+    final File file = newFile();
+    final FilePageManager pages = new FilePageManager(file, PAGE_SIZE, 2);
+    try {
+      final Page[] pinnedPages = new Page[5];
+      for (int i = 0; i < pinnedPages.length; i++) {
+        pinnedPages[i] = newPage(pages, 400 + i);
+      }
+      Assert.assertEquals("cachedPageCount", 5, pages.getCachedPageCount());
+      Assert.assertTrue("maxCachedPages", pages.getMaxCachedPages() >= 5);
+      Assert.assertEquals("evictionCount", 0, pages.getEvictionCount());
+      for (final Page page : pinnedPages) {
+        pages.releasePage(page);
+      }
+      for (int i = 0; i < pinnedPages.length; i++) {
+        assertPageValue(pages, i, 400 + i);
+      }
+    } finally {
+      pages.close();
+    }
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    final File file = newFile();
+    final FilePageManager pages = new FilePageManager(file, PAGE_SIZE, 2);
+    for (int i = 0; i < 5; i++) {
+      pages.releasePage(newPage(pages, 500 + i));
+    }
+    pages.close();
+    Assert.assertEquals("file length", 5 * PAGE_SIZE, file.length());
+
+    final FilePageManager reopenedPages = new FilePageManager(file, PAGE_SIZE, 2);
+    try {
+      Assert.assertEquals("numPages", 5, reopenedPages.getNumPages());
+      for (int i = 0; i < 5; i++) {
+        assertPageValue(reopenedPages, i, 500 + i);
+      }
+      Assert.assertEquals("missCount", 5, reopenedPages.getMissCount());
+      reopenedPages.releasePage(newPage(reopenedPages, 505));
+      Assert.assertEquals("numPages", 6, reopenedPages.getNumPages());
+    } finally {
+      reopenedPages.close();
+    }
+  }
+
+  @Test
+  public void testWriteBackOnEvict() throws IOException {
+    final File file = newFile();
+    final FilePageManager pages = new FilePageManager(file, PAGE_SIZE, 2);
+    try {
+      for (int i = 0; i < 4; i++) {
+        pages.releasePage(newPage(pages, 600 + i));
+      }
+      // The first two pages were written when they were evicted for the last two pages
+      Assert.assertEquals("evictionCount", 2, pages.getEvictionCount());
+      Assert.assertEquals("writeCount", 2, pages.getWriteCount());
+      assertFileValue(file, 0, 600);
+      assertFileValue(file, 1, 601);
+
+      // Unmodified pages aren't written when evicted
+      assertPageValue(pages, 0, 600);
+      assertPageValue(pages, 1, 601);
+      Assert.assertEquals("writeCount", 4, pages.getWriteCount());
+      assertPageValue(pages, 2, 602);
+      Assert.assertEquals("writeCount", 4, pages.getWriteCount());
+    } finally {
+      pages.close();
+    }
+  }
+}
@@ -0,0 +1,285 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.field.JdbcIntegerFieldDefinition;
+import com.revolsys.jdbc.io.AbstractJdbcRecordStore;
+import com.revolsys.jdbc.io.JdbcQueryIterator;
+import com.revolsys.jdbc.io.JdbcRecordDefinition;
+import com.revolsys.jdbc.io.JdbcRecordStore;
+import com.revolsys.jdbc.io.JdbcRecordStoreSchema;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Query;
+
+/**
+ * Test the fetch size and auto commit used by the {@link JdbcQueryIterator} without a database.
+ * The record store, connection, statement and result set are proxies that return the rows and
+ * record the fetch sizes and auto commit requested by the iterator.
+ */
+public class JdbcQueryIteratorTest {
+  /**
+   * A record store that returns a result set with rowCount rows and columnCount columns of
+   * columnWidth characters.
+   */
+  private static class TestRecordStore {
+    private boolean adaptive;
+
+    private final List<Boolean> autoCommits = new ArrayList<>();
+
+    private int columnCount = 1;
+
+    private int columnWidth = 11;
+
+    private int fetchSize = 10;
+
+    private int maxFetchSize = 10000;
+
+    private boolean requiresTransaction;
+
+    private final List<Integer> resultSetFetchSizes = new ArrayList<>();
+
+    private int rowCount = 1000;
+
+    private final List<Integer> statementFetchSizes = new ArrayList<>();
+
+    private ResultSet newResultSet() {
+      final int[] row = {
+        0
+      };
+      final ResultSetMetaData metaData = newProxy(ResultSetMetaData.class, (proxy, method,
+        args) -> {
+        switch (method.getName()) {
+          case "getColumnCount":
+            return this.columnCount;
+          case "getColumnDisplaySize":
+            return this.columnWidth;
+          default:
+            return defaultValue(method);
+        }
+      });
+      return newProxy(ResultSet.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "next":
+            if (row[0] < this.rowCount) {
+              row[0]++;
+              return true;
+            } else {
+              return false;
+            }
+          case "getInt":
+            return row[0];
+          case "getMetaData":
+            return metaData;
+          case "setFetchSize":
+            this.resultSetFetchSizes.add((Integer)args[0]);
+            return null;
+          default:
+            return defaultValue(method);
+        }
+      });
+    }
+
+    private JdbcRecordStore newRecordStore() {
+      final PreparedStatement statement = newProxy(PreparedStatement.class,
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "executeQuery":
+              return newResultSet();
+            case "setFetchSize":
+              this.statementFetchSizes.add((Integer)args[0]);
+              return null;
+            default:
+              return defaultValue(method);
+          }
+        });
+      final Connection connection = newProxy(Connection.class, (proxy, method, args) -> {
+        if (method.getName().equals("prepareStatement")) {
+          return statement;
+        } else {
+          return defaultValue(method);
+        }
+      });
+      return newProxy(JdbcRecordStore.class, (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "getFetchSize":
+            return this.fetchSize;
+          case "getJdbcConnection":
+            this.autoCommits.add((Boolean)args[0]);
+            return new JdbcConnection(connection, null);
+          case "getMaxFetchSize":
+            return this.maxFetchSize;
+          case "getRecordDefinition":
+            return RECORD_DEFINITION;
+          case "getRecordFactory":
+            return ArrayRecord.FACTORY;
+          case "getResultSet":
+            return ((PreparedStatement)args[0]).executeQuery();
+          case "isFetchSizeAdaptive":
+            return this.adaptive;
+          case "isFetchSizeRequiresTransaction":
+            return this.requiresTransaction;
+          default:
+            return defaultValue(method);
+        }
+      });
+    }
+
+    /**
+     * Read all the records from a new iterator for the query.
+     */
+    private JdbcQueryIterator read(final Query query, final boolean autoCommit) {
+      final Map<String, Object> properties = Collections.singletonMap("autoCommit", autoCommit);
+      final JdbcQueryIterator iterator = new JdbcQueryIterator(newRecordStore(), query,
+        properties) {
+        @Override
+        protected String getSql(final Query query) {
+          return "SELECT ID FROM TEST";
+        }
+      };
+      int count = 0;
+      try {
+        for (final Record record : iterator) {
+          count++;
+          Assert.assertEquals("ID", count, record.getInteger("ID").intValue());
+        }
+      } finally {
+        iterator.close();
+      }
+      Assert.assertEquals("rowCount", this.rowCount, count);
+      Assert.assertEquals("rowCount", this.rowCount, iterator.getRowCount());
+      return iterator;
+    }
+  }
+
+  private static final JdbcRecordDefinition RECORD_DEFINITION = new JdbcRecordDefinition(
+    new JdbcRecordStoreSchema((AbstractJdbcRecordStore)null), PathName.newPathName("/TEST"),
+    "TEST");
+
+  static {
+    RECORD_DEFINITION.addField(new JdbcIntegerFieldDefinition("ID", "ID", Types.INTEGER, true,
+      null, Collections.emptyMap()));
+  }
+
+  private static Object defaultValue(final Method method) {
+    final Class<?> returnType = method.getReturnType();
+    if (returnType == boolean.class) {
+      return false;
+    } else if (returnType == int.class) {
+      return 0;
+    } else if (returnType == long.class) {
+      return 0L;
+    } else {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T newProxy(final Class<T> interfaceClass, final InvocationHandler handler) {
+    return (T)Proxy.newProxyInstance(interfaceClass.getClassLoader(), new Class<?>[] {
+      interfaceClass
+    }, handler);
+  }
+
+  @Test
+  public void testAdaptiveFetchSize() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    recordStore.adaptive = true;
+    recordStore.maxFetchSize = 100;
+    final JdbcQueryIterator iterator = recordStore.read(new Query(RECORD_DEFINITION), false);
+    Assert.assertEquals("statement fetch size", Arrays.asList(10),
+      recordStore.statementFetchSizes);
+    // Doubled after each round trip up to the maximum
+    Assert.assertEquals("result set fetch sizes", Arrays.asList(20, 40, 80, 100),
+      recordStore.resultSetFetchSizes);
+    Assert.assertEquals("fetchSize", 100, iterator.getFetchSize());
+    // Batches of 10, 10, 20, 40, 80 then 9 batches of 100 for the remaining 840 rows
+    Assert.assertEquals("roundTripCount", 14, iterator.getRoundTripCount());
+  }
+
+  @Test
+  public void testAdaptiveFetchSizeRowWidth() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    recordStore.adaptive = true;
+    recordStore.columnCount = 100;
+    recordStore.columnWidth = 4000;
+    // The column width is limited to 1024 so at most 16MB / (100 * 1024) = 163 rows are fetched
+    final JdbcQueryIterator iterator = recordStore.read(new Query(RECORD_DEFINITION), false);
+    Assert.assertEquals("result set fetch sizes", Arrays.asList(20, 40, 80, 160, 163),
+      recordStore.resultSetFetchSizes);
+    Assert.assertEquals("fetchSize", 163, iterator.getFetchSize());
+  }
+
+  @Test
+  public void testAutoCommit() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    recordStore.requiresTransaction = true;
+
+    // Not streaming so auto commit is used
+    recordStore.read(new Query(RECORD_DEFINITION), true);
+    Assert.assertEquals("not streaming", Arrays.asList(true), recordStore.autoCommits);
+    recordStore.autoCommits.clear();
+
+    // Streaming a query with a fetch size turns auto commit off
+    recordStore.read(new Query(RECORD_DEFINITION).setFetchSize(50), true);
+    Assert.assertEquals("query fetch size", Arrays.asList(false), recordStore.autoCommits);
+    Assert.assertEquals("statement fetch size", Arrays.asList(10, 50),
+      recordStore.statementFetchSizes);
+    recordStore.autoCommits.clear();
+
+    // Streaming with an adaptive fetch size turns auto commit off
+    recordStore.adaptive = true;
+    recordStore.read(new Query(RECORD_DEFINITION), true);
+    Assert.assertEquals("adaptive", Arrays.asList(false), recordStore.autoCommits);
+    recordStore.autoCommits.clear();
+
+    // Auto commit is left off if it wasn't requested
+    recordStore.read(new Query(RECORD_DEFINITION), false);
+    Assert.assertEquals("autoCommit=false", Arrays.asList(false), recordStore.autoCommits);
+    recordStore.autoCommits.clear();
+
+    // Drivers that stream with auto commit on don't need a transaction
+    recordStore.requiresTransaction = false;
+    recordStore.read(new Query(RECORD_DEFINITION).setFetchSize(50), true);
+    Assert.assertEquals("not required", Arrays.asList(true), recordStore.autoCommits);
+  }
+
+  @Test
+  public void testFixedFetchSize() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    final JdbcQueryIterator iterator = recordStore.read(new Query(RECORD_DEFINITION), false);
+    Assert.assertEquals("statement fetch size", Arrays.asList(10),
+      recordStore.statementFetchSizes);
+    Assert.assertEquals("result set fetch sizes", Collections.emptyList(),
+      recordStore.resultSetFetchSizes);
+    Assert.assertEquals("fetchSize", 10, iterator.getFetchSize());
+    // 100 full batches and a last fetch that finds there are no more rows
+    Assert.assertEquals("roundTripCount", 101, iterator.getRoundTripCount());
+
+    // The query's fetch size is used instead of the record store's
+    final TestRecordStore queryRecordStore = new TestRecordStore();
+    final JdbcQueryIterator queryIterator = queryRecordStore
+      .read(new Query(RECORD_DEFINITION).setFetchSize(250), false);
+    Assert.assertEquals("statement fetch size", Arrays.asList(250),
+      queryRecordStore.statementFetchSizes);
+    Assert.assertEquals("fetchSize", 250, queryIterator.getFetchSize());
+    Assert.assertEquals("roundTripCount", 5, queryIterator.getRoundTripCount());
+  }
+}
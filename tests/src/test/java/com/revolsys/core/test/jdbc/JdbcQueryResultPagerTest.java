@@ -0,0 +1,232 @@
+package com.revolsys.core.test.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jdbc.io.JdbcQueryResultPager;
+import com.revolsys.jdbc.io.JdbcRecordStore;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+
+/**
+ * Test the keyset paging of the {@link JdbcQueryResultPager} without a database. The pages are
+ * read from a sorted list of records, using the keyset query's condition to find the records
+ * after the previous page's last key, or the offset if the pager falls back to offset paging.
+ */
+public class JdbcQueryResultPagerTest {
+  /**
+   * Read the pages from the records sorted by the query's order by, in the same way as the
+   * database subclasses.
+   */
+  private static class ListPager extends JdbcQueryResultPager {
+    private final List<Record> records;
+
+    /** True for each page read using keyset paging, false for offset paging. */
+    private final List<Boolean> keysetPages = new ArrayList<>();
+
+    public ListPager(final Query query, final boolean keysetPaging) {
+      super(RECORD_STORE, Collections.<String, Object> singletonMap("keysetPaging", keysetPaging),
+        query);
+      this.records = sort(RECORDS, getQuery().getOrderBy());
+      setNumResults(this.records.size());
+    }
+
+    @Override
+    protected void updateResults() {
+      final int pageNumber = getPageNumber();
+      if (pageNumber > 0) {
+        final Query keysetQuery = getKeysetQuery();
+        final List<Record> results;
+        if (keysetQuery == null) {
+          final int startIndex = Math.min((pageNumber - 1) * getPageSize(), this.records.size());
+          final int endIndex = Math.min(startIndex + getPageSize(), this.records.size());
+          results = new ArrayList<>(this.records.subList(startIndex, endIndex));
+        } else {
+          results = this.records.stream()
+            .filter(keysetQuery.getWhereCondition())
+            .limit(getPageSize())
+            .collect(Collectors.toList());
+        }
+        this.keysetPages.add(keysetQuery != null);
+        setPageLastKey(results);
+        setResults(results);
+      }
+    }
+  }
+
+  private static final RecordDefinitionImpl RECORD_DEFINITION = new RecordDefinitionImpl(
+    PathName.newPathName("/TEST"), //
+    new FieldDefinition("ID", DataTypes.INT, true), //
+    new FieldDefinition("NAME", DataTypes.STRING, true), //
+    new FieldDefinition("VALUE", DataTypes.INT, true), //
+    new FieldDefinition("COMMENT", DataTypes.STRING, false));
+
+  private static final List<Record> RECORDS = new ArrayList<>();
+
+  /** The pager only uses the record store to query the database, which the test pager doesn't. */
+  private static final JdbcRecordStore RECORD_STORE = (JdbcRecordStore)Proxy.newProxyInstance(
+    JdbcRecordStore.class.getClassLoader(), new Class<?>[] {
+      JdbcRecordStore.class
+    }, (proxy, method, args) -> null);
+
+  static {
+    RECORD_DEFINITION.setIdFieldName("ID");
+    // Few distinct names and values so the later keys are needed to order the records
+    for (int i = 0; i < 53; i++) {
+      final Object[] values = {
+        i, "N" + i * 7 % 4, i * 5 % 3, null
+      };
+      RECORDS.add(new ArrayRecord(RECORD_DEFINITION, values));
+    }
+    Collections.shuffle(RECORDS, new Random(0));
+  }
+
+  private static void assertPages(final ListPager pager, final int... pageNumbers) {
+    final int pageSize = pager.getPageSize();
+    for (final int pageNumber : pageNumbers) {
+      pager.setPageNumber(pageNumber);
+      final int startIndex = (pageNumber - 1) * pageSize;
+      final int endIndex = Math.min(startIndex + pageSize, pager.records.size());
+      Assert.assertEquals("page " + pageNumber, pager.records.subList(startIndex, endIndex),
+        pager.getList());
+    }
+  }
+
+  private static Query newQuery(final String... orderBy) {
+    final Query query = new Query(RECORD_DEFINITION);
+    for (int i = 0; i < orderBy.length; i += 2) {
+      query.addOrderBy(orderBy[i], "ASC".equals(orderBy[i + 1]));
+    }
+    return query;
+  }
+
+  private static List<Record> sort(final List<Record> records,
+    final Map<CharSequence, Boolean> orderBy) {
+    Comparator<Record> comparator = (record1, record2) -> 0;
+    for (final Entry<CharSequence, Boolean> entry : orderBy.entrySet()) {
+      final String fieldName = entry.getKey().toString();
+      if (!RECORD_DEFINITION.hasField(fieldName)) {
+        // Expressions aren't used to sort the records
+        continue;
+      }
+      Comparator<Record> fieldComparator = Comparator.comparing(
+        record -> record.<Comparable<Object>> getValue(fieldName),
+        Comparator.nullsFirst(Comparator.naturalOrder()));
+      if (!entry.getValue()) {
+        fieldComparator = fieldComparator.reversed();
+      }
+      comparator = comparator.thenComparing(fieldComparator);
+    }
+    final List<Record> sortedRecords = new ArrayList<>(records);
+    sortedRecords.sort(comparator);
+    return sortedRecords;
+  }
+
+  @Test
+  public void testExpressionOrderBy() {
+    final ListPager pager = new ListPager(newQuery("NAME", "ASC").addOrderBy("LOWER(NAME)"),
+      true);
+    Assert.assertFalse("keysetPaging", pager.isKeysetPaging());
+  }
+
+  @Test
+  public void testKeysetPagingDisabled() {
+    final ListPager pager = new ListPager(newQuery("NAME", "ASC", "ID", "ASC"), false);
+    Assert.assertFalse("keysetPaging", pager.isKeysetPaging());
+    pager.setPageSize(10);
+    assertPages(pager, 1, 2, 3);
+    Assert.assertEquals(Arrays.asList(false, false, false), pager.keysetPages);
+  }
+
+  @Test
+  public void testMixedOrderBy() {
+    final ListPager pager = new ListPager(newQuery("NAME", "ASC", "VALUE", "DESC"), true);
+    Assert.assertTrue("keysetPaging", pager.isKeysetPaging());
+    // The id is added to the order by to make the key unique
+    final Map<CharSequence, Boolean> orderBy = pager.getQuery().getOrderBy();
+    final List<String> orderByFieldNames = orderBy.keySet()
+      .stream()
+      .map(CharSequence::toString)
+      .collect(Collectors.toList());
+    Assert.assertEquals(Arrays.asList("NAME", "VALUE", "ID"), orderByFieldNames);
+    Assert.assertEquals(Arrays.asList(true, false, true), new ArrayList<>(orderBy.values()));
+
+    for (final int pageSize : new int[] {
+      1, 2, 5, 7, 52, 53, 100
+    }) {
+      pager.keysetPages.clear();
+      pager.setPageSize(pageSize);
+      final int pageCount = (RECORDS.size() + pageSize - 1) / pageSize;
+      final int[] pageNumbers = new int[pageCount];
+      for (int i = 0; i < pageCount; i++) {
+        pageNumbers[i] = i + 1;
+      }
+      assertPages(pager, pageNumbers);
+      // The first read is the page set by setPageSize, all the later pages are after a read page
+      for (int i = 2; i < pager.keysetPages.size(); i++) {
+        Assert.assertTrue("pageSize=" + pageSize + " page " + i, pager.keysetPages.get(i));
+      }
+    }
+
+    final ListPager descendingPager = new ListPager(
+      newQuery("VALUE", "DESC", "NAME", "DESC", "ID", "DESC"), true);
+    Assert.assertTrue("keysetPaging", descendingPager.isKeysetPaging());
+    descendingPager.setPageSize(4);
+    assertPages(descendingPager, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14);
+  }
+
+  @Test
+  public void testNotSelectedOrderBy() {
+    // The id isn't selected so the last key can't be read from the records
+    final Query query = newQuery("NAME", "ASC");
+    query.setFieldNames("NAME", "VALUE");
+    final ListPager pager = new ListPager(query, true);
+    Assert.assertFalse("keysetPaging", pager.isKeysetPaging());
+  }
+
+  @Test
+  public void testNullableOrderBy() {
+    final ListPager pager = new ListPager(newQuery("COMMENT", "ASC", "ID", "ASC"), true);
+    Assert.assertFalse("keysetPaging", pager.isKeysetPaging());
+    pager.setPageSize(10);
+    assertPages(pager, 1, 2, 3);
+    Assert.assertFalse("keyset", pager.keysetPages.contains(true));
+  }
+
+  @Test
+  public void testUnreadPage() {
+    final ListPager pager = new ListPager(newQuery("VALUE", "ASC"), true);
+    pager.setPageSize(5);
+    pager.keysetPages.clear();
+
+    // Jumping to page 4 uses offset paging, the following page uses keyset paging
+    assertPages(pager, 4, 5);
+    Assert.assertEquals(Arrays.asList(false, true), pager.keysetPages);
+
+    // Page 1 wasn't read so page 2 uses offset paging, page 6 follows the read page 5
+    assertPages(pager, 2, 6, 3);
+    Assert.assertEquals(Arrays.asList(false, true, false, true, true), pager.keysetPages);
+
+    // Changing the page size clears the saved keys
+    pager.setPageSize(6);
+    pager.keysetPages.clear();
+    assertPages(pager, 3, 4);
+    Assert.assertEquals(Arrays.asList(false, true), pager.keysetPages);
+  }
+}
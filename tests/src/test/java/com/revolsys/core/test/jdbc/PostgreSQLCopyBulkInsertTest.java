@@ -0,0 +1,108 @@
+package com.revolsys.core.test.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.jeometry.common.data.type.DataType;
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.wkb.WKBReader;
+import com.revolsys.gis.postgresql.PostgreSQLCopyBulkInsert;
+import com.revolsys.record.schema.FieldDefinition;
+
+public class PostgreSQLCopyBulkInsertTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating2d(3005);
+
+  private static FieldDefinition newField(final DataType dataType) {
+    final FieldDefinition field = new FieldDefinition("VALUE", dataType, false);
+    field.setGeometryFactory(GEOMETRY_FACTORY);
+    return field;
+  }
+
+  private static Geometry readGeometry(final byte[] bytes) throws Exception {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    final int length = buffer.getInt();
+    Assert.assertEquals(bytes.length - 4, length);
+    final byte[] ewkb = Arrays.copyOfRange(bytes, 4, bytes.length);
+    return new WKBReader(GEOMETRY_FACTORY).read(ewkb);
+  }
+
+  private static byte[] writeValue(final FieldDefinition field, final String columnType,
+    final Object value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    PostgreSQLCopyBulkInsert.writeValue(out, field, columnType, value);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testWriteGeometry() throws Exception {
+    final FieldDefinition field = newField(GeometryDataTypes.POINT);
+    final Geometry point = GEOMETRY_FACTORY.point(1200000.5, 450000.25);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    PostgreSQLCopyBulkInsert.writeGeometry(out, field, point);
+    out.flush();
+    final Geometry geometry = readGeometry(bytes.toByteArray());
+    Assert.assertTrue(point.equals(2, geometry));
+    Assert.assertEquals(3005, geometry.getHorizontalCoordinateSystemId());
+  }
+
+  @Test
+  public void testWriteGeometryEmpty() throws Exception {
+    final FieldDefinition field = newField(GeometryDataTypes.LINE_STRING);
+    final Geometry line = GEOMETRY_FACTORY.lineString();
+    final byte[] bytes = writeValue(field, "geometry", line);
+    // length, byte order, type, srid, vertex count
+    Assert.assertEquals(4 + 1 + 4 + 4 + 4, bytes.length);
+    Assert.assertTrue(readGeometry(bytes).isEmpty());
+  }
+
+  @Test
+  public void testWriteGeometryInvalid() throws Exception {
+    final FieldDefinition field = newField(GeometryDataTypes.POINT);
+    try {
+      writeValue(field, "geometry", "not a geometry");
+      Assert.fail("Invalid geometry should not be written as null");
+    } catch (final RuntimeException e) {
+    }
+  }
+
+  @Test
+  public void testWriteGeometryWkt() throws Exception {
+    final FieldDefinition field = newField(GeometryDataTypes.POINT);
+    final byte[] bytes = writeValue(field, "geometry", "POINT(1200000.5 450000.25)");
+    final Geometry geometry = readGeometry(bytes);
+    Assert.assertTrue(GEOMETRY_FACTORY.point(1200000.5, 450000.25).equals(2, geometry));
+  }
+
+  @Test
+  public void testWriteValue() throws Exception {
+    final FieldDefinition intField = newField(DataTypes.INT);
+    Assert.assertArrayEquals(new byte[] {
+      0, 0, 0, 4, 0, 0, 1, 2
+    }, writeValue(intField, "int4", 258));
+    Assert.assertArrayEquals(new byte[] {
+      0, 0, 0, 4, 0, 0, 1, 2
+    }, writeValue(intField, "int4", "258"));
+    Assert.assertArrayEquals(new byte[] {
+      -1, -1, -1, -1
+    }, writeValue(intField, "int4", null));
+
+    final FieldDefinition stringField = newField(DataTypes.STRING);
+    final byte[] bytes = writeValue(stringField, "text", "abcé");
+    final byte[] utf8 = "abcé".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(utf8.length, ByteBuffer.wrap(bytes).getInt());
+    Assert.assertArrayEquals(utf8, Arrays.copyOfRange(bytes, 4, bytes.length));
+  }
+}
@@ -0,0 +1,124 @@
+package com.revolsys.core.test.jdbc;
+
+import java.sql.SQLException;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.LinearRing;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+
+/**
+ * Measure the round trip of a polygon through the values sent to and received from PostgreSQL.
+ * The polygons have a shell and 10 holes with 1,000 to 100,000 vertices in total. The tests are:
+ * <dl>
+ * <dt>ewkt</dt>
+ * <dd>Write the geometry as EWKT text and parse it.</dd>
+ * <dt>hex-ewkb</dt>
+ * <dd>{@link PostgreSQLGeometryWrapper#getValue()} and
+ * {@link PostgreSQLGeometryWrapper#setValue(String)}, used if binary transfer is not enabled.</dd>
+ * <dt>binary-ewkb</dt>
+ * <dd>{@link PostgreSQLGeometryWrapper#toBytes(byte[], int)} and
+ * {@link PostgreSQLGeometryWrapper#setByteValue(byte[], int)}, used for binary transfer.</dd>
+ * </dl>
+ * The results are printed as round trips/s and the size of the value sent.
+ */
+public class PostgreSQLGeometryPerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final long RUN_NANOS = 2000000000L;
+
+  private interface Test {
+    Geometry run(Geometry geometry) throws Exception;
+  }
+
+  public static void main(final String[] args) throws SQLException {
+    for (int run = 0; run < 2; run++) {
+      for (int vertexCount = 1000; vertexCount <= 100000; vertexCount *= 10) {
+        final Geometry polygon = newPolygon(vertexCount);
+        final String prefix = "vertices=" + polygon.getVertexCount() + "\t";
+
+        final int ewktSize = polygon.toEwkt().length();
+        run(prefix + "ewkt", ewktSize, polygon,
+          geometry -> GEOMETRY_FACTORY.geometry(geometry.toEwkt()));
+
+        final PostgreSQLGeometryWrapper wrapper = newWrapper(polygon);
+        final int hexSize = wrapper.getValue().length();
+        run(prefix + "hex-ewkb", hexSize, polygon, geometry -> {
+          final String hex = newWrapper(geometry).getValue();
+          final PostgreSQLGeometryWrapper result = new PostgreSQLGeometryWrapper();
+          result.setValue(hex);
+          return result.getGeometry(GEOMETRY_FACTORY);
+        });
+
+        final int binarySize = wrapper.lengthInBytes();
+        run(prefix + "binary-ewkb", binarySize, polygon, geometry -> {
+          final PostgreSQLGeometryWrapper value = newWrapper(geometry);
+          final byte[] bytes = new byte[value.lengthInBytes()];
+          value.toBytes(bytes, 0);
+          final PostgreSQLGeometryWrapper result = new PostgreSQLGeometryWrapper();
+          result.setByteValue(bytes, 0);
+          return result.getGeometry(GEOMETRY_FACTORY);
+        });
+      }
+    }
+  }
+
+  private static double[] newCircle(final double centreX, final double centreY,
+    final double radius, final int vertexCount) {
+    final double[] coordinates = new double[(vertexCount + 1) * 2];
+    for (int i = 0; i < vertexCount; i++) {
+      final double angle = Math.PI * 2 * i / vertexCount;
+      coordinates[i * 2] = centreX + Math.cos(angle) * radius;
+      coordinates[i * 2 + 1] = centreY + Math.sin(angle) * radius;
+    }
+    coordinates[vertexCount * 2] = coordinates[0];
+    coordinates[vertexCount * 2 + 1] = coordinates[1];
+    return coordinates;
+  }
+
+  private static Geometry newPolygon(final int vertexCount) {
+    final LinearRing[] rings = new LinearRing[11];
+    rings[0] = GEOMETRY_FACTORY.linearRing(2, newCircle(1200000, 450000, 10000, vertexCount / 2));
+    for (int i = 1; i < rings.length; i++) {
+      final double[] coordinates = newCircle(1200000 + (i - 5.5) * 1500, 450000, 500,
+        vertexCount / 20);
+      final LinearRing hole = GEOMETRY_FACTORY.linearRing(2, coordinates);
+      rings[i] = hole.reverse();
+    }
+    return GEOMETRY_FACTORY.polygon(rings);
+  }
+
+  private static PostgreSQLGeometryWrapper newWrapper(final Geometry geometry) {
+    return new PostgreSQLGeometryWrapper(GeometryDataTypes.POLYGON, GEOMETRY_FACTORY, geometry);
+  }
+
+  private static void run(final String name, final int size, final Geometry geometry,
+    final Test test) {
+    try {
+      if (!test.run(geometry).equals(2, geometry)) {
+        throw new IllegalStateException("Geometries not equal " + name);
+      }
+    } catch (final Exception e) {
+      throw new RuntimeException(e);
+    }
+    long count = 0;
+    final long startTime = System.nanoTime();
+    long time;
+    do {
+      for (int i = 0; i < 10; i++) {
+        try {
+          test.run(geometry);
+        } catch (final Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+      count += 10;
+      time = System.nanoTime() - startTime;
+    } while (time < RUN_NANOS);
+    final double seconds = time / 1e9;
+    System.out.println(name + "\t" + Math.round(count / seconds) + " round trips/s\t" + size
+      + " bytes");
+  }
+}
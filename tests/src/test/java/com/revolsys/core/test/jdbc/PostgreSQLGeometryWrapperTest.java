@@ -0,0 +1,132 @@
+package com.revolsys.core.test.jdbc;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.geometry.model.Point;
+import com.revolsys.geometry.model.Polygon;
+import com.revolsys.geometry.model.Polygonal;
+import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
+
+/**
+ * Test the round trip of geometries through the hex and binary EWKB values of the
+ * {@link PostgreSQLGeometryWrapper} sent to and received from PostgreSQL, without a database.
+ */
+public class PostgreSQLGeometryWrapperTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed3d(3005, 1000.0,
+    1000.0, 1000.0);
+
+  private static void assertGeometry(final DataType dataType, final Geometry expected,
+    final Geometry actual) {
+    Assert.assertEquals("srid", 3005, actual.getHorizontalCoordinateSystemId());
+    if (dataType == GeometryDataTypes.MULTI_POLYGON) {
+      Assert.assertTrue("multi polygon", actual instanceof Polygonal);
+      Assert.assertEquals("geometryCount", 1, actual.getGeometryCount());
+      Assert.assertTrue(actual.toEwkt(), expected.equalsExact(actual.getGeometry(0)));
+    } else {
+      Assert.assertTrue(actual.toEwkt(), expected.equalsExact(actual));
+    }
+  }
+
+  private static void assertRoundTrip(final DataType dataType, final Geometry geometry)
+    throws SQLException {
+    final PostgreSQLGeometryWrapper value = new PostgreSQLGeometryWrapper(dataType,
+      GEOMETRY_FACTORY, geometry);
+
+    final PostgreSQLGeometryWrapper hexResult = new PostgreSQLGeometryWrapper();
+    hexResult.setValue(value.getValue());
+    assertGeometry(dataType, geometry, hexResult.getGeometry(GEOMETRY_FACTORY));
+
+    // The binary value is received at an offset in the row's bytes
+    final int offset = 3;
+    final byte[] bytes = new byte[offset + value.lengthInBytes()];
+    value.toBytes(bytes, offset);
+    final PostgreSQLGeometryWrapper binaryResult = new PostgreSQLGeometryWrapper();
+    binaryResult.setByteValue(bytes, offset);
+    Assert.assertEquals("lengthInBytes", value.lengthInBytes(), binaryResult.lengthInBytes());
+    assertGeometry(dataType, geometry, binaryResult.getGeometry(GEOMETRY_FACTORY));
+
+    // The hex value is calculated from the received bytes
+    Assert.assertEquals("hex", value.getValue(), binaryResult.getValue());
+  }
+
+  private static Polygon newPolygon() {
+    return newPolygon(0);
+  }
+
+  private static Polygon newPolygon(final double x) {
+    return GEOMETRY_FACTORY.polygon(3, new double[] {
+      x, 0, 1, x + 100, 0, 2, x + 100, 100, 3, x, 100, 4, x, 0, 1
+    }, new double[] {
+      x + 10, 10, 5, x + 10, 20, 6, x + 20, 20, 7, x + 10, 10, 5
+    });
+  }
+
+  @Test
+  public void testEwkt() throws SQLException {
+    final PostgreSQLGeometryWrapper value = new PostgreSQLGeometryWrapper();
+    value.setValue("SRID=3005;POINT(1.5 2.5 3.5)");
+    final Point point = (Point)value.getGeometry(GEOMETRY_FACTORY);
+    Assert.assertEquals("srid", 3005, point.getHorizontalCoordinateSystemId());
+    Assert.assertEquals("x", 1.5, point.getX(), 0);
+    Assert.assertEquals("y", 2.5, point.getY(), 0);
+    Assert.assertEquals("z", 3.5, point.getZ(), 0);
+  }
+
+  @Test
+  public void testGeometryTypes() throws SQLException {
+    final Polygon polygon = newPolygon();
+    final List<Geometry> geometries = Arrays.asList(//
+      GEOMETRY_FACTORY.point(1200000.123, 450000.456, 12.5), //
+      GEOMETRY_FACTORY.lineString(3, 0, 0, 1, 10, 20, 2, -30.5, 40.25, 3), //
+      polygon, //
+      GEOMETRY_FACTORY.polygonal(polygon, newPolygon(200)));
+    for (final Geometry geometry : geometries) {
+      assertRoundTrip(GeometryDataTypes.GEOMETRY, geometry);
+    }
+  }
+
+  @Test
+  public void testMultiPolygonDataType() throws SQLException {
+    // A single polygon is written as a multi polygon for a multi polygon column
+    assertRoundTrip(GeometryDataTypes.MULTI_POLYGON, newPolygon());
+  }
+
+  @Test
+  public void testRingOrientation() throws SQLException {
+    // A clockwise shell and counter-clockwise hole are reversed
+    final Polygon polygon = newPolygon();
+    final Polygon clockwisePolygon = polygon.toClockwise();
+    Assert.assertTrue("clockwise shell", clockwisePolygon.getShell().isClockwise());
+    final PostgreSQLGeometryWrapper value = new PostgreSQLGeometryWrapper(
+      GeometryDataTypes.POLYGON, GEOMETRY_FACTORY, clockwisePolygon);
+    final PostgreSQLGeometryWrapper result = new PostgreSQLGeometryWrapper();
+    result.setValue(value.getValue());
+    final Polygon actual = (Polygon)result.getGeometry(GEOMETRY_FACTORY);
+    Assert.assertFalse("clockwise shell", actual.getShell().isClockwise());
+    Assert.assertTrue("clockwise hole", actual.getHole(0).isClockwise());
+    Assert.assertTrue(actual.toEwkt(), polygon.equalsExact(actual));
+  }
+
+  @Test
+  public void testSetValueClearsBytes() throws SQLException {
+    final PostgreSQLGeometryWrapper value = new PostgreSQLGeometryWrapper(
+      GeometryDataTypes.POINT, GEOMETRY_FACTORY, GEOMETRY_FACTORY.point(1, 2, 3));
+    final PostgreSQLGeometryWrapper result = new PostgreSQLGeometryWrapper();
+    result.setByteValue(new byte[value.lengthInBytes()], 0);
+    final String hex = new PostgreSQLGeometryWrapper(GeometryDataTypes.POINT, GEOMETRY_FACTORY,
+      GEOMETRY_FACTORY.point(4, 5, 6)).getValue();
+    result.setValue(hex);
+    Assert.assertEquals("lengthInBytes", 0, result.lengthInBytes());
+    Assert.assertTrue(GEOMETRY_FACTORY.point(4, 5, 6)
+      .equalsExact(result.getGeometry(GEOMETRY_FACTORY)));
+  }
+}
@@ -0,0 +1,106 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+import com.revolsys.parallel.channel.store.Buffer;
+
+/**
+ * Compare the throughput of the monitor based {@link Channel} with a {@link Buffer} against the
+ * lock-free {@link RingBufferChannel} for different numbers of writers and readers.
+ */
+public class ChannelPerfTest {
+  private static final int BATCH_SIZE = 100;
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final int VALUE_COUNT = 5000000;
+
+  public static void main(final String[] args) throws InterruptedException {
+    final int[][] threadCounts = {
+      {
+        1, 1
+      }, {
+        4, 1
+      }, {
+        4, 4
+      }, {
+        16, 16
+      }
+    };
+    for (int run = 0; run < 2; run++) {
+      for (final int[] counts : threadCounts) {
+        final int writerCount = counts[0];
+        final int readerCount = counts[1];
+        run("Buffer", () -> new Channel<>(new Buffer<Integer>(BUFFER_SIZE)), writerCount,
+          readerCount, false);
+        run("RingBuffer", () -> new RingBufferChannel<>(BUFFER_SIZE), writerCount, readerCount,
+          false);
+        run("RingBuffer batch", () -> new RingBufferChannel<>(BUFFER_SIZE), writerCount,
+          readerCount, true);
+      }
+    }
+  }
+
+  private static void run(final String name, final Supplier<Channel<Integer>> channelFactory,
+    final int writerCount, final int readerCount, final boolean batch)
+    throws InterruptedException {
+    final Channel<Integer> channel = channelFactory.get();
+    final int valuesPerWriter = VALUE_COUNT / writerCount;
+    final List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      channel.readConnect();
+      threads.add(new Thread(() -> {
+        final List<Integer> values = new ArrayList<>(BATCH_SIZE);
+        try {
+          while (true) {
+            if (batch) {
+              values.clear();
+              ((RingBufferChannel<Integer>)channel).read(values, BATCH_SIZE);
+            } else {
+              channel.read();
+            }
+          }
+        } catch (final ClosedException e) {
+        }
+      }));
+    }
+    for (int i = 0; i < writerCount; i++) {
+      channel.writeConnect();
+      threads.add(new Thread(() -> {
+        final List<Integer> values = new ArrayList<>(BATCH_SIZE);
+        for (int j = 0; j < valuesPerWriter; j++) {
+          final Integer value = j;
+          if (batch) {
+            values.add(value);
+            if (values.size() == BATCH_SIZE) {
+              ((RingBufferChannel<Integer>)channel).write(values);
+              values.clear();
+            }
+          } else {
+            channel.write(value);
+          }
+        }
+        if (!values.isEmpty()) {
+          ((RingBufferChannel<Integer>)channel).write(values);
+        }
+        channel.writeDisconnect();
+      }));
+    }
+    final long startTime = System.nanoTime();
+    for (final Thread thread : threads) {
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    final long valuesPerSecond = Math.round(valuesPerWriter * writerCount / seconds);
+    System.out.println(name + "\twriters=" + writerCount + "\treaders=" + readerCount + "\t"
+      + valuesPerSecond + " values/s");
+  }
+}
@@ -0,0 +1,296 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.collection.map.ThreadSharedProperties;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.process.ForkJoinProcessScheduler;
+import com.revolsys.parallel.process.ProcessNetwork;
+import com.revolsys.parallel.process.ProcessScheduler;
+import com.revolsys.parallel.process.ProcessTask;
+import com.revolsys.parallel.process.ThreadProcessScheduler;
+import com.revolsys.parallel.process.VirtualThreadProcessScheduler;
+
+/**
+ * Run {@link ProcessNetwork}s on each of the {@link ProcessScheduler}s supported by the runtime.
+ */
+public class ProcessNetworkSchedulerTest {
+
+  /**
+   * Add a chain of processes where each process reads a value from the previous process and writes
+   * the value + 1 to the next process. The first process writes 0 once the other processes are
+   * about to read so that they are all blocked at the same time. The first process waits using
+   * {@link ForkJoinPool#managedBlock(ManagedBlocker)} as a pool can't run other processes while a
+   * process is blocked without the pool knowing.
+   *
+   * @return The value read by the last process, processCount - 2 once the network has finished.
+   */
+  private static AtomicLong addChain(final ProcessNetwork network, final int processCount) {
+    final AtomicLong result = new AtomicLong(-1);
+    final List<Channel<Long>> channels = new ArrayList<>();
+    for (int i = 0; i < processCount - 1; i++) {
+      final Channel<Long> channel = new Channel<>();
+      channel.readConnect();
+      channel.writeConnect();
+      channels.add(channel);
+    }
+    final CountDownLatch readersStarted = new CountDownLatch(processCount - 1);
+    final ManagedBlocker readersStartedBlocker = new ManagedBlocker() {
+      @Override
+      public boolean block() throws InterruptedException {
+        readersStarted.await();
+        return true;
+      }
+
+      @Override
+      public boolean isReleasable() {
+        return readersStarted.getCount() == 0;
+      }
+    };
+    network.addProcess(() -> {
+      final Channel<Long> out = channels.get(0);
+      try {
+        ForkJoinPool.managedBlock(readersStartedBlocker);
+        out.write(0L);
+      } catch (final InterruptedException | ClosedException e) {
+      } finally {
+        out.writeDisconnect();
+      }
+    });
+    for (int i = 1; i < processCount; i++) {
+      final Channel<Long> in = channels.get(i - 1);
+      final Channel<Long> out;
+      if (i < processCount - 1) {
+        out = channels.get(i);
+      } else {
+        out = null;
+      }
+      network.addProcess(() -> {
+        try {
+          readersStarted.countDown();
+          final long value = in.read();
+          if (out == null) {
+            result.set(value);
+          } else {
+            out.write(value + 1);
+          }
+        } catch (final ClosedException e) {
+        } finally {
+          in.readDisconnect();
+          if (out != null) {
+            out.writeDisconnect();
+          }
+        }
+      });
+    }
+    return result;
+  }
+
+  private static ProcessNetwork newNetwork(final ProcessScheduler scheduler) {
+    final ProcessNetwork network = new ProcessNetwork();
+    network.setScheduler(scheduler);
+    network.init();
+    return network;
+  }
+
+  private static List<ProcessScheduler> newSchedulers() {
+    final List<ProcessScheduler> schedulers = new ArrayList<>();
+    schedulers.add(new ThreadProcessScheduler());
+    schedulers.add(new ForkJoinProcessScheduler(2, 256));
+    if (VirtualThreadProcessScheduler.isSupported()
+      && !VirtualThreadProcessScheduler.isPinnedByMonitors()) {
+      schedulers.add(new VirtualThreadProcessScheduler());
+    }
+    return schedulers;
+  }
+
+  private static void shutdown(final List<ProcessScheduler> schedulers) {
+    for (final ProcessScheduler scheduler : schedulers) {
+      scheduler.shutdown();
+    }
+  }
+
+  private static void waitFor(final String message, final BooleanSupplier condition) {
+    final long maxTime = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > maxTime) {
+        Assert.fail(message);
+      }
+      Thread.yield();
+    }
+  }
+
+  @Test
+  public void testChannelHandOff() {
+    final List<ProcessScheduler> schedulers = newSchedulers();
+    try {
+      for (final ProcessScheduler scheduler : schedulers) {
+        for (final Channel<Integer> channel : Arrays.asList(new Channel<Integer>(),
+          new Channel<>(new Buffer<Integer>(10)))) {
+          final int count = 1000;
+          final AtomicLong sum = new AtomicLong();
+          final AtomicLong readCount = new AtomicLong();
+          channel.readConnect();
+          channel.writeConnect();
+          final ProcessNetwork network = newNetwork(scheduler);
+          network.addProcess(() -> {
+            for (int i = 0; i < count; i++) {
+              channel.write(i);
+            }
+            channel.writeDisconnect();
+          });
+          network.addProcess(() -> {
+            try {
+              while (true) {
+                sum.addAndGet(channel.read());
+                readCount.incrementAndGet();
+              }
+            } catch (final ClosedException e) {
+            }
+          });
+          network.startAndWait();
+          Assert.assertEquals(scheduler + " count", count, readCount.get());
+          Assert.assertEquals(scheduler + " sum", count * (count - 1) / 2, sum.get());
+        }
+      }
+    } finally {
+      shutdown(schedulers);
+    }
+  }
+
+  @Test
+  public void testForkJoinMaxPoolSize() {
+    final ForkJoinProcessScheduler scheduler = new ForkJoinProcessScheduler(2, 4);
+    try {
+      Assert.assertEquals("maxPoolSize", 4, scheduler.getMaxPoolSize());
+
+      final ProcessNetwork network = newNetwork(scheduler);
+      final AtomicLong result = addChain(network, 4);
+      network.startAndWait();
+      Assert.assertEquals("result", 2, result.get());
+
+      // More processes than the maxPoolSize could all block so the network is rejected
+      final ProcessNetwork rejectedNetwork = newNetwork(scheduler);
+      addChain(rejectedNetwork, 5);
+      try {
+        rejectedNetwork.startAndWait();
+        Assert.fail("Expected RejectedExecutionException");
+      } catch (final RejectedExecutionException e) {
+      }
+      waitFor("processes stopped", () -> scheduler.getProcessCount() == 0);
+
+      // The scheduler can still be used after the rejected network
+      final ProcessNetwork network2 = newNetwork(scheduler);
+      final AtomicLong result2 = addChain(network2, 4);
+      network2.startAndWait();
+      Assert.assertEquals("result", 2, result2.get());
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void testMoreBlockedProcessesThanPoolSize() {
+    final List<ProcessScheduler> schedulers = newSchedulers();
+    try {
+      for (final ProcessScheduler scheduler : schedulers) {
+        final int processCount = 200;
+        final ProcessNetwork network = newNetwork(scheduler);
+        final AtomicLong result = addChain(network, processCount);
+        network.startAndWait();
+        Assert.assertEquals(scheduler + " result", processCount - 2, result.get());
+      }
+    } finally {
+      shutdown(schedulers);
+    }
+  }
+
+  @Test
+  public void testShutdown() {
+    final List<ProcessScheduler> schedulers = newSchedulers();
+    try {
+      for (final ProcessScheduler scheduler : schedulers) {
+        final int processCount = 5;
+        final Channel<Integer> channel = new Channel<>();
+        channel.readConnect();
+        channel.writeConnect();
+        final ProcessNetwork network = newNetwork(scheduler);
+        for (int i = 0; i < processCount; i++) {
+          network.addProcess(() -> {
+            try {
+              channel.read();
+            } catch (final ClosedException e) {
+            }
+          });
+        }
+        network.start();
+        final List<ProcessTask> tasks = network.getProcessTasks();
+        Assert.assertEquals(scheduler + " tasks", processCount, tasks.size());
+        waitFor(scheduler + " processes running", () -> {
+          for (final ProcessTask task : tasks) {
+            if (!task.isRunning()) {
+              return false;
+            }
+          }
+          return true;
+        });
+
+        network.stop();
+        for (final ProcessTask task : tasks) {
+          Assert.assertTrue(scheduler + " finished " + task, task.isFinished());
+        }
+        if (scheduler instanceof ForkJoinProcessScheduler) {
+          final ForkJoinProcessScheduler forkJoinScheduler = (ForkJoinProcessScheduler)scheduler;
+          waitFor("process count", () -> forkJoinScheduler.getProcessCount() == 0);
+        }
+      }
+    } finally {
+      shutdown(schedulers);
+    }
+  }
+
+  @Test
+  public void testThreadGroupProperties() {
+    final List<ProcessScheduler> schedulers = newSchedulers();
+    try {
+      for (final ProcessScheduler scheduler : schedulers) {
+        final ProcessNetwork network = newNetwork(scheduler);
+        final String name = getClass().getName() + ".network";
+        final Object value = new Object();
+        ThreadSharedProperties.getThreadGroupProperties(network.getThreadGroup())
+          .put(name, value);
+        try {
+          final List<Object> values = new ArrayList<>();
+          network.addProcess(() -> {
+            synchronized (values) {
+              values.add(ThreadSharedProperties.getThreadGroupProperty(name));
+              values.add(ThreadSharedProperties.getProperty(name));
+            }
+          });
+          network.startAndWait();
+          Assert.assertEquals(scheduler + " values", 2, values.size());
+          Assert.assertSame(scheduler + " thread group property", value, values.get(0));
+          Assert.assertSame(scheduler + " property", value, values.get(1));
+        } finally {
+          ThreadSharedProperties.getThreadGroupProperties(network.getThreadGroup())
+            .remove(name);
+        }
+      }
+    } finally {
+      shutdown(schedulers);
+    }
+  }
+}
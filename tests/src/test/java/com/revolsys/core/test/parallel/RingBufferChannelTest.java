@@ -0,0 +1,285 @@
+package com.revolsys.core.test.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.ClosedException;
+import com.revolsys.parallel.channel.RingBufferChannel;
+import com.revolsys.parallel.channel.store.RingBuffer;
+
+/**
+ * Test the FIFO order, full buffer, wrap around and close handling of the {@link RingBuffer} and
+ * {@link RingBufferChannel}.
+ */
+public class RingBufferChannelTest {
+  /**
+   * Expose the protected {@link RingBuffer} methods used by the channel.
+   */
+  private static class TestRingBuffer<T> extends RingBuffer<T> {
+    public TestRingBuffer(final int maxSize) {
+      super(maxSize);
+    }
+
+    public T getValue() {
+      return get();
+    }
+
+    public boolean isFull() {
+      return getState() == FULL;
+    }
+
+    public void putValue(final T value) {
+      put(value);
+    }
+  }
+
+  private static RingBufferChannel<Integer> newChannel(final int maxSize) {
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(maxSize);
+    channel.readConnect();
+    channel.writeConnect();
+    return channel;
+  }
+
+  @Test
+  public void testClose() {
+    // Values written before the last writer disconnects are read before the channel is closed
+    final RingBufferChannel<Integer> channel = newChannel(8);
+    channel.write(Arrays.asList(1, 2, 3));
+    channel.writeDisconnect();
+    Assert.assertFalse("closed", channel.isClosed());
+    Assert.assertEquals(Integer.valueOf(1), channel.read());
+    final List<Integer> values = new ArrayList<>();
+    Assert.assertEquals("count", 2, channel.read(values, 10));
+    Assert.assertEquals(Arrays.asList(2, 3), values);
+    try {
+      channel.read();
+      Assert.fail("Expected ClosedException");
+    } catch (final ClosedException e) {
+    }
+    try {
+      channel.read(values, 10);
+      Assert.fail("Expected ClosedException");
+    } catch (final ClosedException e) {
+    }
+    Assert.assertTrue("closed", channel.isClosed());
+
+    // The writers are stopped when the last reader disconnects
+    final RingBufferChannel<Integer> readerClosedChannel = newChannel(8);
+    readerClosedChannel.write(1);
+    readerClosedChannel.readDisconnect();
+    try {
+      readerClosedChannel.write(2);
+      Assert.fail("Expected ClosedException");
+    } catch (final ClosedException e) {
+    }
+    try {
+      readerClosedChannel.write(Arrays.asList(3, 4));
+      Assert.fail("Expected ClosedException");
+    } catch (final ClosedException e) {
+    }
+    try {
+      readerClosedChannel.readConnect();
+      Assert.fail("Expected IllegalStateException");
+    } catch (final IllegalStateException e) {
+    }
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    final int writerCount = 4;
+    final int valueCount = 20000;
+    final RingBufferChannel<Integer> channel = new RingBufferChannel<>(16);
+    channel.readConnect();
+    for (int i = 0; i < writerCount; i++) {
+      channel.writeConnect();
+    }
+    final List<Thread> writers = new ArrayList<>();
+    for (int i = 0; i < writerCount; i++) {
+      final int writerIndex = i;
+      final Thread writer = new Thread(() -> {
+        try {
+          // Alternate between writing single values and batches of 7 values
+          final List<Integer> batch = new ArrayList<>();
+          for (int j = 0; j < valueCount; j++) {
+            final int value = j * writerCount + writerIndex;
+            if (j / 7 % 2 == 0) {
+              channel.write(value);
+            } else {
+              batch.add(value);
+              if (batch.size() == 7) {
+                channel.write(batch);
+                batch.clear();
+              }
+            }
+          }
+          channel.write(batch);
+        } catch (final ClosedException e) {
+        } finally {
+          channel.writeDisconnect();
+        }
+      });
+      writer.setDaemon(true);
+      writer.start();
+      writers.add(writer);
+    }
+
+    // The values from each writer are read in the order they were written
+    final int[] nextValues = new int[writerCount];
+    int count = 0;
+    final List<Integer> values = new ArrayList<>();
+    try {
+      while (true) {
+        values.clear();
+        channel.read(values, 5);
+        for (final Integer value : values) {
+          final int writerIndex = value % writerCount;
+          Assert.assertEquals("writer " + writerIndex, nextValues[writerIndex] * writerCount
+            + writerIndex, value.intValue());
+          nextValues[writerIndex]++;
+          count++;
+        }
+      }
+    } catch (final ClosedException e) {
+    }
+    for (final Thread writer : writers) {
+      writer.join();
+    }
+    Assert.assertEquals("count", writerCount * valueCount, count);
+  }
+
+  @Test
+  public void testFifoOrder() {
+    final RingBuffer<Integer> buffer = new RingBuffer<>(16);
+    Assert.assertTrue("empty", buffer.isEmpty());
+    Assert.assertNull("poll empty", buffer.poll());
+    for (int i = 0; i < 10; i++) {
+      Assert.assertTrue("offer " + i, buffer.offer(i));
+    }
+    Assert.assertEquals("size", 10, buffer.size());
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+    }
+    Assert.assertNull("poll empty", buffer.poll());
+
+    final RingBufferChannel<Integer> channel = newChannel(16);
+    channel.write(Arrays.asList(0, 1, 2));
+    channel.write(3);
+    channel.write(Arrays.asList(4, 5));
+    final List<Integer> values = new ArrayList<>();
+    Assert.assertEquals("count", 2, channel.read(values, 2));
+    values.add(channel.read());
+    Assert.assertEquals("count", 3, channel.read(values, 10));
+    Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), values);
+    Assert.assertNull("read timeout", channel.read(10));
+  }
+
+  @Test
+  public void testInterrupt() throws InterruptedException {
+    // An interrupted reader closes the channel so the other processes stop
+    final RingBufferChannel<Integer> channel = newChannel(4);
+    final AtomicReference<Throwable> readException = new AtomicReference<>();
+    final AtomicReference<Boolean> interrupted = new AtomicReference<>();
+    final Thread reader = new Thread(() -> {
+      try {
+        channel.read();
+      } catch (final Throwable e) {
+        readException.set(e);
+      }
+      interrupted.set(Thread.currentThread().isInterrupted());
+    });
+    reader.start();
+    reader.interrupt();
+    reader.join(10000);
+    Assert.assertFalse("reader running", reader.isAlive());
+    Assert.assertTrue("ClosedException", readException.get() instanceof ClosedException);
+    Assert.assertTrue("interrupted", interrupted.get());
+    Assert.assertTrue("closed", channel.isClosed());
+    try {
+      channel.write(1);
+      Assert.fail("Expected ClosedException");
+    } catch (final ClosedException e) {
+    }
+  }
+
+  @Test
+  public void testPutWhenFull() {
+    final TestRingBuffer<Integer> buffer = new TestRingBuffer<>(5);
+    Assert.assertEquals("capacity", 8, buffer.getCapacity());
+    for (int i = 0; i < 8; i++) {
+      Assert.assertFalse("full", buffer.isFull());
+      buffer.putValue(i);
+    }
+    Assert.assertTrue("full", buffer.isFull());
+    Assert.assertFalse("offer when full", buffer.offer(8));
+    try {
+      buffer.putValue(8);
+      Assert.fail("Expected IllegalStateException");
+    } catch (final IllegalStateException e) {
+    }
+    try {
+      buffer.offer(null);
+      Assert.fail("Expected NullPointerException");
+    } catch (final NullPointerException e) {
+    }
+    Assert.assertEquals("size", 8, buffer.size());
+    Assert.assertEquals(Integer.valueOf(0), buffer.getValue());
+    buffer.putValue(8);
+    for (int i = 1; i <= 8; i++) {
+      Assert.assertEquals(Integer.valueOf(i), buffer.getValue());
+    }
+    Assert.assertTrue("empty", buffer.isEmpty());
+
+    // offerAll adds the values until the buffer is full
+    final List<Integer> values = Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+    Assert.assertEquals("offerAll", 8, buffer.offerAll(values, 0));
+    final List<Integer> drained = new ArrayList<>();
+    Assert.assertEquals("drainTo", 3, buffer.drainTo(drained, 3));
+    Assert.assertEquals("offerAll", 2, buffer.offerAll(values, 8));
+    Assert.assertEquals("drainTo", 7, buffer.drainTo(drained, 100));
+    Assert.assertEquals(values, drained);
+  }
+
+  @Test
+  public void testWrapAround() {
+    final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    int nextWrite = 0;
+    int nextRead = 0;
+    // The positions wrap around the array many times with different fill levels
+    for (int i = 0; i < 1000; i++) {
+      final int writeCount = 1 + i % 4;
+      for (int j = 0; j < writeCount; j++) {
+        Assert.assertTrue("offer " + nextWrite, buffer.offer(nextWrite++));
+      }
+      Assert.assertEquals("size", writeCount, buffer.size());
+      for (int j = 0; j < writeCount; j++) {
+        Assert.assertEquals(Integer.valueOf(nextRead++), buffer.poll());
+      }
+      Assert.assertTrue("empty", buffer.isEmpty());
+    }
+
+    // A channel smaller than the batch written waits for the reader
+    final RingBufferChannel<Integer> channel = newChannel(2);
+    final List<Integer> written = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      written.add(i);
+    }
+    final Thread writer = new Thread(() -> {
+      channel.write(written);
+      channel.writeDisconnect();
+    });
+    writer.start();
+    final List<Integer> read = new ArrayList<>();
+    try {
+      while (true) {
+        channel.read(read, 3);
+      }
+    } catch (final ClosedException e) {
+    }
+    Assert.assertEquals(written, read);
+  }
+}
@@ -0,0 +1,204 @@
+package com.revolsys.core.test.raster;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.io.file.Paths;
+import com.revolsys.raster.tile.TileCache;
+import com.revolsys.raster.tile.TileSource;
+
+/**
+ * Test the {@link TileCache} using an offline {@link TileSource} that counts the tiles read.
+ */
+public class TileCacheTest {
+  private static class CountingTileSource implements TileSource {
+    private final AtomicInteger readCount = new AtomicInteger();
+
+    private final Map<String, byte[]> tiles = new HashMap<>();
+
+    public void addTile(final int zoomLevel, final int tileX, final int tileY) {
+      final BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+      image.setRGB(0, 0, zoomLevel << 16 | tileX << 8 | tileY);
+      try (
+        ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+        ImageIO.write(image, "png", out);
+        this.tiles.put(zoomLevel + "/" + tileX + "/" + tileY, out.toByteArray());
+      } catch (final IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public byte[] getTileBytes(final int zoomLevel, final int tileX, final int tileY) {
+      this.readCount.incrementAndGet();
+      return this.tiles.get(zoomLevel + "/" + tileX + "/" + tileY);
+    }
+  }
+
+  private static final long TILE_SIZE = 256 * 256 * 4;
+
+  private void assertTile(final BufferedImage image, final int zoomLevel, final int tileX,
+    final int tileY) {
+    Assert.assertNotNull("image", image);
+    Assert.assertEquals("pixel", zoomLevel << 16 | tileX << 8 | tileY,
+      image.getRGB(0, 0) & 0xFFFFFF);
+  }
+
+  @Test
+  public void testDiskCache() throws IOException {
+    final Path directory = Files.createTempDirectory("tiles");
+    try {
+      final CountingTileSource source = new CountingTileSource();
+      source.addTile(3, 1, 2);
+      final TileCache cache = new TileCache(directory, 10 * TILE_SIZE, 1024 * 1024);
+
+      assertTile(cache.getImage("layer", 3, 1, 2, source), 3, 1, 2);
+      cache.clearMemory();
+      assertTile(cache.getImage("layer", 3, 1, 2, source), 3, 1, 2);
+      Assert.assertEquals("readCount", 1, source.readCount.get());
+      Assert.assertEquals("diskHitCount", 1, cache.getDiskHitCount());
+      Assert.assertTrue("diskSize", cache.getDiskSize() > 0);
+
+      // A new cache sharing the directory doesn't need the source
+      final TileCache cache2 = new TileCache(directory, 10 * TILE_SIZE, 1024 * 1024);
+      assertTile(cache2.getImage("layer", 3, 1, 2, source), 3, 1, 2);
+      Assert.assertEquals("readCount", 1, source.readCount.get());
+
+      // Different layers don't share tiles
+      Assert.assertNull(cache2.getImage("other", 3, 1, 2, (zoomLevel, tileX, tileY) -> null));
+
+      cache2.clearDisk();
+      Assert.assertEquals("diskSize", 0, cache2.getDiskSize());
+    } finally {
+      Paths.deleteDirectories(directory);
+    }
+  }
+
+  @Test
+  public void testDiskEviction() throws IOException {
+    final Path directory = Files.createTempDirectory("tiles");
+    try {
+      final CountingTileSource source = new CountingTileSource();
+      for (int tileX = 0; tileX < 20; tileX++) {
+        source.addTile(5, tileX, 0);
+      }
+      final long tileFileSize = source.getTileBytes(5, 0, 0).length;
+      final long maxDiskSize = tileFileSize * 10;
+      final TileCache cache = new TileCache(directory, 0, maxDiskSize);
+      for (int tileX = 0; tileX < 20; tileX++) {
+        assertTile(cache.getImage("layer", 5, tileX, 0, source), 5, tileX, 0);
+      }
+      Assert.assertTrue("diskSize", cache.getDiskSize() <= maxDiskSize);
+    } finally {
+      Paths.deleteDirectories(directory);
+    }
+  }
+
+  @Test
+  public void testDiskSizeReplace() throws IOException {
+    final Path directory = Files.createTempDirectory("tiles");
+    try {
+      final CountingTileSource source = new CountingTileSource();
+      source.addTile(4, 1, 1);
+      final long tileFileSize = source.getTileBytes(4, 1, 1).length;
+
+      // Another cache sharing the directory writes the tile while this cache reads the source
+      final TileCache otherCache = new TileCache(directory, 0, 1024 * 1024);
+      final TileCache cache = new TileCache(directory, 0, 1024 * 1024);
+      Assert.assertEquals("diskSize", 0, cache.getDiskSize());
+      assertTile(cache.getImage("layer", 4, 1, 1, (zoomLevel, tileX, tileY) -> {
+        otherCache.getImage("layer", zoomLevel, tileX, tileY, source);
+        return source.getTileBytes(zoomLevel, tileX, tileY);
+      }), 4, 1, 1);
+      Assert.assertEquals("diskSize", tileFileSize, cache.getDiskSize());
+
+      // A corrupt tile is deleted and replaced
+      final Path file;
+      try (
+        Stream<Path> files = Files.walk(directory)) {
+        file = files.filter(Files::isRegularFile).findFirst().get();
+      }
+      Files.write(file, new byte[1000]);
+      final TileCache cache2 = new TileCache(directory, 0, 1024 * 1024);
+      Assert.assertEquals("diskSize", 1000, cache2.getDiskSize());
+      assertTile(cache2.getImage("layer", 4, 1, 1, source), 4, 1, 1);
+      Assert.assertEquals("diskSize", tileFileSize, cache2.getDiskSize());
+      Assert.assertEquals("diskSize", tileFileSize, Files.size(file));
+    } finally {
+      Paths.deleteDirectories(directory);
+    }
+  }
+
+  @Test
+  public void testLoadWait() throws InterruptedException {
+    final CountingTileSource source = new CountingTileSource();
+    source.addTile(1, 0, 0);
+    final CountDownLatch loading = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final TileSource blockingSource = (zoomLevel, tileX, tileY) -> {
+      loading.countDown();
+      try {
+        release.await();
+      } catch (final InterruptedException e) {
+        throw new RuntimeException(e);
+      }
+      return source.getTileBytes(zoomLevel, tileX, tileY);
+    };
+    final TileCache cache = new TileCache(10 * TILE_SIZE);
+    final Thread thread = new Thread(() -> cache.getImage("layer", 1, 0, 0, blockingSource));
+    thread.start();
+    loading.await();
+    final Thread waitingThread = new Thread(
+      () -> assertTile(cache.getImage("layer", 1, 0, 0, blockingSource), 1, 0, 0));
+    waitingThread.start();
+    // Give the second request time to join the load in progress
+    Thread.sleep(100);
+    release.countDown();
+    thread.join();
+    waitingThread.join();
+
+    Assert.assertEquals("readCount", 1, source.readCount.get());
+    Assert.assertEquals("missCount", 1, cache.getMissCount());
+    Assert.assertEquals("loadWaitCount", 1, cache.getLoadWaitCount());
+    Assert.assertEquals("memoryHitCount", 0, cache.getMemoryHitCount());
+    Assert.assertEquals("hitRate", 0, cache.getHitRate(), 0);
+  }
+
+  @Test
+  public void testMemoryCache() {
+    final CountingTileSource source = new CountingTileSource();
+    for (int tileX = 0; tileX < 4; tileX++) {
+      source.addTile(2, tileX, 1);
+    }
+    final TileCache cache = new TileCache(2 * TILE_SIZE);
+
+    assertTile(cache.getImage("layer", 2, 0, 1, source), 2, 0, 1);
+    assertTile(cache.getImage("layer", 2, 0, 1, source), 2, 0, 1);
+    Assert.assertEquals("readCount", 1, source.readCount.get());
+    Assert.assertEquals("memoryHitCount", 1, cache.getMemoryHitCount());
+    Assert.assertEquals("missCount", 1, cache.getMissCount());
+    Assert.assertEquals("hitRate", 0.5, cache.getHitRate(), 0);
+
+    // Only 2 tiles fit in memory so the least recently used is evicted
+    assertTile(cache.getImage("layer", 2, 1, 1, source), 2, 1, 1);
+    assertTile(cache.getImage("layer", 2, 2, 1, source), 2, 2, 1);
+    Assert.assertEquals("memorySize", 2 * TILE_SIZE, cache.getMemorySize());
+    assertTile(cache.getImage("layer", 2, 0, 1, source), 2, 0, 1);
+    Assert.assertEquals("readCount", 4, source.readCount.get());
+
+    Assert.assertNull(cache.getImage("layer", 9, 0, 0, source));
+  }
+}
@@ -0,0 +1,98 @@
+package com.revolsys.core.test.record.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.revolsys.geometry.model.Point;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.AbstractRecordReader;
+import com.revolsys.record.io.format.csv.CsvParallelRecordReader;
+import com.revolsys.record.io.format.csv.CsvRecordReader;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Measure the throughput of reading a CSV file of x,y,z points with attributes using the
+ * {@link CsvRecordReader} and the {@link CsvParallelRecordReader} with 1 to n threads.
+ * The record count can be passed as the first argument, the default is 2,000,000 records.
+ */
+public class CsvParallelReadPerfTest {
+  private static final int RUN_COUNT = 3;
+
+  public static void main(final String[] args) throws IOException {
+    int recordCount = 2000000;
+    if (args.length > 0) {
+      recordCount = Integer.parseInt(args[0]);
+    }
+    final Path file = Files.createTempFile("points", ".csv");
+    try {
+      writeFile(file, recordCount);
+      final long fileSize = Files.size(file);
+      System.out.println(file + "\t" + fileSize / 1024 / 1024 + " MB");
+      final int processorCount = Runtime.getRuntime().availableProcessors();
+      for (int run = 0; run < RUN_COUNT; run++) {
+        read("csv", new CsvRecordReader(new PathResource(file)), 1, fileSize);
+        for (int threadCount = 1; threadCount <= processorCount; threadCount *= 2) {
+          final CsvParallelRecordReader reader = new CsvParallelRecordReader(
+            new PathResource(file));
+          reader.setThreadCount(threadCount);
+          reader.setPointZFieldName("Z");
+          read("csv-parallel", reader, threadCount, fileSize);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void read(final String name, final AbstractRecordReader reader,
+    final int threadCount, final long fileSize) {
+    reader.setProperty("pointXFieldName", "X");
+    reader.setProperty("pointYFieldName", "Y");
+    final long startTime = System.nanoTime();
+    long count = 0;
+    double sum = 0;
+    try {
+      for (final Record record : reader) {
+        final Point point = record.getGeometry();
+        sum += point.getX();
+        count++;
+      }
+    } finally {
+      reader.close();
+    }
+    if (sum == 0) {
+      System.out.println();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.out.println(name + "\tthreads=" + threadCount + "\t"
+      + Math.round(fileSize / seconds / 1024 / 1024) + " MB/s\t" + Math.round(count / seconds)
+      + " records/s");
+  }
+
+  private static void writeFile(final Path file, final int recordCount) throws IOException {
+    final Random random = new Random(0);
+    try (
+      Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.write("ID,X,Y,Z,NAME,CLASS\n");
+      for (int i = 0; i < recordCount; i++) {
+        writer.write(Integer.toString(i));
+        writer.write(',');
+        writer.write(Double.toString(Math.round(random.nextDouble() * 1e9) / 1000.0));
+        writer.write(',');
+        writer.write(Double.toString(Math.round(random.nextDouble() * 1e9) / 1000.0));
+        writer.write(',');
+        writer.write(Double.toString(Math.round(random.nextDouble() * 1e5) / 100.0));
+        writer.write(",\"Point ");
+        writer.write(Integer.toString(i));
+        writer.write("\",");
+        writer.write(Integer.toString(random.nextInt(10)));
+        writer.write('\n');
+      }
+    }
+  }
+}
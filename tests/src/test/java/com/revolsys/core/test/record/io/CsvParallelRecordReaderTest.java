@@ -0,0 +1,226 @@
+package com.revolsys.core.test.record.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.record.Record;
+import com.revolsys.record.io.AbstractRecordReader;
+import com.revolsys.record.io.format.csv.CsvParallelRecordReader;
+import com.revolsys.record.io.format.csv.CsvRecordReader;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Test that the {@link CsvParallelRecordReader} returns the same records as the
+ * {@link CsvRecordReader}, using small blocks so the records cross the block boundaries.
+ */
+public class CsvParallelRecordReaderTest {
+  private static final int[] BLOCK_SIZES = {
+    1, 7, 16, 61, 256, 4096
+  };
+
+  private static void assertSameRecords(final String text, final RecordDefinition recordDefinition,
+    final String pointXFieldName, final String pointYFieldName) throws IOException {
+    final Path file = Files.createTempFile("test", ".csv");
+    try {
+      Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+      final CsvRecordReader expectedReader = new CsvRecordReader(new PathResource(file)) {
+        {
+          if (recordDefinition != null) {
+            setRecordDefinition(recordDefinition);
+          }
+        }
+      };
+      final List<Object> expected = read(expectedReader, pointXFieldName, pointYFieldName);
+      Assert.assertFalse("records", expected.isEmpty());
+      for (final int blockSize : BLOCK_SIZES) {
+        for (int threadCount = 1; threadCount <= 4; threadCount *= 2) {
+          final CsvParallelRecordReader reader = new CsvParallelRecordReader(
+            new PathResource(file)) {
+            {
+              if (recordDefinition != null) {
+                setRecordDefinition(recordDefinition);
+              }
+            }
+          };
+          reader.setBlockSize(blockSize);
+          reader.setThreadCount(threadCount);
+          final List<Object> actual = read(reader, pointXFieldName, pointYFieldName);
+          Assert.assertEquals("blockSize=" + blockSize + ", threadCount=" + threadCount, expected,
+            actual);
+        }
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static boolean isThreadRunning(final String threadName) {
+    for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals(threadName) && thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Read the values of the records. If a value can't be converted the exception class is added
+   * instead of the values of the rest of the records.
+   */
+  private static List<Object> read(final AbstractRecordReader reader,
+    final String pointXFieldName, final String pointYFieldName) {
+    final List<Object> records = new ArrayList<>();
+    reader.setProperty("pointXFieldName", pointXFieldName);
+    reader.setProperty("pointYFieldName", pointYFieldName);
+    try {
+      for (final Record record : reader) {
+        records.add(record.getValues());
+      }
+    } catch (final RuntimeException e) {
+      records.add(e.getClass());
+    } finally {
+      reader.close();
+    }
+    return records;
+  }
+
+  @Test
+  public void testLineEndings() throws IOException {
+    // Mixed '\n' and "\r\n" line endings, empty lines and no new line at the end
+    final String text = "ID,NAME,X,Y\r\n1,a,1.5,2.5\r\n\r\n2,\"b, c\",3,4\n3,d,-5.25,6e2\r\n"
+      + "\n4,\"e\"\"f\",7,8";
+    assertSameRecords(text, null, "X", "Y");
+  }
+
+  @Test
+  public void testQuotedNewLine() throws IOException {
+    // A quoted value with a new line switches to parsing the rest of the file sequentially
+    final StringBuilder text = new StringBuilder("ID,DESCRIPTION,X,Y\n");
+    for (int i = 0; i < 200; i++) {
+      text.append(i).append(',');
+      if (i % 37 == 5) {
+        text.append("\"line 1\nline 2, \"\"quoted\"\"\"");
+      } else {
+        text.append("\"Point ").append(i).append('"');
+      }
+      text.append(',').append(i * 1.25).append(',').append(-i * 0.5).append('\n');
+    }
+    assertSameRecords(text.toString(), null, "X", "Y");
+  }
+
+  @Test
+  public void testQuotedValues() throws IOException {
+    final Random random = new Random(0);
+    final StringBuilder text = new StringBuilder("ID,NAME,X,Y,CLASS,COMMENT\r\n");
+    for (int i = 0; i < 500; i++) {
+      text.append(i).append(',');
+      switch (i % 5) {
+        case 0:
+          text.append("\"Point, ").append(i).append('"');
+        break;
+        case 1:
+          text.append("\"\"\"").append(i).append("\"\" é€\"");
+        break;
+        case 2:
+          text.append("\"\"");
+        break;
+        case 3:
+        break;
+        default:
+          text.append("Point ").append(i);
+        break;
+      }
+      text.append(',');
+      text.append(Math.round(random.nextDouble() * 1e9) / 1000.0);
+      text.append(',');
+      if (i % 11 != 0) {
+        text.append(Math.round(random.nextDouble() * 1e9) / 1000.0);
+      }
+      text.append(',');
+      text.append(random.nextInt(10));
+      if (i % 3 == 0) {
+        text.append(",\"a,b\"");
+      }
+      text.append("\r\n");
+    }
+    assertSameRecords(text.toString(), null, "X", "Y");
+  }
+
+  @Test
+  public void testThreadsStoppedWithoutClose() throws Exception {
+    final StringBuilder text = new StringBuilder("ID,NAME\n");
+    for (int i = 0; i < 1000; i++) {
+      text.append(i).append(",name").append(i).append('\n');
+    }
+    final Path file = Files.createTempFile("test", ".csv");
+    try {
+      Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+      final CsvParallelRecordReader reader = new CsvParallelRecordReader(new PathResource(file));
+      reader.setBlockSize(256);
+      reader.setThreadCount(4);
+      int count = 0;
+      for (final Record record : reader) {
+        Assert.assertEquals("ID", Integer.toString(count), record.getValue("ID"));
+        count++;
+      }
+      Assert.assertEquals("recordCount", 1000, count);
+
+      // The thread pool is shut down once the last block has been read
+      final long maxTime = System.currentTimeMillis() + 10000;
+      while (isThreadRunning("CsvParallelRecordReader")) {
+        if (System.currentTimeMillis() > maxTime) {
+          Assert.fail("Threads still running");
+        }
+        Thread.sleep(10);
+      }
+      reader.close();
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testTypedValues() throws IOException {
+    final RecordDefinition recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/TEST"), //
+      new FieldDefinition("LONG_VALUE", DataTypes.LONG, false), //
+      new FieldDefinition("INT_VALUE", DataTypes.INT, false), //
+      new FieldDefinition("SHORT_VALUE", DataTypes.SHORT, false), //
+      new FieldDefinition("BYTE_VALUE", DataTypes.BYTE, false), //
+      new FieldDefinition("DOUBLE_VALUE", DataTypes.DOUBLE, false), //
+      new FieldDefinition("FLOAT_VALUE", DataTypes.FLOAT, false), //
+      new FieldDefinition("NAME", DataTypes.STRING, false));
+    final String header = "LONG_VALUE,INT_VALUE,SHORT_VALUE,BYTE_VALUE,DOUBLE_VALUE,FLOAT_VALUE,"
+      + "NAME\n";
+    final String text = header
+      + "9223372036854775,2147483647,32767,127,1.7976931348623157e308,3.4028235e38,max\n"
+      + "-9223372036854775,-2147483648,-32768,-128,4.9e-324,1.4e-45,min\n"
+      + "0,-0,+1,2,-0.0,0.1,zero\n"
+      + "1,2,3,4,12345678901234567890.5,1e-3,\"quoted, name\"\r\n"
+      + "5,6,7,8,9,10,last";
+    assertSameRecords(text, recordDefinition, null, null);
+
+    // Values out of range of the field type aren't truncated
+    final String[] outOfRangeRows = {
+      "1,2147483648,1,1,1,1,a", "1,-2147483649,1,1,1,1,a", "1,1,32768,1,1,1,a",
+      "1,1,-32769,1,1,1,a", "1,1,1,128,1,1,a", "1,1,1,-129,1,1,a",
+      "92233720368547758070,1,1,1,1,1,a"
+    };
+    for (final String row : outOfRangeRows) {
+      assertSameRecords(header + row + "\n", recordDefinition, null, null);
+    }
+  }
+}
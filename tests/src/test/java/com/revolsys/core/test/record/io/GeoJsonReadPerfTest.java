@@ -0,0 +1,159 @@
+package com.revolsys.core.test.record.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import com.revolsys.geometry.io.GeometryReader;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.record.io.format.json.JsonParser;
+import com.revolsys.record.io.format.json.JsonParser.EventType;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Measure the throughput of reading a GeoJSON feature collection of polygons. The tests are:
+ * <dl>
+ * <dt>tree</dt>
+ * <dd>{@link JsonParser#read(InputStream)} creating the maps and lists for the whole document.</dd>
+ * <dt>tokens-reader</dt>
+ * <dd>{@link JsonParser} events from a {@link Reader}, getting each number as a double.</dd>
+ * <dt>tokens-bytes</dt>
+ * <dd>{@link JsonParser} events from an {@link InputStream} using the UTF-8 byte decoder.</dd>
+ * <dt>geometry</dt>
+ * <dd>{@link GeometryReader} for the GeoJSON file, streaming the coordinates into the
+ * geometries.</dd>
+ * </dl>
+ * The feature count can be passed as the first argument, the default is 50000 features with 100
+ * vertices each. Run it on the previous version to compare with the char at a time parser.
+ */
+public class GeoJsonReadPerfTest {
+  private static final int RUN_COUNT = 3;
+
+  private static final int VERTEX_COUNT = 100;
+
+  private static void print(final String name, final long fileSize, final long count,
+    final String countName, final long startTime) {
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.out.println(name + "\t" + Math.round(fileSize / seconds / 1024 / 1024) + " MB/s\t"
+      + Math.round(count / seconds) + " " + countName + "/s");
+  }
+
+  public static void main(final String[] args) throws IOException {
+    int featureCount = 50000;
+    if (args.length > 0) {
+      featureCount = Integer.parseInt(args[0]);
+    }
+    final Path file = Files.createTempFile("features", ".geojson");
+    try {
+      writeFile(file, featureCount);
+      final long fileSize = Files.size(file);
+      System.out.println(file + "\t" + fileSize / 1024 / 1024 + " MB");
+      for (int run = 0; run < RUN_COUNT; run++) {
+        readTree(file, fileSize, featureCount);
+        readTokensReader(file, fileSize);
+        readTokensBytes(file, fileSize);
+        readGeometries(file, fileSize);
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void readGeometries(final Path file, final long fileSize) {
+    final long startTime = System.nanoTime();
+    long count = 0;
+    try (
+      GeometryReader reader = GeometryReader.newGeometryReader(new PathResource(file))) {
+      for (final Geometry geometry : reader) {
+        count += geometry.getVertexCount();
+      }
+    }
+    print("geometry", fileSize, count, "vertices", startTime);
+  }
+
+  private static void readTokens(final JsonParser parser, final String name, final long fileSize,
+    final long startTime) {
+    long count = 0;
+    double sum = 0;
+    while (parser.hasNext()) {
+      if (parser.next() == EventType.number) {
+        sum += parser.getCurrentDouble();
+        count++;
+      }
+    }
+    if (sum == 0) {
+      System.out.println();
+    }
+    print(name, fileSize, count, "numbers", startTime);
+  }
+
+  private static void readTokensBytes(final Path file, final long fileSize) throws IOException {
+    final long startTime = System.nanoTime();
+    try (
+      JsonParser parser = new JsonParser(Files.newInputStream(file))) {
+      readTokens(parser, "tokens-bytes", fileSize, startTime);
+    }
+  }
+
+  private static void readTokensReader(final Path file, final long fileSize) throws IOException {
+    final long startTime = System.nanoTime();
+    try (
+      JsonParser parser = new JsonParser(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+      readTokens(parser, "tokens-reader", fileSize, startTime);
+    }
+  }
+
+  private static void readTree(final Path file, final long fileSize, final int featureCount)
+    throws IOException {
+    final long startTime = System.nanoTime();
+    try (
+      InputStream in = Files.newInputStream(file)) {
+      final Object value = JsonParser.read(in);
+      if (value == null) {
+        System.out.println();
+      }
+    }
+    print("tree", fileSize, featureCount, "features", startTime);
+  }
+
+  private static void writeFile(final Path file, final int featureCount) throws IOException {
+    final Random random = new Random(0);
+    try (
+      Writer writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+      for (int featureIndex = 0; featureIndex < featureCount; featureIndex++) {
+        if (featureIndex > 0) {
+          writer.write(",\n");
+        }
+        writer.write("{\"type\":\"Feature\",\"properties\":{\"id\":");
+        writer.write(Integer.toString(featureIndex));
+        writer.write(",\"name\":\"Feature ");
+        writer.write(Integer.toString(featureIndex));
+        writer.write("\"},\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+        final double centreX = random.nextDouble() * 360 - 180;
+        final double centreY = random.nextDouble() * 170 - 85;
+        for (int vertexIndex = 0; vertexIndex <= VERTEX_COUNT; vertexIndex++) {
+          final double angle = Math.PI * 2 * (vertexIndex % VERTEX_COUNT) / VERTEX_COUNT;
+          final double x = centreX + Math.cos(angle) * 0.01;
+          final double y = centreY + Math.sin(angle) * 0.01;
+          if (vertexIndex > 0) {
+            writer.write(',');
+          }
+          writer.write('[');
+          writer.write(Double.toString(x));
+          writer.write(',');
+          writer.write(Double.toString(y));
+          writer.write(']');
+        }
+        writer.write("]]}}");
+      }
+      writer.write("\n]}\n");
+    }
+  }
+}
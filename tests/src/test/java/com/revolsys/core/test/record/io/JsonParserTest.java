@@ -0,0 +1,219 @@
+package com.revolsys.core.test.record.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.record.io.format.json.JsonParser;
+import com.revolsys.record.io.format.json.JsonParser.EventType;
+
+/**
+ * Test the {@link JsonParser} string escapes and number parsing, including values split across
+ * the parser's read blocks.
+ */
+public class JsonParserTest {
+  /** Return at most one byte from each read so every token is split across reads. */
+  private static class OneByteInputStream extends FilterInputStream {
+    public OneByteInputStream(final InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+      return super.read(bytes, offset, Math.min(1, length));
+    }
+  }
+
+  /** Return at most one character from each read so every token is split across reads. */
+  private static class OneCharReader extends StringReader {
+    public OneCharReader(final String text) {
+      super(text);
+    }
+
+    @Override
+    public int read(final char[] chars, final int offset, final int length) throws IOException {
+      return super.read(chars, offset, Math.min(1, length));
+    }
+  }
+
+  private static final String[] NUMBERS = {
+    "0", "-0", "1", "-1", "0.1", "-0.1", "1.5", "0.30000000000000004", "123456789.123",
+    "9007199254740991", "9007199254740992", "9007199254740993", "18014398509481985",
+    "12345678901234567890", "12345678901234567890.123", "3.141592653589793238462643383279",
+    "0.000000000000000000000000000001", "1e22", "1e23", "1E5", "1e+5", "1e-5", "-2.5E-3",
+    "123.456e7", "123.456e-30", "1.7976931348623157e308", "1.7976931348623159e308", "1e400",
+    "-1e400", "2.2250738585072014e-308", "2.2250738585072011e-308", "4.9e-324", "5e-324",
+    "2e-324", "1e-400", "0.0000000000000000000000000000000000000000001e-280"
+  };
+
+  private static void assertDoubleEquals(final String text, final double actual) {
+    final double expected = Double.parseDouble(text);
+    Assert.assertEquals(text, Double.doubleToRawLongBits(expected),
+      Double.doubleToRawLongBits(actual));
+  }
+
+  private static void assertNumbers(final String[] texts) {
+    final String json = "[" + String.join(",", texts) + "]";
+    final List<Reader> readers = Arrays.asList(new StringReader(json), new OneCharReader(json));
+    for (final Reader reader : readers) {
+      try (
+        JsonParser parser = new JsonParser(reader)) {
+        assertNumbers(texts, parser);
+      }
+    }
+    final byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+    try (
+      JsonParser parser = new JsonParser(new OneByteInputStream(new ByteArrayInputStream(bytes)))) {
+      assertNumbers(texts, parser);
+    }
+  }
+
+  private static void assertNumbers(final String[] texts, final JsonParser parser) {
+    Assert.assertEquals(EventType.startDocument, parser.next());
+    Assert.assertEquals(EventType.startArray, parser.next());
+    for (int i = 0; i < texts.length; i++) {
+      final String text = texts[i];
+      if (i > 0) {
+        Assert.assertEquals(EventType.comma, parser.next());
+      }
+      Assert.assertEquals(EventType.number, parser.next());
+      assertDoubleEquals(text, parser.getCurrentDouble());
+      Assert.assertEquals(text, new BigDecimal(text), parser.getCurrentValue());
+    }
+    Assert.assertEquals(EventType.endArray, parser.next());
+  }
+
+  private static List<Object> expectedValues(final String text) {
+    return Arrays.asList(text, "a\u00e9\n\"b\\", new BigDecimal("-12345.6789e-3"),
+      "\u20ac\ud83d\ude00", Boolean.TRUE, null, new BigDecimal("1.5"));
+  }
+
+  private static String toJson(final String text) {
+    return "[\"" + text + "\",\"a\\u00e9\\n\\\"b\\\\\",-12345.6789e-3,\"\u20ac\ud83d\ude00\","
+      + "true,null,1.5]";
+  }
+
+  @Test
+  public void testBigDecimal() {
+    final String[] texts = {
+      "0.1", "1.10", "-0.000", "12345678901234567890.12345678901234567890",
+      "3.14159265358979323846264338327950288419716939937510", "-1e-30", "6.02214076E+23"
+    };
+    final List<Object> values = JsonParser.read("[" + String.join(",", texts) + "]");
+    Assert.assertEquals(texts.length, values.size());
+    for (int i = 0; i < texts.length; i++) {
+      // Equals checks the scale so the precision isn't lost
+      Assert.assertEquals(texts[i], new BigDecimal(texts[i]), values.get(i));
+    }
+  }
+
+  @Test
+  public void testBlockBoundaries() throws IOException {
+    // Move the values across the 8192 character and byte block boundaries, the 2 byte characters
+    // split the byte blocks at different places from the character blocks
+    for (int length = 8150; length < 8200; length++) {
+      final StringBuilder text = new StringBuilder();
+      for (int i = 0; i < length; i++) {
+        if (i % 3 == 0) {
+          text.append('\u00e9');
+        } else {
+          text.append('x');
+        }
+      }
+      final String json = toJson(text.toString());
+      final List<Object> expected = expectedValues(text.toString());
+      Assert.assertEquals(expected, JsonParser.read(json));
+      Assert.assertEquals(expected,
+        JsonParser.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+    }
+  }
+
+  @Test
+  public void testDoubleArray() {
+    final String json = "[1, -2.5, 1e-3, 9007199254740993]";
+    try (
+      JsonParser parser = new JsonParser(new StringReader(json))) {
+      parser.next();
+      final double[] values = parser.getDoubleArray();
+      Assert.assertEquals(4, values.length);
+      assertDoubleEquals("1", values[0]);
+      assertDoubleEquals("-2.5", values[1]);
+      assertDoubleEquals("1e-3", values[2]);
+      assertDoubleEquals("9007199254740993", values[3]);
+    }
+    try (
+      JsonParser parser = new JsonParser(new StringReader("[]"))) {
+      parser.next();
+      Assert.assertEquals(0, parser.getDoubleArray().length);
+    }
+  }
+
+  @Test
+  public void testEscapes() {
+    final String json = "[\"plain\", \"quote\\\"\", \"back\\\\slash\", \"\\/\","
+      + " \"\\b\\f\\n\\r\\t\", \"\\u00e9\\u20AC\", \"\\ud83d\\ude00\", \"\","
+      + " \"\u00e9\u20ac\ud83d\ude00\"]";
+    final List<Object> expected = Arrays.asList("plain", "quote\"", "back\\slash", "/",
+      "\b\f\n\r\t", "\u00e9\u20ac", "\ud83d\ude00", "", "\u00e9\u20ac\ud83d\ude00");
+    Assert.assertEquals(expected, JsonParser.read(json));
+    Assert.assertEquals(expected, JsonParser.read(new OneCharReader(json)));
+    Assert.assertEquals(expected, JsonParser.read(
+      new OneByteInputStream(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEscapeInvalid() {
+    JsonParser.read("[\"\\x\"]");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEscapeInvalidUnicode() {
+    JsonParser.read("[\"\\u12G4\"]");
+  }
+
+  @Test
+  public void testExactDoubles() {
+    assertNumbers(NUMBERS);
+  }
+
+  @Test
+  public void testRoundTripDoubles() {
+    final Random random = new Random(0);
+    final List<String> texts = new ArrayList<>();
+    while (texts.size() < 100000) {
+      final double value;
+      switch (texts.size() % 4) {
+        case 0:
+          // Any bit pattern, including subnormals
+          value = Double.longBitsToDouble(random.nextLong());
+        break;
+        case 1:
+          // Coordinates with a few decimal places
+          value = (random.nextInt(2000000000) - 1000000000) / 1000.0;
+        break;
+        case 2:
+          value = Double.longBitsToDouble(random.nextLong() & 0x000FFFFFFFFFFFFFL);
+        break;
+        default:
+          value = random.nextDouble() * Math.pow(10, random.nextInt(40) - 20);
+        break;
+      }
+      if (Double.isFinite(value)) {
+        texts.add(Double.toString(value));
+      }
+    }
+    assertNumbers(texts.toArray(new String[texts.size()]));
+  }
+}
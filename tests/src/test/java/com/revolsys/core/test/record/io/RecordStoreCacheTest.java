@@ -0,0 +1,346 @@
+package com.revolsys.core.test.record.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.BoundingBox;
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.ListRecordReader;
+import com.revolsys.record.io.RecordReader;
+import com.revolsys.record.io.RecordStoreCache;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.query.Query;
+import com.revolsys.record.schema.AbstractRecordStore;
+import com.revolsys.record.schema.FieldDefinition;
+import com.revolsys.record.schema.RecordDefinition;
+import com.revolsys.record.schema.RecordDefinitionBuilder;
+
+/**
+ * Test the coverage tracking, delta queries, de-duplication and eviction of the
+ * {@link RecordStoreCache} using an in memory record store that counts the queries.
+ */
+public class RecordStoreCacheTest {
+  private static class TestRecordStore extends AbstractRecordStore {
+    private int queryCount;
+
+    private final List<Record> records = new ArrayList<>();
+
+    private int returnedCount;
+
+    public Record addRecord(final int id, final Geometry geometry) {
+      final Record record = new ArrayRecord(RECORD_DEFINITION);
+      record.setValue("ID", id);
+      record.setGeometryValue(geometry);
+      this.records.add(record);
+      return record;
+    }
+
+    @Override
+    public int getRecordCount(final Query query) {
+      return query(query).size();
+    }
+
+    @Override
+    public RecordReader getRecords(final Query query) {
+      final List<Record> records = query(query);
+      synchronized (this) {
+        this.queryCount++;
+        this.returnedCount += records.size();
+      }
+      return new ListRecordReader(RECORD_DEFINITION, records);
+    }
+
+    @Override
+    public String getRecordStoreType() {
+      return "Test";
+    }
+
+    @Override
+    public RecordWriter newRecordWriter(final boolean throwExceptions) {
+      throw new UnsupportedOperationException();
+    }
+
+    private List<Record> query(final Query query) {
+      final List<Record> records = new ArrayList<>();
+      for (final Record record : this.records) {
+        if (query.getWhereCondition().test(record)) {
+          records.add(record);
+        }
+      }
+      return records;
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static final RecordDefinition RECORD_DEFINITION = new RecordDefinitionBuilder("/TEST") //
+    .addIdField(new FieldDefinition("ID", DataTypes.INT, true)) //
+    .addField("GEOMETRY", GeometryDataTypes.GEOMETRY) //
+    .setGeometryFactory(GEOMETRY_FACTORY) //
+    .getRecordDefinition();
+
+  /** 16 points in each 1000 x 1000 tile from 0,0 to 8000,8000. */
+  private static TestRecordStore newGridRecordStore() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    int id = 0;
+    for (int y = 0; y < 32; y++) {
+      for (int x = 0; x < 32; x++) {
+        recordStore.addRecord(id++, GEOMETRY_FACTORY.point(x * 250 + 125, y * 250 + 125));
+      }
+    }
+    return recordStore;
+  }
+
+  private static List<Record> getRecords(final RecordStoreCache cache, final double minX,
+    final double minY, final double maxX, final double maxY) {
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(minX, minY, maxX, maxY);
+    return cache.getRecords(boundingBox).join();
+  }
+
+  private static List<Integer> ids(final List<Record> records) {
+    final List<Integer> ids = new ArrayList<>();
+    for (final Record record : records) {
+      ids.add(record.getInteger("ID"));
+    }
+    ids.sort(null);
+    return ids;
+  }
+
+  private static RecordStoreCache newCache(final TestRecordStore recordStore) {
+    return new RecordStoreCache(recordStore, RECORD_DEFINITION, Runnable::run);
+  }
+
+  @Test
+  public void testCancelledOtherRequest() throws Exception {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final List<Runnable> loads = new ArrayList<>();
+    final RecordStoreCache cache = new RecordStoreCache(recordStore, RECORD_DEFINITION,
+      loads::add);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 999, 999);
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    final CompletableFuture<List<Record>> future1 = cache.getRecords(boundingBox, cancelled::get);
+    // The second request waits for the tile being loaded by the first request
+    final CompletableFuture<List<Record>> future2 = cache.getRecords(boundingBox, () -> false);
+    Assert.assertEquals("loads", 1, loads.size());
+
+    cancelled.set(true);
+    loads.remove(0).run();
+    for (final CompletableFuture<List<Record>> future : List.of(future1, future2)) {
+      try {
+        future.get();
+        Assert.fail("Expected cancel");
+      } catch (final ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof CancellationException);
+      }
+    }
+
+    // The tile is no longer loading so the second request can load it again
+    final CompletableFuture<List<Record>> future3 = cache.getRecords(boundingBox, () -> false);
+    Assert.assertEquals("loads", 1, loads.size());
+    loads.remove(0).run();
+    Assert.assertEquals(16, future3.get().size());
+    Assert.assertEquals("queryCount", 2, recordStore.queryCount);
+  }
+
+  @Test
+  public void testCancelledQuery() {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final RecordStoreCache cache = newCache(recordStore);
+    final AtomicBoolean cancelled = new AtomicBoolean(true);
+    cache.setQueryFactory(boundingBox -> {
+      final Query query = Query.intersects(RECORD_DEFINITION, boundingBox);
+      query.setCancellable(cancelled::get);
+      return query;
+    });
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 999, 999);
+    Assert.assertTrue(cache.getRecords(boundingBox).isCompletedExceptionally());
+    Assert.assertEquals("recordCount", 0, cache.getRecordCount());
+
+    // The tile wasn't marked as loaded so it is queried again
+    cancelled.set(false);
+    Assert.assertEquals(16, cache.getRecords(boundingBox).join().size());
+    Assert.assertEquals("queryCount", 2, recordStore.queryCount);
+  }
+
+  @Test
+  public void testCoverage() {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final RecordStoreCache cache = newCache(recordStore);
+    Assert.assertEquals("tileSize", 1000, cache.getTileSize(), 0);
+
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 1999, 1999);
+    // The queries are run on this thread so the records are loaded before returning
+    Assert.assertEquals("loaded", 64, cache.getObjects(boundingBox).size());
+    Assert.assertEquals("queryCount", 2, recordStore.queryCount);
+    Assert.assertEquals("cached", 64, cache.getCachedRecords(boundingBox).size());
+
+    // Areas inside the loaded tiles don't query the record store
+    Assert.assertEquals(4, getRecords(cache, 1000, 1000, 1499, 1499).size());
+    Assert.assertEquals(64, getRecords(cache, 0, 0, 1999, 1999).size());
+    Assert.assertEquals("queryCount", 2, recordStore.queryCount);
+    Assert.assertEquals("recordCount", 64, cache.getRecordCount());
+    Assert.assertTrue("size", cache.getSize() > 0);
+
+    // Removed tiles are queried again
+    cache.removeObjects(GEOMETRY_FACTORY.newBoundingBox(0, 0, 999, 999));
+    Assert.assertEquals("recordCount", 48, cache.getRecordCount());
+    Assert.assertEquals(48, cache.getCachedRecords(boundingBox).size());
+    Assert.assertEquals(64, getRecords(cache, 0, 0, 1999, 1999).size());
+    Assert.assertEquals("queryCount", 3, recordStore.queryCount);
+
+    cache.clear();
+    Assert.assertEquals("recordCount", 0, cache.getRecordCount());
+    Assert.assertEquals("size", 0, cache.getSize());
+    Assert.assertTrue(cache.getCachedRecords(boundingBox).isEmpty());
+  }
+
+  @Test
+  public void testDeduplicate() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    recordStore.addRecord(1, GEOMETRY_FACTORY.lineString(2, 500.0, 500, 2500, 500));
+    recordStore.addRecord(2, GEOMETRY_FACTORY.point(500, 500));
+    final RecordStoreCache cache = newCache(recordStore);
+
+    // Load each tile the line crosses separately
+    Assert.assertEquals(List.of(1, 2), ids(getRecords(cache, 0, 0, 999, 999)));
+    Assert.assertEquals(List.of(1), ids(getRecords(cache, 1000, 0, 1999, 999)));
+    Assert.assertEquals(List.of(1), ids(getRecords(cache, 2000, 0, 2999, 999)));
+    Assert.assertEquals("queryCount", 3, recordStore.queryCount);
+    Assert.assertEquals("recordCount", 2, cache.getRecordCount());
+    Assert.assertEquals(List.of(1, 2), ids(getRecords(cache, 0, 0, 2999, 999)));
+
+    // The line is kept until all the tiles it's in are removed
+    cache.removeObjects(GEOMETRY_FACTORY.newBoundingBox(0, 0, 1999, 999));
+    Assert.assertEquals("recordCount", 1, cache.getRecordCount());
+    Assert.assertEquals(List.of(1),
+      ids(cache.getCachedRecords(GEOMETRY_FACTORY.newBoundingBox(2000, 0, 2999, 999))));
+    cache.removeObjects(GEOMETRY_FACTORY.newBoundingBox(2000, 0, 2999, 999));
+    Assert.assertEquals("recordCount", 0, cache.getRecordCount());
+    Assert.assertEquals("size", 0, cache.getSize());
+  }
+
+  @Test
+  public void testDeltaQueries() {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final RecordStoreCache cache = newCache(recordStore);
+
+    Assert.assertEquals(48, getRecords(cache, 0, 0, 2999, 999).size());
+    Assert.assertEquals("queryCount", 1, recordStore.queryCount);
+    Assert.assertEquals("returnedCount", 48, recordStore.returnedCount);
+
+    // Panning only queries the newly visible tile
+    Assert.assertEquals(48, getRecords(cache, 1000, 0, 3999, 999).size());
+    Assert.assertEquals("queryCount", 2, recordStore.queryCount);
+    Assert.assertEquals("returnedCount", 64, recordStore.returnedCount);
+
+    // Each row of missing tiles is one query
+    Assert.assertEquals(128, getRecords(cache, 0, 0, 3999, 1999).size());
+    Assert.assertEquals("queryCount", 3, recordStore.queryCount);
+    Assert.assertEquals("returnedCount", 128, recordStore.returnedCount);
+
+    // A loaded tile in the middle of a row splits the query
+    getRecords(cache, 1000, 2000, 1999, 2999);
+    Assert.assertEquals("queryCount", 4, recordStore.queryCount);
+    Assert.assertEquals(64, getRecords(cache, 0, 2000, 3999, 2999).size());
+    Assert.assertEquals("queryCount", 6, recordStore.queryCount);
+    Assert.assertEquals("returnedCount", 192, recordStore.returnedCount);
+  }
+
+  @Test
+  public void testEviction() {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final RecordStoreCache cache = newCache(recordStore);
+    cache.setMaxRecordCount(40);
+
+    getRecords(cache, 0, 0, 999, 999);
+    getRecords(cache, 1000, 0, 1999, 999);
+    Assert.assertEquals("recordCount", 32, cache.getRecordCount());
+    getRecords(cache, 2000, 0, 2999, 999);
+    Assert.assertEquals("recordCount", 32, cache.getRecordCount());
+    Assert.assertEquals("evicted", 0,
+      cache.getCachedRecords(GEOMETRY_FACTORY.newBoundingBox(0, 0, 999, 999)).size());
+
+    // The least recently used tile is evicted
+    getRecords(cache, 1000, 0, 1999, 999);
+    Assert.assertEquals("queryCount", 3, recordStore.queryCount);
+    getRecords(cache, 3000, 0, 3999, 999);
+    Assert.assertEquals("recordCount", 32, cache.getRecordCount());
+    Assert.assertEquals(16,
+      cache.getCachedRecords(GEOMETRY_FACTORY.newBoundingBox(1000, 0, 1999, 999)).size());
+    Assert.assertEquals("evicted", 0,
+      cache.getCachedRecords(GEOMETRY_FACTORY.newBoundingBox(2000, 0, 2999, 999)).size());
+
+    // The size limit keeps at least one tile
+    final long size = cache.getSize();
+    cache.setMaxSize(size / 2);
+    Assert.assertEquals("recordCount", 16, cache.getRecordCount());
+    Assert.assertEquals("size", size / 2, cache.getSize());
+    cache.setMaxSize(1);
+    Assert.assertEquals("recordCount", 16, cache.getRecordCount());
+  }
+
+  @Test
+  public void testExecutor() throws Exception {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    final RecordStoreCache cache = new RecordStoreCache(recordStore, RECORD_DEFINITION, executor);
+    try {
+      final CompletableFuture<List<Record>> future = cache
+        .getRecords(GEOMETRY_FACTORY.newBoundingBox(0, 0, 3999, 3999));
+      Assert.assertEquals(256, future.get().size());
+      Assert.assertEquals("queryCount", 4, recordStore.queryCount);
+    } finally {
+      executor.shutdown();
+    }
+
+    // Loads rejected by the executor fail and aren't left loading
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(4000, 0, 4999, 999);
+    Assert.assertTrue(cache.getRecords(boundingBox).isCompletedExceptionally());
+    Assert.assertTrue(cache.getRecords(boundingBox).isCompletedExceptionally());
+    Assert.assertEquals("queryCount", 4, recordStore.queryCount);
+  }
+
+  @Test
+  public void testNoRecordDefinition() {
+    final TestRecordStore recordStore = newGridRecordStore();
+    final RecordStoreCache cache = new RecordStoreCache(recordStore, Runnable::run);
+    final BoundingBox boundingBox = GEOMETRY_FACTORY.newBoundingBox(0, 0, 999, 999);
+    Assert.assertNull(cache.getObjects(boundingBox));
+    Assert.assertTrue(cache.getRecords(boundingBox).isCompletedExceptionally());
+    Assert.assertTrue(cache.getCachedRecords(boundingBox).isEmpty());
+    Assert.assertEquals("queryCount", 0, recordStore.queryCount);
+  }
+
+  @Test
+  public void testNullGeometry() {
+    final TestRecordStore recordStore = new TestRecordStore();
+    recordStore.addRecord(1, GEOMETRY_FACTORY.point(500, 500));
+    recordStore.addRecord(2, GEOMETRY_FACTORY.point(5500, 500));
+    recordStore.addRecord(3, null);
+    final RecordStoreCache cache = newCache(recordStore);
+    // A query that isn't limited to the bounding box
+    final Function<BoundingBox, Query> queryFactory = boundingBox -> new Query(RECORD_DEFINITION);
+    cache.setQueryFactory(queryFactory);
+
+    Assert.assertEquals(List.of(1, 3), ids(getRecords(cache, 0, 0, 999, 999)));
+    Assert.assertEquals(List.of(3), ids(getRecords(cache, 1000, 0, 1999, 999)));
+    Assert.assertEquals("recordCount", 2, cache.getRecordCount());
+    Assert.assertEquals(List.of(1, 3), ids(getRecords(cache, 0, 0, 1999, 999)));
+  }
+}
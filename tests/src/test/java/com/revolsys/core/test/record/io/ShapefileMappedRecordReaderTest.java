@@ -0,0 +1,193 @@
+package com.revolsys.core.test.record.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jeometry.common.data.type.DataTypes;
+import org.jeometry.common.io.PathName;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.geometry.model.Geometry;
+import com.revolsys.geometry.model.GeometryDataTypes;
+import com.revolsys.geometry.model.GeometryFactory;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.IoConstants;
+import com.revolsys.record.ArrayRecord;
+import com.revolsys.record.Record;
+import com.revolsys.record.io.RecordWriter;
+import com.revolsys.record.io.format.shp.ShapefileRecordReader;
+import com.revolsys.record.schema.RecordDefinitionImpl;
+import com.revolsys.spring.resource.PathResource;
+
+/**
+ * Test that the memory mapped {@link ShapefileRecordReader} returns the same records as the
+ * sequential reader, using small chunks so the records are split across many threads.
+ */
+public class ShapefileMappedRecordReaderTest {
+  private static final int RECORD_COUNT = 1000;
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed2d(3005, 1000.0,
+    1000.0);
+
+  private static void assertThreadsStopped(final Path file) throws InterruptedException {
+    final String threadName = "ShapefileReader " + file.getFileName();
+    final long maxTime = System.currentTimeMillis() + 10000;
+    while (true) {
+      boolean running = false;
+      for (final Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().equals(threadName) && thread.isAlive()) {
+          running = true;
+        }
+      }
+      if (!running) {
+        return;
+      } else if (System.currentTimeMillis() > maxTime) {
+        Assert.fail("Threads still running " + threadName);
+      }
+      Thread.sleep(10);
+    }
+  }
+
+  private static ShapefileRecordReader newMappedReader(final Path file, final boolean ordered,
+    final RecordDefinitionImpl recordDefinition) throws IOException {
+    final ShapefileRecordReader reader = new ShapefileRecordReader(new PathResource(file),
+      ArrayRecord.FACTORY);
+    reader.setMemoryMapped(true);
+    reader.setThreadCount(4);
+    reader.setChunkRecordCount(37);
+    reader.setOrdered(ordered);
+    if (recordDefinition != null) {
+      reader.setRecordDefinition(recordDefinition);
+    }
+    return reader;
+  }
+
+  /**
+   * Read the values of the records, with the geometry as EWKT.
+   */
+  private static List<List<Object>> read(final ShapefileRecordReader reader) {
+    final List<List<Object>> records = new ArrayList<>();
+    try {
+      for (final Record record : reader) {
+        final List<Object> values = new ArrayList<>();
+        for (final Object value : record.getValues()) {
+          if (value instanceof Geometry) {
+            values.add(((Geometry)value).toEwkt());
+          } else {
+            values.add(value);
+          }
+        }
+        records.add(values);
+      }
+    } finally {
+      reader.close();
+    }
+    return records;
+  }
+
+  private static List<List<Object>> readSorted(final ShapefileRecordReader reader,
+    final int idIndex) {
+    final List<List<Object>> records = read(reader);
+    records.sort(Comparator.comparing(values -> ((Number)values.get(idIndex)).intValue()));
+    return records;
+  }
+
+  private static Path writeShapefile() throws IOException {
+    final Path directory = Files.createTempDirectory("ShapefileMappedRecordReaderTest");
+    final Path file = directory.resolve("test.shp");
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      PathName.newPathName("/test"));
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, 20, true);
+    recordDefinition.addField("VALUE", DataTypes.DOUBLE, 10, 3, true);
+    recordDefinition.addField("GEOMETRY", GeometryDataTypes.LINE_STRING, true);
+    recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+    try (
+      RecordWriter writer = RecordWriter.newRecordWriter(recordDefinition,
+        new PathResource(file))) {
+      writer.setProperty(IoConstants.GEOMETRY_FACTORY, GEOMETRY_FACTORY);
+      writer.setProperty(IoConstants.GEOMETRY_TYPE, GeometryDataTypes.LINE_STRING);
+      for (int i = 0; i < RECORD_COUNT; i++) {
+        final Record record = new ArrayRecord(recordDefinition);
+        record.setValue("ID", i);
+        record.setValue("NAME", "name" + i);
+        record.setValue("VALUE", i * 1.5);
+        // Vary the vertex count so the .shp records have different lengths
+        final double[] coordinates = new double[(2 + i % 5) * 2];
+        for (int j = 0; j < coordinates.length; j++) {
+          coordinates[j] = i * 10 + j;
+        }
+        record.setGeometryValue(GEOMETRY_FACTORY.lineString(2, coordinates));
+        writer.write(record);
+      }
+    }
+    return file;
+  }
+
+  @Test
+  public void testFieldSubset() throws Exception {
+    final Path file = writeShapefile();
+    try {
+      final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+        PathName.newPathName("/test"));
+      recordDefinition.addField("VALUE", DataTypes.DOUBLE, 10, 3, true);
+      recordDefinition.addField("ID", DataTypes.INT, true);
+      recordDefinition.addField("geometry", GeometryDataTypes.MULTI_LINE_STRING, true);
+      recordDefinition.setGeometryFactory(GEOMETRY_FACTORY);
+
+      final ShapefileRecordReader expectedReader = new ShapefileRecordReader(
+        new PathResource(file), ArrayRecord.FACTORY);
+      expectedReader.setRecordDefinition(recordDefinition);
+      final List<List<Object>> expected = read(expectedReader);
+      Assert.assertEquals("recordCount", RECORD_COUNT, expected.size());
+      Assert.assertEquals("fieldCount", 3, expected.get(0).size());
+
+      Assert.assertEquals("ordered", expected, read(newMappedReader(file, true, recordDefinition)));
+      Assert.assertEquals("unordered", expected,
+        readSorted(newMappedReader(file, false, recordDefinition), 1));
+      assertThreadsStopped(file);
+    } finally {
+      FileUtil.deleteDirectory(file.getParent().toFile());
+    }
+  }
+
+  @Test
+  public void testOrderedAndUnordered() throws Exception {
+    final Path file = writeShapefile();
+    try {
+      final List<List<Object>> expected = read(
+        new ShapefileRecordReader(new PathResource(file), ArrayRecord.FACTORY));
+      Assert.assertEquals("recordCount", RECORD_COUNT, expected.size());
+
+      Assert.assertEquals("ordered", expected, read(newMappedReader(file, true, null)));
+      Assert.assertEquals("unordered", expected, readSorted(newMappedReader(file, false, null), 0));
+      assertThreadsStopped(file);
+    } finally {
+      FileUtil.deleteDirectory(file.getParent().toFile());
+    }
+  }
+
+  @Test
+  public void testThreadsStoppedWithoutClose() throws Exception {
+    final Path file = writeShapefile();
+    try {
+      final ShapefileRecordReader reader = newMappedReader(file, true, null);
+      int count = 0;
+      for (final Record record : reader) {
+        Assert.assertEquals("ID", count, record.getInteger("ID").intValue());
+        count++;
+      }
+      Assert.assertEquals("recordCount", RECORD_COUNT, count);
+      // The thread pool is shut down once all the chunks have been read
+      assertThreadsStopped(file);
+      reader.close();
+    } finally {
+      FileUtil.deleteDirectory(file.getParent().toFile());
+    }
+  }
+}